@@ -1,7 +1,9 @@
 package perspectiveBox;
 
+import java.io.File;
 import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
+import java.util.Collections;
 
 import org.lwjgl.BufferUtils;
 import org.lwjgl.input.Keyboard;
@@ -15,23 +17,52 @@ import static org.lwjgl.opengl.GL30.*;
 import static org.lwjgl.opengl.GL32.*;
 
 import org.lwjgl.util.vector.Matrix4f;
-import org.lwjgl.util.vector.Vector3f;
 
 import util.GLUtils;
 import util.LwjglWindow;
 import util.Camera;
-import util.ShaderUtils;
+import util.asset.Asset;
+import util.asset.AssetWatcher;
+import util.asset.ShaderProgramLoader;
+import util.culling.AabbBatch;
+import util.culling.Frustum;
+import util.culling.FrustumCuller;
+import util.graphics.GraphicsDevice;
+import util.graphics.RenderQueue;
+import util.math.Matrix4Batch;
+import util.profile.Profiler;
+import util.scene.TransformHierarchy;
+import util.shader.ProgramBinaryCache;
+import util.shader.ShaderException;
+import util.shader.ShaderPreprocessor;
+import util.shader.ShaderProgramCache;
 
 public class PerspectiveBox extends LwjglWindow {
 	
+	private static final int INPUT_SCOPE = Profiler.INSTANCE.scope("processUserInput");
+	private static final int UNIFORMS_SCOPE = Profiler.INSTANCE.scope("updateMatrixUniforms");
+	private static final int SUBMIT_SCOPE = Profiler.INSTANCE.scope("RenderQueue.submit");
+	private static final int CULL_SCOPE = Profiler.INSTANCE.scope("FrustumCuller.cull");
+	
 	public static void main(String[] args) {
 		PerspectiveBox p = new PerspectiveBox();
 		p.setWindowTitle("Quaternion Camera Demo");
+		if (args.length > 0 && args[0].equals("-profile")) {
+			// Prints a summary of each cycle once a second, and writes a
+			// Chrome trace on exit.
+			p.enableFpsDisplay();
+			p.enableProfiling(new File("PerspectiveBox_trace.json"));
+		}
 		p.start();
 	}
 	
 	// OpenGL related identifiers.
+	private GraphicsDevice device;
 	private int programId;
+	private ShaderProgramCache shaderCache;
+	private AssetWatcher assetWatcher;
+	private Asset<Integer> program;
+	private RenderQueue renderQueue = new RenderQueue();
 	private int vaoBlock;
 	private int vaoGround;
 	private int vboPositions;
@@ -46,12 +77,28 @@ public class PerspectiveBox extends LwjglWindow {
 	private int cameraToClipMatrix_Location;
 	
 	// Matrix related data.
-	private Matrix4f box_modelToWorldMatrix;
+	private static final int BOX = 0;
+	private static final int GROUND = 1;
+	private TransformHierarchy sceneTransforms;
 	private Matrix4f worldToCameraMatrix;
 	private Matrix4f cameraToClipMatrix;
-	private Matrix4f ground_modelToWorldMatrix;
 	private FloatBuffer matrix4fBuffer;
 	
+	// Per object draw data, and bounds in model and world space, indexed by
+	// BOX and GROUND.
+	private static final int OBJECT_COUNT = 2;
+	private int[] objectNodes = new int[OBJECT_COUNT];
+	private int[] objectVertexArrays;
+	private int[] objectIndexCounts;
+	private AabbBatch modelBounds = new AabbBatch(OBJECT_COUNT);
+	private AabbBatch worldBounds = new AabbBatch(OBJECT_COUNT);
+	
+	// Objects in view this frame.
+	private Frustum frustum = new Frustum();
+	private FrustumCuller frustumCuller = new FrustumCuller();
+	private int[] visibleObjects = new int[OBJECT_COUNT];
+	private int visibleObjectCount;
+	
 	private byte[] indices;
 	
 	private Camera camera;
@@ -65,6 +112,7 @@ public class PerspectiveBox extends LwjglWindow {
 	//--------------------------------------------------------------------------
 	@Override
 	protected void initialize(){
+		device = this.getGraphicsDevice();
 		this.setupGL();
 		this.setupShaders();
 		this.setupMatrices();
@@ -93,36 +141,56 @@ public class PerspectiveBox extends LwjglWindow {
 	//--------------------------------------------------------------------------
 	@Override
 	protected void logicCycle(){
+		// Swap in shaders edited since the last frame.
+		if (assetWatcher.swap() > 0) {
+			this.setupProgram();
+		}
+		
 	    this.lookAtBoxIfToogled();
+		Profiler.INSTANCE.begin(INPUT_SCOPE);
 		this.processUserInput();
+		Profiler.INSTANCE.end(INPUT_SCOPE);
 	    this.lookAtBoxIfToogled();
 	    
+		sceneTransforms.update();
+		
+		Profiler.INSTANCE.begin(UNIFORMS_SCOPE);
 		this.updateMatrixUniforms();
+		Profiler.INSTANCE.end(UNIFORMS_SCOPE);
+		
+		Profiler.INSTANCE.begin(CULL_SCOPE);
+		this.updateWorldBounds();
+		frustum.set(cameraToClipMatrix, worldToCameraMatrix);
+		visibleObjectCount = frustumCuller.cull(frustum, worldBounds, 0, OBJECT_COUNT,
+				visibleObjects);
+		Profiler.INSTANCE.end(CULL_SCOPE);
 	}
 	
 	//--------------------------------------------------------------------------
 	@Override
 	protected void renderCycle(){
-		glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT); 
-		
-		glUseProgram(programId);
-		
-		//-- Render Block.
-		glBindVertexArray(vaoBlock);
-		glDrawElements(GL_TRIANGLES, indices.length, GL_UNSIGNED_BYTE, 0);
-		
-		//-- Render Ground.
-		// Load the specific ground modelToWorld matrix uniform.
-		ground_modelToWorldMatrix.store(matrix4fBuffer);
-		matrix4fBuffer.flip();
-		glUniformMatrix4(modelToWorldMatrix_Location, false, matrix4fBuffer);
-		glBindVertexArray(vaoGround);
-		glDrawRangeElements(GL_TRIANGLES, 0, 3, 6, GL_UNSIGNED_BYTE, 0);
+		device.clear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT); 
+		
+		renderQueue.clear();
+		
+		//-- Render the objects in view.
+		for (int i = 0; i < visibleObjectCount; i++) {
+			int object = visibleObjects[i];
+			int vertexArray = objectVertexArrays[object];
+			renderQueue.add(RenderQueue.sortKey(0, programId, 0, vertexArray, 0),
+					programId, vertexArray, 0, GL_TRIANGLES, objectIndexCounts[object],
+					GL_UNSIGNED_BYTE, 0);
+			renderQueue.addUniformMatrix4(modelToWorldMatrix_Location,
+					sceneTransforms.getWorldMatrices().m,
+					sceneTransforms.indexOf(objectNodes[object]) * Matrix4Batch.FLOATS_PER_MATRIX);
+		}
 		
-		glBindVertexArray(0);
-		glUseProgram(0);
+		Profiler.INSTANCE.begin(SUBMIT_SCOPE);
+		renderQueue.sort();
+		renderQueue.submit(device);
+		Profiler.INSTANCE.end(SUBMIT_SCOPE);
 		
-		GLUtils.exitOnGLError("renderCycle");
+		GLUtils.checkGLError(device, "renderCycle");
 	} 
 	
 	//--------------------------------------------------------------------------
@@ -146,24 +214,25 @@ public class PerspectiveBox extends LwjglWindow {
 		}
     	
     	// Use entire window for rendering.
-    	glViewport(0, 0, width, height);
+    	device.viewport(0, 0, width, height);
 	}
 	
 	//--------------------------------------------------------------------------
 	@Override
 	protected void cleanup(){
-		glDisableVertexAttribArray(0);
-		glDisableVertexAttribArray(1);
+		device.disableVertexAttribArray(0);
+		device.disableVertexAttribArray(1);
 		
-		glBindBuffer(GL_ARRAY_BUFFER, 0);
-		glDeleteBuffers(vboPositions);
-		glDeleteBuffers(vboColors);
-		glDeleteBuffers(vboIndices);
+		device.bindBuffer(GL_ARRAY_BUFFER, 0);
+		device.deleteBuffer(vboPositions);
+		device.deleteBuffer(vboColors);
+		device.deleteBuffer(vboIndices);
 		
-		glBindVertexArray(0);
-		glDeleteVertexArrays(vaoBlock);
+		device.bindVertexArray(0);
+		device.deleteVertexArray(vaoBlock);
 		
-		glDeleteProgram(programId);
+		assetWatcher.dispose();
+		shaderCache.dispose();
 		
 		Display.destroy();
 	}
@@ -171,69 +240,83 @@ public class PerspectiveBox extends LwjglWindow {
 	//--------------------------------------------------------------------------
 	private void setupGL(){
 		// Render only the front face of geometry.
-		glEnable(GL_CULL_FACE);
-	    glCullFace(GL_BACK);
-	    glFrontFace(GL_CCW);
+		device.enable(GL_CULL_FACE);
+	    device.cullFace(GL_BACK);
+	    device.frontFace(GL_CCW);
 	    
 	    // Setup depth testing
-		glEnable(GL_DEPTH_TEST);
-		glDepthMask(true);
-		glDepthFunc(GL_LEQUAL);
-		glDepthRange(0.0f, 1.0f);
-		glEnable(GL_DEPTH_CLAMP);
+		device.enable(GL_DEPTH_TEST);
+		device.depthMask(true);
+		device.depthFunc(GL_LEQUAL);
+		device.depthRange(0.0f, 1.0f);
+		device.enable(GL_DEPTH_CLAMP);
 	    
-		glClearColor(0.3f, 0.5f, 0.7f, 0f);
+		device.clearColor(0.3f, 0.5f, 0.7f, 0f);
 	}
 	
 	//--------------------------------------------------------------------------
 	private void setupShaders(){
-		String vertexShaderFile = "src/perspectiveBox/shaders/PosColorWorldTransform.vert";
-		int vertexShaderId = ShaderUtils.loadShader(vertexShaderFile, GL_VERTEX_SHADER);
-		
-		String fragmentShaderFile = "src/perspectiveBox/shaders/ColorPassthrough.frag"; 
-		int fragmentShaderId = ShaderUtils.loadShader(fragmentShaderFile, GL_FRAGMENT_SHADER);
-		
-		
-		programId = glCreateProgram();
-		glAttachShader(programId, vertexShaderId);
-		glAttachShader(programId, fragmentShaderId);
+		try {
+			// Linked programs are kept on disk, so later runs skip compiling.
+			shaderCache = new ShaderProgramCache(device,
+					new ProgramBinaryCache(new File("PerspectiveBox_programs")));
+			assetWatcher = new AssetWatcher();
+			program = assetWatcher.register(new ShaderProgramLoader(shaderCache,
+					new ShaderPreprocessor(),
+					"src/perspectiveBox/shaders/PosColorWorldTransform.vert",
+					"src/perspectiveBox/shaders/ColorPassthrough.frag",
+					Collections.<String, String>emptyMap()));
+		}
+		catch (Exception e) {
+			throw new ShaderException("Could not load shaders.", e);
+		}
 		
-		ShaderUtils.linkProgram(programId);
+		this.setupProgram();
+	}
+	
+	//--------------------------------------------------------------------------
+	/*
+	 * Queries the locations of the current program's inputs. Called again
+	 * whenever the program is reloaded.
+	 */
+	private void setupProgram(){
+		programId = program.get();
 		
 		// Bind vertex attribute locations.
-		glBindAttribLocation(programId, 0, "in_Position");
-		glBindAttribLocation(programId, 1, "in_Color");
+		device.bindAttribLocation(programId, 0, "in_Position");
+		device.bindAttribLocation(programId, 1, "in_Color");
 		
 		
-		glUseProgram(programId);
+		device.useProgram(programId);
 		
 		// Get location of shader uniforms.
-		cameraToClipMatrix_Location = glGetUniformLocation(programId, "cameraToClipMatrix");
-		worldToCameraMatrix_Location = glGetUniformLocation(programId, "worldToCameraMatrix");
-		modelToWorldMatrix_Location = glGetUniformLocation(programId, "modelToWorldMatrix");
+		cameraToClipMatrix_Location = device.getUniformLocation(programId, "cameraToClipMatrix");
+		worldToCameraMatrix_Location = device.getUniformLocation(programId, "worldToCameraMatrix");
+		modelToWorldMatrix_Location = device.getUniformLocation(programId, "modelToWorldMatrix");
 		
 		// Get location of vertex attributes
-		positionAttrib_Location = glGetAttribLocation(programId, "position");
-		colorAttrib_Location = glGetAttribLocation(programId, "color");
+		positionAttrib_Location = device.getAttribLocation(programId, "position");
+		colorAttrib_Location = device.getAttribLocation(programId, "color");
 		
-		glValidateProgram(programId);
+		device.validateProgram(programId);
 		
-		GLUtils.exitOnGLError("setupShaders");
+		GLUtils.checkGLError(device, "setupShaders");
 		
-		glUseProgram(0);
+		device.useProgram(0);
 	}
 	
 	//--------------------------------------------------------------------------
 	private void setupMatrices(){
-		box_modelToWorldMatrix = new Matrix4f();
+		// The box rests on the ground, so it moves with it.
+		sceneTransforms = new TransformHierarchy(OBJECT_COUNT);
+		objectNodes[GROUND] = sceneTransforms.createNode(TransformHierarchy.NO_PARENT);
+		objectNodes[BOX] = sceneTransforms.createNode(objectNodes[GROUND]);
 		
 		worldToCameraMatrix = new Matrix4f();
 		
 		cameraToClipMatrix = GLUtils.createProjectionMatrixFov(frustumFov,
 				frustumAspectRatio, frustumNearDistance, frustumFarDistance);
 		
-		ground_modelToWorldMatrix = new Matrix4f();
-		
 		// Used as a vehicle for sending matrix data OpenGL.
 		matrix4fBuffer = BufferUtils.createFloatBuffer(16);
 	}
@@ -242,7 +325,7 @@ public class PerspectiveBox extends LwjglWindow {
 	private void setupCamera(){
 		camera = new Camera();
 		
-		worldToCameraMatrix = camera.getViewMatrix();
+		camera.getViewMatrix(worldToCameraMatrix);
 	}
 	
 	//--------------------------------------------------------------------------
@@ -351,8 +434,9 @@ public class PerspectiveBox extends LwjglWindow {
 		};
 		
 		
-		// Move box into scene.
-		box_modelToWorldMatrix.translate(new Vector3f(-7f, -9f, -45f));
+		// Move box into scene, relative to the ground.
+		sceneTransforms.setTranslation(objectNodes[BOX], -7f, 1f, -5f);
+		modelBounds.setFromPoints(BOX, boxVertexPositions, 0, boxVertexPositions.length / 3);
 		
 		//-- Put position data into a FloatBuffer.
 		FloatBuffer vertexPositionBuffer = BufferUtils
@@ -372,21 +456,21 @@ public class PerspectiveBox extends LwjglWindow {
 		indicesBuffer.flip();
 		
 		//-- Map VBO to position data within OpenGL.
-		vboPositions = glGenBuffers();
-		glBindBuffer(GL_ARRAY_BUFFER, vboPositions);
-		glBufferData(GL_ARRAY_BUFFER, vertexPositionBuffer, GL_STATIC_DRAW);
-		glBindBuffer(GL_ARRAY_BUFFER, 0);
+		vboPositions = device.createBuffer();
+		device.bindBuffer(GL_ARRAY_BUFFER, vboPositions);
+		device.bufferData(GL_ARRAY_BUFFER, vertexPositionBuffer, GL_STATIC_DRAW);
+		device.bindBuffer(GL_ARRAY_BUFFER, 0);
 		
 		//-- Map VBO to color data within OpenGL.
-		vboColors = glGenBuffers();
-		glBindBuffer(GL_ARRAY_BUFFER, vboColors);
-		glBufferData(GL_ARRAY_BUFFER, vertexColorBuffer, GL_STATIC_DRAW);
-		glBindBuffer(GL_ARRAY_BUFFER, 0);
+		vboColors = device.createBuffer();
+		device.bindBuffer(GL_ARRAY_BUFFER, vboColors);
+		device.bufferData(GL_ARRAY_BUFFER, vertexColorBuffer, GL_STATIC_DRAW);
+		device.bindBuffer(GL_ARRAY_BUFFER, 0);
 		
 		//-- Map VBO to index data within OpenGL.
-		vboIndices = glGenBuffers();
-		glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, vboIndices);
-		glBufferData(GL_ELEMENT_ARRAY_BUFFER, indicesBuffer, GL_STATIC_DRAW);
+		vboIndices = device.createBuffer();
+		device.bindBuffer(GL_ELEMENT_ARRAY_BUFFER, vboIndices);
+		device.bufferData(GL_ELEMENT_ARRAY_BUFFER, indicesBuffer, GL_STATIC_DRAW);
 		
 		
 		
@@ -405,7 +489,9 @@ public class PerspectiveBox extends LwjglWindow {
 		};
 		
 		// Kick ground into view.
-		ground_modelToWorldMatrix.translate(new Vector3f(0, -10f, -40f));
+		sceneTransforms.setTranslation(objectNodes[GROUND], 0f, -10f, -40f);
+		modelBounds.setFromPoints(GROUND, groundVertexPositions, 0,
+				groundVertexPositions.length / 3);
 		
 		//-- Put ground position data into a FloatBuffer.
 		FloatBuffer groundVertexPositionBuffer = BufferUtils
@@ -420,52 +506,74 @@ public class PerspectiveBox extends LwjglWindow {
 		groundColorBuffer.flip();
 		
 		//-- Map VBO to ground vertex positions
-		vboGroundPositions = glGenBuffers();
-		glBindBuffer(GL_ARRAY_BUFFER, vboGroundPositions);
-		glBufferData(GL_ARRAY_BUFFER, groundVertexPositionBuffer, GL_STATIC_DRAW);
-		glBindBuffer(GL_ARRAY_BUFFER, 0); 
+		vboGroundPositions = device.createBuffer();
+		device.bindBuffer(GL_ARRAY_BUFFER, vboGroundPositions);
+		device.bufferData(GL_ARRAY_BUFFER, groundVertexPositionBuffer, GL_STATIC_DRAW);
+		device.bindBuffer(GL_ARRAY_BUFFER, 0); 
 		
 		//-- Map VBO to ground vertex colors
-		vboGroundColors = glGenBuffers();
-		glBindBuffer(GL_ARRAY_BUFFER, vboGroundColors);
-		glBufferData(GL_ARRAY_BUFFER, groundColorBuffer, GL_STATIC_DRAW);
-		glBindBuffer(GL_ARRAY_BUFFER, 0); 
+		vboGroundColors = device.createBuffer();
+		device.bindBuffer(GL_ARRAY_BUFFER, vboGroundColors);
+		device.bufferData(GL_ARRAY_BUFFER, groundColorBuffer, GL_STATIC_DRAW);
+		device.bindBuffer(GL_ARRAY_BUFFER, 0); 
 		
 	}
 	
 	//--------------------------------------------------------------------------
 	private void setupVertexArrayObject(){
 		//-- Setup VAO for the Block
-		vaoBlock = glGenVertexArrays();
-		glBindVertexArray(vaoBlock);
-		glEnableVertexAttribArray(positionAttrib_Location);
-		glEnableVertexAttribArray(colorAttrib_Location);
+		vaoBlock = device.createVertexArray();
+		device.bindVertexArray(vaoBlock);
+		device.enableVertexAttribArray(positionAttrib_Location);
+		device.enableVertexAttribArray(colorAttrib_Location);
 		
-		glBindBuffer(GL_ARRAY_BUFFER, vboPositions);
-		glVertexAttribPointer(positionAttrib_Location, 3, GL_FLOAT, false, 0, 0);
+		device.bindBuffer(GL_ARRAY_BUFFER, vboPositions);
+		device.vertexAttribPointer(positionAttrib_Location, 3, GL_FLOAT, false, 0, 0);
 		
-		glBindBuffer(GL_ARRAY_BUFFER, vboColors);
-		glVertexAttribPointer(colorAttrib_Location, 4, GL_FLOAT, false, 0, 0);
+		device.bindBuffer(GL_ARRAY_BUFFER, vboColors);
+		device.vertexAttribPointer(colorAttrib_Location, 4, GL_FLOAT, false, 0, 0);
 		
-		glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, vboIndices);
+		device.bindBuffer(GL_ELEMENT_ARRAY_BUFFER, vboIndices);
 		
 		
 		//-- Setup VAO for the Ground
-		vaoGround = glGenVertexArrays();
-		glBindVertexArray(vaoGround);
-		glEnableVertexAttribArray(positionAttrib_Location);
-		glEnableVertexAttribArray(colorAttrib_Location);
+		vaoGround = device.createVertexArray();
+		device.bindVertexArray(vaoGround);
+		device.enableVertexAttribArray(positionAttrib_Location);
+		device.enableVertexAttribArray(colorAttrib_Location);
 		
-		glBindBuffer(GL_ARRAY_BUFFER, vboGroundPositions);
-		glVertexAttribPointer(positionAttrib_Location, 3, GL_FLOAT, false, 0, 0);
+		device.bindBuffer(GL_ARRAY_BUFFER, vboGroundPositions);
+		device.vertexAttribPointer(positionAttrib_Location, 3, GL_FLOAT, false, 0, 0);
 		
-		glBindBuffer(GL_ARRAY_BUFFER, vboGroundColors);
-		glVertexAttribPointer(colorAttrib_Location, 4, GL_FLOAT, false, 0, 0);
+		device.bindBuffer(GL_ARRAY_BUFFER, vboGroundColors);
+		device.vertexAttribPointer(colorAttrib_Location, 4, GL_FLOAT, false, 0, 0);
 		
-		glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, vboIndices);
+		device.bindBuffer(GL_ELEMENT_ARRAY_BUFFER, vboIndices);
 		
-		glBindBuffer(GL_ARRAY_BUFFER, 0);
-		glBindVertexArray(0);
+		device.bindBuffer(GL_ARRAY_BUFFER, 0);
+		device.bindVertexArray(0);
+		
+		objectVertexArrays = new int[] {vaoBlock, vaoGround};
+		objectIndexCounts = new int[] {indices.length, 6};
+	}
+	
+	//--------------------------------------------------------------------------
+	/*
+	 * Transforms the model space bounds of each object moved by the last
+	 * scene update by its model to world matrix, so that culling follows the
+	 * objects as they move.
+	 */
+	private void updateWorldBounds(){
+		float[] modelToWorldMatrices = sceneTransforms.getWorldMatrices().m;
+		for (int object = 0; object < OBJECT_COUNT; object++) {
+			if (!sceneTransforms.wasUpdated(objectNodes[object])) {
+				continue;
+			}
+			int matrixOffset = sceneTransforms.indexOf(objectNodes[object])
+					* Matrix4Batch.FLOATS_PER_MATRIX;
+			worldBounds.setTransformed(object, modelBounds, object,
+					modelToWorldMatrices, matrixOffset);
+		}
 	}
 	
 	//--------------------------------------------------------------------------
@@ -473,27 +581,21 @@ public class PerspectiveBox extends LwjglWindow {
 	 * Send matrix data to vertex uniforms.
 	 */
 	private void updateMatrixUniforms(){
-		glUseProgram(programId);
-		
-		// Upload modelToWorldMatrix uniform.
-		box_modelToWorldMatrix.store(matrix4fBuffer);
-		matrix4fBuffer.flip();
-		glUniformMatrix4(modelToWorldMatrix_Location, false, matrix4fBuffer);
+		// The model matrices are set per object by the render queue.
+		device.useProgram(programId);
 		
 		// Upload worldToCameraMatrix uniform.
-		worldToCameraMatrix = camera.getViewMatrix();
+		camera.getViewMatrix(worldToCameraMatrix);
 		worldToCameraMatrix.store(matrix4fBuffer);
 		matrix4fBuffer.flip();
-		glUniformMatrix4(worldToCameraMatrix_Location, false, matrix4fBuffer);
+		device.uniformMatrix4(worldToCameraMatrix_Location, false, matrix4fBuffer);
 		
 		// Upload cameraToClipMatrix uniform.
 		cameraToClipMatrix.store(matrix4fBuffer);
 		matrix4fBuffer.flip();
-		glUniformMatrix4(cameraToClipMatrix_Location, false, matrix4fBuffer);
-		
-		glUseProgram(0);
+		device.uniformMatrix4(cameraToClipMatrix_Location, false, matrix4fBuffer);
 		
-		GLUtils.exitOnGLError("logicCycle");
+		GLUtils.checkGLError(device, "logicCycle");
 	}
 	
 	//--------------------------------------------------------------------------
@@ -513,26 +615,26 @@ public class PerspectiveBox extends LwjglWindow {
 		///////////////////////////////////////////////////////////
 		// Horizontal Box Movement.
 //		if (Keyboard.isKeyDown(Keyboard.KEY_LEFT)) {
-//			box_modelToWorldMatrix.translate(new Vector3f(-1*x_delta, 0, 0));
+//			sceneTransforms.translate(objectNodes[BOX], -1*x_delta, 0, 0);
 //		}
 //		else if (Keyboard.isKeyDown(Keyboard.KEY_RIGHT)) {
-//			box_modelToWorldMatrix.translate(new Vector3f(x_delta, 0, 0));
+//			sceneTransforms.translate(objectNodes[BOX], x_delta, 0, 0);
 //		}
 //		
 //		// Vertical Box Movement.
 //		if (Keyboard.isKeyDown(Keyboard.KEY_UP)) {
-//			box_modelToWorldMatrix.translate(new Vector3f(0, y_delta, 0));
+//			sceneTransforms.translate(objectNodes[BOX], 0, y_delta, 0);
 //		}
 //		else if (Keyboard.isKeyDown(Keyboard.KEY_DOWN)) {
-//			box_modelToWorldMatrix.translate(new Vector3f(0, -1*y_delta, 0));
+//			sceneTransforms.translate(objectNodes[BOX], 0, -1*y_delta, 0);
 //		}
 //		
 //		// Near/Far Box Movement.
 //		if (Keyboard.isKeyDown(Keyboard.KEY_P)) {
-//			box_modelToWorldMatrix.translate(new Vector3f(0, 0, z_delta));
+//			sceneTransforms.translate(objectNodes[BOX], 0, 0, z_delta);
 //		}
 //		else if (Keyboard.isKeyDown(Keyboard.KEY_M)) {
-//			box_modelToWorldMatrix.translate(new Vector3f(0, 0, -1*z_delta));
+//			sceneTransforms.translate(objectNodes[BOX], 0, 0, -1*z_delta);
 //		}
 		
 		///////////////////////////////////////////////////////////
@@ -592,19 +694,19 @@ public class PerspectiveBox extends LwjglWindow {
 					leaveMainLoop();
 				}
 				else if (Keyboard.getEventKey() == Keyboard.KEY_1) {
-					glPolygonMode(GL_FRONT_AND_BACK, GL_FILL);
+					device.polygonMode(GL_FRONT_AND_BACK, GL_FILL);
 					System.out.println("glPolygonMode = GL_FILL");
 				}
 				else if (Keyboard.getEventKey() == Keyboard.KEY_2) {
-					glPolygonMode(GL_FRONT_AND_BACK, GL_LINE);
+					device.polygonMode(GL_FRONT_AND_BACK, GL_LINE);
 					System.out.println("glPolygonMode = GL_LINE");
 				}
 				else if (Keyboard.getEventKey() == Keyboard.KEY_3) {
-					glEnable(GL_CULL_FACE);
+					device.enable(GL_CULL_FACE);
 					System.out.println("GL_CULL_FACE Enabled");
 				}
 				else if (Keyboard.getEventKey() == Keyboard.KEY_4) {
-					glDisable(GL_CULL_FACE);
+					device.disable(GL_CULL_FACE);
 					System.out.println("GL_CULL_FACE Disabled");
 				}
 				else if (Keyboard.isKeyDown(Keyboard.KEY_SPACE)) {
@@ -613,12 +715,7 @@ public class PerspectiveBox extends LwjglWindow {
 			}
 		}
 		
-		// Upload shader uniform data.
-		glUseProgram(programId);
-		
-		glUseProgram(0);
-		
-		GLUtils.exitOnGLError("processUserInput");
+		GLUtils.checkGLError(device, "processUserInput");
 	}
 	
 }
@@ -18,6 +18,8 @@ import org.lwjgl.util.vector.Matrix4f;
 
 import util.GLUtils;
 import util.ShaderUtils;
+import util.graphics.GLErrorChecker;
+import util.graphics.LwjglGraphicsDevice;
 
 
 public class SingleTriangleDemo {
@@ -57,23 +59,28 @@ public class SingleTriangleDemo {
 		this.setupShapes();
 		this.setupMatrices();
 		
-		while (!Display.isCloseRequested()) {
-			this.logicCycle();
-			this.renderCycle();
+		try {
+			while (!Display.isCloseRequested()) {
+				this.logicCycle();
+				this.renderCycle();
 			
-			if (Display.wasResized()){
-				displayResizedHandler();
-			}
+				if (Display.wasResized()){
+					displayResizedHandler();
+				}
+			
+				// Force a maximum FPS of about 60
+				Display.sync(60);
 			
-			// Force a maximum FPS of about 60
-			Display.sync(60);
+				// Update window by swapping buffers and polling input devices.
+				Display.update();
 			
-			// Update window by swapping buffers and polling input devices.
-			Display.update();
+				// Read GL errors once per frame.
+				GLErrorChecker.INSTANCE.check(LwjglGraphicsDevice.INSTANCE);
+			}
+		} finally {
+			// Destroy OpenGL (Display)
+			this.destroyOpenGL();
 		}
-		
-		// Destroy OpenGL (Display)
-		this.destroyOpenGL();
 	}
 	
 	private void displayResizedHandler(){
@@ -111,8 +118,7 @@ public class SingleTriangleDemo {
 			
 			glViewport(0, 0, WINDOW_WIDTH, WINDOW_HEIGHT);
 		} catch (LWJGLException e) {
-			e.printStackTrace();
-			System.exit(-1);
+			throw new IllegalStateException("Could not create the display.", e);
 		}
 		
 		// Setup an XNA like background color
@@ -151,7 +157,7 @@ public class SingleTriangleDemo {
 		
 		glValidateProgram(programId);
 		
-		GLUtils.exitOnGLError("setupShaders");
+		GLUtils.checkGLError("setupShaders");
 	}
 	
 	
@@ -225,7 +231,7 @@ public class SingleTriangleDemo {
 		
 		glUseProgram(0);
 		
-		GLUtils.exitOnGLError("logicCycle");
+		GLUtils.checkGLError("logicCycle");
 	}
 	
 	private void renderCycle() {
@@ -245,7 +251,7 @@ public class SingleTriangleDemo {
 		glBindVertexArray(0);
 		glUseProgram(0);
 		
-		GLUtils.exitOnGLError("renderCycle");
+		GLUtils.checkGLError("renderCycle");
 	}
 	
 	private void destroyOpenGL() {		
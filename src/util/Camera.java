@@ -21,12 +21,23 @@ public class Camera {
 	private Vector3f l = new Vector3f(-1f, 0f, 0f);  // left local camera vector.
 	private Vector3f f = new Vector3f(0f, 0f, -1f);  // forward local camera vector.
 	private Vector3f u = new Vector3f(0f, 1f, 0f);   // up local camera vector.
+	
+	// Cached view matrix, recomputed only after the Camera has moved.
+	private Matrix4f viewMatrix = new Matrix4f();
+	private boolean viewMatrixNeedsUpdate = true;
+	
+	// Temporaries to aid in rotation calculations, so that the per frame
+	// update path does not allocate.
+	private Quaternion rotationTemp = new Quaternion();
+	private Vector3f axisTemp = new Vector3f();
 
 	// --------------------------------------------------------------------------
 	public void setPosition(float x, float y, float z) {
 		eyePosition.x = x;
 		eyePosition.y = y;
 		eyePosition.z = z;
+		
+		invalidateViewMatrix();
 	}
 
 	// --------------------------------------------------------------------------
@@ -46,6 +57,8 @@ public class Camera {
 		eyePosition.x += x;
 		eyePosition.y += y;
 		eyePosition.z += z;
+		
+		invalidateViewMatrix();
 	}
 
 	/**
@@ -71,6 +84,8 @@ public class Camera {
 		eyePosition.x += (left * l.x) + (up * u.x) + (forward * f.x);
 		eyePosition.y += (left * l.y) + (up * u.y) + (forward * f.y);
 		eyePosition.z += (left * l.z) + (up * u.z) + (forward * f.z);
+		
+		invalidateViewMatrix();
 	}
 
 	// --------------------------------------------------------------------------
@@ -124,6 +139,8 @@ public class Camera {
 		eyePosition.y = eyeY;
 		eyePosition.z = eyeZ;
 		
+		invalidateViewMatrix();
+		
 		// f = centerPosition - eyePosition.
 		Vector3f.sub(centerPosition, eyePosition, f);
 		
@@ -231,6 +248,8 @@ public class Camera {
 		// camera's local right handed coordinate system.
 		orientation.fromAxes(l, u, f);
 		
+		invalidateViewMatrix();
+		
 		// Reset camera's f and l vectors, so f points forward, and l points to the
 		// left, as seen by the camera.
 		f.scale(-1f);
@@ -244,17 +263,20 @@ public class Camera {
 
 	// --------------------------------------------------------------------------
 	public void rotate(Vector3f axis, float angle) {
-		Quaternion p = new Quaternion(axis, angle);
-		Quaternion.mult(p, orientation, orientation);
+		rotationTemp.fromAxisAngle(axis, angle);
+		Quaternion.mult(rotationTemp, orientation, orientation);
 		orientation.normalize();
+		
+		invalidateViewMatrix();
 	}
 	
 	// --------------------------------------------------------------------------
 	public void roll(float angle) {
-		Vector3f localZAxis = new Vector3f(Z_AXIS);
-		orientation.rotate(localZAxis);
+		axisTemp.set(Z_AXIS);
+		orientation.rotate(axisTemp);
 		
-		Quaternion q = new Quaternion(localZAxis, angle);
+		Quaternion q = rotationTemp;
+		q.fromAxisAngle(axisTemp, angle);
 		
 		// Update camera's local left and up vectors.
 		q.rotate(l);
@@ -262,14 +284,17 @@ public class Camera {
 		
 		// orientation = q * orientation.
 		Quaternion.mult(q, orientation, orientation);
+		
+		invalidateViewMatrix();
 	}
 	
 	// --------------------------------------------------------------------------
 	public void pitch(float angle) {
-		Vector3f localXAxis = new Vector3f(X_AXIS);
-		orientation.rotate(localXAxis);
+		axisTemp.set(X_AXIS);
+		orientation.rotate(axisTemp);
 		
-		Quaternion q = new Quaternion(localXAxis, angle);
+		Quaternion q = rotationTemp;
+		q.fromAxisAngle(axisTemp, angle);
 		
 		// Update camera's local up and forward vectors.
 		q.rotate(u);
@@ -277,14 +302,17 @@ public class Camera {
 		
 		// orientation = q * orientation.
 		Quaternion.mult(q, orientation, orientation);
+		
+		invalidateViewMatrix();
 	}
 	
 	// --------------------------------------------------------------------------
 	public void yaw(float angle) {
-		Vector3f localYAxis = new Vector3f(Y_AXIS);
-		orientation.rotate(localYAxis);
+		axisTemp.set(Y_AXIS);
+		orientation.rotate(axisTemp);
 		
-		Quaternion q = new Quaternion(localYAxis, angle);
+		Quaternion q = rotationTemp;
+		q.fromAxisAngle(axisTemp, angle);
 		
 		// Update camera's local left and forward vectors.
 		q.rotate(l);
@@ -292,6 +320,8 @@ public class Camera {
 		
 		// orientation = q * orientation.
 		Quaternion.mult(q, orientation, orientation);
+		
+		invalidateViewMatrix();
 	}
 
 	// --------------------------------------------------------------------------
@@ -303,35 +333,70 @@ public class Camera {
 	 * @return a new view matrix
 	 */
 	public Matrix4f getViewMatrix() {
+		Matrix4f result = new Matrix4f();
+		getViewMatrix(result);
+		
+		return result;
+	}
+	
+	// --------------------------------------------------------------------------
+	/**
+	 * Stores the view matrix for this Camera in <code>dest</code>. The view
+	 * matrix is cached, and only recomputed after the Camera has been moved or
+	 * rotated, so calling this every frame on a stationary Camera amounts to a
+	 * copy.
+	 * 
+	 * @param dest - destination for storing the view matrix.
+	 */
+	public void getViewMatrix(Matrix4f dest) {
+		if (viewMatrixNeedsUpdate) {
+			updateViewMatrix();
+		}
+		
+		Matrix4f.load(viewMatrix, dest);
+	}
+	
+	// --------------------------------------------------------------------------
+	private void updateViewMatrix() {
 		orientation.normalize();
 		
-		// Each column of the viewMatrix describes a camera basis vector using
-		// world space coordinates.
+		// Each column of the rotation matrix describes a camera basis vector
+		// using world space coordinates.
 		//
 		// | s_x | u_x | f_x | 0 |
 		// | s_y | u_y | f_y | 0 |
 		// | s_z | u_z | f_z | 0 |
 		// |  0  |  0  |  0  | 1 |
-		Matrix4f viewMatrix = orientation.toRotationMatrix();
+		Matrix4f m = viewMatrix;
+		m.setIdentity();
+		orientation.toRotationMatrix(m);
 		
-		// Transpose the viewMatrix so that each column describes a world space
-		// basis vector using camera space coordinates.
+		// Transpose the rotation in place so that each column describes a world
+		// space basis vector using camera space coordinates.
 		//
 		// | s_x | s_y | s_z | 0 |
 		// | u_x | u_y | u_z | 0 |
 		// | f_x | f_y | f_z | 0 |
 		// |  0  |  0  |  0  | 1 |
-		viewMatrix.transpose();
-
-		// Apply inverse translation from world space origin to
-		// the camera's eye position.
-		Vector3f dist = new Vector3f();
-		dist.x = (-1) * eyePosition.x;
-		dist.y = (-1) * eyePosition.y;
-		dist.z = (-1) * eyePosition.z;
-		viewMatrix.translate(dist);
+		float t;
+		t = m.m01;  m.m01 = m.m10;  m.m10 = t;
+		t = m.m02;  m.m02 = m.m20;  m.m20 = t;
+		t = m.m12;  m.m12 = m.m21;  m.m21 = t;
 		
-
-		return viewMatrix;
+		// Apply inverse translation from world space origin to the camera's eye
+		// position, which is the transposed rotation applied to -eyePosition.
+		float dx = -eyePosition.x;
+		float dy = -eyePosition.y;
+		float dz = -eyePosition.z;
+		m.m30 = m.m00 * dx + m.m10 * dy + m.m20 * dz;
+		m.m31 = m.m01 * dx + m.m11 * dy + m.m21 * dz;
+		m.m32 = m.m02 * dx + m.m12 * dy + m.m22 * dz;
+		
+		viewMatrixNeedsUpdate = false;
+	}
+	
+	// --------------------------------------------------------------------------
+	private void invalidateViewMatrix() {
+		viewMatrixNeedsUpdate = true;
 	}
 }
@@ -1,21 +1,35 @@
 package util;
 
-import org.lwjgl.opengl.Display;
-import org.lwjgl.opengl.GL11;
-import org.lwjgl.util.glu.GLU;
 import org.lwjgl.util.vector.Matrix4f;
 
+import util.graphics.GLErrorChecker;
+import util.graphics.GLErrorException;
+import util.graphics.GraphicsDevice;
+import util.graphics.LwjglGraphicsDevice;
+
 public class GLUtils {
-	public static void exitOnGLError(String errorMessage) {
-		int errorValue = GL11.glGetError();
-		
-		if (errorValue != GL11.GL_NO_ERROR) {
-			String errorString = GLU.gluErrorString(errorValue);
-			System.err.println("Error in " + errorMessage + ": " + errorString);
-			
-			if (Display.isCreated()) Display.destroy();
-			System.exit(-1);
-		}
+	/**
+	 * Marks an operation issued on the display's context, for the once per
+	 * frame error check. See {@link GLErrorChecker}.
+	 * 
+	 * @param operation - name of the operation.
+	 */
+	public static void checkGLError(String operation) {
+		checkGLError(LwjglGraphicsDevice.INSTANCE, operation);
+	}
+	
+	/**
+	 * Marks an operation for the once per frame error check, without reading
+	 * the GL error flag, which would stall the pipeline. In synchronous mode
+	 * the flag is read immediately. Does nothing unless
+	 * {@link RuntimeDefines#DEBUG_MODE} is set.
+	 * 
+	 * @param device - device the operation was issued on.
+	 * @param operation - name of the operation.
+	 * @throws GLErrorException in synchronous mode, if an error occurred.
+	 */
+	public static void checkGLError(GraphicsDevice device, String operation) {
+		GLErrorChecker.INSTANCE.mark(device, operation);
 	}
 	
 	/**
@@ -54,6 +68,7 @@ public class GLUtils {
 		projectionMatrix.m22 = -((zFar + zNear) / frustum_length);
 		projectionMatrix.m23 = -1;
 		projectionMatrix.m32 = -((2 * zNear * zFar) / frustum_length);
+		projectionMatrix.m33 = 0;
 		
 		return projectionMatrix;
 	}
@@ -86,13 +101,14 @@ public class GLUtils {
 		float height = top - bottom; 			   			 // y range.
 		float frustum_length = zFar - zNear;   // z range.
 		
+		// Matrix4f field mCR holds column C, row R.
 		projectionMatrix.m00 = 2 * zNear / width;
-		projectionMatrix.m02 = (right + left) / width;
+		projectionMatrix.m20 = (right + left) / width;
 		projectionMatrix.m11 = 2 * zNear / height;
-		projectionMatrix.m12 = (top + bottom) / height;
+		projectionMatrix.m21 = (top + bottom) / height;
 		projectionMatrix.m22 = -1 * (zFar + zNear) / frustum_length;
-		projectionMatrix.m23 = -2 * zFar * zNear / frustum_length;
-		projectionMatrix.m32 = -1;
+		projectionMatrix.m32 = -2 * zFar * zNear / frustum_length;
+		projectionMatrix.m23 = -1;
 		projectionMatrix.m33 = 0;
 		
 		return projectionMatrix;
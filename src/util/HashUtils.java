@@ -0,0 +1,78 @@
+package util;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Content hashing helpers, used to identify assets by what they contain rather
+ * than where they were loaded from.
+ *
+ * @author Dustin Biser
+ *
+ */
+public class HashUtils {
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param data
+	 * @return the SHA-1 digest of <code>data</code> as 40 lower case hex digits.
+	 */
+	public static String sha1Hex(byte[] data) {
+		return sha1Hex(data, 0, data.length);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param data
+	 * @param offset - index of the first byte to hash.
+	 * @param length - number of bytes to hash.
+	 * @return the SHA-1 digest of the given bytes as 40 lower case hex digits.
+	 */
+	public static String sha1Hex(byte[] data, int offset, int length) {
+		MessageDigest digest = createDigest("SHA-1");
+		digest.update(data, offset, length);
+
+		return toHex(digest.digest());
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param buffer
+	 * @return the SHA-1 digest of the remaining bytes of <code>buffer</code>
+	 *         as 40 lower case hex digits. The buffer's position is unchanged.
+	 */
+	public static String sha1Hex(ByteBuffer buffer) {
+		MessageDigest digest = createDigest("SHA-1");
+		digest.update(buffer.duplicate());
+
+		return toHex(digest.digest());
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param bytes
+	 * @return <code>bytes</code> as lower case hex digits, two per byte.
+	 */
+	public static String toHex(byte[] bytes) {
+		char[] chars = new char[2 * bytes.length];
+		for (int i = 0; i < bytes.length; i++) {
+			chars[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+			chars[2 * i + 1] = HEX_DIGITS[bytes[i] & 0xf];
+		}
+
+		return new String(chars);
+	}
+
+	//--------------------------------------------------------------------------
+	private static MessageDigest createDigest(String algorithm) {
+		try {
+			return MessageDigest.getInstance(algorithm);
+		}
+		catch (NoSuchAlgorithmException e) {
+			// Every Java platform is required to support SHA-1.
+			throw new IllegalStateException(algorithm + " is not available.", e);
+		}
+	}
+}
@@ -1,5 +1,8 @@
 package util;
 
+import java.io.File;
+import java.io.IOException;
+
 import org.lwjgl.LWJGLException;
 import org.lwjgl.input.Keyboard;
 import org.lwjgl.opengl.ContextAttribs;
@@ -9,15 +12,27 @@ import org.lwjgl.opengl.GLContext;
 import org.lwjgl.opengl.PixelFormat;
 import static org.lwjgl.opengl.GL11.*;
 
+import util.frame.FrameTimeHistogram;
+import util.frame.GameLoop;
+import util.frame.GameLoopListener;
+import util.frame.SystemClock;
+import util.graphics.GLErrorChecker;
+import util.graphics.GraphicsDevice;
+import util.graphics.LwjglGraphicsDevice;
+import util.profile.Profiler;
+
 public class LwjglWindow {
 	private String windowTitle = "LWJGL Window";
 	protected boolean continueMainLoop = true;
 	
-	// Timing info in milliseconds.
-	private float elapsedTime;
-	private float lastFrameDuration;
-	private float lastFrameTimeStamp;
-	private float now;
+	private static final int FRAME_SCOPE = Profiler.INSTANCE.scope("frame");
+	private static final int LOGIC_SCOPE = Profiler.INSTANCE.scope("logicCycle");
+	private static final int RENDER_SCOPE = Profiler.INSTANCE.scope("renderCycle");
+	private static final int DISPLAY_UPDATE_SCOPE = Profiler.INSTANCE.scope("Display.update");
+	
+	private int logicRate = 60;
+	private int frameRateLimit = 60;
+	private GameLoop gameLoop;
 	
 	public void setWindowTitle(String windowTitle){
 		this.windowTitle = windowTitle;
@@ -42,39 +57,84 @@ public class LwjglWindow {
 				System.err.printf("Need at least OpenGL 4.2 to run program.");
 			}
 		} catch (LWJGLException e) {
-			e.printStackTrace();
-			System.exit(-1);
+			throw new IllegalStateException("Could not create the display.", e);
 		}
 		
 		Display.setVSyncEnabled(true);
 		Display.setResizable(true);
 		
-		long startTime = System.nanoTime();
-		initialize();
-		resize(windowWidth, windowHeight);
-		
-		while (!Display.isCloseRequested() && continueMainLoop) {
-			elapsedTime = (float) ((System.nanoTime() - startTime) / 1000000.0);
-			now = System.nanoTime();
-			lastFrameDuration = (float)((now - lastFrameTimeStamp) / 1000000.0);
-			lastFrameTimeStamp = now;
-			
-			Display.sync(60);
-			Display.update();
+		gameLoop = new GameLoop(SystemClock.INSTANCE, GameLoop.stepNanos(logicRate));
+		gameLoop.setFrameRateLimit(frameRateLimit);
+		GameLoopListener cycles = new GameLoopListener() {
+			@Override
+			public void update(long stepNanos) {
+				Profiler.INSTANCE.begin(LOGIC_SCOPE);
+				logicCycle();
+				Profiler.INSTANCE.end(LOGIC_SCOPE);
+			}
 			
-			this.logicCycle();
-			this.renderCycle();
+			@Override
+			public void render(double alpha) {
+				Profiler.INSTANCE.begin(RENDER_SCOPE);
+				renderCycle();
+				Profiler.INSTANCE.end(RENDER_SCOPE);
+			}
+		};
+		
+		try {
+			initialize();
+			resize(windowWidth, windowHeight);
+			GLErrorChecker.INSTANCE.check(getGraphicsDevice());
 			
-			if(Display.wasResized()) {
-				resize(Display.getWidth(), Display.getHeight());
+			while (!Display.isCloseRequested() && continueMainLoop) {
+				Profiler.INSTANCE.begin(FRAME_SCOPE);
+				gameLoop.runFrame(cycles);
+				
+				Profiler.INSTANCE.begin(DISPLAY_UPDATE_SCOPE);
+				Display.update();
+				Profiler.INSTANCE.end(DISPLAY_UPDATE_SCOPE);
+				Profiler.INSTANCE.end(FRAME_SCOPE);
+				
+				// Errors are read once per frame, as reading them stalls the
+				// pipeline. Throws when an error occurred.
+				GLErrorChecker.INSTANCE.check(getGraphicsDevice());
+				
+				if(Display.wasResized()) {
+					resize(Display.getWidth(), Display.getHeight());
+				}
+				
+				if (displayFPS) {
+					printFPS();
+				}
 			}
+		} finally {
+			this.cleanup();
 			
-			if (displayFPS) {
-				printFPS();
+			if (traceFile != null) {
+				try {
+					Profiler.INSTANCE.writeChromeTrace(traceFile);
+				} catch (IOException e) {
+					System.err.println("Could not write trace " + traceFile + ": " + e.getMessage());
+				}
 			}
 		}
-		
-		this.cleanup();
+	}
+	
+	/**
+	 * @param stepsPerSecond - number of times per second {@link #logicCycle()}
+	 * is called, independent of the frame rate. Must be set before
+	 * {@link #start()}. Defaults to 60.
+	 */
+	public void setLogicRate(int stepsPerSecond){
+		this.logicRate = stepsPerSecond;
+	}
+	
+	/**
+	 * @param framesPerSecond - highest frame rate, or 0 for no limit beyond
+	 * vertical sync. Must be set before {@link #start()}. Defaults to 60.
+	 */
+	public void setFrameRateLimit(int framesPerSecond){
+		this.frameRateLimit = framesPerSecond;
 	}
 	
 	private boolean displayFPS = false;
@@ -87,14 +147,36 @@ public class LwjglWindow {
 		displayFPS = false;
 	}
 	
-	private byte counter = 0;
+	private File traceFile;
+	
+	/**
+	 * Records the time spent in each cycle with {@link Profiler#INSTANCE},
+	 * whose per scope summary is then printed along with the FPS.
+	 * 
+	 * @param traceFile - file to write a Chrome trace of the most recent
+	 * frames to when the window closes, or null for none.
+	 */
+	public void enableProfiling(File traceFile) {
+		this.traceFile = traceFile;
+		Profiler.INSTANCE.setEnabled(true);
+	}
+	
+	public void disableProfiling() {
+		traceFile = null;
+		Profiler.INSTANCE.setEnabled(false);
+	}
 	
 	private void printFPS(){
-		if (counter == 60) {
-			counter = 0;
-			System.out.println("FPS: " + 1000 / lastFrameDuration);
+		FrameTimeHistogram frameTimes = gameLoop.getFrameTimeHistogram();
+		if (frameTimes.getCount() == 60) {
+			System.out.printf("FPS: %.1f, frame times %s%n",
+					1e9 / frameTimes.getMean(), frameTimes.getSummary());
+			frameTimes.reset();
+			
+			if (Profiler.INSTANCE.isEnabled()) {
+				System.out.print(Profiler.INSTANCE.getSummary());
+			}
 		}
-		counter++;
 	}
 	
 	protected void initialize() {
@@ -113,20 +195,53 @@ public class LwjglWindow {
 	}
 	
 	protected void renderCycle(){
-		glClearColor(0.4f, 0.6f, 0.9f, 0f);
-		glClear(GL_COLOR_BUFFER_BIT);
+		GraphicsDevice device = getGraphicsDevice();
+		device.clearColor(0.4f, 0.6f, 0.9f, 0f);
+		device.clear(GL_COLOR_BUFFER_BIT);
 	}
 	
 	protected void resize(int width, int height) {
-		glViewport(0, 0, width, height);
+		getGraphicsDevice().viewport(0, 0, width, height);
+	}
+	
+	/**
+	 * @return the device rendering to this window's context. Rendering code
+	 * written against it can also run on a {@link util.graphics.HeadlessGraphicsDevice}.
+	 */
+	protected GraphicsDevice getGraphicsDevice(){
+		return LwjglGraphicsDevice.INSTANCE;
 	}
 	
+	/**
+	 * @return milliseconds from the first frame to the current one.
+	 */
 	protected final float getElapsedTime(){
-		return elapsedTime;
+		return (float) (getElapsedNanos() / 1000000.0);
 	}
 	
+	/**
+	 * @return milliseconds between the previous and current frames, which
+	 * is 0 for the first frame.
+	 */
 	protected final float getLastFrameDuration(){
-		return lastFrameDuration;
+		return (float) (gameLoop.getLastFrameNanos() / 1000000.0);
+	}
+	
+	/**
+	 * @return nanoseconds from the first frame to the current one. Unlike
+	 * {@link #getElapsedTime()}, keeps full precision however long the
+	 * window stays open.
+	 */
+	protected final long getElapsedNanos(){
+		return gameLoop.getElapsedNanos();
+	}
+	
+	/**
+	 * @return fraction of a logic step by which the frame being rendered is
+	 * ahead of the last {@link #logicCycle()}, for interpolating motion.
+	 */
+	protected final double getInterpolationAlpha(){
+		return gameLoop.getAlpha();
 	}
 
 	protected void cleanup(){
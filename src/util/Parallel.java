@@ -0,0 +1,27 @@
+package util;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Holds the ForkJoinPool shared by the data parallel classes, so that they
+ * split work across one set of worker threads instead of each starting
+ * their own.
+ *
+ * @author Dustin Biser
+ *
+ */
+public class Parallel {
+	private static ForkJoinPool pool;
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the shared pool, created on first use with one worker thread
+	 *         per available processor.
+	 */
+	public static synchronized ForkJoinPool getPool() {
+		if (pool == null) {
+			pool = new ForkJoinPool();
+		}
+		return pool;
+	}
+}
@@ -1,73 +1,102 @@
 package util;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
-import java.io.IOException;
-
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL20;
 
+import util.graphics.GraphicsDevice;
+import util.graphics.LwjglGraphicsDevice;
+import util.shader.ShaderException;
+import util.shader.ShaderPreprocessor;
+import util.shader.ShaderProgramCache;
+import util.shader.ShaderSource;
+
 public class ShaderUtils {
+	private static final int MAX_INFO_LOG_LENGTH = 1024;
+
+	private static final ShaderPreprocessor preprocessor = new ShaderPreprocessor();
+
 	/**
-	 * Reads in a shader file, compiles it, and returns a shader ID if successful.
+	 * Reads in a shader file, resolving any #include directives, compiles it,
+	 * and returns a shader ID if successful. Use a {@link ShaderProgramCache}
+	 * to avoid compiling identical sources more than once.
 	 * @param filename - path String to shader file.
 	 * @param type - Specifies the type of shader to be created. Must be one of
-	 * GL_VERTEX_SHADER​, GL_TESS_CONTROL_SHADER​, GL_TESS_EVALUATION_SHADER​,
-	 * GL_GEOMETRY_SHADER​, or GL_FRAGMENT_SHADER​.
+	 * GL_VERTEX_SHADER, GL_TESS_CONTROL_SHADER, GL_TESS_EVALUATION_SHADER,
+	 * GL_GEOMETRY_SHADER, or GL_FRAGMENT_SHADER.
 	 * @return shader ID of the loaded shader program.
+	 * @throws ShaderException if the file cannot be read or fails to compile.
 	 */
 	public static int loadShader(String filename, int type) {
-		StringBuilder shaderSource = new StringBuilder();
-		int shaderID = 0;
-		
-		try {
-			BufferedReader reader = new BufferedReader(new FileReader(filename));
-			String line;
-			while ((line = reader.readLine()) != null) {
-				shaderSource.append(line).append("\n");
-			}
-			reader.close();
-		} catch (IOException e) {
-			System.err.println("Error in ShaderUtils.loadShader(String, int).  Could not read shader file: " + filename);
-			e.printStackTrace();
-			System.exit(-1);
+		ShaderSource source;
+		synchronized (preprocessor) {
+			source = preprocessor.process(filename);
 		}
 		
-		shaderID = GL20.glCreateShader(type);
-		GL20.glShaderSource(shaderID, shaderSource);
-		GL20.glCompileShader(shaderID);
+		return compileShader(source, type);
+	}
+	
+	/**
+	 * Compiles an expanded shader source, and returns a shader ID if
+	 * successful.
+	 * @param source - expanded shader source.
+	 * @param type - Specifies the type of shader to be created, such as
+	 * GL_VERTEX_SHADER or GL_FRAGMENT_SHADER.
+	 * @return shader ID of the compiled shader.
+	 * @throws ShaderException if the source fails to compile.
+	 */
+	public static int compileShader(ShaderSource source, int type) {
+		return compileShader(LwjglGraphicsDevice.INSTANCE, source, type);
+	}
+	
+	/**
+	 * Same as {@link #compileShader(ShaderSource, int)}, creating the shader
+	 * with <code>device</code>.
+	 * @param device - device to create the shader with.
+	 * @param source - expanded shader source.
+	 * @param type - Specifies the type of shader to be created, such as
+	 * GL_VERTEX_SHADER or GL_FRAGMENT_SHADER.
+	 * @return shader ID of the compiled shader.
+	 * @throws ShaderException if the source fails to compile.
+	 */
+	public static int compileShader(GraphicsDevice device, ShaderSource source,
+			int type) {
+		int shaderID = device.createShader(type);
+		device.shaderSource(shaderID, source.getSource());
+		device.compileShader(shaderID);
 		
-		if (GL20.glGetShaderi(shaderID, GL20.GL_COMPILE_STATUS) == GL11.GL_FALSE) {
-			int maxInfoLength = 1024;
-			StringBuilder message = new StringBuilder();
-			message.append("Error in ShaderUtils.loadShader(String, int).  Could not compile shader: " + filename + "\n");
-			message.append(GL20.glGetShaderInfoLog(shaderID, maxInfoLength));
-			
-			System.err.println(message);
-			System.exit(-1);
+		if (device.getShaderi(shaderID, GL20.GL_COMPILE_STATUS) == GL11.GL_FALSE) {
+			String log = device.getShaderInfoLog(shaderID, MAX_INFO_LOG_LENGTH);
+			device.deleteShader(shaderID);
+			throw new ShaderException("Error in ShaderUtils.compileShader(ShaderSource, int).  "
+					+ "Could not compile shader: " + source.getName() + "\n" + log);
 		}
 		
-		GLUtils.exitOnGLError("ShaderUtils.loadShader(String, int)");
+		GLUtils.checkGLError(device, "ShaderUtils.compileShader(ShaderSource, int)");
 		
 		return shaderID;
 	}	
 	
 	/**
-	 * Links the shader program referenced by <code>programId</code>, and reports any
-	 * errors if found to the standard error output stream.
+	 * Links the shader program referenced by <code>programId</code>.
 	 * @param programId - handle to the shader program.
+	 * @throws ShaderException if the program fails to link.
 	 */
 	public static void linkProgram(int programId){
-		GL20.glLinkProgram(programId);
+		linkProgram(LwjglGraphicsDevice.INSTANCE, programId);
+	}
+	
+	/**
+	 * Links the shader program referenced by <code>programId</code>.
+	 * @param device - device owning the program.
+	 * @param programId - handle to the shader program.
+	 * @throws ShaderException if the program fails to link.
+	 */
+	public static void linkProgram(GraphicsDevice device, int programId){
+		device.linkProgram(programId);
 		
-		if (GL20.glGetProgrami(programId, GL20.GL_LINK_STATUS) == GL11.GL_FALSE) {
-			int maxInfoLength = 1024;
-			StringBuilder message = new StringBuilder();
-			message.append("Could not link shader program:\n");
-			message.append(GL20.glGetProgramInfoLog(programId, maxInfoLength));
-			
-			System.err.println(message);
-			System.exit(-1);
+		if (device.getProgrami(programId, GL20.GL_LINK_STATUS) == GL11.GL_FALSE) {
+			throw new ShaderException("Could not link shader program:\n"
+					+ device.getProgramInfoLog(programId, MAX_INFO_LOG_LENGTH));
 		}
 	}
 }
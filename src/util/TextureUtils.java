@@ -1,73 +1,237 @@
 package util;
 
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.ByteBuffer;
 
 import org.lwjgl.opengl.GL11;
-import org.lwjgl.opengl.GL13;
-import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL12;
 
-import de.matthiasmann.twl.utils.PNGDecoder;
-import de.matthiasmann.twl.utils.PNGDecoder.Format;
+import util.graphics.GraphicsDevice;
+import util.graphics.LwjglGraphicsDevice;
+import util.texture.AsyncTextureLoader;
+import util.texture.MipChain;
+import util.texture.TextureCache;
+import util.texture.TextureContainer;
+import util.texture.TextureData;
+import util.texture.TextureDecoder;
 
 public class TextureUtils {
 
-	public static int loadPNGTexture(String filename, int textureUnit) {
-		ByteBuffer buf = null;
-		int tWidth = 0;
-		int tHeight = 0;
+	//--------------------------------------------------------------------------
+	/**
+	 * Decodes a PNG file and uploads it to a new texture object, on the calling
+	 * thread. Use {@link AsyncTextureLoader} to decode many textures without
+	 * stalling the render thread.
+	 *
+	 * @param filename - path of the PNG file.
+	 * @param textureUnit - texture unit to bind the texture to, such as
+	 *        GL_TEXTURE0.
+	 * @return the name of the new texture object.
+	 * @throws IOException if the file cannot be read or is not a valid PNG.
+	 */
+	public static int loadPNGTexture(String filename, int textureUnit)
+			throws IOException {
+		TextureData data = TextureDecoder.decodePNG(filename, null);
+		try {
+			return uploadTexture(data, textureUnit);
+		}
+		finally {
+			data.release();
+		}
+	}
 
+	//--------------------------------------------------------------------------
+	/**
+	 * Uploads a PNG file to a new texture object, decoding it only if no file
+	 * with the same contents is in <code>cache</code>.
+	 *
+	 * @param filename - path of the PNG file.
+	 * @param textureUnit - texture unit to bind the texture to, such as
+	 *        GL_TEXTURE0.
+	 * @param cache - cache of decoded textures.
+	 * @return the name of the new texture object.
+	 * @throws IOException if the file cannot be read or is not a valid PNG.
+	 */
+	public static int loadPNGTexture(String filename, int textureUnit,
+			TextureCache cache) throws IOException {
+		TextureData data = cache.acquire(filename);
 		try {
-			// Open the PNG file as an InputStream
-			InputStream in = new FileInputStream(filename);
-			
-			// Link the PNG decoder to this stream
-			PNGDecoder decoder = new PNGDecoder(in);
-
-			// Get the width and height of the texture
-			tWidth = decoder.getWidth();
-			tHeight = decoder.getHeight();
-
-			// Decode the PNG file in a ByteBuffer
-			buf = ByteBuffer.allocateDirect(4 * decoder.getWidth()
-					* decoder.getHeight());
-			decoder.decode(buf, decoder.getWidth() * 4, Format.RGBA);
-			buf.flip();
-
-			in.close();
-		} catch (IOException e) {
-			e.printStackTrace();
-			System.exit(-1);
+			return uploadTexture(data, textureUnit);
+		}
+		finally {
+			cache.release(data);
 		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Uploads decoded pixels to a new texture object, with repeat wrapping,
+	 * trilinear filtering and generated mipmaps.
+	 *
+	 * @param data - decoded RGBA pixels.
+	 * @param textureUnit - texture unit to bind the texture to, such as
+	 *        GL_TEXTURE0.
+	 * @return the name of the new texture object.
+	 */
+	public static int uploadTexture(TextureData data, int textureUnit) {
+		return uploadTexture(LwjglGraphicsDevice.INSTANCE, data, textureUnit);
+	}
 
+	//--------------------------------------------------------------------------
+	/**
+	 * Same as {@link #uploadTexture(TextureData, int)}, creating the texture with
+	 * <code>device</code>.
+	 *
+	 * @param device - device to create the texture with.
+	 * @param data - decoded RGBA pixels.
+	 * @param textureUnit - texture unit to bind the texture to, such as
+	 *        GL_TEXTURE0.
+	 * @return the name of the new texture object.
+	 */
+	public static int uploadTexture(GraphicsDevice device, TextureData data,
+			int textureUnit) {
 		// Create a new texture object in memory and bind it
-		int texId = GL11.glGenTextures();
-		GL13.glActiveTexture(textureUnit);
-		GL11.glBindTexture(GL11.GL_TEXTURE_2D, texId);
+		int texId = device.createTexture();
+		device.activeTexture(textureUnit);
+		device.bindTexture(GL11.GL_TEXTURE_2D, texId);
 
 		// All RGB bytes are aligned to each other and each component is 1 byte
-		GL11.glPixelStorei(GL11.GL_UNPACK_ALIGNMENT, 1);
+		device.pixelStorei(GL11.GL_UNPACK_ALIGNMENT, 1);
 
 		// Upload the texture data and generate mip maps (for scaling)
-		GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL11.GL_RGB, tWidth, tHeight,
-				0, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, buf);
-		GL30.glGenerateMipmap(GL11.GL_TEXTURE_2D);
+		device.texImage2D(GL11.GL_TEXTURE_2D, 0, GL11.GL_RGB, data.getWidth(),
+				data.getHeight(), GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE,
+				data.getPixels());
+		device.generateMipmap(GL11.GL_TEXTURE_2D);
 
 		// Setup the ST coordinate system
-		GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_S,
+		device.texParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_S,
 				GL11.GL_REPEAT);
-		GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_T,
+		device.texParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_T,
 				GL11.GL_REPEAT);
 
 		// Setup what to do when the texture has to be scaled
-		GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER,
+		device.texParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER,
 				GL11.GL_LINEAR);
-		GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER,
+		device.texParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER,
 				GL11.GL_LINEAR_MIPMAP_LINEAR);
 
-		GLUtils.exitOnGLError("loadPNGTexture");
+		GLUtils.checkGLError(device, "uploadTexture");
+
+		return texId;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Uploads a precomputed mip chain to a new texture object, with repeat
+	 * wrapping and trilinear filtering. Unlike {@link #uploadTexture}, no
+	 * mipmaps are generated by the driver.
+	 *
+	 * @param chain - every mip level of the texture.
+	 * @param textureUnit - texture unit to bind the texture to, such as
+	 *        GL_TEXTURE0.
+	 * @return the name of the new texture object.
+	 */
+	public static int uploadMipChain(MipChain chain, int textureUnit) {
+		return uploadMipChain(LwjglGraphicsDevice.INSTANCE, chain, textureUnit);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Same as {@link #uploadMipChain(MipChain, int)}, creating the texture with
+	 * <code>device</code>.
+	 *
+	 * @param device - device to create the texture with.
+	 * @param chain - every mip level of the texture.
+	 * @param textureUnit - texture unit to bind the texture to, such as
+	 *        GL_TEXTURE0.
+	 * @return the name of the new texture object.
+	 */
+	public static int uploadMipChain(GraphicsDevice device, MipChain chain,
+			int textureUnit) {
+		int texId = device.createTexture();
+		device.activeTexture(textureUnit);
+		device.bindTexture(GL11.GL_TEXTURE_2D, texId);
+
+		device.pixelStorei(GL11.GL_UNPACK_ALIGNMENT, 1);
+
+		for (int level = 0; level < chain.getLevelCount(); level++) {
+			TextureData data = chain.getLevel(level);
+			device.texImage2D(GL11.GL_TEXTURE_2D, level, GL11.GL_RGB,
+					data.getWidth(), data.getHeight(), GL11.GL_RGBA,
+					GL11.GL_UNSIGNED_BYTE, data.getPixels());
+		}
+		device.texParameteri(GL11.GL_TEXTURE_2D, GL12.GL_TEXTURE_MAX_LEVEL,
+				chain.getLevelCount() - 1);
+
+		device.texParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_S,
+				GL11.GL_REPEAT);
+		device.texParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_T,
+				GL11.GL_REPEAT);
+		device.texParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER,
+				GL11.GL_LINEAR);
+		device.texParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER,
+				GL11.GL_LINEAR_MIPMAP_LINEAR);
+
+		GLUtils.checkGLError(device, "uploadMipChain");
+
+		return texId;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Uploads every level of a texture container to a new texture object, with
+	 * repeat wrapping and trilinear filtering when the container holds a mip
+	 * chain. The pixels are passed straight from the container's mapping.
+	 *
+	 * @param container - mapped texture container.
+	 * @param textureUnit - texture unit to bind the texture to, such as
+	 *        GL_TEXTURE0.
+	 * @return the name of the new texture object.
+	 */
+	public static int uploadTextureContainer(TextureContainer container,
+			int textureUnit) {
+		return uploadTextureContainer(LwjglGraphicsDevice.INSTANCE, container, textureUnit);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Same as {@link #uploadTextureContainer(TextureContainer, int)}, creating the texture with
+	 * <code>device</code>.
+	 *
+	 * @param device - device to create the texture with.
+	 * @param container - mapped texture container.
+	 * @param textureUnit - texture unit to bind the texture to, such as
+	 *        GL_TEXTURE0.
+	 * @return the name of the new texture object.
+	 */
+	public static int uploadTextureContainer(GraphicsDevice device,
+			TextureContainer container, int textureUnit) {
+		int texId = device.createTexture();
+		device.activeTexture(textureUnit);
+		device.bindTexture(GL11.GL_TEXTURE_2D, texId);
+
+		device.pixelStorei(GL11.GL_UNPACK_ALIGNMENT, 1);
+
+		int format = container.getPixelFormat().getGLFormat();
+		for (int level = 0; level < container.getLevelCount(); level++) {
+			device.texImage2D(GL11.GL_TEXTURE_2D, level, GL11.GL_RGB,
+					container.getWidth(level), container.getHeight(level),
+					format, GL11.GL_UNSIGNED_BYTE, container.getLevel(level));
+		}
+		device.texParameteri(GL11.GL_TEXTURE_2D, GL12.GL_TEXTURE_MAX_LEVEL,
+				container.getLevelCount() - 1);
+
+		device.texParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_S,
+				GL11.GL_REPEAT);
+		device.texParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_T,
+				GL11.GL_REPEAT);
+		device.texParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER,
+				GL11.GL_LINEAR);
+		device.texParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER,
+				(container.getLevelCount() > 1) ? GL11.GL_LINEAR_MIPMAP_LINEAR
+						: GL11.GL_LINEAR);
+
+		GLUtils.checkGLError(device, "uploadTextureContainer");
 
 		return texId;
 	}
@@ -0,0 +1,64 @@
+package util;
+
+/**
+ * A single named attribute of a {@link VertexFormat}, such as a position or a
+ * color, described by its logical component count and storage type.
+ *
+ * @author Dustin Biser
+ *
+ */
+public class VertexAttribute {
+	private final String name;
+	private final int componentCount;
+	private final VertexAttributeType type;
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param name - attribute name, typically matching the shader input.
+	 * @param componentCount - number of floats written to and read from the
+	 *        attribute.
+	 * @param type - storage type of the attribute.
+	 *
+	 * @throws IllegalArgumentException if <code>type</code> cannot store
+	 *         <code>componentCount</code> components.
+	 */
+	public VertexAttribute(String name, int componentCount, VertexAttributeType type) {
+		if (name == null || type == null) {
+			throw new IllegalArgumentException("name and type cannot be null.");
+		}
+		type.validateComponentCount(componentCount);
+
+		this.name = name;
+		this.componentCount = componentCount;
+		this.type = type;
+	}
+
+	//--------------------------------------------------------------------------
+	public String getName() {
+		return name;
+	}
+
+	//--------------------------------------------------------------------------
+	public int getComponentCount() {
+		return componentCount;
+	}
+
+	//--------------------------------------------------------------------------
+	public VertexAttributeType getType() {
+		return type;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the number of bytes the attribute occupies, before padding.
+	 */
+	public int getByteCount() {
+		return type.byteCount(componentCount);
+	}
+
+	//--------------------------------------------------------------------------
+	@Override
+	public String toString() {
+		return name + ": " + componentCount + " x " + type;
+	}
+}
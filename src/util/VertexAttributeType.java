@@ -0,0 +1,259 @@
+package util;
+
+import java.nio.ByteBuffer;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL33;
+
+/**
+ * Storage types for vertex attributes, with the parameters needed to describe
+ * them to glVertexAttribPointer and CPU side encoders and decoders.
+ * <p>
+ * An attribute has a logical component count, the number of floats written
+ * to and read from it, which may differ from the number of components it is
+ * stored as. For example, an {@link #OCTAHEDRAL_SNORM16} normal has three
+ * logical components stored as two 16-bit integers.
+ *
+ * @author Dustin Biser
+ *
+ */
+public enum VertexAttributeType {
+
+	/** 32-bit floats. */
+	FLOAT32(GL11.GL_FLOAT, false) {
+		@Override
+		public int byteCount(int components) {
+			return 4 * components;
+		}
+
+		@Override
+		void encode(ByteBuffer buf, int index, int components,
+				float x, float y, float z, float w) {
+			buf.putFloat(index, x);
+			if (components > 1) buf.putFloat(index + 4, y);
+			if (components > 2) buf.putFloat(index + 8, z);
+			if (components > 3) buf.putFloat(index + 12, w);
+		}
+
+		@Override
+		void decode(ByteBuffer buf, int index, int components, float[] dest) {
+			for (int i = 0; i < components; i++) {
+				dest[i] = buf.getFloat(index + 4 * i);
+			}
+		}
+	},
+
+	/** IEEE 754 half precision floats. */
+	HALF_FLOAT(GL30.GL_HALF_FLOAT, false) {
+		@Override
+		public int byteCount(int components) {
+			return 2 * components;
+		}
+
+		@Override
+		void encode(ByteBuffer buf, int index, int components,
+				float x, float y, float z, float w) {
+			buf.putShort(index, VertexEncoding.floatToHalf(x));
+			if (components > 1) buf.putShort(index + 2, VertexEncoding.floatToHalf(y));
+			if (components > 2) buf.putShort(index + 4, VertexEncoding.floatToHalf(z));
+			if (components > 3) buf.putShort(index + 6, VertexEncoding.floatToHalf(w));
+		}
+
+		@Override
+		void decode(ByteBuffer buf, int index, int components, float[] dest) {
+			for (int i = 0; i < components; i++) {
+				dest[i] = VertexEncoding.halfToFloat(buf.getShort(index + 2 * i));
+			}
+		}
+	},
+
+	/** Unsigned bytes mapping [0, 255] to [0, 1]. */
+	UNORM8(GL11.GL_UNSIGNED_BYTE, true) {
+		@Override
+		public int byteCount(int components) {
+			return components;
+		}
+
+		@Override
+		void encode(ByteBuffer buf, int index, int components,
+				float x, float y, float z, float w) {
+			buf.put(index, VertexEncoding.floatToUnorm8(x));
+			if (components > 1) buf.put(index + 1, VertexEncoding.floatToUnorm8(y));
+			if (components > 2) buf.put(index + 2, VertexEncoding.floatToUnorm8(z));
+			if (components > 3) buf.put(index + 3, VertexEncoding.floatToUnorm8(w));
+		}
+
+		@Override
+		void decode(ByteBuffer buf, int index, int components, float[] dest) {
+			for (int i = 0; i < components; i++) {
+				dest[i] = VertexEncoding.unorm8ToFloat(buf.get(index + i));
+			}
+		}
+	},
+
+	/** Signed shorts mapping [-32767, 32767] to [-1, 1]. */
+	SNORM16(GL11.GL_SHORT, true) {
+		@Override
+		public int byteCount(int components) {
+			return 2 * components;
+		}
+
+		@Override
+		void encode(ByteBuffer buf, int index, int components,
+				float x, float y, float z, float w) {
+			buf.putShort(index, VertexEncoding.floatToSnorm16(x));
+			if (components > 1) buf.putShort(index + 2, VertexEncoding.floatToSnorm16(y));
+			if (components > 2) buf.putShort(index + 4, VertexEncoding.floatToSnorm16(z));
+			if (components > 3) buf.putShort(index + 6, VertexEncoding.floatToSnorm16(w));
+		}
+
+		@Override
+		void decode(ByteBuffer buf, int index, int components, float[] dest) {
+			for (int i = 0; i < components; i++) {
+				dest[i] = VertexEncoding.snorm16ToFloat(buf.getShort(index + 2 * i));
+			}
+		}
+	},
+
+	/**
+	 * Three or four signed normalized components packed into one 32-bit word,
+	 * with 10 bits each for x, y, z and 2 bits for w.
+	 */
+	PACKED_10_10_10_2(GL33.GL_INT_2_10_10_10_REV, true) {
+		@Override
+		public int byteCount(int components) {
+			return 4;
+		}
+
+		@Override
+		public int storedComponentCount(int components) {
+			return 4;
+		}
+
+		@Override
+		void validateComponentCount(int components) {
+			if (components != 3 && components != 4) {
+				throw new IllegalArgumentException(
+						this + " attributes must have 3 or 4 components.");
+			}
+		}
+
+		@Override
+		void encode(ByteBuffer buf, int index, int components,
+				float x, float y, float z, float w) {
+			if (components == 3) w = 0f;
+			buf.putInt(index, VertexEncoding.packSnorm1010102(x, y, z, w));
+		}
+
+		@Override
+		void decode(ByteBuffer buf, int index, int components, float[] dest) {
+			VertexEncoding.unpackSnorm1010102(buf.getInt(index), dest, 0);
+		}
+	},
+
+	/**
+	 * A unit vector stored as two signed normalized shorts using an octahedral
+	 * mapping. Vertex shaders must decode it explicitly.
+	 */
+	OCTAHEDRAL_SNORM16(GL11.GL_SHORT, true) {
+		@Override
+		public int byteCount(int components) {
+			return 4;
+		}
+
+		@Override
+		public int storedComponentCount(int components) {
+			return 2;
+		}
+
+		@Override
+		void validateComponentCount(int components) {
+			if (components != 3) {
+				throw new IllegalArgumentException(
+						this + " attributes must have 3 components.");
+			}
+		}
+
+		@Override
+		void encode(ByteBuffer buf, int index, int components,
+				float x, float y, float z, float w) {
+			// Store u and v as separate shorts, so the layout is independent of
+			// the buffer's byte order.
+			int packed = VertexEncoding.packOctahedralSnorm16(x, y, z);
+			buf.putShort(index, (short) packed);
+			buf.putShort(index + 2, (short) (packed >> 16));
+		}
+
+		@Override
+		void decode(ByteBuffer buf, int index, int components, float[] dest) {
+			int packed = (buf.getShort(index) & 0xffff) | (buf.getShort(index + 2) << 16);
+			VertexEncoding.unpackOctahedralSnorm16(packed, dest, 0);
+		}
+	};
+
+	private final int glType;
+	private final boolean normalized;
+
+	//--------------------------------------------------------------------------
+	private VertexAttributeType(int glType, boolean normalized) {
+		this.glType = glType;
+		this.normalized = normalized;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the type parameter to pass to glVertexAttribPointer.
+	 */
+	public int getGLType() {
+		return glType;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the normalized parameter to pass to glVertexAttribPointer.
+	 */
+	public boolean isNormalized() {
+		return normalized;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param components - logical component count of an attribute.
+	 * @return the number of bytes the attribute occupies, before padding.
+	 */
+	public abstract int byteCount(int components);
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param components - logical component count of an attribute.
+	 * @return the size parameter to pass to glVertexAttribPointer.
+	 */
+	public int storedComponentCount(int components) {
+		return components;
+	}
+
+	//--------------------------------------------------------------------------
+	void validateComponentCount(int components) {
+		if (components < 1 || components > 4) {
+			throw new IllegalArgumentException(
+					this + " attributes must have between 1 and 4 components.");
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Encodes the first <code>components</code> of x, y, z, w at byte
+	 * <code>index</code> of <code>buf</code>.
+	 */
+	abstract void encode(ByteBuffer buf, int index, int components,
+			float x, float y, float z, float w);
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Decodes <code>components</code> floats at byte <code>index</code> of
+	 * <code>buf</code> into <code>dest</code>, which holds at least four
+	 * elements.
+	 */
+	abstract void decode(ByteBuffer buf, int index, int components, float[] dest);
+}
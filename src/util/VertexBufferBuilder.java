@@ -0,0 +1,184 @@
+package util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.lwjgl.BufferUtils;
+
+/**
+ * Builds interleaved vertex data in the {@link TexturedVertex} layout directly
+ * into a growable, direct {@link ByteBuffer}, ready to be handed to
+ * glBufferData.
+ * <p>
+ * Vertices are written with a fluent API, for example:
+ *
+ * <pre>
+ * builder.pos(-1f, -1f, 0f).color(1f, 0f, 0f).uv(0f, 0f).endVertex();
+ * </pre>
+ *
+ * Attributes not set before {@link #endVertex()} take the same defaults as a
+ * new {@link TexturedVertex}. No memory is allocated per vertex; the backing
+ * buffer doubles in size whenever it runs out of room.
+ *
+ * @author Dustin Biser
+ *
+ */
+public class VertexBufferBuilder {
+	private static final int DEFAULT_VERTEX_CAPACITY = 256;
+
+	// Bit flags marking which attributes of the current vertex have been set.
+	private static final int POSITION_SET = 1;
+	private static final int COLOR_SET = 2;
+	private static final int TEXTURE_SET = 4;
+
+	private ByteBuffer buffer;
+	private int vertexCount;
+	private int vertexByteOffset;
+	private int attributesSet;
+
+	//--------------------------------------------------------------------------
+	public VertexBufferBuilder() {
+		this(DEFAULT_VERTEX_CAPACITY);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param initialVertexCapacity - number of vertices that fit in the
+	 *        backing buffer before it has to grow.
+	 */
+	public VertexBufferBuilder(int initialVertexCapacity) {
+		int vertexCapacity = Math.max(1, initialVertexCapacity);
+		buffer = BufferUtils.createByteBuffer(vertexCapacity * TexturedVertex.stride);
+	}
+
+	//--------------------------------------------------------------------------
+	public VertexBufferBuilder pos(float x, float y, float z) {
+		return pos(x, y, z, 1f);
+	}
+
+	//--------------------------------------------------------------------------
+	public VertexBufferBuilder pos(float x, float y, float z, float w) {
+		int i = vertexByteOffset + TexturedVertex.positionByteOffset;
+		buffer.putFloat(i, x);
+		buffer.putFloat(i + 4, y);
+		buffer.putFloat(i + 8, z);
+		buffer.putFloat(i + 12, w);
+
+		attributesSet |= POSITION_SET;
+		return this;
+	}
+
+	//--------------------------------------------------------------------------
+	public VertexBufferBuilder color(float r, float g, float b) {
+		return color(r, g, b, 1f);
+	}
+
+	//--------------------------------------------------------------------------
+	public VertexBufferBuilder color(float r, float g, float b, float a) {
+		int i = vertexByteOffset + TexturedVertex.colorByteOffset;
+		buffer.putFloat(i, r);
+		buffer.putFloat(i + 4, g);
+		buffer.putFloat(i + 8, b);
+		buffer.putFloat(i + 12, a);
+
+		attributesSet |= COLOR_SET;
+		return this;
+	}
+
+	//--------------------------------------------------------------------------
+	public VertexBufferBuilder uv(float s, float t) {
+		int i = vertexByteOffset + TexturedVertex.textureByteOffset;
+		buffer.putFloat(i, s);
+		buffer.putFloat(i + 4, t);
+
+		attributesSet |= TEXTURE_SET;
+		return this;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Completes the current vertex, filling in any attributes that were not
+	 * set with their defaults, and begins the next one.
+	 *
+	 * @return this builder.
+	 */
+	public VertexBufferBuilder endVertex() {
+		if ((attributesSet & POSITION_SET) == 0) {
+			pos(0f, 0f, 0f, 1f);
+		}
+		if ((attributesSet & COLOR_SET) == 0) {
+			color(1f, 1f, 1f, 1f);
+		}
+		if ((attributesSet & TEXTURE_SET) == 0) {
+			uv(0f, 0f);
+		}
+
+		vertexCount++;
+		vertexByteOffset += TexturedVertex.stride;
+		attributesSet = 0;
+
+		// Always keep room for the next vertex, so the setters never check.
+		if (vertexByteOffset + TexturedVertex.stride > buffer.capacity()) {
+			grow();
+		}
+
+		return this;
+	}
+
+	//--------------------------------------------------------------------------
+	private void grow() {
+		ByteBuffer larger = BufferUtils.createByteBuffer(2 * buffer.capacity());
+
+		ByteBuffer src = buffer.duplicate();
+		src.position(0);
+		src.limit(vertexByteOffset);
+		larger.put(src);
+		larger.clear();
+
+		buffer = larger;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the number of completed vertices.
+	 */
+	public int getVertexCount() {
+		return vertexCount;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the number of bytes occupied by completed vertices.
+	 */
+	public int getByteCount() {
+		return vertexByteOffset;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Returns a view of the completed vertices, with position 0 and limit
+	 * {@link #getByteCount()}, suitable for passing to glBufferData. The view
+	 * shares memory with this builder and is invalidated by writing further
+	 * vertices or calling {@link #reset()}.
+	 *
+	 * @return a native order view of the vertex data.
+	 */
+	public ByteBuffer getBuffer() {
+		ByteBuffer view = buffer.duplicate().order(ByteOrder.nativeOrder());
+		view.position(0);
+		view.limit(vertexByteOffset);
+
+		return view;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Discards all vertices while keeping the backing buffer, so a builder can
+	 * be reused from frame to frame without allocating.
+	 */
+	public void reset() {
+		vertexCount = 0;
+		vertexByteOffset = 0;
+		attributesSet = 0;
+	}
+}
@@ -0,0 +1,279 @@
+package util;
+
+/**
+ * CPU side encoders and decoders for the compact vertex attribute
+ * representations used by {@link VertexAttributeType}.
+ *
+ * Each decoder follows the conversion rules OpenGL applies when it fetches the
+ * attribute, so that decoding an encoded value here yields the same value a
+ * vertex shader would see.
+ *
+ * @author Dustin Biser
+ *
+ */
+public class VertexEncoding {
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Converts a 32-bit float to the bits of an IEEE 754 half precision float,
+	 * rounding to nearest. Values too large for a half become infinity, and
+	 * values too small become signed zero or a subnormal half.
+	 *
+	 * @param f - the float to convert.
+	 * @return the 16 bits of the half precision float.
+	 */
+	public static short floatToHalf(float f) {
+		int bits = Float.floatToRawIntBits(f);
+		int sign = (bits >>> 16) & 0x8000;
+		int magnitude = bits & 0x7fffffff;
+
+		// NaN and infinity keep their class; NaN keeps a non-zero mantissa.
+		if (magnitude >= 0x7f800000) {
+			int nan = (magnitude > 0x7f800000) ? 0x200 : 0;
+			return (short) (sign | 0x7c00 | nan);
+		}
+
+		// Add half of the 13 discarded mantissa bits in order to round.
+		int rounded = magnitude + 0x1000;
+
+		// Too large for a half, after rounding.
+		if (rounded >= 0x47800000) {
+			return (short) (sign | 0x7c00);
+		}
+
+		// Normalized half: rebias the exponent from 127 to 15.
+		if (rounded >= 0x38800000) {
+			return (short) (sign | ((rounded - 0x38000000) >>> 13));
+		}
+
+		// Too small for even the smallest subnormal half.
+		if (magnitude < 0x33000000) {
+			return (short) sign;
+		}
+
+		// Subnormal half: shift the mantissa, with its implicit leading bit,
+		// right by the exponent deficit and round.
+		int exponent = magnitude >>> 23;
+		int mantissa = (magnitude & 0x7fffff) | 0x800000;
+		int shift = 126 - exponent;
+		int half = (mantissa + (1 << (shift - 1))) >>> shift;
+
+		return (short) (sign | half);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Converts the bits of an IEEE 754 half precision float to a 32-bit float.
+	 * The conversion is exact.
+	 *
+	 * @param half - the 16 bits of a half precision float.
+	 * @return the float value of <code>half</code>.
+	 */
+	public static float halfToFloat(short half) {
+		int sign = (half & 0x8000) << 16;
+		int exponent = (half >>> 10) & 0x1f;
+		int mantissa = half & 0x3ff;
+
+		if (exponent == 0) {
+			// Zero or subnormal: mantissa * 2^-24.
+			float magnitude = mantissa * 5.9604645e-8f;
+			return (sign != 0) ? -magnitude : magnitude;
+		}
+		if (exponent == 31) {
+			// Infinity or NaN.
+			return Float.intBitsToFloat(sign | 0x7f800000 | (mantissa << 13));
+		}
+
+		return Float.intBitsToFloat(sign | ((exponent + 112) << 23) | (mantissa << 13));
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param f - value in [0, 1], clamped if outside.
+	 * @return <code>f</code> as an unsigned normalized 8-bit integer.
+	 */
+	public static byte floatToUnorm8(float f) {
+		return (byte) Math.round(clamp(f, 0f, 1f) * 255f);
+	}
+
+	//--------------------------------------------------------------------------
+	public static float unorm8ToFloat(byte b) {
+		return (b & 0xff) / 255f;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param f - value in [-1, 1], clamped if outside.
+	 * @return <code>f</code> as a signed normalized 16-bit integer.
+	 */
+	public static short floatToSnorm16(float f) {
+		return (short) Math.round(clamp(f, -1f, 1f) * 32767f);
+	}
+
+	//--------------------------------------------------------------------------
+	public static float snorm16ToFloat(short s) {
+		return Math.max(s / 32767f, -1f);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Packs four values into the layout of GL_INT_2_10_10_10_REV: x in the
+	 * lowest 10 bits, then y and z, then w in the highest 2 bits, each as a
+	 * signed normalized integer.
+	 *
+	 * @param x - value in [-1, 1], clamped if outside.
+	 * @param y - value in [-1, 1], clamped if outside.
+	 * @param z - value in [-1, 1], clamped if outside.
+	 * @param w - value in [-1, 1], clamped if outside.
+	 * @return the packed 32 bits.
+	 */
+	public static int packSnorm1010102(float x, float y, float z, float w) {
+		int ix = Math.round(clamp(x, -1f, 1f) * 511f) & 0x3ff;
+		int iy = Math.round(clamp(y, -1f, 1f) * 511f) & 0x3ff;
+		int iz = Math.round(clamp(z, -1f, 1f) * 511f) & 0x3ff;
+		int iw = Math.round(clamp(w, -1f, 1f)) & 0x3;
+
+		return ix | (iy << 10) | (iz << 20) | (iw << 30);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Unpacks the four signed normalized values of a GL_INT_2_10_10_10_REV
+	 * word into <code>dest[offset]</code> through
+	 * <code>dest[offset + 3]</code>.
+	 *
+	 * @param packed
+	 * @param dest
+	 * @param offset
+	 */
+	public static void unpackSnorm1010102(int packed, float[] dest, int offset) {
+		// Shift each field to the top of the word, then arithmetic shift it
+		// back down to sign extend it.
+		dest[offset]     = Math.max((packed << 22 >> 22) / 511f, -1f);
+		dest[offset + 1] = Math.max((packed << 12 >> 22) / 511f, -1f);
+		dest[offset + 2] = Math.max((packed << 2 >> 22) / 511f, -1f);
+		dest[offset + 3] = Math.max((float) (packed >> 30), -1f);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Maps a unit vector onto the octahedron |u| + |v| + |w| = 1, and unfolds
+	 * the lower half of the octahedron over the upper half, giving a 2D point
+	 * in [-1, 1]^2. Two 16-bit components in this encoding represent normals
+	 * with about 0.005 degrees of error.
+	 *
+	 * @param nx
+	 * @param ny
+	 * @param nz
+	 * @param dest - receives u in <code>dest[offset]</code> and v in
+	 *        <code>dest[offset + 1]</code>.
+	 * @param offset
+	 */
+	public static void octahedralEncode(float nx, float ny, float nz,
+			float[] dest, int offset) {
+		float invL1Norm = 1f / (Math.abs(nx) + Math.abs(ny) + Math.abs(nz));
+		float u = nx * invL1Norm;
+		float v = ny * invL1Norm;
+
+		if (nz < 0f) {
+			float foldedU = fold(u, v);
+			float foldedV = fold(v, u);
+			u = foldedU;
+			v = foldedV;
+		}
+
+		dest[offset] = u;
+		dest[offset + 1] = v;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Inverse of {@link #octahedralEncode(float, float, float, float[], int)}.
+	 * Stores the decoded unit vector in <code>dest[offset]</code> through
+	 * <code>dest[offset + 2]</code>.
+	 *
+	 * @param u
+	 * @param v
+	 * @param dest
+	 * @param offset
+	 */
+	public static void octahedralDecode(float u, float v, float[] dest, int offset) {
+		float nz = 1f - Math.abs(u) - Math.abs(v);
+		float nx = u;
+		float ny = v;
+
+		if (nz < 0f) {
+			nx = fold(u, v);
+			ny = fold(v, u);
+		}
+
+		float invLength = 1f / (float) Math.sqrt(nx*nx + ny*ny + nz*nz);
+		dest[offset] = nx * invLength;
+		dest[offset + 1] = ny * invLength;
+		dest[offset + 2] = nz * invLength;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Octahedral encodes a unit vector as two signed normalized shorts, with u
+	 * in the low 16 bits and v in the high 16 bits of the returned word.
+	 *
+	 * @param nx
+	 * @param ny
+	 * @param nz
+	 * @return the packed u and v components.
+	 */
+	public static int packOctahedralSnorm16(float nx, float ny, float nz) {
+		float invL1Norm = 1f / (Math.abs(nx) + Math.abs(ny) + Math.abs(nz));
+		float u = nx * invL1Norm;
+		float v = ny * invL1Norm;
+
+		if (nz < 0f) {
+			float foldedU = fold(u, v);
+			float foldedV = fold(v, u);
+			u = foldedU;
+			v = foldedV;
+		}
+
+		return (floatToSnorm16(u) & 0xffff) | (floatToSnorm16(v) << 16);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Inverse of {@link #packOctahedralSnorm16(float, float, float)}. Stores
+	 * the decoded unit vector in <code>dest[offset]</code> through
+	 * <code>dest[offset + 2]</code>.
+	 *
+	 * @param packed
+	 * @param dest
+	 * @param offset
+	 */
+	public static void unpackOctahedralSnorm16(int packed, float[] dest, int offset) {
+		float u = snorm16ToFloat((short) packed);
+		float v = snorm16ToFloat((short) (packed >> 16));
+		octahedralDecode(u, v, dest, offset);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Reflects one octahedral coordinate across the diagonal edges of the
+	 * upper half of the octahedron.
+	 *
+	 * @param f - the coordinate to fold.
+	 * @param other - the other coordinate of the same point.
+	 * @return the folded coordinate.
+	 */
+	private static float fold(float f, float other) {
+		return (1f - Math.abs(other)) * signNotZero(f);
+	}
+
+	//--------------------------------------------------------------------------
+	private static float signNotZero(float f) {
+		return (f >= 0f) ? 1f : -1f;
+	}
+
+	//--------------------------------------------------------------------------
+	private static float clamp(float f, float min, float max) {
+		return (f < min) ? min : (f > max) ? max : f;
+	}
+}
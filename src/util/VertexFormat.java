@@ -0,0 +1,244 @@
+package util;
+
+import java.nio.ByteBuffer;
+
+import static util.RuntimeDefines.DEBUG_MODE;
+
+/**
+ * Describes the interleaved layout of a vertex as an ordered list of
+ * {@link VertexAttribute}s, and encodes and decodes attribute values to and
+ * from vertex buffers in that layout.
+ * <p>
+ * Each attribute begins on a 4 byte boundary, as required by most GL
+ * implementations for efficient vertex fetch, so the stride of a format is
+ * the sum of its attribute sizes rounded up to multiples of 4.
+ * <p>
+ * Buffers passed to {@link #put} and {@link #get} must use native byte order,
+ * as returned by BufferUtils.createByteBuffer(int).
+ *
+ * @author Dustin Biser
+ *
+ */
+public class VertexFormat {
+
+	/**
+	 * The layout of {@link TexturedVertex}: four float position, four float
+	 * color and two float texture coordinates, 40 bytes per vertex.
+	 */
+	public static final VertexFormat TEXTURED_VERTEX = new VertexFormat(
+			new VertexAttribute("position", 4, VertexAttributeType.FLOAT32),
+			new VertexAttribute("color", 4, VertexAttributeType.FLOAT32),
+			new VertexAttribute("texCoord", 2, VertexAttributeType.FLOAT32));
+
+	/**
+	 * A compact equivalent of {@link #TEXTURED_VERTEX}: half float position,
+	 * 8-bit color and half float texture coordinates, 16 bytes per vertex.
+	 */
+	public static final VertexFormat PACKED_TEXTURED_VERTEX = new VertexFormat(
+			new VertexAttribute("position", 4, VertexAttributeType.HALF_FLOAT),
+			new VertexAttribute("color", 4, VertexAttributeType.UNORM8),
+			new VertexAttribute("texCoord", 2, VertexAttributeType.HALF_FLOAT));
+
+	/**
+	 * A lit vertex with float position, octahedral encoded normal, 10_10_10_2
+	 * tangent with handedness in w, and half float texture coordinates, 24 bytes
+	 * per vertex.
+	 */
+	public static final VertexFormat PACKED_LIT_VERTEX = new VertexFormat(
+			new VertexAttribute("position", 3, VertexAttributeType.FLOAT32),
+			new VertexAttribute("normal", 3, VertexAttributeType.OCTAHEDRAL_SNORM16),
+			new VertexAttribute("tangent", 4, VertexAttributeType.PACKED_10_10_10_2),
+			new VertexAttribute("texCoord", 2, VertexAttributeType.HALF_FLOAT));
+
+	private static final int ATTRIBUTE_ALIGNMENT = 4;
+
+	private final VertexAttribute[] attributes;
+	private final int[] byteOffsets;
+	private final int stride;
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param attributes - attributes in the order they are interleaved.
+	 */
+	public VertexFormat(VertexAttribute... attributes) {
+		if (attributes.length == 0) {
+			throw new IllegalArgumentException(
+					"A VertexFormat requires at least one attribute.");
+		}
+
+		this.attributes = attributes.clone();
+		this.byteOffsets = new int[attributes.length];
+
+		int offset = 0;
+		for (int i = 0; i < attributes.length; i++) {
+			byteOffsets[i] = offset;
+			offset += align(attributes[i].getByteCount());
+		}
+		this.stride = offset;
+	}
+
+	//--------------------------------------------------------------------------
+	private static int align(int byteCount) {
+		return (byteCount + ATTRIBUTE_ALIGNMENT - 1) & ~(ATTRIBUTE_ALIGNMENT - 1);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the size of a vertex in bytes.
+	 */
+	public int getStride() {
+		return stride;
+	}
+
+	//--------------------------------------------------------------------------
+	public int getAttributeCount() {
+		return attributes.length;
+	}
+
+	//--------------------------------------------------------------------------
+	public VertexAttribute getAttribute(int attribute) {
+		return attributes[attribute];
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param attribute - attribute index.
+	 * @return the byte offset of the attribute from the start of a vertex, as
+	 *         passed to glVertexAttribPointer.
+	 */
+	public int getByteOffset(int attribute) {
+		return byteOffsets[attribute];
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param name - attribute name.
+	 * @return the index of the attribute with the given name, or -1 if there
+	 *         is none.
+	 */
+	public int indexOf(String name) {
+		for (int i = 0; i < attributes.length; i++) {
+			if (attributes[i].getName().equals(name)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Encodes an attribute value of the given vertex into <code>buffer</code>.
+	 * Components beyond the attribute's component count are ignored.
+	 *
+	 * @param buffer - native order buffer holding vertices in this format.
+	 * @param vertex - vertex index.
+	 * @param attribute - attribute index.
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @param w
+	 */
+	public void put(ByteBuffer buffer, int vertex, int attribute,
+			float x, float y, float z, float w) {
+		int index = vertex * stride + byteOffsets[attribute];
+		VertexAttribute a = attributes[attribute];
+
+		if (DEBUG_MODE) {
+			validateIndex(buffer, index, a);
+		}
+
+		a.getType().encode(buffer, index, a.getComponentCount(), x, y, z, w);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Decodes an attribute value of the given vertex from <code>buffer</code>
+	 * into <code>dest</code>, as a vertex shader would read it.
+	 *
+	 * @param buffer - native order buffer holding vertices in this format.
+	 * @param vertex - vertex index.
+	 * @param attribute - attribute index.
+	 * @param dest - receives the decoded components; must hold at least four
+	 *        elements.
+	 */
+	public void get(ByteBuffer buffer, int vertex, int attribute, float[] dest) {
+		int index = vertex * stride + byteOffsets[attribute];
+		VertexAttribute a = attributes[attribute];
+
+		if (DEBUG_MODE) {
+			validateIndex(buffer, index, a);
+			if (dest.length < 4) {
+				throw new IllegalArgumentException(
+						"dest must hold at least four elements.");
+			}
+		}
+
+		a.getType().decode(buffer, index, a.getComponentCount(), dest);
+	}
+
+	//--------------------------------------------------------------------------
+	private static void validateIndex(ByteBuffer buffer, int index,
+			VertexAttribute attribute) {
+		if (index < 0 || index + attribute.getByteCount() > buffer.capacity()) {
+			throw new IndexOutOfBoundsException("Attribute " + attribute
+					+ " at byte " + index + " exceeds buffer capacity "
+					+ buffer.capacity() + ".");
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return a multi-line description of each attribute's type and offset,
+	 *         followed by the stride.
+	 */
+	public String describe() {
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < attributes.length; i++) {
+			builder.append(String.format("  %-10s %d x %-18s offset %2d, %2d bytes%n",
+					attributes[i].getName(), attributes[i].getComponentCount(),
+					attributes[i].getType(), byteOffsets[i],
+					attributes[i].getByteCount()));
+		}
+		builder.append(String.format("  stride %d bytes", stride));
+
+		return builder.toString();
+	}
+
+	//--------------------------------------------------------------------------
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("VertexFormat[");
+		for (int i = 0; i < attributes.length; i++) {
+			if (i > 0) {
+				builder.append(", ");
+			}
+			builder.append(attributes[i]);
+		}
+		builder.append("]");
+
+		return builder.toString();
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Prints the layout of each predefined format, and the memory needed to
+	 * store one million vertices in it.
+	 */
+	public static void main(String args[]) {
+		final int vertexCount = 1000000;
+		String[] names = {"TEXTURED_VERTEX", "PACKED_TEXTURED_VERTEX",
+				"PACKED_LIT_VERTEX"};
+		VertexFormat[] formats = {TEXTURED_VERTEX, PACKED_TEXTURED_VERTEX,
+				PACKED_LIT_VERTEX};
+
+		for (int i = 0; i < formats.length; i++) {
+			VertexFormat format = formats[i];
+			System.out.println(names[i]);
+			System.out.println(format.describe());
+			System.out.printf("  %d vertices: %.2f MB, %.2fx smaller than "
+					+ "TEXTURED_VERTEX%n%n", vertexCount,
+					format.getStride() * (double) vertexCount / (1 << 20),
+					TEXTURED_VERTEX.getStride() / (double) format.getStride());
+		}
+	}
+}
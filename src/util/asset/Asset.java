@@ -0,0 +1,68 @@
+package util.asset;
+
+/**
+ * Handle to an asset kept up to date by an {@link AssetWatcher}. The value
+ * returned by {@link #get()} only changes inside
+ * {@link AssetWatcher#swap()}, so it is stable for the rest of a frame, and
+ * it always refers to the last version that loaded successfully.
+ *
+ * @param <T> - type of the installed asset.
+ *
+ * @author Dustin Biser
+ *
+ */
+public class Asset<T> {
+	private final String name;
+	private volatile T value;
+	private volatile int version;
+	private volatile Exception lastError;
+
+	//--------------------------------------------------------------------------
+	Asset(String name, T value) {
+		this.name = name;
+		this.value = value;
+	}
+
+	//--------------------------------------------------------------------------
+	public String getName() {
+		return name;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the last successfully loaded version of the asset.
+	 */
+	public T get() {
+		return value;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the number of times the asset has been successfully reloaded,
+	 *         starting at 0 for the initial load.
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the error of the most recent reload if it failed, or null if it
+	 *         succeeded.
+	 */
+	public Exception getLastError() {
+		return lastError;
+	}
+
+	//--------------------------------------------------------------------------
+	void replace(T value) {
+		this.value = value;
+		this.version++;
+		this.lastError = null;
+	}
+
+	//--------------------------------------------------------------------------
+	void fail(Exception error) {
+		this.lastError = error;
+	}
+}
@@ -0,0 +1,68 @@
+package util.asset;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Loads one asset for an {@link AssetWatcher}, in two stages: reading and
+ * decoding its files, which touches no GL state and runs on a background
+ * thread when the asset is reloaded, and installing the decoded data, which
+ * creates GL objects and always runs on the thread owning the GL context.
+ *
+ * @param <D> - decoded data produced by {@link #read()}.
+ * @param <T> - installed asset, such as the name of a GL object.
+ *
+ * @author Dustin Biser
+ *
+ */
+public interface AssetLoader<D, T> {
+
+	/**
+	 * @return a name identifying the asset in error messages.
+	 */
+	public String getName();
+
+	/**
+	 * Reads and decodes the asset's files. Called on any thread.
+	 *
+	 * @return the decoded data.
+	 * @throws Exception if a file cannot be read or is invalid.
+	 */
+	public D read() throws Exception;
+
+	/**
+	 * @param data - data returned by {@link #read()}.
+	 * @return every file <code>data</code> was read from, whose changes
+	 *         trigger a reload. Called before <code>data</code> is installed
+	 *         or discarded.
+	 */
+	public List<File> getFiles(D data);
+
+	/**
+	 * Creates the asset from decoded data, and releases the data whether or
+	 * not it succeeds. Called on the thread owning the GL context.
+	 *
+	 * @param data - data returned by {@link #read()}.
+	 * @return the installed asset. May be the same instance as the version
+	 *         already installed, such as when it is taken from a cache, in
+	 *         which case the previous version is not disposed.
+	 * @throws Exception if the asset cannot be created, in which case any
+	 *         partially created GL objects are deleted.
+	 */
+	public T install(D data) throws Exception;
+
+	/**
+	 * Releases decoded data that will never be installed, because a newer
+	 * read superseded it.
+	 *
+	 * @param data - data returned by {@link #read()}.
+	 */
+	public void discard(D data);
+
+	/**
+	 * Deletes an installed asset. Called on the thread owning the GL context.
+	 *
+	 * @param asset - asset returned by {@link #install(Object)}.
+	 */
+	public void dispose(T asset);
+}
@@ -0,0 +1,603 @@
+package util.asset;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import util.profile.Profiler;
+
+/**
+ * Reloads assets while the program runs, whenever the files they were loaded
+ * from change.
+ * <p>
+ * A background thread watches the directories of every registered asset's
+ * files. Changes are debounced: reloads start only once no file has changed
+ * for the debounce interval, so that an editor saving several files, or
+ * writing one file in several steps, causes a single reload. Only the assets
+ * depending on a changed file are read again, on a second background thread,
+ * and the results wait until {@link #swap()} installs them on the render
+ * thread, typically once per frame, so assets never change in the middle of a
+ * frame. When a reload fails, the error is recorded on the {@link Asset} and
+ * printed, and the asset keeps its last good version.
+ *
+ * @author Dustin Biser
+ *
+ */
+public class AssetWatcher {
+	public static final long DEFAULT_DEBOUNCE_MILLIS = 100;
+
+	private static final int READ_SCOPE = Profiler.INSTANCE.scope("AssetWatcher.read");
+	private static final int INSTALL_SCOPE = Profiler.INSTANCE.scope("AssetWatcher.install");
+
+	//--------------------------------------------------------------------------
+	private static class Entry<D, T> {
+		final AssetLoader<D, T> loader;
+		final Asset<T> asset;
+
+		// Normalized absolute paths of the asset's files, guarded by the
+		// watcher.
+		List<Path> files = Collections.emptyList();
+
+		Entry(AssetLoader<D, T> loader, Asset<T> asset) {
+			this.loader = loader;
+			this.asset = asset;
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Outcome of reading an asset on the reload thread: either decoded data or
+	 * the error that prevented decoding.
+	 */
+	private static class Result<D, T> {
+		final Entry<D, T> entry;
+		final D data;
+		final Exception error;
+
+		Result(Entry<D, T> entry, D data, Exception error) {
+			this.entry = entry;
+			this.data = data;
+			this.error = error;
+		}
+	}
+
+	private final WatchService watchService;
+	private final long debounceNanos;
+	private final Thread watchThread;
+	private final ExecutorService reloadExecutor;
+
+	// Guarded by this.
+	private final Map<Asset<?>, Entry<?, ?>> entries =
+			new IdentityHashMap<Asset<?>, Entry<?, ?>>();
+	private final Map<Path, Set<Entry<?, ?>>> dependents =
+			new HashMap<Path, Set<Entry<?, ?>>>();
+	private final Map<Path, WatchKey> directoryKeys = new HashMap<Path, WatchKey>();
+	private final Map<Path, Integer> directoryFileCounts = new HashMap<Path, Integer>();
+
+	private final ConcurrentLinkedQueue<Result<?, ?>> results =
+			new ConcurrentLinkedQueue<Result<?, ?>>();
+	private final AtomicInteger pendingReads = new AtomicInteger();
+	private final AtomicInteger readCount = new AtomicInteger();
+
+	// Only accessed by the thread calling swap().
+	private int reloadCount;
+	private int failureCount;
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Creates a watcher with the default debounce interval.
+	 *
+	 * @throws IOException if the file system cannot be watched.
+	 */
+	public AssetWatcher() throws IOException {
+		this(DEFAULT_DEBOUNCE_MILLIS);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param debounceMillis - time without further changes to wait before
+	 *        reloading changed assets.
+	 * @throws IOException if the file system cannot be watched.
+	 */
+	public AssetWatcher(long debounceMillis) throws IOException {
+		this.watchService = FileSystems.getDefault().newWatchService();
+		this.debounceNanos = TimeUnit.MILLISECONDS.toNanos(debounceMillis);
+
+		this.reloadExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "AssetReloader");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+
+		this.watchThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				watchLoop();
+			}
+		}, "AssetWatcher");
+		this.watchThread.setDaemon(true);
+		this.watchThread.start();
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Loads an asset on the calling thread, which must own the GL context, and
+	 * reloads it whenever its files change.
+	 *
+	 * @param loader - loader of the asset.
+	 * @return a handle to the current version of the asset.
+	 * @throws Exception if the initial load fails, in which case the asset is
+	 *         not watched.
+	 */
+	public <D, T> Asset<T> register(AssetLoader<D, T> loader) throws Exception {
+		D data;
+		T value;
+		Profiler.INSTANCE.begin(READ_SCOPE);
+		try {
+			data = loader.read();
+		}
+		finally {
+			Profiler.INSTANCE.end(READ_SCOPE);
+		}
+		List<File> files = loader.getFiles(data);
+		Profiler.INSTANCE.begin(INSTALL_SCOPE);
+		try {
+			value = loader.install(data);
+		}
+		finally {
+			Profiler.INSTANCE.end(INSTALL_SCOPE);
+		}
+
+		Entry<D, T> entry = new Entry<D, T>(loader, new Asset<T>(loader.getName(), value));
+		synchronized (this) {
+			entries.put(entry.asset, entry);
+			try {
+				setFiles(entry, files);
+			}
+			catch (IOException e) {
+				unwatch(entry);
+				loader.dispose(value);
+				throw e;
+			}
+		}
+
+		return entry.asset;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Stops watching an asset and disposes its current version. Must be
+	 * called on the thread owning the GL context.
+	 *
+	 * @param asset - handle returned by {@link #register(AssetLoader)}.
+	 */
+	public void unregister(Asset<?> asset) {
+		Entry<?, ?> entry;
+		synchronized (this) {
+			entry = entries.get(asset);
+			if (entry == null) {
+				return;
+			}
+			unwatch(entry);
+		}
+		dispose(entry);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Reads an asset again on the reload thread, whether or not its files
+	 * changed. The new version is installed by the next {@link #swap()}.
+	 *
+	 * @param asset - handle returned by {@link #register(AssetLoader)}.
+	 */
+	public synchronized void requestReload(Asset<?> asset) {
+		Entry<?, ?> entry = entries.get(asset);
+		if (entry != null) {
+			scheduleRead(entry);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Installs every asset read since the last call, replacing and disposing
+	 * the previous versions. Assets that failed to read or install keep their
+	 * previous version. Must be called on the thread owning the GL context,
+	 * between frames.
+	 *
+	 * @return the number of assets replaced.
+	 */
+	public int swap() {
+		if (results.isEmpty()) {
+			return 0;
+		}
+
+		// Reads complete in order, so only the newest result of each asset
+		// needs installing.
+		Map<Entry<?, ?>, Result<?, ?>> newest = new LinkedHashMap<Entry<?, ?>, Result<?, ?>>();
+		Result<?, ?> result;
+		while ((result = results.poll()) != null) {
+			Result<?, ?> superseded = newest.put(result.entry, result);
+			if (superseded != null) {
+				discard(superseded);
+			}
+		}
+
+		int swapCount = 0;
+		for (Result<?, ?> newestResult : newest.values()) {
+			if (install(newestResult)) {
+				swapCount++;
+			}
+		}
+
+		return swapCount;
+	}
+
+	//--------------------------------------------------------------------------
+	private <D, T> boolean install(Result<D, T> result) {
+		Entry<D, T> entry = result.entry;
+		synchronized (this) {
+			if (entries.get(entry.asset) != entry) {
+				discard(result);
+				return false;
+			}
+		}
+
+		if (result.error != null) {
+			fail(entry, result.error);
+			return false;
+		}
+
+		T value;
+		Profiler.INSTANCE.begin(INSTALL_SCOPE);
+		try {
+			value = entry.loader.install(result.data);
+		}
+		catch (Exception e) {
+			fail(entry, e);
+			return false;
+		}
+		finally {
+			Profiler.INSTANCE.end(INSTALL_SCOPE);
+		}
+
+		T previous = entry.asset.get();
+		entry.asset.replace(value);
+		// A caching loader returns the installed instance when the data is
+		// unchanged, which must stay alive.
+		if (value != previous) {
+			entry.loader.dispose(previous);
+		}
+		reloadCount++;
+
+		return true;
+	}
+
+	//--------------------------------------------------------------------------
+	private void fail(Entry<?, ?> entry, Exception error) {
+		entry.asset.fail(error);
+		failureCount++;
+		System.err.println("Could not reload " + entry.asset.getName()
+				+ ", keeping the last good version: " + error.getMessage());
+	}
+
+	//--------------------------------------------------------------------------
+	private static <D, T> void discard(Result<D, T> result) {
+		if (result.data != null) {
+			result.entry.loader.discard(result.data);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private static <D, T> void dispose(Entry<D, T> entry) {
+		entry.loader.dispose(entry.asset.get());
+	}
+
+	//--------------------------------------------------------------------------
+	private void watchLoop() {
+		Set<Path> changedFiles = new HashSet<Path>();
+		Set<Path> overflowedDirectories = new HashSet<Path>();
+		long quietDeadline = 0;
+
+		while (true) {
+			WatchKey key;
+			try {
+				if (changedFiles.isEmpty() && overflowedDirectories.isEmpty()) {
+					key = watchService.take();
+				}
+				else {
+					long remaining = quietDeadline - System.nanoTime();
+					if (remaining <= 0) {
+						scheduleReloads(changedFiles, overflowedDirectories);
+						changedFiles.clear();
+						overflowedDirectories.clear();
+						continue;
+					}
+					key = watchService.poll(remaining, TimeUnit.NANOSECONDS);
+				}
+			}
+			catch (InterruptedException e) {
+				return;
+			}
+			catch (ClosedWatchServiceException e) {
+				return;
+			}
+
+			if (key == null) {
+				continue;
+			}
+
+			Path directory = (Path) key.watchable();
+			for (WatchEvent<?> event : key.pollEvents()) {
+				if (event.kind() == OVERFLOW) {
+					// Events were lost, so any file in the directory may have
+					// changed.
+					overflowedDirectories.add(directory);
+				}
+				else {
+					changedFiles.add(directory.resolve((Path) event.context()));
+				}
+			}
+			key.reset();
+
+			quietDeadline = System.nanoTime() + debounceNanos;
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private synchronized void scheduleReloads(Set<Path> changedFiles,
+			Set<Path> overflowedDirectories) {
+		Set<Entry<?, ?>> affected = new LinkedHashSet<Entry<?, ?>>();
+		for (Path file : changedFiles) {
+			Set<Entry<?, ?>> fileDependents = dependents.get(file);
+			if (fileDependents != null) {
+				affected.addAll(fileDependents);
+			}
+		}
+		if (!overflowedDirectories.isEmpty()) {
+			for (Map.Entry<Path, Set<Entry<?, ?>>> fileDependents : dependents.entrySet()) {
+				if (overflowedDirectories.contains(fileDependents.getKey().getParent())) {
+					affected.addAll(fileDependents.getValue());
+				}
+			}
+		}
+
+		for (Entry<?, ?> entry : affected) {
+			scheduleRead(entry);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private void scheduleRead(final Entry<?, ?> entry) {
+		pendingReads.incrementAndGet();
+		try {
+			reloadExecutor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						read(entry);
+					}
+					finally {
+						pendingReads.decrementAndGet();
+					}
+				}
+			});
+		}
+		catch (RejectedExecutionException e) {
+			// The watcher was disposed.
+			pendingReads.decrementAndGet();
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private <D, T> void read(Entry<D, T> entry) {
+		readCount.incrementAndGet();
+
+		D data;
+		List<File> files;
+		Profiler.INSTANCE.begin(READ_SCOPE);
+		try {
+			data = entry.loader.read();
+			files = entry.loader.getFiles(data);
+		}
+		catch (Exception e) {
+			results.add(new Result<D, T>(entry, null, e));
+			return;
+		}
+		finally {
+			Profiler.INSTANCE.end(READ_SCOPE);
+		}
+
+		synchronized (this) {
+			if (entries.get(entry.asset) == entry) {
+				try {
+					setFiles(entry, files);
+				}
+				catch (IOException e) {
+					// A new file could not be watched. The data is still
+					// valid, so it is installed, and the files watched so far
+					// keep triggering reloads.
+				}
+			}
+		}
+		results.add(new Result<D, T>(entry, data, null));
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Replaces the files an entry depends on, watching directories that
+	 * contain new files and no longer watching those left empty.
+	 */
+	private void setFiles(Entry<?, ?> entry, List<File> files) throws IOException {
+		List<Path> paths = new ArrayList<Path>(files.size());
+		for (File file : files) {
+			Path path = file.toPath().toAbsolutePath().normalize();
+			if (!paths.contains(path)) {
+				paths.add(path);
+			}
+		}
+
+		for (Path path : paths) {
+			if (!entry.files.contains(path)) {
+				addDependency(entry, path);
+			}
+		}
+		for (Path path : entry.files) {
+			if (!paths.contains(path)) {
+				removeDependency(entry, path);
+			}
+		}
+		entry.files = paths;
+	}
+
+	//--------------------------------------------------------------------------
+	private void unwatch(Entry<?, ?> entry) {
+		for (Path path : entry.files) {
+			removeDependency(entry, path);
+		}
+		entry.files = Collections.emptyList();
+		entries.remove(entry.asset);
+	}
+
+	//--------------------------------------------------------------------------
+	private void addDependency(Entry<?, ?> entry, Path file) throws IOException {
+		Set<Entry<?, ?>> fileDependents = dependents.get(file);
+		if (fileDependents == null) {
+			Path directory = file.getParent();
+			Integer fileCount = directoryFileCounts.get(directory);
+			if (fileCount == null) {
+				directoryKeys.put(directory, directory.register(watchService,
+						ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY));
+				fileCount = 0;
+			}
+			directoryFileCounts.put(directory, fileCount + 1);
+
+			fileDependents = new HashSet<Entry<?, ?>>();
+			dependents.put(file, fileDependents);
+		}
+		fileDependents.add(entry);
+	}
+
+	//--------------------------------------------------------------------------
+	private void removeDependency(Entry<?, ?> entry, Path file) {
+		Set<Entry<?, ?>> fileDependents = dependents.get(file);
+		if (fileDependents == null || !fileDependents.remove(entry)
+				|| !fileDependents.isEmpty()) {
+			return;
+		}
+		dependents.remove(file);
+
+		Path directory = file.getParent();
+		int fileCount = directoryFileCounts.get(directory) - 1;
+		if (fileCount == 0) {
+			directoryFileCounts.remove(directory);
+			directoryKeys.remove(directory).cancel();
+		}
+		else {
+			directoryFileCounts.put(directory, fileCount);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the number of reads scheduled on the reload thread that have not
+	 *         finished. Finished reads are installed by the next
+	 *         {@link #swap()}.
+	 */
+	public int getPendingReadCount() {
+		return pendingReads.get();
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the number of times any asset has been read on the reload
+	 *         thread.
+	 */
+	public int getReadCount() {
+		return readCount.get();
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the number of times {@link #swap()} replaced an asset.
+	 */
+	public int getReloadCount() {
+		return reloadCount;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the number of reloads that failed.
+	 */
+	public int getFailureCount() {
+		return failureCount;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Stops watching, and disposes every registered asset. Must be called on
+	 * the thread owning the GL context.
+	 */
+	public void dispose() {
+		try {
+			watchService.close();
+		}
+		catch (IOException e) {
+			// The watch thread still exits once interrupted.
+		}
+		watchThread.interrupt();
+
+		reloadExecutor.shutdownNow();
+		try {
+			reloadExecutor.awaitTermination(1, TimeUnit.SECONDS);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		Result<?, ?> result;
+		while ((result = results.poll()) != null) {
+			discard(result);
+		}
+
+		List<Entry<?, ?>> registered;
+		synchronized (this) {
+			registered = new ArrayList<Entry<?, ?>>(entries.values());
+			for (Entry<?, ?> entry : registered) {
+				unwatch(entry);
+			}
+		}
+		for (Entry<?, ?> entry : registered) {
+			dispose(entry);
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package util.asset;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import util.TextureUtils;
+import util.graphics.GraphicsDevice;
+import util.graphics.LwjglGraphicsDevice;
+import util.texture.DirectBufferPool;
+import util.texture.TextureData;
+import util.texture.TextureDecoder;
+
+/**
+ * Loads a texture from a PNG file, for use with an {@link AssetWatcher}.
+ *
+ * @author Dustin Biser
+ *
+ */
+public class PNGTextureLoader implements AssetLoader<TextureData, Integer> {
+	private final GraphicsDevice device;
+	private final String filename;
+	private final int textureUnit;
+	private final DirectBufferPool pool;
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param filename - path of the PNG file.
+	 * @param textureUnit - texture unit to bind the texture to, such as
+	 *        GL_TEXTURE0.
+	 * @param pool - pool to borrow pixel buffers from while decoding, or null
+	 *        to allocate new buffers.
+	 */
+	public PNGTextureLoader(String filename, int textureUnit, DirectBufferPool pool) {
+		this(LwjglGraphicsDevice.INSTANCE, filename, textureUnit, pool);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param device - device to create the texture with.
+	 * @param filename - path of the PNG file.
+	 * @param textureUnit - texture unit to bind the texture to, such as
+	 *        GL_TEXTURE0.
+	 * @param pool - pool to borrow pixel buffers from while decoding, or null
+	 *        to allocate new buffers.
+	 */
+	public PNGTextureLoader(GraphicsDevice device, String filename, int textureUnit,
+			DirectBufferPool pool) {
+		this.device = device;
+		this.filename = filename;
+		this.textureUnit = textureUnit;
+		this.pool = pool;
+	}
+
+	//--------------------------------------------------------------------------
+	@Override
+	public String getName() {
+		return filename;
+	}
+
+	//--------------------------------------------------------------------------
+	@Override
+	public TextureData read() throws IOException {
+		return TextureDecoder.decodePNG(filename, pool);
+	}
+
+	//--------------------------------------------------------------------------
+	@Override
+	public List<File> getFiles(TextureData data) {
+		return Collections.singletonList(new File(filename));
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the name of the new texture object.
+	 */
+	@Override
+	public Integer install(TextureData data) {
+		try {
+			return TextureUtils.uploadTexture(device, data, textureUnit);
+		}
+		finally {
+			data.release();
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	@Override
+	public void discard(TextureData data) {
+		data.release();
+	}
+
+	//--------------------------------------------------------------------------
+	@Override
+	public void dispose(Integer textureId) {
+		device.deleteTexture(textureId);
+	}
+}
@@ -0,0 +1,139 @@
+package util.asset;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import util.shader.ShaderPreprocessor;
+import util.shader.ShaderProgramCache;
+import util.shader.ShaderSource;
+
+/**
+ * Loads a shader program from a vertex and a fragment shader file, for use
+ * with an {@link AssetWatcher}. The program is reloaded when either file, or
+ * any file they include, changes.
+ * <p>
+ * Programs are taken from a {@link ShaderProgramCache}, so only shaders whose
+ * expanded source changed are compiled on a reload, and a reload that
+ * restores earlier sources may be served from the program binary cache. The
+ * replaced program is evicted from the cache when it is disposed.
+ *
+ * @author Dustin Biser
+ *
+ */
+public class ShaderProgramLoader implements AssetLoader<ShaderSource[], Integer> {
+	private final ShaderProgramCache programCache;
+	private final ShaderPreprocessor preprocessor;
+	private final String vertexFilename;
+	private final String fragmentFilename;
+	private final Map<String, String> defines;
+
+	// Installed program of each cache key. Reloading unchanged sources returns
+	// the same Integer instance, which AssetWatcher then keeps alive.
+	private final Map<String, Integer> installedPrograms = new HashMap<String, Integer>();
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param preprocessor - preprocessor expanding the shader files. Reloads
+	 *        synchronize on it, so it may be shared between loaders.
+	 * @param vertexFilename - path of the vertex shader file.
+	 * @param fragmentFilename - path of the fragment shader file.
+	 */
+	public ShaderProgramLoader(ShaderPreprocessor preprocessor, String vertexFilename,
+			String fragmentFilename) {
+		this(new ShaderProgramCache(), preprocessor, vertexFilename,
+				fragmentFilename, Collections.<String, String>emptyMap());
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param programCache - cache to get programs from. Loaders sharing a
+	 *        cache must load distinct sources, since disposing a program
+	 *        evicts it.
+	 * @param preprocessor - preprocessor expanding the shader files. Reloads
+	 *        synchronize on it, so it may be shared between loaders.
+	 * @param vertexFilename - path of the vertex shader file.
+	 * @param fragmentFilename - path of the fragment shader file.
+	 * @param defines - macros defined in both shaders.
+	 */
+	public ShaderProgramLoader(ShaderProgramCache programCache,
+			ShaderPreprocessor preprocessor, String vertexFilename,
+			String fragmentFilename, Map<String, String> defines) {
+		this.programCache = programCache;
+		this.preprocessor = preprocessor;
+		this.vertexFilename = vertexFilename;
+		this.fragmentFilename = fragmentFilename;
+		this.defines = defines;
+	}
+
+	//--------------------------------------------------------------------------
+	@Override
+	public String getName() {
+		return vertexFilename + " + " + fragmentFilename;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the expanded vertex and fragment shader sources.
+	 */
+	@Override
+	public ShaderSource[] read() {
+		synchronized (preprocessor) {
+			return new ShaderSource[] {
+					preprocessor.process(vertexFilename, defines),
+					preprocessor.process(fragmentFilename, defines)
+			};
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	@Override
+	public List<File> getFiles(ShaderSource[] sources) {
+		List<File> files = new ArrayList<File>();
+		for (ShaderSource source : sources) {
+			files.addAll(source.getFiles());
+		}
+		return files;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the name of the linked program object, owned by the cache.
+	 */
+	@Override
+	public Integer install(ShaderSource[] sources) {
+		String key = ShaderProgramCache.programKey(sources[0], sources[1]);
+		int programId = programCache.getProgram(sources[0], sources[1]);
+
+		Integer installed = installedPrograms.get(key);
+		if (installed == null || installed.intValue() != programId) {
+			installed = programId;
+			installedPrograms.put(key, installed);
+		}
+
+		return installed;
+	}
+
+	//--------------------------------------------------------------------------
+	@Override
+	public void discard(ShaderSource[] sources) {
+	}
+
+	//--------------------------------------------------------------------------
+	@Override
+	public void dispose(Integer programId) {
+		Iterator<Map.Entry<String, Integer>> entries = installedPrograms.entrySet().iterator();
+		while (entries.hasNext()) {
+			Map.Entry<String, Integer> entry = entries.next();
+			if (entry.getValue().equals(programId)) {
+				entries.remove();
+				programCache.evictProgram(entry.getKey());
+				return;
+			}
+		}
+	}
+}
@@ -0,0 +1,124 @@
+package util.culling;
+
+/**
+ * Structure-of-arrays storage for a fixed number of axis aligned bounding
+ * boxes, each given by its minimum and maximum corners.
+ *
+ * @author Dustin Biser
+ *
+ */
+public class AabbBatch {
+	// Minimum corners.
+	public final float[] minX;
+	public final float[] minY;
+	public final float[] minZ;
+
+	// Maximum corners.
+	public final float[] maxX;
+	public final float[] maxY;
+	public final float[] maxZ;
+
+	private final int capacity;
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Constructs a batch of <code>capacity</code> boxes with all corners at
+	 * the origin.
+	 *
+	 * @param capacity - number of boxes held by this batch.
+	 */
+	public AabbBatch(int capacity) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException(
+					"AabbBatch capacity cannot be negative.");
+		}
+		this.capacity = capacity;
+
+		minX = new float[capacity];
+		minY = new float[capacity];
+		minZ = new float[capacity];
+		maxX = new float[capacity];
+		maxY = new float[capacity];
+		maxZ = new float[capacity];
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the number of boxes held by this batch.
+	 */
+	public int capacity() {
+		return capacity;
+	}
+
+	//--------------------------------------------------------------------------
+	public void set(int index, float minX, float minY, float minZ,
+			float maxX, float maxY, float maxZ) {
+		this.minX[index] = minX;
+		this.minY[index] = minY;
+		this.minZ[index] = minZ;
+		this.maxX[index] = maxX;
+		this.maxY[index] = maxY;
+		this.maxZ[index] = maxZ;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Sets the box at <code>index</code> to the smallest box containing
+	 * <code>count</code> points.
+	 *
+	 * @param index
+	 * @param positions - (x, y, z) triples.
+	 * @param offset - index in <code>positions</code> of the first point's x.
+	 * @param count - number of points, at least one.
+	 */
+	public void setFromPoints(int index, float[] positions, int offset, int count) {
+		float x0 = Float.POSITIVE_INFINITY, y0 = x0, z0 = x0;
+		float x1 = Float.NEGATIVE_INFINITY, y1 = x1, z1 = x1;
+		int end = offset + 3 * count;
+		for (int i = offset; i < end; i += 3) {
+			x0 = Math.min(x0, positions[i]);
+			y0 = Math.min(y0, positions[i + 1]);
+			z0 = Math.min(z0, positions[i + 2]);
+			x1 = Math.max(x1, positions[i]);
+			y1 = Math.max(y1, positions[i + 1]);
+			z1 = Math.max(z1, positions[i + 2]);
+		}
+		set(index, x0, y0, z0, x1, y1, z1);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Sets the box at <code>index</code> to the smallest box containing a box
+	 * of <code>source</code> after an affine transform, such as a model to
+	 * world matrix. The box's extents are transformed by the absolute values
+	 * of the matrix, so no corners are computed.
+	 *
+	 * @param index
+	 * @param source - batch holding the box to transform. May be this batch.
+	 * @param sourceIndex
+	 * @param matrices - column major matrices, as in
+	 *        {@link util.math.Matrix4Batch}.
+	 * @param matrixOffset - index in <code>matrices</code> of the matrix's
+	 *        first element.
+	 */
+	public void setTransformed(int index, AabbBatch source, int sourceIndex,
+			float[] matrices, int matrixOffset) {
+		float cx = 0.5f * (source.minX[sourceIndex] + source.maxX[sourceIndex]);
+		float cy = 0.5f * (source.minY[sourceIndex] + source.maxY[sourceIndex]);
+		float cz = 0.5f * (source.minZ[sourceIndex] + source.maxZ[sourceIndex]);
+		float ex = 0.5f * (source.maxX[sourceIndex] - source.minX[sourceIndex]);
+		float ey = 0.5f * (source.maxY[sourceIndex] - source.minY[sourceIndex]);
+		float ez = 0.5f * (source.maxZ[sourceIndex] - source.minZ[sourceIndex]);
+
+		final float[] m = matrices;
+		int o = matrixOffset;
+		float wx = m[o] * cx + m[o + 4] * cy + m[o + 8] * cz + m[o + 12];
+		float wy = m[o + 1] * cx + m[o + 5] * cy + m[o + 9] * cz + m[o + 13];
+		float wz = m[o + 2] * cx + m[o + 6] * cy + m[o + 10] * cz + m[o + 14];
+		float wex = Math.abs(m[o]) * ex + Math.abs(m[o + 4]) * ey + Math.abs(m[o + 8]) * ez;
+		float wey = Math.abs(m[o + 1]) * ex + Math.abs(m[o + 5]) * ey + Math.abs(m[o + 9]) * ez;
+		float wez = Math.abs(m[o + 2]) * ex + Math.abs(m[o + 6]) * ey + Math.abs(m[o + 10]) * ez;
+
+		set(index, wx - wex, wy - wey, wz - wez, wx + wex, wy + wey, wz + wez);
+	}
+}
@@ -0,0 +1,55 @@
+package util.culling;
+
+/**
+ * Structure-of-arrays storage for a fixed number of bounding spheres, each
+ * given by its center and radius.
+ *
+ * @author Dustin Biser
+ *
+ */
+public class BoundingSphereBatch {
+	// Centers.
+	public final float[] x;
+	public final float[] y;
+	public final float[] z;
+
+	public final float[] radius;
+
+	private final int capacity;
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Constructs a batch of <code>capacity</code> spheres of radius zero at
+	 * the origin.
+	 *
+	 * @param capacity - number of spheres held by this batch.
+	 */
+	public BoundingSphereBatch(int capacity) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException(
+					"BoundingSphereBatch capacity cannot be negative.");
+		}
+		this.capacity = capacity;
+
+		x = new float[capacity];
+		y = new float[capacity];
+		z = new float[capacity];
+		radius = new float[capacity];
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the number of spheres held by this batch.
+	 */
+	public int capacity() {
+		return capacity;
+	}
+
+	//--------------------------------------------------------------------------
+	public void set(int index, float x, float y, float z, float radius) {
+		this.x[index] = x;
+		this.y[index] = y;
+		this.z[index] = z;
+		this.radius[index] = radius;
+	}
+}
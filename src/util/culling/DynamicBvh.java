@@ -0,0 +1,1021 @@
+package util.culling;
+
+import static util.RuntimeDefines.DEBUG_MODE;
+
+import java.util.Arrays;
+
+/**
+ * A bounding volume hierarchy over the axis aligned bounding boxes of scene
+ * objects, for culling, picking and overlap queries that scale with the
+ * number of objects found rather than the number in the scene.
+ * <p>
+ * Each leaf holds one object, identified by a non-negative int chosen by the
+ * caller, typically its index in the caller's own arrays. Nodes are stored
+ * in parallel primitive arrays indexed by node, and removed nodes are reused,
+ * so the tree allocates only when it grows.
+ * <p>
+ * The tree is built in one pass with {@link #build(AabbBatch, int)}, which
+ * splits objects top-down using the surface area heuristic (SAH) over
+ * binned centroids. It can then be changed incrementally:
+ * <ul>
+ * <li>{@link #insert(int, float, float, float, float, float, float)} adds an
+ * object as the sibling of the node that least increases the tree's surface
+ * area, and {@link #remove(int)} removes one.
+ * <li>Objects that move every frame have their leaf boxes replaced with
+ * {@link #setBounds(int, float, float, float, float, float, float)}, after
+ * which a single {@link #refit()} recomputes every internal box bottom up.
+ * <li>Every node whose box is recomputed, by a refit, insert or remove, is
+ * also offered a tree rotation, which swaps subtrees one or two levels below
+ * it when that shrinks the surface area of its children. This slows the
+ * decay of a tree of moving objects, though objects that travel far
+ * relative to their neighbors are better served by
+ * {@link #update(int, float, float, float, float, float, float)} or an
+ * occasional rebuild, which {@link #getSahCost()} can be used to schedule.
+ * </ul>
+ * Query results are written to a caller supplied int array. Queries share
+ * traversal state, so a DynamicBvh is queried by one thread at a time.
+ *
+ * @author Dustin Biser
+ *
+ */
+public class DynamicBvh {
+	public static final int NULL_NODE = -1;
+
+	private static final int DEFAULT_CAPACITY = 64;
+
+	// Number of bins centroids are sorted into when searching for a split,
+	// and the depth below which splits are no longer searched for, which
+	// bounds the recursion of builds over degenerate input.
+	private static final int SAH_BINS = 16;
+	private static final int MAX_SAH_DEPTH = 64;
+
+	//-- Nodes.
+	private int nodeCapacity;
+	private float[] minX;
+	private float[] minY;
+	private float[] minZ;
+	private float[] maxX;
+	private float[] maxY;
+	private float[] maxZ;
+	private int[] parent;   // Next free node, for nodes on the free list.
+	private int[] child1;   // NULL_NODE for leaves.
+	private int[] child2;
+	private int[] height;   // 0 for leaves, -1 for free nodes.
+	private int[] nodeObject;
+
+	private int root = NULL_NODE;
+	private int freeList = NULL_NODE;
+	private int nodeCount;
+
+	//-- Objects.
+	private int[] objectLeaf = new int[0];
+	private int objectCount;
+
+	//-- Scratch space for builds, refits and queries.
+	private int[] buildObjects = new int[0];
+	private float[] centroidX = new float[0];
+	private float[] centroidY = new float[0];
+	private float[] centroidZ = new float[0];
+	private final int[] binCounts = new int[SAH_BINS];
+	private final float[] binBounds = new float[6 * SAH_BINS];
+	private final float[] rightAreas = new float[SAH_BINS];
+	private int[] nodeOrder = new int[0];
+	private int[] stack = new int[64];
+	private int[] maskStack = new int[64];
+
+	//--------------------------------------------------------------------------
+	public DynamicBvh() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param capacity - number of nodes to allocate space for. A tree of n
+	 *        objects has 2n - 1 nodes. The tree grows as needed.
+	 */
+	public DynamicBvh(int capacity) {
+		nodeCapacity = 0;
+		minX = minY = minZ = maxX = maxY = maxZ = new float[0];
+		parent = child1 = child2 = height = nodeObject = new int[0];
+		growNodes(Math.max(capacity, 1));
+	}
+
+	//--------------------------------------------------------------------------
+	private void growNodes(int capacity) {
+		int oldCapacity = nodeCapacity;
+		minX = Arrays.copyOf(minX, capacity);
+		minY = Arrays.copyOf(minY, capacity);
+		minZ = Arrays.copyOf(minZ, capacity);
+		maxX = Arrays.copyOf(maxX, capacity);
+		maxY = Arrays.copyOf(maxY, capacity);
+		maxZ = Arrays.copyOf(maxZ, capacity);
+		parent = Arrays.copyOf(parent, capacity);
+		child1 = Arrays.copyOf(child1, capacity);
+		child2 = Arrays.copyOf(child2, capacity);
+		height = Arrays.copyOf(height, capacity);
+		nodeObject = Arrays.copyOf(nodeObject, capacity);
+		nodeCapacity = capacity;
+
+		// Put the new nodes on the free list, in order, so that a build
+		// allocates its nodes contiguously.
+		for (int node = oldCapacity; node < capacity; node++) {
+			parent[node] = node + 1;
+			height[node] = -1;
+		}
+		parent[capacity - 1] = freeList;
+		freeList = oldCapacity;
+	}
+
+	//--------------------------------------------------------------------------
+	private int allocateNode() {
+		if (freeList == NULL_NODE) {
+			growNodes(2 * nodeCapacity);
+		}
+		int node = freeList;
+		freeList = parent[node];
+
+		parent[node] = NULL_NODE;
+		child1[node] = NULL_NODE;
+		child2[node] = NULL_NODE;
+		height[node] = 0;
+		nodeObject[node] = NULL_NODE;
+		nodeCount++;
+		return node;
+	}
+
+	//--------------------------------------------------------------------------
+	private void freeNode(int node) {
+		parent[node] = freeList;
+		height[node] = -1;
+		freeList = node;
+		nodeCount--;
+	}
+
+	//--------------------------------------------------------------------------
+	private void ensureObjectCapacity(int object) {
+		if (object >= objectLeaf.length) {
+			int oldLength = objectLeaf.length;
+			objectLeaf = Arrays.copyOf(objectLeaf, Math.max(2 * oldLength, object + 1));
+			Arrays.fill(objectLeaf, oldLength, objectLeaf.length, NULL_NODE);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Removes every object, keeping the allocated space.
+	 */
+	public void clear() {
+		root = NULL_NODE;
+		nodeCount = 0;
+		objectCount = 0;
+		Arrays.fill(objectLeaf, NULL_NODE);
+
+		for (int node = 0; node < nodeCapacity; node++) {
+			parent[node] = node + 1;
+			height[node] = -1;
+		}
+		parent[nodeCapacity - 1] = NULL_NODE;
+		freeList = 0;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Replaces the contents of the tree with objects 0 through
+	 * <code>count - 1</code>, whose boxes are the first <code>count</code>
+	 * boxes of <code>boxes</code>.
+	 *
+	 * @param boxes
+	 * @param count - number of objects.
+	 */
+	public void build(AabbBatch boxes, int count) {
+		if (count < 0 || count > boxes.capacity()) {
+			throw new IndexOutOfBoundsException("Cannot build from " + count
+					+ " boxes of an AabbBatch with capacity " + boxes.capacity() + ".");
+		}
+
+		if (nodeCapacity < 2 * count) {
+			growNodes(2 * count);
+		}
+		ensureObjectCapacity(count - 1);
+		clear();
+		if (count == 0) {
+			return;
+		}
+
+		if (buildObjects.length < count) {
+			buildObjects = new int[count];
+			centroidX = new float[count];
+			centroidY = new float[count];
+			centroidZ = new float[count];
+		}
+		for (int i = 0; i < count; i++) {
+			buildObjects[i] = i;
+			centroidX[i] = boxes.minX[i] + boxes.maxX[i];
+			centroidY[i] = boxes.minY[i] + boxes.maxY[i];
+			centroidZ[i] = boxes.minZ[i] + boxes.maxZ[i];
+		}
+
+		root = buildRange(boxes, 0, count, 0);
+		objectCount = count;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Builds the subtree over <code>buildObjects[begin, end)</code>.
+	 *
+	 * @return the subtree's root.
+	 */
+	private int buildRange(AabbBatch boxes, int begin, int end, int depth) {
+		int node = allocateNode();
+
+		if (end - begin == 1) {
+			int object = buildObjects[begin];
+			setNodeBounds(node, boxes.minX[object], boxes.minY[object],
+					boxes.minZ[object], boxes.maxX[object], boxes.maxY[object],
+					boxes.maxZ[object]);
+			nodeObject[node] = object;
+			objectLeaf[object] = node;
+			return node;
+		}
+
+		int middle = depth < MAX_SAH_DEPTH ? partitionSah(boxes, begin, end) : -1;
+		if (middle <= begin || middle >= end) {
+			middle = (begin + end) >>> 1;
+		}
+
+		int left = buildRange(boxes, begin, middle, depth + 1);
+		int right = buildRange(boxes, middle, end, depth + 1);
+		child1[node] = left;
+		child2[node] = right;
+		parent[left] = node;
+		parent[right] = node;
+		refitNode(node);
+		return node;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Partitions <code>buildObjects[begin, end)</code> at the binned split of
+	 * least SAH cost, along the axis of greatest centroid extent.
+	 *
+	 * @return the index of the first object of the right partition, or -1 if
+	 *         the centroids are too close together to be binned.
+	 */
+	private int partitionSah(AabbBatch boxes, int begin, int end) {
+		final int[] objects = buildObjects;
+
+		// Pick the axis of greatest centroid extent.
+		float cMinX = Float.MAX_VALUE, cMinY = Float.MAX_VALUE, cMinZ = Float.MAX_VALUE;
+		float cMaxX = -Float.MAX_VALUE, cMaxY = -Float.MAX_VALUE, cMaxZ = -Float.MAX_VALUE;
+		for (int i = begin; i < end; i++) {
+			int object = objects[i];
+			cMinX = Math.min(cMinX, centroidX[object]);
+			cMaxX = Math.max(cMaxX, centroidX[object]);
+			cMinY = Math.min(cMinY, centroidY[object]);
+			cMaxY = Math.max(cMaxY, centroidY[object]);
+			cMinZ = Math.min(cMinZ, centroidZ[object]);
+			cMaxZ = Math.max(cMaxZ, centroidZ[object]);
+		}
+		float[] centroids = centroidX;
+		float cMin = cMinX;
+		float extent = cMaxX - cMinX;
+		if (cMaxY - cMinY > extent) {
+			centroids = centroidY;
+			cMin = cMinY;
+			extent = cMaxY - cMinY;
+		}
+		if (cMaxZ - cMinZ > extent) {
+			centroids = centroidZ;
+			cMin = cMinZ;
+			extent = cMaxZ - cMinZ;
+		}
+		if (!(extent > 0f)) {
+			return -1;
+		}
+
+		// Sort the objects into bins, growing each bin's box.
+		final float binScale = SAH_BINS * (1f - 1e-6f) / extent;
+		final int[] counts = binCounts;
+		final float[] bounds = binBounds;
+		Arrays.fill(counts, 0);
+		for (int bin = 0; bin < SAH_BINS; bin++) {
+			int b = 6 * bin;
+			bounds[b] = bounds[b + 1] = bounds[b + 2] = Float.MAX_VALUE;
+			bounds[b + 3] = bounds[b + 4] = bounds[b + 5] = -Float.MAX_VALUE;
+		}
+		for (int i = begin; i < end; i++) {
+			int object = objects[i];
+			int bin = Math.min(SAH_BINS - 1, (int) ((centroids[object] - cMin) * binScale));
+			int b = 6 * bin;
+			counts[bin]++;
+			bounds[b]     = Math.min(bounds[b],     boxes.minX[object]);
+			bounds[b + 1] = Math.min(bounds[b + 1], boxes.minY[object]);
+			bounds[b + 2] = Math.min(bounds[b + 2], boxes.minZ[object]);
+			bounds[b + 3] = Math.max(bounds[b + 3], boxes.maxX[object]);
+			bounds[b + 4] = Math.max(bounds[b + 4], boxes.maxY[object]);
+			bounds[b + 5] = Math.max(bounds[b + 5], boxes.maxZ[object]);
+		}
+
+		// Sweep from the right, recording the area of bins [bin, SAH_BINS).
+		float x0 = Float.MAX_VALUE, y0 = Float.MAX_VALUE, z0 = Float.MAX_VALUE;
+		float x1 = -Float.MAX_VALUE, y1 = -Float.MAX_VALUE, z1 = -Float.MAX_VALUE;
+		for (int bin = SAH_BINS - 1; bin > 0; bin--) {
+			int b = 6 * bin;
+			x0 = Math.min(x0, bounds[b]);
+			y0 = Math.min(y0, bounds[b + 1]);
+			z0 = Math.min(z0, bounds[b + 2]);
+			x1 = Math.max(x1, bounds[b + 3]);
+			y1 = Math.max(y1, bounds[b + 4]);
+			z1 = Math.max(z1, bounds[b + 5]);
+			rightAreas[bin] = counts[bin] == 0 && x0 > x1 ? 0f : area(x0, y0, z0, x1, y1, z1);
+		}
+
+		// Sweep from the left, costing the split after each bin.
+		int bestSplit = -1;
+		float bestCost = Float.MAX_VALUE;
+		int leftCount = 0;
+		x0 = y0 = z0 = Float.MAX_VALUE;
+		x1 = y1 = z1 = -Float.MAX_VALUE;
+		for (int bin = 0; bin < SAH_BINS - 1; bin++) {
+			int b = 6 * bin;
+			leftCount += counts[bin];
+			x0 = Math.min(x0, bounds[b]);
+			y0 = Math.min(y0, bounds[b + 1]);
+			z0 = Math.min(z0, bounds[b + 2]);
+			x1 = Math.max(x1, bounds[b + 3]);
+			y1 = Math.max(y1, bounds[b + 4]);
+			z1 = Math.max(z1, bounds[b + 5]);
+
+			int rightCount = (end - begin) - leftCount;
+			if (leftCount == 0 || rightCount == 0) {
+				continue;
+			}
+			float cost = leftCount * area(x0, y0, z0, x1, y1, z1)
+					+ rightCount * rightAreas[bin + 1];
+			if (cost < bestCost) {
+				bestCost = cost;
+				bestSplit = bin;
+			}
+		}
+		if (bestSplit < 0) {
+			return -1;
+		}
+
+		// Move the objects of bins [0, bestSplit] to the front.
+		int i = begin;
+		int j = end - 1;
+		while (i <= j) {
+			int object = objects[i];
+			int bin = Math.min(SAH_BINS - 1, (int) ((centroids[object] - cMin) * binScale));
+			if (bin <= bestSplit) {
+				i++;
+			}
+			else {
+				objects[i] = objects[j];
+				objects[j] = object;
+				j--;
+			}
+		}
+		return i;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Adds <code>object</code>, with the given box, to the tree.
+	 *
+	 * @param object - non-negative id of an object not already in the tree.
+	 */
+	public void insert(int object, float minX, float minY, float minZ,
+			float maxX, float maxY, float maxZ) {
+		if (object < 0) {
+			throw new IllegalArgumentException("Object ids cannot be negative.");
+		}
+		ensureObjectCapacity(object);
+		if (objectLeaf[object] != NULL_NODE) {
+			throw new IllegalArgumentException("Object " + object
+					+ " is already in the tree.");
+		}
+
+		int leaf = allocateNode();
+		setNodeBounds(leaf, minX, minY, minZ, maxX, maxY, maxZ);
+		nodeObject[leaf] = object;
+		objectLeaf[object] = leaf;
+		objectCount++;
+
+		insertLeaf(leaf);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Removes <code>object</code> from the tree.
+	 */
+	public void remove(int object) {
+		int leaf = getLeaf(object);
+
+		removeLeaf(leaf);
+		freeNode(leaf);
+		objectLeaf[object] = NULL_NODE;
+		objectCount--;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Moves <code>object</code> to a new box, reinserting it where the box
+	 * now fits best. Suited to objects that move far, or only occasionally.
+	 */
+	public void update(int object, float minX, float minY, float minZ,
+			float maxX, float maxY, float maxZ) {
+		int leaf = getLeaf(object);
+
+		removeLeaf(leaf);
+		setNodeBounds(leaf, minX, minY, minZ, maxX, maxY, maxZ);
+		insertLeaf(leaf);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Replaces the box of <code>object</code> without changing the tree,
+	 * whose internal boxes are stale until the next {@link #refit()}. Suited
+	 * to many objects moving a little each frame.
+	 */
+	public void setBounds(int object, float minX, float minY, float minZ,
+			float maxX, float maxY, float maxZ) {
+		setNodeBounds(getLeaf(object), minX, minY, minZ, maxX, maxY, maxZ);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Recomputes the box of every internal node from its children, children
+	 * before parents, rotating each node when that improves the tree.
+	 */
+	public void refit() {
+		if (root == NULL_NODE) {
+			return;
+		}
+		if (nodeOrder.length < nodeCapacity) {
+			nodeOrder = new int[nodeCapacity];
+		}
+
+		// Breadth first order puts every node after its ancestors.
+		final int[] order = nodeOrder;
+		order[0] = root;
+		int size = 1;
+		for (int i = 0; i < size; i++) {
+			int node = order[i];
+			if (child1[node] != NULL_NODE) {
+				order[size++] = child1[node];
+				order[size++] = child2[node];
+			}
+		}
+
+		for (int i = size - 1; i >= 0; i--) {
+			int node = order[i];
+			if (child1[node] != NULL_NODE) {
+				refitNode(node);
+				rotate(node);
+			}
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private void insertLeaf(int leaf) {
+		if (root == NULL_NODE) {
+			root = leaf;
+			parent[leaf] = NULL_NODE;
+			return;
+		}
+
+		// Descend towards the sibling whose pairing with the leaf adds the
+		// least surface area, counting the growth of every ancestor.
+		float lx0 = minX[leaf], ly0 = minY[leaf], lz0 = minZ[leaf];
+		float lx1 = maxX[leaf], ly1 = maxY[leaf], lz1 = maxZ[leaf];
+		int node = root;
+		while (child1[node] != NULL_NODE) {
+			float nodeArea = area(node);
+			float combinedArea = unionArea(node, lx0, ly0, lz0, lx1, ly1, lz1);
+
+			// Cost of making the leaf and this node siblings, and the growth
+			// of this node if the leaf is placed below it.
+			float cost = 2f * combinedArea;
+			float inheritanceCost = 2f * (combinedArea - nodeArea);
+
+			float cost1 = descendCost(child1[node], lx0, ly0, lz0, lx1, ly1, lz1)
+					+ inheritanceCost;
+			float cost2 = descendCost(child2[node], lx0, ly0, lz0, lx1, ly1, lz1)
+					+ inheritanceCost;
+
+			if (cost < cost1 && cost < cost2) {
+				break;
+			}
+			node = cost1 < cost2 ? child1[node] : child2[node];
+		}
+		int sibling = node;
+
+		// Pair the leaf and the sibling under a new parent.
+		int oldParent = parent[sibling];
+		int newParent = allocateNode();
+		parent[newParent] = oldParent;
+		child1[newParent] = sibling;
+		child2[newParent] = leaf;
+		parent[sibling] = newParent;
+		parent[leaf] = newParent;
+		if (oldParent == NULL_NODE) {
+			root = newParent;
+		}
+		else if (child1[oldParent] == sibling) {
+			child1[oldParent] = newParent;
+		}
+		else {
+			child2[oldParent] = newParent;
+		}
+
+		refitAncestors(newParent);
+	}
+
+	//--------------------------------------------------------------------------
+	private float descendCost(int child, float lx0, float ly0, float lz0,
+			float lx1, float ly1, float lz1) {
+		float combinedArea = unionArea(child, lx0, ly0, lz0, lx1, ly1, lz1);
+		if (child1[child] == NULL_NODE) {
+			return combinedArea;
+		}
+		return combinedArea - area(child);
+	}
+
+	//--------------------------------------------------------------------------
+	private void removeLeaf(int leaf) {
+		if (leaf == root) {
+			root = NULL_NODE;
+			return;
+		}
+
+		int oldParent = parent[leaf];
+		int grandParent = parent[oldParent];
+		int sibling = child1[oldParent] == leaf ? child2[oldParent] : child1[oldParent];
+
+		// Replace the parent with the sibling.
+		parent[sibling] = grandParent;
+		if (grandParent == NULL_NODE) {
+			root = sibling;
+		}
+		else {
+			if (child1[grandParent] == oldParent) {
+				child1[grandParent] = sibling;
+			}
+			else {
+				child2[grandParent] = sibling;
+			}
+			refitAncestors(grandParent);
+		}
+		freeNode(oldParent);
+		parent[leaf] = NULL_NODE;
+	}
+
+	//--------------------------------------------------------------------------
+	private void refitAncestors(int node) {
+		while (node != NULL_NODE) {
+			refitNode(node);
+			rotate(node);
+			node = parent[node];
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Sets the box and height of internal node <code>node</code> from those
+	 * of its children.
+	 */
+	private void refitNode(int node) {
+		int a = child1[node];
+		int b = child2[node];
+		minX[node] = Math.min(minX[a], minX[b]);
+		minY[node] = Math.min(minY[a], minY[b]);
+		minZ[node] = Math.min(minZ[a], minZ[b]);
+		maxX[node] = Math.max(maxX[a], maxX[b]);
+		maxY[node] = Math.max(maxY[a], maxY[b]);
+		maxZ[node] = Math.max(maxZ[a], maxZ[b]);
+		height[node] = 1 + Math.max(height[a], height[b]);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Applies the rotation below internal node <code>node</code> that most
+	 * reduces the surface area of its children, if any does. A rotation swaps
+	 * a child with a grandchild under the other child, or swaps two
+	 * grandchildren under different children. The box of <code>node</code>
+	 * itself is unchanged, since it still holds the same leaves.
+	 */
+	private void rotate(int node) {
+		int left = child1[node];
+		int right = child2[node];
+		boolean leftInternal = child1[left] != NULL_NODE;
+		boolean rightInternal = child1[right] != NULL_NODE;
+		if (!leftInternal && !rightInternal) {
+			return;
+		}
+
+		float leftArea = area(left);
+		float rightArea = area(right);
+		float bestGain = 0f;
+		int swapA = NULL_NODE;
+		int swapB = NULL_NODE;
+
+		if (rightInternal) {
+			// Swap left with one of right's children.
+			float gain = rightArea - unionArea(left, child2[right]);
+			if (gain > bestGain) {
+				bestGain = gain;
+				swapA = left;
+				swapB = child1[right];
+			}
+			gain = rightArea - unionArea(left, child1[right]);
+			if (gain > bestGain) {
+				bestGain = gain;
+				swapA = left;
+				swapB = child2[right];
+			}
+		}
+		if (leftInternal) {
+			// Swap right with one of left's children.
+			float gain = leftArea - unionArea(right, child2[left]);
+			if (gain > bestGain) {
+				bestGain = gain;
+				swapA = right;
+				swapB = child1[left];
+			}
+			gain = leftArea - unionArea(right, child1[left]);
+			if (gain > bestGain) {
+				bestGain = gain;
+				swapA = right;
+				swapB = child2[left];
+			}
+		}
+		if (leftInternal && rightInternal) {
+			// Swap the first of left's children with one of right's. Every
+			// other grandchild swap pairs the grandchildren the same way as
+			// one of these two.
+			int l1 = child1[left], l2 = child2[left];
+			int r1 = child1[right], r2 = child2[right];
+			float gain = leftArea + rightArea - unionArea(r1, l2) - unionArea(l1, r2);
+			if (gain > bestGain) {
+				bestGain = gain;
+				swapA = l1;
+				swapB = r1;
+			}
+			gain = leftArea + rightArea - unionArea(r2, l2) - unionArea(r1, l1);
+			if (gain > bestGain) {
+				bestGain = gain;
+				swapA = l1;
+				swapB = r2;
+			}
+		}
+		if (swapA == NULL_NODE) {
+			return;
+		}
+
+		int parentA = parent[swapA];
+		int parentB = parent[swapB];
+		replaceChild(parentA, swapA, swapB);
+		replaceChild(parentB, swapB, swapA);
+		if (parentA != node) {
+			refitNode(parentA);
+		}
+		refitNode(parentB);
+		height[node] = 1 + Math.max(height[child1[node]], height[child2[node]]);
+	}
+
+	//--------------------------------------------------------------------------
+	private void replaceChild(int node, int oldChild, int newChild) {
+		if (child1[node] == oldChild) {
+			child1[node] = newChild;
+		}
+		else {
+			child2[node] = newChild;
+		}
+		parent[newChild] = node;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Finds the objects whose boxes are at least partly inside
+	 * <code>frustum</code>. Subtrees found to be wholly inside a plane are not
+	 * tested against that plane again, and those wholly inside the frustum
+	 * are not tested at all.
+	 *
+	 * @param frustum
+	 * @param results - destination for the ids of the objects found, with
+	 *        room for {@link #getObjectCount()} of them.
+	 * @return the number of objects found.
+	 */
+	public int queryFrustum(Frustum frustum, int[] results) {
+		if (DEBUG_MODE) { validateResults(results); }
+		if (root == NULL_NODE) {
+			return 0;
+		}
+
+		final float[] planes = frustum.planes;
+		int count = 0;
+		int top = 0;
+		stack[top] = root;
+		maskStack[top++] = (1 << Frustum.PLANE_COUNT) - 1;
+
+		nodes:
+		while (top > 0) {
+			int node = stack[--top];
+			int mask = maskStack[top];
+
+			if (mask != 0) {
+				float cx = 0.5f * (maxX[node] + minX[node]);
+				float cy = 0.5f * (maxY[node] + minY[node]);
+				float cz = 0.5f * (maxZ[node] + minZ[node]);
+				float ex = 0.5f * (maxX[node] - minX[node]);
+				float ey = 0.5f * (maxY[node] - minY[node]);
+				float ez = 0.5f * (maxZ[node] - minZ[node]);
+
+				for (int plane = 0; plane < Frustum.PLANE_COUNT; plane++) {
+					if ((mask & (1 << plane)) == 0) {
+						continue;
+					}
+					int p = 4 * plane;
+					float a = planes[p], b = planes[p + 1], c = planes[p + 2];
+					float distance = a * cx + b * cy + c * cz + planes[p + 3];
+					if (distance + Math.abs(a) * ex + Math.abs(b) * ey
+							+ Math.abs(c) * ez < 0f) {
+						continue nodes;
+					}
+					if (distance - Math.abs(a) * ex - Math.abs(b) * ey
+							- Math.abs(c) * ez >= 0f) {
+						mask &= ~(1 << plane);
+					}
+				}
+			}
+
+			if (child1[node] == NULL_NODE) {
+				results[count++] = nodeObject[node];
+			}
+			else {
+				top = push(top, child1[node], mask);
+				top = push(top, child2[node], mask);
+			}
+		}
+		return count;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Finds the objects whose boxes are hit by the ray from (ox, oy, oz) in
+	 * direction (dx, dy, dz) within <code>maxDistance</code>, measured in
+	 * multiples of the direction's length.
+	 *
+	 * @param results - destination for the ids of the objects found, with
+	 *        room for {@link #getObjectCount()} of them.
+	 * @return the number of objects found.
+	 */
+	public int queryRay(float ox, float oy, float oz, float dx, float dy, float dz,
+			float maxDistance, int[] results) {
+		if (DEBUG_MODE) { validateResults(results); }
+		if (root == NULL_NODE) {
+			return 0;
+		}
+
+		// Division by a zero component gives an infinity, for which the
+		// slab test below still works.
+		final float invX = 1f / dx, invY = 1f / dy, invZ = 1f / dz;
+		int count = 0;
+		int top = 0;
+		stack[top++] = root;
+
+		while (top > 0) {
+			int node = stack[--top];
+
+			float t0 = (minX[node] - ox) * invX, t1 = (maxX[node] - ox) * invX;
+			float tNear = Math.min(t0, t1), tFar = Math.max(t0, t1);
+			t0 = (minY[node] - oy) * invY;
+			t1 = (maxY[node] - oy) * invY;
+			tNear = Math.max(tNear, Math.min(t0, t1));
+			tFar = Math.min(tFar, Math.max(t0, t1));
+			t0 = (minZ[node] - oz) * invZ;
+			t1 = (maxZ[node] - oz) * invZ;
+			tNear = Math.max(tNear, Math.min(t0, t1));
+			tFar = Math.min(tFar, Math.max(t0, t1));
+
+			if (tNear > tFar || tFar < 0f || tNear > maxDistance) {
+				continue;
+			}
+
+			if (child1[node] == NULL_NODE) {
+				results[count++] = nodeObject[node];
+			}
+			else {
+				top = push(top, child1[node], 0);
+				top = push(top, child2[node], 0);
+			}
+		}
+		return count;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Finds the objects whose boxes overlap the given box.
+	 *
+	 * @param results - destination for the ids of the objects found, with
+	 *        room for {@link #getObjectCount()} of them.
+	 * @return the number of objects found.
+	 */
+	public int queryOverlap(float minX, float minY, float minZ,
+			float maxX, float maxY, float maxZ, int[] results) {
+		if (DEBUG_MODE) { validateResults(results); }
+		if (root == NULL_NODE) {
+			return 0;
+		}
+
+		int count = 0;
+		int top = 0;
+		stack[top++] = root;
+
+		while (top > 0) {
+			int node = stack[--top];
+
+			if (this.minX[node] > maxX || this.maxX[node] < minX
+					|| this.minY[node] > maxY || this.maxY[node] < minY
+					|| this.minZ[node] > maxZ || this.maxZ[node] < minZ) {
+				continue;
+			}
+
+			if (child1[node] == NULL_NODE) {
+				results[count++] = nodeObject[node];
+			}
+			else {
+				top = push(top, child1[node], 0);
+				top = push(top, child2[node], 0);
+			}
+		}
+		return count;
+	}
+
+	//--------------------------------------------------------------------------
+	private int push(int top, int node, int mask) {
+		if (top == stack.length) {
+			stack = Arrays.copyOf(stack, 2 * top);
+			maskStack = Arrays.copyOf(maskStack, 2 * top);
+		}
+		stack[top] = node;
+		maskStack[top] = mask;
+		return top + 1;
+	}
+
+	//--------------------------------------------------------------------------
+	private void setNodeBounds(int node, float minX, float minY, float minZ,
+			float maxX, float maxY, float maxZ) {
+		this.minX[node] = minX;
+		this.minY[node] = minY;
+		this.minZ[node] = minZ;
+		this.maxX[node] = maxX;
+		this.maxY[node] = maxY;
+		this.maxZ[node] = maxZ;
+	}
+
+	//--------------------------------------------------------------------------
+	private static float area(float x0, float y0, float z0, float x1, float y1,
+			float z1) {
+		float dx = x1 - x0, dy = y1 - y0, dz = z1 - z0;
+		return 2f * (dx * dy + dy * dz + dz * dx);
+	}
+
+	//--------------------------------------------------------------------------
+	private float area(int node) {
+		return area(minX[node], minY[node], minZ[node],
+				maxX[node], maxY[node], maxZ[node]);
+	}
+
+	//--------------------------------------------------------------------------
+	private float unionArea(int node, float x0, float y0, float z0, float x1,
+			float y1, float z1) {
+		return area(Math.min(minX[node], x0), Math.min(minY[node], y0),
+				Math.min(minZ[node], z0), Math.max(maxX[node], x1),
+				Math.max(maxY[node], y1), Math.max(maxZ[node], z1));
+	}
+
+	//--------------------------------------------------------------------------
+	private float unionArea(int a, int b) {
+		return unionArea(a, minX[b], minY[b], minZ[b], maxX[b], maxY[b], maxZ[b]);
+	}
+
+	//--------------------------------------------------------------------------
+	private int getLeaf(int object) {
+		int leaf = object >= 0 && object < objectLeaf.length ?
+				objectLeaf[object] : NULL_NODE;
+		if (leaf == NULL_NODE) {
+			throw new IllegalArgumentException("Object " + object
+					+ " is not in the tree.");
+		}
+		return leaf;
+	}
+
+	//--------------------------------------------------------------------------
+	private void validateResults(int[] results) {
+		if (results.length < objectCount) {
+			throw new IllegalArgumentException("Result array of length "
+					+ results.length + " cannot hold " + objectCount + " objects.");
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the number of objects in the tree.
+	 */
+	public int getObjectCount() {
+		return objectCount;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the number of leaf and internal nodes in the tree.
+	 */
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the number of edges from the root to the deepest leaf, or -1
+	 *         for an empty tree.
+	 */
+	public int getHeight() {
+		return root == NULL_NODE ? -1 : height[root];
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the SAH cost of the tree: the summed surface area of its
+	 *         internal nodes relative to that of the root. Lower costs mean
+	 *         queries visit fewer nodes.
+	 */
+	public float getSahCost() {
+		if (root == NULL_NODE || child1[root] == NULL_NODE) {
+			return 0f;
+		}
+		double internalArea = 0;
+		for (int node = 0; node < nodeCapacity; node++) {
+			if (height[node] > 0) {
+				internalArea += area(node);
+			}
+		}
+		return (float) (internalArea / area(root));
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Checks the structure of the tree: links between parents and children,
+	 * heights, the mapping from objects to leaves, and that every internal box
+	 * encloses its children's boxes.
+	 *
+	 * @throws IllegalStateException if the tree is corrupt.
+	 */
+	public void validate() {
+		int leafCount = 0;
+		int visited = 0;
+		if (root != NULL_NODE) {
+			check(parent[root] == NULL_NODE, "root has a parent");
+			int top = 0;
+			stack[top++] = root;
+			while (top > 0) {
+				int node = stack[--top];
+				visited++;
+				int a = child1[node];
+				int b = child2[node];
+				if (a == NULL_NODE) {
+					check(b == NULL_NODE && height[node] == 0, "malformed leaf " + node);
+					check(objectLeaf[nodeObject[node]] == node,
+							"object " + nodeObject[node] + " does not map to its leaf");
+					leafCount++;
+					continue;
+				}
+				check(parent[a] == node && parent[b] == node,
+						"children of " + node + " do not link back");
+				check(height[node] == 1 + Math.max(height[a], height[b]),
+						"wrong height at " + node);
+				check(encloses(node, a) && encloses(node, b),
+						"box of " + node + " does not enclose its children");
+				top = push(top, a, 0);
+				top = push(top, b, 0);
+			}
+		}
+		check(leafCount == objectCount, "leaf count differs from object count");
+		check(visited == nodeCount, "unreachable nodes");
+	}
+
+	//--------------------------------------------------------------------------
+	private boolean encloses(int node, int child) {
+		return minX[node] <= minX[child] && minY[node] <= minY[child]
+				&& minZ[node] <= minZ[child] && maxX[node] >= maxX[child]
+				&& maxY[node] >= maxY[child] && maxZ[node] >= maxZ[child];
+	}
+
+	//--------------------------------------------------------------------------
+	private static void check(boolean condition, String message) {
+		if (!condition) {
+			throw new IllegalStateException("DynamicBvh is corrupt: " + message + ".");
+		}
+	}
+}
@@ -0,0 +1,156 @@
+package util.culling;
+
+import org.lwjgl.util.vector.Matrix4f;
+import org.lwjgl.util.vector.Vector4f;
+
+import util.Camera;
+
+/**
+ * The six planes bounding the region of world space visible through a
+ * camera.
+ * <p>
+ * The planes are extracted from a view-projection matrix, as described by
+ * Gribb and Hartmann, so any projection works: those built by
+ * {@link util.GLUtils#createProjectionMatrixFov(float, float, float, float)},
+ * {@link util.GLUtils#createProjectionMatrix(float, float, float, float, float, float)}
+ * or an orthographic one. Each plane is stored as (a, b, c, d) with a unit
+ * normal (a, b, c) pointing into the frustum, so that
+ * <code>a*x + b*y + c*z + d</code> is the signed distance of point (x, y, z)
+ * from the plane, positive on the inside.
+ *
+ * @author Dustin Biser
+ *
+ */
+public class Frustum {
+	public static final int LEFT = 0;
+	public static final int RIGHT = 1;
+	public static final int BOTTOM = 2;
+	public static final int TOP = 3;
+	public static final int NEAR = 4;
+	public static final int FAR = 5;
+	public static final int PLANE_COUNT = 6;
+
+	// (a, b, c, d) of each plane, in the order above.
+	final float[] planes = new float[4 * PLANE_COUNT];
+
+	private final Matrix4f viewMatrix = new Matrix4f();
+	private final Matrix4f viewProjectionMatrix = new Matrix4f();
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Extracts the planes of the frustum seen by <code>camera</code> through
+	 * <code>projectionMatrix</code>.
+	 *
+	 * @param projectionMatrix - camera to clip space transform.
+	 * @param camera
+	 */
+	public void set(Matrix4f projectionMatrix, Camera camera) {
+		camera.getViewMatrix(viewMatrix);
+		set(projectionMatrix, viewMatrix);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Extracts the planes, in world space, of the frustum of
+	 * <code>projectionMatrix * viewMatrix</code>.
+	 *
+	 * @param projectionMatrix - camera to clip space transform.
+	 * @param viewMatrix - world to camera space transform.
+	 */
+	public void set(Matrix4f projectionMatrix, Matrix4f viewMatrix) {
+		Matrix4f.mul(projectionMatrix, viewMatrix, viewProjectionMatrix);
+		set(viewProjectionMatrix);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Extracts the planes of the frustum of <code>viewProjectionMatrix</code>,
+	 * in the space its input is in.
+	 *
+	 * @param viewProjectionMatrix - world to clip space transform.
+	 */
+	public void set(Matrix4f viewProjectionMatrix) {
+		Matrix4f m = viewProjectionMatrix;
+
+		// A point p is inside when -w <= x, y, z <= w for clip coordinates
+		// (x, y, z, w) = M * p, so each plane is row 3 plus or minus another
+		// row of M. Element (row r, column c) of a Matrix4f is mcr.
+		setPlane(LEFT,   m.m03 + m.m00, m.m13 + m.m10, m.m23 + m.m20, m.m33 + m.m30);
+		setPlane(RIGHT,  m.m03 - m.m00, m.m13 - m.m10, m.m23 - m.m20, m.m33 - m.m30);
+		setPlane(BOTTOM, m.m03 + m.m01, m.m13 + m.m11, m.m23 + m.m21, m.m33 + m.m31);
+		setPlane(TOP,    m.m03 - m.m01, m.m13 - m.m11, m.m23 - m.m21, m.m33 - m.m31);
+		setPlane(NEAR,   m.m03 + m.m02, m.m13 + m.m12, m.m23 + m.m22, m.m33 + m.m32);
+		setPlane(FAR,    m.m03 - m.m02, m.m13 - m.m12, m.m23 - m.m22, m.m33 - m.m32);
+	}
+
+	//--------------------------------------------------------------------------
+	private void setPlane(int plane, float a, float b, float c, float d) {
+		float length = (float) Math.sqrt(a * a + b * b + c * c);
+		float s = length > 0f ? 1f / length : 0f;
+
+		int p = 4 * plane;
+		planes[p]     = a * s;
+		planes[p + 1] = b * s;
+		planes[p + 2] = c * s;
+		planes[p + 3] = d * s;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Stores plane <code>plane</code>, one of {@link #LEFT} through
+	 * {@link #FAR}, in <code>dest</code> as (a, b, c, d).
+	 */
+	public void getPlane(int plane, Vector4f dest) {
+		int p = 4 * plane;
+		dest.set(planes[p], planes[p + 1], planes[p + 2], planes[p + 3]);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return true if point (x, y, z) is inside the frustum or on its
+	 *         boundary.
+	 */
+	public boolean containsPoint(float x, float y, float z) {
+		return intersectsSphere(x, y, z, 0f);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return true if the sphere centered at (x, y, z) with radius
+	 *         <code>radius</code> is at least partly inside the frustum.
+	 *         Spheres near a corner of the frustum, outside of it but not
+	 *         wholly outside any one plane, are also reported as
+	 *         intersecting.
+	 */
+	public boolean intersectsSphere(float x, float y, float z, float radius) {
+		final float[] p = planes;
+		for (int i = 0; i < 4 * PLANE_COUNT; i += 4) {
+			if (p[i] * x + p[i + 1] * y + p[i + 2] * z + p[i + 3] < -radius) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return true if the axis aligned box from (minX, minY, minZ) to (maxX,
+	 *         maxY, maxZ) is at least partly inside the frustum, with the same
+	 *         conservative treatment of corners as
+	 *         {@link #intersectsSphere(float, float, float, float)}.
+	 */
+	public boolean intersectsAabb(float minX, float minY, float minZ,
+			float maxX, float maxY, float maxZ) {
+		final float[] p = planes;
+		for (int i = 0; i < 4 * PLANE_COUNT; i += 4) {
+			// Test the corner furthest along the plane's normal.
+			float x = p[i] >= 0f ? maxX : minX;
+			float y = p[i + 1] >= 0f ? maxY : minY;
+			float z = p[i + 2] >= 0f ? maxZ : minZ;
+			if (p[i] * x + p[i + 1] * y + p[i + 2] * z + p[i + 3] < 0f) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
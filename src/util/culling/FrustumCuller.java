@@ -0,0 +1,276 @@
+package util.culling;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import util.Parallel;
+
+import static util.RuntimeDefines.DEBUG_MODE;
+
+/**
+ * Bulk culling of bounding volumes against a {@link Frustum}.
+ * <p>
+ * Each cull tests a range of volumes stored in an {@link AabbBatch} or
+ * {@link BoundingSphereBatch} and writes the indices of those at least partly
+ * inside the frustum, in increasing order, to the front of an int array,
+ * returning how many there are. The inner loops hold the six planes in locals
+ * and compact the visible list without branching on the result of each
+ * test.
+ * <p>
+ * Ranges larger than the parallel threshold are split into chunks of that
+ * many volumes, which are culled across a {@link ForkJoinPool}. Each chunk
+ * writes its visible indices to its own slice of the output, and the slices
+ * are then packed together, so the output order does not depend on how the
+ * work was scheduled. A FrustumCuller runs one cull at a time.
+ *
+ * @author Dustin Biser
+ *
+ */
+public class FrustumCuller {
+	/**
+	 * Default number of volumes below which a range is culled on the calling
+	 * thread, and the size of the chunks larger ranges are split into.
+	 */
+	public static final int DEFAULT_PARALLEL_THRESHOLD = 32768;
+
+	private final ForkJoinPool pool;
+	private final int parallelThreshold;
+
+	// Number of visible volumes found in each chunk of a parallel cull.
+	private int[] chunkCounts = new int[0];
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Constructs a culler using the default threshold and the
+	 * {@link Parallel#getPool() shared pool}.
+	 */
+	public FrustumCuller() {
+		this(DEFAULT_PARALLEL_THRESHOLD, Parallel.getPool());
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param parallelThreshold - number of volumes below which a range is
+	 *        culled on the calling thread.
+	 * @param pool - pool used to cull large ranges in parallel.
+	 */
+	public FrustumCuller(int parallelThreshold, ForkJoinPool pool) {
+		if (parallelThreshold < 1) {
+			throw new IllegalArgumentException(
+					"parallelThreshold must be at least 1.");
+		}
+		this.parallelThreshold = parallelThreshold;
+		this.pool = pool;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Culls <code>count</code> boxes beginning at <code>start</code>.
+	 *
+	 * @param frustum
+	 * @param boxes
+	 * @param start - index of the first box to test.
+	 * @param count - number of boxes to test.
+	 * @param visible - destination for the indices of the visible boxes,
+	 *        with room for at least <code>count</code> of them.
+	 * @return the number of visible boxes, whose indices are stored in
+	 *         increasing order at the front of <code>visible</code>.
+	 */
+	public int cull(Frustum frustum, AabbBatch boxes, int start, int count,
+			int[] visible) {
+		if (DEBUG_MODE) { validateRange(boxes.capacity(), start, count, visible); }
+
+		return cull(frustum.planes, boxes, null, start, count, visible);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Culls <code>count</code> spheres beginning at <code>start</code>.
+	 *
+	 * @param frustum
+	 * @param spheres
+	 * @param start - index of the first sphere to test.
+	 * @param count - number of spheres to test.
+	 * @param visible - destination for the indices of the visible spheres,
+	 *        with room for at least <code>count</code> of them.
+	 * @return the number of visible spheres, whose indices are stored in
+	 *         increasing order at the front of <code>visible</code>.
+	 */
+	public int cull(Frustum frustum, BoundingSphereBatch spheres, int start,
+			int count, int[] visible) {
+		if (DEBUG_MODE) { validateRange(spheres.capacity(), start, count, visible); }
+
+		return cull(frustum.planes, null, spheres, start, count, visible);
+	}
+
+	//--------------------------------------------------------------------------
+	private int cull(float[] planes, AabbBatch boxes, BoundingSphereBatch spheres,
+			int start, int count, int[] visible) {
+		if (count < parallelThreshold) {
+			return cullRange(planes, boxes, spheres, start, start + count, visible, 0);
+		}
+
+		int chunkCount = (count + parallelThreshold - 1) / parallelThreshold;
+		if (chunkCounts.length < chunkCount) {
+			chunkCounts = new int[chunkCount];
+		}
+		pool.invoke(new CullTask(planes, boxes, spheres, start, count, visible,
+				0, chunkCount));
+
+		// Pack the visible indices of each chunk after those of the chunks
+		// before it.
+		int visibleCount = chunkCounts[0];
+		for (int chunk = 1; chunk < chunkCount; chunk++) {
+			System.arraycopy(visible, chunk * parallelThreshold, visible, visibleCount,
+					chunkCounts[chunk]);
+			visibleCount += chunkCounts[chunk];
+		}
+		return visibleCount;
+	}
+
+	//--------------------------------------------------------------------------
+	private static int cullRange(float[] planes, AabbBatch boxes,
+			BoundingSphereBatch spheres, int begin, int end, int[] visible,
+			int visibleOffset) {
+		if (boxes != null) {
+			return cullBoxes(planes, boxes, begin, end, visible, visibleOffset);
+		}
+		else {
+			return cullSpheres(planes, spheres, begin, end, visible, visibleOffset);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private static int cullSpheres(float[] planes, BoundingSphereBatch spheres,
+			int begin, int end, int[] visible, int visibleOffset) {
+		final float a0 = planes[0],  b0 = planes[1],  c0 = planes[2],  d0 = planes[3];
+		final float a1 = planes[4],  b1 = planes[5],  c1 = planes[6],  d1 = planes[7];
+		final float a2 = planes[8],  b2 = planes[9],  c2 = planes[10], d2 = planes[11];
+		final float a3 = planes[12], b3 = planes[13], c3 = planes[14], d3 = planes[15];
+		final float a4 = planes[16], b4 = planes[17], c4 = planes[18], d4 = planes[19];
+		final float a5 = planes[20], b5 = planes[21], c5 = planes[22], d5 = planes[23];
+		final float[] xs = spheres.x, ys = spheres.y, zs = spheres.z;
+		final float[] radii = spheres.radius;
+
+		int n = visibleOffset;
+		for (int i = begin; i < end; i++) {
+			float x = xs[i], y = ys[i], z = zs[i], r = -radii[i];
+
+			// Non short circuit ands, so the loop has no data dependent
+			// branches.
+			boolean inside = (a0 * x + b0 * y + c0 * z + d0 >= r)
+					& (a1 * x + b1 * y + c1 * z + d1 >= r)
+					& (a2 * x + b2 * y + c2 * z + d2 >= r)
+					& (a3 * x + b3 * y + c3 * z + d3 >= r)
+					& (a4 * x + b4 * y + c4 * z + d4 >= r)
+					& (a5 * x + b5 * y + c5 * z + d5 >= r);
+
+			visible[n] = i;
+			n += inside ? 1 : 0;
+		}
+		return n - visibleOffset;
+	}
+
+	//--------------------------------------------------------------------------
+	private static int cullBoxes(float[] planes, AabbBatch boxes,
+			int begin, int end, int[] visible, int visibleOffset) {
+		final float a0 = planes[0],  b0 = planes[1],  c0 = planes[2],  d0 = planes[3];
+		final float a1 = planes[4],  b1 = planes[5],  c1 = planes[6],  d1 = planes[7];
+		final float a2 = planes[8],  b2 = planes[9],  c2 = planes[10], d2 = planes[11];
+		final float a3 = planes[12], b3 = planes[13], c3 = planes[14], d3 = planes[15];
+		final float a4 = planes[16], b4 = planes[17], c4 = planes[18], d4 = planes[19];
+		final float a5 = planes[20], b5 = planes[21], c5 = planes[22], d5 = planes[23];
+		final float[] minXs = boxes.minX, minYs = boxes.minY, minZs = boxes.minZ;
+		final float[] maxXs = boxes.maxX, maxYs = boxes.maxY, maxZs = boxes.maxZ;
+
+		int n = visibleOffset;
+		for (int i = begin; i < end; i++) {
+			// A box is outside a plane when its center is further outside
+			// than the box's extent projected onto the plane's normal.
+			float cx = 0.5f * (maxXs[i] + minXs[i]);
+			float cy = 0.5f * (maxYs[i] + minYs[i]);
+			float cz = 0.5f * (maxZs[i] + minZs[i]);
+			float ex = 0.5f * (maxXs[i] - minXs[i]);
+			float ey = 0.5f * (maxYs[i] - minYs[i]);
+			float ez = 0.5f * (maxZs[i] - minZs[i]);
+
+			boolean inside =
+				(a0 * cx + b0 * cy + c0 * cz + d0
+					+ Math.abs(a0) * ex + Math.abs(b0) * ey + Math.abs(c0) * ez >= 0f)
+				& (a1 * cx + b1 * cy + c1 * cz + d1
+					+ Math.abs(a1) * ex + Math.abs(b1) * ey + Math.abs(c1) * ez >= 0f)
+				& (a2 * cx + b2 * cy + c2 * cz + d2
+					+ Math.abs(a2) * ex + Math.abs(b2) * ey + Math.abs(c2) * ez >= 0f)
+				& (a3 * cx + b3 * cy + c3 * cz + d3
+					+ Math.abs(a3) * ex + Math.abs(b3) * ey + Math.abs(c3) * ez >= 0f)
+				& (a4 * cx + b4 * cy + c4 * cz + d4
+					+ Math.abs(a4) * ex + Math.abs(b4) * ey + Math.abs(c4) * ez >= 0f)
+				& (a5 * cx + b5 * cy + c5 * cz + d5
+					+ Math.abs(a5) * ex + Math.abs(b5) * ey + Math.abs(c5) * ez >= 0f);
+
+			visible[n] = i;
+			n += inside ? 1 : 0;
+		}
+		return n - visibleOffset;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Splits its range of chunks in half until a single chunk remains, which
+	 * it culls into its own slice of the output.
+	 */
+	private class CullTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final float[] planes;
+		private final AabbBatch boxes;
+		private final BoundingSphereBatch spheres;
+		private final int start;
+		private final int count;
+		private final int[] visible;
+		private final int chunkBegin;
+		private final int chunkEnd;
+
+		CullTask(float[] planes, AabbBatch boxes, BoundingSphereBatch spheres,
+				int start, int count, int[] visible, int chunkBegin, int chunkEnd) {
+			this.planes = planes;
+			this.boxes = boxes;
+			this.spheres = spheres;
+			this.start = start;
+			this.count = count;
+			this.visible = visible;
+			this.chunkBegin = chunkBegin;
+			this.chunkEnd = chunkEnd;
+		}
+
+		@Override
+		protected void compute() {
+			if (chunkEnd - chunkBegin == 1) {
+				int offset = chunkBegin * parallelThreshold;
+				int end = Math.min(offset + parallelThreshold, count);
+				chunkCounts[chunkBegin] = cullRange(planes, boxes, spheres,
+						start + offset, start + end, visible, offset);
+				return;
+			}
+
+			int middle = (chunkBegin + chunkEnd) >>> 1;
+			invokeAll(new CullTask(planes, boxes, spheres, start, count, visible,
+							chunkBegin, middle),
+					  new CullTask(planes, boxes, spheres, start, count, visible,
+							middle, chunkEnd));
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private static void validateRange(int capacity, int start, int count,
+			int[] visible) {
+		if (start < 0 || count < 0 || start + count > capacity) {
+			throw new IndexOutOfBoundsException("Range [" + start + ", "
+					+ (start + count) + ") exceeds capacity " + capacity + ".");
+		}
+		if (visible.length < count) {
+			throw new IllegalArgumentException("Visible index array of length "
+					+ visible.length + " cannot hold " + count + " indices.");
+		}
+	}
+}
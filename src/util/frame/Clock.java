@@ -0,0 +1,23 @@
+package util.frame;
+
+/**
+ * Source of time for a {@link GameLoop}. Tests substitute a clock that only
+ * advances when told to, so that loops can be driven deterministically.
+ *
+ * @author Dustin Biser
+ *
+ */
+public interface Clock {
+
+	/**
+	 * @return the current time in nanoseconds, from an arbitrary origin.
+	 */
+	public long nanoTime();
+
+	/**
+	 * Blocks until <code>nanos</code> nanoseconds have passed.
+	 *
+	 * @param nanos - time to wait, in nanoseconds.
+	 */
+	public void sleep(long nanos);
+}
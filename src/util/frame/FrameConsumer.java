@@ -0,0 +1,19 @@
+package util.frame;
+
+/**
+ * Renders frames produced by a {@link FramePipeline}, on the thread calling
+ * {@link FramePipeline#renderFrame(FrameConsumer)}, which owns the GL
+ * context.
+ *
+ * @param <T> - type of the frame snapshots.
+ *
+ * @author Dustin Biser
+ *
+ */
+public interface FrameConsumer<T> {
+
+	/**
+	 * @param frame - snapshot to render. Must be treated as read only.
+	 */
+	public void render(T frame);
+}
@@ -0,0 +1,260 @@
+package util.frame;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Overlaps the simulation of one frame with the rendering of the previous
+ * one. A {@link FrameProducer} runs on the pipeline's own update thread and
+ * writes each frame into a snapshot, which is handed to the render thread
+ * through a {@link TripleBuffer}. While the render thread draws frame N,
+ * the update thread is free to simulate frame N+1, so a frame costs the
+ * longer of the two stages rather than their sum.
+ * <p>
+ * Every simulated frame is rendered exactly once: the update thread waits
+ * before publishing a frame until the render thread has taken the previous
+ * one, which lets it run at most one frame ahead. Neither thread takes a
+ * lock; a waiting thread parks until the other one unparks it.
+ * <p>
+ * The time each stage spends working and waiting is accumulated, so the
+ * overlap achieved can be measured without a display.
+ *
+ * <pre>
+ * FramePipeline&lt;Frame&gt; pipeline = new FramePipeline&lt;Frame&gt;(
+ *         new Frame(), new Frame(), new Frame(), simulation);
+ * pipeline.start();
+ * while (pipeline.renderFrame(renderer)) {
+ *     Display.update();
+ * }
+ * </pre>
+ *
+ * @param <T> - type of the frame snapshots.
+ *
+ * @author Dustin Biser
+ *
+ */
+public class FramePipeline<T> {
+	// Upper bound on a single park, so that a stopped pipeline is noticed
+	// even if a wake up is missed.
+	private static final long PARK_NANOS = 1000000;
+
+	private final TripleBuffer<T> frames;
+	private final FrameProducer<T> producer;
+	private final Thread updateThread;
+	private volatile Thread renderThread;
+	private volatile boolean running;
+	private volatile Throwable updateError;
+
+	//-- Statistics, each written by one thread only.
+	private volatile long updatedFrameCount;
+	private volatile long updateNanos;
+	private volatile long updateWaitNanos;
+	private volatile long renderedFrameCount;
+	private volatile long renderNanos;
+	private volatile long renderWaitNanos;
+	private volatile long startTime;
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param first - first of three distinct snapshots.
+	 * @param second - second snapshot.
+	 * @param third - third snapshot.
+	 * @param producer - simulation writing into the snapshots.
+	 */
+	public FramePipeline(T first, T second, T third, FrameProducer<T> producer) {
+		this.frames = new TripleBuffer<T>(first, second, third);
+		this.producer = producer;
+		this.updateThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				updateLoop();
+			}
+		}, "FramePipeline");
+		this.updateThread.setDaemon(true);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Starts simulating frames on the update thread.
+	 */
+	public void start() {
+		if (running || updateThread.isAlive()) {
+			throw new IllegalStateException("The pipeline has already been started.");
+		}
+		running = true;
+		startTime = System.nanoTime();
+		updateThread.start();
+	}
+
+	//--------------------------------------------------------------------------
+	private void updateLoop() {
+		long frameNumber = 0;
+		try {
+			while (running) {
+				long updateStart = System.nanoTime();
+				producer.update(frames.getWriteBuffer(), frameNumber);
+				long updateEnd = System.nanoTime();
+
+				// Wait for the render thread to take the previous frame, so
+				// that none is dropped.
+				while (running && frames.hasUnconsumedFrame()) {
+					LockSupport.parkNanos(this, PARK_NANOS);
+				}
+				if (!running) {
+					break;
+				}
+				long waitEnd = System.nanoTime();
+
+				// Counted before publishing, so that no frame is rendered
+				// before it is counted as updated.
+				updateNanos += updateEnd - updateStart;
+				updateWaitNanos += waitEnd - updateEnd;
+				updatedFrameCount = ++frameNumber;
+
+				frames.publish();
+				LockSupport.unpark(renderThread);
+			}
+		}
+		catch (Throwable e) {
+			updateError = e;
+			running = false;
+			LockSupport.unpark(renderThread);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Waits for the next simulated frame and renders it. Must always be
+	 * called from the same thread.
+	 *
+	 * @param consumer - renderer drawing the frame.
+	 * @return false if the pipeline was stopped, in which case nothing was
+	 *         rendered.
+	 * @throws IllegalStateException if the pipeline was not started.
+	 * @throws RuntimeException wrapping the exception thrown by the
+	 *         producer, if it failed.
+	 */
+	public boolean renderFrame(FrameConsumer<T> consumer) {
+		if (startTime == 0) {
+			throw new IllegalStateException("The pipeline has not been started.");
+		}
+		// Published before checking for a frame, so that a frame published
+		// meanwhile unparks this thread.
+		renderThread = Thread.currentThread();
+
+		long waitStart = System.nanoTime();
+		while (!frames.acquire()) {
+			if (!running) {
+				// The error is set before running is cleared.
+				if (updateError != null) {
+					throw new RuntimeException("Could not update frame "
+							+ updatedFrameCount + ".", updateError);
+				}
+				return false;
+			}
+			LockSupport.parkNanos(this, PARK_NANOS);
+		}
+		LockSupport.unpark(updateThread);
+		long renderStart = System.nanoTime();
+
+		consumer.render(frames.getReadBuffer());
+		long renderEnd = System.nanoTime();
+
+		renderWaitNanos += renderStart - waitStart;
+		renderNanos += renderEnd - renderStart;
+		renderedFrameCount++;
+		return true;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Stops the update thread, waiting for it to finish the frame it is
+	 * simulating.
+	 */
+	public void stop() {
+		running = false;
+		LockSupport.unpark(updateThread);
+		try {
+			updateThread.join();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the number of frames the update thread has published.
+	 */
+	public long getUpdatedFrameCount() {
+		return updatedFrameCount;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the number of frames rendered.
+	 */
+	public long getRenderedFrameCount() {
+		return renderedFrameCount;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the total time, in nanoseconds, spent in
+	 *         {@link FrameProducer#update(Object, long)}.
+	 */
+	public long getUpdateNanos() {
+		return updateNanos;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the total time, in nanoseconds, the update thread spent waiting
+	 *         for the render thread to take a frame.
+	 */
+	public long getUpdateWaitNanos() {
+		return updateWaitNanos;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the total time, in nanoseconds, spent in
+	 *         {@link FrameConsumer#render(Object)}.
+	 */
+	public long getRenderNanos() {
+		return renderNanos;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the total time, in nanoseconds, the render thread spent waiting
+	 *         for a frame to be simulated.
+	 */
+	public long getRenderWaitNanos() {
+		return renderWaitNanos;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the time, in nanoseconds, since the pipeline was started.
+	 */
+	public long getElapsedNanos() {
+		return System.nanoTime() - startTime;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the fraction of the update and render work that ran
+	 *         concurrently, from 0 when the stages alternate to 1 when the
+	 *         shorter stage is entirely hidden behind the longer one.
+	 */
+	public double getOverlap() {
+		long update = updateNanos;
+		long render = renderNanos;
+		long shorter = Math.min(update, render);
+		if (shorter == 0) {
+			return 0;
+		}
+		long overlapped = update + render - getElapsedNanos();
+		return Math.max(0, Math.min(1, (double) overlapped / shorter));
+	}
+}
@@ -0,0 +1,25 @@
+package util.frame;
+
+/**
+ * Simulates a frame for a {@link FramePipeline}, on the pipeline's update
+ * thread. Must not touch GL state.
+ *
+ * @param <T> - type of the frame snapshots.
+ *
+ * @author Dustin Biser
+ *
+ */
+public interface FrameProducer<T> {
+
+	/**
+	 * Advances the simulation by one frame and writes everything needed to
+	 * render it into <code>frame</code>. The snapshot may hold the contents
+	 * of an older frame, which must be overwritten.
+	 *
+	 * @param frame - snapshot to write into.
+	 * @param frameNumber - number of the frame, starting from 0.
+	 * @throws Exception if the frame cannot be produced, which stops the
+	 *         pipeline.
+	 */
+	public void update(T frame, long frameNumber) throws Exception;
+}
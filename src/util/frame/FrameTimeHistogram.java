@@ -0,0 +1,169 @@
+package util.frame;
+
+import java.util.Arrays;
+
+/**
+ * Histogram of frame times in nanoseconds, with a bounded relative error at
+ * every magnitude, in the manner of HdrHistogram. Values are counted in
+ * buckets whose width doubles with each power of two, and each power of two
+ * is split into {@link #SUB_BUCKET_COUNT} linear sub-buckets, so that any
+ * recorded value is known to within 1/128 of itself. Recording is a few
+ * arithmetic operations and an array increment, cheap enough to do every
+ * frame, and percentiles such as p99.9 remain exact to that precision no
+ * matter how many frames are recorded.
+ *
+ * @author Dustin Biser
+ *
+ */
+public class FrameTimeHistogram {
+	private static final int SUB_BUCKET_BITS = 7;
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+	// One group of sub-buckets for values below SUB_BUCKET_COUNT, and one
+	// for each power of two above it, up to Long.MAX_VALUE.
+	private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+	private final long[] counts = new long[BUCKET_COUNT];
+	private long totalCount;
+	private long sum;
+	private long min = Long.MAX_VALUE;
+	private long max;
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param value - a non-negative value, such as a frame time in
+	 *        nanoseconds.
+	 */
+	public void record(long value) {
+		if (value < 0) {
+			throw new IllegalArgumentException("Cannot record a negative value: " + value);
+		}
+		counts[bucketIndex(value)]++;
+		totalCount++;
+		sum += value;
+		min = Math.min(min, value);
+		max = Math.max(max, value);
+	}
+
+	//--------------------------------------------------------------------------
+	private static int bucketIndex(long value) {
+		if (value < SUB_BUCKET_COUNT) {
+			return (int) value;
+		}
+		int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+		return (shift + 1) * SUB_BUCKET_COUNT + (int) (value >>> shift) - SUB_BUCKET_COUNT;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the largest value counted in bucket <code>index</code>.
+	 */
+	private static long highestValueInBucket(int index) {
+		if (index < SUB_BUCKET_COUNT) {
+			return index;
+		}
+		int shift = index / SUB_BUCKET_COUNT - 1;
+		long lowest = (long) (index % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT) << shift;
+		return lowest + (1L << shift) - 1;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param percentile - percentile in [0, 100], such as 99.9.
+	 * @return the smallest value that at least <code>percentile</code>
+	 *         percent of the recorded values are less than or equal to, to
+	 *         within the histogram's precision, or 0 if nothing was recorded.
+	 */
+	public long getValueAtPercentile(double percentile) {
+		if (totalCount == 0) {
+			return 0;
+		}
+		long rank = (long) Math.ceil(percentile / 100.0 * totalCount);
+		rank = Math.max(1, Math.min(totalCount, rank));
+
+		long seen = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				// Never report beyond the exact extremes.
+				return Math.max(min, Math.min(max, highestValueInBucket(i)));
+			}
+		}
+		return max;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the number of values recorded.
+	 */
+	public long getCount() {
+		return totalCount;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the smallest value recorded, or 0 if nothing was recorded.
+	 */
+	public long getMin() {
+		return (totalCount == 0) ? 0 : min;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the largest value recorded.
+	 */
+	public long getMax() {
+		return max;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the mean of the recorded values, or 0 if nothing was recorded.
+	 */
+	public double getMean() {
+		return (totalCount == 0) ? 0 : (double) sum / totalCount;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Adds every value recorded by <code>other</code> to this histogram.
+	 *
+	 * @param other
+	 */
+	public void add(FrameTimeHistogram other) {
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			counts[i] += other.counts[i];
+		}
+		totalCount += other.totalCount;
+		sum += other.sum;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Removes every recorded value.
+	 */
+	public void reset() {
+		Arrays.fill(counts, 0);
+		totalCount = 0;
+		sum = 0;
+		min = Long.MAX_VALUE;
+		max = 0;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return a one line summary of the recorded values in milliseconds,
+	 *         such as <code>"mean 16.67 p50 16.65 p99 17.10 p99.9 33.40 max
+	 *         33.41 ms"</code>.
+	 */
+	public String getSummary() {
+		return String.format("mean %.2f p50 %.2f p99 %.2f p99.9 %.2f max %.2f ms",
+				getMean() / 1e6,
+				getValueAtPercentile(50) / 1e6,
+				getValueAtPercentile(99) / 1e6,
+				getValueAtPercentile(99.9) / 1e6,
+				getMax() / 1e6);
+	}
+}
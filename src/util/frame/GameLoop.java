@@ -0,0 +1,232 @@
+package util.frame;
+
+/**
+ * Main loop advancing a simulation in fixed time steps while rendering at
+ * whatever rate the display allows.
+ * <p>
+ * Each frame, the real time elapsed since the previous frame is added to an
+ * accumulator, and the simulation is stepped while a whole step remains in
+ * it. The remainder, as a fraction of a step, is passed to the renderer as
+ * an interpolation alpha. The simulation therefore behaves the same at any
+ * frame rate, and frames rendered between steps can blend the last two
+ * states. If a frame takes so long that more than
+ * {@link #setMaxStepsPerFrame(int)} steps are due, the excess time is
+ * dropped rather than simulated, so that a slow simulation cannot fall
+ * further and further behind.
+ * <p>
+ * All times are <code>long</code> nanoseconds read from a {@link Clock}, so
+ * precision does not degrade with uptime, and a test clock can drive the
+ * loop without a display. Frame times are recorded in a
+ * {@link FrameTimeHistogram}.
+ *
+ * @author Dustin Biser
+ *
+ */
+public class GameLoop {
+	public static final int DEFAULT_MAX_STEPS_PER_FRAME = 8;
+
+	private final Clock clock;
+	private final long stepNanos;
+	private int maxStepsPerFrame = DEFAULT_MAX_STEPS_PER_FRAME;
+	private long frameLimitNanos;
+	private volatile boolean running;
+
+	private long frameCount;
+	private long stepCount;
+	private long startTime;
+	private long frameStartTime;
+	private long nextFrameTime;
+	private long lastFrameNanos;
+	private long accumulator;
+	private long droppedNanos;
+	private double alpha;
+
+	private final FrameTimeHistogram histogram = new FrameTimeHistogram();
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param clock - source of time.
+	 * @param stepNanos - length of a simulation step, in nanoseconds.
+	 */
+	public GameLoop(Clock clock, long stepNanos) {
+		if (stepNanos <= 0) {
+			throw new IllegalArgumentException("Step length must be positive.");
+		}
+		this.clock = clock;
+		this.stepNanos = stepNanos;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param stepsPerSecond - simulation rate, such as 60.
+	 * @return the length in nanoseconds of a step at that rate.
+	 */
+	public static long stepNanos(int stepsPerSecond) {
+		return 1000000000L / stepsPerSecond;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param maxStepsPerFrame - most steps simulated in one frame, after
+	 *        which the remaining due time is dropped.
+	 */
+	public void setMaxStepsPerFrame(int maxStepsPerFrame) {
+		if (maxStepsPerFrame < 1) {
+			throw new IllegalArgumentException("At least one step per frame is needed.");
+		}
+		this.maxStepsPerFrame = maxStepsPerFrame;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Limits the rate at which frames are rendered, by sleeping at the end
+	 * of each frame until the next one is due.
+	 *
+	 * @param framesPerSecond - highest frame rate, or 0 for no limit.
+	 */
+	public void setFrameRateLimit(int framesPerSecond) {
+		frameLimitNanos = (framesPerSecond > 0) ? 1000000000L / framesPerSecond : 0;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Runs frames until {@link #stop()} is called.
+	 *
+	 * @param listener - simulation and renderer.
+	 */
+	public void run(GameLoopListener listener) {
+		running = true;
+		while (running) {
+			runFrame(listener);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Makes {@link #run(GameLoopListener)} return after the current frame.
+	 */
+	public void stop() {
+		running = false;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Runs the steps due since the previous frame, renders, and then sleeps
+	 * if a frame rate limit is set. The first frame runs one step, so that
+	 * there is a simulated state to render.
+	 *
+	 * @param listener - simulation and renderer.
+	 */
+	public void runFrame(GameLoopListener listener) {
+		long now = clock.nanoTime();
+		if (frameCount == 0) {
+			startTime = now;
+			nextFrameTime = now;
+			lastFrameNanos = 0;
+			accumulator = stepNanos;
+		}
+		else {
+			lastFrameNanos = now - frameStartTime;
+			histogram.record(lastFrameNanos);
+			accumulator += lastFrameNanos;
+		}
+		frameStartTime = now;
+
+		int steps = 0;
+		while (accumulator >= stepNanos) {
+			if (steps == maxStepsPerFrame) {
+				long dropped = accumulator - accumulator % stepNanos;
+				droppedNanos += dropped;
+				accumulator -= dropped;
+				break;
+			}
+			listener.update(stepNanos);
+			accumulator -= stepNanos;
+			stepCount++;
+			steps++;
+		}
+
+		alpha = (double) accumulator / stepNanos;
+		listener.render(alpha);
+		frameCount++;
+
+		if (frameLimitNanos > 0) {
+			nextFrameTime += frameLimitNanos;
+			long remaining = nextFrameTime - clock.nanoTime();
+			if (remaining > 0) {
+				clock.sleep(remaining);
+			}
+			else if (-remaining > frameLimitNanos) {
+				// Too far behind to catch up, so start a new cadence.
+				nextFrameTime -= remaining;
+			}
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the length of a simulation step, in nanoseconds.
+	 */
+	public long getStepNanos() {
+		return stepNanos;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the number of frames run.
+	 */
+	public long getFrameCount() {
+		return frameCount;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the number of simulation steps run.
+	 */
+	public long getStepCount() {
+		return stepCount;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the time, in nanoseconds, from the start of the first frame to
+	 *         the start of the current one.
+	 */
+	public long getElapsedNanos() {
+		return frameStartTime - startTime;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the time, in nanoseconds, between the starts of the previous
+	 *         and current frames, which is 0 during the first frame.
+	 */
+	public long getLastFrameNanos() {
+		return lastFrameNanos;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the total time, in nanoseconds, dropped because more than the
+	 *         maximum number of steps were due in a frame.
+	 */
+	public long getDroppedNanos() {
+		return droppedNanos;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the interpolation alpha passed to the last render.
+	 */
+	public double getAlpha() {
+		return alpha;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the histogram of frame times, which callers may reset.
+	 */
+	public FrameTimeHistogram getFrameTimeHistogram() {
+		return histogram;
+	}
+}
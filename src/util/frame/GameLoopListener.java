@@ -0,0 +1,28 @@
+package util.frame;
+
+/**
+ * Receives the fixed simulation steps and the rendered frames of a
+ * {@link GameLoop}.
+ *
+ * @author Dustin Biser
+ *
+ */
+public interface GameLoopListener {
+
+	/**
+	 * Advances the simulation by one fixed step.
+	 *
+	 * @param stepNanos - length of the step, in nanoseconds.
+	 */
+	public void update(long stepNanos);
+
+	/**
+	 * Renders the current state.
+	 *
+	 * @param alpha - fraction of a step, in [0, 1), by which real time is
+	 *        ahead of the last simulated step. Blending the previous and
+	 *        current states by <code>alpha</code> renders motion smoothly at
+	 *        any frame rate.
+	 */
+	public void render(double alpha);
+}
@@ -0,0 +1,45 @@
+package util.frame;
+
+/**
+ * {@link Clock} reading {@link System#nanoTime()}. Sleeps are accurate to a
+ * fraction of a millisecond: the thread sleeps for all but the last
+ * {@link #SPIN_NANOS} and yields for the rest, as timer resolution on some
+ * platforms is far coarser than a frame limiter needs.
+ *
+ * @author Dustin Biser
+ *
+ */
+public class SystemClock implements Clock {
+	public static final SystemClock INSTANCE = new SystemClock();
+
+	private static final long SPIN_NANOS = 2000000;
+
+	//--------------------------------------------------------------------------
+	private SystemClock() {
+	}
+
+	//--------------------------------------------------------------------------
+	@Override
+	public long nanoTime() {
+		return System.nanoTime();
+	}
+
+	//--------------------------------------------------------------------------
+	@Override
+	public void sleep(long nanos) {
+		long end = System.nanoTime() + nanos;
+		long remaining;
+		while ((remaining = end - System.nanoTime()) > SPIN_NANOS) {
+			try {
+				Thread.sleep((remaining - SPIN_NANOS) / 1000000);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+		while (end - System.nanoTime() > 0) {
+			Thread.yield();
+		}
+	}
+}
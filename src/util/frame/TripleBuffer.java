@@ -0,0 +1,126 @@
+package util.frame;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands objects from one producer thread to one consumer thread without
+ * locks. Of three buffers, the producer owns one to write into, the consumer
+ * owns one to read from, and the third holds the most recently published
+ * buffer. Publishing and acquiring each swap an owned buffer with the middle
+ * one in a single atomic operation, so neither thread ever waits for the
+ * other, and a buffer is only ever touched by one thread at a time.
+ * <p>
+ * The producer receives buffers back in the state the consumer left them,
+ * so it must overwrite everything a frame depends on rather than update the
+ * previous frame in place.
+ *
+ * @param <T> - type of the buffers.
+ *
+ * @author Dustin Biser
+ *
+ */
+public class TripleBuffer<T> {
+	// The middle buffer's index is stored in the low bits of middle, along
+	// with whether it was published since the consumer last acquired.
+	private static final int INDEX_MASK = 3;
+	private static final int FRESH = 4;
+
+	private final Object[] buffers;
+	private final AtomicInteger middle = new AtomicInteger(2);
+
+	// Owned by the producer.
+	private int writeIndex = 0;
+	private volatile long droppedCount;
+
+	// Owned by the consumer.
+	private int readIndex = 1;
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param first - initial write buffer.
+	 * @param second - initial read buffer, returned by
+	 *        {@link #getReadBuffer()} until the first {@link #acquire()}.
+	 * @param third - initial middle buffer.
+	 */
+	public TripleBuffer(T first, T second, T third) {
+		if (first == null || second == null || third == null) {
+			throw new NullPointerException("Buffers must not be null.");
+		}
+		if (first == second || second == third || first == third) {
+			throw new IllegalArgumentException("Buffers must be distinct objects.");
+		}
+		this.buffers = new Object[] {first, second, third};
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Called by the producer.
+	 *
+	 * @return the buffer to write the next frame into.
+	 */
+	@SuppressWarnings("unchecked")
+	public T getWriteBuffer() {
+		return (T) buffers[writeIndex];
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Makes the write buffer the latest frame, and takes the previous middle
+	 * buffer as the new write buffer. If the consumer had not acquired the
+	 * previously published frame, that frame is dropped. Called by the
+	 * producer.
+	 */
+	public void publish() {
+		int previous = middle.getAndSet(writeIndex | FRESH);
+		writeIndex = previous & INDEX_MASK;
+		if ((previous & FRESH) != 0) {
+			droppedCount++;
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Takes the latest published frame as the read buffer, if one was
+	 * published since the last call. Called by the consumer.
+	 *
+	 * @return true if {@link #getReadBuffer()} now returns a new frame.
+	 */
+	public boolean acquire() {
+		if ((middle.get() & FRESH) == 0) {
+			return false;
+		}
+		// Only the producer sets FRESH, so the middle buffer is still fresh.
+		int previous = middle.getAndSet(readIndex);
+		readIndex = previous & INDEX_MASK;
+		return true;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Called by the consumer.
+	 *
+	 * @return the buffer acquired by the last successful {@link #acquire()}.
+	 */
+	@SuppressWarnings("unchecked")
+	public T getReadBuffer() {
+		return (T) buffers[readIndex];
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return true if a frame has been published that the consumer has not
+	 *         yet acquired.
+	 */
+	public boolean hasUnconsumedFrame() {
+		return (middle.get() & FRESH) != 0;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the number of published frames that were replaced before the
+	 *         consumer acquired them.
+	 */
+	public long getDroppedCount() {
+		return droppedCount;
+	}
+}
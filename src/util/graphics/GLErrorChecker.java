@@ -0,0 +1,241 @@
+package util.graphics;
+
+import static util.RuntimeDefines.DEBUG_MODE;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL30;
+
+/**
+ * Checks for GL errors once per frame instead of after every operation.
+ * <p>
+ * Reading the error flag with glGetError waits for the driver to process
+ * every command issued so far, so checking after each operation stalls the
+ * pipeline many times per frame. Instead, code calls {@link #mark(GraphicsDevice,
+ * String)} after operations worth naming, which only records the name, and
+ * the window calls {@link #check(GraphicsDevice)} once per frame. An error
+ * found then is reported along with the operations marked since the last
+ * check, one of which raised it. To pinpoint the exact operation, enable
+ * {@link #setSynchronous(boolean)}, which checks at every mark.
+ * <p>
+ * Errors are counted per error code, passed to the
+ * {@link GLErrorListener} if one is set, and then thrown as a
+ * {@link GLErrorException} unless {@link #setThrowOnError(boolean)} is
+ * disabled. When {@link util.RuntimeDefines#DEBUG_MODE} is false, marks and
+ * checks compile to nothing.
+ * <p>
+ * Must be used from the thread owning the GL context.
+ *
+ * @author Dustin Biser
+ *
+ */
+public class GLErrorChecker {
+	/**
+	 * Checker used by {@link util.GLUtils#checkGLError(GraphicsDevice, String)}
+	 * and the windows.
+	 */
+	public static final GLErrorChecker INSTANCE = new GLErrorChecker();
+
+	private static final int MAX_MARKS = 16;
+
+	// A lost context may report errors forever, so draining is bounded.
+	private static final int MAX_ERRORS_PER_CHECK = 16;
+
+	// Error codes from GL_INVALID_ENUM to GL_INVALID_FRAMEBUFFER_OPERATION are
+	// counted individually, any others together.
+	private static final int FIRST_ERROR = GL11.GL_INVALID_ENUM;
+	private static final int LAST_ERROR = GL30.GL_INVALID_FRAMEBUFFER_OPERATION;
+
+	private final String[] marks = new String[MAX_MARKS];
+	private int markCount;
+
+	private boolean synchronous;
+	private boolean throwOnError = true;
+	private GLErrorListener listener;
+
+	private int checkCount;
+	private int errorCount;
+	private final int[] errorCounts = new int[LAST_ERROR - FIRST_ERROR + 2];
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Records that an operation was issued, so that errors found by the next
+	 * {@link #check(GraphicsDevice)} can be attributed to it.
+	 *
+	 * @param device - device the operation was issued on.
+	 * @param operation - name of the operation.
+	 */
+	public void mark(GraphicsDevice device, String operation) {
+		if (DEBUG_MODE) {
+			marks[markCount % MAX_MARKS] = operation;
+			markCount++;
+			if (synchronous) {
+				check(device);
+			}
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Reads every pending GL error, then forgets the marked operations.
+	 *
+	 * @param device - device to read errors from.
+	 * @return the number of errors found.
+	 * @throws GLErrorException for the first error found, if throwing is
+	 *         enabled.
+	 */
+	public int check(GraphicsDevice device) {
+		if (!DEBUG_MODE) {
+			return 0;
+		}
+
+		checkCount++;
+		int found = 0;
+		int firstError = GL11.GL_NO_ERROR;
+		String context = null;
+		int error;
+		while (found < MAX_ERRORS_PER_CHECK
+				&& (error = device.getError()) != GL11.GL_NO_ERROR) {
+			if (context == null) {
+				context = describeMarks();
+				firstError = error;
+			}
+			found++;
+			errorCount++;
+			errorCounts[countIndex(error)]++;
+			if (listener != null) {
+				listener.onGLError(error, context);
+			}
+		}
+		markCount = 0;
+
+		if (found > 0 && throwOnError) {
+			throw new GLErrorException(firstError, errorName(firstError) + " " + context
+					+ ((found > 1) ? ", and " + (found - 1) + " more errors." : "."));
+		}
+		return found;
+	}
+
+	//--------------------------------------------------------------------------
+	private String describeMarks() {
+		if (markCount == 0) {
+			return "with no operation marked since the last check";
+		}
+		int first = Math.max(0, markCount - MAX_MARKS);
+		StringBuilder description = new StringBuilder("after one of: ");
+		if (first > 0) {
+			description.append(first).append(" earlier operations, ");
+		}
+		for (int i = first; i < markCount; i++) {
+			if (i > first) {
+				description.append(", ");
+			}
+			description.append(marks[i % MAX_MARKS]);
+		}
+		return description.toString();
+	}
+
+	//--------------------------------------------------------------------------
+	private static int countIndex(int error) {
+		if (error >= FIRST_ERROR && error <= LAST_ERROR) {
+			return error - FIRST_ERROR;
+		}
+		return LAST_ERROR - FIRST_ERROR + 1;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param error - GL error code.
+	 * @return the name of the error code, such as "GL_INVALID_OPERATION".
+	 */
+	public static String errorName(int error) {
+		switch (error) {
+		case GL11.GL_NO_ERROR:
+			return "GL_NO_ERROR";
+		case GL11.GL_INVALID_ENUM:
+			return "GL_INVALID_ENUM";
+		case GL11.GL_INVALID_VALUE:
+			return "GL_INVALID_VALUE";
+		case GL11.GL_INVALID_OPERATION:
+			return "GL_INVALID_OPERATION";
+		case GL11.GL_STACK_OVERFLOW:
+			return "GL_STACK_OVERFLOW";
+		case GL11.GL_STACK_UNDERFLOW:
+			return "GL_STACK_UNDERFLOW";
+		case GL11.GL_OUT_OF_MEMORY:
+			return "GL_OUT_OF_MEMORY";
+		case GL30.GL_INVALID_FRAMEBUFFER_OPERATION:
+			return "GL_INVALID_FRAMEBUFFER_OPERATION";
+		default:
+			return "GL error 0x" + Integer.toHexString(error);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param synchronous - whether to check for errors at every mark, which
+	 *        stalls the pipeline but identifies the failing operation.
+	 */
+	public void setSynchronous(boolean synchronous) {
+		this.synchronous = synchronous;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param throwOnError - whether {@link #check(GraphicsDevice)} throws when
+	 *        it finds an error. Defaults to true.
+	 */
+	public void setThrowOnError(boolean throwOnError) {
+		this.throwOnError = throwOnError;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param listener - notified of every error found, or null for none.
+	 */
+	public void setListener(GLErrorListener listener) {
+		this.listener = listener;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the number of times errors were read.
+	 */
+	public int getCheckCount() {
+		return checkCount;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the number of errors found.
+	 */
+	public int getErrorCount() {
+		return errorCount;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param error - GL error code.
+	 * @return the number of errors found with that code.
+	 */
+	public int getErrorCount(int error) {
+		int index = countIndex(error);
+		if (index == errorCounts.length - 1) {
+			// Unknown codes are only counted together.
+			return (error == GL11.GL_NO_ERROR) ? 0 : errorCounts[index];
+		}
+		return errorCounts[index];
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Zeroes the check and error counts, and forgets the marked operations.
+	 */
+	public void resetCounters() {
+		checkCount = 0;
+		errorCount = 0;
+		markCount = 0;
+		for (int i = 0; i < errorCounts.length; i++) {
+			errorCounts[i] = 0;
+		}
+	}
+}
@@ -0,0 +1,32 @@
+package util.graphics;
+
+/**
+ * Thrown by a {@link GLErrorChecker} when GL reports an error. The message
+ * names the error and the operations after which it may have occurred.
+ *
+ * @author Dustin Biser
+ *
+ */
+public class GLErrorException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+
+	private final int error;
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param error - GL error code, such as GL_INVALID_OPERATION.
+	 * @param message
+	 */
+	public GLErrorException(int error, String message) {
+		super(message);
+		this.error = error;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the GL error code.
+	 */
+	public int getError() {
+		return error;
+	}
+}
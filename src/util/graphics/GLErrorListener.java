@@ -0,0 +1,17 @@
+package util.graphics;
+
+/**
+ * Notified by a {@link GLErrorChecker} of each GL error it finds.
+ *
+ * @author Dustin Biser
+ *
+ */
+public interface GLErrorListener {
+
+	/**
+	 * @param error - GL error code, such as GL_INVALID_OPERATION.
+	 * @param context - the operations after which the error may have
+	 *        occurred.
+	 */
+	public void onGLError(int error, String context);
+}
@@ -0,0 +1,224 @@
+package util.graphics;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * The subset of OpenGL used for rendering: buffers, vertex arrays, shaders
+ * and programs, program binaries, uniforms, textures and draw calls.
+ * <p>
+ * Each method corresponds to the GL function of the same name, takes the same
+ * GL enum values, and has the same semantics. Rendering code written against
+ * this interface runs either on a real context, through
+ * {@link LwjglGraphicsDevice}, or without any GPU, through
+ * {@link HeadlessGraphicsDevice}, which counts the calls made so that the CPU
+ * cost of a frame can be measured and tested.
+ *
+ * @author Dustin Biser
+ *
+ */
+public interface GraphicsDevice {
+
+	//-- State.
+	public void enable(int capability);
+
+	public void disable(int capability);
+
+	public void cullFace(int face);
+
+	public void frontFace(int mode);
+
+	public void depthMask(boolean enabled);
+
+	public void depthFunc(int function);
+
+	public void depthRange(double near, double far);
+
+	public void blendFunc(int sourceFactor, int destinationFactor);
+
+	public void polygonMode(int face, int mode);
+
+	public void viewport(int x, int y, int width, int height);
+
+	public void clearColor(float red, float green, float blue, float alpha);
+
+	public void clear(int mask);
+
+	public void pixelStorei(int parameter, int value);
+
+	/**
+	 * @return the oldest unreported error, or GL_NO_ERROR.
+	 */
+	public int getError();
+
+	/**
+	 * @param name - GL_VENDOR, GL_RENDERER or GL_VERSION.
+	 */
+	public String getString(int name);
+
+	//-- Buffers.
+	/**
+	 * @return the name of a new buffer object.
+	 */
+	public int createBuffer();
+
+	public void deleteBuffer(int buffer);
+
+	public void bindBuffer(int target, int buffer);
+
+	public void bufferData(int target, ByteBuffer data, int usage);
+
+	public void bufferData(int target, FloatBuffer data, int usage);
+
+	/**
+	 * Allocates <code>size</code> bytes of uninitialized storage for the
+	 * buffer bound to <code>target</code>.
+	 */
+	public void bufferData(int target, long size, int usage);
+
+	public void bufferSubData(int target, long offset, ByteBuffer data);
+
+	public void bufferSubData(int target, long offset, FloatBuffer data);
+
+	//-- Vertex arrays.
+	/**
+	 * @return the name of a new vertex array object.
+	 */
+	public int createVertexArray();
+
+	public void deleteVertexArray(int vertexArray);
+
+	public void bindVertexArray(int vertexArray);
+
+	public void enableVertexAttribArray(int index);
+
+	public void disableVertexAttribArray(int index);
+
+	public void vertexAttribPointer(int index, int size, int type,
+			boolean normalized, int stride, long offset);
+
+	public void vertexAttribDivisor(int index, int divisor);
+
+	//-- Shaders and programs.
+	/**
+	 * @return the name of a new shader object of the given type.
+	 */
+	public int createShader(int type);
+
+	public void shaderSource(int shader, String source);
+
+	public void compileShader(int shader);
+
+	public int getShaderi(int shader, int parameter);
+
+	public String getShaderInfoLog(int shader, int maxLength);
+
+	public void deleteShader(int shader);
+
+	/**
+	 * @return the name of a new program object.
+	 */
+	public int createProgram();
+
+	public void attachShader(int program, int shader);
+
+	public void bindAttribLocation(int program, int index, String name);
+
+	public void linkProgram(int program);
+
+	public void validateProgram(int program);
+
+	public int getProgrami(int program, int parameter);
+
+	public String getProgramInfoLog(int program, int maxLength);
+
+	public void deleteProgram(int program);
+
+	public void useProgram(int program);
+
+	public int getUniformLocation(int program, String name);
+
+	public int getAttribLocation(int program, String name);
+
+	//-- Program binaries.
+	/**
+	 * Unlike the other methods, this has no GL function of its own.
+	 *
+	 * @return whether the context has OpenGL 4.1 or ARB_get_program_binary.
+	 *         The remaining program binary methods must only be called if it
+	 *         does.
+	 */
+	public boolean supportsProgramBinaries();
+
+	/**
+	 * Sets a program parameter, such as GL_PROGRAM_BINARY_RETRIEVABLE_HINT,
+	 * which must be set before linking for a program's binary to be
+	 * retrieved.
+	 */
+	public void programParameteri(int program, int parameter, int value);
+
+	/**
+	 * Stores the binary of a linked program in <code>binary</code>, from its
+	 * position. The binary's size is given by getProgrami with
+	 * GL_PROGRAM_BINARY_LENGTH.
+	 *
+	 * @param length - receives the number of bytes written.
+	 * @param binaryFormat - receives the driver specific binary format.
+	 */
+	public void getProgramBinary(int program, IntBuffer length,
+			IntBuffer binaryFormat, ByteBuffer binary);
+
+	/**
+	 * Loads a binary returned by {@link #getProgramBinary}, from the
+	 * position to the limit of <code>binary</code>, in place of linking.
+	 * Drivers may reject binaries, leaving GL_LINK_STATUS false.
+	 */
+	public void programBinary(int program, int binaryFormat, ByteBuffer binary);
+
+	//-- Uniforms of the program in use.
+	public void uniform1i(int location, int value);
+
+	public void uniform1f(int location, float value);
+
+	public void uniform2f(int location, float x, float y);
+
+	public void uniform3f(int location, float x, float y, float z);
+
+	public void uniform4f(int location, float x, float y, float z, float w);
+
+	/**
+	 * Sets a mat4 uniform, or an array of them, from the remaining elements of
+	 * <code>matrices</code>.
+	 */
+	public void uniformMatrix4(int location, boolean transpose, FloatBuffer matrices);
+
+	//-- Textures.
+	/**
+	 * @return the name of a new texture object.
+	 */
+	public int createTexture();
+
+	public void deleteTexture(int texture);
+
+	public void activeTexture(int textureUnit);
+
+	public void bindTexture(int target, int texture);
+
+	public void texImage2D(int target, int level, int internalFormat, int width,
+			int height, int format, int type, ByteBuffer pixels);
+
+	public void texParameteri(int target, int parameter, int value);
+
+	public void generateMipmap(int target);
+
+	//-- Draws.
+	public void drawArrays(int mode, int first, int count);
+
+	public void drawArraysInstanced(int mode, int first, int count, int instanceCount);
+
+	public void drawElements(int mode, int count, int type, long offset);
+
+	public void drawElementsInstanced(int mode, int count, int type, long offset,
+			int instanceCount);
+}
@@ -0,0 +1,817 @@
+package util.graphics;
+
+import static util.RuntimeDefines.DEBUG_MODE;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL13;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL41;
+
+/**
+ * A {@link GraphicsDevice} that needs no GPU or GL context. Calls do nothing
+ * besides being counted, and optionally recorded, so that tests and
+ * benchmarks can measure the CPU cost of rendering code and assert how many
+ * calls, draws and uploaded bytes a frame takes.
+ * <p>
+ * Object names are handed out like a driver would, and shaders always
+ * compile. Programs link unless made to fail with
+ * {@link #setLinkFailing(boolean)}. Program binaries are supported unless disabled
+ * with {@link #setProgramBinariesSupported(boolean)}, and always load. When {@link util.RuntimeDefines#DEBUG_MODE} is
+ * set, using an object that was never created or has been deleted, or drawing
+ * without a program or vertex array bound, throws an exception.
+ * <p>
+ * Instances are not thread safe.
+ *
+ * @author Dustin Biser
+ *
+ */
+public class HeadlessGraphicsDevice implements GraphicsDevice {
+
+	/**
+	 * One constant per {@link GraphicsDevice} method, except
+	 * {@link GraphicsDevice#supportsProgramBinaries()}, which is not a GL
+	 * call.
+	 */
+	public enum Command {
+		ENABLE, DISABLE, CULL_FACE, FRONT_FACE, DEPTH_MASK, DEPTH_FUNC,
+		DEPTH_RANGE, BLEND_FUNC, POLYGON_MODE, VIEWPORT, CLEAR_COLOR, CLEAR,
+		PIXEL_STORE, GET_ERROR, GET_STRING,
+		CREATE_BUFFER, DELETE_BUFFER, BIND_BUFFER, BUFFER_DATA, BUFFER_SUB_DATA,
+		CREATE_VERTEX_ARRAY, DELETE_VERTEX_ARRAY, BIND_VERTEX_ARRAY,
+		ENABLE_VERTEX_ATTRIB_ARRAY, DISABLE_VERTEX_ATTRIB_ARRAY,
+		VERTEX_ATTRIB_POINTER, VERTEX_ATTRIB_DIVISOR,
+		CREATE_SHADER, SHADER_SOURCE, COMPILE_SHADER, GET_SHADER, DELETE_SHADER,
+		CREATE_PROGRAM, ATTACH_SHADER, BIND_ATTRIB_LOCATION, LINK_PROGRAM,
+		VALIDATE_PROGRAM, GET_PROGRAM, DELETE_PROGRAM,
+		USE_PROGRAM, GET_UNIFORM_LOCATION, GET_ATTRIB_LOCATION,
+		PROGRAM_PARAMETER, GET_PROGRAM_BINARY, PROGRAM_BINARY,
+		UNIFORM, UNIFORM_MATRIX,
+		CREATE_TEXTURE, DELETE_TEXTURE, ACTIVE_TEXTURE, BIND_TEXTURE,
+		TEX_IMAGE, TEX_PARAMETER, GENERATE_MIPMAP,
+		DRAW_ARRAYS, DRAW_ARRAYS_INSTANCED, DRAW_ELEMENTS, DRAW_ELEMENTS_INSTANCED
+	}
+
+	// Kinds of objects, stored per object name.
+	private static final byte NONE = 0;
+	private static final byte BUFFER = 1;
+	private static final byte VERTEX_ARRAY = 2;
+	private static final byte SHADER = 3;
+	private static final byte PROGRAM = 4;
+	private static final byte TEXTURE = 5;
+	private static final int MAX_TEXTURE_UNITS = 32;
+	private static final String[] KIND_NAMES = {
+		"object", "buffer", "vertex array", "shader", "program", "texture"
+	};
+
+	// The binary returned for every program.
+	private static final int PROGRAM_BINARY_FORMAT = 0x48444c53; // "HDLS"
+	private static final int PROGRAM_BINARY_LENGTH = 4;
+
+	private byte[] kinds = new byte[64];
+	// Element array buffer bound to each vertex array, indexed by name.
+	private int[] elementArrayBuffers = new int[64];
+	private final int[] liveCounts = new int[KIND_NAMES.length];
+	private int nextName = 1;
+
+	private final Map<String, Integer> locations = new HashMap<String, Integer>();
+
+	private int arrayBuffer;
+	private int vertexArray;
+	private int program;
+	private int textureUnit;
+	private final int[] textures = new int[MAX_TEXTURE_UNITS];
+
+	private boolean programBinariesSupported = true;
+	private boolean linkFailing;
+
+	// Error flags set by raiseError(), in the order they were raised.
+	private int[] raisedErrors = new int[4];
+	private int raisedErrorCount;
+
+	private final int[] commandCounts = new int[Command.values().length];
+	private int callCount;
+	private int drawCallCount;
+	private long drawnVertexCount;
+	private long uploadedBytes;
+	private int redundantBindCount;
+
+	private boolean recording;
+	private final List<Command> recordedCommands = new ArrayList<Command>();
+
+	//--------------------------------------------------------------------------
+	private void count(Command command) {
+		commandCounts[command.ordinal()]++;
+		callCount++;
+		if (recording) {
+			recordedCommands.add(command);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private int createObject(byte kind) {
+		int name = nextName++;
+		if (name >= kinds.length) {
+			kinds = Arrays.copyOf(kinds, kinds.length * 2);
+			elementArrayBuffers = Arrays.copyOf(elementArrayBuffers, kinds.length);
+		}
+		kinds[name] = kind;
+		liveCounts[kind]++;
+		return name;
+	}
+
+	//--------------------------------------------------------------------------
+	private void deleteObject(int name, byte kind) {
+		// Deleting name 0 is silently ignored, as in GL.
+		if (name == 0) {
+			return;
+		}
+		if (DEBUG_MODE) { validateObject(name, kind); }
+		if (name < kinds.length && kinds[name] == kind) {
+			kinds[name] = NONE;
+			liveCounts[kind]--;
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private void validateObject(int name, byte kind) {
+		if (name != 0 && (name < 0 || name >= kinds.length || kinds[name] != kind)) {
+			throw new IllegalArgumentException(name + " is not the name of a live "
+					+ KIND_NAMES[kind] + ".");
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private void countDraw(int vertexCount, int instanceCount, boolean indexed) {
+		if (DEBUG_MODE) {
+			if (program == 0) {
+				throw new IllegalStateException("Draw call without a program in use.");
+			}
+			if (vertexArray == 0) {
+				throw new IllegalStateException("Draw call without a vertex array bound.");
+			}
+			if (indexed && elementArrayBuffers[vertexArray] == 0) {
+				throw new IllegalStateException("Indexed draw call without an element array buffer bound.");
+			}
+		}
+		drawCallCount++;
+		drawnVertexCount += (long) vertexCount * instanceCount;
+	}
+
+	//--------------------------------------------------------------------------
+	@Override
+	public void enable(int capability) {
+		count(Command.ENABLE);
+	}
+
+	@Override
+	public void disable(int capability) {
+		count(Command.DISABLE);
+	}
+
+	@Override
+	public void cullFace(int face) {
+		count(Command.CULL_FACE);
+	}
+
+	@Override
+	public void frontFace(int mode) {
+		count(Command.FRONT_FACE);
+	}
+
+	@Override
+	public void depthMask(boolean enabled) {
+		count(Command.DEPTH_MASK);
+	}
+
+	@Override
+	public void depthFunc(int function) {
+		count(Command.DEPTH_FUNC);
+	}
+
+	@Override
+	public void depthRange(double near, double far) {
+		count(Command.DEPTH_RANGE);
+	}
+
+	@Override
+	public void blendFunc(int sourceFactor, int destinationFactor) {
+		count(Command.BLEND_FUNC);
+	}
+
+	@Override
+	public void polygonMode(int face, int mode) {
+		count(Command.POLYGON_MODE);
+	}
+
+	@Override
+	public void viewport(int x, int y, int width, int height) {
+		count(Command.VIEWPORT);
+	}
+
+	@Override
+	public void clearColor(float red, float green, float blue, float alpha) {
+		count(Command.CLEAR_COLOR);
+	}
+
+	@Override
+	public void clear(int mask) {
+		count(Command.CLEAR);
+	}
+
+	@Override
+	public void pixelStorei(int parameter, int value) {
+		count(Command.PIXEL_STORE);
+	}
+
+	@Override
+	public int getError() {
+		count(Command.GET_ERROR);
+		if (raisedErrorCount == 0) {
+			return GL11.GL_NO_ERROR;
+		}
+		int error = raisedErrors[0];
+		raisedErrorCount--;
+		System.arraycopy(raisedErrors, 1, raisedErrors, 0, raisedErrorCount);
+		return error;
+	}
+
+	@Override
+	public String getString(int name) {
+		count(Command.GET_STRING);
+		return "HeadlessGraphicsDevice";
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Sets an error flag, to be returned by a later {@link #getError()}. As
+	 * with GL, each distinct error is held at most once until it is read.
+	 *
+	 * @param error - error code, such as GL_INVALID_OPERATION.
+	 */
+	public void raiseError(int error) {
+		for (int i = 0; i < raisedErrorCount; i++) {
+			if (raisedErrors[i] == error) {
+				return;
+			}
+		}
+		if (raisedErrorCount == raisedErrors.length) {
+			raisedErrors = Arrays.copyOf(raisedErrors, 2 * raisedErrorCount);
+		}
+		raisedErrors[raisedErrorCount++] = error;
+	}
+
+	//--------------------------------------------------------------------------
+	@Override
+	public int createBuffer() {
+		count(Command.CREATE_BUFFER);
+		return createObject(BUFFER);
+	}
+
+	@Override
+	public void deleteBuffer(int buffer) {
+		count(Command.DELETE_BUFFER);
+		deleteObject(buffer, BUFFER);
+		if (arrayBuffer == buffer) {
+			arrayBuffer = 0;
+		}
+		if (elementArrayBuffers[vertexArray] == buffer) {
+			elementArrayBuffers[vertexArray] = 0;
+		}
+	}
+
+	@Override
+	public void bindBuffer(int target, int buffer) {
+		count(Command.BIND_BUFFER);
+		if (DEBUG_MODE) { validateObject(buffer, BUFFER); }
+		if (target == GL15.GL_ARRAY_BUFFER) {
+			if (arrayBuffer == buffer) {
+				redundantBindCount++;
+			}
+			arrayBuffer = buffer;
+		}
+		else if (target == GL15.GL_ELEMENT_ARRAY_BUFFER) {
+			if (elementArrayBuffers[vertexArray] == buffer) {
+				redundantBindCount++;
+			}
+			elementArrayBuffers[vertexArray] = buffer;
+		}
+	}
+
+	@Override
+	public void bufferData(int target, ByteBuffer data, int usage) {
+		count(Command.BUFFER_DATA);
+		uploadedBytes += data.remaining();
+	}
+
+	@Override
+	public void bufferData(int target, FloatBuffer data, int usage) {
+		count(Command.BUFFER_DATA);
+		uploadedBytes += 4L * data.remaining();
+	}
+
+	@Override
+	public void bufferData(int target, long size, int usage) {
+		count(Command.BUFFER_DATA);
+	}
+
+	@Override
+	public void bufferSubData(int target, long offset, ByteBuffer data) {
+		count(Command.BUFFER_SUB_DATA);
+		uploadedBytes += data.remaining();
+	}
+
+	@Override
+	public void bufferSubData(int target, long offset, FloatBuffer data) {
+		count(Command.BUFFER_SUB_DATA);
+		uploadedBytes += 4L * data.remaining();
+	}
+
+	//--------------------------------------------------------------------------
+	@Override
+	public int createVertexArray() {
+		count(Command.CREATE_VERTEX_ARRAY);
+		return createObject(VERTEX_ARRAY);
+	}
+
+	@Override
+	public void deleteVertexArray(int vertexArray) {
+		count(Command.DELETE_VERTEX_ARRAY);
+		deleteObject(vertexArray, VERTEX_ARRAY);
+		if (vertexArray > 0 && vertexArray < elementArrayBuffers.length) {
+			elementArrayBuffers[vertexArray] = 0;
+		}
+		if (this.vertexArray == vertexArray) {
+			this.vertexArray = 0;
+		}
+	}
+
+	@Override
+	public void bindVertexArray(int vertexArray) {
+		count(Command.BIND_VERTEX_ARRAY);
+		if (DEBUG_MODE) { validateObject(vertexArray, VERTEX_ARRAY); }
+		if (this.vertexArray == vertexArray) {
+			redundantBindCount++;
+		}
+		this.vertexArray = vertexArray;
+	}
+
+	@Override
+	public void enableVertexAttribArray(int index) {
+		count(Command.ENABLE_VERTEX_ATTRIB_ARRAY);
+	}
+
+	@Override
+	public void disableVertexAttribArray(int index) {
+		count(Command.DISABLE_VERTEX_ATTRIB_ARRAY);
+	}
+
+	@Override
+	public void vertexAttribPointer(int index, int size, int type,
+			boolean normalized, int stride, long offset) {
+		count(Command.VERTEX_ATTRIB_POINTER);
+	}
+
+	@Override
+	public void vertexAttribDivisor(int index, int divisor) {
+		count(Command.VERTEX_ATTRIB_DIVISOR);
+	}
+
+	//--------------------------------------------------------------------------
+	@Override
+	public int createShader(int type) {
+		count(Command.CREATE_SHADER);
+		return createObject(SHADER);
+	}
+
+	@Override
+	public void shaderSource(int shader, String source) {
+		count(Command.SHADER_SOURCE);
+		if (DEBUG_MODE) { validateObject(shader, SHADER); }
+	}
+
+	@Override
+	public void compileShader(int shader) {
+		count(Command.COMPILE_SHADER);
+		if (DEBUG_MODE) { validateObject(shader, SHADER); }
+	}
+
+	@Override
+	public int getShaderi(int shader, int parameter) {
+		count(Command.GET_SHADER);
+		return (parameter == GL20.GL_COMPILE_STATUS) ? GL11.GL_TRUE : 0;
+	}
+
+	@Override
+	public String getShaderInfoLog(int shader, int maxLength) {
+		count(Command.GET_SHADER);
+		return "";
+	}
+
+	@Override
+	public void deleteShader(int shader) {
+		count(Command.DELETE_SHADER);
+		deleteObject(shader, SHADER);
+	}
+
+	@Override
+	public int createProgram() {
+		count(Command.CREATE_PROGRAM);
+		return createObject(PROGRAM);
+	}
+
+	@Override
+	public void attachShader(int program, int shader) {
+		count(Command.ATTACH_SHADER);
+		if (DEBUG_MODE) {
+			validateObject(program, PROGRAM);
+			validateObject(shader, SHADER);
+		}
+	}
+
+	@Override
+	public void bindAttribLocation(int program, int index, String name) {
+		count(Command.BIND_ATTRIB_LOCATION);
+		if (DEBUG_MODE) { validateObject(program, PROGRAM); }
+	}
+
+	@Override
+	public void linkProgram(int program) {
+		count(Command.LINK_PROGRAM);
+		if (DEBUG_MODE) { validateObject(program, PROGRAM); }
+	}
+
+	@Override
+	public void validateProgram(int program) {
+		count(Command.VALIDATE_PROGRAM);
+		if (DEBUG_MODE) { validateObject(program, PROGRAM); }
+	}
+
+	@Override
+	public int getProgrami(int program, int parameter) {
+		count(Command.GET_PROGRAM);
+		if (parameter == GL41.GL_PROGRAM_BINARY_LENGTH) {
+			return PROGRAM_BINARY_LENGTH;
+		}
+		if (parameter == GL20.GL_LINK_STATUS) {
+			return linkFailing ? GL11.GL_FALSE : GL11.GL_TRUE;
+		}
+		return (parameter == GL20.GL_VALIDATE_STATUS) ? GL11.GL_TRUE : 0;
+	}
+
+	@Override
+	public String getProgramInfoLog(int program, int maxLength) {
+		count(Command.GET_PROGRAM);
+		return "";
+	}
+
+	@Override
+	public void deleteProgram(int program) {
+		count(Command.DELETE_PROGRAM);
+		deleteObject(program, PROGRAM);
+		if (this.program == program) {
+			this.program = 0;
+		}
+	}
+
+	@Override
+	public void useProgram(int program) {
+		count(Command.USE_PROGRAM);
+		if (DEBUG_MODE) { validateObject(program, PROGRAM); }
+		if (this.program == program) {
+			redundantBindCount++;
+		}
+		this.program = program;
+	}
+
+	@Override
+	public int getUniformLocation(int program, String name) {
+		count(Command.GET_UNIFORM_LOCATION);
+		return getLocation(program, name);
+	}
+
+	@Override
+	public int getAttribLocation(int program, String name) {
+		count(Command.GET_ATTRIB_LOCATION);
+		return getLocation(program, name);
+	}
+
+	//--------------------------------------------------------------------------
+	@Override
+	public boolean supportsProgramBinaries() {
+		return programBinariesSupported;
+	}
+
+	@Override
+	public void programParameteri(int program, int parameter, int value) {
+		count(Command.PROGRAM_PARAMETER);
+		if (DEBUG_MODE) { validateProgramBinaryCall(program); }
+	}
+
+	@Override
+	public void getProgramBinary(int program, IntBuffer length,
+			IntBuffer binaryFormat, ByteBuffer binary) {
+		count(Command.GET_PROGRAM_BINARY);
+		if (DEBUG_MODE) { validateProgramBinaryCall(program); }
+		binary.putInt(binary.position(), PROGRAM_BINARY_FORMAT);
+		length.put(length.position(), PROGRAM_BINARY_LENGTH);
+		binaryFormat.put(binaryFormat.position(), PROGRAM_BINARY_FORMAT);
+	}
+
+	@Override
+	public void programBinary(int program, int binaryFormat, ByteBuffer binary) {
+		count(Command.PROGRAM_BINARY);
+		if (DEBUG_MODE) {
+			validateProgramBinaryCall(program);
+			if (binaryFormat != PROGRAM_BINARY_FORMAT
+					|| binary.remaining() != PROGRAM_BINARY_LENGTH) {
+				throw new IllegalArgumentException("Not a binary returned by getProgramBinary.");
+			}
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private void validateProgramBinaryCall(int program) {
+		if (!programBinariesSupported) {
+			throw new IllegalStateException("Program binaries are not supported.");
+		}
+		validateObject(program, PROGRAM);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param supported - whether {@link #supportsProgramBinaries()} returns
+	 *        true, as when emulating a context without OpenGL 4.1.
+	 */
+	public void setProgramBinariesSupported(boolean supported) {
+		this.programBinariesSupported = supported;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param failing - whether GL_LINK_STATUS reports that every program
+	 *        failed to link.
+	 */
+	public void setLinkFailing(boolean failing) {
+		this.linkFailing = failing;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Hands out one location per distinct name, the same in every program.
+	 */
+	private int getLocation(int program, String name) {
+		if (DEBUG_MODE) { validateObject(program, PROGRAM); }
+		Integer location = locations.get(name);
+		if (location == null) {
+			location = locations.size();
+			locations.put(name, location);
+		}
+		return location;
+	}
+
+	//--------------------------------------------------------------------------
+	@Override
+	public void uniform1i(int location, int value) {
+		count(Command.UNIFORM);
+	}
+
+	@Override
+	public void uniform1f(int location, float value) {
+		count(Command.UNIFORM);
+	}
+
+	@Override
+	public void uniform2f(int location, float x, float y) {
+		count(Command.UNIFORM);
+	}
+
+	@Override
+	public void uniform3f(int location, float x, float y, float z) {
+		count(Command.UNIFORM);
+	}
+
+	@Override
+	public void uniform4f(int location, float x, float y, float z, float w) {
+		count(Command.UNIFORM);
+	}
+
+	@Override
+	public void uniformMatrix4(int location, boolean transpose, FloatBuffer matrices) {
+		count(Command.UNIFORM_MATRIX);
+		if (DEBUG_MODE && matrices.remaining() % 16 != 0) {
+			throw new IllegalArgumentException("Matrix data must be a multiple of 16 floats.");
+		}
+		uploadedBytes += 4L * matrices.remaining();
+	}
+
+	//--------------------------------------------------------------------------
+	@Override
+	public int createTexture() {
+		count(Command.CREATE_TEXTURE);
+		return createObject(TEXTURE);
+	}
+
+	@Override
+	public void deleteTexture(int texture) {
+		count(Command.DELETE_TEXTURE);
+		deleteObject(texture, TEXTURE);
+		for (int i = 0; i < textures.length; i++) {
+			if (textures[i] == texture) {
+				textures[i] = 0;
+			}
+		}
+	}
+
+	@Override
+	public void activeTexture(int textureUnit) {
+		count(Command.ACTIVE_TEXTURE);
+		int unit = textureUnit - GL13.GL_TEXTURE0;
+		if (DEBUG_MODE && (unit < 0 || unit >= MAX_TEXTURE_UNITS)) {
+			throw new IllegalArgumentException("Invalid texture unit " + textureUnit + ".");
+		}
+		this.textureUnit = unit;
+	}
+
+	@Override
+	public void bindTexture(int target, int texture) {
+		count(Command.BIND_TEXTURE);
+		if (DEBUG_MODE) { validateObject(texture, TEXTURE); }
+		if (textures[textureUnit] == texture) {
+			redundantBindCount++;
+		}
+		textures[textureUnit] = texture;
+	}
+
+	@Override
+	public void texImage2D(int target, int level, int internalFormat, int width,
+			int height, int format, int type, ByteBuffer pixels) {
+		count(Command.TEX_IMAGE);
+		if (pixels != null) {
+			uploadedBytes += pixels.remaining();
+		}
+	}
+
+	@Override
+	public void texParameteri(int target, int parameter, int value) {
+		count(Command.TEX_PARAMETER);
+	}
+
+	@Override
+	public void generateMipmap(int target) {
+		count(Command.GENERATE_MIPMAP);
+	}
+
+	//--------------------------------------------------------------------------
+	@Override
+	public void drawArrays(int mode, int first, int count) {
+		count(Command.DRAW_ARRAYS);
+		countDraw(count, 1, false);
+	}
+
+	@Override
+	public void drawArraysInstanced(int mode, int first, int count, int instanceCount) {
+		count(Command.DRAW_ARRAYS_INSTANCED);
+		countDraw(count, instanceCount, false);
+	}
+
+	@Override
+	public void drawElements(int mode, int count, int type, long offset) {
+		count(Command.DRAW_ELEMENTS);
+		countDraw(count, 1, true);
+	}
+
+	@Override
+	public void drawElementsInstanced(int mode, int count, int type, long offset,
+			int instanceCount) {
+		count(Command.DRAW_ELEMENTS_INSTANCED);
+		countDraw(count, instanceCount, true);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the total number of calls made since the counters were reset.
+	 */
+	public int getCallCount() {
+		return callCount;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the number of calls to the method corresponding to
+	 *         <code>command</code> since the counters were reset.
+	 */
+	public int getCallCount(Command command) {
+		return commandCounts[command.ordinal()];
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the number of draw calls, of any kind, since the counters were
+	 *         reset.
+	 */
+	public int getDrawCallCount() {
+		return drawCallCount;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the number of vertices drawn, counting indices for indexed draws
+	 *         and every instance of instanced draws, since the counters were
+	 *         reset.
+	 */
+	public long getDrawnVertexCount() {
+		return drawnVertexCount;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the number of bytes of buffer, texture and matrix uniform data
+	 *         passed to the device since the counters were reset.
+	 */
+	public long getUploadedBytes() {
+		return uploadedBytes;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the number of buffer, vertex array, program and texture binds
+	 *         that bound the object already bound, since the counters were
+	 *         reset.
+	 */
+	public int getRedundantBindCount() {
+		return redundantBindCount;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the number of objects of every kind created and not yet
+	 *         deleted.
+	 */
+	public int getLiveObjectCount() {
+		int count = 0;
+		for (int liveCount : liveCounts) {
+			count += liveCount;
+		}
+		return count;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the program in use, or 0 if none is.
+	 */
+	public int getCurrentProgram() {
+		return program;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the bound vertex array, or 0 if none is.
+	 */
+	public int getCurrentVertexArray() {
+		return vertexArray;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Zeroes every counter and clears the recorded commands, typically at the
+	 * start of a frame. Objects and bindings are unaffected.
+	 */
+	public void resetCounters() {
+		Arrays.fill(commandCounts, 0);
+		callCount = 0;
+		drawCallCount = 0;
+		drawnVertexCount = 0;
+		uploadedBytes = 0;
+		redundantBindCount = 0;
+		recordedCommands.clear();
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param recording - whether to record each call, in order, in addition to
+	 *        counting it.
+	 */
+	public void setRecording(boolean recording) {
+		this.recording = recording;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the commands recorded since recording started or the counters
+	 *         were reset.
+	 */
+	public List<Command> getRecordedCommands() {
+		return Collections.unmodifiableList(recordedCommands);
+	}
+}
@@ -0,0 +1,426 @@
+package util.graphics;
+
+import static org.lwjgl.opengl.GL11.GL_FLOAT;
+import static org.lwjgl.opengl.GL15.GL_ARRAY_BUFFER;
+import static org.lwjgl.opengl.GL15.GL_STREAM_DRAW;
+import static util.RuntimeDefines.DEBUG_MODE;
+
+import java.nio.FloatBuffer;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.util.vector.Matrix4f;
+
+import util.math.Matrix4Batch;
+import util.math.Quaternion;
+import util.math.QuaternionBatch;
+
+/**
+ * Streams per-instance data to a GL buffer object each frame, so that N
+ * instances of a mesh are drawn with a single instanced draw call instead of
+ * N draws with a uniform upload each.
+ * <p>
+ * Instances are packed, in one of two {@link Layout}s, into a float array
+ * that is reused from frame to frame, then uploaded with
+ * {@link #upload()}, which orphans the buffer's storage before writing so
+ * that the driver need not wait for draws still reading last frame's data.
+ * Packing and uploading allocate nothing once the arrays have grown to the
+ * frame's instance count.
+ * <p>
+ * {@link #bindAttributes(int)} connects the buffer to consecutive vertex
+ * attribute locations of the bound vertex array, with a divisor of 1 so that
+ * each attribute advances once per instance. With {@link Layout#MATRIX} a
+ * vertex shader declares, for example:
+ *
+ * <pre>
+ * layout(location = 2) in mat4 modelToWorldMatrix;
+ * </pre>
+ *
+ * Typical use, once per frame:
+ *
+ * <pre>
+ * instances.clear();
+ * instances.addMatrices(modelMatrices, 0, objectCount);
+ * instances.upload();
+ * device.bindVertexArray(vertexArray);
+ * instances.drawElements(GL_TRIANGLES, indexCount, GL_UNSIGNED_SHORT, 0);
+ * </pre>
+ *
+ * or, through a {@link RenderQueue}, by adding a packet whose instance count
+ * is {@link #size()}.
+ *
+ * @author Dustin Biser
+ *
+ */
+public class InstanceBuffer {
+
+	/**
+	 * Per-instance data formats.
+	 */
+	public enum Layout {
+		/**
+		 * A column major model matrix, as four vec4 attributes, one per
+		 * column.
+		 */
+		MATRIX(4, 4, 4, 4),
+
+		/**
+		 * A vec3 translation, a vec4 rotation quaternion (x, y, z, w) and a
+		 * vec3 scale, as three attributes. Less than two thirds the size of
+		 * MATRIX, at the cost of building the matrix in the vertex shader.
+		 */
+		TRS(3, 4, 3);
+
+		private final int[] attributeSizes;
+		private final int floatsPerInstance;
+
+		private Layout(int... attributeSizes) {
+			this.attributeSizes = attributeSizes;
+			int floats = 0;
+			for (int size : attributeSizes) {
+				floats += size;
+			}
+			this.floatsPerInstance = floats;
+		}
+
+		/**
+		 * @return the number of vertex attribute locations used.
+		 */
+		public int getAttributeCount() {
+			return attributeSizes.length;
+		}
+
+		/**
+		 * @return the number of floats stored per instance.
+		 */
+		public int getFloatsPerInstance() {
+			return floatsPerInstance;
+		}
+	}
+
+	private static final int BYTES_PER_FLOAT = 4;
+	private static final int DEFAULT_CAPACITY = 256;
+
+	private final GraphicsDevice device;
+	private final Layout layout;
+	private final int stride;
+	private int bufferId;
+
+	private int size;
+	private int capacity;
+	private float[] data;
+	private FloatBuffer uploadBuffer;
+
+	//--------------------------------------------------------------------------
+	public InstanceBuffer(GraphicsDevice device, Layout layout) {
+		this(device, layout, DEFAULT_CAPACITY);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Creates the buffer object.
+	 *
+	 * @param device - device to create, upload and draw with.
+	 * @param layout - format of the per-instance data.
+	 * @param capacity - number of instances to allocate space for. The buffer
+	 *        grows as needed.
+	 */
+	public InstanceBuffer(GraphicsDevice device, Layout layout, int capacity) {
+		this.device = device;
+		this.layout = layout;
+		this.stride = layout.floatsPerInstance * BYTES_PER_FLOAT;
+		this.bufferId = device.createBuffer();
+		allocate(Math.max(capacity, 1));
+	}
+
+	//--------------------------------------------------------------------------
+	private void allocate(int capacity) {
+		float[] newData = new float[capacity * layout.floatsPerInstance];
+		if (data != null) {
+			System.arraycopy(data, 0, newData, 0, size * layout.floatsPerInstance);
+		}
+		this.data = newData;
+		this.uploadBuffer = BufferUtils.createFloatBuffer(newData.length);
+		this.capacity = capacity;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Reserves space for <code>count</code> more instances.
+	 *
+	 * @return the index in the packed data of the first reserved float.
+	 */
+	private int reserve(int count) {
+		if (size + count > capacity) {
+			allocate(Math.max(2 * capacity, size + count));
+		}
+		int offset = size * layout.floatsPerInstance;
+		size += count;
+		return offset;
+	}
+
+	//--------------------------------------------------------------------------
+	private void checkLayout(Layout expected) {
+		if (layout != expected) {
+			throw new IllegalStateException("InstanceBuffer has layout " + layout
+					+ ", not " + expected + ".");
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Removes every instance, keeping the allocated space.
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Appends an instance with model matrix <code>modelMatrix</code>. The
+	 * layout must be {@link Layout#MATRIX}.
+	 */
+	public void addMatrix(Matrix4f modelMatrix) {
+		if (DEBUG_MODE) { checkLayout(Layout.MATRIX); }
+
+		int d = reserve(1);
+		data[d]      = modelMatrix.m00;
+		data[d + 1]  = modelMatrix.m01;
+		data[d + 2]  = modelMatrix.m02;
+		data[d + 3]  = modelMatrix.m03;
+		data[d + 4]  = modelMatrix.m10;
+		data[d + 5]  = modelMatrix.m11;
+		data[d + 6]  = modelMatrix.m12;
+		data[d + 7]  = modelMatrix.m13;
+		data[d + 8]  = modelMatrix.m20;
+		data[d + 9]  = modelMatrix.m21;
+		data[d + 10] = modelMatrix.m22;
+		data[d + 11] = modelMatrix.m23;
+		data[d + 12] = modelMatrix.m30;
+		data[d + 13] = modelMatrix.m31;
+		data[d + 14] = modelMatrix.m32;
+		data[d + 15] = modelMatrix.m33;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Appends <code>count</code> instances whose model matrices are those of
+	 * <code>matrices</code> beginning at <code>start</code>. The layout must
+	 * be {@link Layout#MATRIX}.
+	 *
+	 * @param matrices
+	 * @param start - index of the first matrix.
+	 * @param count - number of instances.
+	 */
+	public void addMatrices(Matrix4Batch matrices, int start, int count) {
+		if (DEBUG_MODE) { checkLayout(Layout.MATRIX); }
+
+		int d = reserve(count);
+		System.arraycopy(matrices.m, Matrix4Batch.FLOATS_PER_MATRIX * start, data, d,
+				Matrix4Batch.FLOATS_PER_MATRIX * count);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Appends an instance translated by (tx, ty, tz), rotated by
+	 * <code>rotation</code> and scaled by (sx, sy, sz). The layout must be
+	 * {@link Layout#TRS}.
+	 */
+	public void addTRS(float tx, float ty, float tz, Quaternion rotation,
+			float sx, float sy, float sz) {
+		if (DEBUG_MODE) { checkLayout(Layout.TRS); }
+
+		int d = reserve(1);
+		data[d]     = tx;
+		data[d + 1] = ty;
+		data[d + 2] = tz;
+		data[d + 3] = rotation.x;
+		data[d + 4] = rotation.y;
+		data[d + 5] = rotation.z;
+		data[d + 6] = rotation.w;
+		data[d + 7] = sx;
+		data[d + 8] = sy;
+		data[d + 9] = sz;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Appends <code>count</code> instances, interleaving translations,
+	 * rotations and scales stored in separate arrays. The layout must be
+	 * {@link Layout#TRS}.
+	 *
+	 * @param translations - (x, y, z) translation triples.
+	 * @param translationOffset - index in <code>translations</code> of the
+	 *        first triple.
+	 * @param rotations - rotations.
+	 * @param rotStart - index of the first rotation.
+	 * @param scales - scale triples, or null for a scale of 1.
+	 * @param scaleOffset - index in <code>scales</code> of the first triple.
+	 * @param count - number of instances.
+	 */
+	public void addTRS(float[] translations, int translationOffset,
+			QuaternionBatch rotations, int rotStart,
+			float[] scales, int scaleOffset, int count) {
+		if (DEBUG_MODE) { checkLayout(Layout.TRS); }
+
+		int d = reserve(count);
+		final float[] dest = data;
+		final int floats = layout.floatsPerInstance;
+		final float[] qxs = rotations.x, qys = rotations.y;
+		final float[] qzs = rotations.z, qws = rotations.w;
+
+		for (int k = 0; k < count; k++, d += floats) {
+			int t = translationOffset + 3 * k;
+			int q = rotStart + k;
+			dest[d]     = translations[t];
+			dest[d + 1] = translations[t + 1];
+			dest[d + 2] = translations[t + 2];
+			dest[d + 3] = qxs[q];
+			dest[d + 4] = qys[q];
+			dest[d + 5] = qzs[q];
+			dest[d + 6] = qws[q];
+			if (scales != null) {
+				int s = scaleOffset + 3 * k;
+				dest[d + 7] = scales[s];
+				dest[d + 8] = scales[s + 1];
+				dest[d + 9] = scales[s + 2];
+			}
+			else {
+				dest[d + 7] = 1f;
+				dest[d + 8] = 1f;
+				dest[d + 9] = 1f;
+			}
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Uploads the packed instances to the buffer object, replacing last
+	 * frame's instances, and leaves the buffer bound to GL_ARRAY_BUFFER.
+	 */
+	public void upload() {
+		int floats = size * layout.floatsPerInstance;
+		uploadBuffer.clear();
+		uploadBuffer.put(data, 0, floats);
+		uploadBuffer.flip();
+
+		device.bindBuffer(GL_ARRAY_BUFFER, bufferId);
+		// Orphan the old storage, so the upload need not wait on draws
+		// reading it.
+		device.bufferData(GL_ARRAY_BUFFER, (long) capacity * stride, GL_STREAM_DRAW);
+		if (floats > 0) {
+			device.bufferSubData(GL_ARRAY_BUFFER, 0, uploadBuffer);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Sources the per-instance attributes of the bound vertex array from this
+	 * buffer. Only needs to be done once per vertex array, since the
+	 * attribute state is stored in it.
+	 *
+	 * @param firstLocation - attribute location of the first per-instance
+	 *        attribute. The layout's attributes occupy
+	 *        {@link Layout#getAttributeCount()} consecutive locations.
+	 */
+	public void bindAttributes(int firstLocation) {
+		device.bindBuffer(GL_ARRAY_BUFFER, bufferId);
+
+		long offset = 0;
+		for (int i = 0; i < layout.attributeSizes.length; i++) {
+			int location = firstLocation + i;
+			int attributeSize = layout.attributeSizes[i];
+			device.enableVertexAttribArray(location);
+			device.vertexAttribPointer(location, attributeSize, GL_FLOAT, false,
+					stride, offset);
+			device.vertexAttribDivisor(location, 1);
+			offset += attributeSize * BYTES_PER_FLOAT;
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Draws every instance of the indexed mesh of the bound vertex array with
+	 * one call, or nothing if there are no instances.
+	 *
+	 * @param mode - primitive mode, such as GL_TRIANGLES.
+	 * @param count - number of indices per instance.
+	 * @param indexType - GL_UNSIGNED_BYTE, GL_UNSIGNED_SHORT or
+	 *        GL_UNSIGNED_INT.
+	 * @param offset - byte offset of the first index in the element buffer.
+	 */
+	public void drawElements(int mode, int count, int indexType, long offset) {
+		if (size > 0) {
+			device.drawElementsInstanced(mode, count, indexType, offset, size);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Draws every instance of the non-indexed mesh of the bound vertex array
+	 * with one call, or nothing if there are no instances.
+	 *
+	 * @param mode - primitive mode, such as GL_TRIANGLES.
+	 * @param first - index of the first vertex.
+	 * @param count - number of vertices per instance.
+	 */
+	public void drawArrays(int mode, int first, int count) {
+		if (size > 0) {
+			device.drawArraysInstanced(mode, first, count, size);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Deletes the buffer object.
+	 */
+	public void dispose() {
+		device.deleteBuffer(bufferId);
+		bufferId = 0;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the number of instances packed since the last
+	 *         {@link #clear()}.
+	 */
+	public int size() {
+		return size;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the number of instances that fit without growing.
+	 */
+	public int capacity() {
+		return capacity;
+	}
+
+	//--------------------------------------------------------------------------
+	public Layout getLayout() {
+		return layout;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the name of the buffer object.
+	 */
+	public int getBufferId() {
+		return bufferId;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Copies the packed data of instance <code>index</code> into
+	 * <code>dest</code>, beginning at <code>destOffset</code>.
+	 */
+	public void getInstance(int index, float[] dest, int destOffset) {
+		if (DEBUG_MODE) {
+			if (index < 0 || index >= size) {
+				throw new IndexOutOfBoundsException("Instance " + index
+						+ " is outside of InstanceBuffer with size " + size + ".");
+			}
+		}
+		System.arraycopy(data, index * layout.floatsPerInstance, dest, destOffset,
+				layout.floatsPerInstance);
+	}
+}
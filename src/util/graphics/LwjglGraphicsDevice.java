@@ -0,0 +1,386 @@
+package util.graphics;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import org.lwjgl.opengl.ContextCapabilities;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL13;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL31;
+import org.lwjgl.opengl.GL33;
+import org.lwjgl.opengl.GL41;
+import org.lwjgl.opengl.GLContext;
+
+/**
+ * A {@link GraphicsDevice} issuing every call to the current LWJGL context.
+ * The device holds no state, so the shared {@link #INSTANCE} may be used from
+ * whichever thread owns the context.
+ *
+ * @author Dustin Biser
+ *
+ */
+public class LwjglGraphicsDevice implements GraphicsDevice {
+	public static final LwjglGraphicsDevice INSTANCE = new LwjglGraphicsDevice();
+
+	//--------------------------------------------------------------------------
+	private LwjglGraphicsDevice() {
+	}
+
+	//--------------------------------------------------------------------------
+	@Override
+	public void enable(int capability) {
+		GL11.glEnable(capability);
+	}
+
+	@Override
+	public void disable(int capability) {
+		GL11.glDisable(capability);
+	}
+
+	@Override
+	public void cullFace(int face) {
+		GL11.glCullFace(face);
+	}
+
+	@Override
+	public void frontFace(int mode) {
+		GL11.glFrontFace(mode);
+	}
+
+	@Override
+	public void depthMask(boolean enabled) {
+		GL11.glDepthMask(enabled);
+	}
+
+	@Override
+	public void depthFunc(int function) {
+		GL11.glDepthFunc(function);
+	}
+
+	@Override
+	public void depthRange(double near, double far) {
+		GL11.glDepthRange(near, far);
+	}
+
+	@Override
+	public void blendFunc(int sourceFactor, int destinationFactor) {
+		GL11.glBlendFunc(sourceFactor, destinationFactor);
+	}
+
+	@Override
+	public void polygonMode(int face, int mode) {
+		GL11.glPolygonMode(face, mode);
+	}
+
+	@Override
+	public void viewport(int x, int y, int width, int height) {
+		GL11.glViewport(x, y, width, height);
+	}
+
+	@Override
+	public void clearColor(float red, float green, float blue, float alpha) {
+		GL11.glClearColor(red, green, blue, alpha);
+	}
+
+	@Override
+	public void clear(int mask) {
+		GL11.glClear(mask);
+	}
+
+	@Override
+	public void pixelStorei(int parameter, int value) {
+		GL11.glPixelStorei(parameter, value);
+	}
+
+	@Override
+	public int getError() {
+		return GL11.glGetError();
+	}
+
+	@Override
+	public String getString(int name) {
+		return GL11.glGetString(name);
+	}
+
+	//--------------------------------------------------------------------------
+	@Override
+	public int createBuffer() {
+		return GL15.glGenBuffers();
+	}
+
+	@Override
+	public void deleteBuffer(int buffer) {
+		GL15.glDeleteBuffers(buffer);
+	}
+
+	@Override
+	public void bindBuffer(int target, int buffer) {
+		GL15.glBindBuffer(target, buffer);
+	}
+
+	@Override
+	public void bufferData(int target, ByteBuffer data, int usage) {
+		GL15.glBufferData(target, data, usage);
+	}
+
+	@Override
+	public void bufferData(int target, FloatBuffer data, int usage) {
+		GL15.glBufferData(target, data, usage);
+	}
+
+	@Override
+	public void bufferData(int target, long size, int usage) {
+		GL15.glBufferData(target, size, usage);
+	}
+
+	@Override
+	public void bufferSubData(int target, long offset, ByteBuffer data) {
+		GL15.glBufferSubData(target, offset, data);
+	}
+
+	@Override
+	public void bufferSubData(int target, long offset, FloatBuffer data) {
+		GL15.glBufferSubData(target, offset, data);
+	}
+
+	//--------------------------------------------------------------------------
+	@Override
+	public int createVertexArray() {
+		return GL30.glGenVertexArrays();
+	}
+
+	@Override
+	public void deleteVertexArray(int vertexArray) {
+		GL30.glDeleteVertexArrays(vertexArray);
+	}
+
+	@Override
+	public void bindVertexArray(int vertexArray) {
+		GL30.glBindVertexArray(vertexArray);
+	}
+
+	@Override
+	public void enableVertexAttribArray(int index) {
+		GL20.glEnableVertexAttribArray(index);
+	}
+
+	@Override
+	public void disableVertexAttribArray(int index) {
+		GL20.glDisableVertexAttribArray(index);
+	}
+
+	@Override
+	public void vertexAttribPointer(int index, int size, int type,
+			boolean normalized, int stride, long offset) {
+		GL20.glVertexAttribPointer(index, size, type, normalized, stride, offset);
+	}
+
+	@Override
+	public void vertexAttribDivisor(int index, int divisor) {
+		GL33.glVertexAttribDivisor(index, divisor);
+	}
+
+	//--------------------------------------------------------------------------
+	@Override
+	public int createShader(int type) {
+		return GL20.glCreateShader(type);
+	}
+
+	@Override
+	public void shaderSource(int shader, String source) {
+		GL20.glShaderSource(shader, source);
+	}
+
+	@Override
+	public void compileShader(int shader) {
+		GL20.glCompileShader(shader);
+	}
+
+	@Override
+	public int getShaderi(int shader, int parameter) {
+		return GL20.glGetShaderi(shader, parameter);
+	}
+
+	@Override
+	public String getShaderInfoLog(int shader, int maxLength) {
+		return GL20.glGetShaderInfoLog(shader, maxLength);
+	}
+
+	@Override
+	public void deleteShader(int shader) {
+		GL20.glDeleteShader(shader);
+	}
+
+	@Override
+	public int createProgram() {
+		return GL20.glCreateProgram();
+	}
+
+	@Override
+	public void attachShader(int program, int shader) {
+		GL20.glAttachShader(program, shader);
+	}
+
+	@Override
+	public void bindAttribLocation(int program, int index, String name) {
+		GL20.glBindAttribLocation(program, index, name);
+	}
+
+	@Override
+	public void linkProgram(int program) {
+		GL20.glLinkProgram(program);
+	}
+
+	@Override
+	public void validateProgram(int program) {
+		GL20.glValidateProgram(program);
+	}
+
+	@Override
+	public int getProgrami(int program, int parameter) {
+		return GL20.glGetProgrami(program, parameter);
+	}
+
+	@Override
+	public String getProgramInfoLog(int program, int maxLength) {
+		return GL20.glGetProgramInfoLog(program, maxLength);
+	}
+
+	@Override
+	public void deleteProgram(int program) {
+		GL20.glDeleteProgram(program);
+	}
+
+	@Override
+	public void useProgram(int program) {
+		GL20.glUseProgram(program);
+	}
+
+	@Override
+	public int getUniformLocation(int program, String name) {
+		return GL20.glGetUniformLocation(program, name);
+	}
+
+	@Override
+	public int getAttribLocation(int program, String name) {
+		return GL20.glGetAttribLocation(program, name);
+	}
+
+	//--------------------------------------------------------------------------
+	@Override
+	public boolean supportsProgramBinaries() {
+		ContextCapabilities capabilities = GLContext.getCapabilities();
+		return capabilities.OpenGL41 || capabilities.GL_ARB_get_program_binary;
+	}
+
+	@Override
+	public void programParameteri(int program, int parameter, int value) {
+		GL41.glProgramParameteri(program, parameter, value);
+	}
+
+	@Override
+	public void getProgramBinary(int program, IntBuffer length,
+			IntBuffer binaryFormat, ByteBuffer binary) {
+		GL41.glGetProgramBinary(program, length, binaryFormat, binary);
+	}
+
+	@Override
+	public void programBinary(int program, int binaryFormat, ByteBuffer binary) {
+		GL41.glProgramBinary(program, binaryFormat, binary);
+	}
+
+	//--------------------------------------------------------------------------
+	@Override
+	public void uniform1i(int location, int value) {
+		GL20.glUniform1i(location, value);
+	}
+
+	@Override
+	public void uniform1f(int location, float value) {
+		GL20.glUniform1f(location, value);
+	}
+
+	@Override
+	public void uniform2f(int location, float x, float y) {
+		GL20.glUniform2f(location, x, y);
+	}
+
+	@Override
+	public void uniform3f(int location, float x, float y, float z) {
+		GL20.glUniform3f(location, x, y, z);
+	}
+
+	@Override
+	public void uniform4f(int location, float x, float y, float z, float w) {
+		GL20.glUniform4f(location, x, y, z, w);
+	}
+
+	@Override
+	public void uniformMatrix4(int location, boolean transpose, FloatBuffer matrices) {
+		GL20.glUniformMatrix4(location, transpose, matrices);
+	}
+
+	//--------------------------------------------------------------------------
+	@Override
+	public int createTexture() {
+		return GL11.glGenTextures();
+	}
+
+	@Override
+	public void deleteTexture(int texture) {
+		GL11.glDeleteTextures(texture);
+	}
+
+	@Override
+	public void activeTexture(int textureUnit) {
+		GL13.glActiveTexture(textureUnit);
+	}
+
+	@Override
+	public void bindTexture(int target, int texture) {
+		GL11.glBindTexture(target, texture);
+	}
+
+	@Override
+	public void texImage2D(int target, int level, int internalFormat, int width,
+			int height, int format, int type, ByteBuffer pixels) {
+		GL11.glTexImage2D(target, level, internalFormat, width, height, 0, format,
+				type, pixels);
+	}
+
+	@Override
+	public void texParameteri(int target, int parameter, int value) {
+		GL11.glTexParameteri(target, parameter, value);
+	}
+
+	@Override
+	public void generateMipmap(int target) {
+		GL30.glGenerateMipmap(target);
+	}
+
+	//--------------------------------------------------------------------------
+	@Override
+	public void drawArrays(int mode, int first, int count) {
+		GL11.glDrawArrays(mode, first, count);
+	}
+
+	@Override
+	public void drawArraysInstanced(int mode, int first, int count, int instanceCount) {
+		GL31.glDrawArraysInstanced(mode, first, count, instanceCount);
+	}
+
+	@Override
+	public void drawElements(int mode, int count, int type, long offset) {
+		GL11.glDrawElements(mode, count, type, offset);
+	}
+
+	@Override
+	public void drawElementsInstanced(int mode, int count, int type, long offset,
+			int instanceCount) {
+		GL31.glDrawElementsInstanced(mode, count, type, offset, instanceCount);
+	}
+}
@@ -0,0 +1,652 @@
+package util.graphics;
+
+import static util.RuntimeDefines.DEBUG_MODE;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL13;
+import org.lwjgl.util.vector.Matrix4f;
+
+/**
+ * Collects the draw calls of a frame as packets, sorts them by a 64-bit key,
+ * and submits them to a {@link GraphicsDevice} with as few state changes as
+ * possible.
+ * <p>
+ * Each packet names a program, a vertex array, an optional texture, the
+ * uniforms specific to the packet, and the range of vertices or indices to
+ * draw. Packets are stored in parallel arrays that are reused from frame to
+ * frame, so filling, sorting and submitting a queue allocates nothing once
+ * the arrays have grown to the frame's size.
+ * <p>
+ * Sorting by a key built with {@link #sortKey(int, int, int, int, int)}
+ * places packets sharing a program next to each other, then those sharing a
+ * texture, then a vertex array. {@link #submit(GraphicsDevice)} then only
+ * binds a program, vertex array or texture when it differs from the one the
+ * previous packet used, and counts the binds it eliminated.
+ * <p>
+ * Typical use, once per frame:
+ *
+ * <pre>
+ * queue.clear();
+ * queue.add(key, program, vertexArray, texture, GL_TRIANGLES, count, GL_UNSIGNED_SHORT, 0);
+ * queue.addUniformMatrix4(modelMatrixLocation, modelMatrix);
+ * ...
+ * queue.sort();
+ * queue.submit(device);
+ * </pre>
+ *
+ * @author Dustin Biser
+ *
+ */
+public class RenderQueue {
+	private static final int DEFAULT_CAPACITY = 256;
+
+	// Kinds of uniforms, and the number of floats each occupies.
+	private static final byte UNIFORM_1I = 0;
+	private static final byte UNIFORM_1F = 1;
+	private static final byte UNIFORM_2F = 2;
+	private static final byte UNIFORM_3F = 3;
+	private static final byte UNIFORM_4F = 4;
+	private static final byte UNIFORM_MATRIX4 = 5;
+	private static final int[] UNIFORM_SIZES = {1, 1, 2, 3, 4, 16};
+
+	// Radix sort digit size, and the queue size below which insertion sort
+	// is faster.
+	private static final int RADIX_BITS = 8;
+	private static final int RADIX = 1 << RADIX_BITS;
+	private static final int INSERTION_SORT_THRESHOLD = 64;
+
+	//-- Packets, indexed in order of addition.
+	private int size;
+	private long[] keys;
+	private int[] programs;
+	private int[] vertexArrays;
+	private int[] textures;
+	private int[] modes;
+	private int[] firsts;
+	private int[] counts;
+	private int[] indexTypes;
+	private long[] offsets;
+	private int[] instanceCounts;
+	private int[] uniformStarts;
+
+	//-- Uniforms, stored in packet order.
+	private int uniformCount;
+	private int[] uniformLocations;
+	private byte[] uniformKinds;
+	private int[] uniformDataStarts;
+	private int uniformDataSize;
+	private float[] uniformData;
+
+	//-- Sorting.
+	private int[] order;
+	private long[] sortedKeys;
+	private int[] scratchOrder;
+	private long[] scratchKeys;
+	private final int[] digitCounts = new int[RADIX];
+	private boolean sorted;
+
+	private final FloatBuffer matrixBuffer = BufferUtils.createFloatBuffer(16);
+
+	//-- Statistics of the last submission.
+	private int bindCount;
+	private int eliminatedBindCount;
+
+	//--------------------------------------------------------------------------
+	public RenderQueue() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param capacity - number of packets to allocate space for. The queue
+	 *        grows as needed.
+	 */
+	public RenderQueue(int capacity) {
+		capacity = Math.max(capacity, 1);
+		keys = new long[capacity];
+		programs = new int[capacity];
+		vertexArrays = new int[capacity];
+		textures = new int[capacity];
+		modes = new int[capacity];
+		firsts = new int[capacity];
+		counts = new int[capacity];
+		indexTypes = new int[capacity];
+		offsets = new long[capacity];
+		instanceCounts = new int[capacity];
+		uniformStarts = new int[capacity + 1];
+		order = new int[capacity];
+		sortedKeys = new long[capacity];
+		scratchOrder = new int[capacity];
+		scratchKeys = new long[capacity];
+
+		uniformLocations = new int[capacity];
+		uniformKinds = new byte[capacity];
+		uniformDataStarts = new int[capacity];
+		uniformData = new float[capacity * 16];
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Packs the state of a packet into a sort key. Each field is masked to its
+	 * width, so callers should pass small indices, such as the GL names of
+	 * their objects, rather than arbitrary values. From the most significant
+	 * bits down:
+	 *
+	 * <pre>
+	 * bits 60-63  layer, such as opaque before translucent
+	 * bits 48-59  program
+	 * bits 32-47  texture
+	 * bits 16-31  vertex array
+	 * bits  0-15  depth, see {@link #quantizeDepth(float, float, float)}
+	 * </pre>
+	 *
+	 * @param layer - value in [0, 15].
+	 * @param program - value in [0, 4095].
+	 * @param texture - value in [0, 65535].
+	 * @param vertexArray - value in [0, 65535].
+	 * @param depth - value in [0, 65535].
+	 * @return the sort key.
+	 */
+	public static long sortKey(int layer, int program, int texture, int vertexArray,
+			int depth) {
+		return ((long) (layer & 0xf) << 60)
+			 | ((long) (program & 0xfff) << 48)
+			 | ((long) (texture & 0xffff) << 32)
+			 | ((long) (vertexArray & 0xffff) << 16)
+			 | (depth & 0xffff);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Maps a view space distance to the 16 bit depth field of a sort key, so
+	 * that nearer packets sort first. For back to front ordering, subtract
+	 * the result from 65535.
+	 *
+	 * @param distance - distance from the camera.
+	 * @param near - distance of the near plane.
+	 * @param far - distance of the far plane.
+	 * @return a value in [0, 65535].
+	 */
+	public static int quantizeDepth(float distance, float near, float far) {
+		float t = (distance - near) / (far - near);
+		if (t <= 0f) {
+			return 0;
+		}
+		if (t >= 1f) {
+			return 0xffff;
+		}
+		return (int) (t * 0xffff);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Adds an indexed draw of <code>count</code> indices.
+	 *
+	 * @param key - sort key, typically from
+	 *        {@link #sortKey(int, int, int, int, int)}.
+	 * @param program - program to draw with.
+	 * @param vertexArray - vertex array holding the vertices and indices.
+	 * @param texture - 2D texture to bind to GL_TEXTURE0, or 0 for none.
+	 * @param mode - primitive mode, such as GL_TRIANGLES.
+	 * @param count - number of indices.
+	 * @param indexType - GL_UNSIGNED_BYTE, GL_UNSIGNED_SHORT or
+	 *        GL_UNSIGNED_INT.
+	 * @param offset - byte offset of the first index in the element buffer.
+	 * @return the index of the new packet.
+	 */
+	public int add(long key, int program, int vertexArray, int texture, int mode,
+			int count, int indexType, long offset) {
+		return add(key, program, vertexArray, texture, mode, 0, count, indexType,
+				offset, 1);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Adds a non-indexed draw of <code>count</code> vertices.
+	 *
+	 * @param key - sort key.
+	 * @param program - program to draw with.
+	 * @param vertexArray - vertex array holding the vertices.
+	 * @param texture - 2D texture to bind to GL_TEXTURE0, or 0 for none.
+	 * @param mode - primitive mode, such as GL_TRIANGLES.
+	 * @param first - index of the first vertex.
+	 * @param count - number of vertices.
+	 * @return the index of the new packet.
+	 */
+	public int addArrays(long key, int program, int vertexArray, int texture,
+			int mode, int first, int count) {
+		return add(key, program, vertexArray, texture, mode, first, count, 0, 0, 1);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Adds a draw of any kind.
+	 *
+	 * @param key - sort key.
+	 * @param program - program to draw with.
+	 * @param vertexArray - vertex array holding the vertices and indices.
+	 * @param texture - 2D texture to bind to GL_TEXTURE0, or 0 for none.
+	 * @param mode - primitive mode, such as GL_TRIANGLES.
+	 * @param first - index of the first vertex, for non-indexed draws.
+	 * @param count - number of vertices or indices.
+	 * @param indexType - type of the indices, or 0 for a non-indexed draw.
+	 * @param offset - byte offset of the first index, for indexed draws.
+	 * @param instanceCount - number of instances, 1 for a plain draw.
+	 * @return the index of the new packet.
+	 */
+	public int add(long key, int program, int vertexArray, int texture, int mode,
+			int first, int count, int indexType, long offset, int instanceCount) {
+		if (DEBUG_MODE) {
+			if (program == 0 || vertexArray == 0) {
+				throw new IllegalArgumentException(
+						"A packet needs a program and a vertex array.");
+			}
+			if (count < 0 || instanceCount < 1) {
+				throw new IllegalArgumentException("Invalid count " + count
+						+ " or instance count " + instanceCount + ".");
+			}
+		}
+
+		if (size == keys.length) {
+			growPackets(2 * size);
+		}
+
+		int packet = size++;
+		sorted = false;
+		keys[packet] = key;
+		programs[packet] = program;
+		vertexArrays[packet] = vertexArray;
+		textures[packet] = texture;
+		modes[packet] = mode;
+		firsts[packet] = first;
+		counts[packet] = count;
+		indexTypes[packet] = indexType;
+		offsets[packet] = offset;
+		instanceCounts[packet] = instanceCount;
+		uniformStarts[packet] = uniformCount;
+		uniformStarts[packet + 1] = uniformCount;
+
+		return packet;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Sets an int uniform of the most recently added packet.
+	 */
+	public void addUniform1i(int location, int value) {
+		int data = addUniform(location, UNIFORM_1I);
+		uniformData[data] = Float.intBitsToFloat(value);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Sets a float uniform of the most recently added packet.
+	 */
+	public void addUniform1f(int location, float value) {
+		int data = addUniform(location, UNIFORM_1F);
+		uniformData[data] = value;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Sets a vec2 uniform of the most recently added packet.
+	 */
+	public void addUniform2f(int location, float x, float y) {
+		int data = addUniform(location, UNIFORM_2F);
+		uniformData[data] = x;
+		uniformData[data + 1] = y;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Sets a vec3 uniform of the most recently added packet.
+	 */
+	public void addUniform3f(int location, float x, float y, float z) {
+		int data = addUniform(location, UNIFORM_3F);
+		uniformData[data] = x;
+		uniformData[data + 1] = y;
+		uniformData[data + 2] = z;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Sets a vec4 uniform of the most recently added packet.
+	 */
+	public void addUniform4f(int location, float x, float y, float z, float w) {
+		int data = addUniform(location, UNIFORM_4F);
+		uniformData[data] = x;
+		uniformData[data + 1] = y;
+		uniformData[data + 2] = z;
+		uniformData[data + 3] = w;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Sets a mat4 uniform of the most recently added packet.
+	 *
+	 * @param location - uniform location.
+	 * @param matrix - matrix, copied into the queue.
+	 */
+	public void addUniformMatrix4(int location, Matrix4f matrix) {
+		int data = addUniform(location, UNIFORM_MATRIX4);
+		float[] d = uniformData;
+		d[data]      = matrix.m00; d[data + 1]  = matrix.m01; d[data + 2]  = matrix.m02; d[data + 3]  = matrix.m03;
+		d[data + 4]  = matrix.m10; d[data + 5]  = matrix.m11; d[data + 6]  = matrix.m12; d[data + 7]  = matrix.m13;
+		d[data + 8]  = matrix.m20; d[data + 9]  = matrix.m21; d[data + 10] = matrix.m22; d[data + 11] = matrix.m23;
+		d[data + 12] = matrix.m30; d[data + 13] = matrix.m31; d[data + 14] = matrix.m32; d[data + 15] = matrix.m33;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Sets a mat4 uniform of the most recently added packet.
+	 *
+	 * @param location - uniform location.
+	 * @param matrix - 16 floats in column major order, copied into the
+	 *        queue.
+	 * @param offset - index of the first float in <code>matrix</code>.
+	 */
+	public void addUniformMatrix4(int location, float[] matrix, int offset) {
+		int data = addUniform(location, UNIFORM_MATRIX4);
+		System.arraycopy(matrix, offset, uniformData, data, 16);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the index in uniformData at which to store the new uniform.
+	 */
+	private int addUniform(int location, byte kind) {
+		if (DEBUG_MODE && size == 0) {
+			throw new IllegalStateException("Uniforms must follow the packet they belong to.");
+		}
+
+		if (uniformCount == uniformLocations.length) {
+			int capacity = 2 * uniformCount;
+			uniformLocations = Arrays.copyOf(uniformLocations, capacity);
+			uniformKinds = Arrays.copyOf(uniformKinds, capacity);
+			uniformDataStarts = Arrays.copyOf(uniformDataStarts, capacity);
+		}
+		int dataSize = UNIFORM_SIZES[kind];
+		if (uniformDataSize + dataSize > uniformData.length) {
+			uniformData = Arrays.copyOf(uniformData,
+					Math.max(2 * uniformData.length, uniformDataSize + dataSize));
+		}
+
+		int uniform = uniformCount++;
+		uniformLocations[uniform] = location;
+		uniformKinds[uniform] = kind;
+		uniformDataStarts[uniform] = uniformDataSize;
+		uniformDataSize += dataSize;
+		uniformStarts[size] = uniformCount;
+
+		return uniformDataStarts[uniform];
+	}
+
+	//--------------------------------------------------------------------------
+	private void growPackets(int capacity) {
+		keys = Arrays.copyOf(keys, capacity);
+		programs = Arrays.copyOf(programs, capacity);
+		vertexArrays = Arrays.copyOf(vertexArrays, capacity);
+		textures = Arrays.copyOf(textures, capacity);
+		modes = Arrays.copyOf(modes, capacity);
+		firsts = Arrays.copyOf(firsts, capacity);
+		counts = Arrays.copyOf(counts, capacity);
+		indexTypes = Arrays.copyOf(indexTypes, capacity);
+		offsets = Arrays.copyOf(offsets, capacity);
+		instanceCounts = Arrays.copyOf(instanceCounts, capacity);
+		uniformStarts = Arrays.copyOf(uniformStarts, capacity + 1);
+		order = new int[capacity];
+		sortedKeys = new long[capacity];
+		scratchOrder = new int[capacity];
+		scratchKeys = new long[capacity];
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Orders the packets by ascending sort key. Packets with equal keys keep
+	 * the order they were added in.
+	 */
+	public void sort() {
+		for (int i = 0; i < size; i++) {
+			order[i] = i;
+			sortedKeys[i] = keys[i];
+		}
+
+		if (size < INSERTION_SORT_THRESHOLD) {
+			insertionSort();
+		}
+		else {
+			// Least significant digit radix sort, which is stable. Digits on
+			// which every key agrees, such as unused layer bits, are skipped.
+			long differingBits = 0;
+			for (int i = 1; i < size; i++) {
+				differingBits |= sortedKeys[i] ^ sortedKeys[0];
+			}
+
+			for (int shift = 0; shift < 64; shift += RADIX_BITS) {
+				if (((differingBits >>> shift) & (RADIX - 1)) != 0) {
+					radixPass(shift);
+				}
+			}
+		}
+
+		sorted = true;
+	}
+
+	//--------------------------------------------------------------------------
+	private void insertionSort() {
+		for (int i = 1; i < size; i++) {
+			long key = sortedKeys[i];
+			int packet = order[i];
+			int j = i - 1;
+			// Keys compare as unsigned, as in the radix sort.
+			while (j >= 0 && Long.compare(sortedKeys[j] + Long.MIN_VALUE,
+					key + Long.MIN_VALUE) > 0) {
+				sortedKeys[j + 1] = sortedKeys[j];
+				order[j + 1] = order[j];
+				j--;
+			}
+			sortedKeys[j + 1] = key;
+			order[j + 1] = packet;
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private void radixPass(int shift) {
+		int[] digitStarts = digitCounts;
+		Arrays.fill(digitStarts, 0);
+		for (int i = 0; i < size; i++) {
+			digitStarts[(int) (sortedKeys[i] >>> shift) & (RADIX - 1)]++;
+		}
+
+		int start = 0;
+		for (int digit = 0; digit < RADIX; digit++) {
+			int count = digitStarts[digit];
+			digitStarts[digit] = start;
+			start += count;
+		}
+
+		for (int i = 0; i < size; i++) {
+			long key = sortedKeys[i];
+			int destination = digitStarts[(int) (key >>> shift) & (RADIX - 1)]++;
+			scratchKeys[destination] = key;
+			scratchOrder[destination] = order[i];
+		}
+
+		long[] keysSwap = sortedKeys;
+		sortedKeys = scratchKeys;
+		scratchKeys = keysSwap;
+		int[] orderSwap = order;
+		order = scratchOrder;
+		scratchOrder = orderSwap;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Issues every packet, in sorted order if {@link #sort()} was called since
+	 * the last packet was added, or else in the order added. Programs, vertex
+	 * arrays and textures are only bound when they differ from the previous
+	 * packet's. The last packet's program and vertex array are left bound.
+	 *
+	 * @param device - device to draw with.
+	 */
+	public void submit(GraphicsDevice device) {
+		bindCount = 0;
+		eliminatedBindCount = 0;
+
+		int currentProgram = -1;
+		int currentVertexArray = -1;
+		int currentTexture = -1;
+		boolean textureUnitActive = false;
+
+		for (int i = 0; i < size; i++) {
+			int packet = sorted ? order[i] : i;
+
+			int program = programs[packet];
+			if (program != currentProgram) {
+				device.useProgram(program);
+				currentProgram = program;
+				bindCount++;
+			}
+			else {
+				eliminatedBindCount++;
+			}
+
+			int vertexArray = vertexArrays[packet];
+			if (vertexArray != currentVertexArray) {
+				device.bindVertexArray(vertexArray);
+				currentVertexArray = vertexArray;
+				bindCount++;
+			}
+			else {
+				eliminatedBindCount++;
+			}
+
+			int texture = textures[packet];
+			if (texture != 0) {
+				if (!textureUnitActive) {
+					device.activeTexture(GL13.GL_TEXTURE0);
+					textureUnitActive = true;
+				}
+				if (texture != currentTexture) {
+					device.bindTexture(GL11.GL_TEXTURE_2D, texture);
+					currentTexture = texture;
+					bindCount++;
+				}
+				else {
+					eliminatedBindCount++;
+				}
+			}
+
+			setUniforms(device, packet);
+			draw(device, packet);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private void setUniforms(GraphicsDevice device, int packet) {
+		for (int u = uniformStarts[packet]; u < uniformStarts[packet + 1]; u++) {
+			int location = uniformLocations[u];
+			int data = uniformDataStarts[u];
+			switch (uniformKinds[u]) {
+			case UNIFORM_1I:
+				device.uniform1i(location, Float.floatToRawIntBits(uniformData[data]));
+				break;
+			case UNIFORM_1F:
+				device.uniform1f(location, uniformData[data]);
+				break;
+			case UNIFORM_2F:
+				device.uniform2f(location, uniformData[data], uniformData[data + 1]);
+				break;
+			case UNIFORM_3F:
+				device.uniform3f(location, uniformData[data], uniformData[data + 1],
+						uniformData[data + 2]);
+				break;
+			case UNIFORM_4F:
+				device.uniform4f(location, uniformData[data], uniformData[data + 1],
+						uniformData[data + 2], uniformData[data + 3]);
+				break;
+			case UNIFORM_MATRIX4:
+				matrixBuffer.clear();
+				matrixBuffer.put(uniformData, data, 16);
+				matrixBuffer.flip();
+				device.uniformMatrix4(location, false, matrixBuffer);
+				break;
+			}
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private void draw(GraphicsDevice device, int packet) {
+		int instanceCount = instanceCounts[packet];
+		if (indexTypes[packet] != 0) {
+			if (instanceCount == 1) {
+				device.drawElements(modes[packet], counts[packet], indexTypes[packet],
+						offsets[packet]);
+			}
+			else {
+				device.drawElementsInstanced(modes[packet], counts[packet],
+						indexTypes[packet], offsets[packet], instanceCount);
+			}
+		}
+		else {
+			if (instanceCount == 1) {
+				device.drawArrays(modes[packet], firsts[packet], counts[packet]);
+			}
+			else {
+				device.drawArraysInstanced(modes[packet], firsts[packet],
+						counts[packet], instanceCount);
+			}
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Removes every packet, keeping the allocated space.
+	 */
+	public void clear() {
+		size = 0;
+		sorted = false;
+		uniformCount = 0;
+		uniformDataSize = 0;
+		uniformStarts[0] = 0;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the number of packets in the queue.
+	 */
+	public int size() {
+		return size;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param i - position in submission order.
+	 * @return the index of the packet submitted <code>i</code>-th.
+	 */
+	public int getSubmittedPacket(int i) {
+		return sorted ? order[i] : i;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the number of program, vertex array and texture binds issued by
+	 *         the last {@link #submit(GraphicsDevice)}.
+	 */
+	public int getBindCount() {
+		return bindCount;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the number of binds the last {@link #submit(GraphicsDevice)}
+	 *         skipped because the object was already bound.
+	 */
+	public int getEliminatedBindCount() {
+		return eliminatedBindCount;
+	}
+}
@@ -0,0 +1,928 @@
+package util.graphics;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL32.GL_DEPTH_CLAMP;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.lwjgl.util.vector.Matrix4f;
+
+import util.Parallel;
+
+/**
+ * Headless reference renderer that draws triangle lists into a color and a
+ * depth image on the CPU.
+ * <p>
+ * Draw calls consume the same position, color and index buffers that are
+ * uploaded with {@link GraphicsDevice#bufferData}, together with the product
+ * of the model, view and projection matrices, and run the pipeline of the
+ * position-color shaders used by the demos: clip = modelToClip * position,
+ * with the vertex color interpolated across each triangle. The fixed function
+ * state mirrors the subset of OpenGL those demos configure: back or front
+ * face culling decided by {@link #frontFace(int)}, depth testing with
+ * <code>GL_LESS</code>, <code>GL_LEQUAL</code> or <code>GL_ALWAYS</code>, the
+ * depth mask and <code>GL_DEPTH_CLAMP</code>.
+ * <p>
+ * Each draw call transforms its vertices, clips triangles against the view
+ * volume, snaps them to a sub-pixel grid and bins them into square screen
+ * tiles. Binned triangles are rasterized by {@link #finish()}, or by any call
+ * that reads the images, with every tile drawn by one task of a
+ * {@link ForkJoinPool}. Each tile draws its triangles in submission order, so
+ * the images do not depend on how the tiles were scheduled. Coverage follows
+ * the top-left rule, so triangles sharing an edge draw each pixel along it
+ * exactly once, and colors are interpolated with perspective correction.
+ * <p>
+ * Images are stored bottom row first, as returned by
+ * <code>glReadPixels</code>, with colors packed as ARGB and depths in [0, 1].
+ * A SoftwareRasterizer is used by one thread at a time.
+ *
+ * @author Dustin Biser
+ *
+ */
+public class SoftwareRasterizer {
+	/**
+	 * Default width and height of a screen tile, in pixels.
+	 */
+	public static final int DEFAULT_TILE_SIZE = 32;
+
+	// Vertex positions are snapped to 1/16th of a pixel.
+	private static final int SUBPIXEL_BITS = 4;
+	private static final int SUBPIXEL_ONE = 1 << SUBPIXEL_BITS;
+	private static final int SUBPIXEL_HALF = SUBPIXEL_ONE >> 1;
+
+	// Smallest clip w kept when near and far clipping are disabled by
+	// GL_DEPTH_CLAMP.
+	private static final float MIN_CLIP_W = 1e-5f;
+
+	// Clipped vertices are stored as x, y, z, w, red, green, blue, alpha.
+	private static final int CLIP_VERTEX_FLOATS = 8;
+	private static final int CLIP_PLANE_COUNT = 6;
+
+	// Per triangle, the snapped window coordinates of its three vertices
+	// followed by its pixel bounds: minX, minY, maxX, maxY.
+	private static final int TRIANGLE_INTS = 10;
+
+	// Per triangle, 1 / area, window depth of each vertex, 1 / w of each
+	// vertex, then each vertex color divided by its w.
+	private static final int TRIANGLE_FLOATS = 19;
+
+	private final ForkJoinPool pool;
+	private final int width;
+	private final int height;
+	private final int tileSize;
+	private final int tilesX;
+	private final int tilesY;
+
+	private final int[] colorBuffer;
+	private final float[] depthBuffer;
+
+	// Fixed function state.
+	private boolean cullEnabled = false;
+	private int cullMode = GL_BACK;
+	private int frontFaceMode = GL_CCW;
+	private boolean depthTestEnabled = false;
+	private int depthFunction = GL_LESS;
+	private boolean depthWriteEnabled = true;
+	private boolean depthClampEnabled = false;
+	private int clearColor = 0;
+	private float clearDepth = 1f;
+
+	// Vertices of the current draw call after the vertex stage.
+	private float[] clipVertices = new float[0];
+
+	// Scratch polygons for clipping a triangle against up to six planes.
+	private final float[] polygon = new float[(3 + CLIP_PLANE_COUNT) * CLIP_VERTEX_FLOATS];
+	private final float[] clippedPolygon = new float[polygon.length];
+
+	// Triangles set up since the last finish().
+	private int triangleCount = 0;
+	private int[] triangleInts = new int[0];
+	private float[] triangleFloats = new float[0];
+
+	// Indices of the triangles overlapping each tile, in submission order.
+	private final int[][] tileTriangles;
+	private final int[] tileTriangleCounts;
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Constructs a rasterizer using the default tile size and the
+	 * {@link Parallel#getPool() shared pool}.
+	 *
+	 * @param width - width of the images, in pixels.
+	 * @param height - height of the images, in pixels.
+	 */
+	public SoftwareRasterizer(int width, int height) {
+		this(width, height, DEFAULT_TILE_SIZE, Parallel.getPool());
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param width - width of the images, in pixels.
+	 * @param height - height of the images, in pixels.
+	 * @param tileSize - width and height of a screen tile, in pixels.
+	 * @param pool - pool used to rasterize tiles in parallel, or null to
+	 *        rasterize every tile on the calling thread.
+	 */
+	public SoftwareRasterizer(int width, int height, int tileSize, ForkJoinPool pool) {
+		if (width < 1 || height < 1) {
+			throw new IllegalArgumentException("Image size " + width + "x" + height
+					+ " must be at least 1x1.");
+		}
+		if (tileSize < 1) {
+			throw new IllegalArgumentException("tileSize must be at least 1.");
+		}
+		this.width = width;
+		this.height = height;
+		this.tileSize = tileSize;
+		this.pool = pool;
+		tilesX = (width + tileSize - 1) / tileSize;
+		tilesY = (height + tileSize - 1) / tileSize;
+
+		colorBuffer = new int[width * height];
+		depthBuffer = new float[width * height];
+		Arrays.fill(depthBuffer, clearDepth);
+
+		tileTriangles = new int[tilesX * tilesY][];
+		tileTriangleCounts = new int[tilesX * tilesY];
+		for (int tile = 0; tile < tileTriangles.length; tile++) {
+			tileTriangles[tile] = new int[16];
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	public int getWidth() {
+		return width;
+	}
+
+	//--------------------------------------------------------------------------
+	public int getHeight() {
+		return height;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Enables <code>GL_CULL_FACE</code>, <code>GL_DEPTH_TEST</code> or
+	 * <code>GL_DEPTH_CLAMP</code>.
+	 *
+	 * @param capability
+	 */
+	public void enable(int capability) {
+		setCapability(capability, true);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Disables <code>GL_CULL_FACE</code>, <code>GL_DEPTH_TEST</code> or
+	 * <code>GL_DEPTH_CLAMP</code>.
+	 *
+	 * @param capability
+	 */
+	public void disable(int capability) {
+		setCapability(capability, false);
+	}
+
+	//--------------------------------------------------------------------------
+	private void setCapability(int capability, boolean enabled) {
+		switch (capability) {
+		case GL_CULL_FACE:
+			cullEnabled = enabled;
+			break;
+		case GL_DEPTH_TEST:
+			finish();
+			depthTestEnabled = enabled;
+			break;
+		case GL_DEPTH_CLAMP:
+			finish();
+			depthClampEnabled = enabled;
+			break;
+		default:
+			throw new IllegalArgumentException("Unsupported capability: "
+					+ capability);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param mode - <code>GL_BACK</code>, <code>GL_FRONT</code> or
+	 *        <code>GL_FRONT_AND_BACK</code>.
+	 */
+	public void cullFace(int mode) {
+		if (mode != GL_BACK && mode != GL_FRONT && mode != GL_FRONT_AND_BACK) {
+			throw new IllegalArgumentException("Unsupported cull face mode: " + mode);
+		}
+		cullMode = mode;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param mode - <code>GL_CCW</code> or <code>GL_CW</code>, the winding in
+	 *        window coordinates of front facing triangles.
+	 */
+	public void frontFace(int mode) {
+		if (mode != GL_CCW && mode != GL_CW) {
+			throw new IllegalArgumentException("Unsupported front face mode: " + mode);
+		}
+		frontFaceMode = mode;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param function - <code>GL_LESS</code>, <code>GL_LEQUAL</code> or
+	 *        <code>GL_ALWAYS</code>.
+	 */
+	public void depthFunc(int function) {
+		if (function != GL_LESS && function != GL_LEQUAL && function != GL_ALWAYS) {
+			throw new IllegalArgumentException("Unsupported depth function: "
+					+ function);
+		}
+		finish();
+		depthFunction = function;
+	}
+
+	//--------------------------------------------------------------------------
+	public void depthMask(boolean flag) {
+		finish();
+		depthWriteEnabled = flag;
+	}
+
+	//--------------------------------------------------------------------------
+	public void clearColor(float red, float green, float blue, float alpha) {
+		clearColor = packColor(red, green, blue, alpha);
+	}
+
+	//--------------------------------------------------------------------------
+	public void clearDepth(float depth) {
+		clearDepth = Math.max(0f, Math.min(1f, depth));
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Finishes pending triangles, then clears the buffers named by
+	 * <code>mask</code>.
+	 *
+	 * @param mask - bitwise OR of <code>GL_COLOR_BUFFER_BIT</code> and
+	 *        <code>GL_DEPTH_BUFFER_BIT</code>.
+	 */
+	public void clear(int mask) {
+		finish();
+		if ((mask & GL_COLOR_BUFFER_BIT) != 0) {
+			Arrays.fill(colorBuffer, clearColor);
+		}
+		if ((mask & GL_DEPTH_BUFFER_BIT) != 0) {
+			Arrays.fill(depthBuffer, clearDepth);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Draws <code>count</code> consecutive vertices beginning at
+	 * <code>first</code> as a list of triangles.
+	 *
+	 * @param modelToClip - product of the projection, view and model matrices.
+	 * @param positions - vertex positions, read from the buffer's position.
+	 * @param positionSize - floats per position, 2 to 4.
+	 * @param colors - vertex colors, read from the buffer's position, or null
+	 *        to draw white.
+	 * @param colorSize - floats per color, 3 or 4.
+	 * @param first
+	 * @param count
+	 */
+	public void drawArrays(Matrix4f modelToClip, FloatBuffer positions,
+			int positionSize, FloatBuffer colors, int colorSize, int first, int count) {
+		if (first < 0 || count < 0) {
+			throw new IndexOutOfBoundsException("Invalid vertex range: first "
+					+ first + ", count " + count + ".");
+		}
+		transformVertices(modelToClip, positions, positionSize, colors, colorSize,
+				first, first + count);
+		for (int i = first; i + 2 < first + count; i += 3) {
+			assembleTriangle(i, i + 1, i + 2);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Draws <code>count</code> indices as a list of triangles.
+	 *
+	 * @param modelToClip - product of the projection, view and model matrices.
+	 * @param positions - vertex positions, read from the buffer's position.
+	 * @param positionSize - floats per position, 2 to 4.
+	 * @param colors - vertex colors, read from the buffer's position, or null
+	 *        to draw white.
+	 * @param colorSize - floats per color, 3 or 4.
+	 * @param count - number of indices.
+	 * @param type - <code>GL_UNSIGNED_BYTE</code>,
+	 *        <code>GL_UNSIGNED_SHORT</code> or <code>GL_UNSIGNED_INT</code>.
+	 * @param indices - index data, read from the buffer's position in the
+	 *        buffer's byte order.
+	 */
+	public void drawElements(Matrix4f modelToClip, FloatBuffer positions,
+			int positionSize, FloatBuffer colors, int colorSize, int count, int type,
+			ByteBuffer indices) {
+		int indexSize;
+		switch (type) {
+		case GL_UNSIGNED_BYTE:
+			indexSize = 1;
+			break;
+		case GL_UNSIGNED_SHORT:
+			indexSize = 2;
+			break;
+		case GL_UNSIGNED_INT:
+			indexSize = 4;
+			break;
+		default:
+			throw new IllegalArgumentException("Unsupported index type: " + type);
+		}
+		if (count < 0 || count * indexSize > indices.remaining()) {
+			throw new IndexOutOfBoundsException("Cannot read " + count
+					+ " indices from a buffer of " + indices.remaining() + " bytes.");
+		}
+
+		int vertexCount = positions.remaining() / positionSize;
+		transformVertices(modelToClip, positions, positionSize, colors, colorSize,
+				0, vertexCount);
+
+		int base = indices.position();
+		for (int i = 0; i + 2 < count; i += 3) {
+			int i0 = readIndex(indices, base, indexSize, i);
+			int i1 = readIndex(indices, base, indexSize, i + 1);
+			int i2 = readIndex(indices, base, indexSize, i + 2);
+			if (i0 >= vertexCount || i1 >= vertexCount || i2 >= vertexCount) {
+				throw new IndexOutOfBoundsException("Triangle " + (i / 3)
+						+ " references a vertex past " + vertexCount + ".");
+			}
+			assembleTriangle(i0, i1, i2);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private static int readIndex(ByteBuffer indices, int base, int indexSize, int i) {
+		switch (indexSize) {
+		case 1:
+			return indices.get(base + i) & 0xFF;
+		case 2:
+			return indices.getShort(base + 2 * i) & 0xFFFF;
+		default:
+			int index = indices.getInt(base + 4 * i);
+			if (index < 0) {
+				throw new IndexOutOfBoundsException("Index " + (index & 0xFFFFFFFFL)
+						+ " is too large.");
+			}
+			return index;
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Runs the vertex stage for vertices [begin, end), storing each clip
+	 * space position and color in <code>clipVertices</code>.
+	 */
+	private void transformVertices(Matrix4f m, FloatBuffer positions,
+			int positionSize, FloatBuffer colors, int colorSize, int begin, int end) {
+		if (positionSize < 2 || positionSize > 4) {
+			throw new IllegalArgumentException("positionSize must be 2, 3 or 4.");
+		}
+		if (colors != null && colorSize != 3 && colorSize != 4) {
+			throw new IllegalArgumentException("colorSize must be 3 or 4.");
+		}
+		if (end * positionSize > positions.remaining()
+				|| (colors != null && end * colorSize > colors.remaining())) {
+			throw new IndexOutOfBoundsException("Vertex " + (end - 1)
+					+ " is past the end of its buffers.");
+		}
+		if (clipVertices.length < end * CLIP_VERTEX_FLOATS) {
+			clipVertices = new float[Math.max(end, 2 * clipVertices.length
+					/ CLIP_VERTEX_FLOATS) * CLIP_VERTEX_FLOATS];
+		}
+
+		int positionBase = positions.position();
+		int colorBase = colors == null ? 0 : colors.position();
+		for (int i = begin; i < end; i++) {
+			int p = positionBase + i * positionSize;
+			float x = positions.get(p);
+			float y = positions.get(p + 1);
+			float z = positionSize > 2 ? positions.get(p + 2) : 0f;
+			float w = positionSize > 3 ? positions.get(p + 3) : 1f;
+
+			int v = i * CLIP_VERTEX_FLOATS;
+			clipVertices[v]     = m.m00 * x + m.m10 * y + m.m20 * z + m.m30 * w;
+			clipVertices[v + 1] = m.m01 * x + m.m11 * y + m.m21 * z + m.m31 * w;
+			clipVertices[v + 2] = m.m02 * x + m.m12 * y + m.m22 * z + m.m32 * w;
+			clipVertices[v + 3] = m.m03 * x + m.m13 * y + m.m23 * z + m.m33 * w;
+
+			if (colors == null) {
+				clipVertices[v + 4] = 1f;
+				clipVertices[v + 5] = 1f;
+				clipVertices[v + 6] = 1f;
+				clipVertices[v + 7] = 1f;
+			}
+			else {
+				int c = colorBase + i * colorSize;
+				clipVertices[v + 4] = colors.get(c);
+				clipVertices[v + 5] = colors.get(c + 1);
+				clipVertices[v + 6] = colors.get(c + 2);
+				clipVertices[v + 7] = colorSize > 3 ? colors.get(c + 3) : 1f;
+			}
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Distance of a clip space vertex inside one of the clip planes, negative
+	 * when the vertex is outside. With depth clamping the near and far
+	 * planes are replaced by a single plane just in front of w = 0.
+	 */
+	private float planeDistance(int plane, float[] vertices, int v) {
+		float w = vertices[v + 3];
+		switch (plane) {
+		case 0:
+			return w + vertices[v];
+		case 1:
+			return w - vertices[v];
+		case 2:
+			return w + vertices[v + 1];
+		case 3:
+			return w - vertices[v + 1];
+		case 4:
+			return depthClampEnabled ? w - MIN_CLIP_W : w + vertices[v + 2];
+		default:
+			return depthClampEnabled ? 1f : w - vertices[v + 2];
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private int outcode(float[] vertices, int v) {
+		int code = 0;
+		for (int plane = 0; plane < CLIP_PLANE_COUNT; plane++) {
+			if (planeDistance(plane, vertices, v) < 0f) {
+				code |= 1 << plane;
+			}
+		}
+		return code;
+	}
+
+	//--------------------------------------------------------------------------
+	private void assembleTriangle(int i0, int i1, int i2) {
+		int v0 = i0 * CLIP_VERTEX_FLOATS;
+		int v1 = i1 * CLIP_VERTEX_FLOATS;
+		int v2 = i2 * CLIP_VERTEX_FLOATS;
+		int code0 = outcode(clipVertices, v0);
+		int code1 = outcode(clipVertices, v1);
+		int code2 = outcode(clipVertices, v2);
+		if ((code0 & code1 & code2) != 0) {
+			// Entirely outside one plane.
+			return;
+		}
+
+		System.arraycopy(clipVertices, v0, polygon, 0, CLIP_VERTEX_FLOATS);
+		System.arraycopy(clipVertices, v1, polygon, CLIP_VERTEX_FLOATS, CLIP_VERTEX_FLOATS);
+		System.arraycopy(clipVertices, v2, polygon, 2 * CLIP_VERTEX_FLOATS,
+				CLIP_VERTEX_FLOATS);
+		int crossed = code0 | code1 | code2;
+		if (crossed == 0) {
+			setupTriangle(polygon, 0, CLIP_VERTEX_FLOATS, 2 * CLIP_VERTEX_FLOATS);
+			return;
+		}
+
+		float[] in = polygon;
+		float[] out = clippedPolygon;
+		int vertexCount = 3;
+		for (int plane = 0; plane < CLIP_PLANE_COUNT && vertexCount >= 3; plane++) {
+			if ((crossed & (1 << plane)) != 0) {
+				vertexCount = clipPolygon(plane, in, vertexCount, out);
+				float[] swap = in;
+				in = out;
+				out = swap;
+			}
+		}
+		for (int i = 1; i + 1 < vertexCount; i++) {
+			setupTriangle(in, 0, i * CLIP_VERTEX_FLOATS, (i + 1) * CLIP_VERTEX_FLOATS);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Clips a convex polygon against one plane, returning the number of
+	 * vertices written to <code>out</code>. New vertices are always
+	 * interpolated from the inside vertex of an edge, so an edge shared by two
+	 * triangles is clipped to the same point for both.
+	 */
+	private int clipPolygon(int plane, float[] in, int vertexCount, float[] out) {
+		int outCount = 0;
+		int previous = (vertexCount - 1) * CLIP_VERTEX_FLOATS;
+		float previousDistance = planeDistance(plane, in, previous);
+		for (int i = 0; i < vertexCount; i++) {
+			int current = i * CLIP_VERTEX_FLOATS;
+			float currentDistance = planeDistance(plane, in, current);
+			boolean previousInside = previousDistance >= 0f;
+			boolean currentInside = currentDistance >= 0f;
+
+			if (previousInside != currentInside) {
+				int inside = previousInside ? previous : current;
+				int outside = previousInside ? current : previous;
+				float insideDistance = previousInside ? previousDistance : currentDistance;
+				float outsideDistance = previousInside ? currentDistance : previousDistance;
+				float t = insideDistance / (insideDistance - outsideDistance);
+				int o = outCount * CLIP_VERTEX_FLOATS;
+				for (int k = 0; k < CLIP_VERTEX_FLOATS; k++) {
+					out[o + k] = in[inside + k] + t * (in[outside + k] - in[inside + k]);
+				}
+				outCount++;
+			}
+			if (currentInside) {
+				System.arraycopy(in, current, out, outCount * CLIP_VERTEX_FLOATS,
+						CLIP_VERTEX_FLOATS);
+				outCount++;
+			}
+			previous = current;
+			previousDistance = currentDistance;
+		}
+		return outCount;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Projects a clipped triangle to window coordinates, culls it by facing,
+	 * stores what the tiles need to rasterize it and adds it to the bins of
+	 * the tiles its bounds overlap.
+	 */
+	private void setupTriangle(float[] vertices, int v0, int v1, int v2) {
+		float invW0 = 1f / vertices[v0 + 3];
+		float invW1 = 1f / vertices[v1 + 3];
+		float invW2 = 1f / vertices[v2 + 3];
+
+		float scaleX = 0.5f * width * SUBPIXEL_ONE;
+		float scaleY = 0.5f * height * SUBPIXEL_ONE;
+		int x0 = Math.round((vertices[v0] * invW0 + 1f) * scaleX);
+		int y0 = Math.round((vertices[v0 + 1] * invW0 + 1f) * scaleY);
+		int x1 = Math.round((vertices[v1] * invW1 + 1f) * scaleX);
+		int y1 = Math.round((vertices[v1 + 1] * invW1 + 1f) * scaleY);
+		int x2 = Math.round((vertices[v2] * invW2 + 1f) * scaleX);
+		int y2 = Math.round((vertices[v2 + 1] * invW2 + 1f) * scaleY);
+
+		long area = (long) (x1 - x0) * (y2 - y0) - (long) (y1 - y0) * (x2 - x0);
+		if (area == 0) {
+			return;
+		}
+		boolean frontFacing = (area > 0) == (frontFaceMode == GL_CCW);
+		if (cullEnabled && (cullMode == GL_FRONT_AND_BACK
+				|| (cullMode == GL_BACK) != frontFacing)) {
+			return;
+		}
+		if (area < 0) {
+			// Rasterize with counter-clockwise winding.
+			int swap = v1;
+			v1 = v2;
+			v2 = swap;
+			swap = x1;
+			x1 = x2;
+			x2 = swap;
+			swap = y1;
+			y1 = y2;
+			y2 = swap;
+			float swapW = invW1;
+			invW1 = invW2;
+			invW2 = swapW;
+			area = -area;
+		}
+
+		// Pixels whose centers may lie inside the triangle.
+		int minX = Math.max(0, ceilToPixel(Math.min(x0, Math.min(x1, x2))));
+		int minY = Math.max(0, ceilToPixel(Math.min(y0, Math.min(y1, y2))));
+		int maxX = Math.min(width - 1, floorToPixel(Math.max(x0, Math.max(x1, x2))));
+		int maxY = Math.min(height - 1, floorToPixel(Math.max(y0, Math.max(y1, y2))));
+		if (minX > maxX || minY > maxY) {
+			return;
+		}
+
+		int triangle = triangleCount++;
+		if (triangleInts.length < triangleCount * TRIANGLE_INTS) {
+			int capacity = Math.max(64, 2 * triangleCount);
+			triangleInts = Arrays.copyOf(triangleInts, capacity * TRIANGLE_INTS);
+			triangleFloats = Arrays.copyOf(triangleFloats, capacity * TRIANGLE_FLOATS);
+		}
+
+		int t = triangle * TRIANGLE_INTS;
+		triangleInts[t]     = x0;
+		triangleInts[t + 1] = y0;
+		triangleInts[t + 2] = x1;
+		triangleInts[t + 3] = y1;
+		triangleInts[t + 4] = x2;
+		triangleInts[t + 5] = y2;
+		triangleInts[t + 6] = minX;
+		triangleInts[t + 7] = minY;
+		triangleInts[t + 8] = maxX;
+		triangleInts[t + 9] = maxY;
+
+		int f = triangle * TRIANGLE_FLOATS;
+		triangleFloats[f]     = (float) (1.0 / area);
+		triangleFloats[f + 1] = vertices[v0 + 2] * invW0 * 0.5f + 0.5f;
+		triangleFloats[f + 2] = vertices[v1 + 2] * invW1 * 0.5f + 0.5f;
+		triangleFloats[f + 3] = vertices[v2 + 2] * invW2 * 0.5f + 0.5f;
+		triangleFloats[f + 4] = invW0;
+		triangleFloats[f + 5] = invW1;
+		triangleFloats[f + 6] = invW2;
+		for (int k = 0; k < 4; k++) {
+			triangleFloats[f + 7 + k]  = vertices[v0 + 4 + k] * invW0;
+			triangleFloats[f + 11 + k] = vertices[v1 + 4 + k] * invW1;
+			triangleFloats[f + 15 + k] = vertices[v2 + 4 + k] * invW2;
+		}
+
+		for (int tileY = minY / tileSize; tileY <= maxY / tileSize; tileY++) {
+			for (int tileX = minX / tileSize; tileX <= maxX / tileSize; tileX++) {
+				int tile = tileY * tilesX + tileX;
+				int binCount = tileTriangleCounts[tile];
+				if (binCount == tileTriangles[tile].length) {
+					tileTriangles[tile] = Arrays.copyOf(tileTriangles[tile], 2 * binCount);
+				}
+				tileTriangles[tile][binCount] = triangle;
+				tileTriangleCounts[tile] = binCount + 1;
+			}
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the first pixel whose center is at or after the snapped
+	 *         coordinate <code>value</code>.
+	 */
+	private static int ceilToPixel(int value) {
+		return -((SUBPIXEL_HALF - value) >> SUBPIXEL_BITS);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the last pixel whose center is at or before the snapped
+	 *         coordinate <code>value</code>.
+	 */
+	private static int floorToPixel(int value) {
+		return (value - SUBPIXEL_HALF) >> SUBPIXEL_BITS;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the number of triangles waiting to be rasterized by
+	 *         {@link #finish()}, after clipping and culling.
+	 */
+	public int getPendingTriangleCount() {
+		return triangleCount;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Rasterizes every pending triangle into the color and depth images.
+	 */
+	public void finish() {
+		if (triangleCount == 0) {
+			return;
+		}
+		int tileCount = tilesX * tilesY;
+		if (pool == null || tileCount == 1) {
+			for (int tile = 0; tile < tileCount; tile++) {
+				rasterizeTile(tile);
+			}
+		}
+		else {
+			pool.invoke(new RasterTask(0, tileCount));
+		}
+		triangleCount = 0;
+		Arrays.fill(tileTriangleCounts, 0);
+	}
+
+	//--------------------------------------------------------------------------
+	private class RasterTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final int tileBegin;
+		private final int tileEnd;
+
+		RasterTask(int tileBegin, int tileEnd) {
+			this.tileBegin = tileBegin;
+			this.tileEnd = tileEnd;
+		}
+
+		@Override
+		protected void compute() {
+			if (tileEnd - tileBegin == 1) {
+				rasterizeTile(tileBegin);
+				return;
+			}
+
+			int middle = (tileBegin + tileEnd) >>> 1;
+			invokeAll(new RasterTask(tileBegin, middle),
+					  new RasterTask(middle, tileEnd));
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Draws the triangles binned to one tile, in submission order. Edge
+	 * functions are evaluated in fixed point at pixel centers and stepped
+	 * incrementally; an edge function of zero counts as inside only for top
+	 * and left edges.
+	 */
+	private void rasterizeTile(int tile) {
+		int binCount = tileTriangleCounts[tile];
+		if (binCount == 0) {
+			return;
+		}
+		int[] bin = tileTriangles[tile];
+		int tileMinX = (tile % tilesX) * tileSize;
+		int tileMinY = (tile / tilesX) * tileSize;
+		int tileMaxX = Math.min(tileMinX + tileSize, width) - 1;
+		int tileMaxY = Math.min(tileMinY + tileSize, height) - 1;
+
+		boolean depthTest = depthTestEnabled;
+		boolean depthWrite = depthTestEnabled && depthWriteEnabled;
+		boolean depthEqualPasses = depthFunction != GL_LESS;
+		boolean depthAlwaysPasses = depthFunction == GL_ALWAYS;
+		boolean depthClamp = depthClampEnabled;
+		int[] color = colorBuffer;
+		float[] depth = depthBuffer;
+		int[] ints = triangleInts;
+		float[] floats = triangleFloats;
+
+		for (int b = 0; b < binCount; b++) {
+			int t = bin[b] * TRIANGLE_INTS;
+			int f = bin[b] * TRIANGLE_FLOATS;
+			int minX = Math.max(ints[t + 6], tileMinX);
+			int minY = Math.max(ints[t + 7], tileMinY);
+			int maxX = Math.min(ints[t + 8], tileMaxX);
+			int maxY = Math.min(ints[t + 9], tileMaxY);
+			if (minX > maxX || minY > maxY) {
+				continue;
+			}
+
+			long x0 = ints[t], y0 = ints[t + 1];
+			long x1 = ints[t + 2], y1 = ints[t + 3];
+			long x2 = ints[t + 4], y2 = ints[t + 5];
+
+			// Edge v1 -> v2 weights v0, v2 -> v0 weights v1 and v0 -> v1
+			// weights v2. Each is biased by one when it may not own pixels
+			// exactly on it.
+			long bias0 = isTopLeft(x2 - x1, y2 - y1) ? 0 : 1;
+			long bias1 = isTopLeft(x0 - x2, y0 - y2) ? 0 : 1;
+			long bias2 = isTopLeft(x1 - x0, y1 - y0) ? 0 : 1;
+			long stepX0 = (y1 - y2) * SUBPIXEL_ONE, stepY0 = (x2 - x1) * SUBPIXEL_ONE;
+			long stepX1 = (y2 - y0) * SUBPIXEL_ONE, stepY1 = (x0 - x2) * SUBPIXEL_ONE;
+			long stepX2 = (y0 - y1) * SUBPIXEL_ONE, stepY2 = (x1 - x0) * SUBPIXEL_ONE;
+
+			long px = (long) minX * SUBPIXEL_ONE + SUBPIXEL_HALF;
+			long py = (long) minY * SUBPIXEL_ONE + SUBPIXEL_HALF;
+			long row0 = (x2 - x1) * (py - y1) - (y2 - y1) * (px - x1) - bias0;
+			long row1 = (x0 - x2) * (py - y2) - (y0 - y2) * (px - x2) - bias1;
+			long row2 = (x1 - x0) * (py - y0) - (y1 - y0) * (px - x0) - bias2;
+
+			float invArea = floats[f];
+			float z0 = floats[f + 1], z1 = floats[f + 2], z2 = floats[f + 3];
+			float w0 = floats[f + 4], w1 = floats[f + 5], w2 = floats[f + 6];
+
+			for (int y = minY; y <= maxY; y++) {
+				long e0 = row0, e1 = row1, e2 = row2;
+				int index = y * width + minX;
+				for (int x = minX; x <= maxX; x++, index++) {
+					if ((e0 | e1 | e2) >= 0) {
+						float b0 = (e0 + bias0) * invArea;
+						float b1 = (e1 + bias1) * invArea;
+						float b2 = (e2 + bias2) * invArea;
+
+						// Window depth is affine in screen space.
+						float z = b0 * z0 + b1 * z1 + b2 * z2;
+						if (depthClamp) {
+							z = Math.max(0f, Math.min(1f, z));
+						}
+						if (!depthTest || depthAlwaysPasses || z < depth[index]
+								|| (depthEqualPasses && z == depth[index])) {
+							if (depthWrite) {
+								depth[index] = z;
+							}
+
+							// Attributes divided by w are affine in screen
+							// space; dividing by the interpolated 1 / w
+							// restores them.
+							float wr = 1f / (b0 * w0 + b1 * w1 + b2 * w2);
+							color[index] = packColor(
+									(b0 * floats[f + 7] + b1 * floats[f + 11] + b2 * floats[f + 15]) * wr,
+									(b0 * floats[f + 8] + b1 * floats[f + 12] + b2 * floats[f + 16]) * wr,
+									(b0 * floats[f + 9] + b1 * floats[f + 13] + b2 * floats[f + 17]) * wr,
+									(b0 * floats[f + 10] + b1 * floats[f + 14] + b2 * floats[f + 18]) * wr);
+						}
+					}
+					e0 += stepX0;
+					e1 += stepX1;
+					e2 += stepX2;
+				}
+				row0 += stepY0;
+				row1 += stepY1;
+				row2 += stepY2;
+			}
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * With counter-clockwise winding and y up, left edges point down and top
+	 * edges point in -x.
+	 */
+	private static boolean isTopLeft(long dx, long dy) {
+		return dy < 0 || (dy == 0 && dx < 0);
+	}
+
+	//--------------------------------------------------------------------------
+	private static int packColor(float red, float green, float blue, float alpha) {
+		return (toByte(alpha) << 24) | (toByte(red) << 16) | (toByte(green) << 8)
+				| toByte(blue);
+	}
+
+	//--------------------------------------------------------------------------
+	private static int toByte(float value) {
+		return (int) (Math.max(0f, Math.min(1f, value)) * 255f + 0.5f);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Finishes pending triangles.
+	 *
+	 * @return the color image, bottom row first, with each pixel packed as
+	 *         ARGB. The array is owned by this rasterizer.
+	 */
+	public int[] getColorBuffer() {
+		finish();
+		return colorBuffer;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Finishes pending triangles.
+	 *
+	 * @return the depth image, bottom row first. The array is owned by this
+	 *         rasterizer.
+	 */
+	public float[] getDepthBuffer() {
+		finish();
+		return depthBuffer;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Finishes pending triangles.
+	 *
+	 * @return the color of pixel (x, y), packed as ARGB, with y = 0 the bottom
+	 *         row.
+	 */
+	public int getColor(int x, int y) {
+		finish();
+		return colorBuffer[y * width + x];
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Finishes pending triangles.
+	 *
+	 * @return the depth of pixel (x, y), with y = 0 the bottom row.
+	 */
+	public float getDepth(int x, int y) {
+		finish();
+		return depthBuffer[y * width + x];
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Finishes pending triangles and copies the color image, top row first,
+	 * into a new image that can be written with <code>ImageIO</code>.
+	 */
+	public BufferedImage toColorImage() {
+		finish();
+		BufferedImage image = new BufferedImage(width, height,
+				BufferedImage.TYPE_INT_ARGB);
+		for (int y = 0; y < height; y++) {
+			image.setRGB(0, height - 1 - y, width, 1, colorBuffer, y * width, width);
+		}
+		return image;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Finishes pending triangles and copies the depth image, top row first,
+	 * into a new gray scale image in which black is depth 0 and white is
+	 * depth 1.
+	 */
+	public BufferedImage toDepthImage() {
+		finish();
+		BufferedImage image = new BufferedImage(width, height,
+				BufferedImage.TYPE_BYTE_GRAY);
+		byte[] row = new byte[width];
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				row[x] = (byte) toByte(depthBuffer[y * width + x]);
+			}
+			image.getRaster().setDataElements(0, height - 1 - y, width, 1, row);
+		}
+		return image;
+	}
+}
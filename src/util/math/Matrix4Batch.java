@@ -0,0 +1,433 @@
+package util.math;
+
+import java.nio.FloatBuffer;
+
+import org.lwjgl.util.vector.Matrix4f;
+
+import static util.RuntimeDefines.DEBUG_MODE;
+
+/**
+ * Storage for a fixed number of 4x4 matrices in one flat float array.
+ * <p>
+ * Each matrix occupies 16 consecutive floats in column major order, the
+ * layout GL expects and the one produced by
+ * {@link Matrix4f#store(FloatBuffer)}, with matrix i beginning at index
+ * <code>16 * i</code>. Element (row r, column c) of matrix i is therefore
+ * <code>m[16 * i + 4 * c + r]</code>, which corresponds to the field
+ * <code>mcr</code> of a {@link Matrix4f}. A range of matrices can be copied
+ * into an upload buffer with a single bulk put, or passed to
+ * {@link util.graphics.RenderQueue#addUniformMatrix4(int, float[], int)}
+ * without copying.
+ * <p>
+ * Bulk operations run as tight, allocation free loops over contiguous
+ * memory, and produce the same results as their {@link Matrix4f}
+ * counterparts.
+ *
+ * @author Dustin Biser
+ *
+ */
+public class Matrix4Batch {
+	public static final int FLOATS_PER_MATRIX = 16;
+
+	// Column major matrix elements.
+	public final float[] m;
+
+	private final int capacity;
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Constructs a batch of <code>capacity</code> matrices with all elements
+	 * set to zero.
+	 *
+	 * @param capacity - number of matrices held by this batch.
+	 */
+	public Matrix4Batch(int capacity) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException(
+					"Matrix4Batch capacity cannot be negative.");
+		}
+		this.capacity = capacity;
+
+		m = new float[FLOATS_PER_MATRIX * capacity];
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the number of matrices held by this batch.
+	 */
+	public int capacity() {
+		return capacity;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Copy the elements of <code>src</code> into the matrix at
+	 * <code>index</code>.
+	 *
+	 * @param index
+	 * @param src
+	 */
+	public void set(int index, Matrix4f src) {
+		if (DEBUG_MODE) { validateRange(this, index, 1); }
+
+		int i = FLOATS_PER_MATRIX * index;
+		m[i]      = src.m00;
+		m[i + 1]  = src.m01;
+		m[i + 2]  = src.m02;
+		m[i + 3]  = src.m03;
+		m[i + 4]  = src.m10;
+		m[i + 5]  = src.m11;
+		m[i + 6]  = src.m12;
+		m[i + 7]  = src.m13;
+		m[i + 8]  = src.m20;
+		m[i + 9]  = src.m21;
+		m[i + 10] = src.m22;
+		m[i + 11] = src.m23;
+		m[i + 12] = src.m30;
+		m[i + 13] = src.m31;
+		m[i + 14] = src.m32;
+		m[i + 15] = src.m33;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Copy the elements of the matrix at <code>index</code> into
+	 * <code>dest</code>.
+	 *
+	 * @param index
+	 * @param dest
+	 */
+	public void get(int index, Matrix4f dest) {
+		if (DEBUG_MODE) { validateRange(this, index, 1); }
+
+		int i = FLOATS_PER_MATRIX * index;
+		dest.m00 = m[i];
+		dest.m01 = m[i + 1];
+		dest.m02 = m[i + 2];
+		dest.m03 = m[i + 3];
+		dest.m10 = m[i + 4];
+		dest.m11 = m[i + 5];
+		dest.m12 = m[i + 6];
+		dest.m13 = m[i + 7];
+		dest.m20 = m[i + 8];
+		dest.m21 = m[i + 9];
+		dest.m22 = m[i + 10];
+		dest.m23 = m[i + 11];
+		dest.m30 = m[i + 12];
+		dest.m31 = m[i + 13];
+		dest.m32 = m[i + 14];
+		dest.m33 = m[i + 15];
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Sets <code>count</code> matrices, beginning at <code>start</code>, to
+	 * the identity.
+	 *
+	 * @param start
+	 * @param count
+	 */
+	public void setIdentity(int start, int count) {
+		if (DEBUG_MODE) { validateRange(this, start, count); }
+
+		int end = FLOATS_PER_MATRIX * (start + count);
+		for (int i = FLOATS_PER_MATRIX * start; i < end; i += FLOATS_PER_MATRIX) {
+			for (int j = 0; j < FLOATS_PER_MATRIX; j++) {
+				m[i + j] = 0f;
+			}
+			m[i] = 1f;
+			m[i + 5] = 1f;
+			m[i + 10] = 1f;
+			m[i + 15] = 1f;
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Multiplies <code>count</code> pairs of matrices and stores the results
+	 * in <code>dest</code>. For each k in [0, count):
+	 *
+	 * <pre>
+	 * dest[destStart + k] = lhs[lhsStart + k] * rhs[rhsStart + k]
+	 * </pre>
+	 *
+	 * The batches may alias one another, provided that an aliased source range
+	 * either coincides with the destination range or does not overlap it.
+	 *
+	 * @param lhs
+	 * @param lhsStart
+	 * @param rhs
+	 * @param rhsStart
+	 * @param dest
+	 * @param destStart
+	 * @param count - number of matrix products to compute.
+	 */
+	public static void mult(Matrix4Batch lhs, int lhsStart,
+			Matrix4Batch rhs, int rhsStart,
+			Matrix4Batch dest, int destStart, int count) {
+		if (DEBUG_MODE) {
+			validateRange(lhs, lhsStart, count);
+			validateRange(rhs, rhsStart, count);
+			validateRange(dest, destStart, count);
+		}
+
+		final float[] a = lhs.m;
+		final float[] b = rhs.m;
+		final float[] d = dest.m;
+
+		for (int k = 0; k < count; k++) {
+			int l = FLOATS_PER_MATRIX * (lhsStart + k);
+
+			// The whole left hand side is read before anything is written,
+			// and each destination column only after its source column.
+			multColumns(
+					a[l],      a[l + 1],  a[l + 2],  a[l + 3],
+					a[l + 4],  a[l + 5],  a[l + 6],  a[l + 7],
+					a[l + 8],  a[l + 9],  a[l + 10], a[l + 11],
+					a[l + 12], a[l + 13], a[l + 14], a[l + 15],
+					b, FLOATS_PER_MATRIX * (rhsStart + k),
+					d, FLOATS_PER_MATRIX * (destStart + k));
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Multiplies <code>count</code> matrices on the left by the same matrix,
+	 * such as a combined camera and projection matrix applied to many model
+	 * matrices. For each k in [0, count):
+	 *
+	 * <pre>
+	 * dest[destStart + k] = lhs * rhs[rhsStart + k]
+	 * </pre>
+	 *
+	 * @param lhs
+	 * @param rhs
+	 * @param rhsStart
+	 * @param dest
+	 * @param destStart
+	 * @param count - number of matrix products to compute.
+	 */
+	public static void mult(Matrix4f lhs, Matrix4Batch rhs, int rhsStart,
+			Matrix4Batch dest, int destStart, int count) {
+		if (DEBUG_MODE) {
+			validateRange(rhs, rhsStart, count);
+			validateRange(dest, destStart, count);
+		}
+
+		final float[] b = rhs.m;
+		final float[] d = dest.m;
+
+		for (int k = 0; k < count; k++) {
+			multColumns(
+					lhs.m00, lhs.m01, lhs.m02, lhs.m03,
+					lhs.m10, lhs.m11, lhs.m12, lhs.m13,
+					lhs.m20, lhs.m21, lhs.m22, lhs.m23,
+					lhs.m30, lhs.m31, lhs.m32, lhs.m33,
+					b, FLOATS_PER_MATRIX * (rhsStart + k),
+					d, FLOATS_PER_MATRIX * (destStart + k));
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Computes <code>L * R</code> one column at a time, where L is given by
+	 * its elements in column major order and R is read from
+	 * <code>b[r, r + 16)</code>. Each result column is a linear combination of
+	 * the columns of L, weighted by the corresponding column of R.
+	 */
+	private static void multColumns(
+			float l0,  float l1,  float l2,  float l3,
+			float l4,  float l5,  float l6,  float l7,
+			float l8,  float l9,  float l10, float l11,
+			float l12, float l13, float l14, float l15,
+			float[] b, int r, float[] d, int o) {
+		for (int c = 0; c < FLOATS_PER_MATRIX; c += 4) {
+			float r0 = b[r + c];
+			float r1 = b[r + c + 1];
+			float r2 = b[r + c + 2];
+			float r3 = b[r + c + 3];
+
+			d[o + c]     = l0 * r0 + l4 * r1 + l8  * r2 + l12 * r3;
+			d[o + c + 1] = l1 * r0 + l5 * r1 + l9  * r2 + l13 * r3;
+			d[o + c + 2] = l2 * r0 + l6 * r1 + l10 * r2 + l14 * r3;
+			d[o + c + 3] = l3 * r0 + l7 * r1 + l11 * r2 + l15 * r3;
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Transposes <code>count</code> matrices beginning at <code>start</code>.
+	 *
+	 * @param start
+	 * @param count
+	 */
+	public void transpose(int start, int count) {
+		if (DEBUG_MODE) { validateRange(this, start, count); }
+
+		int end = FLOATS_PER_MATRIX * (start + count);
+		for (int i = FLOATS_PER_MATRIX * start; i < end; i += FLOATS_PER_MATRIX) {
+			float t;
+			t = m[i + 1];  m[i + 1]  = m[i + 4];  m[i + 4]  = t;
+			t = m[i + 2];  m[i + 2]  = m[i + 8];  m[i + 8]  = t;
+			t = m[i + 3];  m[i + 3]  = m[i + 12]; m[i + 12] = t;
+			t = m[i + 6];  m[i + 6]  = m[i + 9];  m[i + 9]  = t;
+			t = m[i + 7];  m[i + 7]  = m[i + 13]; m[i + 13] = t;
+			t = m[i + 11]; m[i + 11] = m[i + 14]; m[i + 14] = t;
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Inverts <code>count</code> affine matrices beginning at
+	 * <code>start</code>, such as model to world transforms composed of
+	 * translations, rotations and scales. The bottom row of each matrix is
+	 * assumed to be (0, 0, 0, 1). Matrices whose upper 3x3 block is singular
+	 * are left unchanged.
+	 *
+	 * @param start
+	 * @param count
+	 */
+	public void inverseAffine(int start, int count) {
+		if (DEBUG_MODE) { validateRange(this, start, count); }
+
+		int end = FLOATS_PER_MATRIX * (start + count);
+		for (int i = FLOATS_PER_MATRIX * start; i < end; i += FLOATS_PER_MATRIX) {
+			// aRC is the element at row R, column C of the 3x3 block.
+			float a00 = m[i],     a10 = m[i + 1], a20 = m[i + 2];
+			float a01 = m[i + 4], a11 = m[i + 5], a21 = m[i + 6];
+			float a02 = m[i + 8], a12 = m[i + 9], a22 = m[i + 10];
+			float tx = m[i + 12], ty = m[i + 13], tz = m[i + 14];
+
+			float c00 = a11 * a22 - a12 * a21;
+			float c10 = a12 * a20 - a10 * a22;
+			float c20 = a10 * a21 - a11 * a20;
+			float det = a00 * c00 + a01 * c10 + a02 * c20;
+
+			// If singular, skip in order to prevent a divide-by-zero.
+			if (Math.abs(det) < MathUtils.EPSILON) {
+				continue;
+			}
+			float s = 1f / det;
+
+			float i00 = c00 * s;
+			float i01 = (a02 * a21 - a01 * a22) * s;
+			float i02 = (a01 * a12 - a02 * a11) * s;
+			float i10 = c10 * s;
+			float i11 = (a00 * a22 - a02 * a20) * s;
+			float i12 = (a02 * a10 - a00 * a12) * s;
+			float i20 = c20 * s;
+			float i21 = (a01 * a20 - a00 * a21) * s;
+			float i22 = (a00 * a11 - a01 * a10) * s;
+
+			m[i]      = i00;
+			m[i + 1]  = i10;
+			m[i + 2]  = i20;
+			m[i + 4]  = i01;
+			m[i + 5]  = i11;
+			m[i + 6]  = i21;
+			m[i + 8]  = i02;
+			m[i + 9]  = i12;
+			m[i + 10] = i22;
+			m[i + 12] = -(i00 * tx + i01 * ty + i02 * tz);
+			m[i + 13] = -(i10 * tx + i11 * ty + i12 * tz);
+			m[i + 14] = -(i20 * tx + i21 * ty + i22 * tz);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Composes <code>count</code> matrices, beginning at <code>start</code>,
+	 * from translations, rotations and scales, so that each matrix scales,
+	 * then rotates, then translates:
+	 *
+	 * <pre>
+	 * this[start + k] = T(translations, k) * R(rotations[rotStart + k]) * S(scales, k)
+	 * </pre>
+	 *
+	 * Translations and scales are read as consecutive (x, y, z) triples.
+	 * Rotations should be unit length, as in
+	 * {@link QuaternionBatch#toRotationMatrix(int, int, float[], int)}.
+	 *
+	 * @param start - index of the first matrix to compose.
+	 * @param count - number of matrices to compose.
+	 * @param translations - translation triples.
+	 * @param translationOffset - index in <code>translations</code> of the
+	 *        first triple.
+	 * @param rotations - rotations.
+	 * @param rotStart - index of the first rotation.
+	 * @param scales - scale triples, or null for no scaling.
+	 * @param scaleOffset - index in <code>scales</code> of the first triple.
+	 */
+	public void composeTRS(int start, int count,
+			float[] translations, int translationOffset,
+			QuaternionBatch rotations, int rotStart,
+			float[] scales, int scaleOffset) {
+		if (DEBUG_MODE) { validateRange(this, start, count); }
+
+		final float[] qxs = rotations.x, qys = rotations.y;
+		final float[] qzs = rotations.z, qws = rotations.w;
+
+		for (int k = 0; k < count; k++) {
+			int d = FLOATS_PER_MATRIX * (start + k);
+			int t = translationOffset + 3 * k;
+			int q = rotStart + k;
+			float qx = qxs[q], qy = qys[q], qz = qzs[q], qw = qws[q];
+			float s = 2f / (float) Math.sqrt(qx*qx + qy*qy + qz*qz + qw*qw);
+
+			float sx = 1f, sy = 1f, sz = 1f;
+			if (scales != null) {
+				int o = scaleOffset + 3 * k;
+				sx = scales[o];
+				sy = scales[o + 1];
+				sz = scales[o + 2];
+			}
+
+			m[d]      = (1 - s * (qy * qy + qz * qz)) * sx;
+			m[d + 1]  = s * (qx * qy + qw * qz) * sx;
+			m[d + 2]  = s * (qx * qz - qw * qy) * sx;
+			m[d + 3]  = 0f;
+
+			m[d + 4]  = s * (qx * qy - qw * qz) * sy;
+			m[d + 5]  = (1 - s * (qx * qx + qz * qz)) * sy;
+			m[d + 6]  = s * (qy * qz + qw * qx) * sy;
+			m[d + 7]  = 0f;
+
+			m[d + 8]  = s * (qx * qz + qw * qy) * sz;
+			m[d + 9]  = s * (qy * qz - qw * qx) * sz;
+			m[d + 10] = (1 - s * (qx * qx + qy * qy)) * sz;
+			m[d + 11] = 0f;
+
+			m[d + 12] = translations[t];
+			m[d + 13] = translations[t + 1];
+			m[d + 14] = translations[t + 2];
+			m[d + 15] = 1f;
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Writes <code>count</code> matrices, beginning at <code>start</code>,
+	 * into <code>dest</code> at its position with one bulk put, and advances
+	 * the position. <code>dest</code> may be a buffer mapped from a GL buffer
+	 * object, so that the matrices are written straight to upload memory.
+	 *
+	 * @param start
+	 * @param count
+	 * @param dest
+	 */
+	public void store(int start, int count, FloatBuffer dest) {
+		if (DEBUG_MODE) { validateRange(this, start, count); }
+
+		dest.put(m, FLOATS_PER_MATRIX * start, FLOATS_PER_MATRIX * count);
+	}
+
+	//--------------------------------------------------------------------------
+	private static void validateRange(Matrix4Batch batch, int start, int count) {
+		if (start < 0 || count < 0 || start + count > batch.capacity) {
+			throw new IndexOutOfBoundsException("Range [" + start + ", "
+					+ (start + count) + ") is outside of Matrix4Batch with capacity "
+					+ batch.capacity + ".");
+		}
+	}
+
+}
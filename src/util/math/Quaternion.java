@@ -29,6 +29,10 @@ public class Quaternion {
 	// Temporary vector to aid in rotation calculations.
 	private static final Vector4f vRotTemp = new Vector4f();
 	
+	// Cosine of the angle between two Quaternions above which slerp falls
+	// back to nlerp, in order to avoid dividing by a vanishing sin(theta).
+	static final float SLERP_NLERP_THRESHOLD = 0.9995f;
+	
 	//--------------------------------------------------------------------------
 	/**
 	 * Default constructor.
@@ -385,6 +389,135 @@ public class Quaternion {
 		return result;
 	}
 	
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the 4-component dot product of <code>lhs</code> and
+	 *         <code>rhs</code>.
+	 */
+	public static float dot(Quaternion lhs, Quaternion rhs) {
+		return lhs.x * rhs.x + lhs.y * rhs.y + lhs.z * rhs.z + lhs.w * rhs.w;
+	}
+	
+	//--------------------------------------------------------------------------
+	/**
+	 * Normalized linear interpolation from <code>from</code> to <code>to</code>
+	 * along the shortest path, with the result stored in <code>dest</code>.
+	 * Cheaper than {@link #slerp(Quaternion, Quaternion, float, Quaternion)},
+	 * but does not interpolate at constant angular velocity.
+	 * 
+	 * @param from - rotation at t = 0.
+	 * @param to - rotation at t = 1.
+	 * @param t - interpolation parameter in [0, 1].
+	 * @param dest - destination Quaternion, which may alias either input.
+	 */
+	public static void nlerp(Quaternion from, Quaternion to, float t, Quaternion dest) {
+		nlerp(from.x, from.y, from.z, from.w, to.x, to.y, to.z, to.w, t, dest);
+	}
+	
+	//--------------------------------------------------------------------------
+	/**
+	 * Spherical linear interpolation from unit Quaternion <code>from</code> to
+	 * unit Quaternion <code>to</code> along the shortest path, with the result
+	 * stored in <code>dest</code>.
+	 * 
+	 * @param from - rotation at t = 0.
+	 * @param to - rotation at t = 1.
+	 * @param t - interpolation parameter in [0, 1].
+	 * @param dest - destination Quaternion, which may alias either input.
+	 */
+	public static void slerp(Quaternion from, Quaternion to, float t, Quaternion dest) {
+		slerp(from.x, from.y, from.z, from.w, to.x, to.y, to.z, to.w, t, true, dest);
+	}
+	
+	//--------------------------------------------------------------------------
+	/**
+	 * Spherical quadrangle interpolation between unit Quaternions
+	 * <code>q1</code> and <code>q2</code>, using the inner control points
+	 * <code>a1</code> and <code>a2</code>, with the result stored in
+	 * <code>dest</code>. Equivalent to:
+	 * 
+	 * <pre>
+	 * slerp(slerp(q1, q2, t), slerp(a1, a2, t), 2t(1 - t))
+	 * </pre>
+	 * 
+	 * @param q1 - rotation at t = 0.
+	 * @param q2 - rotation at t = 1.
+	 * @param a1 - control point following <code>q1</code>.
+	 * @param a2 - control point preceding <code>q2</code>.
+	 * @param t - interpolation parameter in [0, 1].
+	 * @param dest - destination Quaternion, which may alias any input.
+	 */
+	public static void squad(Quaternion q1, Quaternion q2, Quaternion a1,
+			Quaternion a2, float t, Quaternion dest) {
+		float q1x = q1.x, q1y = q1.y, q1z = q1.z, q1w = q1.w;
+		float q2x = q2.x, q2y = q2.y, q2z = q2.z, q2w = q2.w;
+		
+		// dest = slerp(a1, a2, t)
+		slerp(a1.x, a1.y, a1.z, a1.w, a2.x, a2.y, a2.z, a2.w, t, true, dest);
+		float ax = dest.x, ay = dest.y, az = dest.z, aw = dest.w;
+		
+		// dest = slerp(q1, q2, t)
+		slerp(q1x, q1y, q1z, q1w, q2x, q2y, q2z, q2w, t, true, dest);
+		
+		// The outer interpolation must not take the shortest path, or the
+		// curve becomes discontinuous where the two inner results cross over.
+		slerp(dest.x, dest.y, dest.z, dest.w, ax, ay, az, aw,
+				2f * t * (1f - t), false, dest);
+	}
+	
+	//--------------------------------------------------------------------------
+	static void nlerp(float ax, float ay, float az, float aw,
+			float bx, float by, float bz, float bw, float t, Quaternion dest) {
+		// Negate b when needed, so that interpolation takes the shortest path.
+		float dot = ax * bx + ay * by + az * bz + aw * bw;
+		float s0 = 1f - t;
+		float s1 = (dot < 0f) ? -t : t;
+		
+		float x = s0 * ax + s1 * bx;
+		float y = s0 * ay + s1 * by;
+		float z = s0 * az + s1 * bz;
+		float w = s0 * aw + s1 * bw;
+		
+		float s = 1f / (float) Math.sqrt(x*x + y*y + z*z + w*w);
+		dest.x = x * s;
+		dest.y = y * s;
+		dest.z = z * s;
+		dest.w = w * s;
+		
+		dest.invalidateRotationMatrix();
+	}
+	
+	//--------------------------------------------------------------------------
+	static void slerp(float ax, float ay, float az, float aw,
+			float bx, float by, float bz, float bw, float t,
+			boolean shortestPath, Quaternion dest) {
+		float cosTheta = ax * bx + ay * by + az * bz + aw * bw;
+		float sign = 1f;
+		
+		if (shortestPath && cosTheta < 0f) {
+			cosTheta = -cosTheta;
+			sign = -1f;
+		}
+		
+		// Nearly parallel inputs make sin(theta) vanish, so fall back to nlerp.
+		if (Math.abs(cosTheta) > SLERP_NLERP_THRESHOLD) {
+			nlerp(ax, ay, az, aw, sign * bx, sign * by, sign * bz, sign * bw, t, dest);
+			return;
+		}
+		
+		float theta = (float) Math.acos(cosTheta);
+		float invSinTheta = 1f / (float) Math.sqrt(1f - cosTheta * cosTheta);
+		float s0 = (float) Math.sin((1f - t) * theta) * invSinTheta;
+		float s1 = sign * (float) Math.sin(t * theta) * invSinTheta;
+		
+		dest.x = s0 * ax + s1 * bx;
+		dest.y = s0 * ay + s1 * by;
+		dest.z = s0 * az + s1 * bz;
+		dest.w = s0 * aw + s1 * bw;
+		
+		dest.invalidateRotationMatrix();
+	}
+	
 	//--------------------------------------------------------------------------
 	/**
 	 * Creates a new {@link Matrix4f} and sets its elements to represent
@@ -431,7 +564,7 @@ public class Quaternion {
 	}
 	
 	//--------------------------------------------------------------------------
-	private void invalidateRotationMatrix() {
+	void invalidateRotationMatrix() {
 	    rotationMatrixNeedsUpdate = true;
 	}
 	
@@ -500,29 +633,27 @@ public class Quaternion {
 		}
 		
 		if(rotationMatrixNeedsUpdate) {
-		    rotationMatrix = this.toRotationMatrix();
+		    this.toRotationMatrix(rotationMatrix);
 		}
 		
 		Matrix4f.transform(rotationMatrix, vec, vec);
 	}
 	
 	//--------------------------------------------------------------------------
+	/**
+	 * Modifies the elements of this {@link Quaternion} so that it represents
+	 * the rotation whose matrix has the columns <code>xAxis</code>,
+	 * <code>yAxis</code> and <code>zAxis</code>. Assumes the axes are
+	 * orthonormal.
+	 * 
+	 * @param xAxis
+	 * @param yAxis
+	 * @param zAxis
+	 */
 	public void fromAxes(Vector3f xAxis, Vector3f yAxis, Vector3f zAxis) {
-		Matrix4f rotationMatrix = new Matrix4f();
-		
-		rotationMatrix.m00 = xAxis.x;
-		rotationMatrix.m01 = xAxis.y;
-		rotationMatrix.m02 = xAxis.z;
-		
-		rotationMatrix.m10 = yAxis.x;
-		rotationMatrix.m11 = yAxis.y;
-		rotationMatrix.m12 = yAxis.z;
-		
-		rotationMatrix.m20 = zAxis.x;
-		rotationMatrix.m21 = zAxis.y;
-		rotationMatrix.m22 = zAxis.z;
-		
-		this.fromRotationMatrix(rotationMatrix);
+		fromRotationMatrix(xAxis.x, xAxis.y, xAxis.z,
+		                   yAxis.x, yAxis.y, yAxis.z,
+		                   zAxis.x, zAxis.y, zAxis.z, 1f);
 	}
 	
 	//--------------------------------------------------------------------------
@@ -534,6 +665,16 @@ public class Quaternion {
      * @param mat - the rotation matrix
      */
     public void fromRotationMatrix(Matrix4f mat) {
+        fromRotationMatrix(mat.m00, mat.m01, mat.m02,
+                           mat.m10, mat.m11, mat.m12,
+                           mat.m20, mat.m21, mat.m22, mat.m33);
+    }
+    
+	//--------------------------------------------------------------------------
+    private void fromRotationMatrix(float m00, float m01, float m02,
+                                    float m10, float m11, float m12,
+                                    float m20, float m21, float m22,
+                                    float m33) {
 	    /*
 	     * Ken Shoemake's algorithm.
 	     * This algorithm avoids near-zero divides by looking for a large component
@@ -543,7 +684,7 @@ public class Quaternion {
 	     * |y|, or |z|, one of which must be larger than |w|, and at least 1/2.
 	     * 
 	     */
-        float trace = mat.m00 + mat.m11 + mat.m22 + mat.m33;
+        float trace = m00 + m11 + m22 + m33;
         float s;
         
         if (trace >= 0.0f) {
@@ -551,54 +692,57 @@ public class Quaternion {
             w = 0.5f * s;
             s = 1f / (4f*w);
             
-            x = (mat.m12 - mat.m21) * s;
-            y = (mat.m20 - mat.m02) * s;
-            z = (mat.m01 - mat.m10) * s;
+            x = (m12 - m21) * s;
+            y = (m20 - m02) * s;
+            z = (m01 - m10) * s;
     	}
         else {
             // Map indices to values: 0->|x|, 1->|y|, 2->|z|.
-            float matDiag[] = {mat.m11, mat.m22};
             int index = 0;
+            float largestDiag = m00;
             
             // Determine the largest magnitude: |x|, |y|, or |z|.
-            if (mat.m11 > mat.m00) index = 1;           // |y| > |x|
-            if (mat.m22 > matDiag[index]) index = 2;    // |z| > |x| or |z| > |y|
+            if (m11 > largestDiag) {         // |y| > |x|
+                index = 1;
+                largestDiag = m11;
+            }
+            if (m22 > largestDiag) index = 2;  // |z| > |x| or |z| > |y|
             
             switch(index) {
             case 0:
                 // |x| is largest.
-                s = (float)Math.sqrt(mat.m00 - (mat.m11 + mat.m22) + mat.m33);
+                s = (float)Math.sqrt(m00 - (m11 + m22) + m33);
                 x = s * 0.5f;
-                w = (mat.m12 - mat.m21) / (4f * x);
+                w = (m12 - m21) / (4f * x);
                 s = 1 / (4f * w);
-                y = (mat.m20 - mat.m02) * s;
-                z = (mat.m01 - mat.m10) * s;
+                y = (m20 - m02) * s;
+                z = (m01 - m10) * s;
                 break;
                 
             case 1:
                 // |y| is largest.
-                s = (float)Math.sqrt(mat.m11 - (mat.m00 + mat.m22) + mat.m33);
+                s = (float)Math.sqrt(m11 - (m00 + m22) + m33);
                 y = s * 0.5f;
-                w = (mat.m20 - mat.m02) / (4f * y);
+                w = (m20 - m02) / (4f * y);
                 s = 1 / (4f * w);
-                x = (mat.m12 - mat.m21) * s;
-                z = (mat.m01 - mat.m10) * s;
+                x = (m12 - m21) * s;
+                z = (m01 - m10) * s;
                 break;
                 
             case 2:
                 // |z| is largest.
-                s = (float)Math.sqrt(mat.m22 - (mat.m00 + mat.m11) + mat.m33);
+                s = (float)Math.sqrt(m22 - (m00 + m11) + m33);
                 z = s * 0.5f;
-                w = (mat.m01 - mat.m10) / (4f * z);
+                w = (m01 - m10) / (4f * z);
                 s = 1 / (4f * w);
-                x = (mat.m12 - mat.m21) * s;
-                y = (mat.m20 - mat.m02) * s;
+                x = (m12 - m21) * s;
+                y = (m20 - m02) * s;
                 break;
             }
         }
         
-        if (mat.m33 != 1.0f){
-           s = (float)(1f / Math.sqrt(mat.m33));
+        if (m33 != 1.0f){
+           s = (float)(1f / Math.sqrt(m33));
            this.scale(s);
         }
         
@@ -0,0 +1,374 @@
+package util.math;
+
+import org.lwjgl.util.vector.Matrix4f;
+import org.lwjgl.util.vector.Vector3f;
+
+import static util.RuntimeDefines.DEBUG_MODE;
+
+/**
+ * Structure-of-arrays storage for a fixed number of {@link Quaternion}s.
+ * <p>
+ * The imaginary parts x, y, z and the scalar part w of each Quaternion are
+ * kept in four parallel float arrays, so bulk operations over an index range
+ * run as tight, allocation free loops over contiguous memory. Each bulk
+ * operation produces the same results as its scalar counterpart in
+ * {@link Quaternion}.
+ *
+ * @author Dustin Biser
+ *
+ */
+public class QuaternionBatch {
+	// Imaginary components.
+	public final float[] x;
+	public final float[] y;
+	public final float[] z;
+
+	// Real components.
+	public final float[] w;
+
+	private final int capacity;
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Constructs a batch of <code>capacity</code> Quaternions with all
+	 * components set to zero.
+	 *
+	 * @param capacity - number of Quaternions held by this batch.
+	 */
+	public QuaternionBatch(int capacity) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException(
+					"QuaternionBatch capacity cannot be negative.");
+		}
+		this.capacity = capacity;
+
+		x = new float[capacity];
+		y = new float[capacity];
+		z = new float[capacity];
+		w = new float[capacity];
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the number of Quaternions held by this batch.
+	 */
+	public int capacity() {
+		return capacity;
+	}
+
+	//--------------------------------------------------------------------------
+	public void set(int index, float x, float y, float z, float w) {
+		this.x[index] = x;
+		this.y[index] = y;
+		this.z[index] = z;
+		this.w[index] = w;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Copy the components of <code>src</code> into the Quaternion at
+	 * <code>index</code>.
+	 *
+	 * @param index
+	 * @param src
+	 */
+	public void set(int index, Quaternion src) {
+		set(index, src.x, src.y, src.z, src.w);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Copy the components of the Quaternion at <code>index</code> into
+	 * <code>dest</code>.
+	 *
+	 * @param index
+	 * @param dest
+	 */
+	public void get(int index, Quaternion dest) {
+		dest.x = x[index];
+		dest.y = y[index];
+		dest.z = z[index];
+		dest.w = w[index];
+
+		dest.invalidateRotationMatrix();
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Sets <code>count</code> Quaternions, beginning at <code>start</code>, to
+	 * the identity rotation (0, 0, 0, 1).
+	 *
+	 * @param start
+	 * @param count
+	 */
+	public void setIdentity(int start, int count) {
+		if (DEBUG_MODE) { validateRange(this, start, count); }
+
+		int end = start + count;
+		for (int i = start; i < end; i++) {
+			x[i] = 0f;
+			y[i] = 0f;
+			z[i] = 0f;
+			w[i] = 1f;
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Multiplies <code>count</code> pairs of Quaternions and stores the results
+	 * in <code>dest</code>. For each k in [0, count):
+	 *
+	 * <pre>
+	 * dest[destStart + k] = lhs[lhsStart + k] * rhs[rhsStart + k]
+	 * </pre>
+	 *
+	 * The batches may alias one another, provided that an aliased source range
+	 * either coincides with the destination range or does not overlap it.
+	 *
+	 * @param lhs
+	 * @param lhsStart
+	 * @param rhs
+	 * @param rhsStart
+	 * @param dest
+	 * @param destStart
+	 * @param count - number of Quaternion products to compute.
+	 */
+	public static void mult(QuaternionBatch lhs, int lhsStart,
+			QuaternionBatch rhs, int rhsStart,
+			QuaternionBatch dest, int destStart, int count) {
+		if (DEBUG_MODE) {
+			validateRange(lhs, lhsStart, count);
+			validateRange(rhs, rhsStart, count);
+			validateRange(dest, destStart, count);
+		}
+
+		final float[] lx = lhs.x, ly = lhs.y, lz = lhs.z, lw = lhs.w;
+		final float[] rx = rhs.x, ry = rhs.y, rz = rhs.z, rw = rhs.w;
+		final float[] dx = dest.x, dy = dest.y, dz = dest.z, dw = dest.w;
+
+		for (int k = 0; k < count; k++) {
+			int l = lhsStart + k;
+			int r = rhsStart + k;
+			int d = destStart + k;
+
+			float x = (ly[l] * rz[r]) - (lz[l] * ry[r]) + (rw[r] * lx[l]) + (lw[l] * rx[r]);
+			float y = (lz[l] * rx[r]) - (lx[l] * rz[r]) + (rw[r] * ly[l]) + (lw[l] * ry[r]);
+			float z = (lx[l] * ry[r]) - (ly[l] * rx[r]) + (rw[r] * lz[l]) + (lw[l] * rz[r]);
+			float w = (lw[l] * rw[r]) - (lx[l] * rx[r]) - (ly[l] * ry[r]) - (lz[l] * rz[r]);
+
+			dx[d] = x;
+			dy[d] = y;
+			dz[d] = z;
+			dw[d] = w;
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Normalizes <code>count</code> Quaternions beginning at
+	 * <code>start</code>.
+	 *
+	 * @param start
+	 * @param count
+	 */
+	public void normalize(int start, int count) {
+		if (DEBUG_MODE) { validateRange(this, start, count); }
+
+		int end = start + count;
+		for (int i = start; i < end; i++) {
+			float s = 1f / (float) Math.sqrt(
+					x[i]*x[i] + y[i]*y[i] + z[i]*z[i] + w[i]*w[i]);
+
+			x[i] *= s;
+			y[i] *= s;
+			z[i] *= s;
+			w[i] *= s;
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Conjugates <code>count</code> Quaternions beginning at
+	 * <code>start</code>.
+	 *
+	 * @param start
+	 * @param count
+	 */
+	public void conjugate(int start, int count) {
+		if (DEBUG_MODE) { validateRange(this, start, count); }
+
+		int end = start + count;
+		for (int i = start; i < end; i++) {
+			x[i] *= -1;
+			y[i] *= -1;
+			z[i] *= -1;
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Inverts <code>count</code> Quaternions beginning at <code>start</code>.
+	 * Quaternions with zero length are left unchanged.
+	 *
+	 * @param start
+	 * @param count
+	 */
+	public void inverse(int start, int count) {
+		if (DEBUG_MODE) { validateRange(this, start, count); }
+
+		int end = start + count;
+		for (int i = start; i < end; i++) {
+			float normSquared = x[i]*x[i] + y[i]*y[i] + z[i]*z[i] + w[i]*w[i];
+
+			// If zero length, skip in order to prevent a divide-by-zero.
+			if (normSquared < MathUtils.EPSILON) {
+				continue;
+			}
+			float s = 1f / normSquared;
+
+			x[i] = -x[i] * s;
+			y[i] = -y[i] * s;
+			z[i] = -z[i] * s;
+			w[i] *= s;
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Rotates <code>count</code> vectors using the Quaternions of this batch.
+	 * For each k in [0, count), <code>vecs[vecStart + k]</code> is rotated by
+	 * the Quaternion at <code>start + k</code>. Rotation by a zero length
+	 * Quaternion leaves the vector unchanged.
+	 *
+	 * @param start - index of the first Quaternion to rotate by.
+	 * @param vecs - vectors to be rotated in place.
+	 * @param vecStart - index of the first vector to be rotated.
+	 * @param count - number of vectors to rotate.
+	 */
+	public void rotate(int start, Vector3f[] vecs, int vecStart, int count) {
+		if (DEBUG_MODE) { validateRange(this, start, count); }
+
+		for (int k = 0; k < count; k++) {
+			int i = start + k;
+			float qx = x[i], qy = y[i], qz = z[i], qw = w[i];
+
+			float normSquared = qx*qx + qy*qy + qz*qz + qw*qw;
+			if (normSquared < MathUtils.EPSILON) {
+				continue;
+			}
+			float s = 2f / (float) Math.sqrt(normSquared);
+
+			float m00 = 1 - s * (qy * qy + qz * qz);
+			float m01 = s * (qx * qy + qw * qz);
+			float m02 = s * (qx * qz - qw * qy);
+
+			float m10 = s * (qx * qy - qw * qz);
+			float m11 = 1 - s * (qx * qx + qz * qz);
+			float m12 = s * (qy * qz + qw * qx);
+
+			float m20 = s * (qx * qz + qw * qy);
+			float m21 = s * (qy * qz - qw * qx);
+			float m22 = 1 - s * (qx * qx + qy * qy);
+
+			Vector3f v = vecs[vecStart + k];
+			float vx = v.x, vy = v.y, vz = v.z;
+
+			v.x = m00 * vx + m10 * vy + m20 * vz;
+			v.y = m01 * vx + m11 * vy + m21 * vz;
+			v.z = m02 * vx + m12 * vy + m22 * vz;
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Stores the rotation matrix representations of <code>count</code>
+	 * Quaternions, beginning at <code>start</code>, in the
+	 * {@link Matrix4f}s <code>dest[destStart]</code> through
+	 * <code>dest[destStart + count - 1]</code>. Only the upper 3x3 block of
+	 * each destination matrix is written.
+	 *
+	 * @param start
+	 * @param count
+	 * @param dest
+	 * @param destStart
+	 */
+	public void toRotationMatrix(int start, int count, Matrix4f[] dest,
+			int destStart) {
+		if (DEBUG_MODE) { validateRange(this, start, count); }
+
+		for (int k = 0; k < count; k++) {
+			int i = start + k;
+			float qx = x[i], qy = y[i], qz = z[i], qw = w[i];
+			float s = 2f / (float) Math.sqrt(qx*qx + qy*qy + qz*qz + qw*qw);
+
+			Matrix4f m = dest[destStart + k];
+
+			m.m00 = 1 - s * (qy * qy + qz * qz);
+			m.m01 = s * (qx * qy + qw * qz);
+			m.m02 = s * (qx * qz - qw * qy);
+
+			m.m10 = s * (qx * qy - qw * qz);
+			m.m11 = 1 - s * (qx * qx + qz * qz);
+			m.m12 = s * (qy * qz + qw * qx);
+
+			m.m20 = s * (qx * qz + qw * qy);
+			m.m21 = s * (qy * qz - qw * qx);
+			m.m22 = 1 - s * (qx * qx + qy * qy);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Stores the rotation matrix representations of <code>count</code>
+	 * Quaternions, beginning at <code>start</code>, into <code>dest</code>.
+	 * Each matrix occupies 16 consecutive floats in column major order, the
+	 * same layout produced by {@link Matrix4f#store(java.nio.FloatBuffer)},
+	 * with the first matrix beginning at <code>destOffset</code>.
+	 *
+	 * @param start
+	 * @param count
+	 * @param dest
+	 * @param destOffset
+	 */
+	public void toRotationMatrix(int start, int count, float[] dest,
+			int destOffset) {
+		if (DEBUG_MODE) { validateRange(this, start, count); }
+
+		int d = destOffset;
+		for (int k = 0; k < count; k++, d += 16) {
+			int i = start + k;
+			float qx = x[i], qy = y[i], qz = z[i], qw = w[i];
+			float s = 2f / (float) Math.sqrt(qx*qx + qy*qy + qz*qz + qw*qw);
+
+			dest[d]      = 1 - s * (qy * qy + qz * qz);
+			dest[d + 1]  = s * (qx * qy + qw * qz);
+			dest[d + 2]  = s * (qx * qz - qw * qy);
+			dest[d + 3]  = 0f;
+
+			dest[d + 4]  = s * (qx * qy - qw * qz);
+			dest[d + 5]  = 1 - s * (qx * qx + qz * qz);
+			dest[d + 6]  = s * (qy * qz + qw * qx);
+			dest[d + 7]  = 0f;
+
+			dest[d + 8]  = s * (qx * qz + qw * qy);
+			dest[d + 9]  = s * (qy * qz - qw * qx);
+			dest[d + 10] = 1 - s * (qx * qx + qy * qy);
+			dest[d + 11] = 0f;
+
+			dest[d + 12] = 0f;
+			dest[d + 13] = 0f;
+			dest[d + 14] = 0f;
+			dest[d + 15] = 1f;
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private static void validateRange(QuaternionBatch batch, int start, int count) {
+		if (start < 0 || count < 0 || start + count > batch.capacity) {
+			throw new IndexOutOfBoundsException("Range [" + start + ", "
+					+ (start + count) + ") is outside of QuaternionBatch with capacity "
+					+ batch.capacity + ".");
+		}
+	}
+
+}
@@ -0,0 +1,217 @@
+package util.math;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import util.Parallel;
+
+import static util.RuntimeDefines.DEBUG_MODE;
+
+/**
+ * Bulk spherical interpolation between arrays of keyframe pairs.
+ * <p>
+ * For each index i in a range, the interpolator blends <code>from[i]</code>
+ * towards <code>to[i]</code> by <code>t[i]</code> and stores the result in
+ * <code>dest[i]</code>, in a single pass over {@link QuaternionBatch} storage.
+ * Keyframe pairs whose rotations differ by less than the nlerp angle threshold
+ * are blended with normalized linear interpolation, which is much cheaper than
+ * slerp and visually indistinguishable for small angles. Ranges larger than the
+ * parallel threshold are split across a {@link ForkJoinPool}.
+ *
+ * @author Dustin Biser
+ *
+ */
+public class QuaternionInterpolator {
+	/**
+	 * Default rotation angle, in radians, below which keyframe pairs are
+	 * blended with nlerp instead of slerp. At this angle nlerp deviates from
+	 * slerp by less than 1e-4 radians.
+	 */
+	public static final float DEFAULT_NLERP_ANGLE_THRESHOLD = 0.25f;
+
+	/**
+	 * Default number of elements below which a range is interpolated on the
+	 * calling thread.
+	 */
+	public static final int DEFAULT_PARALLEL_THRESHOLD = 16384;
+
+	private final ForkJoinPool pool;
+	private final float nlerpCosThreshold;
+	private final int parallelThreshold;
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Constructs an interpolator using the default thresholds and the
+	 * {@link Parallel#getPool() shared pool}.
+	 */
+	public QuaternionInterpolator() {
+		this(DEFAULT_NLERP_ANGLE_THRESHOLD, DEFAULT_PARALLEL_THRESHOLD, Parallel.getPool());
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param nlerpAngleThreshold - rotation angle in radians between a keyframe
+	 *        pair, below which the pair is blended with nlerp. Pass 0 to always
+	 *        use slerp.
+	 * @param parallelThreshold - number of elements below which a range is
+	 *        interpolated on the calling thread.
+	 * @param pool - pool used to interpolate large ranges in parallel.
+	 */
+	public QuaternionInterpolator(float nlerpAngleThreshold,
+			int parallelThreshold, ForkJoinPool pool) {
+		if (nlerpAngleThreshold < 0f) {
+			throw new IllegalArgumentException(
+					"nlerpAngleThreshold cannot be negative.");
+		}
+		if (parallelThreshold < 1) {
+			throw new IllegalArgumentException(
+					"parallelThreshold must be at least 1.");
+		}
+
+		// Two unit Quaternions q and p represent rotations that differ by
+		// angle a when |dot(q, p)| == cos(a / 2). Never slerp closer than the
+		// scalar slerp does, where sin(theta) becomes too small to divide by.
+		this.nlerpCosThreshold = Math.min(
+				(float) Math.cos(0.5 * nlerpAngleThreshold),
+				Quaternion.SLERP_NLERP_THRESHOLD);
+		this.parallelThreshold = parallelThreshold;
+		this.pool = pool;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Interpolates <code>count</code> keyframe pairs beginning at
+	 * <code>start</code>. For each i in [start, start + count):
+	 *
+	 * <pre>
+	 * dest[i] = slerp(from[i], to[i], t[i])
+	 * </pre>
+	 *
+	 * <code>dest</code> may be the same batch as <code>from</code> or
+	 * <code>to</code>.
+	 *
+	 * @param from - unit Quaternions at t = 0.
+	 * @param to - unit Quaternions at t = 1.
+	 * @param t - per element interpolation parameters in [0, 1].
+	 * @param dest - destination for the interpolated Quaternions.
+	 * @param start - index of the first element to interpolate.
+	 * @param count - number of elements to interpolate.
+	 */
+	public void slerp(QuaternionBatch from, QuaternionBatch to, float[] t,
+			QuaternionBatch dest, int start, int count) {
+		if (DEBUG_MODE) {
+			validateRange(from.capacity(), start, count);
+			validateRange(to.capacity(), start, count);
+			validateRange(dest.capacity(), start, count);
+			validateRange(t.length, start, count);
+		}
+
+		if (count < parallelThreshold) {
+			slerpRange(from, to, t, dest, start, start + count);
+		}
+		else {
+			pool.invoke(new SlerpTask(from, to, t, dest, start, start + count));
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private void slerpRange(QuaternionBatch from, QuaternionBatch to,
+			float[] t, QuaternionBatch dest, int begin, int end) {
+		final float[] ax = from.x, ay = from.y, az = from.z, aw = from.w;
+		final float[] bx = to.x, by = to.y, bz = to.z, bw = to.w;
+		final float[] dx = dest.x, dy = dest.y, dz = dest.z, dw = dest.w;
+		final float cosThreshold = nlerpCosThreshold;
+
+		for (int i = begin; i < end; i++) {
+			float cosTheta = ax[i] * bx[i] + ay[i] * by[i] + az[i] * bz[i] + aw[i] * bw[i];
+			float ti = t[i];
+
+			// Negate the 'to' keyframe when needed, so that interpolation
+			// takes the shortest path.
+			float sign = 1f;
+			if (cosTheta < 0f) {
+				cosTheta = -cosTheta;
+				sign = -1f;
+			}
+
+			float s0;
+			float s1;
+			boolean normalize;
+			if (cosTheta > cosThreshold) {
+				s0 = 1f - ti;
+				s1 = sign * ti;
+				normalize = true;
+			}
+			else {
+				float theta = (float) Math.acos(cosTheta);
+				float invSinTheta = 1f / (float) Math.sqrt(1f - cosTheta * cosTheta);
+				s0 = (float) Math.sin((1f - ti) * theta) * invSinTheta;
+				s1 = sign * (float) Math.sin(ti * theta) * invSinTheta;
+				normalize = false;
+			}
+
+			float x = s0 * ax[i] + s1 * bx[i];
+			float y = s0 * ay[i] + s1 * by[i];
+			float z = s0 * az[i] + s1 * bz[i];
+			float w = s0 * aw[i] + s1 * bw[i];
+
+			if (normalize) {
+				float s = 1f / (float) Math.sqrt(x*x + y*y + z*z + w*w);
+				x *= s;
+				y *= s;
+				z *= s;
+				w *= s;
+			}
+
+			dx[i] = x;
+			dy[i] = y;
+			dz[i] = z;
+			dw[i] = w;
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Splits its range in half until it falls below the parallel threshold.
+	 */
+	private class SlerpTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final QuaternionBatch from;
+		private final QuaternionBatch to;
+		private final float[] t;
+		private final QuaternionBatch dest;
+		private final int begin;
+		private final int end;
+
+		SlerpTask(QuaternionBatch from, QuaternionBatch to, float[] t,
+				QuaternionBatch dest, int begin, int end) {
+			this.from = from;
+			this.to = to;
+			this.t = t;
+			this.dest = dest;
+			this.begin = begin;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - begin < parallelThreshold) {
+				slerpRange(from, to, t, dest, begin, end);
+				return;
+			}
+
+			int middle = (begin + end) >>> 1;
+			invokeAll(new SlerpTask(from, to, t, dest, begin, middle),
+					  new SlerpTask(from, to, t, dest, middle, end));
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private static void validateRange(int capacity, int start, int count) {
+		if (start < 0 || count < 0 || start + count > capacity) {
+			throw new IndexOutOfBoundsException("Range [" + start + ", "
+					+ (start + count) + ") exceeds capacity " + capacity + ".");
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package util.mesh;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map from non-negative long keys to int values, with
+ * linear probing and no per-entry allocation. Used to deduplicate vertices
+ * by their packed attribute indices.
+ *
+ * @author Dustin Biser
+ *
+ */
+final class LongIntMap {
+	private static final long EMPTY = -1L;
+
+	private long[] keys;
+	private int[] values;
+	private int mask;
+	private int size;
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param expectedSize - number of entries that fit without rehashing.
+	 */
+	LongIntMap(int expectedSize) {
+		int capacity = Integer.highestOneBit(Math.max(4, expectedSize) * 2 - 1) << 1;
+		allocate(capacity);
+	}
+
+	//--------------------------------------------------------------------------
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		values = new int[capacity];
+		Arrays.fill(keys, EMPTY);
+		mask = capacity - 1;
+	}
+
+	//--------------------------------------------------------------------------
+	int size() {
+		return size;
+	}
+
+	//--------------------------------------------------------------------------
+	private static int hash(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param key - a non-negative key.
+	 * @param value - value to store if <code>key</code> is not yet mapped.
+	 * @return the value <code>key</code> was already mapped to, or
+	 *         <code>value</code> if it has just been added.
+	 */
+	int getOrPut(long key, int value) {
+		int slot = hash(key) & mask;
+		long k;
+		while ((k = keys[slot]) != EMPTY) {
+			if (k == key) {
+				return values[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		values[slot] = value;
+		if (++size > (mask + 1) >> 1) {
+			rehash();
+		}
+		return value;
+	}
+
+	//--------------------------------------------------------------------------
+	private void rehash() {
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		allocate(2 * oldKeys.length);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != EMPTY) {
+				int slot = hash(oldKeys[i]) & mask;
+				while (keys[slot] != EMPTY) {
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+}
@@ -0,0 +1,86 @@
+package util.mesh;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+import util.TexturedVertex;
+
+/**
+ * An imported triangle mesh: interleaved vertices in the
+ * {@link TexturedVertex} layout and a list of triangle indices, both in
+ * direct, native order buffers ready to be handed to glBufferData. Draw it
+ * with <code>GL_TRIANGLES</code> and <code>GL_UNSIGNED_INT</code> indices.
+ *
+ * @author Dustin Biser
+ *
+ */
+public class MeshData {
+	private final String name;
+	private final ByteBuffer vertices;
+	private final IntBuffer indices;
+	private final int vertexCount;
+
+	//--------------------------------------------------------------------------
+	MeshData(String name, ByteBuffer vertices, int vertexCount, IntBuffer indices) {
+		this.name = name;
+		this.vertices = vertices;
+		this.vertexCount = vertexCount;
+		this.indices = indices;
+	}
+
+	//--------------------------------------------------------------------------
+	public String getName() {
+		return name;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the vertices, {@link TexturedVertex#stride} bytes each, from
+	 *         position 0 to the limit.
+	 */
+	public ByteBuffer getVertices() {
+		return vertices;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return three indices per triangle, from position 0 to the limit.
+	 */
+	public IntBuffer getIndices() {
+		return indices;
+	}
+
+	//--------------------------------------------------------------------------
+	public int getVertexCount() {
+		return vertexCount;
+	}
+
+	//--------------------------------------------------------------------------
+	public int getIndexCount() {
+		return indices.limit();
+	}
+
+	//--------------------------------------------------------------------------
+	public int getTriangleCount() {
+		return indices.limit() / 3;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Copies one vertex into a new {@link TexturedVertex}, for inspection.
+	 *
+	 * @param index
+	 */
+	public TexturedVertex getVertex(int index) {
+		int offset = index * TexturedVertex.stride;
+		int p = offset + TexturedVertex.positionByteOffset;
+		int c = offset + TexturedVertex.colorByteOffset;
+		int t = offset + TexturedVertex.textureByteOffset;
+		return new TexturedVertex()
+				.withXYZW(vertices.getFloat(p), vertices.getFloat(p + 4),
+						vertices.getFloat(p + 8), vertices.getFloat(p + 12))
+				.withRGBA(vertices.getFloat(c), vertices.getFloat(c + 4),
+						vertices.getFloat(c + 8), vertices.getFloat(c + 12))
+				.withST(vertices.getFloat(t), vertices.getFloat(t + 4));
+	}
+}
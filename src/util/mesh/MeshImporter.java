@@ -0,0 +1,148 @@
+package util.mesh;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+
+import util.Parallel;
+import util.TexturedVertex;
+
+/**
+ * Imports triangle meshes from Wavefront OBJ and binary PLY files into
+ * {@link MeshData}: indexed vertices in the {@link TexturedVertex} layout.
+ * <p>
+ * {@link #load(File)} memory maps the file, so its bytes are paged in by the
+ * operating system as the parser reaches them rather than copied into the
+ * Java heap, and picks the format by extension. Text is parsed by a
+ * hand-written number tokenizer that reads the mapping in place and
+ * allocates nothing per token. Files larger than the parallel threshold are
+ * split into chunks of that many bytes, which are parsed across a
+ * {@link ForkJoinPool}; the result is the same for any chunk size. OBJ
+ * vertices are deduplicated by their position and texture coordinate
+ * indices; see {@link ObjParser} and {@link PlyParser} for what each format
+ * reads.
+ * <p>
+ * A single mapping cannot exceed 2 GB, which bounds the size of the files
+ * that can be imported. An importer may be used by several threads at once.
+ *
+ * @author Dustin Biser
+ *
+ */
+public class MeshImporter {
+	/** File extension of Wavefront OBJ files. */
+	public static final String OBJ_EXTENSION = ".obj";
+
+	/** File extension of PLY files. */
+	public static final String PLY_EXTENSION = ".ply";
+
+	/**
+	 * Default number of bytes below which a file is parsed on the calling
+	 * thread, and the size of the chunks larger files are split into.
+	 */
+	public static final int DEFAULT_PARALLEL_THRESHOLD = 4 << 20;
+
+	private final ForkJoinPool pool;
+	private final int parallelThreshold;
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Constructs an importer using the default threshold and the
+	 * {@link Parallel#getPool() shared pool}.
+	 */
+	public MeshImporter() {
+		this(DEFAULT_PARALLEL_THRESHOLD, Parallel.getPool());
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param parallelThreshold - number of bytes below which a file is
+	 *        parsed on the calling thread.
+	 * @param pool - pool used to parse large files in parallel, or null to
+	 *        parse every file on the calling thread.
+	 */
+	public MeshImporter(int parallelThreshold, ForkJoinPool pool) {
+		if (parallelThreshold < 1) {
+			throw new IllegalArgumentException(
+					"parallelThreshold must be at least 1.");
+		}
+		this.parallelThreshold = parallelThreshold;
+		this.pool = pool;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Memory maps and imports an OBJ or PLY file, chosen by its extension.
+	 *
+	 * @param file
+	 * @return the imported mesh.
+	 * @throws IOException if the file cannot be read, has an unknown
+	 *         extension or is malformed.
+	 */
+	public MeshData load(File file) throws IOException {
+		String name = file.getPath();
+		String lowerCaseName = name.toLowerCase(Locale.ROOT);
+		boolean isObj = lowerCaseName.endsWith(OBJ_EXTENSION);
+		if (!isObj && !lowerCaseName.endsWith(PLY_EXTENSION)) {
+			throw new IOException(name + " is neither an OBJ nor a PLY file.");
+		}
+
+		MappedByteBuffer mapping;
+		try (FileChannel channel = FileChannel.open(file.toPath(),
+				StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException(name + " is too large to map.");
+			}
+			mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+
+		return isObj ? readObj(mapping, name) : readPly(mapping, name);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Imports OBJ text.
+	 *
+	 * @param data - text from the buffer's position to its limit. The
+	 *        position is unchanged.
+	 * @param name - name of the mesh, used in error messages.
+	 * @return the imported mesh.
+	 * @throws IOException if the text is malformed.
+	 */
+	public MeshData readObj(ByteBuffer data, String name) throws IOException {
+		ByteBuffer text = data.slice();
+		try {
+			return new ObjParser(text, parallelThreshold, choosePool(text)).parse(name);
+		} catch (MeshParseException e) {
+			throw new IOException(name + ": " + e.getMessage(), e);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Imports a binary PLY file.
+	 *
+	 * @param data - file contents from the buffer's position to its limit.
+	 *        The position and byte order are unchanged.
+	 * @param name - name of the mesh, used in error messages.
+	 * @return the imported mesh.
+	 * @throws IOException if the file is malformed or not binary.
+	 */
+	public MeshData readPly(ByteBuffer data, String name) throws IOException {
+		ByteBuffer contents = data.slice();
+		try {
+			return new PlyParser(contents, parallelThreshold, choosePool(contents)).parse(name);
+		} catch (MeshParseException e) {
+			throw new IOException(name + ": " + e.getMessage(), e);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private ForkJoinPool choosePool(ByteBuffer data) {
+		return data.remaining() < parallelThreshold ? null : pool;
+	}
+}
@@ -0,0 +1,18 @@
+package util.mesh;
+
+/**
+ * Thrown by parser tasks for malformed mesh data. Unchecked so that it
+ * passes through ForkJoinPool tasks; {@link MeshImporter} rethrows it as an
+ * IOException naming the file.
+ *
+ * @author Dustin Biser
+ *
+ */
+class MeshParseException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+
+	//--------------------------------------------------------------------------
+	MeshParseException(String message) {
+		super(message);
+	}
+}
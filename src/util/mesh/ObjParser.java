@@ -0,0 +1,545 @@
+package util.mesh;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.lwjgl.BufferUtils;
+
+import util.TexturedVertex;
+
+/**
+ * Parses one Wavefront OBJ file held in a {@link ByteBuffer}.
+ * <p>
+ * The text is split into chunks of whole lines, and every pass below runs
+ * once per chunk across a {@link ForkJoinPool}:
+ * <ol>
+ * <li>count the positions, texture coordinates and triangles each chunk
+ *     defines, so that every chunk knows the global index of its first
+ *     element and writes straight into shared arrays;</li>
+ * <li>parse numbers and faces, resolving relative indices and fanning
+ *     polygons into triangles;</li>
+ * <li>deduplicate the (position, texture coordinate) pairs each chunk's
+ *     corners use with a chunk local hash map;</li>
+ * <li>after the chunk local vertices are merged on the calling thread, in
+ *     chunk order, write the indices and the interleaved vertices.</li>
+ * </ol>
+ * Vertices are numbered in order of first use, so the output does not
+ * depend on the chunk size. Files without texture coordinates skip the
+ * deduplication and keep their positions, in file order, as the vertices.
+ * Lines other than <code>v</code>, <code>vt</code> and <code>f</code> are
+ * ignored, as are normal indices.
+ *
+ * @author Dustin Biser
+ *
+ */
+final class ObjParser {
+	private static final int PASS_COUNT = 0;
+	private static final int PASS_PARSE = 1;
+	private static final int PASS_DEDUPLICATE = 2;
+	private static final int PASS_WRITE_INDICES = 3;
+	private static final int PASS_WRITE_VERTICES = 4;
+
+	private static final int LINE_OTHER = 0;
+	private static final int LINE_POSITION = 1;
+	private static final int LINE_TEXCOORD = 2;
+	private static final int LINE_FACE = 3;
+
+	private static final int NO_TEXCOORD = -1;
+
+	private final ByteBuffer data;
+	private final ForkJoinPool pool;
+	private final int chunkCount;
+	private final int[] chunkBegins;
+
+	// Global index of the first element each chunk defines, followed by the
+	// total.
+	private final int[] positionStarts;
+	private final int[] texCoordStarts;
+	private final int[] triangleStarts;
+
+	// x, y, z, w of each position, and s, t of each texture coordinate.
+	private float[] positions;
+	private float[] texCoords;
+
+	// Red, green, blue, alpha of each position, allocated when the first
+	// colored position is found.
+	private volatile float[] colors;
+
+	// Position and texture coordinate index of each triangle corner. After
+	// deduplication the position array holds chunk local vertex indices.
+	private int[] cornerPositions;
+	private int[] cornerTexCoords;
+
+	// Per chunk, the packed index pairs of its local vertices and their
+	// global vertex numbers.
+	private long[][] chunkVertexKeys;
+	private int[] chunkVertexCounts;
+	private int[][] chunkRemaps;
+
+	// Packed index pair of each output vertex, or null when vertices are the
+	// positions themselves.
+	private long[] vertexKeys;
+	private int vertexCount;
+
+	private ByteBuffer vertices;
+	private IntBuffer indices;
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param data - OBJ text, from index 0 to the limit.
+	 * @param chunkSize - approximate number of bytes per chunk.
+	 * @param pool - pool to run the chunks across, or null to parse the
+	 *        whole file as one chunk on the calling thread.
+	 */
+	ObjParser(ByteBuffer data, int chunkSize, ForkJoinPool pool) {
+		this.data = data;
+		this.pool = pool;
+
+		int size = data.limit();
+		chunkCount = pool == null ? 1 : (int) Math.max(1, (size + (long) chunkSize - 1) / chunkSize);
+		chunkBegins = new int[chunkCount + 1];
+		for (int chunk = 1; chunk < chunkCount; chunk++) {
+			// Each chunk begins at the start of a line.
+			int begin = Math.max((int) Math.min((long) chunk * chunkSize, size),
+					chunkBegins[chunk - 1]);
+			while (begin < size && data.get(begin - 1) != '\n') {
+				begin++;
+			}
+			chunkBegins[chunk] = begin;
+		}
+		chunkBegins[chunkCount] = size;
+
+		positionStarts = new int[chunkCount + 1];
+		texCoordStarts = new int[chunkCount + 1];
+		triangleStarts = new int[chunkCount + 1];
+	}
+
+	//--------------------------------------------------------------------------
+	MeshData parse(String name) {
+		runPass(PASS_COUNT, chunkCount);
+		int positionCount = prefixSum(positionStarts, "positions");
+		int texCoordCount = prefixSum(texCoordStarts, "texture coordinates");
+		int triangleCount = prefixSum(triangleStarts, "triangles");
+		if (triangleCount > Integer.MAX_VALUE / 3) {
+			throw new MeshParseException("Too many triangles: " + triangleCount + ".");
+		}
+
+		positions = new float[checkedSize(positionCount, 4)];
+		texCoords = new float[checkedSize(texCoordCount, 2)];
+		cornerPositions = new int[3 * triangleCount];
+		cornerTexCoords = texCoordCount > 0 ? new int[3 * triangleCount] : null;
+		runPass(PASS_PARSE, chunkCount);
+
+		if (texCoordCount == 0) {
+			vertexCount = positionCount;
+		}
+		else {
+			chunkVertexKeys = new long[chunkCount][];
+			chunkVertexCounts = new int[chunkCount];
+			runPass(PASS_DEDUPLICATE, chunkCount);
+			mergeVertices();
+			cornerTexCoords = null;
+		}
+
+		vertices = BufferUtils.createByteBuffer(checkedSize(vertexCount, TexturedVertex.stride));
+		indices = BufferUtils.createIntBuffer(cornerPositions.length);
+		runPass(PASS_WRITE_INDICES, chunkCount);
+		runPass(PASS_WRITE_VERTICES, chunkCount);
+
+		return new MeshData(name, vertices, vertexCount, indices);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Turns per chunk counts, stored from index 1, into the global index of
+	 * each chunk's first element, returning the total.
+	 */
+	private int prefixSum(int[] starts, String what) {
+		long total = 0;
+		for (int chunk = 1; chunk <= chunkCount; chunk++) {
+			total += starts[chunk];
+			if (total > Integer.MAX_VALUE) {
+				throw new MeshParseException("Too many " + what + ".");
+			}
+			starts[chunk] = (int) total;
+		}
+		return (int) total;
+	}
+
+	//--------------------------------------------------------------------------
+	private static int checkedSize(int count, int elementSize) {
+		long size = (long) count * elementSize;
+		if (size > Integer.MAX_VALUE) {
+			throw new MeshParseException("Mesh of " + count
+					+ " elements is too large to import.");
+		}
+		return (int) size;
+	}
+
+	//--------------------------------------------------------------------------
+	private void runPass(int pass, int taskCount) {
+		if (pool == null || taskCount == 1) {
+			for (int task = 0; task < taskCount; task++) {
+				runTask(pass, task);
+			}
+		}
+		else {
+			pool.invoke(new PassTask(pass, 0, taskCount));
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private class PassTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final int pass;
+		private final int taskBegin;
+		private final int taskEnd;
+
+		PassTask(int pass, int taskBegin, int taskEnd) {
+			this.pass = pass;
+			this.taskBegin = taskBegin;
+			this.taskEnd = taskEnd;
+		}
+
+		@Override
+		protected void compute() {
+			if (taskEnd - taskBegin == 1) {
+				runTask(pass, taskBegin);
+				return;
+			}
+
+			int middle = (taskBegin + taskEnd) >>> 1;
+			invokeAll(new PassTask(pass, taskBegin, middle),
+					  new PassTask(pass, middle, taskEnd));
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private void runTask(int pass, int chunk) {
+		switch (pass) {
+		case PASS_COUNT:
+			countChunk(chunk);
+			break;
+		case PASS_PARSE:
+			parseChunk(chunk);
+			break;
+		case PASS_DEDUPLICATE:
+			deduplicateChunk(chunk);
+			break;
+		case PASS_WRITE_INDICES:
+			writeIndices(chunk);
+			break;
+		default:
+			writeVertices(chunk);
+			break;
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Skips leading blanks and the keyword of a line, returning its kind.
+	 */
+	private static int readLineKind(TextTokenizer tokenizer) {
+		tokenizer.skipBlanks();
+		int c0 = tokenizer.peek(0);
+		int c1 = tokenizer.peek(1);
+		if (c0 == 'v' && TextTokenizer.isBlank(c1)) {
+			tokenizer.skip(1);
+			return LINE_POSITION;
+		}
+		if (c0 == 'v' && c1 == 't' && TextTokenizer.isBlank(tokenizer.peek(2))) {
+			tokenizer.skip(2);
+			return LINE_TEXCOORD;
+		}
+		if (c0 == 'f' && TextTokenizer.isBlank(c1)) {
+			tokenizer.skip(1);
+			return LINE_FACE;
+		}
+		return LINE_OTHER;
+	}
+
+	//--------------------------------------------------------------------------
+	private void countChunk(int chunk) {
+		TextTokenizer tokenizer = new TextTokenizer();
+		tokenizer.reset(data, chunkBegins[chunk], chunkBegins[chunk + 1]);
+		int positionCount = 0;
+		int texCoordCount = 0;
+		long triangleCount = 0;
+		while (tokenizer.hasMore()) {
+			switch (readLineKind(tokenizer)) {
+			case LINE_POSITION:
+				positionCount++;
+				tokenizer.skipLine();
+				break;
+			case LINE_TEXCOORD:
+				texCoordCount++;
+				tokenizer.skipLine();
+				break;
+			case LINE_FACE:
+				triangleCount += Math.max(0, tokenizer.countTokensAndSkipLine() - 2);
+				break;
+			default:
+				tokenizer.skipLine();
+				break;
+			}
+		}
+		if (triangleCount > Integer.MAX_VALUE) {
+			throw new MeshParseException("Too many triangles.");
+		}
+		positionStarts[chunk + 1] = positionCount;
+		texCoordStarts[chunk + 1] = texCoordCount;
+		triangleStarts[chunk + 1] = (int) triangleCount;
+	}
+
+	//--------------------------------------------------------------------------
+	private void parseChunk(int chunk) {
+		TextTokenizer tokenizer = new TextTokenizer();
+		tokenizer.reset(data, chunkBegins[chunk], chunkBegins[chunk + 1]);
+		int position = positionStarts[chunk];
+		int texCoord = texCoordStarts[chunk];
+		int corner = 3 * triangleStarts[chunk];
+		while (tokenizer.hasMore()) {
+			switch (readLineKind(tokenizer)) {
+			case LINE_POSITION:
+				parsePosition(tokenizer, position++);
+				break;
+			case LINE_TEXCOORD:
+				texCoords[2 * texCoord] = tokenizer.nextFloat();
+				texCoords[2 * texCoord + 1] = tokenizer.atEndOfLine() ? 0f
+						: tokenizer.nextFloat();
+				texCoord++;
+				break;
+			case LINE_FACE:
+				corner = parseFace(tokenizer, position, texCoord, corner);
+				break;
+			default:
+				break;
+			}
+			tokenizer.skipLine();
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Parses <code>x y z [w]</code>, or <code>x y z r g b [a]</code> as
+	 * written by exporters of vertex colors.
+	 */
+	private void parsePosition(TextTokenizer tokenizer, int position) {
+		int p = 4 * position;
+		positions[p] = tokenizer.nextFloat();
+		positions[p + 1] = tokenizer.nextFloat();
+		positions[p + 2] = tokenizer.nextFloat();
+		positions[p + 3] = 1f;
+		if (tokenizer.atEndOfLine()) {
+			return;
+		}
+
+		float first = tokenizer.nextFloat();
+		if (tokenizer.atEndOfLine()) {
+			positions[p + 3] = first;
+			return;
+		}
+		float[] colors = getColors();
+		colors[p] = first;
+		colors[p + 1] = tokenizer.nextFloat();
+		colors[p + 2] = tokenizer.nextFloat();
+		colors[p + 3] = tokenizer.atEndOfLine() ? 1f : tokenizer.nextFloat();
+		if (!tokenizer.atEndOfLine()) {
+			throw tokenizer.error("Too many vertex components");
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private synchronized float[] getColors() {
+		if (colors == null) {
+			float[] white = new float[positions.length];
+			Arrays.fill(white, 1f);
+			colors = white;
+		}
+		return colors;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Parses the corners of a polygon and stores it as a fan of triangles,
+	 * returning the index of the next free corner.
+	 *
+	 * @param positionCount - number of positions defined before the face.
+	 * @param texCoordCount - number of texture coordinates defined before
+	 *        the face.
+	 */
+	private int parseFace(TextTokenizer tokenizer, int positionCount,
+			int texCoordCount, int corner) {
+		int cornerCount = 0;
+		int firstPosition = 0, firstTexCoord = 0;
+		int lastPosition = 0, lastTexCoord = 0;
+		while (!tokenizer.atEndOfLine()) {
+			int position = resolveIndex(tokenizer, tokenizer.parseInt(), positionCount,
+					positionStarts[chunkCount]);
+			int texCoord = NO_TEXCOORD;
+			if (tokenizer.peek(0) == '/') {
+				tokenizer.skip(1);
+				if (tokenizer.peek(0) != '/') {
+					texCoord = resolveIndex(tokenizer, tokenizer.parseInt(), texCoordCount,
+							texCoordStarts[chunkCount]);
+				}
+				if (tokenizer.peek(0) == '/') {
+					// Normal index, not part of the TexturedVertex layout.
+					tokenizer.skip(1);
+					tokenizer.parseInt();
+				}
+			}
+
+			if (cornerCount == 0) {
+				firstPosition = position;
+				firstTexCoord = texCoord;
+			}
+			else if (cornerCount >= 2) {
+				storeCorner(corner++, firstPosition, firstTexCoord);
+				storeCorner(corner++, lastPosition, lastTexCoord);
+				storeCorner(corner++, position, texCoord);
+			}
+			lastPosition = position;
+			lastTexCoord = texCoord;
+			cornerCount++;
+		}
+		if (cornerCount < 3) {
+			throw tokenizer.error("Face with fewer than three corners");
+		}
+		return corner;
+	}
+
+	//--------------------------------------------------------------------------
+	private void storeCorner(int corner, int position, int texCoord) {
+		cornerPositions[corner] = position;
+		if (cornerTexCoords != null) {
+			cornerTexCoords[corner] = texCoord;
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Converts a one based OBJ index, or a negative index counting back from
+	 * the last element defined, to a zero based index.
+	 */
+	private static int resolveIndex(TextTokenizer tokenizer, int index,
+			int definedCount, int totalCount) {
+		int resolved = index > 0 ? index - 1 : definedCount + index;
+		if (index == 0 || resolved < 0 || resolved >= totalCount) {
+			throw tokenizer.error("Index " + index + " out of range");
+		}
+		return resolved;
+	}
+
+	//--------------------------------------------------------------------------
+	private void deduplicateChunk(int chunk) {
+		int begin = 3 * triangleStarts[chunk];
+		int end = 3 * triangleStarts[chunk + 1];
+		LongIntMap map = new LongIntMap((end - begin) / 4);
+		long[] keys = new long[Math.max(16, (end - begin) / 4)];
+		int count = 0;
+		for (int corner = begin; corner < end; corner++) {
+			long key = ((long) cornerPositions[corner] << 32)
+					| (cornerTexCoords[corner] & 0xFFFFFFFFL);
+			int local = map.getOrPut(key, count);
+			if (local == count) {
+				if (count == keys.length) {
+					keys = Arrays.copyOf(keys, 2 * count);
+				}
+				keys[count++] = key;
+			}
+			cornerPositions[corner] = local;
+		}
+		chunkVertexKeys[chunk] = keys;
+		chunkVertexCounts[chunk] = count;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Numbers the chunk local vertices globally, in chunk order, merging
+	 * those shared between chunks.
+	 */
+	private void mergeVertices() {
+		long total = 0;
+		for (int chunk = 0; chunk < chunkCount; chunk++) {
+			total += chunkVertexCounts[chunk];
+		}
+		int capacity = (int) Math.min(total, Integer.MAX_VALUE);
+		LongIntMap map = new LongIntMap(capacity);
+		vertexKeys = new long[capacity];
+		chunkRemaps = new int[chunkCount][];
+		for (int chunk = 0; chunk < chunkCount; chunk++) {
+			long[] keys = chunkVertexKeys[chunk];
+			int[] remap = new int[chunkVertexCounts[chunk]];
+			for (int local = 0; local < remap.length; local++) {
+				int vertex = map.getOrPut(keys[local], vertexCount);
+				if (vertex == vertexCount) {
+					vertexKeys[vertexCount++] = keys[local];
+				}
+				remap[local] = vertex;
+			}
+			chunkRemaps[chunk] = remap;
+			chunkVertexKeys[chunk] = null;
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private void writeIndices(int chunk) {
+		int begin = 3 * triangleStarts[chunk];
+		int end = 3 * triangleStarts[chunk + 1];
+		IntBuffer indices = this.indices;
+		int[] remap = chunkRemaps == null ? null : chunkRemaps[chunk];
+		for (int corner = begin; corner < end; corner++) {
+			int index = cornerPositions[corner];
+			indices.put(corner, remap == null ? index : remap[index]);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private void writeVertices(int task) {
+		int begin = (int) ((long) vertexCount * task / chunkCount);
+		int end = (int) ((long) vertexCount * (task + 1) / chunkCount);
+		FloatBuffer out = vertices.asFloatBuffer();
+		float[] colors = this.colors;
+		for (int vertex = begin; vertex < end; vertex++) {
+			int position = vertex;
+			int texCoord = NO_TEXCOORD;
+			if (vertexKeys != null) {
+				position = (int) (vertexKeys[vertex] >>> 32);
+				texCoord = (int) vertexKeys[vertex];
+			}
+
+			int o = vertex * TexturedVertex.elementCount;
+			int p = 4 * position;
+			out.put(o, positions[p]);
+			out.put(o + 1, positions[p + 1]);
+			out.put(o + 2, positions[p + 2]);
+			out.put(o + 3, positions[p + 3]);
+			if (colors == null) {
+				out.put(o + 4, 1f);
+				out.put(o + 5, 1f);
+				out.put(o + 6, 1f);
+				out.put(o + 7, 1f);
+			}
+			else {
+				out.put(o + 4, colors[p]);
+				out.put(o + 5, colors[p + 1]);
+				out.put(o + 6, colors[p + 2]);
+				out.put(o + 7, colors[p + 3]);
+			}
+			if (texCoord == NO_TEXCOORD) {
+				out.put(o + 8, 0f);
+				out.put(o + 9, 0f);
+			}
+			else {
+				out.put(o + 8, texCoords[2 * texCoord]);
+				out.put(o + 9, texCoords[2 * texCoord + 1]);
+			}
+		}
+	}
+}
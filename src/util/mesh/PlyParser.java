@@ -0,0 +1,594 @@
+package util.mesh;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.lwjgl.BufferUtils;
+
+import util.TexturedVertex;
+
+/**
+ * Parses one binary PLY file held in a {@link ByteBuffer}, little or big
+ * endian.
+ * <p>
+ * PLY vertices are already indexed, so each one becomes one output vertex.
+ * Positions are read from <code>x, y, z</code>, colors from
+ * <code>red, green, blue, alpha</code>, with integer channels normalized to
+ * [0, 1], and texture coordinates from <code>s, t</code>, <code>u, v</code>
+ * or <code>texture_u, texture_v</code>. Faces are read from the
+ * <code>vertex_indices</code> list of the <code>face</code> element and
+ * fanned into triangles. Other properties and elements are skipped.
+ * <p>
+ * Vertex records have a fixed size, so vertices are converted in parallel
+ * ranges. Face records vary in size; one pass on the calling thread reads
+ * only the corner counts, to find where each chunk of faces begins and
+ * where its triangles go, and the chunks are then converted in parallel.
+ *
+ * @author Dustin Biser
+ *
+ */
+final class PlyParser {
+	private static final int CHAR = 0;
+	private static final int UCHAR = 1;
+	private static final int SHORT = 2;
+	private static final int USHORT = 3;
+	private static final int INT = 4;
+	private static final int UINT = 5;
+	private static final int FLOAT = 6;
+	private static final int DOUBLE = 7;
+
+	private static final String[][] TYPE_NAMES = {
+		{"char", "int8"}, {"uchar", "uint8"}, {"short", "int16"},
+		{"ushort", "uint16"}, {"int", "int32"}, {"uint", "uint32"},
+		{"float", "float32"}, {"double", "float64"}
+	};
+	private static final int[] TYPE_SIZES = {1, 1, 2, 2, 4, 4, 4, 8};
+
+	// Largest value of each integer type, which maps a color channel to 1.
+	private static final float[] TYPE_MAXIMUMS = {
+		127f, 255f, 32767f, 65535f, 2147483647f, 4294967295f, 1f, 1f
+	};
+
+	private static final int MAX_HEADER_BYTES = 1 << 20;
+
+	// Attributes read from each vertex record, in TexturedVertex order.
+	private static final String[][] ATTRIBUTE_NAMES = {
+		{"x"}, {"y"}, {"z"},
+		{"red", "r", "diffuse_red"}, {"green", "g", "diffuse_green"},
+		{"blue", "b", "diffuse_blue"}, {"alpha", "a", "diffuse_alpha"},
+		{"s", "u", "texture_u", "texture_s"}, {"t", "v", "texture_v", "texture_t"}
+	};
+	private static final int FIRST_COLOR_ATTRIBUTE = 3;
+	private static final int FIRST_TEXCOORD_ATTRIBUTE = 7;
+
+	private static final int PASS_VERTICES = 0;
+	private static final int PASS_FACES = 1;
+
+	//--------------------------------------------------------------------------
+	private static class Property {
+		final String name;
+		final int type;
+		final boolean isList;
+		final int countType;
+
+		Property(String name, int type, boolean isList, int countType) {
+			this.name = name;
+			this.type = type;
+			this.isList = isList;
+			this.countType = countType;
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private static class Element {
+		final String name;
+		final int count;
+		final List<Property> properties = new ArrayList<Property>();
+
+		Element(String name, int count) {
+			this.name = name;
+			this.count = count;
+		}
+
+		/**
+		 * @return the size of every record, or -1 if it contains a list.
+		 */
+		int getRecordSize() {
+			int size = 0;
+			for (Property property : properties) {
+				if (property.isList) {
+					return -1;
+				}
+				size += TYPE_SIZES[property.type];
+			}
+			return size;
+		}
+	}
+
+	private final ByteBuffer data;
+	private final int chunkSize;
+	private final ForkJoinPool pool;
+
+	private List<Element> elements;
+	private Element vertexElement;
+	private Element faceElement;
+	private int vertexOffset;
+	private int vertexRecordSize;
+	private int faceOffset;
+
+	// Byte offset of each attribute within a vertex record and its type, or
+	// -1 when the record does not contain it.
+	private final int[] attributeOffsets = new int[ATTRIBUTE_NAMES.length];
+	private final int[] attributeTypes = new int[ATTRIBUTE_NAMES.length];
+
+	private int vertexChunkCount;
+
+	// Per chunk of faces, its first face, the byte offset of that face and
+	// the index of its first triangle, followed by the totals.
+	private int faceChunkCount;
+	private int listProperty;
+	private int[] faceChunkFirstFaces;
+	private int[] faceChunkOffsets;
+	private int[] faceChunkTriangleStarts;
+
+	private ByteBuffer vertices;
+	private IntBuffer indices;
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param data - PLY file, from index 0 to the limit. Its byte order is
+	 *        changed to that of the file.
+	 * @param chunkSize - approximate number of bytes per chunk.
+	 * @param pool - pool to run the chunks across, or null to convert
+	 *        everything on the calling thread.
+	 */
+	PlyParser(ByteBuffer data, int chunkSize, ForkJoinPool pool) {
+		this.data = data;
+		this.chunkSize = chunkSize;
+		this.pool = pool;
+	}
+
+	//--------------------------------------------------------------------------
+	MeshData parse(String name) {
+		int headerEnd = parseHeader();
+		locateElements(headerEnd);
+
+		int vertexCount = vertexElement.count;
+		if ((long) vertexCount * TexturedVertex.stride > Integer.MAX_VALUE) {
+			throw new MeshParseException("Mesh of " + vertexCount
+					+ " vertices is too large to import.");
+		}
+		vertices = BufferUtils.createByteBuffer(vertexCount * TexturedVertex.stride);
+		vertexChunkCount = pool == null ? 1 : (int) Math.max(1,
+				(long) vertexCount * vertexRecordSize / chunkSize);
+		runPass(PASS_VERTICES, vertexChunkCount);
+
+		if (faceElement == null) {
+			indices = BufferUtils.createIntBuffer(0);
+		}
+		else {
+			findFaceChunks();
+			indices = BufferUtils.createIntBuffer(3 * faceChunkTriangleStarts[faceChunkCount]);
+			runPass(PASS_FACES, faceChunkCount);
+		}
+
+		return new MeshData(name, vertices, vertexCount, indices);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Reads the header, sets the byte order of the data and returns the
+	 * offset of the first record.
+	 */
+	private int parseHeader() {
+		int limit = Math.min(data.limit(), MAX_HEADER_BYTES);
+		byte[] bytes = new byte[limit];
+		for (int i = 0; i < limit; i++) {
+			bytes[i] = data.get(i);
+		}
+		String text = new String(bytes, StandardCharsets.US_ASCII);
+		int end = text.indexOf("end_header");
+		int headerEnd = end < 0 ? -1 : text.indexOf('\n', end);
+		if (!text.startsWith("ply") || headerEnd < 0) {
+			throw new MeshParseException("Missing PLY header.");
+		}
+
+		Element element = null;
+		List<Element> elements = new ArrayList<Element>();
+		boolean formatFound = false;
+		for (String line : text.substring(0, headerEnd).split("\r?\n")) {
+			String[] words = line.trim().split("\\s+");
+			if (words[0].equals("format")) {
+				if (words.length < 2) {
+					throw new MeshParseException("Malformed PLY format line.");
+				}
+				if (words[1].equals("binary_little_endian")) {
+					data.order(ByteOrder.LITTLE_ENDIAN);
+				}
+				else if (words[1].equals("binary_big_endian")) {
+					data.order(ByteOrder.BIG_ENDIAN);
+				}
+				else {
+					throw new MeshParseException("Unsupported PLY format "
+							+ words[1] + "; only binary PLY is supported.");
+				}
+				formatFound = true;
+			}
+			else if (words[0].equals("element")) {
+				if (words.length < 3) {
+					throw new MeshParseException("Malformed PLY element line.");
+				}
+				element = new Element(words[1], parseCount(words[2]));
+				elements.add(element);
+			}
+			else if (words[0].equals("property")) {
+				if (element == null) {
+					throw new MeshParseException("PLY property outside an element.");
+				}
+				if (words.length >= 5 && words[1].equals("list")) {
+					element.properties.add(new Property(words[4], parseType(words[3]),
+							true, parseType(words[2])));
+				}
+				else if (words.length >= 3) {
+					element.properties.add(new Property(words[2], parseType(words[1]),
+							false, -1));
+				}
+				else {
+					throw new MeshParseException("Malformed PLY property line.");
+				}
+			}
+		}
+		if (!formatFound) {
+			throw new MeshParseException("PLY header has no format.");
+		}
+
+		this.elements = elements;
+		return headerEnd + 1;
+	}
+
+	//--------------------------------------------------------------------------
+	private static int parseCount(String word) {
+		try {
+			int count = Integer.parseInt(word);
+			if (count >= 0) {
+				return count;
+			}
+		} catch (NumberFormatException e) { }
+		throw new MeshParseException("Invalid PLY element count " + word + ".");
+	}
+
+	//--------------------------------------------------------------------------
+	private static int parseType(String word) {
+		for (int type = 0; type < TYPE_NAMES.length; type++) {
+			if (word.equals(TYPE_NAMES[type][0]) || word.equals(TYPE_NAMES[type][1])) {
+				return type;
+			}
+		}
+		throw new MeshParseException("Unknown PLY type " + word + ".");
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Finds the vertex and face elements and where their records begin.
+	 */
+	private void locateElements(int offset) {
+		for (Element element : elements) {
+			if (element.name.equals("vertex") && vertexElement == null) {
+				vertexElement = element;
+				vertexOffset = offset;
+				vertexRecordSize = element.getRecordSize();
+				if (vertexRecordSize < 0) {
+					throw new MeshParseException(
+							"PLY vertices with list properties are not supported.");
+				}
+				findAttributes(element);
+			}
+			else if (element.name.equals("face") && faceElement == null) {
+				faceElement = element;
+				faceOffset = offset;
+			}
+
+			int recordSize = element.getRecordSize();
+			if (recordSize >= 0) {
+				offset = checkedOffset(offset + (long) element.count * recordSize);
+			}
+			else {
+				for (int record = 0; record < element.count; record++) {
+					offset = skipRecord(element, offset);
+				}
+			}
+		}
+		if (vertexElement == null) {
+			throw new MeshParseException("PLY file has no vertex element.");
+		}
+		if (attributeOffsets[0] < 0 || attributeOffsets[1] < 0 || attributeOffsets[2] < 0) {
+			throw new MeshParseException("PLY vertices have no x, y and z.");
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private void findAttributes(Element element) {
+		Arrays.fill(attributeOffsets, -1);
+		for (int attribute = 0; attribute < ATTRIBUTE_NAMES.length; attribute++) {
+			int offset = 0;
+			for (Property property : element.properties) {
+				if (attributeOffsets[attribute] < 0
+						&& Arrays.asList(ATTRIBUTE_NAMES[attribute]).contains(property.name)) {
+					attributeOffsets[attribute] = offset;
+					attributeTypes[attribute] = property.type;
+				}
+				offset += TYPE_SIZES[property.type];
+			}
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private int checkedOffset(long offset) {
+		if (offset > data.limit()) {
+			throw new MeshParseException("PLY file is truncated.");
+		}
+		return (int) offset;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the offset of the record following the one at
+	 *         <code>offset</code>.
+	 */
+	private int skipRecord(Element element, int offset) {
+		long next = offset;
+		for (Property property : element.properties) {
+			if (property.isList) {
+				checkedOffset(next + TYPE_SIZES[property.countType]);
+				long count = readLong(property.countType, (int) next);
+				if (count < 0) {
+					throw new MeshParseException("Negative PLY list length.");
+				}
+				next += TYPE_SIZES[property.countType] + count * TYPE_SIZES[property.type];
+			}
+			else {
+				next += TYPE_SIZES[property.type];
+			}
+		}
+		return checkedOffset(next);
+	}
+
+	//--------------------------------------------------------------------------
+	private long readLong(int type, int offset) {
+		switch (type) {
+		case CHAR:
+			return data.get(offset);
+		case UCHAR:
+			return data.get(offset) & 0xFF;
+		case SHORT:
+			return data.getShort(offset);
+		case USHORT:
+			return data.getShort(offset) & 0xFFFF;
+		case INT:
+			return data.getInt(offset);
+		case UINT:
+			return data.getInt(offset) & 0xFFFFFFFFL;
+		case FLOAT:
+			return (long) data.getFloat(offset);
+		default:
+			return (long) data.getDouble(offset);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private float readFloat(int type, int offset) {
+		switch (type) {
+		case FLOAT:
+			return data.getFloat(offset);
+		case DOUBLE:
+			return (float) data.getDouble(offset);
+		default:
+			return readLong(type, offset);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private void runPass(int pass, int taskCount) {
+		if (pool == null || taskCount <= 1) {
+			for (int task = 0; task < taskCount; task++) {
+				runTask(pass, task);
+			}
+		}
+		else {
+			pool.invoke(new PassTask(pass, 0, taskCount));
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private class PassTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final int pass;
+		private final int taskBegin;
+		private final int taskEnd;
+
+		PassTask(int pass, int taskBegin, int taskEnd) {
+			this.pass = pass;
+			this.taskBegin = taskBegin;
+			this.taskEnd = taskEnd;
+		}
+
+		@Override
+		protected void compute() {
+			if (taskEnd - taskBegin == 1) {
+				runTask(pass, taskBegin);
+				return;
+			}
+
+			int middle = (taskBegin + taskEnd) >>> 1;
+			invokeAll(new PassTask(pass, taskBegin, middle),
+					  new PassTask(pass, middle, taskEnd));
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private void runTask(int pass, int chunk) {
+		if (pass == PASS_VERTICES) {
+			writeVertices(chunk);
+		}
+		else {
+			writeTriangles(chunk);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private void writeVertices(int chunk) {
+		int vertexCount = vertexElement.count;
+		int begin = (int) ((long) vertexCount * chunk / vertexChunkCount);
+		int end = (int) ((long) vertexCount * (chunk + 1) / vertexChunkCount);
+		FloatBuffer out = vertices.asFloatBuffer();
+
+		// Default values, in TexturedVertex order without w.
+		float[] defaults = {0f, 0f, 0f, 1f, 1f, 1f, 1f, 0f, 0f};
+		float[] scales = new float[ATTRIBUTE_NAMES.length];
+		for (int attribute = 0; attribute < scales.length; attribute++) {
+			boolean isColor = attribute >= FIRST_COLOR_ATTRIBUTE
+					&& attribute < FIRST_TEXCOORD_ATTRIBUTE;
+			scales[attribute] = isColor && attributeOffsets[attribute] >= 0
+					? 1f / TYPE_MAXIMUMS[attributeTypes[attribute]] : 1f;
+		}
+
+		for (int vertex = begin; vertex < end; vertex++) {
+			int record = vertexOffset + vertex * vertexRecordSize;
+			int o = vertex * TexturedVertex.elementCount;
+			for (int attribute = 0; attribute < ATTRIBUTE_NAMES.length; attribute++) {
+				float value = attributeOffsets[attribute] < 0 ? defaults[attribute]
+						: readFloat(attributeTypes[attribute],
+								record + attributeOffsets[attribute]) * scales[attribute];
+				// Skip w, which follows z.
+				out.put(o + (attribute < FIRST_COLOR_ATTRIBUTE ? attribute : attribute + 1),
+						value);
+			}
+			out.put(o + 3, 1f);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Walks the face records on the calling thread, reading only list
+	 * lengths, and splits them into chunks of about <code>chunkSize</code>
+	 * bytes.
+	 */
+	private void findFaceChunks() {
+		int listProperty = -1;
+		for (int i = 0; i < faceElement.properties.size(); i++) {
+			Property property = faceElement.properties.get(i);
+			if (property.isList && (property.name.equals("vertex_indices")
+					|| property.name.equals("vertex_index"))) {
+				listProperty = i;
+			}
+		}
+		if (listProperty < 0) {
+			throw new MeshParseException("PLY faces have no vertex_indices list.");
+		}
+
+		int capacity = 16;
+		faceChunkFirstFaces = new int[capacity];
+		faceChunkOffsets = new int[capacity];
+		faceChunkTriangleStarts = new int[capacity];
+		faceChunkCount = 0;
+
+		int offset = faceOffset;
+		int chunkBegin = faceOffset;
+		long triangleCount = 0;
+		for (int face = 0; face < faceElement.count; face++) {
+			if (face == 0 || (pool != null && offset - chunkBegin >= chunkSize)) {
+				if (faceChunkCount + 1 >= capacity) {
+					capacity *= 2;
+					faceChunkFirstFaces = Arrays.copyOf(faceChunkFirstFaces, capacity);
+					faceChunkOffsets = Arrays.copyOf(faceChunkOffsets, capacity);
+					faceChunkTriangleStarts = Arrays.copyOf(faceChunkTriangleStarts, capacity);
+				}
+				faceChunkFirstFaces[faceChunkCount] = face;
+				faceChunkOffsets[faceChunkCount] = offset;
+				faceChunkTriangleStarts[faceChunkCount] = (int) triangleCount;
+				faceChunkCount++;
+				chunkBegin = offset;
+			}
+
+			int next = offset;
+			for (int i = 0; i < faceElement.properties.size(); i++) {
+				Property property = faceElement.properties.get(i);
+				if (!property.isList) {
+					next += TYPE_SIZES[property.type];
+					continue;
+				}
+				checkedOffset((long) next + TYPE_SIZES[property.countType]);
+				long count = readLong(property.countType, next);
+				if (i == listProperty) {
+					if (count < 3) {
+						throw new MeshParseException("PLY face " + face
+								+ " has fewer than three corners.");
+					}
+					triangleCount += count - 2;
+				}
+				next = checkedOffset(next + TYPE_SIZES[property.countType]
+						+ count * TYPE_SIZES[property.type]);
+			}
+			offset = next;
+			if (3 * triangleCount > Integer.MAX_VALUE) {
+				throw new MeshParseException("Too many triangles.");
+			}
+		}
+
+		faceChunkFirstFaces[faceChunkCount] = faceElement.count;
+		faceChunkOffsets[faceChunkCount] = offset;
+		faceChunkTriangleStarts[faceChunkCount] = (int) triangleCount;
+		this.listProperty = listProperty;
+	}
+
+	//--------------------------------------------------------------------------
+	private void writeTriangles(int chunk) {
+		IntBuffer indices = this.indices;
+		int vertexCount = vertexElement.count;
+		int offset = faceChunkOffsets[chunk];
+		int corner = 3 * faceChunkTriangleStarts[chunk];
+		for (int face = faceChunkFirstFaces[chunk]; face < faceChunkFirstFaces[chunk + 1]; face++) {
+			for (int i = 0; i < faceElement.properties.size(); i++) {
+				Property property = faceElement.properties.get(i);
+				if (!property.isList) {
+					offset += TYPE_SIZES[property.type];
+					continue;
+				}
+				int count = (int) readLong(property.countType, offset);
+				offset += TYPE_SIZES[property.countType];
+				int itemSize = TYPE_SIZES[property.type];
+				if (i == listProperty) {
+					long first = readIndex(property.type, offset, vertexCount);
+					long last = readIndex(property.type, offset + itemSize, vertexCount);
+					for (int k = 2; k < count; k++) {
+						long next = readIndex(property.type, offset + k * itemSize, vertexCount);
+						indices.put(corner++, (int) first);
+						indices.put(corner++, (int) last);
+						indices.put(corner++, (int) next);
+						last = next;
+					}
+				}
+				offset += count * itemSize;
+			}
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private long readIndex(int type, int offset, int vertexCount) {
+		long index = readLong(type, offset);
+		if (index < 0 || index >= vertexCount) {
+			throw new MeshParseException("Vertex index " + index + " out of range at byte "
+					+ offset + ".");
+		}
+		return index;
+	}
+}
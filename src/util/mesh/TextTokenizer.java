@@ -0,0 +1,240 @@
+package util.mesh;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reads numbers from a range of ASCII text in a {@link ByteBuffer} without
+ * allocating, using absolute gets so that several tokenizers can read one
+ * shared buffer at once.
+ * <p>
+ * Tokens on a line are separated by spaces or tabs. A line ends at a line
+ * feed, a carriage return, a '#' that starts a comment, or the end of the
+ * range. Floats are accumulated as a decimal mantissa and exponent and
+ * scaled by an exact power of ten in double precision before rounding to
+ * float, which is exact for every float a mesh exporter prints.
+ *
+ * @author Dustin Biser
+ *
+ */
+final class TextTokenizer {
+	// Powers of ten exactly representable as doubles.
+	private static final double[] POWERS_OF_TEN = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+		1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+
+	// Digits beyond this many are dropped from the mantissa, which keeps it
+	// exactly representable as a double.
+	private static final long MANTISSA_LIMIT = 1000000000000000L;
+
+	private ByteBuffer data;
+	private int position;
+	private int end;
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Starts reading bytes [begin, end) of <code>data</code>.
+	 */
+	void reset(ByteBuffer data, int begin, int end) {
+		this.data = data;
+		this.position = begin;
+		this.end = end;
+	}
+
+	//--------------------------------------------------------------------------
+	int getPosition() {
+		return position;
+	}
+
+	//--------------------------------------------------------------------------
+	boolean hasMore() {
+		return position < end;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the byte at <code>offset</code> from the current position, or
+	 *         a line feed past the end of the range.
+	 */
+	int peek(int offset) {
+		int p = position + offset;
+		return p < end ? data.get(p) : '\n';
+	}
+
+	//--------------------------------------------------------------------------
+	void skip(int count) {
+		position += count;
+	}
+
+	//--------------------------------------------------------------------------
+	static boolean isBlank(int c) {
+		return c == ' ' || c == '\t';
+	}
+
+	//--------------------------------------------------------------------------
+	private static boolean isLineEnd(int c) {
+		return c == '\n' || c == '\r' || c == '#';
+	}
+
+	//--------------------------------------------------------------------------
+	void skipBlanks() {
+		while (position < end && isBlank(data.get(position))) {
+			position++;
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Skips blanks, then reports whether the line has no more tokens.
+	 */
+	boolean atEndOfLine() {
+		skipBlanks();
+		return position >= end || isLineEnd(data.get(position));
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Moves past the next line feed, or to the end of the range.
+	 */
+	void skipLine() {
+		while (position < end && data.get(position++) != '\n') {
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Counts the remaining tokens on the current line and moves past its
+	 * line feed.
+	 */
+	int countTokensAndSkipLine() {
+		int count = 0;
+		while (!atEndOfLine()) {
+			count++;
+			while (position < end && !isBlank(data.get(position))
+					&& !isLineEnd(data.get(position))) {
+				position++;
+			}
+		}
+		skipLine();
+		return count;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Skips blanks and parses a decimal float, optionally signed and with an
+	 * exponent.
+	 */
+	float nextFloat() {
+		skipBlanks();
+		int p = position;
+		boolean negative = false;
+		int c = p < end ? data.get(p) : '\n';
+		if (c == '-' || c == '+') {
+			negative = c == '-';
+			c = ++p < end ? data.get(p) : '\n';
+		}
+
+		long mantissa = 0;
+		int exponent = 0;
+		boolean anyDigits = false;
+		while (c >= '0' && c <= '9') {
+			if (mantissa < MANTISSA_LIMIT) {
+				mantissa = 10 * mantissa + (c - '0');
+			}
+			else {
+				exponent++;
+			}
+			anyDigits = true;
+			c = ++p < end ? data.get(p) : '\n';
+		}
+		if (c == '.') {
+			c = ++p < end ? data.get(p) : '\n';
+			while (c >= '0' && c <= '9') {
+				if (mantissa < MANTISSA_LIMIT) {
+					mantissa = 10 * mantissa + (c - '0');
+					exponent--;
+				}
+				anyDigits = true;
+				c = ++p < end ? data.get(p) : '\n';
+			}
+		}
+		if (!anyDigits) {
+			throw error("Expected a number");
+		}
+		if (c == 'e' || c == 'E') {
+			c = ++p < end ? data.get(p) : '\n';
+			boolean negativeExponent = false;
+			if (c == '-' || c == '+') {
+				negativeExponent = c == '-';
+				c = ++p < end ? data.get(p) : '\n';
+			}
+			if (c < '0' || c > '9') {
+				position = p;
+				throw error("Expected an exponent");
+			}
+			int e = 0;
+			while (c >= '0' && c <= '9') {
+				e = Math.min(10 * e + (c - '0'), 1000);
+				c = ++p < end ? data.get(p) : '\n';
+			}
+			exponent += negativeExponent ? -e : e;
+		}
+		if (!isBlank(c) && !isLineEnd(c) && c != '/') {
+			position = p;
+			throw error("Unexpected character '" + (char) c + "'");
+		}
+		position = p;
+
+		double value = mantissa;
+		if (exponent < 0) {
+			value = -exponent < POWERS_OF_TEN.length ? value / POWERS_OF_TEN[-exponent]
+					: value / Math.pow(10.0, -exponent);
+		}
+		else if (exponent > 0) {
+			value = exponent < POWERS_OF_TEN.length ? value * POWERS_OF_TEN[exponent]
+					: value * Math.pow(10.0, exponent);
+		}
+		return (float) (negative ? -value : value);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Skips blanks and parses an optionally signed decimal int.
+	 */
+	int nextInt() {
+		skipBlanks();
+		return parseInt();
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Parses an optionally signed decimal int at the current position.
+	 */
+	int parseInt() {
+		int p = position;
+		boolean negative = false;
+		int c = p < end ? data.get(p) : '\n';
+		if (c == '-' || c == '+') {
+			negative = c == '-';
+			c = ++p < end ? data.get(p) : '\n';
+		}
+		if (c < '0' || c > '9') {
+			throw error("Expected an integer");
+		}
+		long value = 0;
+		while (c >= '0' && c <= '9') {
+			value = 10 * value + (c - '0');
+			if (value > Integer.MAX_VALUE) {
+				throw error("Integer out of range");
+			}
+			c = ++p < end ? data.get(p) : '\n';
+		}
+		position = p;
+		return (int) (negative ? -value : value);
+	}
+
+	//--------------------------------------------------------------------------
+	MeshParseException error(String message) {
+		return new MeshParseException(message + " at byte " + position + ".");
+	}
+}
@@ -0,0 +1,478 @@
+package util.profile;
+
+import static util.RuntimeDefines.DEBUG_MODE;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hierarchical CPU profiler recording named, nested scopes with nanosecond
+ * timestamps.
+ * <p>
+ * Scope names are registered once, up front, in exchange for an integer id:
+ *
+ * <pre>
+ * private static final int LOGIC_SCOPE = Profiler.INSTANCE.scope("logicCycle");
+ * ...
+ * Profiler.INSTANCE.begin(LOGIC_SCOPE);
+ * try {
+ *     ...
+ * } finally {
+ *     Profiler.INSTANCE.end(LOGIC_SCOPE);
+ * }
+ * </pre>
+ *
+ * Every thread records into its own preallocated ring buffer, holding the
+ * most recent {@link #getCapacity()} completed scopes, so recording takes no
+ * locks and allocates nothing after a thread's first scope. While the
+ * profiler is disabled, which it is by default, begin and end return after
+ * reading a single flag.
+ * <p>
+ * The recorded scopes can be written as a Chrome trace, for viewing in
+ * chrome://tracing or Perfetto, or summarized per scope. Both may be called
+ * from any thread while others are recording; scopes overwritten during the
+ * call are left out.
+ *
+ * @author Dustin Biser
+ *
+ */
+public class Profiler {
+	public static final int DEFAULT_CAPACITY = 1 << 16;
+	private static final int MAX_DEPTH = 64;
+
+	/**
+	 * Profiler shared by the utility classes and windows.
+	 */
+	public static final Profiler INSTANCE = new Profiler();
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Minimum, mean and maximum durations of one scope, over the scopes still
+	 * held in the ring buffers.
+	 */
+	public static class ScopeStatistics {
+		private final String name;
+		private final long count;
+		private final long minNanos;
+		private final long totalNanos;
+		private final long maxNanos;
+
+		ScopeStatistics(String name, long count, long minNanos, long totalNanos,
+				long maxNanos) {
+			this.name = name;
+			this.count = count;
+			this.minNanos = minNanos;
+			this.totalNanos = totalNanos;
+			this.maxNanos = maxNanos;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public long getMinNanos() {
+			return minNanos;
+		}
+
+		public double getMeanNanos() {
+			return (double) totalNanos / count;
+		}
+
+		public long getMaxNanos() {
+			return maxNanos;
+		}
+
+		public long getTotalNanos() {
+			return totalNanos;
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Scopes recorded by one thread. Only that thread writes to it.
+	 */
+	private static class ThreadRecord {
+		final String threadName;
+		final int threadId;
+
+		// Scopes begun but not yet ended.
+		final int[] stackScopes = new int[MAX_DEPTH];
+		final long[] stackStarts = new long[MAX_DEPTH];
+		int depth;
+
+		// Completed scopes, indexed by count modulo capacity.
+		final int[] scopes;
+		final long[] starts;
+		final long[] durations;
+		final byte[] depths;
+		volatile long count;
+
+		ThreadRecord(String threadName, int threadId, int capacity) {
+			this.threadName = threadName;
+			this.threadId = threadId;
+			this.scopes = new int[capacity];
+			this.starts = new long[capacity];
+			this.durations = new long[capacity];
+			this.depths = new byte[capacity];
+		}
+	}
+
+	private final int capacity;
+	private final int slotMask;
+	private final long originTime = System.nanoTime();
+	private volatile boolean enabled;
+
+	// Guarded by this.
+	private final List<String> scopeNames = new ArrayList<String>();
+	private volatile String[] scopeNameArray = new String[0];
+
+	private final AtomicInteger threadCount = new AtomicInteger();
+	private final List<ThreadRecord> threadRecords = new CopyOnWriteArrayList<ThreadRecord>();
+	private final ThreadLocal<ThreadRecord> threadRecord = new ThreadLocal<ThreadRecord>() {
+		@Override
+		protected ThreadRecord initialValue() {
+			ThreadRecord record = new ThreadRecord(Thread.currentThread().getName(),
+					threadCount.incrementAndGet(), capacity);
+			threadRecords.add(record);
+			return record;
+		}
+	};
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Creates a disabled profiler keeping the {@link #DEFAULT_CAPACITY} most
+	 * recent scopes of each thread.
+	 */
+	public Profiler() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param capacity - number of completed scopes kept per thread, rounded
+	 *        up to a power of two.
+	 */
+	public Profiler(int capacity) {
+		if (capacity < 1 || capacity > (1 << 30)) {
+			throw new IllegalArgumentException("Capacity must be in [1, 2^30].");
+		}
+		this.capacity = (capacity == 1) ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+		this.slotMask = this.capacity - 1;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param name - name of a scope.
+	 * @return the id of the scope, the same for every call with the same
+	 *         name.
+	 */
+	public synchronized int scope(String name) {
+		int id = scopeNames.indexOf(name);
+		if (id < 0) {
+			id = scopeNames.size();
+			scopeNames.add(name);
+			scopeNameArray = scopeNames.toArray(new String[scopeNames.size()]);
+		}
+		return id;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param enabled - whether scopes are recorded. Should be changed between
+	 *        frames, when no scope is open.
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	//--------------------------------------------------------------------------
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the number of completed scopes kept per thread.
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Opens a scope on the calling thread.
+	 *
+	 * @param scope - id returned by {@link #scope(String)}.
+	 */
+	public void begin(int scope) {
+		if (!enabled) {
+			return;
+		}
+		ThreadRecord record = threadRecord.get();
+		if (record.depth == MAX_DEPTH) {
+			throw new IllegalStateException("Scopes are nested deeper than " + MAX_DEPTH
+					+ ", is an end() missing?");
+		}
+		record.stackScopes[record.depth] = scope;
+		record.stackStarts[record.depth] = System.nanoTime();
+		record.depth++;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Closes the innermost scope opened on the calling thread.
+	 *
+	 * @param scope - id passed to the matching {@link #begin(int)}.
+	 */
+	public void end(int scope) {
+		if (!enabled) {
+			return;
+		}
+		long now = System.nanoTime();
+		ThreadRecord record = threadRecord.get();
+		if (record.depth == 0) {
+			// Begun while the profiler was disabled.
+			return;
+		}
+		int depth = --record.depth;
+		if (DEBUG_MODE && record.stackScopes[depth] != scope) {
+			throw new IllegalStateException("Ended scope " + getScopeName(scope)
+					+ " while " + getScopeName(record.stackScopes[depth]) + " was open.");
+		}
+
+		long count = record.count;
+		int slot = (int) count & slotMask;
+		record.scopes[slot] = scope;
+		record.starts[slot] = record.stackStarts[depth];
+		record.durations[slot] = now - record.stackStarts[depth];
+		record.depths[slot] = (byte) depth;
+		// Publishes the slot to readers.
+		record.count = count + 1;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param scope - id returned by {@link #scope(String)}.
+	 * @return the name the scope was registered with.
+	 */
+	public String getScopeName(int scope) {
+		String[] names = scopeNameArray;
+		return (scope >= 0 && scope < names.length) ? names[scope] : "scope " + scope;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Receives the completed scopes held by a thread's ring buffer.
+	 */
+	private interface ScopeVisitor {
+		public void visit(ThreadRecord record, int scope, long start, long duration,
+				int depth) throws IOException;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Visits the completed scopes of every thread, oldest first, skipping any
+	 * that the thread overwrote while they were being read.
+	 */
+	private void visitScopes(ScopeVisitor visitor) throws IOException {
+		int[] scopes = new int[capacity];
+		long[] starts = new long[capacity];
+		long[] durations = new long[capacity];
+		byte[] depths = new byte[capacity];
+
+		for (ThreadRecord record : threadRecords) {
+			long end = record.count;
+			long begin = Math.max(0, end - capacity);
+			for (long i = begin; i < end; i++) {
+				int slot = (int) i & slotMask;
+				int j = (int) (i - begin);
+				scopes[j] = record.scopes[slot];
+				starts[j] = record.starts[slot];
+				durations[j] = record.durations[slot];
+				depths[j] = record.depths[slot];
+			}
+
+			// Slots written since the copy began may hold newer scopes.
+			long firstValid = Math.max(begin, record.count - capacity);
+			for (long i = firstValid; i < end; i++) {
+				int j = (int) (i - begin);
+				visitor.visit(record, scopes[j], starts[j], durations[j], depths[j]);
+			}
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return statistics of every scope held in the ring buffers, in order
+	 *         of registration.
+	 */
+	public List<ScopeStatistics> getStatistics() {
+		int scopeCount = scopeNameArray.length;
+		final long[] counts = new long[scopeCount];
+		final long[] mins = new long[scopeCount];
+		final long[] totals = new long[scopeCount];
+		final long[] maxs = new long[scopeCount];
+		Arrays.fill(mins, Long.MAX_VALUE);
+
+		try {
+			visitScopes(new ScopeVisitor() {
+				@Override
+				public void visit(ThreadRecord record, int scope, long start,
+						long duration, int depth) {
+					if (scope < counts.length) {
+						counts[scope]++;
+						mins[scope] = Math.min(mins[scope], duration);
+						totals[scope] += duration;
+						maxs[scope] = Math.max(maxs[scope], duration);
+					}
+				}
+			});
+		}
+		catch (IOException e) {
+			// Not thrown when computing statistics.
+			throw new AssertionError(e);
+		}
+
+		List<ScopeStatistics> statistics = new ArrayList<ScopeStatistics>();
+		for (int i = 0; i < scopeCount; i++) {
+			if (counts[i] > 0) {
+				statistics.add(new ScopeStatistics(getScopeName(i), counts[i], mins[i],
+						totals[i], maxs[i]));
+			}
+		}
+		return statistics;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return a table of the minimum, mean and maximum duration of each
+	 *         scope, in milliseconds, over the scopes held in the ring
+	 *         buffers.
+	 */
+	public String getSummary() {
+		StringBuilder summary = new StringBuilder();
+		summary.append(String.format("%-32s %8s %10s %10s %10s%n",
+				"scope", "count", "min ms", "avg ms", "max ms"));
+		for (ScopeStatistics scope : getStatistics()) {
+			summary.append(String.format("%-32s %8d %10.3f %10.3f %10.3f%n",
+					scope.getName(), scope.getCount(), scope.getMinNanos() / 1e6,
+					scope.getMeanNanos() / 1e6, scope.getMaxNanos() / 1e6));
+		}
+		return summary.toString();
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Writes the scopes held in the ring buffers in the Chrome trace event
+	 * format, as complete events in microseconds.
+	 *
+	 * @param out - destination, which is not closed.
+	 * @throws IOException
+	 */
+	public void writeChromeTrace(final Writer out) throws IOException {
+		out.write("{\"traceEvents\":[\n");
+		boolean first = true;
+		for (ThreadRecord record : threadRecords) {
+			if (!first) {
+				out.write(",\n");
+			}
+			first = false;
+			out.write("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":");
+			out.write(Integer.toString(record.threadId));
+			out.write(",\"args\":{\"name\":");
+			writeJsonString(out, record.threadName);
+			out.write("}}");
+		}
+
+		final boolean[] needsComma = {!first};
+		visitScopes(new ScopeVisitor() {
+			@Override
+			public void visit(ThreadRecord record, int scope, long start, long duration,
+					int depth) throws IOException {
+				if (needsComma[0]) {
+					out.write(",\n");
+				}
+				needsComma[0] = true;
+				out.write("{\"name\":");
+				writeJsonString(out, getScopeName(scope));
+				out.write(",\"cat\":\"cpu\",\"ph\":\"X\",\"pid\":1,\"tid\":");
+				out.write(Integer.toString(record.threadId));
+				out.write(",\"ts\":");
+				out.write(formatMicros(start - originTime));
+				out.write(",\"dur\":");
+				out.write(formatMicros(duration));
+				out.write("}");
+			}
+		});
+		out.write("\n]}\n");
+		out.flush();
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Writes a Chrome trace to a file.
+	 *
+	 * @param file - destination, which is replaced.
+	 * @throws IOException
+	 */
+	public void writeChromeTrace(File file) throws IOException {
+		try (Writer out = new BufferedWriter(new OutputStreamWriter(
+				new FileOutputStream(file), StandardCharsets.UTF_8))) {
+			writeChromeTrace(out);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private static String formatMicros(long nanos) {
+		// Three decimals keep nanosecond resolution.
+		long micros = nanos / 1000;
+		long fraction = Math.abs(nanos % 1000);
+		String sign = (nanos < 0 && micros == 0) ? "-" : "";
+		return sign + micros + "." + (fraction < 100 ? (fraction < 10 ? "00" : "0") : "")
+				+ fraction;
+	}
+
+	//--------------------------------------------------------------------------
+	private static void writeJsonString(Writer out, String text) throws IOException {
+		out.write('"');
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == '"' || c == '\\') {
+				out.write('\\');
+				out.write(c);
+			}
+			else if (c < 0x20) {
+				out.write(String.format("\\u%04x", (int) c));
+			}
+			else {
+				out.write(c);
+			}
+		}
+		out.write('"');
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Discards every recorded scope. Must not be called while other threads
+	 * are recording.
+	 */
+	public void clear() {
+		for (ThreadRecord record : threadRecords) {
+			record.count = 0;
+		}
+	}
+}
@@ -0,0 +1,670 @@
+package util.scene;
+
+import static util.RuntimeDefines.DEBUG_MODE;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.lwjgl.util.vector.Matrix4f;
+import org.lwjgl.util.vector.Vector3f;
+
+import util.Parallel;
+import util.math.Matrix4Batch;
+import util.math.Quaternion;
+import util.math.QuaternionBatch;
+
+/**
+ * A hierarchy of transforms, each given relative to its parent by a
+ * translation, a {@link Quaternion} rotation and a scale, from which the
+ * model to world matrix of every node is computed.
+ * <p>
+ * Nodes are identified by the ids returned from {@link #createNode(int)}.
+ * Their data is kept in parallel arrays sorted by depth, roots first, so that
+ * every parent is stored before its children and {@link #update()} computes
+ * each world matrix from its parent's in one linear pass. Only nodes whose
+ * local transform changed since the last update, and their descendants, are
+ * recomputed, and {@link #wasUpdated(int)} tells which, so that data derived
+ * from the world matrices, such as world space bounds, can be refreshed for
+ * the same nodes. Depth levels of at least the parallel threshold are split
+ * across a {@link ForkJoinPool}, since the nodes of a level do not depend on
+ * one another.
+ * <p>
+ * Nodes created below the deepest level keep the arrays sorted. Any other
+ * change of structure sorts them again, in linear time, before the next
+ * update, and then recomputes every world matrix.
+ *
+ * @author Dustin Biser
+ *
+ */
+public class TransformHierarchy {
+	public static final int NO_PARENT = -1;
+
+	/**
+	 * Default number of nodes in a level below which the level is updated on
+	 * the calling thread.
+	 */
+	public static final int DEFAULT_PARALLEL_THRESHOLD = 8192;
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	// Depths used while sorting.
+	private static final int UNKNOWN = -2;
+	private static final int REMOVED = -3;
+
+	private final ForkJoinPool pool;
+	private final int parallelThreshold;
+
+	//-- Per node data, in depth-sorted order.
+	private int count;
+	private int capacity;
+	private int[] parent;         // Index of the parent, or NO_PARENT.
+	private int[] depth;
+	private int[] indexNode;      // Id of the node at each index.
+	private float[] translation;  // (x, y, z) triples.
+	private QuaternionBatch rotation;
+	private float[] scale;        // (x, y, z) triples.
+	private boolean[] dirty;
+	private int[] updateStamp;    // Value of updateCount when last recomputed.
+	private Matrix4Batch worldMatrices;
+
+	// Spares of the above, into which the nodes are sorted.
+	private int[] spareParent = new int[0];
+	private int[] spareDepth = new int[0];
+	private int[] spareIndexNode = new int[0];
+	private float[] spareTranslation = new float[0];
+	private QuaternionBatch spareRotation = new QuaternionBatch(0);
+	private float[] spareScale = new float[0];
+
+	//-- Node ids.
+	private int[] nodeIndex = new int[0];  // Index of each node, or -1.
+	private int[] freeNodes = new int[0];
+	private int freeNodeCount;
+	private int nextNode;
+
+	//-- Index of the first node of each depth level, and one past the last.
+	private int[] levelStart = new int[2];
+	private int levelCount;
+
+	private boolean structureChanged;
+	private int firstDirty = Integer.MAX_VALUE;
+	private int updateCount;
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Constructs an empty hierarchy, which updates large levels on the
+	 * {@link Parallel#getPool() shared pool}.
+	 */
+	public TransformHierarchy() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param capacity - number of nodes to allocate space for. The hierarchy
+	 *        grows as needed.
+	 */
+	public TransformHierarchy(int capacity) {
+		this(capacity, DEFAULT_PARALLEL_THRESHOLD, Parallel.getPool());
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param capacity - number of nodes to allocate space for. The hierarchy
+	 *        grows as needed.
+	 * @param parallelThreshold - number of nodes in a level below which the
+	 *        level is updated on the calling thread.
+	 * @param pool - pool used to update large levels in parallel.
+	 */
+	public TransformHierarchy(int capacity, int parallelThreshold, ForkJoinPool pool) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException(
+					"TransformHierarchy capacity cannot be negative.");
+		}
+		if (parallelThreshold < 1) {
+			throw new IllegalArgumentException(
+					"parallelThreshold must be at least 1.");
+		}
+		this.parallelThreshold = parallelThreshold;
+		this.pool = pool;
+
+		parent = new int[0];
+		depth = new int[0];
+		indexNode = new int[0];
+		translation = new float[0];
+		rotation = new QuaternionBatch(0);
+		scale = new float[0];
+		dirty = new boolean[0];
+		updateStamp = new int[0];
+		worldMatrices = new Matrix4Batch(0);
+		grow(Math.max(capacity, 1));
+	}
+
+	//--------------------------------------------------------------------------
+	private void grow(int newCapacity) {
+		parent = Arrays.copyOf(parent, newCapacity);
+		depth = Arrays.copyOf(depth, newCapacity);
+		indexNode = Arrays.copyOf(indexNode, newCapacity);
+		translation = Arrays.copyOf(translation, 3 * newCapacity);
+		scale = Arrays.copyOf(scale, 3 * newCapacity);
+		dirty = Arrays.copyOf(dirty, newCapacity);
+		updateStamp = Arrays.copyOf(updateStamp, newCapacity);
+		Arrays.fill(updateStamp, capacity, newCapacity, -1);
+
+		QuaternionBatch newRotation = new QuaternionBatch(newCapacity);
+		System.arraycopy(rotation.x, 0, newRotation.x, 0, count);
+		System.arraycopy(rotation.y, 0, newRotation.y, 0, count);
+		System.arraycopy(rotation.z, 0, newRotation.z, 0, count);
+		System.arraycopy(rotation.w, 0, newRotation.w, 0, count);
+		rotation = newRotation;
+
+		Matrix4Batch newWorldMatrices = new Matrix4Batch(newCapacity);
+		System.arraycopy(worldMatrices.m, 0, newWorldMatrices.m, 0,
+				count * Matrix4Batch.FLOATS_PER_MATRIX);
+		worldMatrices = newWorldMatrices;
+
+		capacity = newCapacity;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Creates a node with the identity as its local transform.
+	 *
+	 * @param parentNode - id of the new node's parent, or {@link #NO_PARENT}
+	 *        for a root.
+	 * @return the id of the new node.
+	 */
+	public int createNode(int parentNode) {
+		int parentIndex = parentNode == NO_PARENT ? NO_PARENT : getIndex(parentNode);
+
+		if (count == capacity) {
+			grow(2 * capacity);
+		}
+
+		int node;
+		if (freeNodeCount > 0) {
+			node = freeNodes[--freeNodeCount];
+		}
+		else {
+			node = nextNode++;
+			if (node == nodeIndex.length) {
+				nodeIndex = Arrays.copyOf(nodeIndex, Math.max(2 * node, DEFAULT_CAPACITY));
+				Arrays.fill(nodeIndex, node, nodeIndex.length, -1);
+			}
+		}
+
+		int i = count++;
+		parent[i] = parentIndex;
+		indexNode[i] = node;
+		nodeIndex[node] = i;
+		setTranslationAt(i, 0f, 0f, 0f);
+		setScaleAt(i, 1f, 1f, 1f);
+		rotation.set(i, 0f, 0f, 0f, 1f);
+		markDirty(i);
+
+		// A node appended to the deepest level, or starting a new one, keeps
+		// the nodes sorted by depth.
+		int d = parentIndex == NO_PARENT ? 0 : depth[parentIndex] + 1;
+		depth[i] = d;
+		if (!structureChanged && (d == levelCount - 1 || d == levelCount)) {
+			if (d == levelCount) {
+				if (levelStart.length < levelCount + 2) {
+					levelStart = Arrays.copyOf(levelStart, 2 * (levelCount + 2));
+				}
+				levelStart[levelCount++] = i;
+			}
+			levelStart[levelCount] = count;
+		}
+		else {
+			structureChanged = true;
+		}
+
+		return node;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Removes <code>node</code> and all of its descendants. Their ids may be
+	 * returned by later calls to {@link #createNode(int)}.
+	 */
+	public void remove(int node) {
+		// Sort the removed subtree out of the arrays.
+		sort(getIndex(node));
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Moves <code>node</code>, with its descendants, under
+	 * <code>parentNode</code>. Its local transform is kept, so its world
+	 * transform changes with its parent.
+	 *
+	 * @param node
+	 * @param parentNode - id of the new parent, or {@link #NO_PARENT} to make
+	 *        <code>node</code> a root.
+	 */
+	public void setParent(int node, int parentNode) {
+		int i = getIndex(node);
+		int parentIndex = parentNode == NO_PARENT ? NO_PARENT : getIndex(parentNode);
+		if (parent[i] == parentIndex) {
+			return;
+		}
+
+		for (int ancestor = parentIndex; ancestor != NO_PARENT; ancestor = parent[ancestor]) {
+			if (ancestor == i) {
+				throw new IllegalArgumentException("Node " + parentNode
+						+ " is a descendant of node " + node + ".");
+			}
+		}
+
+		parent[i] = parentIndex;
+		structureChanged = true;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the id of the parent of <code>node</code>, or
+	 *         {@link #NO_PARENT}.
+	 */
+	public int getParent(int node) {
+		int p = parent[getIndex(node)];
+		return p == NO_PARENT ? NO_PARENT : indexNode[p];
+	}
+
+	//--------------------------------------------------------------------------
+	public void setTranslation(int node, float x, float y, float z) {
+		int i = getIndex(node);
+		setTranslationAt(i, x, y, z);
+		markDirty(i);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Adds (x, y, z) to the translation of <code>node</code>, relative to its
+	 * parent.
+	 */
+	public void translate(int node, float x, float y, float z) {
+		int i = getIndex(node);
+		translation[3 * i]     += x;
+		translation[3 * i + 1] += y;
+		translation[3 * i + 2] += z;
+		markDirty(i);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param node
+	 * @param q - unit Quaternion.
+	 */
+	public void setRotation(int node, Quaternion q) {
+		int i = getIndex(node);
+		rotation.set(i, q);
+		markDirty(i);
+	}
+
+	//--------------------------------------------------------------------------
+	public void setScale(int node, float x, float y, float z) {
+		int i = getIndex(node);
+		setScaleAt(i, x, y, z);
+		markDirty(i);
+	}
+
+	//--------------------------------------------------------------------------
+	public void getTranslation(int node, Vector3f dest) {
+		int i = getIndex(node);
+		dest.set(translation[3 * i], translation[3 * i + 1], translation[3 * i + 2]);
+	}
+
+	//--------------------------------------------------------------------------
+	public void getRotation(int node, Quaternion dest) {
+		rotation.get(getIndex(node), dest);
+	}
+
+	//--------------------------------------------------------------------------
+	public void getScale(int node, Vector3f dest) {
+		int i = getIndex(node);
+		dest.set(scale[3 * i], scale[3 * i + 1], scale[3 * i + 2]);
+	}
+
+	//--------------------------------------------------------------------------
+	private void setTranslationAt(int i, float x, float y, float z) {
+		translation[3 * i]     = x;
+		translation[3 * i + 1] = y;
+		translation[3 * i + 2] = z;
+	}
+
+	//--------------------------------------------------------------------------
+	private void setScaleAt(int i, float x, float y, float z) {
+		scale[3 * i]     = x;
+		scale[3 * i + 1] = y;
+		scale[3 * i + 2] = z;
+	}
+
+	//--------------------------------------------------------------------------
+	private void markDirty(int i) {
+		dirty[i] = true;
+		if (i < firstDirty) {
+			firstDirty = i;
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Recomputes the world matrix of every node whose local transform, or
+	 * that of an ancestor, changed since the last update.
+	 */
+	public void update() {
+		updateCount++;
+		if (structureChanged) {
+			sort(NO_PARENT);
+		}
+		if (firstDirty >= count) {
+			return;
+		}
+
+		// Each level depends only on the levels before it.
+		for (int level = 0; level < levelCount; level++) {
+			int begin = Math.max(levelStart[level], firstDirty);
+			int end = levelStart[level + 1];
+			if (end - begin >= parallelThreshold) {
+				pool.invoke(new UpdateTask(begin, end));
+			}
+			else if (begin < end) {
+				updateRange(begin, end);
+			}
+		}
+
+		Arrays.fill(dirty, firstDirty, count, false);
+		firstDirty = Integer.MAX_VALUE;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Computes the world matrices of the dirty nodes, and of the children of
+	 * dirty nodes, in <code>[begin, end)</code>, which lies within one level.
+	 */
+	private void updateRange(int begin, int end) {
+		final float[] m = worldMatrices.m;
+		final float[] t = translation;
+		final float[] s = scale;
+		final float[] qxs = rotation.x, qys = rotation.y;
+		final float[] qzs = rotation.z, qws = rotation.w;
+
+		for (int i = begin; i < end; i++) {
+			int p = parent[i];
+			if (!dirty[i]) {
+				if (p == NO_PARENT || !dirty[p]) {
+					continue;
+				}
+				dirty[i] = true;
+			}
+			updateStamp[i] = updateCount;
+
+			// Local transform T * R * S, by columns.
+			float qx = qxs[i], qy = qys[i], qz = qzs[i], qw = qws[i];
+			float k = 2f / (qx*qx + qy*qy + qz*qz + qw*qw);
+			float sx = s[3 * i], sy = s[3 * i + 1], sz = s[3 * i + 2];
+
+			float l00 = (1 - k * (qy * qy + qz * qz)) * sx;
+			float l01 = k * (qx * qy + qw * qz) * sx;
+			float l02 = k * (qx * qz - qw * qy) * sx;
+
+			float l10 = k * (qx * qy - qw * qz) * sy;
+			float l11 = (1 - k * (qx * qx + qz * qz)) * sy;
+			float l12 = k * (qy * qz + qw * qx) * sy;
+
+			float l20 = k * (qx * qz + qw * qy) * sz;
+			float l21 = k * (qy * qz - qw * qx) * sz;
+			float l22 = (1 - k * (qx * qx + qy * qy)) * sz;
+
+			float l30 = t[3 * i], l31 = t[3 * i + 1], l32 = t[3 * i + 2];
+
+			int d = Matrix4Batch.FLOATS_PER_MATRIX * i;
+			if (p == NO_PARENT) {
+				m[d]      = l00; m[d + 1]  = l01; m[d + 2]  = l02; m[d + 3]  = 0f;
+				m[d + 4]  = l10; m[d + 5]  = l11; m[d + 6]  = l12; m[d + 7]  = 0f;
+				m[d + 8]  = l20; m[d + 9]  = l21; m[d + 10] = l22; m[d + 11] = 0f;
+				m[d + 12] = l30; m[d + 13] = l31; m[d + 14] = l32; m[d + 15] = 1f;
+				continue;
+			}
+
+			// World = parent's world * local, both affine.
+			int a = Matrix4Batch.FLOATS_PER_MATRIX * p;
+			float p00 = m[a],     p01 = m[a + 1],  p02 = m[a + 2];
+			float p10 = m[a + 4], p11 = m[a + 5],  p12 = m[a + 6];
+			float p20 = m[a + 8], p21 = m[a + 9],  p22 = m[a + 10];
+			float p30 = m[a + 12], p31 = m[a + 13], p32 = m[a + 14];
+
+			m[d]      = p00 * l00 + p10 * l01 + p20 * l02;
+			m[d + 1]  = p01 * l00 + p11 * l01 + p21 * l02;
+			m[d + 2]  = p02 * l00 + p12 * l01 + p22 * l02;
+			m[d + 3]  = 0f;
+			m[d + 4]  = p00 * l10 + p10 * l11 + p20 * l12;
+			m[d + 5]  = p01 * l10 + p11 * l11 + p21 * l12;
+			m[d + 6]  = p02 * l10 + p12 * l11 + p22 * l12;
+			m[d + 7]  = 0f;
+			m[d + 8]  = p00 * l20 + p10 * l21 + p20 * l22;
+			m[d + 9]  = p01 * l20 + p11 * l21 + p21 * l22;
+			m[d + 10] = p02 * l20 + p12 * l21 + p22 * l22;
+			m[d + 11] = 0f;
+			m[d + 12] = p00 * l30 + p10 * l31 + p20 * l32 + p30;
+			m[d + 13] = p01 * l30 + p11 * l31 + p21 * l32 + p31;
+			m[d + 14] = p02 * l30 + p12 * l31 + p22 * l32 + p32;
+			m[d + 15] = 1f;
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Splits its range of a level in half until it falls below the parallel
+	 * threshold.
+	 */
+	private class UpdateTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final int begin;
+		private final int end;
+
+		UpdateTask(int begin, int end) {
+			this.begin = begin;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - begin < parallelThreshold) {
+				updateRange(begin, end);
+				return;
+			}
+
+			int middle = (begin + end) >>> 1;
+			invokeAll(new UpdateTask(begin, middle), new UpdateTask(middle, end));
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Sorts the nodes by depth with a counting sort, dropping the subtree
+	 * rooted at <code>removedIndex</code>, if any, and marks every node dirty.
+	 */
+	private void sort(int removedIndex) {
+		// Find each node's depth by walking up to the nearest ancestor whose
+		// depth is known, using the spare parent array as a stack.
+		if (spareParent.length < capacity) {
+			spareParent = new int[capacity];
+			spareDepth = new int[capacity];
+			spareIndexNode = new int[capacity];
+			spareTranslation = new float[3 * capacity];
+			spareScale = new float[3 * capacity];
+			spareRotation = new QuaternionBatch(capacity);
+		}
+		final int[] chain = spareParent;
+		Arrays.fill(depth, 0, count, UNKNOWN);
+		if (removedIndex != NO_PARENT) {
+			depth[removedIndex] = REMOVED;
+		}
+		int maxDepth = -1;
+		for (int i = 0; i < count; i++) {
+			int chainLength = 0;
+			int j = i;
+			while (j != NO_PARENT && depth[j] == UNKNOWN) {
+				chain[chainLength++] = j;
+				j = parent[j];
+			}
+			int d = j == NO_PARENT ? -1 : depth[j];
+			while (chainLength > 0) {
+				if (d != REMOVED) {
+					d++;
+				}
+				depth[chain[--chainLength]] = d;
+			}
+			maxDepth = Math.max(maxDepth, depth[i]);
+		}
+
+		// Count the nodes of each level and find where each level begins.
+		levelCount = maxDepth + 1;
+		if (levelStart.length < levelCount + 1) {
+			levelStart = new int[2 * (levelCount + 1)];
+		}
+		Arrays.fill(levelStart, 0, levelCount + 1, 0);
+		for (int i = 0; i < count; i++) {
+			if (depth[i] != REMOVED) {
+				levelStart[depth[i] + 1]++;
+			}
+		}
+		for (int level = 0; level < levelCount; level++) {
+			levelStart[level + 1] += levelStart[level];
+		}
+		int liveCount = levelStart[levelCount];
+
+		// Assign each live node its sorted index, reusing the node index
+		// table, and free the ids of removed nodes.
+		int[] next = Arrays.copyOf(levelStart, levelCount);
+		for (int i = 0; i < count; i++) {
+			int node = indexNode[i];
+			if (depth[i] == REMOVED) {
+				nodeIndex[node] = -1;
+				if (freeNodeCount == freeNodes.length) {
+					freeNodes = Arrays.copyOf(freeNodes, Math.max(2 * freeNodeCount,
+							DEFAULT_CAPACITY));
+				}
+				freeNodes[freeNodeCount++] = node;
+			}
+			else {
+				nodeIndex[node] = next[depth[i]]++;
+			}
+		}
+
+		// Move every live node to its sorted index in the spare arrays.
+		for (int i = 0; i < count; i++) {
+			if (depth[i] == REMOVED) {
+				continue;
+			}
+			int k = nodeIndex[indexNode[i]];
+			spareParent[k] = parent[i] == NO_PARENT ? NO_PARENT
+					: nodeIndex[indexNode[parent[i]]];
+			spareDepth[k] = depth[i];
+			spareIndexNode[k] = indexNode[i];
+			System.arraycopy(translation, 3 * i, spareTranslation, 3 * k, 3);
+			System.arraycopy(scale, 3 * i, spareScale, 3 * k, 3);
+			spareRotation.x[k] = rotation.x[i];
+			spareRotation.y[k] = rotation.y[i];
+			spareRotation.z[k] = rotation.z[i];
+			spareRotation.w[k] = rotation.w[i];
+		}
+
+		int[] tempInts = parent;
+		parent = spareParent;
+		spareParent = tempInts;
+		tempInts = depth;
+		depth = spareDepth;
+		spareDepth = tempInts;
+		tempInts = indexNode;
+		indexNode = spareIndexNode;
+		spareIndexNode = tempInts;
+		float[] tempFloats = translation;
+		translation = spareTranslation;
+		spareTranslation = tempFloats;
+		tempFloats = scale;
+		scale = spareScale;
+		spareScale = tempFloats;
+		QuaternionBatch tempRotation = rotation;
+		rotation = spareRotation;
+		spareRotation = tempRotation;
+
+		Arrays.fill(dirty, liveCount, count, false);
+		count = liveCount;
+		Arrays.fill(dirty, 0, count, true);
+		firstDirty = 0;
+		structureChanged = false;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Stores the world matrix of <code>node</code> as of the last
+	 * {@link #update()} in <code>dest</code>. After a change of structure, the
+	 * world matrices are valid again once updated.
+	 */
+	public void getWorldMatrix(int node, Matrix4f dest) {
+		worldMatrices.get(getIndex(node), dest);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the world matrices as of the last {@link #update()}, in sorted
+	 *         order. Use {@link #indexOf(int)} to find a node's matrix. The
+	 *         batch is replaced when the hierarchy grows.
+	 */
+	public Matrix4Batch getWorldMatrices() {
+		return worldMatrices;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return true if the last {@link #update()} recomputed the world matrix
+	 *         of <code>node</code>, because its local transform, that of an
+	 *         ancestor, or the structure of the hierarchy changed.
+	 */
+	public boolean wasUpdated(int node) {
+		return updateStamp[getIndex(node)] == updateCount;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the index of <code>node</code> in the sorted order used by
+	 *         {@link #getWorldMatrices()}, which stays valid until the next
+	 *         change of structure.
+	 */
+	public int indexOf(int node) {
+		return getIndex(node);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the number of nodes in the hierarchy.
+	 */
+	public int getNodeCount() {
+		return count;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the number of depth levels, which is one more than the depth of
+	 *         the deepest node.
+	 */
+	public int getLevelCount() {
+		if (structureChanged) {
+			sort(NO_PARENT);
+		}
+		return levelCount;
+	}
+
+	//--------------------------------------------------------------------------
+	private int getIndex(int node) {
+		int i = node >= 0 && node < nodeIndex.length ? nodeIndex[node] : -1;
+		if (i < 0 || (DEBUG_MODE && (i >= count || indexNode[i] != node))) {
+			throw new IllegalArgumentException("Node " + node
+					+ " is not in the hierarchy.");
+		}
+		return i;
+	}
+}
@@ -0,0 +1,134 @@
+package util.shader;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import org.lwjgl.BufferUtils;
+
+import util.HashUtils;
+
+/**
+ * Stores linked program binaries, as returned by glGetProgramBinary, in a
+ * directory on disk so that later runs can skip compiling and linking.
+ * <p>
+ * Binaries are only valid for the driver that produced them, so each is keyed
+ * by both the program's source hash and a string identifying the driver.
+ * Files that cannot be read are treated as misses, and drivers may still
+ * reject a binary, in which case the program must be built from source.
+ *
+ * @author Dustin Biser
+ *
+ */
+public class ProgramBinaryCache {
+	private static final int MAGIC = 0x50524742; // "PRGB"
+	private static final int VERSION = 1;
+	private static final int HEADER_BYTES = 16;
+	private static final String EXTENSION = ".bin";
+
+	/**
+	 * A program binary and the driver specific format it is stored in.
+	 */
+	public static class ProgramBinary {
+		public final int format;
+		public final ByteBuffer data;
+
+		//----------------------------------------------------------------------
+		/**
+		 * @param format - binary format, as returned by glGetProgramBinary.
+		 * @param data - native order direct buffer holding the binary, from
+		 *        its position to its limit.
+		 */
+		public ProgramBinary(int format, ByteBuffer data) {
+			this.format = format;
+			this.data = data;
+		}
+	}
+
+	private final File directory;
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param directory - directory holding cached binaries. Created if it does
+	 *        not exist.
+	 * @throws IOException if the directory cannot be created.
+	 */
+	public ProgramBinaryCache(File directory) throws IOException {
+		Files.createDirectories(directory.toPath());
+		this.directory = directory;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param programHash - hash identifying the program's sources.
+	 * @param driver - string identifying the driver, such as the GL vendor,
+	 *        renderer and version strings.
+	 * @return the cached binary, or null if there is none or it is unreadable.
+	 */
+	public ProgramBinary load(String programHash, String driver) {
+		File file = fileFor(programHash, driver);
+		if (!file.isFile()) {
+			return null;
+		}
+
+		try {
+			byte[] contents = Files.readAllBytes(file.toPath());
+			ByteBuffer buffer = ByteBuffer.wrap(contents).order(ByteOrder.LITTLE_ENDIAN);
+			if (contents.length < HEADER_BYTES || buffer.getInt(0) != MAGIC
+					|| buffer.getInt(4) != VERSION
+					|| buffer.getInt(12) != contents.length - HEADER_BYTES) {
+				return null;
+			}
+
+			ByteBuffer data = BufferUtils.createByteBuffer(contents.length - HEADER_BYTES);
+			data.put(contents, HEADER_BYTES, data.capacity());
+			data.flip();
+
+			return new ProgramBinary(buffer.getInt(8), data);
+		}
+		catch (IOException e) {
+			return null;
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Stores a program binary, replacing any binary stored under the same key.
+	 *
+	 * @param programHash - hash identifying the program's sources.
+	 * @param driver - string identifying the driver.
+	 * @param binary
+	 * @throws IOException if the file cannot be written.
+	 */
+	public void store(String programHash, String driver, ProgramBinary binary)
+			throws IOException {
+		ByteBuffer data = binary.data.duplicate();
+		byte[] contents = new byte[HEADER_BYTES + data.remaining()];
+
+		ByteBuffer buffer = ByteBuffer.wrap(contents).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MAGIC).putInt(VERSION).putInt(binary.format)
+			  .putInt(data.remaining()).put(data);
+
+		File file = fileFor(programHash, driver);
+		File temp = File.createTempFile("program", ".tmp", directory);
+		try {
+			Files.write(temp.toPath(), contents);
+			Files.move(temp.toPath(), file.toPath(),
+					StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		finally {
+			Files.deleteIfExists(temp.toPath());
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private File fileFor(String programHash, String driver) {
+		String key = HashUtils.sha1Hex((programHash + "\n" + driver)
+				.getBytes(StandardCharsets.UTF_8));
+		return new File(directory, key + EXTENSION);
+	}
+}
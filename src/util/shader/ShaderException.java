@@ -0,0 +1,22 @@
+package util.shader;
+
+/**
+ * Thrown when a shader cannot be read, preprocessed, compiled or linked. The
+ * message identifies the shader and includes any driver info log.
+ *
+ * @author Dustin Biser
+ *
+ */
+public class ShaderException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+
+	//--------------------------------------------------------------------------
+	public ShaderException(String message) {
+		super(message);
+	}
+
+	//--------------------------------------------------------------------------
+	public ShaderException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
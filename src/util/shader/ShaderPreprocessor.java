@@ -0,0 +1,261 @@
+package util.shader;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Expands GLSL shader files into single sources ready for compilation, by
+ * resolving <code>#include</code> directives and injecting
+ * <code>#define</code>s, so that one file can produce many shader
+ * permutations.
+ * <p>
+ * <code>#include "file"</code> (or <code>&lt;file&gt;</code>) is replaced by
+ * the contents of the named file, found relative to the including file or,
+ * failing that, in each include directory in turn. Files containing
+ * <code>#pragma once</code> are only included the first time. Includes are
+ * wrapped in <code>#line</code> directives, using GLSL 3.30 semantics, so that
+ * compiler errors report the line within the file they occur in, with the
+ * file identified by its index in {@link ShaderSource#getFiles()}.
+ * <p>
+ * Defines are inserted directly after the <code>#version</code> directive of
+ * the main file, or at the top if it has none, sorted by name so that equal
+ * sets of defines always produce identical sources.
+ * <p>
+ * File contents are cached, and only read again after their modification
+ * time or size changes. Instances are not thread safe.
+ *
+ * @author Dustin Biser
+ *
+ */
+public class ShaderPreprocessor {
+	private static final Pattern INCLUDE = Pattern.compile(
+			"^\\s*#\\s*include\\s+[\"<]([^\">]+)[\">]\\s*(//.*)?$");
+	private static final Pattern PRAGMA_ONCE = Pattern.compile(
+			"^\\s*#\\s*pragma\\s+once\\s*(//.*)?$");
+	private static final Pattern VERSION = Pattern.compile("^\\s*#\\s*version\\b.*");
+
+	//--------------------------------------------------------------------------
+	private static class CachedFile {
+		final long lastModified;
+		final long length;
+		final String[] lines;
+
+		CachedFile(long lastModified, long length, String[] lines) {
+			this.lastModified = lastModified;
+			this.length = length;
+			this.lines = lines;
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * State of a single expansion.
+	 */
+	private static class Expansion {
+		final StringBuilder output = new StringBuilder();
+		final List<File> files = new ArrayList<File>();
+		final List<File> includeStack = new ArrayList<File>();
+		final Set<File> onceFiles = new HashSet<File>();
+	}
+
+	private final List<File> includeDirectories;
+	private final Map<File, CachedFile> fileCache = new HashMap<File, CachedFile>();
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param includeDirectories - directories searched, in order, for included
+	 *        files not found relative to the including file.
+	 */
+	public ShaderPreprocessor(File... includeDirectories) {
+		this.includeDirectories = new ArrayList<File>(Arrays.asList(includeDirectories));
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Expands a shader file without any defines.
+	 *
+	 * @param filename - path of the main shader file.
+	 * @return the expanded source.
+	 * @throws ShaderException if a file cannot be read or an include cannot be
+	 *         resolved.
+	 */
+	public ShaderSource process(String filename) {
+		return process(filename, Collections.<String, String>emptyMap());
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Expands a shader file, defining each entry of <code>defines</code> as a
+	 * preprocessor macro.
+	 *
+	 * @param filename - path of the main shader file.
+	 * @param defines - macro names mapped to their values. An empty value
+	 *        defines the macro without a value.
+	 * @return the expanded source.
+	 * @throws ShaderException if a file cannot be read or an include cannot be
+	 *         resolved.
+	 */
+	public ShaderSource process(String filename, Map<String, String> defines) {
+		File file = canonicalFile(new File(filename));
+		String[] lines = readLines(file);
+
+		Expansion expansion = new Expansion();
+		expansion.files.add(file);
+		expansion.includeStack.add(file);
+
+		// Emit everything up to and including the #version directive, which
+		// must precede any other directive.
+		int firstLine = 0;
+		for (int i = 0; i < lines.length; i++) {
+			if (VERSION.matcher(lines[i]).matches()) {
+				for (int j = 0; j <= i; j++) {
+					expansion.output.append(lines[j]).append('\n');
+				}
+				firstLine = i + 1;
+				break;
+			}
+		}
+
+		for (Map.Entry<String, String> define : new TreeMap<String, String>(defines).entrySet()) {
+			expansion.output.append("#define ").append(define.getKey());
+			if (!define.getValue().isEmpty()) {
+				expansion.output.append(' ').append(define.getValue());
+			}
+			expansion.output.append('\n');
+		}
+		if (!defines.isEmpty()) {
+			appendLineDirective(expansion.output, firstLine + 1, 0);
+		}
+
+		expandLines(file, lines, firstLine, 0, expansion);
+
+		return new ShaderSource(file.getPath(), expansion.output.toString(),
+				expansion.files);
+	}
+
+	//--------------------------------------------------------------------------
+	private void expandLines(File file, String[] lines, int firstLine,
+			int fileIndex, Expansion expansion) {
+		for (int i = firstLine; i < lines.length; i++) {
+			String line = lines[i];
+
+			if (PRAGMA_ONCE.matcher(line).matches()) {
+				expansion.onceFiles.add(file);
+				expansion.output.append('\n');
+				continue;
+			}
+
+			Matcher include = INCLUDE.matcher(line);
+			if (!include.matches()) {
+				expansion.output.append(line).append('\n');
+				continue;
+			}
+
+			File included = resolveInclude(file, include.group(1), i + 1);
+			if (expansion.includeStack.contains(included)) {
+				throw new ShaderException(file.getPath() + ":" + (i + 1)
+						+ ": circular #include of " + included.getPath());
+			}
+
+			if (!expansion.onceFiles.contains(included)) {
+				int includedIndex = expansion.files.indexOf(included);
+				if (includedIndex < 0) {
+					includedIndex = expansion.files.size();
+					expansion.files.add(included);
+				}
+
+				appendLineDirective(expansion.output, 1, includedIndex);
+				expansion.includeStack.add(included);
+				expandLines(included, readLines(included), 0, includedIndex, expansion);
+				expansion.includeStack.remove(expansion.includeStack.size() - 1);
+			}
+			appendLineDirective(expansion.output, i + 2, fileIndex);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private static void appendLineDirective(StringBuilder output, int line,
+			int fileIndex) {
+		output.append("#line ").append(line).append(' ').append(fileIndex).append('\n');
+	}
+
+	//--------------------------------------------------------------------------
+	private File resolveInclude(File includingFile, String name, int lineNumber) {
+		File candidate = new File(includingFile.getParentFile(), name);
+		if (candidate.isFile()) {
+			return canonicalFile(candidate);
+		}
+
+		for (File directory : includeDirectories) {
+			candidate = new File(directory, name);
+			if (candidate.isFile()) {
+				return canonicalFile(candidate);
+			}
+		}
+
+		throw new ShaderException(includingFile.getPath() + ":" + lineNumber
+				+ ": cannot find #include \"" + name + "\"");
+	}
+
+	//--------------------------------------------------------------------------
+	private static File canonicalFile(File file) {
+		try {
+			return file.getCanonicalFile();
+		}
+		catch (IOException e) {
+			throw new ShaderException("Cannot resolve shader file " + file, e);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private String[] readLines(File file) {
+		long lastModified = file.lastModified();
+		long length = file.length();
+
+		CachedFile cached = fileCache.get(file);
+		if (cached != null && cached.lastModified == lastModified
+				&& cached.length == length) {
+			return cached.lines;
+		}
+
+		String text;
+		try {
+			text = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+		}
+		catch (IOException e) {
+			throw new ShaderException("Cannot read shader file " + file, e);
+		}
+
+		// Normalize line endings, and drop the empty string following a
+		// trailing newline.
+		String[] lines = text.replace("\r\n", "\n").replace('\r', '\n').split("\n", -1);
+		if (lines.length > 0 && lines[lines.length - 1].isEmpty()) {
+			lines = Arrays.copyOf(lines, lines.length - 1);
+		}
+
+		fileCache.put(file, new CachedFile(lastModified, length, lines));
+
+		return lines;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Discards all cached file contents.
+	 */
+	public void clearCache() {
+		fileCache.clear();
+	}
+}
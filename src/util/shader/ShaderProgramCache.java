@@ -0,0 +1,339 @@
+package util.shader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL41;
+
+import util.HashUtils;
+import util.graphics.GraphicsDevice;
+import util.graphics.LwjglGraphicsDevice;
+import util.shader.ProgramBinaryCache.ProgramBinary;
+
+/**
+ * Compiles and links shader programs from {@link ShaderSource}s, at most once
+ * per distinct source per run.
+ * <p>
+ * Shaders are keyed by their type and source hash, and programs by the hashes
+ * of their shaders, so requesting a program whose expanded sources are
+ * identical to an earlier one returns the same program object. When a
+ * {@link ProgramBinaryCache} is supplied and the driver supports program
+ * binaries, linked programs are also stored on disk and restored on later
+ * runs without compiling. Programs whose sources change, such as on a hot
+ * reload, are released with {@link #evictProgram(String)}.
+ * <p>
+ * Must be used from the thread owning the device's context.
+ *
+ * @author Dustin Biser
+ *
+ */
+public class ShaderProgramCache {
+	private static final int MAX_INFO_LOG_LENGTH = 4096;
+
+	private final GraphicsDevice device;
+	private final ProgramBinaryCache binaryCache;
+	private final Map<String, Integer> shaders = new HashMap<String, Integer>();
+	private final Map<String, Integer> programs = new HashMap<String, Integer>();
+	// Keys of the shaders linked into each program built from source.
+	private final Map<String, String[]> programShaders = new HashMap<String, String[]>();
+
+	private String driver;
+	private int compileCount;
+	private int linkCount;
+	private int binaryLoadCount;
+
+	//--------------------------------------------------------------------------
+	public ShaderProgramCache() {
+		this(LwjglGraphicsDevice.INSTANCE, null);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param device - device to build programs with.
+	 * @param binaryCache - on disk cache of linked programs, or null to always
+	 *        build programs from source.
+	 */
+	public ShaderProgramCache(GraphicsDevice device, ProgramBinaryCache binaryCache) {
+		this.device = device;
+		this.binaryCache = binaryCache;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param vertex - vertex shader source.
+	 * @param fragment - fragment shader source.
+	 * @return the key identifying the program linked from the given sources.
+	 */
+	public static String programKey(ShaderSource vertex, ShaderSource fragment) {
+		String keySource = "vertex " + vertex.getHash() + "\nfragment " + fragment.getHash();
+		return HashUtils.sha1Hex(keySource.getBytes(StandardCharsets.UTF_8));
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Returns the program linked from a vertex and a fragment shader, building
+	 * it only if no program with identical sources exists.
+	 *
+	 * @param vertex - vertex shader source.
+	 * @param fragment - fragment shader source.
+	 * @return the program object, owned by this cache.
+	 * @throws ShaderException if a shader fails to compile or the program
+	 *         fails to link.
+	 */
+	public int getProgram(ShaderSource vertex, ShaderSource fragment) {
+		String key = programKey(vertex, fragment);
+		Integer cached = programs.get(key);
+		if (cached != null) {
+			return cached;
+		}
+
+		int programId = (binaryCache != null) ? loadBinary(key) : 0;
+		if (programId == 0) {
+			String[] shaderKeys = {
+					shaderKey(vertex, GL20.GL_VERTEX_SHADER),
+					shaderKey(fragment, GL20.GL_FRAGMENT_SHADER)
+			};
+			try {
+				int vertexShader = getShader(vertex, GL20.GL_VERTEX_SHADER);
+				int fragmentShader = getShader(fragment, GL20.GL_FRAGMENT_SHADER);
+				programId = device.createProgram();
+				device.attachShader(programId, vertexShader);
+				device.attachShader(programId, fragmentShader);
+
+				boolean storeBinary = binaryCache != null && device.supportsProgramBinaries();
+				if (storeBinary) {
+					device.programParameteri(programId,
+							GL41.GL_PROGRAM_BINARY_RETRIEVABLE_HINT, GL11.GL_TRUE);
+				}
+
+				link(programId, vertex.getName() + " + " + fragment.getName());
+				if (storeBinary) {
+					storeBinary(key, programId);
+				}
+			}
+			catch (ShaderException e) {
+				// No program holds the shaders just compiled for this one.
+				deleteUnlinkedShaders(shaderKeys);
+				throw e;
+			}
+			programShaders.put(key, shaderKeys);
+		}
+
+		programs.put(key, programId);
+
+		return programId;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Deletes the program cached under <code>key</code>, and those of its
+	 * shaders no other cached program was linked from. Its binary stays in
+	 * the {@link ProgramBinaryCache}, so should the same sources be requested
+	 * again the program is restored without compiling.
+	 *
+	 * @param key - key returned by
+	 *        {@link #programKey(ShaderSource, ShaderSource)}.
+	 * @return true if a program was cached under <code>key</code>.
+	 */
+	public boolean evictProgram(String key) {
+		Integer programId = programs.remove(key);
+		if (programId == null) {
+			return false;
+		}
+		device.deleteProgram(programId);
+
+		String[] shaderKeys = programShaders.remove(key);
+		if (shaderKeys != null) {
+			deleteUnlinkedShaders(shaderKeys);
+		}
+
+		return true;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Deletes those of the shaders cached under <code>shaderKeys</code> that no
+	 * cached program was linked from.
+	 */
+	private void deleteUnlinkedShaders(String[] shaderKeys) {
+		for (String shaderKey : shaderKeys) {
+			if (!isLinked(shaderKey)) {
+				Integer shaderId = shaders.remove(shaderKey);
+				if (shaderId != null) {
+					device.deleteShader(shaderId);
+				}
+			}
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private boolean isLinked(String shaderKey) {
+		for (String[] shaderKeys : programShaders.values()) {
+			for (String linkedKey : shaderKeys) {
+				if (linkedKey.equals(shaderKey)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	//--------------------------------------------------------------------------
+	private static String shaderKey(ShaderSource source, int type) {
+		return type + ":" + source.getHash();
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Returns the shader object compiled from <code>source</code>, compiling
+	 * it only if no shader of the same type with identical source exists.
+	 *
+	 * @param source - shader source.
+	 * @param type - shader type, such as GL_VERTEX_SHADER.
+	 * @return the shader object, owned by this cache.
+	 * @throws ShaderException if the shader fails to compile.
+	 */
+	public int getShader(ShaderSource source, int type) {
+		String key = shaderKey(source, type);
+		Integer cached = shaders.get(key);
+		if (cached != null) {
+			return cached;
+		}
+
+		int shaderId = device.createShader(type);
+		device.shaderSource(shaderId, source.getSource());
+		device.compileShader(shaderId);
+		compileCount++;
+
+		if (device.getShaderi(shaderId, GL20.GL_COMPILE_STATUS) == GL11.GL_FALSE) {
+			String log = device.getShaderInfoLog(shaderId, MAX_INFO_LOG_LENGTH);
+			device.deleteShader(shaderId);
+			throw new ShaderException("Could not compile shader " + source.getName()
+					+ ", whose files are " + source.getFiles() + ":\n" + log);
+		}
+
+		shaders.put(key, shaderId);
+
+		return shaderId;
+	}
+
+	//--------------------------------------------------------------------------
+	private void link(int programId, String name) {
+		device.linkProgram(programId);
+		linkCount++;
+
+		if (device.getProgrami(programId, GL20.GL_LINK_STATUS) == GL11.GL_FALSE) {
+			String log = device.getProgramInfoLog(programId, MAX_INFO_LOG_LENGTH);
+			device.deleteProgram(programId);
+			throw new ShaderException("Could not link program " + name + ":\n" + log);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private String getDriver() {
+		if (driver == null) {
+			driver = device.getString(GL11.GL_VENDOR) + "\n"
+					+ device.getString(GL11.GL_RENDERER) + "\n"
+					+ device.getString(GL11.GL_VERSION);
+		}
+		return driver;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return a program restored from the binary cache, or 0 if there is no
+	 *         usable binary.
+	 */
+	private int loadBinary(String key) {
+		if (!device.supportsProgramBinaries()) {
+			return 0;
+		}
+
+		ProgramBinary binary = binaryCache.load(key, getDriver());
+		if (binary == null) {
+			return 0;
+		}
+
+		int programId = device.createProgram();
+		device.programBinary(programId, binary.format, binary.data);
+
+		// Drivers reject binaries from other driver versions, in which case
+		// the program is built from source.
+		if (device.getProgrami(programId, GL20.GL_LINK_STATUS) == GL11.GL_FALSE) {
+			device.deleteProgram(programId);
+			return 0;
+		}
+
+		binaryLoadCount++;
+		return programId;
+	}
+
+	//--------------------------------------------------------------------------
+	private void storeBinary(String key, int programId) {
+		int length = device.getProgrami(programId, GL41.GL_PROGRAM_BINARY_LENGTH);
+		if (length <= 0) {
+			return;
+		}
+
+		IntBuffer lengthBuffer = BufferUtils.createIntBuffer(1);
+		IntBuffer formatBuffer = BufferUtils.createIntBuffer(1);
+		ByteBuffer data = BufferUtils.createByteBuffer(length);
+		device.getProgramBinary(programId, lengthBuffer, formatBuffer, data);
+		data.limit(lengthBuffer.get(0));
+
+		try {
+			binaryCache.store(key, getDriver(), new ProgramBinary(formatBuffer.get(0), data));
+		}
+		catch (IOException e) {
+			// The cache is only an optimization; the program is still usable.
+			System.err.println("Could not store program binary: " + e.getMessage());
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the number of shaders compiled.
+	 */
+	public int getCompileCount() {
+		return compileCount;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the number of programs linked from source.
+	 */
+	public int getLinkCount() {
+		return linkCount;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the number of programs restored from the binary cache.
+	 */
+	public int getBinaryLoadCount() {
+		return binaryLoadCount;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Deletes every shader and program object created by this cache.
+	 */
+	public void dispose() {
+		for (int programId : programs.values()) {
+			device.deleteProgram(programId);
+		}
+		for (int shaderId : shaders.values()) {
+			device.deleteShader(shaderId);
+		}
+		programs.clear();
+		programShaders.clear();
+		shaders.clear();
+	}
+}
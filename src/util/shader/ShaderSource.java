@@ -0,0 +1,75 @@
+package util.shader;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import util.HashUtils;
+
+/**
+ * Fully expanded shader source text, ready to be compiled, together with its
+ * content hash and the files it was expanded from.
+ *
+ * @author Dustin Biser
+ *
+ */
+public class ShaderSource {
+	private final String name;
+	private final String source;
+	private final String hash;
+	private final List<File> files;
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param name - identifies the shader in error messages, typically the
+	 *        path of its main file.
+	 * @param source - expanded source text.
+	 * @param files - files the source was read from, where file i corresponds
+	 *        to source string number i of #line directives in the source.
+	 */
+	public ShaderSource(String name, String source, List<File> files) {
+		this.name = name;
+		this.source = source;
+		this.hash = HashUtils.sha1Hex(source.getBytes(StandardCharsets.UTF_8));
+		this.files = Collections.unmodifiableList(new ArrayList<File>(files));
+	}
+
+	//--------------------------------------------------------------------------
+	public String getName() {
+		return name;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the expanded source text.
+	 */
+	public String getSource() {
+		return source;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the SHA-1 hash of the expanded source text, as 40 hex digits.
+	 *         Sources with equal hashes compile to the same shader.
+	 */
+	public String getHash() {
+		return hash;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the main file followed by every file it includes, in the order
+	 *         of their #line source string numbers.
+	 */
+	public List<File> getFiles() {
+		return files;
+	}
+
+	//--------------------------------------------------------------------------
+	@Override
+	public String toString() {
+		return name + " [" + hash.substring(0, 8) + "]";
+	}
+}
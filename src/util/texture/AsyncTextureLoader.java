@@ -0,0 +1,192 @@
+package util.texture;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decodes textures on a pool of worker threads, so that loading many textures
+ * does not stall the render thread.
+ * <p>
+ * {@link #load(String)} queues a file for decoding and returns immediately with
+ * a Future of its {@link TextureData}, which reports any decoding error. Each
+ * decoded texture is also queued for upload, and the render thread calls
+ * {@link #uploadPending(long, TextureUploader)} once per frame to upload as
+ * many queued textures as fit within a byte budget. This bounds the time spent
+ * in glTexImage2D each frame, while the workers keep decoding in the
+ * background.
+ * <p>
+ * Decoded pixels are stored in buffers borrowed from a
+ * {@link DirectBufferPool}, and are handed back to it once uploaded. The
+ * pixels returned by a Future are therefore only valid until their texture
+ * has been uploaded.
+ *
+ * @author Dustin Biser
+ *
+ */
+public class AsyncTextureLoader {
+	/** Default number of decoding threads, leaving a core for rendering. */
+	public static final int DEFAULT_THREAD_COUNT =
+			Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+	private final ExecutorService executor;
+	private final DirectBufferPool bufferPool;
+
+	// Decoded textures waiting to be uploaded, in order of completion.
+	private final ConcurrentLinkedQueue<TextureData> pendingUploads =
+			new ConcurrentLinkedQueue<TextureData>();
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Constructs a loader with {@link #DEFAULT_THREAD_COUNT} threads and a new
+	 * {@link DirectBufferPool}.
+	 */
+	public AsyncTextureLoader() {
+		this(DEFAULT_THREAD_COUNT, new DirectBufferPool());
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param threadCount - number of decoding threads.
+	 * @param bufferPool - pool supplying the pixel buffers of decoded textures.
+	 */
+	public AsyncTextureLoader(int threadCount, DirectBufferPool bufferPool) {
+		if (threadCount < 1) {
+			throw new IllegalArgumentException("threadCount must be at least 1.");
+		}
+
+		this.bufferPool = bufferPool;
+		this.executor = Executors.newFixedThreadPool(threadCount, new ThreadFactory() {
+			private final AtomicInteger threadNumber = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable,
+						"TextureLoader-" + threadNumber.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Queues a PNG file for decoding on a worker thread.
+	 *
+	 * @param filename - path of the PNG file.
+	 * @return a Future of the decoded texture. If decoding fails, its get()
+	 *         method throws an ExecutionException caused by the IOException.
+	 */
+	public Future<TextureData> load(final String filename) {
+		DecodeTask task = new DecodeTask(new Callable<TextureData>() {
+			@Override
+			public TextureData call() throws Exception {
+				return TextureDecoder.decodePNG(filename, bufferPool);
+			}
+		});
+		executor.execute(task);
+
+		return task;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Queues successfully decoded textures for upload before completing, so a
+	 * texture is always pending by the time its Future reports it done.
+	 * Textures of cancelled tasks are released instead of queued.
+	 */
+	private class DecodeTask extends FutureTask<TextureData> {
+		DecodeTask(Callable<TextureData> callable) {
+			super(callable);
+		}
+
+		@Override
+		protected void set(TextureData data) {
+			if (isCancelled()) {
+				data.release();
+				return;
+			}
+
+			pendingUploads.add(data);
+			super.set(data);
+
+			// cancel() may have completed the task between the check above and
+			// super.set(), which then discards data. Take it back unless the
+			// render thread has already uploaded and released it.
+			if (isCancelled() && pendingUploads.remove(data)) {
+				data.release();
+			}
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Passes decoded textures to <code>uploader</code>, in the order they
+	 * finished decoding, until uploading the next one would exceed
+	 * <code>byteBudget</code>. At least one texture is uploaded if any are
+	 * pending, so that textures larger than the budget are not held back
+	 * forever. Each texture's pixel buffer is released after it is uploaded.
+	 * <p>
+	 * Must be called from the thread owning the GL context.
+	 *
+	 * @param byteBudget - maximum number of pixel bytes to upload.
+	 * @param uploader - uploads each texture to the GPU.
+	 * @return the number of textures uploaded.
+	 */
+	public int uploadPending(long byteBudget, TextureUploader uploader) {
+		int uploadCount = 0;
+		long uploadedBytes = 0;
+
+		TextureData data;
+		while ((data = pendingUploads.peek()) != null) {
+			if (uploadCount > 0 && uploadedBytes + data.getByteCount() > byteBudget) {
+				break;
+			}
+			pendingUploads.poll();
+
+			try {
+				uploader.upload(data);
+			}
+			finally {
+				data.release();
+			}
+
+			uploadedBytes += data.getByteCount();
+			uploadCount++;
+		}
+
+		return uploadCount;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the number of decoded textures waiting to be uploaded.
+	 */
+	public int getPendingUploadCount() {
+		return pendingUploads.size();
+	}
+
+	//--------------------------------------------------------------------------
+	public DirectBufferPool getBufferPool() {
+		return bufferPool;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Stops accepting new files and releases the pixels of textures that were
+	 * decoded but never uploaded. Files already queued are still decoded.
+	 */
+	public void shutdown() {
+		executor.shutdown();
+
+		TextureData data;
+		while ((data = pendingUploads.poll()) != null) {
+			data.release();
+		}
+	}
+}
@@ -0,0 +1,177 @@
+package util.texture;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.lwjgl.BufferUtils;
+
+/**
+ * A thread safe pool of native order direct ByteBuffers.
+ * <p>
+ * Allocating direct memory is slow and the memory is only reclaimed when the
+ * garbage collector gets around to it, so code that repeatedly needs large
+ * temporary buffers, such as texture decoding, should borrow them from a pool.
+ * Buffers are kept in power of two size classes, and a request is served by a
+ * buffer of the smallest class that fits it. Released buffers are retained up
+ * to a total byte limit, beyond which they are left to the garbage collector.
+ *
+ * @author Dustin Biser
+ *
+ */
+public class DirectBufferPool {
+	/** Default number of bytes of released buffers kept for reuse. */
+	public static final long DEFAULT_MAX_RETAINED_BYTES = 64L << 20;
+
+	// Buffers smaller than 2^MIN_SIZE_CLASS bytes are rounded up to it.
+	private static final int MIN_SIZE_CLASS = 12;
+
+	// Requests larger than 2^MAX_SIZE_CLASS bytes are allocated exactly and
+	// never pooled.
+	private static final int MAX_SIZE_CLASS = 30;
+
+	private final long maxRetainedBytes;
+	private final List<ConcurrentLinkedQueue<ByteBuffer>> freeBuffers;
+	private final AtomicLong retainedBytes = new AtomicLong();
+	private final AtomicInteger allocationCount = new AtomicInteger();
+	private final AtomicInteger reuseCount = new AtomicInteger();
+
+	//--------------------------------------------------------------------------
+	public DirectBufferPool() {
+		this(DEFAULT_MAX_RETAINED_BYTES);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param maxRetainedBytes - maximum number of bytes of released buffers kept
+	 *        for reuse.
+	 */
+	public DirectBufferPool(long maxRetainedBytes) {
+		if (maxRetainedBytes < 0) {
+			throw new IllegalArgumentException(
+					"maxRetainedBytes cannot be negative.");
+		}
+		this.maxRetainedBytes = maxRetainedBytes;
+
+		freeBuffers = new ArrayList<ConcurrentLinkedQueue<ByteBuffer>>();
+		for (int i = 0; i <= MAX_SIZE_CLASS; i++) {
+			freeBuffers.add(new ConcurrentLinkedQueue<ByteBuffer>());
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Returns a native order direct buffer with position 0 and limit
+	 * <code>byteCount</code>. Its capacity may be larger than
+	 * <code>byteCount</code>, and its contents are undefined.
+	 *
+	 * @param byteCount - number of bytes required.
+	 * @return a buffer that should be handed back to {@link #release(ByteBuffer)}
+	 *         once no longer used.
+	 */
+	public ByteBuffer acquire(int byteCount) {
+		if (byteCount < 0) {
+			throw new IllegalArgumentException("byteCount cannot be negative.");
+		}
+
+		int sizeClass = sizeClass(byteCount);
+		if (sizeClass > MAX_SIZE_CLASS) {
+			allocationCount.incrementAndGet();
+			return BufferUtils.createByteBuffer(byteCount);
+		}
+
+		ByteBuffer buffer = freeBuffers.get(sizeClass).poll();
+		if (buffer != null) {
+			retainedBytes.addAndGet(-buffer.capacity());
+			reuseCount.incrementAndGet();
+		}
+		else {
+			buffer = BufferUtils.createByteBuffer(1 << sizeClass);
+			allocationCount.incrementAndGet();
+		}
+
+		buffer.clear();
+		buffer.limit(byteCount);
+
+		return buffer;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Returns a buffer obtained from {@link #acquire(int)} to the pool. The
+	 * caller must not use the buffer, or any view of it, afterwards.
+	 *
+	 * @param buffer
+	 */
+	public void release(ByteBuffer buffer) {
+		int capacity = buffer.capacity();
+
+		// Only whole size class buffers are pooled, which excludes oversized
+		// buffers and buffers from elsewhere.
+		if (!buffer.isDirect() || Integer.bitCount(capacity) != 1
+				|| capacity < (1 << MIN_SIZE_CLASS)) {
+			return;
+		}
+
+		if (retainedBytes.addAndGet(capacity) > maxRetainedBytes) {
+			retainedBytes.addAndGet(-capacity);
+			return;
+		}
+
+		buffer.order(ByteOrder.nativeOrder());
+		freeBuffers.get(Integer.numberOfTrailingZeros(capacity)).offer(buffer);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the index of the smallest size class holding
+	 *         <code>byteCount</code> bytes.
+	 */
+	private static int sizeClass(int byteCount) {
+		if (byteCount <= (1 << MIN_SIZE_CLASS)) {
+			return MIN_SIZE_CLASS;
+		}
+		return 32 - Integer.numberOfLeadingZeros(byteCount - 1);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Drops all retained buffers.
+	 */
+	public void clear() {
+		for (ConcurrentLinkedQueue<ByteBuffer> queue : freeBuffers) {
+			ByteBuffer buffer;
+			while ((buffer = queue.poll()) != null) {
+				retainedBytes.addAndGet(-buffer.capacity());
+			}
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the number of bytes of released buffers currently kept for reuse.
+	 */
+	public long getRetainedBytes() {
+		return retainedBytes.get();
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the number of buffers allocated because no pooled buffer fit.
+	 */
+	public int getAllocationCount() {
+		return allocationCount.get();
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the number of requests served by a pooled buffer.
+	 */
+	public int getReuseCount() {
+		return reuseCount.get();
+	}
+}
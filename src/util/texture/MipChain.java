@@ -0,0 +1,102 @@
+package util.texture;
+
+/**
+ * A complete chain of mip levels for a 2D texture, from the full resolution
+ * base level down to a single pixel. Each level halves the width and height of
+ * the previous one, rounding down, but never below 1.
+ *
+ * @author Dustin Biser
+ *
+ */
+public class MipChain {
+	private final TextureData[] levels;
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param levels - every mip level, beginning with the base level.
+	 *
+	 * @throws IllegalArgumentException if the levels do not form a complete
+	 *         mip chain.
+	 */
+	public MipChain(TextureData[] levels) {
+		if (levels.length == 0
+				|| levels.length != levelCount(levels[0].getWidth(), levels[0].getHeight())) {
+			throw new IllegalArgumentException("Incomplete mip chain of "
+					+ levels.length + " levels.");
+		}
+		for (int i = 1; i < levels.length; i++) {
+			if (levels[i].getWidth() != nextSize(levels[i - 1].getWidth())
+					|| levels[i].getHeight() != nextSize(levels[i - 1].getHeight())) {
+				throw new IllegalArgumentException("Mip level " + i + " is "
+						+ levels[i].getWidth() + "x" + levels[i].getHeight()
+						+ ", which does not follow level " + (i - 1) + ".");
+			}
+		}
+
+		this.levels = levels.clone();
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param width - width of the base level.
+	 * @param height - height of the base level.
+	 * @return the number of levels in a complete mip chain.
+	 */
+	public static int levelCount(int width, int height) {
+		return 32 - Integer.numberOfLeadingZeros(Math.max(width, height));
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param size - width or height of a mip level.
+	 * @return the width or height of the following level.
+	 */
+	public static int nextSize(int size) {
+		return Math.max(1, size >> 1);
+	}
+
+	//--------------------------------------------------------------------------
+	public int getLevelCount() {
+		return levels.length;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param level - mip level, where 0 is the base level.
+	 */
+	public TextureData getLevel(int level) {
+		return levels[level];
+	}
+
+	//--------------------------------------------------------------------------
+	public int getWidth() {
+		return levels[0].getWidth();
+	}
+
+	//--------------------------------------------------------------------------
+	public int getHeight() {
+		return levels[0].getHeight();
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the total size of all levels in bytes.
+	 */
+	public long getByteCount() {
+		long byteCount = 0;
+		for (TextureData level : levels) {
+			byteCount += level.getByteCount();
+		}
+		return byteCount;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Releases the pixel data of every level.
+	 */
+	public void release() {
+		for (TextureData level : levels) {
+			level.release();
+		}
+	}
+}
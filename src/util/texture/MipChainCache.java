@@ -0,0 +1,193 @@
+package util.texture;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Stores generated mip chains in a directory on disk, so that they are only
+ * generated the first time a texture is seen.
+ * <p>
+ * Each chain is stored in its own file, named by the key returned from
+ * {@link MipmapGenerator#getCacheKey(TextureData)}, holding a short header
+ * followed by the raw RGBA pixels of every level. Files are written to a
+ * temporary name and then renamed, so a crash never leaves a partial file
+ * under a valid key. Files that cannot be read are treated as misses.
+ *
+ * @author Dustin Biser
+ *
+ */
+public class MipChainCache {
+	private static final int MAGIC = 0x4d495043; // "MIPC"
+	private static final int VERSION = 1;
+	private static final int HEADER_BYTES = 16;
+	private static final String EXTENSION = ".mips";
+
+	private final File directory;
+	private final DirectBufferPool bufferPool;
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param directory - directory holding cached mip chains. Created if it
+	 *        does not exist.
+	 * @param bufferPool - pool to borrow the pixel buffers of loaded levels
+	 *        from, or null to allocate new buffers.
+	 * @throws IOException if the directory cannot be created.
+	 */
+	public MipChainCache(File directory, DirectBufferPool bufferPool)
+			throws IOException {
+		Files.createDirectories(directory.toPath());
+		this.directory = directory;
+		this.bufferPool = bufferPool;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Returns the cached mip chain of <code>base</code>, generating and storing
+	 * it first if it is not cached.
+	 *
+	 * @param base - base level texture.
+	 * @param generator - generator used on a cache miss.
+	 * @return the mip chain, which the caller must release.
+	 * @throws IOException if a generated chain cannot be stored.
+	 */
+	public MipChain getOrGenerate(TextureData base, MipmapGenerator generator)
+			throws IOException {
+		String key = generator.getCacheKey(base);
+
+		MipChain chain = load(key);
+		if (chain == null) {
+			chain = generator.generate(base, bufferPool);
+			store(key, chain);
+		}
+
+		return chain;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param key - cache key of the mip chain.
+	 * @return the cached mip chain, or null if it is not cached or its file
+	 *         is unreadable.
+	 */
+	public MipChain load(String key) {
+		File file = fileFor(key);
+		if (!file.isFile()) {
+			return null;
+		}
+
+		TextureData[] levels = null;
+		try (FileChannel channel = FileChannel.open(file.toPath(),
+				StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			readFully(channel, header);
+			header.flip();
+
+			if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+				return null;
+			}
+			int width = header.getInt();
+			int height = header.getInt();
+			if (width <= 0 || height <= 0) {
+				return null;
+			}
+
+			levels = new TextureData[MipChain.levelCount(width, height)];
+			for (int i = 0; i < levels.length; i++) {
+				int byteCount = width * height * TextureData.BYTES_PER_PIXEL;
+				ByteBuffer pixels = (bufferPool != null)
+						? bufferPool.acquire(byteCount)
+						: ByteBuffer.allocateDirect(byteCount);
+				try {
+					readFully(channel, pixels);
+				}
+				catch (IOException e) {
+					if (bufferPool != null) {
+						bufferPool.release(pixels);
+					}
+					throw e;
+				}
+				pixels.flip();
+				levels[i] = new TextureData(key, width, height, pixels, bufferPool);
+
+				width = MipChain.nextSize(width);
+				height = MipChain.nextSize(height);
+			}
+
+			return new MipChain(levels);
+		}
+		catch (IOException e) {
+			if (levels != null) {
+				for (TextureData level : levels) {
+					if (level != null) {
+						level.release();
+					}
+				}
+			}
+			return null;
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Writes a mip chain to the cache, replacing any chain stored under the
+	 * same key.
+	 *
+	 * @param key - cache key of the mip chain.
+	 * @param chain
+	 * @throws IOException if the file cannot be written.
+	 */
+	public void store(String key, MipChain chain) throws IOException {
+		File file = fileFor(key);
+		File temp = File.createTempFile(key, ".tmp", directory);
+
+		try {
+			try (FileChannel channel = FileChannel.open(temp.toPath(),
+					StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+				header.putInt(MAGIC).putInt(VERSION)
+					  .putInt(chain.getWidth()).putInt(chain.getHeight());
+				header.flip();
+				writeFully(channel, header);
+
+				for (int i = 0; i < chain.getLevelCount(); i++) {
+					writeFully(channel, chain.getLevel(i).getPixels().duplicate());
+				}
+			}
+
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		}
+		finally {
+			Files.deleteIfExists(temp.toPath());
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private File fileFor(String key) {
+		return new File(directory, key + EXTENSION);
+	}
+
+	//--------------------------------------------------------------------------
+	private static void readFully(FileChannel channel, ByteBuffer buffer)
+			throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer) < 0) {
+				throw new IOException("Unexpected end of file.");
+			}
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private static void writeFully(FileChannel channel, ByteBuffer buffer)
+			throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+}
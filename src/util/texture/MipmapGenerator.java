@@ -0,0 +1,461 @@
+package util.texture;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import util.HashUtils;
+import util.Parallel;
+
+/**
+ * Builds complete mip chains from decoded RGBA8 textures on the CPU, so that
+ * mipmaps can be generated once by the asset pipeline instead of by
+ * glGenerateMipmap on every load.
+ * <p>
+ * Each level is filtered from the previous one with a separable filter, as a
+ * horizontal pass followed by a vertical pass. Both passes precompute the
+ * source indices and weights of every destination pixel, and the vertical
+ * pass accumulates whole rows at a time, so the inner loops run over
+ * contiguous float arrays that the JIT compiler can unroll and vectorize.
+ * Rows of large levels are split across a {@link ForkJoinPool}; levels are
+ * generated in order, since each depends on the one before it.
+ * <p>
+ * When gamma correction is enabled, RGB values are treated as sRGB encoded and
+ * filtered in linear space, which keeps the brightness of high contrast
+ * detail from darkening at lower levels. Alpha is always filtered linearly.
+ * Texels beyond the edges of a level are clamped to the nearest edge texel.
+ *
+ * @author Dustin Biser
+ *
+ */
+public class MipmapGenerator {
+
+	/**
+	 * Downsampling filters.
+	 */
+	public enum Filter {
+		/**
+		 * Averages the source texels covered by each destination texel. Cheap,
+		 * but lets some aliasing through.
+		 */
+		BOX,
+
+		/**
+		 * Kaiser windowed sinc spanning three destination texels either side
+		 * of each destination texel. Sharper than {@link #BOX}, with much less
+		 * aliasing, at several times the cost.
+		 */
+		KAISER
+	}
+
+	/**
+	 * Default number of rows below which a pass is run on the calling thread.
+	 */
+	public static final int DEFAULT_PARALLEL_ROW_THRESHOLD = 64;
+
+	// Kaiser filter radius, in destination texels, and window shape.
+	private static final float KAISER_RADIUS = 3f;
+	private static final double KAISER_ALPHA = 4.0;
+
+	// Resolution of the linear to sRGB lookup table.
+	private static final int LINEAR_TO_SRGB_SIZE = 1 << 14;
+
+	private static final float[] SRGB_TO_LINEAR = new float[256];
+	private static final byte[] LINEAR_TO_SRGB = new byte[LINEAR_TO_SRGB_SIZE + 1];
+
+	static {
+		for (int i = 0; i < 256; i++) {
+			double c = i / 255.0;
+			SRGB_TO_LINEAR[i] = (float) ((c <= 0.04045) ? c / 12.92
+					: Math.pow((c + 0.055) / 1.055, 2.4));
+		}
+		for (int i = 0; i <= LINEAR_TO_SRGB_SIZE; i++) {
+			double l = i / (double) LINEAR_TO_SRGB_SIZE;
+			double c = (l <= 0.0031308) ? l * 12.92
+					: 1.055 * Math.pow(l, 1.0 / 2.4) - 0.055;
+			LINEAR_TO_SRGB[i] = (byte) Math.round(c * 255.0);
+		}
+	}
+
+	private final Filter filter;
+	private final boolean gammaCorrect;
+	private final int parallelRowThreshold;
+	private final ForkJoinPool pool;
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Constructs a generator using the default parallel threshold and the
+	 * {@link Parallel#getPool() shared pool}.
+	 *
+	 * @param filter - downsampling filter.
+	 * @param gammaCorrect - true to filter RGB values in linear space.
+	 */
+	public MipmapGenerator(Filter filter, boolean gammaCorrect) {
+		this(filter, gammaCorrect, DEFAULT_PARALLEL_ROW_THRESHOLD, Parallel.getPool());
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param filter - downsampling filter.
+	 * @param gammaCorrect - true to filter RGB values in linear space.
+	 * @param parallelRowThreshold - number of rows below which a pass is run
+	 *        on the calling thread.
+	 * @param pool - pool used to filter large levels in parallel.
+	 */
+	public MipmapGenerator(Filter filter, boolean gammaCorrect,
+			int parallelRowThreshold, ForkJoinPool pool) {
+		if (parallelRowThreshold < 1) {
+			throw new IllegalArgumentException(
+					"parallelRowThreshold must be at least 1.");
+		}
+
+		this.filter = filter;
+		this.gammaCorrect = gammaCorrect;
+		this.parallelRowThreshold = parallelRowThreshold;
+		this.pool = pool;
+	}
+
+	//--------------------------------------------------------------------------
+	public Filter getFilter() {
+		return filter;
+	}
+
+	//--------------------------------------------------------------------------
+	public boolean isGammaCorrect() {
+		return gammaCorrect;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param base - base level texture.
+	 * @return a key identifying the mip chain this generator produces from
+	 *         <code>base</code>, suitable for use as a file name.
+	 */
+	public String getCacheKey(TextureData base) {
+		return HashUtils.sha1Hex(base.getPixels()) + "-" + base.getWidth() + "x"
+				+ base.getHeight() + "-" + filter.name().toLowerCase()
+				+ (gammaCorrect ? "-srgb" : "-linear");
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Generates the complete mip chain of <code>base</code>. Level 0 of the
+	 * returned chain is a copy of <code>base</code>.
+	 *
+	 * @param base - base level texture.
+	 * @param bufferPool - pool to borrow the pixel buffers of each level from,
+	 *        or null to allocate new buffers.
+	 * @return the mip chain, which the caller must release.
+	 */
+	public MipChain generate(TextureData base, DirectBufferPool bufferPool) {
+		int width = base.getWidth();
+		int height = base.getHeight();
+		TextureData[] levels = new TextureData[MipChain.levelCount(width, height)];
+
+		ByteBuffer basePixels = base.getPixels();
+		ByteBuffer levelPixels = allocate(base.getByteCount(), bufferPool);
+		levelPixels.put(basePixels.duplicate());
+		levelPixels.flip();
+		levels[0] = new TextureData(base.getName(), width, height, levelPixels,
+				bufferPool);
+
+		float[] image = toFloat(basePixels, width * height);
+
+		for (int level = 1; level < levels.length; level++) {
+			int nextWidth = MipChain.nextSize(width);
+			int nextHeight = MipChain.nextSize(height);
+
+			image = downsample(image, width, height, nextWidth, nextHeight);
+
+			levelPixels = allocate(nextWidth * nextHeight * TextureData.BYTES_PER_PIXEL,
+					bufferPool);
+			toBytes(image, levelPixels);
+			levels[level] = new TextureData(base.getName(), nextWidth,
+					nextHeight, levelPixels, bufferPool);
+
+			width = nextWidth;
+			height = nextHeight;
+		}
+
+		return new MipChain(levels);
+	}
+
+	//--------------------------------------------------------------------------
+	private static ByteBuffer allocate(int byteCount, DirectBufferPool bufferPool) {
+		if (bufferPool != null) {
+			return bufferPool.acquire(byteCount);
+		}
+		return ByteBuffer.allocateDirect(byteCount);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Converts RGBA8 pixels to floats in [0, 1], linearizing RGB values when
+	 * gamma correcting.
+	 */
+	private float[] toFloat(ByteBuffer pixels, int pixelCount) {
+		float[] image = new float[4 * pixelCount];
+		for (int i = 0; i < image.length; i++) {
+			int value = pixels.get(i) & 0xff;
+			if (gammaCorrect && (i & 3) != 3) {
+				image[i] = SRGB_TO_LINEAR[value];
+			}
+			else {
+				image[i] = value / 255f;
+			}
+		}
+		return image;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Converts floats in [0, 1] back to RGBA8 pixels, clamping the overshoot
+	 * of filters with negative lobes.
+	 */
+	private void toBytes(float[] image, ByteBuffer pixels) {
+		for (int i = 0; i < image.length; i++) {
+			float value = image[i];
+			if (value < 0f) {
+				value = 0f;
+			}
+			else if (value > 1f) {
+				value = 1f;
+			}
+
+			if (gammaCorrect && (i & 3) != 3) {
+				pixels.put(i, LINEAR_TO_SRGB[(int) (value * LINEAR_TO_SRGB_SIZE + 0.5f)]);
+			}
+			else {
+				pixels.put(i, (byte) (int) (value * 255f + 0.5f));
+			}
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Source indices and weights of each destination texel along one axis.
+	 * Every destination texel has the same number of taps, with unused taps
+	 * given zero weight.
+	 */
+	private static class AxisWeights {
+		final int taps;
+		final int[] indices;
+		final float[] weights;
+
+		AxisWeights(int taps, int destSize) {
+			this.taps = taps;
+			this.indices = new int[taps * destSize];
+			this.weights = new float[taps * destSize];
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private AxisWeights computeWeights(int srcSize, int destSize) {
+		float scale = srcSize / (float) destSize;
+
+		// Support of the filter, in source texels either side of a
+		// destination texel's center.
+		float support = (filter == Filter.KAISER) ? KAISER_RADIUS * scale : 0.5f * scale;
+		int taps = (int) Math.ceil(2f * support) + 1;
+		AxisWeights axis = new AxisWeights(taps, destSize);
+
+		for (int d = 0; d < destSize; d++) {
+			float center = (d + 0.5f) * scale;
+			int first = (int) Math.floor(center - support);
+			float sum = 0f;
+
+			for (int t = 0; t < taps; t++) {
+				int s = first + t;
+				float weight;
+				if (filter == Filter.KAISER) {
+					weight = kaiser((s + 0.5f - center) / scale);
+				}
+				else {
+					// Length of the overlap of source texel s with the
+					// destination texel's footprint.
+					float overlap = Math.min(s + 1f, center + support)
+							- Math.max(s, center - support);
+					weight = Math.max(overlap, 0f);
+				}
+
+				axis.indices[d * taps + t] = Math.min(Math.max(s, 0), srcSize - 1);
+				axis.weights[d * taps + t] = weight;
+				sum += weight;
+			}
+
+			for (int t = 0; t < taps; t++) {
+				axis.weights[d * taps + t] /= sum;
+			}
+		}
+
+		return axis;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param x - distance from the filter center, in destination texels.
+	 * @return the Kaiser windowed sinc weight at <code>x</code>.
+	 */
+	private static float kaiser(float x) {
+		if (Math.abs(x) >= KAISER_RADIUS) {
+			return 0f;
+		}
+
+		double sinc = (x == 0f) ? 1.0 : Math.sin(Math.PI * x) / (Math.PI * x);
+		double r = x / KAISER_RADIUS;
+		double window = besselI0(KAISER_ALPHA * Math.sqrt(1.0 - r * r))
+				/ besselI0(KAISER_ALPHA);
+
+		return (float) (sinc * window);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Zeroth order modified Bessel function of the first kind, by its power
+	 * series.
+	 */
+	private static double besselI0(double x) {
+		double sum = 1.0;
+		double term = 1.0;
+		double halfX = 0.5 * x;
+		for (int k = 1; k < 32; k++) {
+			term *= (halfX / k) * (halfX / k);
+			sum += term;
+			if (term < sum * 1e-12) {
+				break;
+			}
+		}
+		return sum;
+	}
+
+	//--------------------------------------------------------------------------
+	private float[] downsample(float[] src, int srcWidth, int srcHeight,
+			int destWidth, int destHeight) {
+		AxisWeights horizontal = computeWeights(srcWidth, destWidth);
+		AxisWeights vertical = computeWeights(srcHeight, destHeight);
+
+		float[] temp = new float[4 * destWidth * srcHeight];
+		float[] dest = new float[4 * destWidth * destHeight];
+
+		runRows(new FilterRows(false, src, temp, srcWidth, destWidth, horizontal,
+				0, srcHeight));
+		runRows(new FilterRows(true, temp, dest, destWidth, destWidth, vertical,
+				0, destHeight));
+
+		return dest;
+	}
+
+	//--------------------------------------------------------------------------
+	private void runRows(FilterRows task) {
+		if (task.end - task.begin < parallelRowThreshold || pool == null) {
+			task.filterRows();
+		}
+		else {
+			pool.invoke(task);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Filters rows [begin, end) of one pass, splitting the range in half until
+	 * it falls below the parallel threshold.
+	 */
+	private class FilterRows extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final boolean verticalPass;
+		private final float[] src;
+		private final float[] dest;
+		private final int srcWidth;
+		private final int destWidth;
+		private final AxisWeights axis;
+		final int begin;
+		final int end;
+
+		FilterRows(boolean verticalPass, float[] src, float[] dest, int srcWidth,
+				int destWidth, AxisWeights axis, int begin, int end) {
+			this.verticalPass = verticalPass;
+			this.src = src;
+			this.dest = dest;
+			this.srcWidth = srcWidth;
+			this.destWidth = destWidth;
+			this.axis = axis;
+			this.begin = begin;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - begin < parallelRowThreshold) {
+				filterRows();
+				return;
+			}
+
+			int middle = (begin + end) >>> 1;
+			invokeAll(new FilterRows(verticalPass, src, dest, srcWidth, destWidth,
+							axis, begin, middle),
+					  new FilterRows(verticalPass, src, dest, srcWidth, destWidth,
+							axis, middle, end));
+		}
+
+		void filterRows() {
+			if (verticalPass) {
+				filterColumns();
+			}
+			else {
+				filterRowsHorizontally();
+			}
+		}
+
+		// Each destination texel is a weighted sum of texels from the same
+		// source row.
+		private void filterRowsHorizontally() {
+			final int taps = axis.taps;
+			final int[] indices = axis.indices;
+			final float[] weights = axis.weights;
+
+			for (int y = begin; y < end; y++) {
+				int srcRow = 4 * y * srcWidth;
+				int destIndex = 4 * y * destWidth;
+
+				for (int x = 0; x < destWidth; x++) {
+					float r = 0f, g = 0f, b = 0f, a = 0f;
+					for (int t = x * taps, last = t + taps; t < last; t++) {
+						float w = weights[t];
+						int s = srcRow + 4 * indices[t];
+						r += w * src[s];
+						g += w * src[s + 1];
+						b += w * src[s + 2];
+						a += w * src[s + 3];
+					}
+					dest[destIndex++] = r;
+					dest[destIndex++] = g;
+					dest[destIndex++] = b;
+					dest[destIndex++] = a;
+				}
+			}
+		}
+
+		// Each destination row is a weighted sum of whole source rows, which
+		// keeps the innermost loop over contiguous memory.
+		private void filterColumns() {
+			final int taps = axis.taps;
+			final int rowLength = 4 * destWidth;
+
+			for (int y = begin; y < end; y++) {
+				int destRow = y * rowLength;
+
+				for (int t = y * taps, last = t + taps; t < last; t++) {
+					float w = axis.weights[t];
+					if (w == 0f) {
+						continue;
+					}
+					int srcRow = axis.indices[t] * rowLength;
+					for (int i = 0; i < rowLength; i++) {
+						dest[destRow + i] += w * src[srcRow + i];
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,281 @@
+package util.texture;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import util.HashUtils;
+
+/**
+ * Caches decoded textures in memory, so that a PNG shared by many materials
+ * is read and decoded once.
+ * <p>
+ * Textures are keyed by the SHA-1 hash of their file contents, so identical
+ * images stored under different paths share one decoded copy. A second index
+ * from canonical path to content hash lets repeated requests for an unchanged
+ * file skip reading it; a file is considered changed when its size or
+ * modification time differ from when it was last read.
+ * <p>
+ * Decoded pixels are held in buffers borrowed from a {@link DirectBufferPool}.
+ * Callers {@link #acquire(String)} a texture and {@link #release(TextureData)}
+ * it when done. Textures that are not acquired by anyone stay cached until the
+ * cached bytes exceed the byte budget, at which point the least recently used
+ * are evicted and their buffers returned to the pool. Acquired textures are
+ * never evicted, so the budget can be exceeded while they are in use.
+ * <p>
+ * TextureData returned by the cache is shared, and must be released through
+ * the cache rather than by calling {@link TextureData#release()}. All methods
+ * are synchronized.
+ *
+ * @author Dustin Biser
+ *
+ */
+public class TextureCache {
+	/** Default number of bytes of decoded pixels kept cached. */
+	public static final long DEFAULT_BYTE_BUDGET = 256L << 20;
+
+	//--------------------------------------------------------------------------
+	private static class Entry {
+		final String contentHash;
+		final TextureData data;
+		final ByteBuffer buffer;
+		int refCount;
+
+		Entry(String contentHash, TextureData data) {
+			this.contentHash = contentHash;
+			this.data = data;
+			this.buffer = data.getPixels();
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private static class PathEntry {
+		final long length;
+		final long lastModified;
+		final String contentHash;
+
+		PathEntry(File file, String contentHash) {
+			this.length = file.length();
+			this.lastModified = file.lastModified();
+			this.contentHash = contentHash;
+		}
+
+		boolean isCurrent(File file) {
+			return file.length() == length && file.lastModified() == lastModified;
+		}
+	}
+
+	private final long byteBudget;
+	private final DirectBufferPool bufferPool;
+
+	// Entries in order of least to most recent access.
+	private final LinkedHashMap<String, Entry> entries =
+			new LinkedHashMap<String, Entry>(16, 0.75f, true);
+	private final Map<String, PathEntry> pathIndex = new HashMap<String, PathEntry>();
+	private final Map<TextureData, Entry> acquired = new IdentityHashMap<TextureData, Entry>();
+
+	private long cachedBytes;
+	private long hitCount;
+	private long missCount;
+	private long evictionCount;
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Constructs a cache with a {@link #DEFAULT_BYTE_BUDGET} and a new
+	 * {@link DirectBufferPool}.
+	 */
+	public TextureCache() {
+		this(DEFAULT_BYTE_BUDGET, new DirectBufferPool());
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param byteBudget - number of bytes of decoded pixels above which unused
+	 *        textures are evicted.
+	 * @param bufferPool - pool supplying the pixel buffers of cached textures.
+	 */
+	public TextureCache(long byteBudget, DirectBufferPool bufferPool) {
+		if (byteBudget < 0) {
+			throw new IllegalArgumentException("byteBudget cannot be negative.");
+		}
+		this.byteBudget = byteBudget;
+		this.bufferPool = bufferPool;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Returns the decoded texture of a PNG file, decoding it only if no file
+	 * with the same contents is cached. Each call must be matched by a call to
+	 * {@link #release(TextureData)}.
+	 *
+	 * @param filename - path of the PNG file.
+	 * @return the shared, decoded texture.
+	 * @throws IOException if the file cannot be read or is not a valid PNG.
+	 */
+	public synchronized TextureData acquire(String filename) throws IOException {
+		File file = new File(filename).getCanonicalFile();
+		String path = file.getPath();
+
+		Entry entry = null;
+		PathEntry pathEntry = pathIndex.get(path);
+		if (pathEntry != null && pathEntry.isCurrent(file)) {
+			entry = entries.get(pathEntry.contentHash);
+		}
+
+		if (entry == null) {
+			byte[] contents = Files.readAllBytes(file.toPath());
+			String contentHash = HashUtils.sha1Hex(contents);
+			pathIndex.put(path, new PathEntry(file, contentHash));
+
+			entry = entries.get(contentHash);
+			if (entry == null) {
+				entry = decode(contents, path, contentHash);
+			}
+			else {
+				hitCount++;
+			}
+		}
+		else {
+			hitCount++;
+		}
+
+		entry.refCount++;
+		acquired.put(entry.data, entry);
+		evictUnused();
+
+		return entry.data;
+	}
+
+	//--------------------------------------------------------------------------
+	private Entry decode(byte[] contents, String path, String contentHash)
+			throws IOException {
+		missCount++;
+
+		TextureData decoded = TextureDecoder.decodePNG(
+				new ByteArrayInputStream(contents), path, bufferPool);
+
+		// Cached textures are shared, so detach them from the pool in order
+		// that only eviction can return their buffers to it.
+		Entry entry = new Entry(contentHash, new TextureData(path,
+				decoded.getWidth(), decoded.getHeight(), decoded.getPixels(), null));
+
+		entries.put(contentHash, entry);
+		cachedBytes += entry.data.getByteCount();
+
+		return entry;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Releases a texture returned by {@link #acquire(String)}. Once every
+	 * acquisition of a texture has been released it becomes eligible for
+	 * eviction.
+	 *
+	 * @param data
+	 */
+	public synchronized void release(TextureData data) {
+		Entry entry = acquired.get(data);
+		if (entry == null) {
+			throw new IllegalArgumentException(data + " is not acquired from this cache.");
+		}
+
+		if (--entry.refCount == 0) {
+			acquired.remove(data);
+			evictUnused();
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Evicts unused entries, least recently used first, until the cached
+	 * bytes fit within the budget.
+	 */
+	private void evictUnused() {
+		Iterator<Entry> iterator = entries.values().iterator();
+		while (cachedBytes > byteBudget && iterator.hasNext()) {
+			Entry entry = iterator.next();
+			if (entry.refCount == 0) {
+				iterator.remove();
+				evict(entry);
+			}
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private void evict(Entry entry) {
+		cachedBytes -= entry.data.getByteCount();
+		evictionCount++;
+
+		Iterator<PathEntry> paths = pathIndex.values().iterator();
+		while (paths.hasNext()) {
+			if (paths.next().contentHash.equals(entry.contentHash)) {
+				paths.remove();
+			}
+		}
+
+		entry.data.release();
+		bufferPool.release(entry.buffer);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Evicts every texture that is not currently acquired.
+	 */
+	public synchronized void clear() {
+		Iterator<Entry> iterator = entries.values().iterator();
+		while (iterator.hasNext()) {
+			Entry entry = iterator.next();
+			if (entry.refCount == 0) {
+				iterator.remove();
+				evict(entry);
+			}
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the number of acquisitions served without decoding.
+	 */
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the number of acquisitions that decoded a file.
+	 */
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the number of textures evicted.
+	 */
+	public synchronized long getEvictionCount() {
+		return evictionCount;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the number of bytes of decoded pixels currently cached.
+	 */
+	public synchronized long getCachedBytes() {
+		return cachedBytes;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the number of distinct textures currently cached.
+	 */
+	public synchronized int getEntryCount() {
+		return entries.size();
+	}
+}
@@ -0,0 +1,309 @@
+package util.texture;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL12;
+
+/**
+ * A texture stored in a simple binary container: a header and level table,
+ * followed by the raw pixels of every mip level, ready to be passed to
+ * glTexImage2D without decoding.
+ * <p>
+ * {@link #map(File)} memory maps a container file, and {@link #getLevel(int)}
+ * returns slices of the mapping, so no pixel data is copied on the Java side
+ * and the operating system pages it in as the upload reads it. Containers are
+ * written from decoded textures by {@link #write(File, MipChain, PixelFormat)},
+ * or from PNG files by {@link TextureContainerConverter}.
+ * <p>
+ * Layout, little endian:
+ *
+ * <pre>
+ * int   magic        'TXC1'
+ * int   version
+ * int   pixelFormat  ordinal of {@link PixelFormat}
+ * int   levelCount
+ * level table, for each level:
+ *   long  byteOffset  from the start of the file, a multiple of 16
+ *   int   width
+ *   int   height
+ * pixels of each level, tightly packed rows from the top of the image down
+ * </pre>
+ *
+ * @author Dustin Biser
+ *
+ */
+public class TextureContainer {
+	/** File extension of texture containers. */
+	public static final String EXTENSION = ".txc";
+
+	private static final int MAGIC = 0x31435854; // "TXC1"
+	private static final int VERSION = 1;
+	private static final int HEADER_BYTES = 16;
+	private static final int LEVEL_ENTRY_BYTES = 16;
+	private static final int LEVEL_ALIGNMENT = 16;
+
+	/**
+	 * Byte order of the stored pixels.
+	 */
+	public enum PixelFormat {
+		/** Red, green, blue and alpha bytes, as decoded. */
+		RGBA8(GL11.GL_RGBA),
+
+		/**
+		 * Blue, green, red and alpha bytes, the native layout of many drivers,
+		 * which then upload the pixels without swizzling them.
+		 */
+		BGRA8(GL12.GL_BGRA);
+
+		private final int glFormat;
+
+		private PixelFormat(int glFormat) {
+			this.glFormat = glFormat;
+		}
+
+		/**
+		 * @return the format parameter to pass to glTexImage2D.
+		 */
+		public int getGLFormat() {
+			return glFormat;
+		}
+	}
+
+	private final String name;
+	private final PixelFormat pixelFormat;
+	private final ByteBuffer[] levels;
+	private final int[] widths;
+	private final int[] heights;
+
+	//--------------------------------------------------------------------------
+	private TextureContainer(String name, PixelFormat pixelFormat,
+			ByteBuffer[] levels, int[] widths, int[] heights) {
+		this.name = name;
+		this.pixelFormat = pixelFormat;
+		this.levels = levels;
+		this.widths = widths;
+		this.heights = heights;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Memory maps a container file. The mapping stays valid until the returned
+	 * container and all level buffers obtained from it are garbage collected.
+	 *
+	 * @param file - container file.
+	 * @return the mapped container.
+	 * @throws IOException if the file cannot be read or is not a valid
+	 *         container.
+	 */
+	public static TextureContainer map(File file) throws IOException {
+		MappedByteBuffer mapping;
+		try (FileChannel channel = FileChannel.open(file.toPath(),
+				StandardOpenOption.READ)) {
+			mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		mapping.order(ByteOrder.LITTLE_ENDIAN);
+
+		String name = file.getPath();
+		if (mapping.capacity() < HEADER_BYTES || mapping.getInt(0) != MAGIC) {
+			throw new IOException(name + " is not a texture container.");
+		}
+		if (mapping.getInt(4) != VERSION) {
+			throw new IOException(name + " has unsupported version "
+					+ mapping.getInt(4) + ".");
+		}
+
+		int format = mapping.getInt(8);
+		int levelCount = mapping.getInt(12);
+		if (format < 0 || format >= PixelFormat.values().length
+				|| levelCount < 1 || levelCount > 32
+				|| HEADER_BYTES + levelCount * LEVEL_ENTRY_BYTES > mapping.capacity()) {
+			throw new IOException(name + " has a corrupt header.");
+		}
+
+		ByteBuffer[] levels = new ByteBuffer[levelCount];
+		int[] widths = new int[levelCount];
+		int[] heights = new int[levelCount];
+
+		for (int i = 0; i < levelCount; i++) {
+			int entry = HEADER_BYTES + i * LEVEL_ENTRY_BYTES;
+			long offset = mapping.getLong(entry);
+			widths[i] = mapping.getInt(entry + 8);
+			heights[i] = mapping.getInt(entry + 12);
+			long byteCount = (long) widths[i] * heights[i] * TextureData.BYTES_PER_PIXEL;
+
+			if (widths[i] <= 0 || heights[i] <= 0 || offset < 0
+					|| offset + byteCount > mapping.capacity()) {
+				throw new IOException(name + " has a corrupt level " + i + ".");
+			}
+
+			ByteBuffer level = mapping.duplicate();
+			level.position((int) offset);
+			level.limit((int) (offset + byteCount));
+			levels[i] = level.slice();
+		}
+
+		return new TextureContainer(name, PixelFormat.values()[format], levels,
+				widths, heights);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Writes a container holding every level of <code>chain</code>.
+	 *
+	 * @param file - destination file, replaced if it exists.
+	 * @param chain - decoded RGBA levels.
+	 * @param pixelFormat - byte order to store the pixels in.
+	 * @throws IOException if the file cannot be written.
+	 */
+	public static void write(File file, MipChain chain, PixelFormat pixelFormat)
+			throws IOException {
+		TextureData[] levels = new TextureData[chain.getLevelCount()];
+		for (int i = 0; i < levels.length; i++) {
+			levels[i] = chain.getLevel(i);
+		}
+		write(file, levels, pixelFormat);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Writes a container holding a single level.
+	 *
+	 * @param file - destination file, replaced if it exists.
+	 * @param data - decoded RGBA pixels.
+	 * @param pixelFormat - byte order to store the pixels in.
+	 * @throws IOException if the file cannot be written.
+	 */
+	public static void write(File file, TextureData data, PixelFormat pixelFormat)
+			throws IOException {
+		write(file, new TextureData[] {data}, pixelFormat);
+	}
+
+	//--------------------------------------------------------------------------
+	private static void write(File file, TextureData[] levels,
+			PixelFormat pixelFormat) throws IOException {
+		int tableBytes = HEADER_BYTES + levels.length * LEVEL_ENTRY_BYTES;
+		ByteBuffer header = ByteBuffer.allocate(tableBytes).order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(MAGIC).putInt(VERSION).putInt(pixelFormat.ordinal())
+			  .putInt(levels.length);
+
+		long offset = align(tableBytes);
+		for (TextureData level : levels) {
+			header.putLong(offset).putInt(level.getWidth()).putInt(level.getHeight());
+			offset = align(offset + level.getByteCount());
+		}
+		header.flip();
+
+		// Write to a temporary file first, so a failed write never leaves a
+		// truncated container behind.
+		File directory = file.getAbsoluteFile().getParentFile();
+		File temp = File.createTempFile("container", ".tmp", directory);
+		try {
+			try (FileChannel channel = FileChannel.open(temp.toPath(),
+					StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				writeFully(channel, header, 0);
+				for (int i = 0; i < levels.length; i++) {
+					ByteBuffer pixels = levels[i].getPixels();
+					if (pixelFormat == PixelFormat.BGRA8) {
+						pixels = swizzleRedBlue(pixels);
+					}
+					else {
+						pixels = pixels.duplicate();
+					}
+					writeFully(channel, pixels, header.getLong(HEADER_BYTES + i * LEVEL_ENTRY_BYTES));
+				}
+			}
+			Files.move(temp.toPath(), file.toPath(),
+					StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		finally {
+			Files.deleteIfExists(temp.toPath());
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private static long align(long offset) {
+		return (offset + LEVEL_ALIGNMENT - 1) & ~(LEVEL_ALIGNMENT - 1);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return a copy of RGBA pixels with the red and blue bytes swapped.
+	 */
+	private static ByteBuffer swizzleRedBlue(ByteBuffer rgba) {
+		ByteBuffer bgra = ByteBuffer.allocate(rgba.remaining());
+		for (int i = 0; i < bgra.capacity(); i += 4) {
+			bgra.put(i, rgba.get(i + 2));
+			bgra.put(i + 1, rgba.get(i + 1));
+			bgra.put(i + 2, rgba.get(i));
+			bgra.put(i + 3, rgba.get(i + 3));
+		}
+		return bgra;
+	}
+
+	//--------------------------------------------------------------------------
+	private static void writeFully(FileChannel channel, ByteBuffer buffer,
+			long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			position += channel.write(buffer, position);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the path of the mapped file.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	//--------------------------------------------------------------------------
+	public PixelFormat getPixelFormat() {
+		return pixelFormat;
+	}
+
+	//--------------------------------------------------------------------------
+	public int getLevelCount() {
+		return levels.length;
+	}
+
+	//--------------------------------------------------------------------------
+	public int getWidth(int level) {
+		return widths[level];
+	}
+
+	//--------------------------------------------------------------------------
+	public int getHeight(int level) {
+		return heights[level];
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param level - mip level, where 0 is the base level.
+	 * @return a new read only view of the level's pixels in the mapped file,
+	 *         with position 0 and limit equal to the level's size in bytes.
+	 */
+	public ByteBuffer getLevel(int level) {
+		return levels[level].duplicate();
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the total size of the pixels of all levels in bytes.
+	 */
+	public long getByteCount() {
+		long byteCount = 0;
+		for (ByteBuffer level : levels) {
+			byteCount += level.capacity();
+		}
+		return byteCount;
+	}
+}
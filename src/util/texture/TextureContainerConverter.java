@@ -0,0 +1,156 @@
+package util.texture;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+
+import util.texture.MipmapGenerator.Filter;
+import util.texture.TextureContainer.PixelFormat;
+
+/**
+ * Converts PNG files into {@link TextureContainer}s, optionally generating
+ * their mip chains and storing the pixels pre-swizzled, so that loading them
+ * at run time requires no decoding or filtering.
+ *
+ * Usage: <code>TextureContainerConverter [-mips] [-bgra] input output</code>
+ * <p>
+ * where <code>input</code> and <code>output</code> are either two files or
+ * two directories. When converting a directory, every PNG file within it is
+ * written to the output directory with the {@link TextureContainer#EXTENSION}.
+ *
+ * @author Dustin Biser
+ *
+ */
+public class TextureContainerConverter {
+	private final MipmapGenerator mipmapGenerator;
+	private final PixelFormat pixelFormat;
+	private final DirectBufferPool bufferPool = new DirectBufferPool();
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param mipmapGenerator - generator of the stored mip levels, or null to
+	 *        store the base level only.
+	 * @param pixelFormat - byte order to store the pixels in.
+	 */
+	public TextureContainerConverter(MipmapGenerator mipmapGenerator,
+			PixelFormat pixelFormat) {
+		this.mipmapGenerator = mipmapGenerator;
+		this.pixelFormat = pixelFormat;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Converts a single PNG file.
+	 *
+	 * @param png - PNG file to read.
+	 * @param container - container file to write.
+	 * @throws IOException if the PNG cannot be decoded or the container cannot
+	 *         be written.
+	 */
+	public void convert(File png, File container) throws IOException {
+		TextureData base = TextureDecoder.decodePNG(png.getPath(), bufferPool);
+		try {
+			if (mipmapGenerator == null) {
+				TextureContainer.write(container, base, pixelFormat);
+				return;
+			}
+
+			MipChain chain = mipmapGenerator.generate(base, bufferPool);
+			try {
+				TextureContainer.write(container, chain, pixelFormat);
+			}
+			finally {
+				chain.release();
+			}
+		}
+		finally {
+			base.release();
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Converts every PNG file in a directory.
+	 *
+	 * @param inputDirectory - directory of PNG files.
+	 * @param outputDirectory - directory to write containers to, created if it
+	 *        does not exist.
+	 * @return the number of files converted.
+	 * @throws IOException if any file cannot be converted.
+	 */
+	public int convertDirectory(File inputDirectory, File outputDirectory)
+			throws IOException {
+		File[] pngs = inputDirectory.listFiles(new FilenameFilter() {
+			@Override
+			public boolean accept(File dir, String name) {
+				return name.toLowerCase().endsWith(".png");
+			}
+		});
+		if (pngs == null) {
+			throw new IOException(inputDirectory + " is not a directory.");
+		}
+
+		if (!outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+			throw new IOException("Cannot create directory " + outputDirectory + ".");
+		}
+
+		for (File png : pngs) {
+			convert(png, new File(outputDirectory, containerName(png)));
+		}
+
+		return pngs.length;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param png - PNG file.
+	 * @return the file name of the container converted from <code>png</code>.
+	 */
+	public static String containerName(File png) {
+		String name = png.getName();
+		int dot = name.lastIndexOf('.');
+		if (dot > 0) {
+			name = name.substring(0, dot);
+		}
+		return name + TextureContainer.EXTENSION;
+	}
+
+	//--------------------------------------------------------------------------
+	public static void main(String args[]) throws IOException {
+		boolean mips = false;
+		boolean bgra = false;
+		int i = 0;
+		for (; i < args.length && args[i].startsWith("-"); i++) {
+			if (args[i].equals("-mips")) {
+				mips = true;
+			}
+			else if (args[i].equals("-bgra")) {
+				bgra = true;
+			}
+			else {
+				break;
+			}
+		}
+		if (args.length - i != 2) {
+			System.err.println("Usage: TextureContainerConverter [-mips] [-bgra] input output");
+			System.exit(1);
+		}
+
+		File input = new File(args[i]);
+		File output = new File(args[i + 1]);
+		TextureContainerConverter converter = new TextureContainerConverter(
+				mips ? new MipmapGenerator(Filter.KAISER, true) : null,
+				bgra ? PixelFormat.BGRA8 : PixelFormat.RGBA8);
+
+		long start = System.nanoTime();
+		int count = 1;
+		if (input.isDirectory()) {
+			count = converter.convertDirectory(input, output);
+		}
+		else {
+			converter.convert(input, output);
+		}
+		System.out.printf("Converted %d file(s) in %.1f ms%n", count,
+				(System.nanoTime() - start) / 1e6);
+	}
+}
@@ -0,0 +1,114 @@
+package util.texture;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Decoded pixels of a 2D texture, stored as tightly packed 8-bit RGBA rows
+ * from the top of the image down, ready to be passed to glTexImage2D.
+ * <p>
+ * The pixel buffer may be borrowed from a {@link DirectBufferPool}. Calling
+ * {@link #release()} hands it back, after which the pixels can no longer be
+ * accessed.
+ *
+ * @author Dustin Biser
+ *
+ */
+public class TextureData {
+	/** Number of bytes per RGBA pixel. */
+	public static final int BYTES_PER_PIXEL = 4;
+
+	private final String name;
+	private final int width;
+	private final int height;
+	private final DirectBufferPool pool;
+	private ByteBuffer pixels;
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @param name - identifies the texture, typically its file name.
+	 * @param width - width in pixels.
+	 * @param height - height in pixels.
+	 * @param pixels - RGBA pixels, from position 0 to the buffer's limit.
+	 * @param pool - pool to return <code>pixels</code> to on release, or null if
+	 *        the buffer was not pooled.
+	 */
+	public TextureData(String name, int width, int height, ByteBuffer pixels,
+			DirectBufferPool pool) {
+		if (pixels.remaining() != width * height * BYTES_PER_PIXEL) {
+			throw new IllegalArgumentException("Expected "
+					+ (width * height * BYTES_PER_PIXEL) + " bytes of pixels for a "
+					+ width + "x" + height + " texture, but got "
+					+ pixels.remaining() + ".");
+		}
+
+		this.name = name;
+		this.width = width;
+		this.height = height;
+		this.pixels = pixels;
+		this.pool = pool;
+	}
+
+	//--------------------------------------------------------------------------
+	public String getName() {
+		return name;
+	}
+
+	//--------------------------------------------------------------------------
+	public int getWidth() {
+		return width;
+	}
+
+	//--------------------------------------------------------------------------
+	public int getHeight() {
+		return height;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the size of the pixel data in bytes.
+	 */
+	public int getByteCount() {
+		return width * height * BYTES_PER_PIXEL;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the RGBA pixel data, with position 0 and limit
+	 *         {@link #getByteCount()}.
+	 *
+	 * @throws IllegalStateException if this TextureData has been released.
+	 */
+	public ByteBuffer getPixels() {
+		if (pixels == null) {
+			throw new IllegalStateException("TextureData " + name
+					+ " has been released.");
+		}
+		return pixels;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return true if {@link #release()} has been called.
+	 */
+	public boolean isReleased() {
+		return pixels == null;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Returns the pixel buffer to its pool, if it has one. Calling this more
+	 * than once has no further effect.
+	 */
+	public void release() {
+		if (pixels != null && pool != null) {
+			pool.release(pixels);
+		}
+		pixels = null;
+	}
+
+	//--------------------------------------------------------------------------
+	@Override
+	public String toString() {
+		return "TextureData[" + name + ", " + width + "x" + height + "]";
+	}
+}
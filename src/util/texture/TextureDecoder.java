@@ -0,0 +1,91 @@
+package util.texture;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import de.matthiasmann.twl.utils.PNGDecoder;
+import de.matthiasmann.twl.utils.PNGDecoder.Format;
+
+/**
+ * Decodes image files into {@link TextureData}. Decoding touches no GL state,
+ * so it may run on any thread.
+ *
+ * @author Dustin Biser
+ *
+ */
+public class TextureDecoder {
+	private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Decodes a PNG file into RGBA pixels.
+	 *
+	 * @param filename - path of the PNG file.
+	 * @param pool - pool to borrow the pixel buffer from, or null to allocate
+	 *        a new buffer.
+	 * @return the decoded texture, named <code>filename</code>.
+	 * @throws IOException if the file cannot be read or is not a valid PNG.
+	 */
+	public static TextureData decodePNG(String filename, DirectBufferPool pool)
+			throws IOException {
+		InputStream in = new BufferedInputStream(new FileInputStream(filename),
+				READ_BUFFER_SIZE);
+		try {
+			return decodePNG(in, filename, pool);
+		}
+		finally {
+			in.close();
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Decodes a PNG stream into RGBA pixels. The stream is not closed.
+	 *
+	 * @param in - stream positioned at the start of a PNG image.
+	 * @param name - name given to the decoded texture.
+	 * @param pool - pool to borrow the pixel buffer from, or null to allocate
+	 *        a new buffer.
+	 * @return the decoded texture.
+	 * @throws IOException if the stream cannot be read or is not a valid PNG.
+	 */
+	public static TextureData decodePNG(InputStream in, String name,
+			DirectBufferPool pool) throws IOException {
+		PNGDecoder decoder = new PNGDecoder(in);
+		int width = decoder.getWidth();
+		int height = decoder.getHeight();
+		int rowBytes = width * TextureData.BYTES_PER_PIXEL;
+
+		if (width <= 0 || height <= 0 || (long) rowBytes * height > Integer.MAX_VALUE) {
+			throw new IOException("Unsupported PNG dimensions " + width + "x"
+					+ height + " in " + name + ".");
+		}
+
+		ByteBuffer pixels;
+		if (pool != null) {
+			pixels = pool.acquire(rowBytes * height);
+		}
+		else {
+			pixels = ByteBuffer.allocateDirect(rowBytes * height);
+		}
+
+		// Hand the buffer back on any failure, including unchecked exceptions
+		// thrown by the decoder on malformed data.
+		boolean decoded = false;
+		try {
+			decoder.decode(pixels, rowBytes, Format.RGBA);
+			decoded = true;
+		}
+		finally {
+			if (!decoded && pool != null) {
+				pool.release(pixels);
+			}
+		}
+		pixels.flip();
+
+		return new TextureData(name, width, height, pixels, pool);
+	}
+}
@@ -0,0 +1,20 @@
+package util.texture;
+
+/**
+ * Receives decoded textures on the render thread, from
+ * {@link AsyncTextureLoader#uploadPending(long, TextureUploader)}, in order to
+ * upload them to the GPU.
+ *
+ * @author Dustin Biser
+ *
+ */
+public interface TextureUploader {
+
+	/**
+	 * Uploads <code>data</code>. The pixel data is released once this method
+	 * returns, so implementations must not keep a reference to it.
+	 *
+	 * @param data - decoded texture.
+	 */
+	public void upload(TextureData data);
+}
@@ -0,0 +1,135 @@
+package utilities;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.lwjgl.util.vector.Matrix4f;
+import org.lwjgl.util.vector.Vector3f;
+import org.lwjgl.util.vector.Vector4f;
+
+import util.Camera;
+
+public class Camera_Test {
+	private static final float TOLERANCE = 1e-4f;
+	
+	private Camera camera;
+	private Matrix4f viewMatrix;
+
+	@Before
+	public void setUp() throws Exception {
+		camera = new Camera();
+		viewMatrix = new Matrix4f();
+	}
+	
+	//--------------------------------------------------------------------------
+	// Helper Method
+	private Vector4f transformPoint(Matrix4f m, float x, float y, float z) {
+		Vector4f p = new Vector4f(x, y, z, 1f);
+		Matrix4f.transform(m, p, p);
+		
+		return p;
+	}
+	
+	//--------------------------------------------------------------------------
+	// Helper Method
+	private void assertMatrixEquals(Matrix4f expected, Matrix4f actual) {
+		float e[] = {expected.m00, expected.m01, expected.m02, expected.m03,
+					 expected.m10, expected.m11, expected.m12, expected.m13,
+					 expected.m20, expected.m21, expected.m22, expected.m23,
+					 expected.m30, expected.m31, expected.m32, expected.m33};
+		
+		float a[] = {actual.m00, actual.m01, actual.m02, actual.m03,
+					 actual.m10, actual.m11, actual.m12, actual.m13,
+					 actual.m20, actual.m21, actual.m22, actual.m23,
+					 actual.m30, actual.m31, actual.m32, actual.m33};
+		
+		for (int i = 0; i < 16; i++) {
+			assertEquals(e[i], a[i], TOLERANCE);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_defaultViewMatrixIsIdentity() {
+		camera.getViewMatrix(viewMatrix);
+		
+		assertMatrixEquals(new Matrix4f(), viewMatrix);
+	}
+	
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_translationMovesEyeToOrigin() {
+		camera.setPosition(1f, 2f, 3f);
+		camera.getViewMatrix(viewMatrix);
+		
+		Vector4f p = transformPoint(viewMatrix, 1f, 2f, 3f);
+		
+		assertEquals(0f, p.x, TOLERANCE);
+		assertEquals(0f, p.y, TOLERANCE);
+		assertEquals(0f, p.z, TOLERANCE);
+	}
+	
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_lookAtPlacesCenterOnNegativeZAxis() {
+		camera.lookAt(new Vector3f(5f, 1f, 2f), new Vector3f(-3f, 4f, -6f),
+				new Vector3f(0f, 1f, 0f));
+		camera.getViewMatrix(viewMatrix);
+		
+		Vector4f center = transformPoint(viewMatrix, -3f, 4f, -6f);
+		float distance = (float) Math.sqrt(64f + 9f + 64f);
+		
+		assertEquals(0f, center.x, TOLERANCE);
+		assertEquals(0f, center.y, TOLERANCE);
+		assertEquals(-distance, center.z, TOLERANCE);
+	}
+	
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_yawMatchesTranslateRelative() {
+		camera.yaw((float) Math.PI / 3f);
+		camera.pitch(0.2f);
+		camera.roll(-0.7f);
+		
+		// Moving forward along the camera's local forward direction must keep
+		// the eye on the camera space z-axis.
+		camera.translateRelative(0f, 0f, 10f);
+		camera.getViewMatrix(viewMatrix);
+		
+		Vector4f origin = transformPoint(viewMatrix, 0f, 0f, 0f);
+		
+		assertEquals(0f, origin.x, TOLERANCE);
+		assertEquals(0f, origin.y, TOLERANCE);
+		assertEquals(10f, origin.z, TOLERANCE);
+	}
+	
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_allocatingAndDestVariantsAgree() {
+		camera.setPosition(-1f, 7f, 0.5f);
+		camera.rotate(new Vector3f(1f, 1f, 0f), 0.3f);
+		
+		camera.getViewMatrix(viewMatrix);
+		
+		assertMatrixEquals(viewMatrix, camera.getViewMatrix());
+	}
+	
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_cachedViewMatrixIsUpdatedAfterMove() {
+		camera.getViewMatrix(viewMatrix);
+		Matrix4f before = new Matrix4f(viewMatrix);
+		
+		// Modifying dest must not corrupt the cached matrix.
+		viewMatrix.setZero();
+		camera.getViewMatrix(viewMatrix);
+		assertMatrixEquals(before, viewMatrix);
+		
+		camera.translate(0f, 0f, 4f);
+		camera.getViewMatrix(viewMatrix);
+		
+		assertEquals(-4f, viewMatrix.m32, TOLERANCE);
+	}
+	
+}
@@ -2,8 +2,12 @@ package utilities;
 
 import static org.junit.Assert.*;
 
+import java.nio.FloatBuffer;
+
 import org.junit.Before;
 import org.junit.Test;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.util.vector.Matrix4f;
 
 import util.GLUtils;
 
@@ -158,4 +162,29 @@ public class GLUtils_Test {
 		GLUtils.createProjectionMatrix(aspectRatio, fieldOfView, nearDistance,
 				farDistance);
 	}
+	
+    /////////////////////////////////////////////////////////////////////////////////
+	// Test projection matrix layout
+    /////////////////////////////////////////////////////////////////////////////////
+	
+	@Test
+	public void test_createProjectionMatrix_matchesFov() {
+		// A symmetric frustum with a 90 degree field of view.
+		Matrix4f expected = GLUtils.createProjectionMatrixFov(90f, 1f, nearDistance,
+				farDistance);
+		Matrix4f actual = GLUtils.createProjectionMatrix(-nearDistance, nearDistance,
+				-nearDistance, nearDistance, nearDistance, farDistance);
+		
+		FloatBuffer e = BufferUtils.createFloatBuffer(16);
+		FloatBuffer a = BufferUtils.createFloatBuffer(16);
+		expected.store(e);
+		actual.store(a);
+		for (int i = 0; i < 16; i++) {
+			assertEquals(e.get(i), a.get(i), 1e-5f);
+		}
+		
+		// Clip space w is the distance in front of the camera.
+		assertEquals(0f, expected.m33, 0f);
+		assertEquals(-1f, expected.m23, 0f);
+	}
 }
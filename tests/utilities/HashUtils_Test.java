@@ -0,0 +1,36 @@
+package utilities;
+
+import static org.junit.Assert.*;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import util.HashUtils;
+
+public class HashUtils_Test {
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_sha1Hex_knownVectors() {
+		assertEquals("da39a3ee5e6b4b0d3255bfef95601890afd80709",
+				HashUtils.sha1Hex(new byte[0]));
+		assertEquals("a9993e364706816aba3e25717850c26c9cd0d89d",
+				HashUtils.sha1Hex("abc".getBytes(StandardCharsets.US_ASCII)));
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_sha1Hex_range() {
+		byte[] data = "xxabcxx".getBytes(StandardCharsets.US_ASCII);
+
+		assertEquals("a9993e364706816aba3e25717850c26c9cd0d89d",
+				HashUtils.sha1Hex(data, 2, 3));
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_toHex() {
+		assertEquals("00ff7f80", HashUtils.toHex(new byte[] {0, -1, 127, -128}));
+	}
+}
@@ -0,0 +1,86 @@
+package utilities;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import util.TexturedVertex;
+import util.VertexBufferBuilder;
+
+public class VertexBufferBuilder_Test {
+	private VertexBufferBuilder builder;
+
+	@Before
+	public void setUp() throws Exception {
+		builder = new VertexBufferBuilder(2);
+	}
+	
+	//--------------------------------------------------------------------------
+	// Helper Method
+	private float floatAt(ByteBuffer buf, int vertex, int byteOffset, int element) {
+		return buf.getFloat(vertex * TexturedVertex.stride + byteOffset + 4 * element);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_interleavedLayout() {
+		builder.pos(1f, 2f, 3f).color(0.1f, 0.2f, 0.3f, 0.4f).uv(0.5f, 0.6f).endVertex();
+		
+		ByteBuffer buf = builder.getBuffer();
+		
+		assertEquals(TexturedVertex.stride, buf.remaining());
+		assertEquals(1f, floatAt(buf, 0, TexturedVertex.positionByteOffset, 0), 0f);
+		assertEquals(3f, floatAt(buf, 0, TexturedVertex.positionByteOffset, 2), 0f);
+		assertEquals(1f, floatAt(buf, 0, TexturedVertex.positionByteOffset, 3), 0f);
+		assertEquals(0.4f, floatAt(buf, 0, TexturedVertex.colorByteOffset, 3), 0f);
+		assertEquals(0.6f, floatAt(buf, 0, TexturedVertex.textureByteOffset, 1), 0f);
+	}
+	
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_unsetAttributesTakeDefaults() {
+		// Dirty the first vertex slot, then reuse it.
+		builder.pos(9f, 9f, 9f, 9f).color(9f, 9f, 9f, 9f).uv(9f, 9f).endVertex();
+		builder.reset();
+		
+		builder.pos(1f, 1f, 1f).endVertex();
+		ByteBuffer buf = builder.getBuffer();
+		
+		assertEquals(1f, floatAt(buf, 0, TexturedVertex.colorByteOffset, 0), 0f);
+		assertEquals(1f, floatAt(buf, 0, TexturedVertex.colorByteOffset, 3), 0f);
+		assertEquals(0f, floatAt(buf, 0, TexturedVertex.textureByteOffset, 0), 0f);
+		assertEquals(0f, floatAt(buf, 0, TexturedVertex.textureByteOffset, 1), 0f);
+	}
+	
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_growPreservesVertices() {
+		int numVertices = 1000;
+		for (int i = 0; i < numVertices; i++) {
+			builder.pos(i, -i, 0.5f * i).uv(i, 2 * i).endVertex();
+		}
+		
+		ByteBuffer buf = builder.getBuffer();
+		
+		assertEquals(numVertices, builder.getVertexCount());
+		assertEquals(numVertices * TexturedVertex.stride, buf.limit());
+		for (int i = 0; i < numVertices; i++) {
+			assertEquals(i, floatAt(buf, i, TexturedVertex.positionByteOffset, 0), 0f);
+			assertEquals(-i, floatAt(buf, i, TexturedVertex.positionByteOffset, 1), 0f);
+			assertEquals(2 * i, floatAt(buf, i, TexturedVertex.textureByteOffset, 1), 0f);
+		}
+	}
+	
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_texturedVertex_setRGBA_keepsAlpha() {
+		TexturedVertex v = new TexturedVertex().withRGBA(0.1f, 0.2f, 0.3f, 0.4f);
+		
+		assertEquals(0.4f, v.getRGBA()[3], 0f);
+		assertEquals(0.4f, v.getElements()[7], 0f);
+	}
+	
+}
@@ -0,0 +1,233 @@
+package utilities;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.lwjgl.BufferUtils;
+
+import util.TexturedVertex;
+import util.VertexAttribute;
+import util.VertexAttributeType;
+import util.VertexEncoding;
+import util.VertexFormat;
+
+public class VertexFormat_Test {
+	private static final int VERTEX_COUNT = 64;
+
+	private Random random;
+	private float[] result;
+
+	@Before
+	public void setUp() throws Exception {
+		random = new Random(7);
+		result = new float[4];
+	}
+
+	//--------------------------------------------------------------------------
+	// Helper Method
+	private ByteBuffer createBuffer(VertexFormat format) {
+		return BufferUtils.createByteBuffer(VERTEX_COUNT * format.getStride());
+	}
+
+	//--------------------------------------------------------------------------
+	// Helper Method
+	// Writes random values in [min, max) to every vertex of a single attribute
+	// format, reads them back and checks that each component is within
+	// tolerance.
+	private void assertRoundTrip(VertexAttributeType type, int components,
+			float min, float max, float tolerance) {
+		VertexFormat format = new VertexFormat(
+				new VertexAttribute("a", components, type));
+		ByteBuffer buffer = createBuffer(format);
+		float[][] expected = new float[VERTEX_COUNT][4];
+
+		for (int v = 0; v < VERTEX_COUNT; v++) {
+			for (int c = 0; c < 4; c++) {
+				expected[v][c] = min + (max - min) * random.nextFloat();
+			}
+			format.put(buffer, v, 0, expected[v][0], expected[v][1],
+					expected[v][2], expected[v][3]);
+		}
+
+		for (int v = 0; v < VERTEX_COUNT; v++) {
+			format.get(buffer, v, 0, result);
+			for (int c = 0; c < components; c++) {
+				assertEquals(type + " component " + c, expected[v][c],
+						result[c], tolerance);
+			}
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_float32_roundTrip() {
+		assertRoundTrip(VertexAttributeType.FLOAT32, 4, -100f, 100f, 0f);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_halfFloat_roundTrip() {
+		// 11 significant bits: relative error of at most 2^-11.
+		assertRoundTrip(VertexAttributeType.HALF_FLOAT, 4, -2f, 2f, 2f / 2048f);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_unorm8_roundTrip() {
+		assertRoundTrip(VertexAttributeType.UNORM8, 4, 0f, 1f, 0.5f / 255f);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_snorm16_roundTrip() {
+		assertRoundTrip(VertexAttributeType.SNORM16, 3, -1f, 1f, 0.5f / 32767f);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_packed1010102_roundTrip() {
+		assertRoundTrip(VertexAttributeType.PACKED_10_10_10_2, 3, -1f, 1f, 0.5f / 511f);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_packed1010102_storesHandedness() {
+		VertexFormat format = new VertexFormat(new VertexAttribute("tangent", 4,
+				VertexAttributeType.PACKED_10_10_10_2));
+		ByteBuffer buffer = createBuffer(format);
+
+		format.put(buffer, 0, 0, 1f, 0f, 0f, -1f);
+		format.put(buffer, 1, 0, 0f, -1f, 0f, 1f);
+
+		format.get(buffer, 0, 0, result);
+		assertEquals(1f, result[0], 0f);
+		assertEquals(-1f, result[3], 0f);
+
+		format.get(buffer, 1, 0, result);
+		assertEquals(-1f, result[1], 0f);
+		assertEquals(1f, result[3], 0f);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_octahedral_roundTrip() {
+		VertexFormat format = new VertexFormat(new VertexAttribute("normal", 3,
+				VertexAttributeType.OCTAHEDRAL_SNORM16));
+		ByteBuffer buffer = createBuffer(format);
+		float[][] expected = new float[VERTEX_COUNT][3];
+
+		for (int v = 0; v < VERTEX_COUNT; v++) {
+			float x = random.nextFloat() - 0.5f;
+			float y = random.nextFloat() - 0.5f;
+			float z = random.nextFloat() - 0.5f;
+			float s = 1f / (float) Math.sqrt(x*x + y*y + z*z);
+			expected[v][0] = x * s;
+			expected[v][1] = y * s;
+			expected[v][2] = z * s;
+			format.put(buffer, v, 0, x * s, y * s, z * s, 0f);
+		}
+
+		for (int v = 0; v < VERTEX_COUNT; v++) {
+			format.get(buffer, v, 0, result);
+			// The length of the cross product is the sine of the angle between
+			// the normals, which unlike the dot product is precise near zero.
+			float cx = expected[v][1] * result[2] - expected[v][2] * result[1];
+			float cy = expected[v][2] * result[0] - expected[v][0] * result[2];
+			float cz = expected[v][0] * result[1] - expected[v][1] * result[0];
+			float sinAngle = (float) Math.sqrt(cx*cx + cy*cy + cz*cz);
+
+			// Within 0.01 degrees of the original normal, in the same hemisphere.
+			assertTrue(sinAngle < (float) Math.sin(Math.toRadians(0.01)));
+			assertTrue(expected[v][0] * result[0] + expected[v][1] * result[1]
+					+ expected[v][2] * result[2] > 0f);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_octahedral_axes() {
+		float[][] axes = {{1, 0, 0}, {-1, 0, 0}, {0, 1, 0}, {0, -1, 0},
+				{0, 0, 1}, {0, 0, -1}};
+
+		for (float[] axis : axes) {
+			int packed = VertexEncoding.packOctahedralSnorm16(axis[0], axis[1], axis[2]);
+			VertexEncoding.unpackOctahedralSnorm16(packed, result, 0);
+			assertEquals(axis[0], result[0], 1e-6f);
+			assertEquals(axis[1], result[1], 1e-6f);
+			assertEquals(axis[2], result[2], 1e-6f);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_halfFloat_specialValues() {
+		assertEquals(0x3c00, VertexEncoding.floatToHalf(1f));
+		assertEquals((short) 0xc000, VertexEncoding.floatToHalf(-2f));
+		assertEquals(0x7bff, VertexEncoding.floatToHalf(65504f));
+		assertEquals(0x7c00, VertexEncoding.floatToHalf(1e6f));
+		assertEquals(0x0001, VertexEncoding.floatToHalf(5.9604645e-8f));
+		assertEquals(0, VertexEncoding.floatToHalf(1e-9f));
+
+		assertEquals(65504f, VertexEncoding.halfToFloat((short) 0x7bff), 0f);
+		assertEquals(5.9604645e-8f, VertexEncoding.halfToFloat((short) 0x0001), 0f);
+		assertTrue(Float.isInfinite(VertexEncoding.halfToFloat((short) 0xfc00)));
+		assertTrue(Float.isNaN(VertexEncoding.halfToFloat(
+				VertexEncoding.floatToHalf(Float.NaN))));
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_normalized_clampsOutOfRange() {
+		assertEquals(1f, VertexEncoding.unorm8ToFloat(VertexEncoding.floatToUnorm8(3f)), 0f);
+		assertEquals(0f, VertexEncoding.unorm8ToFloat(VertexEncoding.floatToUnorm8(-1f)), 0f);
+		assertEquals(-1f, VertexEncoding.snorm16ToFloat(VertexEncoding.floatToSnorm16(-5f)), 0f);
+		assertEquals(-1f, VertexEncoding.snorm16ToFloat((short) -32768), 0f);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_texturedVertexLayout() {
+		VertexFormat format = VertexFormat.TEXTURED_VERTEX;
+
+		assertEquals(TexturedVertex.stride, format.getStride());
+		assertEquals(TexturedVertex.positionByteOffset,
+				format.getByteOffset(format.indexOf("position")));
+		assertEquals(TexturedVertex.colorByteOffset,
+				format.getByteOffset(format.indexOf("color")));
+		assertEquals(TexturedVertex.textureByteOffset,
+				format.getByteOffset(format.indexOf("texCoord")));
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_packedFormatSizes() {
+		assertEquals(16, VertexFormat.PACKED_TEXTURED_VERTEX.getStride());
+		assertEquals(24, VertexFormat.PACKED_LIT_VERTEX.getStride());
+		assertEquals(20, VertexFormat.PACKED_LIT_VERTEX.getByteOffset(3));
+		assertEquals(-1, VertexFormat.PACKED_LIT_VERTEX.indexOf("color"));
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_attributesAlignedToFourBytes() {
+		VertexFormat format = new VertexFormat(
+				new VertexAttribute("a", 3, VertexAttributeType.UNORM8),
+				new VertexAttribute("b", 3, VertexAttributeType.HALF_FLOAT),
+				new VertexAttribute("c", 1, VertexAttributeType.FLOAT32));
+
+		assertEquals(0, format.getByteOffset(0));
+		assertEquals(4, format.getByteOffset(1));
+		assertEquals(12, format.getByteOffset(2));
+		assertEquals(16, format.getStride());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test(expected = IllegalArgumentException.class)
+	public void test_invalidComponentCount() {
+		new VertexAttribute("normal", 4, VertexAttributeType.OCTAHEDRAL_SNORM16);
+	}
+}
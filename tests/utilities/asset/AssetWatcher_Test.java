@@ -0,0 +1,344 @@
+package utilities.asset;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import util.asset.Asset;
+import util.asset.AssetLoader;
+import util.asset.AssetWatcher;
+
+public class AssetWatcher_Test {
+	private static final long DEBOUNCE_MILLIS = 200;
+	private static final long TIMEOUT_MILLIS = 10000;
+
+	private File directory;
+	private AssetWatcher watcher;
+
+	@Before
+	public void setUp() throws Exception {
+		directory = Files.createTempDirectory("AssetWatcher_Test").toFile();
+		watcher = new AssetWatcher(DEBOUNCE_MILLIS);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		watcher.dispose();
+		for (File file : directory.listFiles()) {
+			file.delete();
+		}
+		directory.delete();
+	}
+
+	//--------------------------------------------------------------------------
+	// Helper Method
+	// Stands in for a GL backed loader. Reads a text file, which may name a
+	// second file to depend on with a first line of "include <name>".
+	// Installing text containing "bad install" fails, as a shader that does
+	// not compile would.
+	private class FakeLoader implements AssetLoader<String, String> {
+		final File file;
+		final AtomicInteger readCount = new AtomicInteger();
+		final List<String> disposed = new ArrayList<String>();
+		final List<String> discarded = new ArrayList<String>();
+		int installCount;
+		String installed;
+
+		FakeLoader(File file) {
+			this.file = file;
+		}
+
+		@Override
+		public String getName() {
+			return file.getName();
+		}
+
+		@Override
+		public String read() throws IOException {
+			readCount.incrementAndGet();
+			String text = readText(file);
+			if (text.startsWith("include ")) {
+				text += readText(new File(directory, text.substring(8).trim()));
+			}
+			return text;
+		}
+
+		@Override
+		public List<File> getFiles(String data) {
+			List<File> files = new ArrayList<File>();
+			files.add(file);
+			if (data.startsWith("include ")) {
+				files.add(new File(directory, data.substring(8, data.indexOf('\n')).trim()));
+			}
+			return files;
+		}
+
+		@Override
+		public String install(String data) {
+			if (data.contains("bad install")) {
+				throw new IllegalStateException("Could not install " + file.getName());
+			}
+			installCount++;
+			// Like a caching loader, returns the installed instance when the
+			// contents are unchanged.
+			if (!data.equals(installed)) {
+				installed = data;
+			}
+			return installed;
+		}
+
+		@Override
+		public void discard(String data) {
+			discarded.add(data);
+		}
+
+		@Override
+		public void dispose(String asset) {
+			disposed.add(asset);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	// Helper Method
+	private static String readText(File file) throws IOException {
+		return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+	}
+
+	//--------------------------------------------------------------------------
+	// Helper Method
+	private File write(String name, String text) throws IOException {
+		File file = new File(directory, name);
+		Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+
+	//--------------------------------------------------------------------------
+	// Helper Method
+	// Waits for a loader to have been read readCount times in total, and for
+	// the results to be ready to swap.
+	private void awaitReads(FakeLoader loader, int readCount) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+		while (loader.readCount.get() < readCount || watcher.getPendingReadCount() > 0) {
+			assertTrue("Timed out waiting for a reload.", System.currentTimeMillis() < deadline);
+			Thread.sleep(10);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_register_loadsImmediately() throws Exception {
+		FakeLoader loader = new FakeLoader(write("a.txt", "one\n"));
+
+		Asset<String> asset = watcher.register(loader);
+
+		assertEquals("one\n", asset.get());
+		assertEquals(0, asset.getVersion());
+		assertNull(asset.getLastError());
+		assertEquals(0, watcher.swap());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test(expected = IOException.class)
+	public void test_register_failedInitialLoadThrows() throws Exception {
+		watcher.register(new FakeLoader(new File(directory, "missing.txt")));
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_changedFile_swappedInAtSwap() throws Exception {
+		FakeLoader loader = new FakeLoader(write("a.txt", "one\n"));
+		Asset<String> asset = watcher.register(loader);
+
+		write("a.txt", "two\n");
+		awaitReads(loader, 2);
+
+		// Nothing changes until the frame boundary.
+		assertEquals("one\n", asset.get());
+
+		assertEquals(1, watcher.swap());
+		assertEquals("two\n", asset.get());
+		assertEquals(1, asset.getVersion());
+		assertEquals(1, watcher.getReloadCount());
+		assertEquals(1, loader.disposed.size());
+		assertEquals("one\n", loader.disposed.get(0));
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_unchangedVersion_notDisposed() throws Exception {
+		FakeLoader loader = new FakeLoader(write("a.txt", "one\n"));
+		Asset<String> asset = watcher.register(loader);
+
+		// Rewriting the same contents installs the current instance again,
+		// as a caching loader would return.
+		write("a.txt", "one\n");
+		awaitReads(loader, 2);
+
+		assertEquals(1, watcher.swap());
+		assertEquals("one\n", asset.get());
+		assertTrue(loader.disposed.isEmpty());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_burstOfChanges_debouncedIntoOneRead() throws Exception {
+		FakeLoader loader = new FakeLoader(write("a.txt", "0\n"));
+		Asset<String> asset = watcher.register(loader);
+
+		for (int i = 1; i <= 5; i++) {
+			write("a.txt", i + "\n");
+		}
+		awaitReads(loader, 2);
+		Thread.sleep(2 * DEBOUNCE_MILLIS);
+
+		assertEquals(2, loader.readCount.get());
+		assertEquals(1, watcher.swap());
+		assertEquals("5\n", asset.get());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_onlyAffectedAssetsReload() throws Exception {
+		FakeLoader first = new FakeLoader(write("a.txt", "a\n"));
+		FakeLoader second = new FakeLoader(write("b.txt", "b\n"));
+		watcher.register(first);
+		Asset<String> secondAsset = watcher.register(second);
+
+		write("b.txt", "b2\n");
+		awaitReads(second, 2);
+		Thread.sleep(2 * DEBOUNCE_MILLIS);
+
+		assertEquals(1, first.readCount.get());
+		assertEquals(1, watcher.swap());
+		assertEquals("b2\n", secondAsset.get());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_failedRead_keepsLastGoodVersion() throws Exception {
+		File file = write("a.txt", "good\n");
+		FakeLoader loader = new FakeLoader(file);
+		Asset<String> asset = watcher.register(loader);
+
+		// Deleting the file makes the next read fail.
+		assertTrue(file.delete());
+		awaitReads(loader, 2);
+
+		assertEquals(0, watcher.swap());
+		assertEquals("good\n", asset.get());
+		assertEquals(0, asset.getVersion());
+		assertNotNull(asset.getLastError());
+		assertEquals(1, watcher.getFailureCount());
+		assertTrue(loader.disposed.isEmpty());
+
+		// Fixing the file recovers.
+		write("a.txt", "fixed\n");
+		awaitReads(loader, 3);
+
+		assertEquals(1, watcher.swap());
+		assertEquals("fixed\n", asset.get());
+		assertNull(asset.getLastError());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_failedInstall_keepsLastGoodVersion() throws Exception {
+		FakeLoader loader = new FakeLoader(write("a.txt", "good\n"));
+		Asset<String> asset = watcher.register(loader);
+
+		write("a.txt", "bad install\n");
+		awaitReads(loader, 2);
+
+		assertEquals(0, watcher.swap());
+		assertEquals("good\n", asset.get());
+		assertTrue(asset.getLastError() instanceof IllegalStateException);
+		assertTrue(loader.disposed.isEmpty());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_includedFile_triggersReload() throws Exception {
+		write("common.txt", "common\n");
+		FakeLoader loader = new FakeLoader(write("a.txt", "include common.txt\n"));
+		Asset<String> asset = watcher.register(loader);
+
+		write("common.txt", "changed\n");
+		awaitReads(loader, 2);
+
+		assertEquals(1, watcher.swap());
+		assertEquals("include common.txt\nchanged\n", asset.get());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_newDependency_watchedAfterReload() throws Exception {
+		write("common.txt", "common\n");
+		FakeLoader loader = new FakeLoader(write("a.txt", "plain\n"));
+		Asset<String> asset = watcher.register(loader);
+
+		write("a.txt", "include common.txt\n");
+		awaitReads(loader, 2);
+		watcher.swap();
+
+		write("common.txt", "changed\n");
+		awaitReads(loader, 3);
+
+		assertEquals(1, watcher.swap());
+		assertEquals("include common.txt\nchanged\n", asset.get());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_supersededReads_discarded() throws Exception {
+		FakeLoader loader = new FakeLoader(write("a.txt", "one\n"));
+		Asset<String> asset = watcher.register(loader);
+
+		watcher.requestReload(asset);
+		watcher.requestReload(asset);
+		awaitReads(loader, 3);
+
+		assertEquals(1, watcher.swap());
+		assertEquals(1, asset.getVersion());
+		assertEquals(1, loader.discarded.size());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_unregister_disposesAndStopsWatching() throws Exception {
+		FakeLoader loader = new FakeLoader(write("a.txt", "one\n"));
+		Asset<String> asset = watcher.register(loader);
+
+		watcher.unregister(asset);
+		assertEquals(1, loader.disposed.size());
+
+		write("a.txt", "two\n");
+		Thread.sleep(3 * DEBOUNCE_MILLIS);
+
+		assertEquals(1, loader.readCount.get());
+		assertEquals(0, watcher.swap());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_dispose_disposesEveryAsset() throws Exception {
+		FakeLoader first = new FakeLoader(write("a.txt", "a\n"));
+		FakeLoader second = new FakeLoader(write("b.txt", "b\n"));
+		watcher.register(first);
+		watcher.register(second);
+
+		watcher.dispose();
+
+		assertEquals(1, first.disposed.size());
+		assertEquals(1, second.disposed.size());
+	}
+}
@@ -0,0 +1,294 @@
+package utilities.benchmark;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Runs a suite of {@link BenchmarkTask}s over a set of batch sizes and writes
+ * the results as JSON, so that scores can be compared between builds.
+ * <p>
+ * Each (task, batch size) pair is first run for a number of untimed warmup
+ * iterations, giving the JIT a chance to compile the benchmarked code, and is
+ * then measured over a number of timed iterations. An iteration invokes the
+ * task repeatedly until the iteration time has elapsed, and scores the
+ * iteration as the amount of work done per second.
+ *
+ * @author Dustin Biser
+ *
+ */
+public class BenchmarkRunner {
+	private final String suiteName;
+
+	private int warmupIterations = 5;
+	private int measurementIterations = 10;
+	private long iterationTimeMillis = 200;
+
+	private final List<Entry> entries = new ArrayList<Entry>();
+	private final List<Result> results = new ArrayList<Result>();
+
+	private final Blackhole blackhole = new Blackhole();
+
+	//--------------------------------------------------------------------------
+	private static class Entry {
+		final String name;
+		final int[] batchSizes;
+		final BenchmarkTask task;
+
+		Entry(String name, int[] batchSizes, BenchmarkTask task) {
+			this.name = name;
+			this.batchSizes = batchSizes;
+			this.task = task;
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Scores for one (task, batch size) pair.
+	 */
+	public static class Result {
+		public final String benchmark;
+		public final int batchSize;
+		public final String unit;
+		public final double[] scores;
+
+		Result(String benchmark, int batchSize, String unit, double[] scores) {
+			this.benchmark = benchmark;
+			this.batchSize = batchSize;
+			this.unit = unit;
+			this.scores = scores;
+		}
+
+		public double mean() {
+			double sum = 0;
+			for (double s : scores) {
+				sum += s;
+			}
+			return sum / scores.length;
+		}
+
+		public double stdev() {
+			if (scores.length < 2) {
+				return 0;
+			}
+			double mean = mean();
+			double sum = 0;
+			for (double s : scores) {
+				sum += (s - mean) * (s - mean);
+			}
+			return Math.sqrt(sum / (scores.length - 1));
+		}
+
+		public double min() {
+			double min = Double.MAX_VALUE;
+			for (double s : scores) {
+				min = Math.min(min, s);
+			}
+			return min;
+		}
+
+		public double max() {
+			double max = -Double.MAX_VALUE;
+			for (double s : scores) {
+				max = Math.max(max, s);
+			}
+			return max;
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	public BenchmarkRunner(String suiteName) {
+		this.suiteName = suiteName;
+	}
+
+	//--------------------------------------------------------------------------
+	public BenchmarkRunner withWarmupIterations(int warmupIterations) {
+		this.warmupIterations = warmupIterations;
+		return this;
+	}
+
+	//--------------------------------------------------------------------------
+	public BenchmarkRunner withMeasurementIterations(int measurementIterations) {
+		this.measurementIterations = measurementIterations;
+		return this;
+	}
+
+	//--------------------------------------------------------------------------
+	public BenchmarkRunner withIterationTimeMillis(long iterationTimeMillis) {
+		this.iterationTimeMillis = iterationTimeMillis;
+		return this;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Adds a task to this suite, to be measured once for each of the given
+	 * batch sizes.
+	 *
+	 * @param name - name used to report the task's results.
+	 * @param batchSizes - batch sizes to be passed to
+	 *        {@link BenchmarkTask#setup(int)}.
+	 * @param task
+	 */
+	public BenchmarkRunner add(String name, int[] batchSizes, BenchmarkTask task) {
+		entries.add(new Entry(name, batchSizes, task));
+		return this;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Runs every task in this suite, printing a summary line for each result
+	 * to the standard output stream.
+	 *
+	 * @return the results of all tasks.
+	 */
+	public List<Result> run() {
+		results.clear();
+
+		for (Entry entry : entries) {
+			for (int batchSize : entry.batchSizes) {
+				Result result = measure(entry, batchSize);
+				results.add(result);
+
+				System.out.println(String.format(Locale.US,
+						"%-40s %10d %16.1f +/- %-12.1f %s",
+						suiteName + "." + result.benchmark, result.batchSize,
+						result.mean(), result.stdev(), result.unit));
+			}
+		}
+
+		return results;
+	}
+
+	//--------------------------------------------------------------------------
+	private Result measure(Entry entry, int batchSize) {
+		BenchmarkTask task = entry.task;
+		task.setBatchSize(batchSize);
+		task.setup(batchSize);
+
+		try {
+			for (int i = 0; i < warmupIterations; i++) {
+				runIteration(task);
+			}
+
+			double[] scores = new double[measurementIterations];
+			for (int i = 0; i < measurementIterations; i++) {
+				scores[i] = runIteration(task);
+			}
+
+			return new Result(entry.name, batchSize, task.unit(), scores);
+		}
+		finally {
+			task.teardown();
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the amount of work done per second during this iteration.
+	 */
+	private double runIteration(BenchmarkTask task) {
+		final long iterationNanos = iterationTimeMillis * 1000000L;
+		long invocations = 0;
+
+		long startTime = System.nanoTime();
+		long elapsed;
+		do {
+			task.run(blackhole);
+			invocations++;
+			elapsed = System.nanoTime() - startTime;
+		} while (elapsed < iterationNanos);
+
+		blackhole.publish();
+
+		return invocations * task.unitsPerInvocation() / (elapsed / 1e9);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Writes the results of the last {@link #run()} to <code>file</code> as a
+	 * JSON document.
+	 *
+	 * @param file
+	 * @throws IOException
+	 */
+	public void writeJson(File file) throws IOException {
+		File parent = file.getAbsoluteFile().getParentFile();
+		if (parent != null && !parent.exists()) {
+			parent.mkdirs();
+		}
+
+		Writer out = new FileWriter(file);
+		try {
+			out.write("{\n");
+			out.write("  \"suite\": " + quote(suiteName) + ",\n");
+			out.write("  \"timestamp\": " + System.currentTimeMillis() + ",\n");
+			out.write("  \"jvm\": " + quote(System.getProperty("java.vm.name") + " "
+					+ System.getProperty("java.version")) + ",\n");
+			out.write("  \"processors\": " + Runtime.getRuntime().availableProcessors() + ",\n");
+			out.write("  \"warmupIterations\": " + warmupIterations + ",\n");
+			out.write("  \"measurementIterations\": " + measurementIterations + ",\n");
+			out.write("  \"iterationTimeMillis\": " + iterationTimeMillis + ",\n");
+			out.write("  \"results\": [\n");
+
+			for (int i = 0; i < results.size(); i++) {
+				Result r = results.get(i);
+				out.write("    {");
+				out.write("\"benchmark\": " + quote(r.benchmark) + ", ");
+				out.write("\"batchSize\": " + r.batchSize + ", ");
+				out.write("\"unit\": " + quote(r.unit) + ", ");
+				out.write("\"mean\": " + number(r.mean()) + ", ");
+				out.write("\"stdev\": " + number(r.stdev()) + ", ");
+				out.write("\"min\": " + number(r.min()) + ", ");
+				out.write("\"max\": " + number(r.max()) + ", ");
+				out.write("\"scores\": [");
+				for (int j = 0; j < r.scores.length; j++) {
+					if (j > 0) out.write(", ");
+					out.write(number(r.scores[j]));
+				}
+				out.write("]}");
+				out.write(i < results.size() - 1 ? ",\n" : "\n");
+			}
+
+			out.write("  ]\n");
+			out.write("}\n");
+		}
+		finally {
+			out.close();
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Runs the suite and writes its results to the file named by the first
+	 * command line argument, or to <code>&lt;suiteName&gt;.json</code> in the
+	 * working directory if no argument is given.
+	 *
+	 * @param args - command line arguments of the benchmark's main method.
+	 */
+	public void runAndWrite(String[] args) {
+		run();
+
+		File file = new File(args.length > 0 ? args[0] : suiteName + ".json");
+		try {
+			writeJson(file);
+			System.out.println("Results written to " + file.getPath());
+		} catch (IOException e) {
+			System.err.println("Could not write benchmark results to " + file.getPath());
+			e.printStackTrace();
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private static String quote(String s) {
+		return "\"" + s.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+	}
+
+	//--------------------------------------------------------------------------
+	private static String number(double d) {
+		return String.format(Locale.US, "%.3f", d);
+	}
+}
@@ -0,0 +1,74 @@
+package utilities.benchmark;
+
+/**
+ * A unit of work measured by {@link BenchmarkRunner}.
+ *
+ * By default the score of a task is reported in operations per second, where
+ * each invocation of {@link #run(Blackhole)} performs <code>batchSize</code>
+ * operations. Tasks measuring a different quantity, such as bytes decoded,
+ * override {@link #unit()} and {@link #unitsPerInvocation()}.
+ *
+ * @author Dustin Biser
+ *
+ */
+public abstract class BenchmarkTask {
+	private int batchSize;
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Prepares the inputs for a run of this task. Called once per batch size,
+	 * outside of the timed region.
+	 *
+	 * @param batchSize - number of operations performed by each invocation of
+	 *        {@link #run(Blackhole)}.
+	 */
+	public void setup(int batchSize) {
+		// To be overridden.
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Performs <code>batchSize</code> operations. Every computed result that is
+	 * not stored into the task's own state should be passed to
+	 * <code>blackhole</code>.
+	 *
+	 * @param blackhole
+	 */
+	public abstract void run(Blackhole blackhole);
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Releases resources acquired by {@link #setup(int)}. Called once per batch
+	 * size, outside of the timed region.
+	 */
+	public void teardown() {
+		// To be overridden.
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the unit in which scores of this task are reported.
+	 */
+	public String unit() {
+		return "ops/s";
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the amount of {@link #unit()} work performed by one invocation of
+	 *         {@link #run(Blackhole)}.
+	 */
+	public double unitsPerInvocation() {
+		return batchSize;
+	}
+
+	//--------------------------------------------------------------------------
+	protected final int getBatchSize() {
+		return batchSize;
+	}
+
+	//--------------------------------------------------------------------------
+	final void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+}
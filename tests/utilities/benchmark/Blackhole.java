@@ -0,0 +1,66 @@
+package utilities.benchmark;
+
+/**
+ * Sink for values computed inside a benchmark, which prevents the JIT from
+ * treating the benchmarked code as dead and eliminating it.
+ *
+ * Consumed values are folded into plain fields, and the folded result is
+ * published to a volatile field at the end of every measurement iteration, so
+ * the cost of consuming a value stays close to a single xor.
+ *
+ * @author Dustin Biser
+ *
+ */
+public final class Blackhole {
+	private int intSink;
+	private long longSink;
+	private Object objectSink;
+
+	private volatile long published;
+
+	//--------------------------------------------------------------------------
+	public void consume(int i) {
+		intSink ^= i;
+	}
+
+	//--------------------------------------------------------------------------
+	public void consume(long l) {
+		longSink ^= l;
+	}
+
+	//--------------------------------------------------------------------------
+	public void consume(float f) {
+		intSink ^= Float.floatToRawIntBits(f);
+	}
+
+	//--------------------------------------------------------------------------
+	public void consume(double d) {
+		longSink ^= Double.doubleToRawLongBits(d);
+	}
+
+	//--------------------------------------------------------------------------
+	public void consume(boolean b) {
+		intSink ^= b ? 1 : 0;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Consumes an Object reference, forcing it to escape so that allocations
+	 * within the benchmarked code cannot be scalar replaced.
+	 *
+	 * @param o
+	 */
+	public void consume(Object o) {
+		objectSink = o;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Publishes everything consumed so far. Called by {@link BenchmarkRunner}
+	 * at the end of each iteration.
+	 */
+	void publish() {
+		published = intSink + longSink + (objectSink == null ? 0 : 1);
+		objectSink = null;
+	}
+}
@@ -0,0 +1,91 @@
+package utilities.culling;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.lwjgl.util.vector.Matrix4f;
+import org.lwjgl.util.vector.Vector3f;
+import org.lwjgl.util.vector.Vector4f;
+
+import util.culling.AabbBatch;
+import util.math.Matrix4Batch;
+
+public class AabbBatch_Test {
+	private static final float EPSILON = 1e-5f;
+
+	//--------------------------------------------------------------------------
+	// Helper Method
+	private static void assertBox(AabbBatch boxes, int index, float minX, float minY,
+			float minZ, float maxX, float maxY, float maxZ) {
+		assertEquals(minX, boxes.minX[index], EPSILON);
+		assertEquals(minY, boxes.minY[index], EPSILON);
+		assertEquals(minZ, boxes.minZ[index], EPSILON);
+		assertEquals(maxX, boxes.maxX[index], EPSILON);
+		assertEquals(maxY, boxes.maxY[index], EPSILON);
+		assertEquals(maxZ, boxes.maxZ[index], EPSILON);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_setFromPoints() {
+		float[] positions = {
+				99, 99, 99,
+				-1, 2, 3,
+				4, -5, 6,
+				7, 8, -9
+		};
+		AabbBatch boxes = new AabbBatch(1);
+
+		boxes.setFromPoints(0, positions, 3, 3);
+
+		assertBox(boxes, 0, -1f, -5f, -9f, 7f, 8f, 6f);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_setTransformed_translation() {
+		AabbBatch boxes = new AabbBatch(2);
+		boxes.set(0, -1f, -1f, -1f, 1f, 1f, 1f);
+		Matrix4Batch matrices = new Matrix4Batch(2);
+		Matrix4f matrix = new Matrix4f();
+		matrix.translate(new Vector3f(-7f, -9f, -45f));
+		matrices.set(1, matrix);
+
+		boxes.setTransformed(1, boxes, 0, matrices.m, Matrix4Batch.FLOATS_PER_MATRIX);
+
+		assertBox(boxes, 1, -8f, -10f, -46f, -6f, -8f, -44f);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_setTransformed_containsTransformedCorners() {
+		AabbBatch boxes = new AabbBatch(2);
+		boxes.set(0, -1f, 0f, -3f, 2f, 0.5f, 1f);
+		Matrix4f matrix = new Matrix4f();
+		matrix.translate(new Vector3f(5f, -2f, 1f));
+		matrix.rotate(0.7f, new Vector3f(0.3f, 1f, -0.2f).normalise(null));
+		matrix.scale(new Vector3f(2f, 1f, 0.5f));
+		Matrix4Batch matrices = new Matrix4Batch(1);
+		matrices.set(0, matrix);
+
+		boxes.setTransformed(1, boxes, 0, matrices.m, 0);
+
+		// The box of the transformed corners is exactly the result.
+		AabbBatch expected = new AabbBatch(1);
+		float[] corners = new float[3 * 8];
+		Vector4f corner = new Vector4f();
+		for (int i = 0; i < 8; i++) {
+			corner.set((i & 1) == 0 ? boxes.minX[0] : boxes.maxX[0],
+					(i & 2) == 0 ? boxes.minY[0] : boxes.maxY[0],
+					(i & 4) == 0 ? boxes.minZ[0] : boxes.maxZ[0], 1f);
+			Matrix4f.transform(matrix, corner, corner);
+			corners[3 * i] = corner.x;
+			corners[3 * i + 1] = corner.y;
+			corners[3 * i + 2] = corner.z;
+		}
+		expected.setFromPoints(0, corners, 0, 8);
+
+		assertBox(boxes, 1, expected.minX[0], expected.minY[0], expected.minZ[0],
+				expected.maxX[0], expected.maxY[0], expected.maxZ[0]);
+	}
+}
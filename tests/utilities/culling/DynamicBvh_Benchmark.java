@@ -0,0 +1,218 @@
+package utilities.culling;
+
+import java.util.Random;
+
+import util.Camera;
+import util.GLUtils;
+import util.culling.AabbBatch;
+import util.culling.DynamicBvh;
+import util.culling.Frustum;
+import util.culling.FrustumCuller;
+import utilities.benchmark.BenchmarkRunner;
+import utilities.benchmark.BenchmarkTask;
+import utilities.benchmark.Blackhole;
+
+/**
+ * Throughput of building and refitting a {@link DynamicBvh}, in objects per
+ * millisecond, and of frustum and ray queries against it versus testing
+ * every object with {@link FrustumCuller} or a linear slab test. Objects are
+ * scattered at the same density at every size, so the number a query finds
+ * stays roughly constant while the scene grows.
+ *
+ * Usage: <code>DynamicBvh_Benchmark [resultsFile.json]</code>
+ *
+ * @author Dustin Biser
+ *
+ */
+public class DynamicBvh_Benchmark {
+	private static final int[] BATCH_SIZES = {10000, 100000, 1000000};
+	private static final int RAYS_PER_INVOCATION = 64;
+
+	//--------------------------------------------------------------------------
+	private static abstract class SceneTask extends BenchmarkTask {
+		protected Frustum frustum;
+		protected AabbBatch boxes;
+		protected DynamicBvh bvh;
+		protected int[] results;
+		protected float[] rays;
+		protected float worldSize;
+
+		@Override
+		public void setup(int batchSize) {
+			// 10000 objects fill a cube 100 units wide.
+			worldSize = 100f * (float) Math.cbrt(batchSize / 10000.0);
+
+			Camera camera = new Camera();
+			camera.setPosition(3f, 2f, 10f);
+			camera.yaw(0.3f);
+			frustum = new Frustum();
+			frustum.set(GLUtils.createProjectionMatrixFov(60f, 1.5f, 0.5f, 40f), camera);
+
+			Random random = new Random(batchSize);
+			boxes = new AabbBatch(batchSize);
+			for (int i = 0; i < batchSize; i++) {
+				float x = (random.nextFloat() - 0.5f) * worldSize;
+				float y = (random.nextFloat() - 0.5f) * worldSize;
+				float z = (random.nextFloat() - 0.5f) * worldSize;
+				float size = random.nextFloat() * 3f;
+				boxes.set(i, x, y, z, x + size, y + size, z + size);
+			}
+
+			// Rays from points near the center in random directions, reaching
+			// 50 units.
+			rays = new float[6 * RAYS_PER_INVOCATION];
+			for (int i = 0; i < rays.length; i += 6) {
+				rays[i]     = random.nextFloat() * 20f - 10f;
+				rays[i + 1] = random.nextFloat() * 20f - 10f;
+				rays[i + 2] = random.nextFloat() * 20f - 10f;
+				rays[i + 3] = random.nextFloat() - 0.5f;
+				rays[i + 4] = random.nextFloat() - 0.5f;
+				rays[i + 5] = random.nextFloat() - 0.5f;
+				float length = (float) Math.sqrt(rays[i + 3] * rays[i + 3]
+						+ rays[i + 4] * rays[i + 4] + rays[i + 5] * rays[i + 5]);
+				rays[i + 3] /= length;
+				rays[i + 4] /= length;
+				rays[i + 5] /= length;
+			}
+
+			bvh = new DynamicBvh(2 * batchSize);
+			bvh.build(boxes, batchSize);
+			results = new int[batchSize];
+		}
+
+		@Override
+		public void teardown() {
+			boxes = null;
+			bvh = null;
+			results = null;
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private static abstract class ObjectTask extends SceneTask {
+		@Override
+		public String unit() {
+			return "objects/ms";
+		}
+
+		@Override
+		public double unitsPerInvocation() {
+			return getBatchSize() / 1000.0;
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private static abstract class QueryTask extends SceneTask {
+		@Override
+		public String unit() {
+			return "queries/s";
+		}
+
+		@Override
+		public double unitsPerInvocation() {
+			return 1;
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private static abstract class RayTask extends SceneTask {
+		@Override
+		public String unit() {
+			return "rays/s";
+		}
+
+		@Override
+		public double unitsPerInvocation() {
+			return RAYS_PER_INVOCATION;
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	public static void main(String args[]) {
+		BenchmarkRunner runner = new BenchmarkRunner("DynamicBvh");
+
+		runner.add("build", BATCH_SIZES, new ObjectTask() {
+			@Override
+			public void run(Blackhole blackhole) {
+				bvh.build(boxes, getBatchSize());
+				blackhole.consume(bvh.getHeight());
+			}
+		});
+
+		runner.add("setBounds_refit", BATCH_SIZES, new ObjectTask() {
+			private float step = 0.25f;
+
+			@Override
+			public void run(Blackhole blackhole) {
+				// Move every object a little, alternating direction so the
+				// scene does not spread out over the run.
+				step = -step;
+				for (int i = 0; i < getBatchSize(); i++) {
+					bvh.setBounds(i, boxes.minX[i] + step, boxes.minY[i],
+							boxes.minZ[i] - step, boxes.maxX[i] + step, boxes.maxY[i],
+							boxes.maxZ[i] - step);
+				}
+				bvh.refit();
+				blackhole.consume(bvh.getHeight());
+			}
+		});
+
+		runner.add("frustum_linear", BATCH_SIZES, new QueryTask() {
+			private final FrustumCuller culler = new FrustumCuller(Integer.MAX_VALUE, null);
+
+			@Override
+			public void run(Blackhole blackhole) {
+				blackhole.consume(culler.cull(frustum, boxes, 0, getBatchSize(), results));
+			}
+		});
+
+		runner.add("frustum_bvh", BATCH_SIZES, new QueryTask() {
+			@Override
+			public void run(Blackhole blackhole) {
+				blackhole.consume(bvh.queryFrustum(frustum, results));
+			}
+		});
+
+		runner.add("ray_linear", BATCH_SIZES, new RayTask() {
+			@Override
+			public void run(Blackhole blackhole) {
+				int hits = 0;
+				for (int r = 0; r < rays.length; r += 6) {
+					float ox = rays[r], oy = rays[r + 1], oz = rays[r + 2];
+					float invX = 1f / rays[r + 3], invY = 1f / rays[r + 4];
+					float invZ = 1f / rays[r + 5];
+					for (int i = 0; i < getBatchSize(); i++) {
+						float t0 = (boxes.minX[i] - ox) * invX, t1 = (boxes.maxX[i] - ox) * invX;
+						float tNear = Math.min(t0, t1), tFar = Math.max(t0, t1);
+						t0 = (boxes.minY[i] - oy) * invY;
+						t1 = (boxes.maxY[i] - oy) * invY;
+						tNear = Math.max(tNear, Math.min(t0, t1));
+						tFar = Math.min(tFar, Math.max(t0, t1));
+						t0 = (boxes.minZ[i] - oz) * invZ;
+						t1 = (boxes.maxZ[i] - oz) * invZ;
+						tNear = Math.max(tNear, Math.min(t0, t1));
+						tFar = Math.min(tFar, Math.max(t0, t1));
+						if (tNear <= tFar && tFar >= 0f && tNear <= 50f) {
+							results[hits++] = i;
+						}
+					}
+				}
+				blackhole.consume(hits);
+			}
+		});
+
+		runner.add("ray_bvh", BATCH_SIZES, new RayTask() {
+			@Override
+			public void run(Blackhole blackhole) {
+				int hits = 0;
+				for (int r = 0; r < rays.length; r += 6) {
+					hits += bvh.queryRay(rays[r], rays[r + 1], rays[r + 2], rays[r + 3],
+							rays[r + 4], rays[r + 5], 50f, results);
+				}
+				blackhole.consume(hits);
+			}
+		});
+
+		runner.runAndWrite(args);
+	}
+}
@@ -0,0 +1,271 @@
+package utilities.culling;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import util.Camera;
+import util.GLUtils;
+import util.culling.AabbBatch;
+import util.culling.DynamicBvh;
+import util.culling.Frustum;
+import util.culling.FrustumCuller;
+
+public class DynamicBvh_Test {
+	private static final int COUNT = 5003;
+
+	private Frustum frustum;
+	private AabbBatch boxes;
+	private DynamicBvh bvh;
+	private Random random;
+
+	@Before
+	public void setUp() throws Exception {
+		Camera camera = new Camera();
+		camera.setPosition(3f, 2f, 10f);
+		camera.yaw(0.3f);
+		frustum = new Frustum();
+		frustum.set(GLUtils.createProjectionMatrixFov(60f, 1.5f, 0.5f, 40f), camera);
+
+		random = new Random(42);
+		boxes = new AabbBatch(COUNT);
+		for (int i = 0; i < COUNT; i++) {
+			setRandomBox(i, 0f);
+		}
+		bvh = new DynamicBvh();
+	}
+
+	//--------------------------------------------------------------------------
+	// Helper Method
+	private void setRandomBox(int i, float offset) {
+		float x = random.nextFloat() * 100f - 50f + offset;
+		float y = random.nextFloat() * 100f - 50f;
+		float z = random.nextFloat() * 100f - 50f;
+		float size = random.nextFloat() * 3f;
+		boxes.set(i, x, y, z, x + size, y + 0.5f * size, z + 2f * size);
+	}
+
+	//--------------------------------------------------------------------------
+	// Helper Method
+	private void assertSameObjects(int[] expected, int expectedCount, int[] actual,
+			int actualCount) {
+		assertEquals(expectedCount, actualCount);
+		int[] sortedExpected = Arrays.copyOf(expected, expectedCount);
+		int[] sortedActual = Arrays.copyOf(actual, actualCount);
+		Arrays.sort(sortedExpected);
+		Arrays.sort(sortedActual);
+		assertArrayEquals(sortedExpected, sortedActual);
+	}
+
+	//--------------------------------------------------------------------------
+	// Helper Method
+	private void assertFrustumQueryMatchesCuller() {
+		int[] expected = new int[COUNT];
+		int expectedCount = new FrustumCuller().cull(frustum, boxes, 0, COUNT, expected);
+		assertTrue(expectedCount > 0 && expectedCount < COUNT);
+
+		int[] actual = new int[COUNT];
+		int actualCount = bvh.queryFrustum(frustum, actual);
+		assertSameObjects(expected, expectedCount, actual, actualCount);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_build() {
+		bvh.build(boxes, COUNT);
+		bvh.validate();
+
+		assertEquals(COUNT, bvh.getObjectCount());
+		assertEquals(2 * COUNT - 1, bvh.getNodeCount());
+		// A balanced tree of 5003 leaves has height 13.
+		assertTrue(bvh.getHeight() >= 13 && bvh.getHeight() < 40);
+		assertFrustumQueryMatchesCuller();
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_build_emptyAndSingle() {
+		bvh.build(boxes, 0);
+		bvh.validate();
+		assertEquals(-1, bvh.getHeight());
+		assertEquals(0, bvh.queryFrustum(frustum, new int[0]));
+
+		boxes.set(0, 0f, 0f, 0f, 1f, 1f, 1f);
+		bvh.build(boxes, 1);
+		bvh.validate();
+		int[] results = new int[1];
+		assertEquals(1, bvh.queryOverlap(0.5f, 0.5f, 0.5f, 2f, 2f, 2f, results));
+		assertEquals(0, results[0]);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_build_coincidentBoxes() {
+		for (int i = 0; i < COUNT; i++) {
+			boxes.set(i, 1f, 1f, 1f, 2f, 2f, 2f);
+		}
+		bvh.build(boxes, COUNT);
+		bvh.validate();
+
+		int[] results = new int[COUNT];
+		assertEquals(COUNT, bvh.queryOverlap(0f, 0f, 0f, 1f, 1f, 1f, results));
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_insertAndRemove() {
+		for (int i = 0; i < COUNT; i++) {
+			bvh.insert(i, boxes.minX[i], boxes.minY[i], boxes.minZ[i],
+					boxes.maxX[i], boxes.maxY[i], boxes.maxZ[i]);
+		}
+		bvh.validate();
+		assertEquals(COUNT, bvh.getObjectCount());
+		assertTrue(bvh.getHeight() < 40);
+		assertFrustumQueryMatchesCuller();
+
+		// Remove the even objects and move their boxes out of view.
+		for (int i = 0; i < COUNT; i += 2) {
+			bvh.remove(i);
+			boxes.set(i, 1000f, 1000f, 1000f, 1001f, 1001f, 1001f);
+		}
+		bvh.validate();
+		assertEquals(COUNT / 2, bvh.getObjectCount());
+		assertEquals(2 * (COUNT / 2) - 1, bvh.getNodeCount());
+		assertFrustumQueryMatchesCuller();
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_setBoundsAndRefit() {
+		bvh.build(boxes, COUNT);
+
+		// Drift every object in its own direction for 20 frames, by up to ten
+		// units in all.
+		float[] velocity = new float[3 * COUNT];
+		for (int i = 0; i < velocity.length; i++) {
+			velocity[i] = random.nextFloat() - 0.5f;
+		}
+		for (int frame = 0; frame < 20; frame++) {
+			for (int i = 0; i < COUNT; i++) {
+				float dx = velocity[3 * i], dy = velocity[3 * i + 1], dz = velocity[3 * i + 2];
+				boxes.set(i, boxes.minX[i] + dx, boxes.minY[i] + dy, boxes.minZ[i] + dz,
+						boxes.maxX[i] + dx, boxes.maxY[i] + dy, boxes.maxZ[i] + dz);
+				bvh.setBounds(i, boxes.minX[i], boxes.minY[i], boxes.minZ[i],
+						boxes.maxX[i], boxes.maxY[i], boxes.maxZ[i]);
+			}
+			bvh.refit();
+			bvh.validate();
+			assertFrustumQueryMatchesCuller();
+		}
+
+		// Rotations keep the refitted tree within a small factor of a fresh
+		// build.
+		DynamicBvh rebuilt = new DynamicBvh();
+		rebuilt.build(boxes, COUNT);
+		assertTrue(bvh.getSahCost() < 2.5f * rebuilt.getSahCost());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_update() {
+		bvh.build(boxes, COUNT);
+		for (int i = 0; i < COUNT; i += 3) {
+			setRandomBox(i, 20f);
+			bvh.update(i, boxes.minX[i], boxes.minY[i], boxes.minZ[i],
+					boxes.maxX[i], boxes.maxY[i], boxes.maxZ[i]);
+		}
+		bvh.validate();
+		assertEquals(2 * COUNT - 1, bvh.getNodeCount());
+		assertFrustumQueryMatchesCuller();
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_queryOverlap() {
+		bvh.build(boxes, COUNT);
+
+		float x0 = -10f, y0 = -5f, z0 = -20f, x1 = 15f, y1 = 5f, z1 = 0f;
+		int[] expected = new int[COUNT];
+		int expectedCount = 0;
+		for (int i = 0; i < COUNT; i++) {
+			if (boxes.minX[i] <= x1 && boxes.maxX[i] >= x0
+					&& boxes.minY[i] <= y1 && boxes.maxY[i] >= y0
+					&& boxes.minZ[i] <= z1 && boxes.maxZ[i] >= z0) {
+				expected[expectedCount++] = i;
+			}
+		}
+		assertTrue(expectedCount > 0);
+
+		int[] actual = new int[COUNT];
+		int actualCount = bvh.queryOverlap(x0, y0, z0, x1, y1, z1, actual);
+		assertSameObjects(expected, expectedCount, actual, actualCount);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_queryRay() {
+		bvh.build(boxes, COUNT);
+
+		// Ray along the x axis through the center of box 7, and one along a
+		// diagonal stopping short of the far corner.
+		float cy = 0.5f * (boxes.minY[7] + boxes.maxY[7]);
+		float cz = 0.5f * (boxes.minZ[7] + boxes.maxZ[7]);
+		float[][] rays = {
+				{-60f, cy, cz, 1f, 0f, 0f, 200f},
+				{-50f, -50f, -50f, 1f, 1f, 1f, 60f},
+		};
+		for (float[] ray : rays) {
+			int[] expected = new int[COUNT];
+			int expectedCount = 0;
+			for (int i = 0; i < COUNT; i++) {
+				if (rayHitsBox(ray, i)) {
+					expected[expectedCount++] = i;
+				}
+			}
+			assertTrue(expectedCount > 0);
+
+			int[] actual = new int[COUNT];
+			int actualCount = bvh.queryRay(ray[0], ray[1], ray[2], ray[3], ray[4],
+					ray[5], ray[6], actual);
+			assertSameObjects(expected, expectedCount, actual, actualCount);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	// Helper Method
+	private boolean rayHitsBox(float[] ray, int i) {
+		float[] min = {boxes.minX[i], boxes.minY[i], boxes.minZ[i]};
+		float[] max = {boxes.maxX[i], boxes.maxY[i], boxes.maxZ[i]};
+		float tNear = -Float.MAX_VALUE;
+		float tFar = Float.MAX_VALUE;
+		for (int axis = 0; axis < 3; axis++) {
+			float t0 = (min[axis] - ray[axis]) / ray[3 + axis];
+			float t1 = (max[axis] - ray[axis]) / ray[3 + axis];
+			tNear = Math.max(tNear, Math.min(t0, t1));
+			tFar = Math.min(tFar, Math.max(t0, t1));
+		}
+		return tNear <= tFar && tFar >= 0f && tNear <= ray[6];
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_invalidObjects() {
+		bvh.insert(3, 0f, 0f, 0f, 1f, 1f, 1f);
+		try {
+			bvh.insert(3, 0f, 0f, 0f, 1f, 1f, 1f);
+			fail("Expected IllegalArgumentException.");
+		} catch (IllegalArgumentException e) { }
+		try {
+			bvh.remove(2);
+			fail("Expected IllegalArgumentException.");
+		} catch (IllegalArgumentException e) { }
+		try {
+			bvh.queryFrustum(frustum, new int[0]);
+			fail("Expected IllegalArgumentException.");
+		} catch (IllegalArgumentException e) { }
+	}
+}
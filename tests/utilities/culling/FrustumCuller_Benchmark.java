@@ -0,0 +1,139 @@
+package utilities.culling;
+
+import java.util.Random;
+
+import util.Camera;
+import util.GLUtils;
+import util.culling.AabbBatch;
+import util.culling.BoundingSphereBatch;
+import util.culling.Frustum;
+import util.culling.FrustumCuller;
+import utilities.benchmark.BenchmarkRunner;
+import utilities.benchmark.BenchmarkTask;
+import utilities.benchmark.Blackhole;
+
+/**
+ * Culling throughput, in objects per millisecond, of testing bounding volumes
+ * one at a time with {@link Frustum} versus culling them in bulk with
+ * {@link FrustumCuller}, on the calling thread and split across a
+ * ForkJoinPool. About a sixth of the objects are visible.
+ *
+ * Usage: <code>FrustumCuller_Benchmark [resultsFile.json]</code>
+ *
+ * @author Dustin Biser
+ *
+ */
+public class FrustumCuller_Benchmark {
+	private static final int[] BATCH_SIZES = {10000, 1000000, 4000000};
+
+	//--------------------------------------------------------------------------
+	private static abstract class CullTask extends BenchmarkTask {
+		protected Frustum frustum;
+		protected AabbBatch boxes;
+		protected BoundingSphereBatch spheres;
+		protected int[] visible;
+
+		@Override
+		public void setup(int batchSize) {
+			Camera camera = new Camera();
+			camera.setPosition(3f, 2f, 10f);
+			camera.yaw(0.3f);
+			frustum = new Frustum();
+			frustum.set(GLUtils.createProjectionMatrixFov(60f, 1.5f, 0.5f, 40f), camera);
+
+			Random random = new Random(batchSize);
+			boxes = new AabbBatch(batchSize);
+			spheres = new BoundingSphereBatch(batchSize);
+			for (int i = 0; i < batchSize; i++) {
+				float x = random.nextFloat() * 100f - 50f;
+				float y = random.nextFloat() * 100f - 50f;
+				float z = random.nextFloat() * 100f - 50f;
+				float size = random.nextFloat() * 3f;
+				boxes.set(i, x, y, z, x + size, y + size, z + size);
+				spheres.set(i, x, y, z, size);
+			}
+			visible = new int[batchSize];
+		}
+
+		@Override
+		public void teardown() {
+			boxes = null;
+			spheres = null;
+			visible = null;
+		}
+
+		@Override
+		public String unit() {
+			return "objects/ms";
+		}
+
+		@Override
+		public double unitsPerInvocation() {
+			return getBatchSize() / 1000.0;
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private static class BulkTask extends CullTask {
+		private final FrustumCuller culler;
+		private final boolean cullSpheres;
+
+		BulkTask(FrustumCuller culler, boolean cullSpheres) {
+			this.culler = culler;
+			this.cullSpheres = cullSpheres;
+		}
+
+		@Override
+		public void run(Blackhole blackhole) {
+			if (cullSpheres) {
+				blackhole.consume(culler.cull(frustum, spheres, 0, getBatchSize(), visible));
+			}
+			else {
+				blackhole.consume(culler.cull(frustum, boxes, 0, getBatchSize(), visible));
+			}
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	public static void main(String args[]) {
+		BenchmarkRunner runner = new BenchmarkRunner("FrustumCuller");
+
+		runner.add("scalar_spheres", BATCH_SIZES, new CullTask() {
+			@Override
+			public void run(Blackhole blackhole) {
+				int visibleCount = 0;
+				for (int i = 0; i < getBatchSize(); i++) {
+					if (frustum.intersectsSphere(spheres.x[i], spheres.y[i],
+							spheres.z[i], spheres.radius[i])) {
+						visible[visibleCount++] = i;
+					}
+				}
+				blackhole.consume(visibleCount);
+			}
+		});
+
+		runner.add("scalar_aabbs", BATCH_SIZES, new CullTask() {
+			@Override
+			public void run(Blackhole blackhole) {
+				int visibleCount = 0;
+				for (int i = 0; i < getBatchSize(); i++) {
+					if (frustum.intersectsAabb(boxes.minX[i], boxes.minY[i],
+							boxes.minZ[i], boxes.maxX[i], boxes.maxY[i], boxes.maxZ[i])) {
+						visible[visibleCount++] = i;
+					}
+				}
+				blackhole.consume(visibleCount);
+			}
+		});
+
+		FrustumCuller serial = new FrustumCuller(Integer.MAX_VALUE, null);
+		FrustumCuller parallel = new FrustumCuller();
+
+		runner.add("bulk_spheres", BATCH_SIZES, new BulkTask(serial, true));
+		runner.add("bulk_aabbs", BATCH_SIZES, new BulkTask(serial, false));
+		runner.add("bulk_spheres_parallel", BATCH_SIZES, new BulkTask(parallel, true));
+		runner.add("bulk_aabbs_parallel", BATCH_SIZES, new BulkTask(parallel, false));
+
+		runner.runAndWrite(args);
+	}
+}
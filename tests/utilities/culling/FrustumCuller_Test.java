@@ -0,0 +1,146 @@
+package utilities.culling;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import util.Camera;
+import util.GLUtils;
+import util.culling.AabbBatch;
+import util.culling.BoundingSphereBatch;
+import util.culling.Frustum;
+import util.culling.FrustumCuller;
+
+public class FrustumCuller_Test {
+	private static final int COUNT = 10007;
+	private static final int PARALLEL_THRESHOLD = 1000;
+
+	private Frustum frustum;
+	private AabbBatch boxes;
+	private BoundingSphereBatch spheres;
+	private ForkJoinPool pool;
+
+	@Before
+	public void setUp() throws Exception {
+		Camera camera = new Camera();
+		camera.setPosition(3f, 2f, 10f);
+		camera.yaw(0.3f);
+		frustum = new Frustum();
+		frustum.set(GLUtils.createProjectionMatrixFov(60f, 1.5f, 0.5f, 40f), camera);
+
+		// Volumes scattered around the camera, about a sixth of them visible.
+		Random random = new Random(42);
+		boxes = new AabbBatch(COUNT);
+		spheres = new BoundingSphereBatch(COUNT);
+		for (int i = 0; i < COUNT; i++) {
+			float x = random.nextFloat() * 100f - 50f;
+			float y = random.nextFloat() * 100f - 50f;
+			float z = random.nextFloat() * 100f - 50f;
+			float size = random.nextFloat() * 3f;
+			boxes.set(i, x, y, z, x + size, y + 0.5f * size, z + 2f * size);
+			spheres.set(i, x, y, z, size);
+		}
+
+		pool = new ForkJoinPool(4);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		pool.shutdown();
+	}
+
+	//--------------------------------------------------------------------------
+	// Helper Method
+	private void assertVisibleBoxes(int start, int count, int[] visible,
+			int visibleCount) {
+		int expected = 0;
+		for (int i = start; i < start + count; i++) {
+			if (frustum.intersectsAabb(boxes.minX[i], boxes.minY[i], boxes.minZ[i],
+					boxes.maxX[i], boxes.maxY[i], boxes.maxZ[i])) {
+				assertEquals(i, visible[expected++]);
+			}
+		}
+		assertEquals(expected, visibleCount);
+		assertTrue(visibleCount > 0 && visibleCount < count);
+	}
+
+	//--------------------------------------------------------------------------
+	// Helper Method
+	private void assertVisibleSpheres(int start, int count, int[] visible,
+			int visibleCount) {
+		int expected = 0;
+		for (int i = start; i < start + count; i++) {
+			if (frustum.intersectsSphere(spheres.x[i], spheres.y[i], spheres.z[i],
+					spheres.radius[i])) {
+				assertEquals(i, visible[expected++]);
+			}
+		}
+		assertEquals(expected, visibleCount);
+		assertTrue(visibleCount > 0 && visibleCount < count);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_cullBoxes_matchesFrustum() {
+		FrustumCuller culler = new FrustumCuller(Integer.MAX_VALUE, pool);
+		int[] visible = new int[COUNT];
+
+		int visibleCount = culler.cull(frustum, boxes, 0, COUNT, visible);
+
+		assertVisibleBoxes(0, COUNT, visible, visibleCount);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_cullSpheres_matchesFrustum() {
+		FrustumCuller culler = new FrustumCuller(Integer.MAX_VALUE, pool);
+		int[] visible = new int[COUNT];
+
+		int visibleCount = culler.cull(frustum, spheres, 0, COUNT, visible);
+
+		assertVisibleSpheres(0, COUNT, visible, visibleCount);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_parallel_sameOrderedResult() {
+		FrustumCuller culler = new FrustumCuller(PARALLEL_THRESHOLD, pool);
+		int[] visible = new int[COUNT];
+
+		int visibleCount = culler.cull(frustum, boxes, 0, COUNT, visible);
+		assertVisibleBoxes(0, COUNT, visible, visibleCount);
+
+		visibleCount = culler.cull(frustum, spheres, 0, COUNT, visible);
+		assertVisibleSpheres(0, COUNT, visible, visibleCount);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_subRange() {
+		FrustumCuller culler = new FrustumCuller(PARALLEL_THRESHOLD, pool);
+		int start = 1234;
+		int count = 5 * PARALLEL_THRESHOLD + 17;
+		int[] visible = new int[count];
+
+		int visibleCount = culler.cull(frustum, spheres, start, count, visible);
+
+		assertVisibleSpheres(start, count, visible, visibleCount);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test(expected = IllegalArgumentException.class)
+	public void test_visibleArrayTooSmall() {
+		new FrustumCuller().cull(frustum, boxes, 0, COUNT, new int[COUNT - 1]);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void test_rangeValidated() {
+		new FrustumCuller().cull(frustum, spheres, 1, COUNT, new int[COUNT]);
+	}
+}
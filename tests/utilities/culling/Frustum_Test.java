@@ -0,0 +1,124 @@
+package utilities.culling;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.lwjgl.util.vector.Matrix4f;
+import org.lwjgl.util.vector.Vector4f;
+
+import util.Camera;
+import util.GLUtils;
+import util.culling.Frustum;
+
+public class Frustum_Test {
+	private static final float NEAR = 1f;
+	private static final float FAR = 10f;
+	private static final float TOLERANCE = 1e-5f;
+
+	private Matrix4f projectionMatrix;
+	private Frustum frustum;
+
+	@Before
+	public void setUp() throws Exception {
+		// 90 degree field of view, so the side planes are at 45 degrees.
+		projectionMatrix = GLUtils.createProjectionMatrixFov(90f, 1f, NEAR, FAR);
+		frustum = new Frustum();
+		frustum.set(projectionMatrix, new Matrix4f());
+	}
+
+	//--------------------------------------------------------------------------
+	// Helper Method
+	private void assertPlaneEquals(float a, float b, float c, float d, int plane) {
+		Vector4f actual = new Vector4f();
+		frustum.getPlane(plane, actual);
+		assertEquals(a, actual.x, TOLERANCE);
+		assertEquals(b, actual.y, TOLERANCE);
+		assertEquals(c, actual.z, TOLERANCE);
+		assertEquals(d, actual.w, TOLERANCE);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_planes_normalizedAndInwardFacing() {
+		float s = (float) Math.sqrt(0.5);
+
+		assertPlaneEquals(0f, 0f, -1f, -NEAR, Frustum.NEAR);
+		assertPlaneEquals(0f, 0f, 1f, FAR, Frustum.FAR);
+		assertPlaneEquals(s, 0f, -s, 0f, Frustum.LEFT);
+		assertPlaneEquals(-s, 0f, -s, 0f, Frustum.RIGHT);
+		assertPlaneEquals(0f, s, -s, 0f, Frustum.BOTTOM);
+		assertPlaneEquals(0f, -s, -s, 0f, Frustum.TOP);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_containsPoint() {
+		assertTrue(frustum.containsPoint(0f, 0f, -5f));
+		assertTrue(frustum.containsPoint(4.9f, -4.9f, -5f));
+
+		assertFalse(frustum.containsPoint(0f, 0f, -0.5f));
+		assertFalse(frustum.containsPoint(0f, 0f, -11f));
+		assertFalse(frustum.containsPoint(0f, 0f, 5f));
+		assertFalse(frustum.containsPoint(5.1f, 0f, -5f));
+		assertFalse(frustum.containsPoint(0f, 5.1f, -5f));
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_intersectsSphere() {
+		// Straddling the far plane.
+		assertTrue(frustum.intersectsSphere(0f, 0f, -11f, 2f));
+		assertFalse(frustum.intersectsSphere(0f, 0f, -11f, 0.5f));
+
+		// Beside the frustum, 1 unit from the right plane.
+		float x = 5f + (float) Math.sqrt(2.0);
+		assertTrue(frustum.intersectsSphere(x, 0f, -5f, 1.01f));
+		assertFalse(frustum.intersectsSphere(x, 0f, -5f, 0.99f));
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_intersectsAabb() {
+		assertTrue(frustum.intersectsAabb(-1f, -1f, -6f, 1f, 1f, -4f));
+
+		// Straddling the near plane and entirely in front of it.
+		assertTrue(frustum.intersectsAabb(-0.1f, -0.1f, -2f, 0.1f, 0.1f, 2f));
+		assertFalse(frustum.intersectsAabb(-0.1f, -0.1f, -0.9f, 0.1f, 0.1f, 2f));
+
+		// Left of the frustum, with one corner just across the left plane.
+		assertTrue(frustum.intersectsAabb(-7f, 0f, -6f, -5.9f, 1f, -5f));
+		assertFalse(frustum.intersectsAabb(-7f, 0f, -6f, -6.1f, 1f, -5f));
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_set_fromCamera() {
+		Camera camera = new Camera();
+		camera.setPosition(0f, 0f, 20f);
+		frustum.set(projectionMatrix, camera);
+
+		assertTrue(frustum.containsPoint(0f, 0f, 15f));
+		assertFalse(frustum.containsPoint(0f, 0f, -5f));
+
+		// Turning around puts points behind the camera in view.
+		camera.yaw((float) Math.PI);
+		frustum.set(projectionMatrix, camera);
+
+		assertFalse(frustum.containsPoint(0f, 0f, 15f));
+		assertTrue(frustum.containsPoint(0f, 0f, 25f));
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_set_fromAsymmetricProjection() {
+		// Near face twice as wide on the right.
+		frustum.set(GLUtils.createProjectionMatrix(-1f, 2f, -1f, 1f, NEAR, FAR),
+				new Matrix4f());
+
+		assertTrue(frustum.containsPoint(1.9f, 0f, -1.01f));
+		assertFalse(frustum.containsPoint(-1.1f, 0f, -1.01f));
+		assertTrue(frustum.containsPoint(19f, 0f, -9.9f));
+		assertFalse(frustum.containsPoint(0f, 0f, -10.1f));
+	}
+}
@@ -0,0 +1,169 @@
+package utilities.frame;
+
+import static org.lwjgl.opengl.GL11.*;
+
+import java.util.concurrent.locks.LockSupport;
+
+import util.frame.FrameConsumer;
+import util.frame.FramePipeline;
+import util.frame.FrameProducer;
+import util.graphics.HeadlessGraphicsDevice;
+import util.graphics.RenderQueue;
+import utilities.benchmark.BenchmarkRunner;
+import utilities.benchmark.BenchmarkTask;
+import utilities.benchmark.Blackhole;
+
+/**
+ * Frame rate of running a simulation and its rendering one after the other
+ * on a single thread, as {@link util.LwjglWindow} does, versus overlapping
+ * them with a {@link FramePipeline}. Each frame's update busily records
+ * {@link #OBJECT_COUNT} draws into a {@link RenderQueue} and then spins for
+ * {@link #UPDATE_MICROS}. Its render submits the queue to a
+ * {@link HeadlessGraphicsDevice} and then sleeps for {@link #PRESENT_MICROS},
+ * standing in for the time a driver blocks in a swap or on the GPU.
+ *
+ * Usage: <code>FramePipeline_Benchmark [resultsFile.json]</code>
+ *
+ * The pipeline's stage timings are printed after each run. On a single core
+ * only the blocking part of rendering can overlap the update; with more
+ * cores the update also overlaps submission.
+ *
+ * @author Dustin Biser
+ *
+ */
+public class FramePipeline_Benchmark {
+	private static final int OBJECT_COUNT = 2000;
+	private static final long UPDATE_MICROS = 2000;
+	private static final long PRESENT_MICROS = 3000;
+
+	//--------------------------------------------------------------------------
+	private static class Frame {
+		final RenderQueue queue = new RenderQueue(OBJECT_COUNT);
+	}
+
+	//--------------------------------------------------------------------------
+	private static class Scene implements FrameProducer<Frame>, FrameConsumer<Frame> {
+		final HeadlessGraphicsDevice device = new HeadlessGraphicsDevice();
+		final int[] programs = new int[4];
+		final int[] vertexArrays = new int[16];
+
+		Scene() {
+			for (int i = 0; i < programs.length; i++) {
+				programs[i] = device.createProgram();
+			}
+			for (int i = 0; i < vertexArrays.length; i++) {
+				vertexArrays[i] = device.createVertexArray();
+			}
+		}
+
+		@Override
+		public void update(Frame frame, long frameNumber) {
+			frame.queue.clear();
+			for (int i = 0; i < OBJECT_COUNT; i++) {
+				int program = programs[i % programs.length];
+				int vertexArray = vertexArrays[(int) ((i + frameNumber) % vertexArrays.length)];
+				frame.queue.addArrays(RenderQueue.sortKey(0, program, 0, vertexArray, 0),
+						program, vertexArray, 0, GL_TRIANGLES, 0, 36);
+				frame.queue.addUniform1f(0, i);
+			}
+			frame.queue.sort();
+			spin(UPDATE_MICROS);
+		}
+
+		@Override
+		public void render(Frame frame) {
+			device.resetCounters();
+			frame.queue.submit(device);
+			sleep(PRESENT_MICROS);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private static void spin(long micros) {
+		long end = System.nanoTime() + micros * 1000;
+		while (System.nanoTime() < end) {
+			// Busy, as a simulation would be.
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private static void sleep(long micros) {
+		// Parks again when woken early, such as by the pipeline publishing.
+		long end = System.nanoTime() + micros * 1000;
+		for (long now = System.nanoTime(); now < end; now = System.nanoTime()) {
+			LockSupport.parkNanos(end - now);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private static abstract class FrameTask extends BenchmarkTask {
+		@Override
+		public String unit() {
+			return "frames/s";
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	public static void main(String args[]) {
+		final int[] batchSizes = {100};
+
+		BenchmarkRunner runner = new BenchmarkRunner("FramePipeline");
+
+		runner.add("sequential", batchSizes, new FrameTask() {
+			private Scene scene;
+			private Frame frame;
+			private long frameNumber;
+
+			@Override
+			public void setup(int batchSize) {
+				scene = new Scene();
+				frame = new Frame();
+			}
+
+			@Override
+			public void run(Blackhole blackhole) {
+				for (int i = 0; i < getBatchSize(); i++) {
+					scene.update(frame, frameNumber++);
+					scene.render(frame);
+				}
+				blackhole.consume(scene.device.getDrawCallCount());
+			}
+		});
+
+		runner.add("pipelined", batchSizes, new FrameTask() {
+			private Scene scene;
+			private FramePipeline<Frame> pipeline;
+
+			@Override
+			public void setup(int batchSize) {
+				scene = new Scene();
+				pipeline = new FramePipeline<Frame>(new Frame(), new Frame(), new Frame(),
+						scene);
+				pipeline.start();
+			}
+
+			@Override
+			public void run(Blackhole blackhole) {
+				for (int i = 0; i < getBatchSize(); i++) {
+					pipeline.renderFrame(scene);
+				}
+				blackhole.consume(scene.device.getDrawCallCount());
+			}
+
+			@Override
+			public void teardown() {
+				pipeline.stop();
+				long frames = pipeline.getRenderedFrameCount();
+				System.out.printf("pipelined: update %.2f ms + %.2f ms waiting, "
+						+ "render %.2f ms + %.2f ms waiting, overlap %.0f%%%n",
+						pipeline.getUpdateNanos() / 1e6 / frames,
+						pipeline.getUpdateWaitNanos() / 1e6 / frames,
+						pipeline.getRenderNanos() / 1e6 / frames,
+						pipeline.getRenderWaitNanos() / 1e6 / frames,
+						100 * pipeline.getOverlap());
+			}
+		});
+
+		runner.runAndWrite(args);
+	}
+}
@@ -0,0 +1,175 @@
+package utilities.frame;
+
+import static org.junit.Assert.*;
+import static org.lwjgl.opengl.GL11.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import util.frame.FrameConsumer;
+import util.frame.FramePipeline;
+import util.frame.FrameProducer;
+import util.graphics.HeadlessGraphicsDevice;
+import util.graphics.RenderQueue;
+
+public class FramePipeline_Test {
+	private static final int OBJECT_COUNT = 50;
+
+	private HeadlessGraphicsDevice device;
+	private int program;
+	private int vertexArray;
+	private FramePipeline<Frame> pipeline;
+
+	@Before
+	public void setUp() {
+		device = new HeadlessGraphicsDevice();
+		program = device.createProgram();
+		vertexArray = device.createVertexArray();
+	}
+
+	@After
+	public void tearDown() {
+		if (pipeline != null) {
+			pipeline.stop();
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	// Helper Method
+	// A snapshot holding the draw calls of a frame, recorded on the update
+	// thread.
+	private static class Frame {
+		long number = -1;
+		final RenderQueue queue = new RenderQueue();
+	}
+
+	//--------------------------------------------------------------------------
+	// Helper Method
+	private class Simulation implements FrameProducer<Frame> {
+		final long failAtFrame;
+
+		Simulation(long failAtFrame) {
+			this.failAtFrame = failAtFrame;
+		}
+
+		@Override
+		public void update(Frame frame, long frameNumber) {
+			if (frameNumber == failAtFrame) {
+				throw new IllegalStateException("Simulation failed.");
+			}
+			frame.number = frameNumber;
+			frame.queue.clear();
+			for (int i = 0; i < OBJECT_COUNT; i++) {
+				frame.queue.addArrays(RenderQueue.sortKey(0, program, 0, vertexArray, i),
+						program, vertexArray, 0, GL_TRIANGLES, 0, 3);
+			}
+			frame.queue.sort();
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	// Helper Method
+	private class Renderer implements FrameConsumer<Frame> {
+		final List<Long> frameNumbers = new ArrayList<Long>();
+
+		@Override
+		public void render(Frame frame) {
+			frameNumbers.add(frame.number);
+			frame.queue.submit(device);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	// Helper Method
+	private FramePipeline<Frame> createPipeline(long failAtFrame) {
+		return new FramePipeline<Frame>(new Frame(), new Frame(), new Frame(),
+				new Simulation(failAtFrame));
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_everyFrameRenderedOnceInOrder() {
+		pipeline = createPipeline(-1);
+		Renderer renderer = new Renderer();
+		pipeline.start();
+
+		for (int i = 0; i < 500; i++) {
+			assertTrue(pipeline.renderFrame(renderer));
+		}
+
+		for (int i = 0; i < 500; i++) {
+			assertEquals(i, renderer.frameNumbers.get(i).longValue());
+		}
+		assertEquals(500 * OBJECT_COUNT, device.getDrawCallCount());
+		assertEquals(500, pipeline.getRenderedFrameCount());
+		assertTrue(pipeline.getUpdatedFrameCount() >= 500);
+		assertTrue(pipeline.getUpdatedFrameCount() <= 502);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_stageTimesAccumulated() {
+		pipeline = createPipeline(-1);
+		Renderer renderer = new Renderer();
+		pipeline.start();
+
+		for (int i = 0; i < 100; i++) {
+			pipeline.renderFrame(renderer);
+		}
+		pipeline.stop();
+
+		assertTrue(pipeline.getUpdateNanos() > 0);
+		assertTrue(pipeline.getRenderNanos() > 0);
+		assertTrue(pipeline.getUpdateNanos() + pipeline.getUpdateWaitNanos()
+				<= pipeline.getElapsedNanos());
+		assertTrue(pipeline.getOverlap() >= 0 && pipeline.getOverlap() <= 1);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_failedUpdate_rethrownOnRenderThread() {
+		pipeline = createPipeline(3);
+		Renderer renderer = new Renderer();
+		pipeline.start();
+
+		try {
+			for (int i = 0; i < 10; i++) {
+				pipeline.renderFrame(renderer);
+			}
+			fail("Expected a RuntimeException.");
+		}
+		catch (RuntimeException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+		assertEquals(3, renderer.frameNumbers.size());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_stop_endsRendering() {
+		pipeline = createPipeline(-1);
+		Renderer renderer = new Renderer();
+		pipeline.start();
+		pipeline.renderFrame(renderer);
+
+		pipeline.stop();
+
+		// At most the frame published before stopping is still rendered.
+		int rendered = 0;
+		while (pipeline.renderFrame(renderer)) {
+			rendered++;
+		}
+		assertTrue(rendered <= 1);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test(expected = IllegalStateException.class)
+	public void test_renderBeforeStart() {
+		pipeline = createPipeline(-1);
+		pipeline.renderFrame(new Renderer());
+	}
+}
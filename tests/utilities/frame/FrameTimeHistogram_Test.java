@@ -0,0 +1,101 @@
+package utilities.frame;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import util.frame.FrameTimeHistogram;
+
+public class FrameTimeHistogram_Test {
+	private FrameTimeHistogram histogram;
+
+	@Before
+	public void setUp() {
+		histogram = new FrameTimeHistogram();
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_empty() {
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMin());
+		assertEquals(0, histogram.getMax());
+		assertEquals(0.0, histogram.getMean(), 0.0);
+		assertEquals(0, histogram.getValueAtPercentile(99));
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_smallValuesExact() {
+		for (int i = 1; i <= 100; i++) {
+			histogram.record(i);
+		}
+
+		assertEquals(50, histogram.getValueAtPercentile(50));
+		assertEquals(99, histogram.getValueAtPercentile(99));
+		assertEquals(100, histogram.getValueAtPercentile(100));
+		assertEquals(1, histogram.getValueAtPercentile(0));
+		assertEquals(50.5, histogram.getMean(), 1e-9);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_percentiles_withinRelativeError() {
+		Random random = new Random(3);
+		long[] values = new long[100000];
+		for (int i = 0; i < values.length; i++) {
+			// Mostly 16.6 ms frames, with a long tail of hitches.
+			values[i] = 16600000 + (long) (random.nextGaussian() * 300000);
+			if (random.nextInt(500) == 0) {
+				values[i] = 30000000 + random.nextInt(50000000);
+			}
+			histogram.record(values[i]);
+		}
+		Arrays.sort(values);
+
+		for (double percentile : new double[] {50, 90, 99, 99.9, 99.99}) {
+			long expected = values[(int) Math.ceil(percentile / 100 * values.length) - 1];
+			long actual = histogram.getValueAtPercentile(percentile);
+			assertEquals("p" + percentile, expected, actual, expected / 128.0);
+		}
+		assertEquals(values[0], histogram.getMin());
+		assertEquals(values[values.length - 1], histogram.getMax());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_extremeValues() {
+		histogram.record(0);
+		histogram.record(Long.MAX_VALUE);
+
+		assertEquals(0, histogram.getValueAtPercentile(50));
+		assertEquals(Long.MAX_VALUE, histogram.getValueAtPercentile(100));
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_addAndReset() {
+		FrameTimeHistogram other = new FrameTimeHistogram();
+		histogram.record(1000);
+		other.record(3000);
+
+		histogram.add(other);
+		assertEquals(2, histogram.getCount());
+		assertEquals(1000, histogram.getMin());
+		assertEquals(3000, histogram.getMax());
+
+		histogram.reset();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMax());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test(expected = IllegalArgumentException.class)
+	public void test_negativeValue() {
+		histogram.record(-1);
+	}
+}
@@ -0,0 +1,198 @@
+package utilities.frame;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import util.frame.Clock;
+import util.frame.GameLoop;
+import util.frame.GameLoopListener;
+
+public class GameLoop_Test {
+	private static final long STEP = 10;
+	private static final double DELTA = 1e-9;
+
+	private FakeClock clock;
+	private GameLoop loop;
+	private Recorder recorder;
+
+	@Before
+	public void setUp() {
+		clock = new FakeClock();
+		clock.now = 5000000000L;
+		loop = new GameLoop(clock, STEP);
+		recorder = new Recorder();
+	}
+
+	//--------------------------------------------------------------------------
+	// Helper Method
+	// A clock that only advances when told to.
+	private static class FakeClock implements Clock {
+		long now;
+		long sleptNanos;
+
+		@Override
+		public long nanoTime() {
+			return now;
+		}
+
+		@Override
+		public void sleep(long nanos) {
+			now += nanos;
+			sleptNanos += nanos;
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	// Helper Method
+	// Records steps and alphas, and optionally takes time to render.
+	private class Recorder implements GameLoopListener {
+		int steps;
+		long renderNanos;
+		final List<Double> alphas = new ArrayList<Double>();
+
+		@Override
+		public void update(long stepNanos) {
+			assertEquals(STEP, stepNanos);
+			steps++;
+		}
+
+		@Override
+		public void render(double alpha) {
+			alphas.add(alpha);
+			clock.now += renderNanos;
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	// Helper Method
+	private void runFrameAfter(long nanos) {
+		clock.now += nanos;
+		loop.runFrame(recorder);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_firstFrame_oneStepAndNoDelta() {
+		loop.runFrame(recorder);
+
+		assertEquals(1, recorder.steps);
+		assertEquals(0, loop.getLastFrameNanos());
+		assertEquals(0, loop.getElapsedNanos());
+		assertEquals(0.0, loop.getAlpha(), DELTA);
+		assertEquals(0, loop.getFrameTimeHistogram().getCount());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_fixedSteps_independentOfFrameRate() {
+		loop.runFrame(recorder);
+
+		// 25 units: two steps, and half a step left over.
+		runFrameAfter(25);
+		assertEquals(3, recorder.steps);
+		assertEquals(0.5, loop.getAlpha(), DELTA);
+
+		// 3 units: no step, the remainder grows.
+		runFrameAfter(3);
+		assertEquals(3, recorder.steps);
+		assertEquals(0.8, loop.getAlpha(), DELTA);
+
+		// 2 units complete a step.
+		runFrameAfter(2);
+		assertEquals(4, recorder.steps);
+		assertEquals(0.0, loop.getAlpha(), DELTA);
+
+		assertEquals(30, loop.getElapsedNanos());
+		assertEquals(4, loop.getFrameCount());
+		assertEquals(1 + loop.getElapsedNanos() / STEP, loop.getStepCount());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_longFrame_excessTimeDropped() {
+		loop.setMaxStepsPerFrame(4);
+		loop.runFrame(recorder);
+
+		runFrameAfter(100 + 5);
+
+		assertEquals(1 + 4, recorder.steps);
+		assertEquals(60, loop.getDroppedNanos());
+		assertEquals(0.5, loop.getAlpha(), DELTA);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_elapsedTime_keepsPrecision() {
+		loop.runFrame(recorder);
+		// Over a hundred days of uptime, in nanoseconds.
+		long uptime = 100L * 24 * 3600 * 1000000000L;
+
+		runFrameAfter(uptime);
+		runFrameAfter(1);
+
+		assertEquals(uptime + 1, loop.getElapsedNanos());
+		assertEquals(1, loop.getLastFrameNanos());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_frameRateLimit_sleepsUntilNextFrame() {
+		loop.setFrameRateLimit(100);
+		long frameNanos = 10000000;
+		recorder.renderNanos = 4000000;
+
+		for (int i = 0; i < 10; i++) {
+			loop.runFrame(recorder);
+		}
+
+		assertEquals(9 * frameNanos, loop.getElapsedNanos());
+		assertEquals(10 * (frameNanos - recorder.renderNanos), clock.sleptNanos);
+		assertEquals(frameNanos, loop.getFrameTimeHistogram().getValueAtPercentile(99.9));
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_frameRateLimit_slowFrameStartsNewCadence() {
+		loop.setFrameRateLimit(100);
+		long frameNanos = 10000000;
+		loop.runFrame(recorder);
+		clock.now += 3 * frameNanos;
+		loop.runFrame(recorder);
+		long afterSlowFrame = clock.now;
+
+		loop.runFrame(recorder);
+
+		// The next frame is a whole frame later, not several short ones.
+		assertEquals(frameNanos, clock.now - afterSlowFrame);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_run_untilStopped() {
+		GameLoopListener stopAfterFive = new GameLoopListener() {
+			int frames;
+
+			@Override
+			public void update(long stepNanos) {
+			}
+
+			@Override
+			public void render(double alpha) {
+				clock.now += 7;
+				if (++frames == 5) {
+					loop.stop();
+				}
+			}
+		};
+
+		loop.run(stopAfterFive);
+
+		assertEquals(5, loop.getFrameCount());
+		assertEquals(4, loop.getFrameTimeHistogram().getCount());
+	}
+}
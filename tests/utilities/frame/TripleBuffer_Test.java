@@ -0,0 +1,118 @@
+package utilities.frame;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import util.frame.TripleBuffer;
+
+public class TripleBuffer_Test {
+	private long[] first;
+	private long[] second;
+	private long[] third;
+	private TripleBuffer<long[]> buffer;
+
+	@Before
+	public void setUp() {
+		first = new long[1];
+		second = new long[1];
+		third = new long[1];
+		buffer = new TripleBuffer<long[]>(first, second, third);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_acquire_nothingPublished() {
+		assertFalse(buffer.hasUnconsumedFrame());
+		assertFalse(buffer.acquire());
+		assertSame(second, buffer.getReadBuffer());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_publishThenAcquire() {
+		buffer.getWriteBuffer()[0] = 42;
+		buffer.publish();
+
+		assertTrue(buffer.hasUnconsumedFrame());
+		assertTrue(buffer.acquire());
+		assertEquals(42, buffer.getReadBuffer()[0]);
+		assertFalse(buffer.hasUnconsumedFrame());
+
+		// The same frame is not acquired twice.
+		assertFalse(buffer.acquire());
+		assertEquals(42, buffer.getReadBuffer()[0]);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_threeBuffersNeverShared() {
+		for (int i = 0; i < 10; i++) {
+			buffer.publish();
+			if (i % 3 == 0) {
+				buffer.acquire();
+			}
+			assertNotSame(buffer.getWriteBuffer(), buffer.getReadBuffer());
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_unconsumedFrameDropped() {
+		buffer.getWriteBuffer()[0] = 1;
+		buffer.publish();
+		buffer.getWriteBuffer()[0] = 2;
+		buffer.publish();
+
+		assertEquals(1, buffer.getDroppedCount());
+		assertTrue(buffer.acquire());
+		assertEquals(2, buffer.getReadBuffer()[0]);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test(expected = IllegalArgumentException.class)
+	public void test_sharedBuffersRejected() {
+		new TripleBuffer<long[]>(first, first, third);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_concurrentHandOff_framesArriveInOrderAndWhole() throws Exception {
+		final int frameCount = 200000;
+		final long[][] buffers = {new long[64], new long[64], new long[64]};
+		final TripleBuffer<long[]> frames = new TripleBuffer<long[]>(buffers[0], buffers[1],
+				buffers[2]);
+
+		Thread producer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				for (int i = 1; i <= frameCount; i++) {
+					long[] frame = frames.getWriteBuffer();
+					for (int j = 0; j < frame.length; j++) {
+						frame[j] = i;
+					}
+					frames.publish();
+				}
+			}
+		});
+		producer.start();
+
+		long last = 0;
+		while (last < frameCount) {
+			if (frames.acquire()) {
+				long[] frame = frames.getReadBuffer();
+				long number = frame[0];
+				for (int j = 1; j < frame.length; j++) {
+					assertEquals("Torn frame.", number, frame[j]);
+				}
+				assertTrue(number > last);
+				last = number;
+			}
+			else {
+				Thread.yield();
+			}
+		}
+		producer.join();
+	}
+}
@@ -0,0 +1,145 @@
+package utilities.graphics;
+
+import static org.junit.Assert.*;
+import static org.lwjgl.opengl.GL11.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import util.graphics.GLErrorChecker;
+import util.graphics.GLErrorException;
+import util.graphics.GLErrorListener;
+import util.graphics.HeadlessGraphicsDevice;
+import util.graphics.HeadlessGraphicsDevice.Command;
+
+public class GLErrorChecker_Test {
+	private HeadlessGraphicsDevice device;
+	private GLErrorChecker checker;
+	private List<String> reported;
+
+	@Before
+	public void setUp() {
+		device = new HeadlessGraphicsDevice();
+		checker = new GLErrorChecker();
+		reported = new ArrayList<String>();
+		checker.setListener(new GLErrorListener() {
+			@Override
+			public void onGLError(int error, String context) {
+				reported.add(GLErrorChecker.errorName(error) + " " + context);
+			}
+		});
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_mark_doesNotReadErrors() {
+		for (int i = 0; i < 100; i++) {
+			checker.mark(device, "draw " + i);
+		}
+		assertEquals(0, device.getCallCount(Command.GET_ERROR));
+
+		assertEquals(0, checker.check(device));
+		assertEquals(1, device.getCallCount(Command.GET_ERROR));
+		assertEquals(1, checker.getCheckCount());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_check_throwsWithMarkedOperations() {
+		checker.mark(device, "setupShaders");
+		checker.mark(device, "renderCycle");
+		device.raiseError(GL_INVALID_OPERATION);
+
+		try {
+			checker.check(device);
+			fail("Expected a GLErrorException.");
+		}
+		catch (GLErrorException e) {
+			assertEquals(GL_INVALID_OPERATION, e.getError());
+			assertEquals("GL_INVALID_OPERATION after one of: setupShaders, renderCycle.",
+					e.getMessage());
+		}
+
+		// Marks are forgotten after a check.
+		device.raiseError(GL_INVALID_VALUE);
+		checker.setThrowOnError(false);
+		checker.check(device);
+		assertEquals("GL_INVALID_VALUE with no operation marked since the last check",
+				reported.get(1));
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_check_drainsAndClassifiesEveryError() {
+		checker.setThrowOnError(false);
+		device.raiseError(GL_INVALID_ENUM);
+		device.raiseError(GL_OUT_OF_MEMORY);
+		device.raiseError(0x9999);
+
+		assertEquals(3, checker.check(device));
+		assertEquals(3, reported.size());
+		assertEquals(3, checker.getErrorCount());
+		assertEquals(1, checker.getErrorCount(GL_INVALID_ENUM));
+		assertEquals(1, checker.getErrorCount(GL_OUT_OF_MEMORY));
+		assertEquals(0, checker.getErrorCount(GL_INVALID_VALUE));
+		assertEquals(1, checker.getErrorCount(0x9999));
+		assertEquals(0, checker.check(device));
+
+		checker.resetCounters();
+		assertEquals(0, checker.getErrorCount());
+		assertEquals(0, checker.getErrorCount(GL_INVALID_ENUM));
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_check_messageCountsFurtherErrors() {
+		device.raiseError(GL_INVALID_ENUM);
+		device.raiseError(GL_INVALID_VALUE);
+
+		try {
+			checker.check(device);
+			fail("Expected a GLErrorException.");
+		}
+		catch (GLErrorException e) {
+			assertTrue(e.getMessage().endsWith(", and 1 more errors."));
+		}
+		assertEquals(2, reported.size());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_synchronous_checksAtEveryMark() {
+		checker.setSynchronous(true);
+		checker.mark(device, "first");
+		device.raiseError(GL_INVALID_VALUE);
+
+		try {
+			checker.mark(device, "second");
+			fail("Expected a GLErrorException.");
+		}
+		catch (GLErrorException e) {
+			assertEquals("GL_INVALID_VALUE after one of: second.", e.getMessage());
+		}
+		// One read for the first mark, two to drain the error at the second.
+		assertEquals(3, device.getCallCount(Command.GET_ERROR));
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_manyMarks_onlyRecentNamed() {
+		checker.setThrowOnError(false);
+		for (int i = 0; i < 20; i++) {
+			checker.mark(device, "op" + i);
+		}
+		device.raiseError(GL_INVALID_ENUM);
+
+		checker.check(device);
+
+		String context = reported.get(0);
+		assertTrue(context.contains("after one of: 4 earlier operations, op4, op5"));
+		assertTrue(context.endsWith("op19"));
+	}
+}
@@ -0,0 +1,254 @@
+package utilities.graphics;
+
+import static org.junit.Assert.*;
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL13.GL_TEXTURE0;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.GL_LINK_STATUS;
+import static org.lwjgl.opengl.GL41.*;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.lwjgl.BufferUtils;
+
+import util.TextureUtils;
+import util.asset.ShaderProgramLoader;
+import util.graphics.HeadlessGraphicsDevice;
+import util.graphics.HeadlessGraphicsDevice.Command;
+import util.shader.ShaderPreprocessor;
+import util.shader.ShaderProgramCache;
+import util.shader.ShaderSource;
+import util.texture.TextureData;
+
+public class HeadlessGraphicsDevice_Test {
+	private HeadlessGraphicsDevice device;
+
+	@Before
+	public void setUp() {
+		device = new HeadlessGraphicsDevice();
+	}
+
+	//--------------------------------------------------------------------------
+	// Helper Method
+	// Creates a vertex array with a position buffer and an index buffer, and
+	// leaves it bound.
+	private int createMesh(int vertexCount, int indexCount) {
+		int vertexArray = device.createVertexArray();
+		device.bindVertexArray(vertexArray);
+
+		int positions = device.createBuffer();
+		device.bindBuffer(GL_ARRAY_BUFFER, positions);
+		device.bufferData(GL_ARRAY_BUFFER, BufferUtils.createFloatBuffer(3 * vertexCount),
+				GL_STATIC_DRAW);
+		device.enableVertexAttribArray(0);
+		device.vertexAttribPointer(0, 3, GL_FLOAT, false, 0, 0);
+
+		int indices = device.createBuffer();
+		device.bindBuffer(GL_ELEMENT_ARRAY_BUFFER, indices);
+		device.bufferData(GL_ELEMENT_ARRAY_BUFFER, BufferUtils.createByteBuffer(indexCount),
+				GL_STATIC_DRAW);
+
+		return vertexArray;
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_frameCounters() {
+		int vertexArray = createMesh(24, 36);
+		int program = device.createProgram();
+		FloatBuffer matrix = BufferUtils.createFloatBuffer(16);
+		device.resetCounters();
+
+		device.clear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
+		device.useProgram(program);
+		device.bindVertexArray(vertexArray);
+		for (int i = 0; i < 10; i++) {
+			device.uniformMatrix4(0, false, matrix);
+			device.drawElements(GL_TRIANGLES, 36, GL_UNSIGNED_BYTE, 0);
+		}
+		device.drawElementsInstanced(GL_TRIANGLES, 36, GL_UNSIGNED_BYTE, 0, 100);
+
+		assertEquals(24, device.getCallCount());
+		assertEquals(10, device.getCallCount(Command.DRAW_ELEMENTS));
+		assertEquals(11, device.getDrawCallCount());
+		assertEquals(36 * 10 + 36 * 100, device.getDrawnVertexCount());
+		assertEquals(10 * 16 * 4, device.getUploadedBytes());
+		assertEquals(1, device.getRedundantBindCount());
+
+		device.resetCounters();
+		assertEquals(0, device.getCallCount());
+		assertEquals(0, device.getCallCount(Command.DRAW_ELEMENTS));
+		assertEquals(0, device.getDrawCallCount());
+		assertEquals(0, device.getUploadedBytes());
+		assertEquals(program, device.getCurrentProgram());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_bufferUploadBytes() {
+		createMesh(10, 6);
+
+		assertEquals(10 * 3 * 4 + 6, device.getUploadedBytes());
+
+		device.bufferSubData(GL_ELEMENT_ARRAY_BUFFER, 2, BufferUtils.createByteBuffer(4));
+		device.bufferData(GL_ARRAY_BUFFER, 1024, GL_DYNAMIC_DRAW);
+
+		assertEquals(10 * 3 * 4 + 6 + 4, device.getUploadedBytes());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_liveObjects() {
+		int buffer = device.createBuffer();
+		int texture = device.createTexture();
+		int program = device.createProgram();
+		assertEquals(3, device.getLiveObjectCount());
+		assertFalse(buffer == texture || texture == program);
+
+		device.deleteBuffer(buffer);
+		device.deleteTexture(texture);
+		device.deleteProgram(program);
+		device.deleteBuffer(0);
+
+		assertEquals(0, device.getLiveObjectCount());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test(expected = IllegalArgumentException.class)
+	public void test_bindDeletedBuffer() {
+		int buffer = device.createBuffer();
+		device.deleteBuffer(buffer);
+
+		device.bindBuffer(GL_ARRAY_BUFFER, buffer);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test(expected = IllegalArgumentException.class)
+	public void test_bindObjectOfWrongKind() {
+		int texture = device.createTexture();
+
+		device.useProgram(texture);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test(expected = IllegalStateException.class)
+	public void test_drawWithoutProgram() {
+		createMesh(3, 3);
+
+		device.drawArrays(GL_TRIANGLES, 0, 3);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_elementBufferIsVertexArrayState() {
+		int program = device.createProgram();
+		device.useProgram(program);
+		createMesh(3, 3);
+
+		// A second vertex array has no element buffer of its own.
+		device.bindVertexArray(device.createVertexArray());
+		device.drawArrays(GL_TRIANGLES, 0, 3);
+		try {
+			device.drawElements(GL_TRIANGLES, 3, GL_UNSIGNED_BYTE, 0);
+			fail("Expected an IllegalStateException.");
+		}
+		catch (IllegalStateException e) {
+			// Expected.
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_recording() {
+		device.setRecording(true);
+		int texture = device.createTexture();
+		device.activeTexture(GL_TEXTURE0);
+		device.bindTexture(GL_TEXTURE_2D, texture);
+
+		assertEquals(Arrays.asList(Command.CREATE_TEXTURE, Command.ACTIVE_TEXTURE,
+				Command.BIND_TEXTURE), device.getRecordedCommands());
+
+		device.resetCounters();
+		assertTrue(device.getRecordedCommands().isEmpty());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_programBinary_roundTrip() {
+		int program = device.createProgram();
+		device.programParameteri(program, GL_PROGRAM_BINARY_RETRIEVABLE_HINT, GL_TRUE);
+		device.linkProgram(program);
+
+		int length = device.getProgrami(program, GL_PROGRAM_BINARY_LENGTH);
+		assertTrue(length > 0);
+		IntBuffer lengthBuffer = BufferUtils.createIntBuffer(1);
+		IntBuffer formatBuffer = BufferUtils.createIntBuffer(1);
+		ByteBuffer binary = BufferUtils.createByteBuffer(length);
+		device.getProgramBinary(program, lengthBuffer, formatBuffer, binary);
+		assertEquals(length, lengthBuffer.get(0));
+
+		int restored = device.createProgram();
+		device.programBinary(restored, formatBuffer.get(0), binary);
+		assertEquals(GL_TRUE, device.getProgrami(restored, GL_LINK_STATUS));
+		assertEquals(1, device.getCallCount(Command.PROGRAM_PARAMETER));
+		assertEquals(1, device.getCallCount(Command.GET_PROGRAM_BINARY));
+		assertEquals(1, device.getCallCount(Command.PROGRAM_BINARY));
+	}
+
+	//--------------------------------------------------------------------------
+	@Test(expected = IllegalStateException.class)
+	public void test_programBinary_unsupported() {
+		device.setProgramBinariesSupported(false);
+		assertFalse(device.supportsProgramBinaries());
+
+		device.programParameteri(device.createProgram(),
+				GL_PROGRAM_BINARY_RETRIEVABLE_HINT, GL_TRUE);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_uploadTexture() {
+		TextureData data = new TextureData("test", 8, 4,
+				BufferUtils.createByteBuffer(8 * 4 * TextureData.BYTES_PER_PIXEL), null);
+
+		int texture = TextureUtils.uploadTexture(device, data, GL_TEXTURE0);
+
+		assertTrue(texture != 0);
+		assertEquals(1, device.getLiveObjectCount());
+		assertEquals(1, device.getCallCount(Command.TEX_IMAGE));
+		assertEquals(8 * 4 * TextureData.BYTES_PER_PIXEL, device.getUploadedBytes());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_shaderProgramLoader() throws Exception {
+		ShaderProgramLoader loader = new ShaderProgramLoader(
+				new ShaderProgramCache(device, null),
+				new ShaderPreprocessor(),
+				"src/perspectiveBox/shaders/PosColorWorldTransform.vert",
+				"src/perspectiveBox/shaders/ColorPassthrough.frag",
+				Collections.<String, String>emptyMap());
+
+		ShaderSource[] sources = loader.read();
+		Integer program = loader.install(sources);
+
+		// The cache keeps the program and its shaders.
+		assertEquals(3, device.getLiveObjectCount());
+		assertEquals(2, device.getCallCount(Command.COMPILE_SHADER));
+		assertEquals(1, device.getCallCount(Command.LINK_PROGRAM));
+
+		// Unchanged sources are not built again, and return the installed
+		// instance so that AssetWatcher does not dispose it.
+		assertSame(program, loader.install(loader.read()));
+		assertEquals(1, device.getCallCount(Command.LINK_PROGRAM));
+
+		loader.dispose(program);
+		assertEquals(0, device.getLiveObjectCount());
+	}
+}
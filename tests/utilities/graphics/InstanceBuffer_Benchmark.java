@@ -0,0 +1,144 @@
+package utilities.graphics;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL15.*;
+
+import java.nio.FloatBuffer;
+import java.util.Random;
+
+import org.lwjgl.BufferUtils;
+
+import util.graphics.HeadlessGraphicsDevice;
+import util.graphics.InstanceBuffer;
+import util.math.Matrix4Batch;
+import util.math.QuaternionBatch;
+import utilities.benchmark.BenchmarkRunner;
+import utilities.benchmark.BenchmarkTask;
+import utilities.benchmark.Blackhole;
+
+/**
+ * Submission rate, in instances per second, of drawing many copies of one
+ * mesh with a uniform upload and a draw call per copy, as
+ * {@link perspectiveBox.PerspectiveBox} does, versus packing the copies into
+ * an {@link InstanceBuffer} and issuing one instanced draw. Each frame starts
+ * from a translation, rotation and scale per copy. Everything draws to a
+ * {@link HeadlessGraphicsDevice}, so the scores measure the CPU side only.
+ *
+ * Usage: <code>InstanceBuffer_Benchmark [resultsFile.json]</code>
+ *
+ * @author Dustin Biser
+ *
+ */
+public class InstanceBuffer_Benchmark {
+	private static final int[] BATCH_SIZES = {1000, 100000};
+	private static final int INDEX_COUNT = 36;
+
+	//--------------------------------------------------------------------------
+	private static abstract class InstancingTask extends BenchmarkTask {
+		protected HeadlessGraphicsDevice device;
+		protected float[] translations;
+		protected float[] scales;
+		protected QuaternionBatch rotations;
+		protected Matrix4Batch matrices;
+
+		@Override
+		public void setup(int batchSize) {
+			device = new HeadlessGraphicsDevice();
+			device.useProgram(device.createProgram());
+			device.bindVertexArray(device.createVertexArray());
+			device.bindBuffer(GL_ELEMENT_ARRAY_BUFFER, device.createBuffer());
+
+			Random random = new Random(batchSize);
+			translations = new float[3 * batchSize];
+			scales = new float[3 * batchSize];
+			rotations = new QuaternionBatch(batchSize);
+			for (int i = 0; i < 3 * batchSize; i++) {
+				translations[i] = random.nextFloat() * 100f;
+				scales[i] = random.nextFloat() + 0.5f;
+			}
+			for (int i = 0; i < batchSize; i++) {
+				rotations.set(i, random.nextFloat() - 0.5f, random.nextFloat() - 0.5f,
+						random.nextFloat() - 0.5f, random.nextFloat() - 0.5f);
+			}
+			rotations.normalize(0, batchSize);
+			matrices = new Matrix4Batch(batchSize);
+		}
+
+		@Override
+		public void teardown() {
+			device = null;
+			translations = scales = null;
+			rotations = null;
+			matrices = null;
+		}
+
+		@Override
+		public String unit() {
+			return "instances/s";
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private static class InstancedTask extends InstancingTask {
+		private final InstanceBuffer.Layout layout;
+		private InstanceBuffer instances;
+
+		InstancedTask(InstanceBuffer.Layout layout) {
+			this.layout = layout;
+		}
+
+		@Override
+		public void setup(int batchSize) {
+			super.setup(batchSize);
+			instances = new InstanceBuffer(device, layout, batchSize);
+			instances.bindAttributes(2);
+		}
+
+		@Override
+		public void run(Blackhole blackhole) {
+			int count = getBatchSize();
+			instances.clear();
+			if (layout == InstanceBuffer.Layout.MATRIX) {
+				matrices.composeTRS(0, count, translations, 0, rotations, 0, scales, 0);
+				instances.addMatrices(matrices, 0, count);
+			}
+			else {
+				instances.addTRS(translations, 0, rotations, 0, scales, 0, count);
+			}
+			instances.upload();
+			instances.drawElements(GL_TRIANGLES, INDEX_COUNT, GL_UNSIGNED_BYTE, 0);
+			blackhole.consume(device.getDrawCallCount());
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	public static void main(String args[]) {
+		BenchmarkRunner runner = new BenchmarkRunner("InstanceBuffer");
+
+		runner.add("draw_per_object", BATCH_SIZES, new InstancingTask() {
+			private final FloatBuffer matrixBuffer = BufferUtils.createFloatBuffer(16);
+
+			@Override
+			public void run(Blackhole blackhole) {
+				int count = getBatchSize();
+				matrices.composeTRS(0, count, translations, 0, rotations, 0, scales, 0);
+				for (int i = 0; i < count; i++) {
+					matrixBuffer.clear();
+					matrices.store(i, 1, matrixBuffer);
+					matrixBuffer.flip();
+					device.uniformMatrix4(0, false, matrixBuffer);
+					device.drawElements(GL_TRIANGLES, INDEX_COUNT, GL_UNSIGNED_BYTE, 0);
+				}
+				blackhole.consume(device.getDrawCallCount());
+			}
+		});
+
+		runner.add("instanced_matrix", BATCH_SIZES,
+				new InstancedTask(InstanceBuffer.Layout.MATRIX));
+
+		runner.add("instanced_trs", BATCH_SIZES,
+				new InstancedTask(InstanceBuffer.Layout.TRS));
+
+		runner.runAndWrite(args);
+	}
+}
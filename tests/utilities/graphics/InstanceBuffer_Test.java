@@ -0,0 +1,186 @@
+package utilities.graphics;
+
+import static org.junit.Assert.*;
+import static org.lwjgl.opengl.GL11.*;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.lwjgl.util.vector.Matrix4f;
+import org.lwjgl.util.vector.Vector3f;
+
+import util.graphics.HeadlessGraphicsDevice;
+import util.graphics.HeadlessGraphicsDevice.Command;
+import util.graphics.InstanceBuffer;
+import util.graphics.InstanceBuffer.Layout;
+import util.math.Matrix4Batch;
+import util.math.Quaternion;
+import util.math.QuaternionBatch;
+
+public class InstanceBuffer_Test {
+	private static final int INSTANCE_COUNT = 100000;
+
+	private HeadlessGraphicsDevice device;
+
+	@Before
+	public void setUp() {
+		device = new HeadlessGraphicsDevice();
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_matrices_oneInstancedDraw() {
+		Matrix4Batch matrices = new Matrix4Batch(INSTANCE_COUNT);
+		matrices.setIdentity(0, INSTANCE_COUNT);
+		InstanceBuffer instances = new InstanceBuffer(device, Layout.MATRIX);
+		int program = device.createProgram();
+		int vertexArray = device.createVertexArray();
+		device.useProgram(program);
+		device.bindVertexArray(vertexArray);
+		instances.bindAttributes(2);
+		device.resetCounters();
+
+		instances.clear();
+		instances.addMatrices(matrices, 0, INSTANCE_COUNT);
+		instances.upload();
+		instances.drawArrays(GL_TRIANGLES, 0, 36);
+
+		assertEquals(INSTANCE_COUNT, instances.size());
+		assertEquals(1, device.getDrawCallCount());
+		assertEquals(0, device.getCallCount(Command.UNIFORM_MATRIX));
+		assertEquals(36L * INSTANCE_COUNT, device.getDrawnVertexCount());
+		assertEquals(64L * INSTANCE_COUNT, device.getUploadedBytes());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_bindAttributes_oneLocationPerColumn() {
+		device.bindVertexArray(device.createVertexArray());
+		InstanceBuffer matrixInstances = new InstanceBuffer(device, Layout.MATRIX);
+		InstanceBuffer trsInstances = new InstanceBuffer(device, Layout.TRS);
+		device.resetCounters();
+
+		matrixInstances.bindAttributes(2);
+		assertEquals(4, device.getCallCount(Command.VERTEX_ATTRIB_POINTER));
+		assertEquals(4, device.getCallCount(Command.VERTEX_ATTRIB_DIVISOR));
+		assertEquals(4, device.getCallCount(Command.ENABLE_VERTEX_ATTRIB_ARRAY));
+
+		device.resetCounters();
+		trsInstances.bindAttributes(2);
+		assertEquals(3, device.getCallCount(Command.VERTEX_ATTRIB_DIVISOR));
+		assertEquals(10, Layout.TRS.getFloatsPerInstance());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_packedData() {
+		Matrix4f matrix = new Matrix4f();
+		matrix.translate(new Vector3f(1f, 2f, 3f));
+		matrix.m01 = 0.5f;
+		Matrix4Batch matrices = new Matrix4Batch(2);
+		matrices.set(1, matrix);
+
+		InstanceBuffer instances = new InstanceBuffer(device, Layout.MATRIX, 1);
+		instances.addMatrix(matrix);
+		instances.addMatrices(matrices, 1, 1);
+
+		float[] packed = new float[16];
+		for (int i = 0; i < 2; i++) {
+			instances.getInstance(i, packed, 0);
+			for (int j = 0; j < 16; j++) {
+				assertEquals(matrices.m[16 + j], packed[j], 0f);
+			}
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_packedTRS() {
+		QuaternionBatch rotations = new QuaternionBatch(2);
+		rotations.set(1, 0.1f, 0.2f, 0.3f, 0.9f);
+		float[] translations = {0, 0, 0, 4f, 5f, 6f};
+		float[] scales = {1, 1, 1, 7f, 8f, 9f};
+
+		InstanceBuffer instances = new InstanceBuffer(device, Layout.TRS);
+		instances.addTRS(translations, 3, rotations, 1, scales, 3, 1);
+		instances.addTRS(translations, 3, rotations, 1, null, 0, 1);
+		instances.addTRS(4f, 5f, 6f, new Quaternion(0.1f, 0.2f, 0.3f, 0.9f), 7f, 8f, 9f);
+
+		float[] packed = new float[10];
+		instances.getInstance(0, packed, 0);
+		assertArrayEquals(new float[] {4f, 5f, 6f, 0.1f, 0.2f, 0.3f, 0.9f, 7f, 8f, 9f},
+				packed, 0f);
+		instances.getInstance(1, packed, 0);
+		assertArrayEquals(new float[] {4f, 5f, 6f, 0.1f, 0.2f, 0.3f, 0.9f, 1f, 1f, 1f},
+				packed, 0f);
+		instances.getInstance(2, packed, 0);
+		assertArrayEquals(new float[] {4f, 5f, 6f, 0.1f, 0.2f, 0.3f, 0.9f, 7f, 8f, 9f},
+				packed, 0f);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_steadyState_reusesStorage() {
+		float[] translations = new float[3 * INSTANCE_COUNT];
+		QuaternionBatch rotations = new QuaternionBatch(INSTANCE_COUNT);
+		InstanceBuffer instances = new InstanceBuffer(device, Layout.TRS);
+		int program = device.createProgram();
+		device.useProgram(program);
+		device.bindVertexArray(device.createVertexArray());
+
+		// The first frame grows the arrays to fit every instance.
+		instances.clear();
+		instances.addTRS(translations, 0, rotations, 0, null, 0, INSTANCE_COUNT);
+		instances.upload();
+		instances.drawArrays(GL_TRIANGLES, 0, 36);
+		int capacity = instances.capacity();
+		int bufferId = instances.getBufferId();
+		device.resetCounters();
+
+		// Later frames of the same size only refill and re-upload them.
+		final int frameCount = 10;
+		for (int frame = 0; frame < frameCount; frame++) {
+			instances.clear();
+			instances.addTRS(translations, 0, rotations, 0, null, 0, INSTANCE_COUNT);
+			instances.upload();
+			instances.drawArrays(GL_TRIANGLES, 0, 36);
+
+			assertEquals(capacity, instances.capacity());
+			assertEquals(bufferId, instances.getBufferId());
+		}
+
+		assertEquals(0, device.getCallCount(Command.CREATE_BUFFER));
+		assertEquals(frameCount, device.getCallCount(Command.BUFFER_DATA));
+		assertEquals((long) frameCount * INSTANCE_COUNT
+				* Layout.TRS.getFloatsPerInstance() * 4, device.getUploadedBytes());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_noInstances_noDraw() {
+		InstanceBuffer instances = new InstanceBuffer(device, Layout.MATRIX);
+		device.resetCounters();
+
+		instances.upload();
+		instances.drawElements(GL_TRIANGLES, 36, GL_UNSIGNED_BYTE, 0);
+
+		assertEquals(0, device.getDrawCallCount());
+		assertEquals(0, device.getCallCount(Command.BUFFER_SUB_DATA));
+	}
+
+	//--------------------------------------------------------------------------
+	@Test(expected = IllegalStateException.class)
+	public void test_wrongLayout() {
+		InstanceBuffer instances = new InstanceBuffer(device, Layout.TRS);
+		instances.addMatrix(new Matrix4f());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_dispose() {
+		InstanceBuffer instances = new InstanceBuffer(device, Layout.MATRIX);
+		assertEquals(1, device.getLiveObjectCount());
+
+		instances.dispose();
+		assertEquals(0, device.getLiveObjectCount());
+	}
+}
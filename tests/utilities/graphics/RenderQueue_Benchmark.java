@@ -0,0 +1,147 @@
+package utilities.graphics;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL13.GL_TEXTURE0;
+import static org.lwjgl.opengl.GL15.*;
+
+import java.util.Random;
+
+import org.lwjgl.BufferUtils;
+
+import util.graphics.HeadlessGraphicsDevice;
+import util.graphics.RenderQueue;
+import utilities.benchmark.BenchmarkRunner;
+import utilities.benchmark.BenchmarkTask;
+import utilities.benchmark.Blackhole;
+
+/**
+ * Submission rate, in objects per second, of drawing a scene object by object
+ * as {@link perspectiveBox.PerspectiveBox} used to, binding and unbinding a
+ * program, vertex array and texture around each draw, versus filling,
+ * sorting and submitting a {@link RenderQueue}. Both draw to a
+ * {@link HeadlessGraphicsDevice}, so the scores measure the CPU side of
+ * submission only. The state changes issued per frame by each approach are
+ * printed once per batch size, as they are what a driver would pay for.
+ *
+ * Usage: <code>RenderQueue_Benchmark [resultsFile.json]</code>
+ *
+ * @author Dustin Biser
+ *
+ */
+public class RenderQueue_Benchmark {
+	private static final int PROGRAM_COUNT = 8;
+	private static final int VERTEX_ARRAY_COUNT = 32;
+	private static final int TEXTURE_COUNT = 64;
+	private static final int INDEX_COUNT = 36;
+
+	//--------------------------------------------------------------------------
+	/**
+	 * A scene of <code>batchSize</code> objects, each using a random program,
+	 * vertex array and texture, in random order.
+	 */
+	private static abstract class SceneTask extends BenchmarkTask {
+		protected HeadlessGraphicsDevice device;
+		protected int[] objectPrograms;
+		protected int[] objectVertexArrays;
+		protected int[] objectTextures;
+		private final String name;
+
+		SceneTask(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public void setup(int batchSize) {
+			device = new HeadlessGraphicsDevice();
+			int[] programs = new int[PROGRAM_COUNT];
+			for (int i = 0; i < programs.length; i++) {
+				programs[i] = device.createProgram();
+			}
+			int[] vertexArrays = new int[VERTEX_ARRAY_COUNT];
+			for (int i = 0; i < vertexArrays.length; i++) {
+				vertexArrays[i] = device.createVertexArray();
+				device.bindVertexArray(vertexArrays[i]);
+				device.bindBuffer(GL_ELEMENT_ARRAY_BUFFER, device.createBuffer());
+				device.bufferData(GL_ELEMENT_ARRAY_BUFFER,
+						BufferUtils.createByteBuffer(INDEX_COUNT), GL_STATIC_DRAW);
+			}
+			device.bindVertexArray(0);
+			int[] textures = new int[TEXTURE_COUNT];
+			for (int i = 0; i < textures.length; i++) {
+				textures[i] = device.createTexture();
+			}
+
+			Random random = new Random(batchSize);
+			objectPrograms = new int[batchSize];
+			objectVertexArrays = new int[batchSize];
+			objectTextures = new int[batchSize];
+			for (int i = 0; i < batchSize; i++) {
+				objectPrograms[i] = programs[random.nextInt(PROGRAM_COUNT)];
+				objectVertexArrays[i] = vertexArrays[random.nextInt(VERTEX_ARRAY_COUNT)];
+				objectTextures[i] = textures[random.nextInt(TEXTURE_COUNT)];
+			}
+
+			// Draw one untimed frame to report its state changes.
+			device.resetCounters();
+			drawFrame();
+			System.out.println(name + " " + batchSize + " objects: "
+					+ (device.getCallCount(HeadlessGraphicsDevice.Command.USE_PROGRAM)
+					+ device.getCallCount(HeadlessGraphicsDevice.Command.BIND_VERTEX_ARRAY)
+					+ device.getCallCount(HeadlessGraphicsDevice.Command.BIND_TEXTURE))
+					+ " binds, " + device.getRedundantBindCount() + " redundant");
+		}
+
+		protected abstract void drawFrame();
+
+		@Override
+		public void run(Blackhole blackhole) {
+			device.resetCounters();
+			drawFrame();
+			blackhole.consume(device.getCallCount());
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	public static void main(String args[]) {
+		final int[] batchSizes = {1000, 10000};
+
+		BenchmarkRunner runner = new BenchmarkRunner("RenderQueue");
+
+		runner.add("per_object", batchSizes, new SceneTask("per_object") {
+			@Override
+			protected void drawFrame() {
+				for (int i = 0; i < objectPrograms.length; i++) {
+					device.useProgram(objectPrograms[i]);
+					device.bindVertexArray(objectVertexArrays[i]);
+					device.activeTexture(GL_TEXTURE0);
+					device.bindTexture(GL_TEXTURE_2D, objectTextures[i]);
+					device.drawElements(GL_TRIANGLES, INDEX_COUNT, GL_UNSIGNED_BYTE, 0);
+					device.bindTexture(GL_TEXTURE_2D, 0);
+					device.bindVertexArray(0);
+					device.useProgram(0);
+				}
+			}
+		});
+
+		runner.add("render_queue", batchSizes, new SceneTask("render_queue") {
+			private final RenderQueue queue = new RenderQueue();
+
+			@Override
+			protected void drawFrame() {
+				queue.clear();
+				for (int i = 0; i < objectPrograms.length; i++) {
+					int program = objectPrograms[i];
+					int vertexArray = objectVertexArrays[i];
+					int texture = objectTextures[i];
+					queue.add(RenderQueue.sortKey(0, program, texture, vertexArray, 0),
+							program, vertexArray, texture, GL_TRIANGLES, INDEX_COUNT,
+							GL_UNSIGNED_BYTE, 0);
+				}
+				queue.sort();
+				queue.submit(device);
+			}
+		});
+
+		runner.runAndWrite(args);
+	}
+}
@@ -0,0 +1,252 @@
+package utilities.graphics;
+
+import static org.junit.Assert.*;
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL15.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.util.vector.Matrix4f;
+
+import util.graphics.HeadlessGraphicsDevice;
+import util.graphics.HeadlessGraphicsDevice.Command;
+import util.graphics.RenderQueue;
+
+public class RenderQueue_Test {
+	private HeadlessGraphicsDevice device;
+	private RenderQueue queue;
+
+	@Before
+	public void setUp() {
+		device = new HeadlessGraphicsDevice();
+		queue = new RenderQueue(4);
+	}
+
+	//--------------------------------------------------------------------------
+	// Helper Method
+	private int[] createPrograms(int count) {
+		int[] programs = new int[count];
+		for (int i = 0; i < count; i++) {
+			programs[i] = device.createProgram();
+		}
+		return programs;
+	}
+
+	//--------------------------------------------------------------------------
+	// Helper Method
+	private int[] createVertexArrays(int count) {
+		int[] vertexArrays = new int[count];
+		for (int i = 0; i < count; i++) {
+			vertexArrays[i] = device.createVertexArray();
+		}
+		return vertexArrays;
+	}
+
+	//--------------------------------------------------------------------------
+	// Helper Method
+	// Adds packets cycling through every program and vertex array, which is
+	// the worst order to submit them in.
+	private void addInterleaved(int packetCount, int[] programs, int[] vertexArrays) {
+		for (int i = 0; i < packetCount; i++) {
+			int program = programs[i % programs.length];
+			int vertexArray = vertexArrays[i % vertexArrays.length];
+			queue.addArrays(RenderQueue.sortKey(0, program, 0, vertexArray, 0),
+					program, vertexArray, 0, GL_TRIANGLES, 0, 3);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_sortKey_fieldOrder() {
+		long key = RenderQueue.sortKey(1, 2, 3, 4, 5);
+		assertEquals(0x1002000300040005L, key);
+
+		// Higher fields dominate lower ones.
+		assertTrue(RenderQueue.sortKey(0, 1, 0, 0, 0) > RenderQueue.sortKey(0, 0, 9, 9, 9));
+		assertTrue(RenderQueue.sortKey(0, 0, 1, 0, 0) > RenderQueue.sortKey(0, 0, 0, 9, 9));
+
+		// Fields are masked to their width.
+		assertEquals(RenderQueue.sortKey(0, 0, 0, 0, 0xffff),
+				RenderQueue.sortKey(0, 0, 0, 0, 0x1ffff));
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_quantizeDepth() {
+		assertEquals(0, RenderQueue.quantizeDepth(1f, 1f, 100f));
+		assertEquals(0xffff, RenderQueue.quantizeDepth(100f, 1f, 100f));
+		assertEquals(0, RenderQueue.quantizeDepth(-5f, 1f, 100f));
+		assertEquals(0xffff, RenderQueue.quantizeDepth(500f, 1f, 100f));
+		assertTrue(RenderQueue.quantizeDepth(10f, 1f, 100f)
+				< RenderQueue.quantizeDepth(20f, 1f, 100f));
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_sort_smallQueue_stableAndOrdered() {
+		int[] programs = createPrograms(2);
+		int vertexArray = device.createVertexArray();
+		long high = RenderQueue.sortKey(1, 0, 0, 0, 0);
+		long low = RenderQueue.sortKey(0, 0, 0, 0, 0);
+
+		queue.addArrays(high, programs[0], vertexArray, 0, GL_TRIANGLES, 0, 3);
+		queue.addArrays(low, programs[1], vertexArray, 0, GL_TRIANGLES, 0, 3);
+		queue.addArrays(high, programs[1], vertexArray, 0, GL_TRIANGLES, 0, 3);
+		queue.addArrays(low, programs[0], vertexArray, 0, GL_TRIANGLES, 0, 3);
+		queue.sort();
+
+		assertEquals(1, queue.getSubmittedPacket(0));
+		assertEquals(3, queue.getSubmittedPacket(1));
+		assertEquals(0, queue.getSubmittedPacket(2));
+		assertEquals(2, queue.getSubmittedPacket(3));
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_sort_largeQueue_matchesStableSort() {
+		Random random = new Random(7);
+		int packetCount = 1000;
+		int program = device.createProgram();
+		int vertexArray = device.createVertexArray();
+		long[] keys = new long[packetCount];
+		for (int i = 0; i < packetCount; i++) {
+			// Few distinct values, many ties, and the sign bit in use.
+			keys[i] = RenderQueue.sortKey(random.nextInt(16), random.nextInt(4), 0,
+					random.nextInt(3), 0);
+			queue.addArrays(keys[i], program, vertexArray, 0, GL_TRIANGLES, 0, 3);
+		}
+		queue.sort();
+
+		for (int i = 1; i < packetCount; i++) {
+			int previous = queue.getSubmittedPacket(i - 1);
+			int current = queue.getSubmittedPacket(i);
+			int comparison = Long.compare(keys[previous] + Long.MIN_VALUE,
+					keys[current] + Long.MIN_VALUE);
+			assertTrue(comparison < 0 || (comparison == 0 && previous < current));
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_submit_sortedEliminatesRedundantBinds() {
+		int[] programs = createPrograms(4);
+		int[] vertexArrays = createVertexArrays(8);
+		addInterleaved(200, programs, vertexArrays);
+		queue.sort();
+		device.resetCounters();
+
+		queue.submit(device);
+
+		// Every program/vertex array pair is bound once.
+		assertEquals(4, device.getCallCount(Command.USE_PROGRAM));
+		assertEquals(8, device.getCallCount(Command.BIND_VERTEX_ARRAY));
+		assertEquals(12, queue.getBindCount());
+		assertEquals(2 * 200 - 12, queue.getEliminatedBindCount());
+		assertEquals(0, device.getRedundantBindCount());
+		assertEquals(200, device.getDrawCallCount());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_submit_unsortedKeepsInsertionOrder() {
+		int[] programs = createPrograms(2);
+		int[] vertexArrays = createVertexArrays(2);
+		addInterleaved(10, programs, vertexArrays);
+		device.resetCounters();
+
+		queue.submit(device);
+
+		assertEquals(10, device.getCallCount(Command.USE_PROGRAM));
+		assertEquals(3, queue.getSubmittedPacket(3));
+		assertEquals(0, device.getRedundantBindCount());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_submit_texturesAndIndexedDraws() {
+		int program = device.createProgram();
+		int vertexArray = device.createVertexArray();
+		device.bindVertexArray(vertexArray);
+		int indices = device.createBuffer();
+		device.bindBuffer(GL_ELEMENT_ARRAY_BUFFER, indices);
+		device.bufferData(GL_ELEMENT_ARRAY_BUFFER, BufferUtils.createByteBuffer(36),
+				GL_STATIC_DRAW);
+		int[] textures = {device.createTexture(), device.createTexture()};
+
+		for (int i = 0; i < 6; i++) {
+			int texture = textures[i % 2];
+			queue.add(RenderQueue.sortKey(0, program, texture, vertexArray, 0), program,
+					vertexArray, texture, GL_TRIANGLES, 36, GL_UNSIGNED_BYTE, 0);
+		}
+		queue.add(RenderQueue.sortKey(0, program, 0, vertexArray, 0), program, vertexArray,
+				0, GL_TRIANGLES, 0, 36, GL_UNSIGNED_BYTE, 0, 50);
+		queue.sort();
+		device.resetCounters();
+
+		queue.submit(device);
+
+		assertEquals(1, device.getCallCount(Command.ACTIVE_TEXTURE));
+		assertEquals(2, device.getCallCount(Command.BIND_TEXTURE));
+		assertEquals(6, device.getCallCount(Command.DRAW_ELEMENTS));
+		assertEquals(1, device.getCallCount(Command.DRAW_ELEMENTS_INSTANCED));
+		assertEquals(6 * 36 + 50 * 36, device.getDrawnVertexCount());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_submit_uniformsFollowTheirPacket() {
+		int program = device.createProgram();
+		int vertexArray = device.createVertexArray();
+		Matrix4f matrix = new Matrix4f();
+
+		queue.addArrays(RenderQueue.sortKey(0, program, 0, 2, 0), program, vertexArray, 0,
+				GL_TRIANGLES, 0, 3);
+		queue.addUniformMatrix4(0, matrix);
+		queue.addUniform4f(1, 1f, 0f, 0f, 1f);
+		queue.addArrays(RenderQueue.sortKey(0, program, 0, 1, 0), program, vertexArray, 0,
+				GL_TRIANGLES, 0, 3);
+		queue.addUniform1i(2, 3);
+		queue.sort();
+		device.setRecording(true);
+
+		queue.submit(device);
+
+		assertEquals(Arrays.asList(Command.USE_PROGRAM, Command.BIND_VERTEX_ARRAY,
+				Command.UNIFORM, Command.DRAW_ARRAYS, Command.UNIFORM_MATRIX,
+				Command.UNIFORM, Command.DRAW_ARRAYS), device.getRecordedCommands());
+		assertEquals(16 * 4, device.getUploadedBytes());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_clear_reusesQueue() {
+		int[] programs = createPrograms(3);
+		int[] vertexArrays = createVertexArrays(3);
+		for (int frame = 0; frame < 3; frame++) {
+			queue.clear();
+			addInterleaved(100, programs, vertexArrays);
+			queue.addUniform1f(0, frame);
+			queue.sort();
+			device.resetCounters();
+
+			queue.submit(device);
+
+			assertEquals(100, queue.size());
+			assertEquals(100, device.getDrawCallCount());
+			assertEquals(1, device.getCallCount(Command.UNIFORM));
+		}
+
+		queue.clear();
+		assertEquals(0, queue.size());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test(expected = IllegalStateException.class)
+	public void test_addUniform_withoutPacket() {
+		queue.addUniform1i(0, 1);
+	}
+}
@@ -0,0 +1,152 @@
+package utilities.graphics;
+
+import static org.lwjgl.opengl.GL11.*;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.util.vector.Matrix4f;
+import org.lwjgl.util.vector.Vector3f;
+
+import util.GLUtils;
+import util.graphics.SoftwareRasterizer;
+import utilities.benchmark.BenchmarkRunner;
+import utilities.benchmark.BenchmarkTask;
+import utilities.benchmark.Blackhole;
+
+/**
+ * Throughput, in triangles per second, of a {@link SoftwareRasterizer}
+ * drawing a 640x480 frame of randomly placed and rotated boxes, each one an
+ * indexed draw of the twelve triangle box used by the PerspectiveBox demo,
+ * with back face culling and <code>GL_LEQUAL</code> depth testing. Every
+ * frame is cleared, drawn and finished. The frame is rasterized on the
+ * calling thread and across a {@link ForkJoinPool}.
+ *
+ * Usage: <code>SoftwareRasterizer_Benchmark [resultsFile.json]</code>
+ *
+ * @author Dustin Biser
+ *
+ */
+public class SoftwareRasterizer_Benchmark {
+	// Number of triangles drawn per frame.
+	private static final int[] BATCH_SIZES = {1200, 12000, 120000};
+
+	private static final int TRIANGLES_PER_BOX = 12;
+
+	//--------------------------------------------------------------------------
+	private static class FrameTask extends BenchmarkTask {
+		private final ForkJoinPool pool;
+		private SoftwareRasterizer rasterizer;
+		private FloatBuffer positions;
+		private FloatBuffer colors;
+		private ByteBuffer indices;
+		private Matrix4f[] modelToClip;
+
+		/**
+		 * @param pool - pool to rasterize tiles across, or null for the
+		 *        calling thread.
+		 */
+		FrameTask(ForkJoinPool pool) {
+			this.pool = pool;
+		}
+
+		@Override
+		public void setup(int batchSize) {
+			rasterizer = new SoftwareRasterizer(640, 480,
+					SoftwareRasterizer.DEFAULT_TILE_SIZE, pool);
+			rasterizer.enable(GL_CULL_FACE);
+			rasterizer.cullFace(GL_BACK);
+			rasterizer.frontFace(GL_CCW);
+			rasterizer.enable(GL_DEPTH_TEST);
+			rasterizer.depthFunc(GL_LEQUAL);
+
+			positions = BufferUtils.createFloatBuffer(24 * 3);
+			colors = BufferUtils.createFloatBuffer(24 * 3);
+			indices = BufferUtils.createByteBuffer(36);
+			float[][] corners = {
+					{-1, -1,  1}, {-1, -1, -1}, { 1, -1, -1}, { 1, -1,  1},
+					{-1,  1,  1}, { 1,  1,  1}, { 1,  1, -1}, {-1,  1, -1},
+					{-1, -1,  1}, { 1, -1,  1}, { 1,  1,  1}, {-1,  1,  1},
+					{ 1, -1, -1}, {-1, -1, -1}, {-1,  1, -1}, { 1,  1, -1},
+					{-1, -1, -1}, {-1, -1,  1}, {-1,  1,  1}, {-1,  1, -1},
+					{ 1, -1,  1}, { 1, -1, -1}, { 1,  1, -1}, { 1,  1,  1},
+			};
+			for (int i = 0; i < corners.length; i++) {
+				positions.put(corners[i]);
+				colors.put(0.5f + 0.5f * corners[i][0]).put(0.5f + 0.5f * corners[i][1])
+						.put(0.5f + 0.5f * corners[i][2]);
+			}
+			for (int face = 0; face < 6; face++) {
+				int base = 4 * face;
+				indices.put(new byte[] {(byte) base, (byte) (base + 1), (byte) (base + 2),
+						(byte) (base + 2), (byte) (base + 3), (byte) base});
+			}
+			positions.flip();
+			colors.flip();
+			indices.flip();
+
+			// Boxes fill a view volume from 5 to 60 units away; smaller boxes
+			// for larger batches keep the covered area roughly constant.
+			Matrix4f projection = GLUtils.createProjectionMatrixFov(60f, 640f / 480f,
+					1f, 100f);
+			Random random = new Random(batchSize);
+			int boxCount = batchSize / TRIANGLES_PER_BOX;
+			float size = 2f * (float) Math.sqrt(100.0 / boxCount);
+			modelToClip = new Matrix4f[boxCount];
+			for (int i = 0; i < boxCount; i++) {
+				float z = -5f - random.nextFloat() * 55f;
+				float halfHeight = -z * (float) Math.tan(Math.toRadians(30.0));
+				Matrix4f model = new Matrix4f();
+				model.translate(new Vector3f(
+						(random.nextFloat() * 2f - 1f) * halfHeight * 640f / 480f,
+						(random.nextFloat() * 2f - 1f) * halfHeight, z));
+				model.rotate(random.nextFloat() * 6.28f, new Vector3f(
+						random.nextFloat() - 0.5f, random.nextFloat() - 0.5f, 0.3f));
+				model.scale(new Vector3f(size, size, size));
+				modelToClip[i] = Matrix4f.mul(projection, model, null);
+			}
+		}
+
+		@Override
+		public void teardown() {
+			rasterizer = null;
+			modelToClip = null;
+		}
+
+		@Override
+		public void run(Blackhole blackhole) {
+			rasterizer.clear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
+			for (Matrix4f matrix : modelToClip) {
+				rasterizer.drawElements(matrix, positions, 3, colors, 3, 36,
+						GL_UNSIGNED_BYTE, indices);
+			}
+			rasterizer.finish();
+			blackhole.consume(rasterizer.getColor(320, 240));
+		}
+
+		@Override
+		public String unit() {
+			return "triangles/s";
+		}
+
+		@Override
+		public double unitsPerInvocation() {
+			return getBatchSize();
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	public static void main(String args[]) {
+		BenchmarkRunner runner = new BenchmarkRunner("SoftwareRasterizer");
+
+		runner.add("serial", BATCH_SIZES, new FrameTask(null));
+		ForkJoinPool pool = new ForkJoinPool();
+		runner.add("parallel", BATCH_SIZES, new FrameTask(pool));
+
+		runner.runAndWrite(args);
+		pool.shutdown();
+	}
+}
@@ -0,0 +1,379 @@
+package utilities.graphics;
+
+import static org.junit.Assert.*;
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL32.GL_DEPTH_CLAMP;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.util.vector.Matrix4f;
+import org.lwjgl.util.vector.Vector3f;
+
+import util.GLUtils;
+import util.graphics.SoftwareRasterizer;
+
+public class SoftwareRasterizer_Test {
+	private static final int SIZE = 64;
+	private static final int RED = 0xFFFF0000;
+	private static final int GREEN = 0xFF00FF00;
+	private static final int BLACK = 0xFF000000;
+
+	private SoftwareRasterizer rasterizer;
+
+	@Before
+	public void setUp() throws Exception {
+		rasterizer = new SoftwareRasterizer(SIZE, SIZE, 16, null);
+		rasterizer.clearColor(0f, 0f, 0f, 1f);
+		rasterizer.clear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
+	}
+
+	//--------------------------------------------------------------------------
+	// Helper Method
+	private static FloatBuffer floats(float... values) {
+		FloatBuffer buffer = BufferUtils.createFloatBuffer(values.length);
+		buffer.put(values);
+		buffer.flip();
+		return buffer;
+	}
+
+	//--------------------------------------------------------------------------
+	// Helper Method
+	/**
+	 * Draws one triangle with a single color, given in normalized device
+	 * coordinates.
+	 */
+	private void drawTriangle(SoftwareRasterizer rasterizer, float[] positions,
+			float red, float green, float blue) {
+		FloatBuffer colors = floats(red, green, blue, red, green, blue, red, green, blue);
+		rasterizer.drawArrays(new Matrix4f(), floats(positions), 3, colors, 3, 0, 3);
+	}
+
+	//--------------------------------------------------------------------------
+	// Helper Method
+	private int countPixels(int color) {
+		int count = 0;
+		for (int pixel : rasterizer.getColorBuffer()) {
+			count += pixel == color ? 1 : 0;
+		}
+		return count;
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_sharedEdge_coversEveryPixelOnce() {
+		// A full screen quad split along either diagonal, each of which
+		// passes exactly through pixel centers.
+		float[][] lowerHalves = {
+				{-1f, -1f, 0f,   1f, -1f, 0f,   1f, 1f, 0f},
+				{-1f, -1f, 0f,   1f, -1f, 0f,   -1f, 1f, 0f},
+		};
+		float[][] upperHalves = {
+				{-1f, -1f, 0f,   1f, 1f, 0f,   -1f, 1f, 0f},
+				{1f, -1f, 0f,   1f, 1f, 0f,   -1f, 1f, 0f},
+		};
+		for (int i = 0; i < lowerHalves.length; i++) {
+			// Draw the lower half red and the upper half green in both
+			// orders. A pixel drawn by both halves would take the color of
+			// whichever came last.
+			rasterizer.clear(GL_COLOR_BUFFER_BIT);
+			drawTriangle(rasterizer, lowerHalves[i], 1f, 0f, 0f);
+			drawTriangle(rasterizer, upperHalves[i], 0f, 1f, 0f);
+			int[] redFirst = rasterizer.getColorBuffer().clone();
+
+			rasterizer.clear(GL_COLOR_BUFFER_BIT);
+			drawTriangle(rasterizer, upperHalves[i], 0f, 1f, 0f);
+			drawTriangle(rasterizer, lowerHalves[i], 1f, 0f, 0f);
+			assertArrayEquals(redFirst, rasterizer.getColorBuffer());
+
+			assertEquals(0, countPixels(BLACK));
+			assertTrue(countPixels(RED) > 0 && countPixels(GREEN) > 0);
+		}
+
+		// The pixel centers on the first diagonal belong to the triangle it
+		// is a left edge of, which is the lower half.
+		rasterizer.clear(GL_COLOR_BUFFER_BIT);
+		drawTriangle(rasterizer, lowerHalves[0], 1f, 0f, 0f);
+		drawTriangle(rasterizer, upperHalves[0], 0f, 1f, 0f);
+		assertEquals(SIZE * (SIZE + 1) / 2, countPixels(RED));
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_backFaceCulling() {
+		float[] counterClockwise = {-1f, -1f, 0f,   1f, -1f, 0f,   -1f, 1f, 0f};
+		float[] clockwise = {-1f, -1f, 0f,   -1f, 1f, 0f,   1f, -1f, 0f};
+		rasterizer.enable(GL_CULL_FACE);
+		rasterizer.cullFace(GL_BACK);
+		rasterizer.frontFace(GL_CCW);
+
+		drawTriangle(rasterizer, clockwise, 1f, 0f, 0f);
+		assertEquals(0, rasterizer.getPendingTriangleCount());
+		assertEquals(SIZE * SIZE, countPixels(BLACK));
+		drawTriangle(rasterizer, counterClockwise, 1f, 0f, 0f);
+		assertEquals(BLACK, rasterizer.getColor(SIZE - 1, SIZE - 1));
+		assertEquals(RED, rasterizer.getColor(1, 1));
+
+		rasterizer.frontFace(GL_CW);
+		drawTriangle(rasterizer, counterClockwise, 0f, 1f, 0f);
+		assertEquals(RED, rasterizer.getColor(1, 1));
+		drawTriangle(rasterizer, clockwise, 0f, 1f, 0f);
+		assertEquals(GREEN, rasterizer.getColor(1, 1));
+
+		// Back facing triangles are drawn when culling is disabled, covering
+		// the same pixels as front facing ones.
+		rasterizer.disable(GL_CULL_FACE);
+		rasterizer.clear(GL_COLOR_BUFFER_BIT);
+		drawTriangle(rasterizer, counterClockwise, 1f, 0f, 0f);
+		int[] front = rasterizer.getColorBuffer().clone();
+		rasterizer.clear(GL_COLOR_BUFFER_BIT);
+		drawTriangle(rasterizer, clockwise, 1f, 0f, 0f);
+		assertArrayEquals(front, rasterizer.getColorBuffer());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_depthTest() {
+		float[] quadLower = {-1f, -1f, 0.5f,   1f, -1f, 0.5f,   1f, 1f, 0.5f};
+		float[] nearer = {-1f, -1f, 0.2f,   1f, -1f, 0.2f,   1f, 1f, 0.2f};
+		float[] farther = {-1f, -1f, 0.8f,   1f, -1f, 0.8f,   1f, 1f, 0.8f};
+		rasterizer.enable(GL_DEPTH_TEST);
+		rasterizer.depthFunc(GL_LEQUAL);
+
+		drawTriangle(rasterizer, quadLower, 1f, 0f, 0f);
+		assertEquals(RED, rasterizer.getColor(SIZE - 1, 0));
+		assertEquals(0.75f, rasterizer.getDepth(SIZE - 1, 0), 1e-6f);
+		assertEquals(1f, rasterizer.getDepth(0, SIZE - 1), 0f);
+
+		// Equal depth passes GL_LEQUAL but not GL_LESS.
+		drawTriangle(rasterizer, quadLower, 0f, 1f, 0f);
+		assertEquals(GREEN, rasterizer.getColor(SIZE - 1, 0));
+		rasterizer.depthFunc(GL_LESS);
+		drawTriangle(rasterizer, quadLower, 1f, 0f, 0f);
+		assertEquals(GREEN, rasterizer.getColor(SIZE - 1, 0));
+
+		drawTriangle(rasterizer, farther, 1f, 0f, 0f);
+		assertEquals(GREEN, rasterizer.getColor(SIZE - 1, 0));
+		drawTriangle(rasterizer, nearer, 1f, 0f, 0f);
+		assertEquals(RED, rasterizer.getColor(SIZE - 1, 0));
+		assertEquals(0.6f, rasterizer.getDepth(SIZE - 1, 0), 1e-6f);
+
+		// With the depth mask off, fragments are tested but not stored.
+		rasterizer.depthMask(false);
+		rasterizer.depthFunc(GL_ALWAYS);
+		drawTriangle(rasterizer, farther, 0f, 1f, 0f);
+		assertEquals(GREEN, rasterizer.getColor(SIZE - 1, 0));
+		assertEquals(0.6f, rasterizer.getDepth(SIZE - 1, 0), 1e-6f);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_perspectiveCorrectInterpolation() {
+		// A floor at y = -1 running from z = -1 to z = -9, black at the near
+		// edge and red at the far edge.
+		Matrix4f projection = GLUtils.createProjectionMatrixFov(90f, 1f, 0.5f, 100f);
+		FloatBuffer positions = floats(
+				-20f, -1f, -1f,   20f, -1f, -1f,   20f, -1f, -9f,   -20f, -1f, -9f);
+		FloatBuffer colors = floats(0f, 0f, 0f,   0f, 0f, 0f,   1f, 0f, 0f,   1f, 0f, 0f);
+		ByteBuffer indices = BufferUtils.createByteBuffer(6);
+		indices.put(new byte[] {0, 1, 2, 2, 3, 0});
+		indices.flip();
+		rasterizer.drawElements(projection, positions, 3, colors, 3, 6,
+				GL_UNSIGNED_BYTE, indices);
+
+		// Along the row through normalized device y, the floor is seen at
+		// depth -1 / y, so the red channel is proportional to that depth
+		// rather than to y.
+		int checked = 0;
+		for (int y = 0; y < SIZE / 2; y++) {
+			float ndcY = (y + 0.5f) / SIZE * 2f - 1f;
+			float distance = -1f / ndcY;
+			int red = (rasterizer.getColor(SIZE / 2, y) >> 16) & 0xFF;
+			if (distance > 1.05f && distance < 8.9f) {
+				assertEquals("row " + y, (distance - 1f) / 8f * 255f, red, 1.5f);
+				checked++;
+			}
+			else if (distance > 9.1f) {
+				assertEquals("row " + y, BLACK, rasterizer.getColor(SIZE / 2, y));
+			}
+		}
+		assertTrue(checked > 10);
+		assertEquals(SIZE * SIZE, countPixels(BLACK) + countNonBlackBelowHorizon());
+	}
+
+	//--------------------------------------------------------------------------
+	// Helper Method
+	private int countNonBlackBelowHorizon() {
+		int count = 0;
+		for (int y = 0; y < SIZE / 2; y++) {
+			for (int x = 0; x < SIZE; x++) {
+				count += rasterizer.getColor(x, y) != BLACK ? 1 : 0;
+			}
+		}
+		return count;
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_clipping_triangleBehindCamera() {
+		// A floor passing beneath the camera, with vertices behind it, fills
+		// the bottom half of the view up to the horizon.
+		Matrix4f projection = GLUtils.createProjectionMatrixFov(90f, 1f, 0.5f, 100f);
+		float[] floor = {-300f, -1f, 50f,   300f, -1f, 50f,   0f, -1f, -1000f};
+		for (int clamp = 0; clamp < 2; clamp++) {
+			if (clamp == 1) {
+				rasterizer.enable(GL_DEPTH_CLAMP);
+			}
+			rasterizer.clear(GL_COLOR_BUFFER_BIT);
+			rasterizer.drawArrays(projection, floats(floor), 3, null, 4, 0, 3);
+			for (int x = 0; x < SIZE; x++) {
+				assertEquals(0xFFFFFFFF, rasterizer.getColor(x, 0));
+				assertEquals(0xFFFFFFFF, rasterizer.getColor(x, SIZE / 2 - 8));
+				assertEquals(BLACK, rasterizer.getColor(x, SIZE / 2));
+				assertEquals(BLACK, rasterizer.getColor(x, SIZE - 1));
+			}
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_drawElements_perspectiveBoxGeometry() {
+		// The box of the PerspectiveBox demo, five units in front of the
+		// camera, with the same culling and depth state.
+		float[] positions = {
+				-1, -1,  1,   -1, -1, -1,    1, -1, -1,    1, -1,  1,
+				-1,  1,  1,    1,  1,  1,    1,  1, -1,   -1,  1, -1,
+				-1, -1,  1,    1, -1,  1,    1,  1,  1,   -1,  1,  1,
+				 1, -1, -1,   -1, -1, -1,   -1,  1, -1,    1,  1, -1,
+				-1, -1, -1,   -1, -1,  1,   -1,  1,  1,   -1,  1, -1,
+				 1, -1,  1,    1, -1, -1,    1,  1, -1,    1,  1,  1,
+		};
+		float[][] faceColors = {
+				{0f, 1f, 0f, 1f}, {0.8f, 0.8f, 0.8f, 1f}, {0f, 0f, 1f, 1f},
+				{0.5f, 0.5f, 0f, 1f}, {1f, 0f, 0f, 1f}, {0f, 1f, 1f, 1f},
+		};
+		FloatBuffer colors = BufferUtils.createFloatBuffer(6 * 4 * 4);
+		ByteBuffer shortIndices = BufferUtils.createByteBuffer(36 * 2);
+		ByteBuffer byteIndices = BufferUtils.createByteBuffer(36);
+		for (int face = 0; face < 6; face++) {
+			for (int corner = 0; corner < 4; corner++) {
+				colors.put(faceColors[face]);
+			}
+			int base = 4 * face;
+			for (int index : new int[] {base, base + 1, base + 2, base + 2, base + 3, base}) {
+				byteIndices.put((byte) index);
+				shortIndices.putShort((short) index);
+			}
+		}
+		colors.flip();
+		byteIndices.flip();
+		shortIndices.flip();
+
+		Matrix4f modelToClip = GLUtils.createProjectionMatrixFov(60f, 1f, 1f, 100f);
+		Matrix4f modelToWorld = new Matrix4f();
+		modelToWorld.translate(new Vector3f(0f, 0f, -5f));
+		modelToWorld.rotate(0.3f, new Vector3f(0f, 1f, 0f));
+		Matrix4f.mul(modelToClip, modelToWorld, modelToClip);
+
+		rasterizer.enable(GL_CULL_FACE);
+		rasterizer.cullFace(GL_BACK);
+		rasterizer.frontFace(GL_CCW);
+		rasterizer.enable(GL_DEPTH_TEST);
+		rasterizer.depthFunc(GL_LEQUAL);
+		rasterizer.enable(GL_DEPTH_CLAMP);
+		rasterizer.drawElements(modelToClip, floats(positions), 3, colors, 4, 36,
+				GL_UNSIGNED_BYTE, byteIndices);
+
+		// Turned towards +x, the box shows only its near and left faces.
+		assertEquals(0xFF0000FF, rasterizer.getColor(SIZE / 2, SIZE / 2));
+		assertTrue(countPixels(0xFFFF0000) > 0);
+		for (int hidden : new int[] {0xFF00FF00, 0xFFCCCCCC, 0xFF808000, 0xFF00FFFF}) {
+			assertEquals(0, countPixels(hidden));
+		}
+		int[] drawnWithBytes = rasterizer.getColorBuffer().clone();
+
+		rasterizer.clear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
+		rasterizer.drawElements(modelToClip, floats(positions), 3, colors, 4, 36,
+				GL_UNSIGNED_SHORT, shortIndices);
+		assertArrayEquals(drawnWithBytes, rasterizer.getColorBuffer());
+
+		BufferedImage image = rasterizer.toColorImage();
+		assertEquals(rasterizer.getColor(3, 0), image.getRGB(3, SIZE - 1));
+		BufferedImage depth = rasterizer.toDepthImage();
+		assertEquals(255, depth.getRaster().getSample(0, 0, 0));
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_parallelMatchesSerial() {
+		Random random = new Random(11);
+		int triangleCount = 3000;
+		FloatBuffer positions = BufferUtils.createFloatBuffer(9 * triangleCount);
+		FloatBuffer colors = BufferUtils.createFloatBuffer(12 * triangleCount);
+		for (int i = 0; i < triangleCount; i++) {
+			float cx = random.nextFloat() * 40f - 20f;
+			float cy = random.nextFloat() * 40f - 20f;
+			float cz = -random.nextFloat() * 60f + 2f;
+			for (int v = 0; v < 3; v++) {
+				positions.put(cx + random.nextFloat() * 8f - 4f);
+				positions.put(cy + random.nextFloat() * 8f - 4f);
+				positions.put(cz + random.nextFloat() * 8f - 4f);
+				colors.put(random.nextFloat()).put(random.nextFloat())
+						.put(random.nextFloat()).put(1f);
+			}
+		}
+		positions.flip();
+		colors.flip();
+		Matrix4f projection = GLUtils.createProjectionMatrixFov(70f, 1.5f, 0.5f, 50f);
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			SoftwareRasterizer serial = new SoftwareRasterizer(150, 100, 16, null);
+			SoftwareRasterizer parallel = new SoftwareRasterizer(150, 100, 16, pool);
+			for (SoftwareRasterizer r : new SoftwareRasterizer[] {serial, parallel}) {
+				r.enable(GL_DEPTH_TEST);
+				r.depthFunc(GL_LEQUAL);
+				r.clear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
+				r.drawArrays(projection, positions, 3, colors, 4, 0, 3 * triangleCount);
+			}
+			assertArrayEquals(serial.getColorBuffer(), parallel.getColorBuffer());
+			assertArrayEquals(serial.getDepthBuffer(), parallel.getDepthBuffer(), 0f);
+
+			int drawn = 0;
+			for (float d : serial.getDepthBuffer()) {
+				drawn += d < 1f ? 1 : 0;
+			}
+			assertTrue(drawn > 150 * 100 / 2);
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_invalidArguments() {
+		try {
+			rasterizer.depthFunc(GL_GREATER);
+			fail("Expected IllegalArgumentException.");
+		} catch (IllegalArgumentException e) { }
+		try {
+			rasterizer.enable(GL_BLEND);
+			fail("Expected IllegalArgumentException.");
+		} catch (IllegalArgumentException e) { }
+		try {
+			ByteBuffer indices = BufferUtils.createByteBuffer(3);
+			indices.put(new byte[] {0, 1, 3});
+			indices.flip();
+			rasterizer.drawElements(new Matrix4f(), floats(0f, 0f, 1f, 0f, 0f, 1f), 2,
+					null, 4, 3, GL_UNSIGNED_BYTE, indices);
+			fail("Expected IndexOutOfBoundsException.");
+		} catch (IndexOutOfBoundsException e) { }
+	}
+}
@@ -0,0 +1,136 @@
+package utilities.math;
+
+import java.nio.FloatBuffer;
+import java.util.Random;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.util.vector.Matrix4f;
+import org.lwjgl.util.vector.Vector3f;
+
+import util.math.Matrix4Batch;
+import util.math.Quaternion;
+import util.math.QuaternionBatch;
+import utilities.benchmark.BenchmarkRunner;
+import utilities.benchmark.BenchmarkTask;
+import utilities.benchmark.Blackhole;
+
+/**
+ * Throughput, in matrices per second, of building model-view-projection
+ * matrices for a batch of objects and writing them to an upload buffer. The
+ * scalar path uses one {@link Matrix4f} per object, the batch path runs the
+ * {@link Matrix4Batch} kernels over flat arrays and stores with one bulk put.
+ *
+ * Usage: <code>Matrix4Batch_Benchmark [resultsFile.json]</code>
+ *
+ * @author Dustin Biser
+ *
+ */
+public class Matrix4Batch_Benchmark {
+	private static final int[] BATCH_SIZES = {1000, 50000};
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Creates a random translation, rotation and scale per object, along with
+	 * a view-projection matrix and an upload buffer sized for the batch.
+	 */
+	private static abstract class TransformTask extends BenchmarkTask {
+		protected float[] translations;
+		protected float[] scales;
+		protected QuaternionBatch rotations;
+		protected Matrix4f viewProjection;
+		protected FloatBuffer uploadBuffer;
+
+		@Override
+		public void setup(int batchSize) {
+			Random random = new Random(batchSize);
+
+			translations = new float[3 * batchSize];
+			scales = new float[3 * batchSize];
+			rotations = new QuaternionBatch(batchSize);
+			for (int i = 0; i < 3 * batchSize; i++) {
+				translations[i] = random.nextFloat() * 100f;
+				scales[i] = random.nextFloat() + 0.5f;
+			}
+			for (int i = 0; i < batchSize; i++) {
+				rotations.set(i, random.nextFloat() - 0.5f, random.nextFloat() - 0.5f,
+						random.nextFloat() - 0.5f, random.nextFloat() - 0.5f);
+			}
+			rotations.normalize(0, batchSize);
+
+			viewProjection = new Matrix4f();
+			viewProjection.m23 = -1f;
+			viewProjection.m33 = 0f;
+			viewProjection.m32 = -2f;
+
+			uploadBuffer = BufferUtils.createFloatBuffer(
+					Matrix4Batch.FLOATS_PER_MATRIX * batchSize);
+		}
+
+		@Override
+		public void teardown() {
+			translations = scales = null;
+			rotations = null;
+			uploadBuffer = null;
+		}
+
+		@Override
+		public String unit() {
+			return "matrices/s";
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	public static void main(String args[]) {
+		BenchmarkRunner runner = new BenchmarkRunner("Matrix4Batch");
+
+		runner.add("scalar_matrix4f", BATCH_SIZES, new TransformTask() {
+			private final Matrix4f model = new Matrix4f();
+			private final Matrix4f modelViewProjection = new Matrix4f();
+			private final Matrix4f rotation = new Matrix4f();
+			private final Quaternion q = new Quaternion();
+			private final Vector3f vector = new Vector3f();
+
+			@Override
+			public void run(Blackhole blackhole) {
+				uploadBuffer.clear();
+				for (int i = 0; i < getBatchSize(); i++) {
+					model.setIdentity();
+					vector.set(translations[3 * i], translations[3 * i + 1],
+							translations[3 * i + 2]);
+					model.translate(vector);
+					rotations.get(i, q);
+					q.toRotationMatrix(rotation);
+					Matrix4f.mul(model, rotation, model);
+					vector.set(scales[3 * i], scales[3 * i + 1], scales[3 * i + 2]);
+					model.scale(vector);
+
+					Matrix4f.mul(viewProjection, model, modelViewProjection);
+					modelViewProjection.store(uploadBuffer);
+				}
+				blackhole.consume(uploadBuffer.get(0));
+			}
+		});
+
+		runner.add("batch_kernels", BATCH_SIZES, new TransformTask() {
+			private Matrix4Batch matrices;
+
+			@Override
+			public void setup(int batchSize) {
+				super.setup(batchSize);
+				matrices = new Matrix4Batch(batchSize);
+			}
+
+			@Override
+			public void run(Blackhole blackhole) {
+				int count = getBatchSize();
+				uploadBuffer.clear();
+				matrices.composeTRS(0, count, translations, 0, rotations, 0, scales, 0);
+				Matrix4Batch.mult(viewProjection, matrices, 0, matrices, 0, count);
+				matrices.store(0, count, uploadBuffer);
+				blackhole.consume(uploadBuffer.get(0));
+			}
+		});
+
+		runner.runAndWrite(args);
+	}
+}
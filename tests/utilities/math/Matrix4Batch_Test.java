@@ -0,0 +1,243 @@
+package utilities.math;
+
+import static org.junit.Assert.*;
+
+import java.nio.FloatBuffer;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.util.vector.Matrix4f;
+import org.lwjgl.util.vector.Vector3f;
+
+import util.math.Matrix4Batch;
+import util.math.Quaternion;
+import util.math.QuaternionBatch;
+
+public class Matrix4Batch_Test {
+	private static final int BATCH_SIZE = 64;
+	private static final float TOLERANCE = 1e-4f;
+
+	private Random random;
+	private Matrix4f[] scalars;
+	private Matrix4Batch batch;
+
+	@Before
+	public void setUp() throws Exception {
+		random = new Random(42);
+
+		scalars = new Matrix4f[BATCH_SIZE];
+		batch = new Matrix4Batch(BATCH_SIZE);
+
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			scalars[i] = randomAffineMatrix();
+			batch.set(i, scalars[i]);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	// Helper Method
+	// Returns a random rotation, followed by a scale of at least 0.5 along each
+	// axis, followed by a translation.
+	private Matrix4f randomAffineMatrix() {
+		Quaternion q = new Quaternion(random.nextFloat() - 0.5f,
+				random.nextFloat() - 0.5f, random.nextFloat() - 0.5f,
+				random.nextFloat() - 0.5f);
+		q.normalize();
+
+		Matrix4f matrix = new Matrix4f();
+		matrix.translate(new Vector3f(random.nextFloat() * 10, random.nextFloat() * 10,
+				random.nextFloat() * 10));
+		Matrix4f.mul(matrix, q.toRotationMatrix(), matrix);
+		matrix.scale(new Vector3f(0.5f + random.nextFloat(), 0.5f + random.nextFloat(),
+				0.5f + random.nextFloat()));
+		return matrix;
+	}
+
+	//--------------------------------------------------------------------------
+	// Helper Method
+	private static void assertMatrixEquals(String message, Matrix4f expected,
+			Matrix4f actual) {
+		FloatBuffer e = BufferUtils.createFloatBuffer(16);
+		FloatBuffer a = BufferUtils.createFloatBuffer(16);
+		expected.store(e);
+		actual.store(a);
+		for (int i = 0; i < 16; i++) {
+			assertEquals(message + ", element " + i, e.get(i), a.get(i), TOLERANCE);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	// Helper Method
+	private void assertBatchEquals(Matrix4f[] expected, Matrix4Batch actual) {
+		Matrix4f matrix = new Matrix4f();
+		for (int i = 0; i < expected.length; i++) {
+			actual.get(i, matrix);
+			assertMatrixEquals("index " + i, expected[i], matrix);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_setAndGet_columnMajorLayout() {
+		Matrix4f matrix = new Matrix4f();
+		batch.get(3, matrix);
+		assertMatrixEquals("get", scalars[3], matrix);
+
+		// Same layout as Matrix4f.store.
+		FloatBuffer stored = BufferUtils.createFloatBuffer(16);
+		scalars[3].store(stored);
+		for (int i = 0; i < 16; i++) {
+			assertEquals(stored.get(i), batch.m[3 * 16 + i], 0f);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_setIdentity() {
+		batch.setIdentity(0, BATCH_SIZE);
+
+		Matrix4f identity = new Matrix4f();
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			scalars[i] = identity;
+		}
+		assertBatchEquals(scalars, batch);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_mult() {
+		Matrix4Batch reversed = new Matrix4Batch(BATCH_SIZE);
+		Matrix4Batch result = new Matrix4Batch(BATCH_SIZE);
+		Matrix4f[] expected = new Matrix4f[BATCH_SIZE];
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			reversed.set(i, scalars[BATCH_SIZE - 1 - i]);
+			expected[i] = Matrix4f.mul(scalars[i], scalars[BATCH_SIZE - 1 - i], null);
+		}
+
+		Matrix4Batch.mult(batch, 0, reversed, 0, result, 0, BATCH_SIZE);
+
+		assertBatchEquals(expected, result);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_mult_inPlace() {
+		Matrix4f[] expected = new Matrix4f[BATCH_SIZE];
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			expected[i] = Matrix4f.mul(scalars[i], scalars[i], null);
+		}
+
+		Matrix4Batch.mult(batch, 0, batch, 0, batch, 0, BATCH_SIZE);
+
+		assertBatchEquals(expected, batch);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_mult_sameLeftHandSide() {
+		Matrix4f viewProjection = randomAffineMatrix();
+		viewProjection.m23 = -1f;
+		viewProjection.m33 = 0f;
+		Matrix4f[] expected = new Matrix4f[BATCH_SIZE];
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			expected[i] = Matrix4f.mul(viewProjection, scalars[i], null);
+		}
+
+		Matrix4Batch.mult(viewProjection, batch, 0, batch, 0, BATCH_SIZE);
+
+		assertBatchEquals(expected, batch);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_transpose() {
+		for (Matrix4f matrix : scalars) {
+			matrix.transpose();
+		}
+		batch.transpose(0, BATCH_SIZE);
+
+		assertBatchEquals(scalars, batch);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_inverseAffine() {
+		// A singular matrix is left unchanged.
+		scalars[7] = new Matrix4f();
+		scalars[7].m11 = 0f;
+		batch.set(7, scalars[7]);
+
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			if (i != 7) {
+				scalars[i].invert();
+			}
+		}
+		batch.inverseAffine(0, BATCH_SIZE);
+
+		assertBatchEquals(scalars, batch);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_composeTRS() {
+		QuaternionBatch rotations = new QuaternionBatch(BATCH_SIZE);
+		float[] translations = new float[3 * BATCH_SIZE];
+		float[] scales = new float[3 * BATCH_SIZE];
+		Matrix4f[] expected = new Matrix4f[BATCH_SIZE];
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			Quaternion q = new Quaternion(random.nextFloat() - 0.5f,
+					random.nextFloat() - 0.5f, random.nextFloat() - 0.5f,
+					random.nextFloat() - 0.5f);
+			q.normalize();
+			rotations.set(i, q);
+			Vector3f t = new Vector3f(random.nextFloat(), random.nextFloat(),
+					random.nextFloat());
+			Vector3f s = new Vector3f(random.nextFloat() + 0.5f, 1f, 2f);
+			t.store(FloatBuffer.wrap(translations, 3 * i, 3));
+			s.store(FloatBuffer.wrap(scales, 3 * i, 3));
+
+			expected[i] = new Matrix4f();
+			expected[i].translate(t);
+			Matrix4f.mul(expected[i], q.toRotationMatrix(), expected[i]);
+			expected[i].scale(s);
+		}
+
+		batch.composeTRS(0, BATCH_SIZE, translations, 0, rotations, 0, scales, 0);
+		assertBatchEquals(expected, batch);
+
+		// Without scales.
+		batch.composeTRS(0, 1, translations, 0, rotations, 0, null, 0);
+		Matrix4f unscaled = new Matrix4f();
+		unscaled.translate(new Vector3f(translations[0], translations[1], translations[2]));
+		Quaternion q = new Quaternion();
+		rotations.get(0, q);
+		Matrix4f.mul(unscaled, q.toRotationMatrix(), unscaled);
+		Matrix4f actual = new Matrix4f();
+		batch.get(0, actual);
+		assertMatrixEquals("unscaled", unscaled, actual);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_store_bulkIntoBuffer() {
+		FloatBuffer buffer = BufferUtils.createFloatBuffer(16 * 3 + 4);
+		buffer.position(4);
+
+		batch.store(10, 3, buffer);
+
+		assertEquals(4 + 16 * 3, buffer.position());
+		FloatBuffer expected = BufferUtils.createFloatBuffer(16);
+		scalars[11].store(expected);
+		for (int i = 0; i < 16; i++) {
+			assertEquals(expected.get(i), buffer.get(4 + 16 + i), 0f);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void test_rangeValidated() {
+		batch.transpose(BATCH_SIZE - 1, 2);
+	}
+}
@@ -0,0 +1,200 @@
+package utilities.math;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.lwjgl.util.vector.Matrix4f;
+import org.lwjgl.util.vector.Vector3f;
+
+import util.math.Quaternion;
+import util.math.QuaternionBatch;
+import static util.math.MathUtils.*;
+
+public class QuaternionBatch_Test {
+	private static final int BATCH_SIZE = 64;
+
+	private Quaternion[] scalars;
+	private QuaternionBatch batch;
+
+	@Before
+	public void setUp() throws Exception {
+		Random random = new Random(42);
+
+		scalars = new Quaternion[BATCH_SIZE];
+		batch = new QuaternionBatch(BATCH_SIZE);
+
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			scalars[i] = new Quaternion(random.nextFloat() - 0.5f,
+					random.nextFloat() - 0.5f, random.nextFloat() - 0.5f,
+					random.nextFloat() - 0.5f);
+			batch.set(i, scalars[i]);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	// Helper Method
+	private void assertBatchEquals(Quaternion[] expected, QuaternionBatch actual) {
+		Quaternion q = new Quaternion();
+		for (int i = 0; i < expected.length; i++) {
+			actual.get(i, q);
+			assertTrue("index " + i, expected[i].equals(q));
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_setAndGet() {
+		Quaternion q = new Quaternion();
+		batch.get(3, q);
+
+		assertTrue(scalars[3].equals(q));
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_mult() {
+		QuaternionBatch result = new QuaternionBatch(BATCH_SIZE);
+		Quaternion[] expected = new Quaternion[BATCH_SIZE];
+
+		// Multiply each Quaternion by its mirror image in the batch.
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			expected[i] = Quaternion.mult(scalars[i], scalars[BATCH_SIZE - 1 - i]);
+		}
+		QuaternionBatch reversed = new QuaternionBatch(BATCH_SIZE);
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			reversed.set(i, scalars[BATCH_SIZE - 1 - i]);
+		}
+
+		QuaternionBatch.mult(batch, 0, reversed, 0, result, 0, BATCH_SIZE);
+
+		assertBatchEquals(expected, result);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_mult_inPlace() {
+		Quaternion[] expected = new Quaternion[BATCH_SIZE];
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			expected[i] = Quaternion.mult(scalars[i], scalars[i]);
+		}
+
+		QuaternionBatch.mult(batch, 0, batch, 0, batch, 0, BATCH_SIZE);
+
+		assertBatchEquals(expected, batch);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_normalize() {
+		for (Quaternion q : scalars) {
+			q.normalize();
+		}
+		batch.normalize(0, BATCH_SIZE);
+
+		assertBatchEquals(scalars, batch);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_conjugate() {
+		for (Quaternion q : scalars) {
+			q.conjugate();
+		}
+		batch.conjugate(0, BATCH_SIZE);
+
+		assertBatchEquals(scalars, batch);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_inverse() {
+		batch.set(7, 0f, 0f, 0f, 0f);
+		scalars[7] = new Quaternion(0f, 0f, 0f, 0f);
+
+		for (Quaternion q : scalars) {
+			q.inverse();
+		}
+		batch.inverse(0, BATCH_SIZE);
+
+		assertBatchEquals(scalars, batch);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_subRange() {
+		Quaternion q = new Quaternion();
+		batch.conjugate(10, 5);
+
+		batch.get(9, q);
+		assertTrue(scalars[9].equals(q));
+
+		batch.get(10, q);
+		assertTrue(Quaternion.conjugate(scalars[10]).equals(q));
+
+		batch.get(15, q);
+		assertTrue(scalars[15].equals(q));
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_rotate() {
+		Vector3f[] vecs = new Vector3f[BATCH_SIZE];
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			vecs[i] = new Vector3f(i, 1f, -2f * i);
+		}
+
+		batch.rotate(0, vecs, 0, BATCH_SIZE);
+
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			Vector3f expected = new Vector3f(i, 1f, -2f * i);
+			scalars[i].rotate(expected);
+
+			assertTrue(floatEqualsUlp(expected.x, vecs[i].x));
+			assertTrue(floatEqualsUlp(expected.y, vecs[i].y));
+			assertTrue(floatEqualsUlp(expected.z, vecs[i].z));
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_toRotationMatrix() {
+		Matrix4f[] matrices = new Matrix4f[BATCH_SIZE];
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			matrices[i] = new Matrix4f();
+		}
+		float[] packed = new float[16 * BATCH_SIZE];
+
+		batch.toRotationMatrix(0, BATCH_SIZE, matrices, 0);
+		batch.toRotationMatrix(0, BATCH_SIZE, packed, 0);
+
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			Matrix4f expected = scalars[i].toRotationMatrix();
+			float[] expectedArray = {
+					expected.m00, expected.m01, expected.m02, expected.m03,
+					expected.m10, expected.m11, expected.m12, expected.m13,
+					expected.m20, expected.m21, expected.m22, expected.m23,
+					expected.m30, expected.m31, expected.m32, expected.m33 };
+
+			float[] actualArray = {
+					matrices[i].m00, matrices[i].m01, matrices[i].m02, matrices[i].m03,
+					matrices[i].m10, matrices[i].m11, matrices[i].m12, matrices[i].m13,
+					matrices[i].m20, matrices[i].m21, matrices[i].m22, matrices[i].m23,
+					matrices[i].m30, matrices[i].m31, matrices[i].m32, matrices[i].m33 };
+
+			for (int j = 0; j < 16; j++) {
+				assertTrue(floatEqualsUlp(expectedArray[j], actualArray[j]));
+				assertTrue(floatEqualsUlp(expectedArray[j], packed[16 * i + j]));
+			}
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	@Test(expected=IndexOutOfBoundsException.class)
+	public void test_rangeOutOfBounds() {
+		batch.normalize(BATCH_SIZE - 2, 4);
+	}
+
+}
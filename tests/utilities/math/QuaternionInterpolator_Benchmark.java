@@ -0,0 +1,125 @@
+package utilities.math;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import util.math.Quaternion;
+import util.math.QuaternionBatch;
+import util.math.QuaternionInterpolator;
+import utilities.benchmark.BenchmarkRunner;
+import utilities.benchmark.BenchmarkTask;
+import utilities.benchmark.Blackhole;
+
+/**
+ * Interpolation throughput, in rotations per second, for scalar
+ * {@link Quaternion#slerp(Quaternion, Quaternion, float, Quaternion)} loops
+ * versus the bulk {@link QuaternionInterpolator}, run both on the calling
+ * thread and split across a ForkJoinPool.
+ *
+ * Usage: <code>QuaternionInterpolator_Benchmark [resultsFile.json]</code>
+ *
+ * @author Dustin Biser
+ *
+ */
+public class QuaternionInterpolator_Benchmark {
+	private static final int[] BATCH_SIZES = {1000, 100000, 1000000};
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Creates random keyframe pairs, with a quarter of the pairs close enough
+	 * together to be blended with nlerp.
+	 */
+	private static abstract class InterpolationTask extends BenchmarkTask {
+		protected QuaternionBatch from;
+		protected QuaternionBatch to;
+		protected QuaternionBatch dest;
+		protected float[] t;
+
+		@Override
+		public void setup(int batchSize) {
+			Random random = new Random(batchSize);
+
+			from = new QuaternionBatch(batchSize);
+			to = new QuaternionBatch(batchSize);
+			dest = new QuaternionBatch(batchSize);
+			t = new float[batchSize];
+
+			for (int i = 0; i < batchSize; i++) {
+				from.set(i, random.nextFloat() - 0.5f, random.nextFloat() - 0.5f,
+						random.nextFloat() - 0.5f, random.nextFloat() - 0.5f);
+				if (i % 4 == 0) {
+					to.set(i, from.x[i] + 0.01f, from.y[i], from.z[i], from.w[i]);
+				}
+				else {
+					to.set(i, random.nextFloat() - 0.5f, random.nextFloat() - 0.5f,
+							random.nextFloat() - 0.5f, random.nextFloat() - 0.5f);
+				}
+				t[i] = random.nextFloat();
+			}
+			from.normalize(0, batchSize);
+			to.normalize(0, batchSize);
+		}
+
+		@Override
+		public void teardown() {
+			from = to = dest = null;
+			t = null;
+		}
+
+		@Override
+		public String unit() {
+			return "rotations/s";
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private static class BulkTask extends InterpolationTask {
+		private final QuaternionInterpolator interpolator;
+
+		BulkTask(QuaternionInterpolator interpolator) {
+			this.interpolator = interpolator;
+		}
+
+		@Override
+		public void run(Blackhole blackhole) {
+			interpolator.slerp(from, to, t, dest, 0, dest.capacity());
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	public static void main(String args[]) {
+		BenchmarkRunner runner = new BenchmarkRunner("QuaternionInterpolator");
+
+		runner.add("scalar_slerp", BATCH_SIZES, new InterpolationTask() {
+			private final Quaternion a = new Quaternion();
+			private final Quaternion b = new Quaternion();
+			private final Quaternion result = new Quaternion();
+
+			@Override
+			public void run(Blackhole blackhole) {
+				for (int i = 0; i < t.length; i++) {
+					from.get(i, a);
+					to.get(i, b);
+					Quaternion.slerp(a, b, t[i], result);
+					dest.set(i, result);
+				}
+			}
+		});
+
+		runner.add("bulk_slerp_only", BATCH_SIZES, new BulkTask(
+				new QuaternionInterpolator(0f, Integer.MAX_VALUE, null)));
+
+		runner.add("bulk_nlerp_fallback", BATCH_SIZES, new BulkTask(
+				new QuaternionInterpolator(
+						QuaternionInterpolator.DEFAULT_NLERP_ANGLE_THRESHOLD,
+						Integer.MAX_VALUE, null)));
+
+		runner.add("bulk_parallel", BATCH_SIZES, new BulkTask(
+				new QuaternionInterpolator(
+						QuaternionInterpolator.DEFAULT_NLERP_ANGLE_THRESHOLD,
+						QuaternionInterpolator.DEFAULT_PARALLEL_THRESHOLD,
+						new ForkJoinPool())));
+
+		runner.runAndWrite(args);
+	}
+}
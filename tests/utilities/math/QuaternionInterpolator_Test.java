@@ -0,0 +1,122 @@
+package utilities.math;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import util.math.Quaternion;
+import util.math.QuaternionBatch;
+import util.math.QuaternionInterpolator;
+
+public class QuaternionInterpolator_Test {
+	private static final int BATCH_SIZE = 1000;
+	
+	private QuaternionBatch from;
+	private QuaternionBatch to;
+	private QuaternionBatch dest;
+	private float[] t;
+
+	@Before
+	public void setUp() throws Exception {
+		Random random = new Random(7);
+		
+		from = new QuaternionBatch(BATCH_SIZE);
+		to = new QuaternionBatch(BATCH_SIZE);
+		dest = new QuaternionBatch(BATCH_SIZE);
+		t = new float[BATCH_SIZE];
+		
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			from.set(i, random.nextFloat() - 0.5f, random.nextFloat() - 0.5f,
+					random.nextFloat() - 0.5f, random.nextFloat() - 0.5f);
+			to.set(i, random.nextFloat() - 0.5f, random.nextFloat() - 0.5f,
+					random.nextFloat() - 0.5f, random.nextFloat() - 0.5f);
+			t[i] = random.nextFloat();
+		}
+		from.normalize(0, BATCH_SIZE);
+		to.normalize(0, BATCH_SIZE);
+		
+		// Make some keyframe pairs nearly identical, to exercise nlerp.
+		for (int i = 0; i < BATCH_SIZE; i += 10) {
+			to.set(i, from.x[i] + 0.001f, from.y[i], from.z[i], from.w[i]);
+		}
+		to.normalize(0, BATCH_SIZE);
+	}
+	
+	//--------------------------------------------------------------------------
+	// Helper Method
+	private void assertMatchesScalarSlerp(float tolerance) {
+		Quaternion a = new Quaternion();
+		Quaternion b = new Quaternion();
+		Quaternion expected = new Quaternion();
+		Quaternion actual = new Quaternion();
+		
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			from.get(i, a);
+			to.get(i, b);
+			Quaternion.slerp(a, b, t[i], expected);
+			dest.get(i, actual);
+			
+			assertEquals(expected.x, actual.x, tolerance);
+			assertEquals(expected.y, actual.y, tolerance);
+			assertEquals(expected.z, actual.z, tolerance);
+			assertEquals(expected.w, actual.w, tolerance);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_slerpOnly_matchesScalar() {
+		QuaternionInterpolator interpolator = new QuaternionInterpolator(0f,
+				Integer.MAX_VALUE, new ForkJoinPool(1));
+		
+		interpolator.slerp(from, to, t, dest, 0, BATCH_SIZE);
+		
+		assertMatchesScalarSlerp(1e-6f);
+	}
+	
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_nlerpFallback_isClose() {
+		QuaternionInterpolator interpolator = new QuaternionInterpolator();
+		
+		interpolator.slerp(from, to, t, dest, 0, BATCH_SIZE);
+		
+		assertMatchesScalarSlerp(1e-4f);
+	}
+	
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_parallel_matchesSequential() {
+		QuaternionBatch sequential = new QuaternionBatch(BATCH_SIZE);
+		new QuaternionInterpolator(0.25f, Integer.MAX_VALUE, new ForkJoinPool(1))
+				.slerp(from, to, t, sequential, 0, BATCH_SIZE);
+		
+		new QuaternionInterpolator(0.25f, 64, new ForkJoinPool(4))
+				.slerp(from, to, t, dest, 0, BATCH_SIZE);
+		
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			assertEquals(sequential.x[i], dest.x[i], 0f);
+			assertEquals(sequential.y[i], dest.y[i], 0f);
+			assertEquals(sequential.z[i], dest.z[i], 0f);
+			assertEquals(sequential.w[i], dest.w[i], 0f);
+		}
+	}
+	
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_subRange_leavesOthersUntouched() {
+		QuaternionInterpolator interpolator = new QuaternionInterpolator();
+		
+		interpolator.slerp(from, to, t, dest, 100, 50);
+		
+		assertEquals(0f, dest.w[99], 0f);
+		assertEquals(0f, dest.w[150], 0f);
+		assertEquals(1f, dest.x[120] * dest.x[120] + dest.y[120] * dest.y[120]
+				+ dest.z[120] * dest.z[120] + dest.w[120] * dest.w[120], 1e-5f);
+	}
+	
+}
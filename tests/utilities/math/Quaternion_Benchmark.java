@@ -0,0 +1,181 @@
+package utilities.math;
+
+import java.util.Random;
+
+import org.lwjgl.util.vector.Matrix4f;
+import org.lwjgl.util.vector.Vector3f;
+import org.lwjgl.util.vector.Vector4f;
+
+import util.math.Quaternion;
+import util.math.QuaternionBatch;
+import utilities.benchmark.BenchmarkRunner;
+import utilities.benchmark.BenchmarkTask;
+import utilities.benchmark.Blackhole;
+
+/**
+ * Throughput benchmarks for {@link Quaternion} operations, comparing the
+ * allocating variants of each operation against their <code>dest</code>
+ * parameter counterparts.
+ *
+ * Usage: <code>Quaternion_Benchmark [resultsFile.json]</code>
+ *
+ * @author Dustin Biser
+ *
+ */
+public class Quaternion_Benchmark {
+	private static final int[] BATCH_SIZES = {1, 1000, 100000};
+
+	// Inputs shared by every task, regenerated for each batch size.
+	private static Quaternion[] lhs;
+	private static Quaternion[] rhs;
+	private static Quaternion[] dest;
+	private static Vector3f[] vec3s;
+	private static Vector4f[] vec4s;
+	private static Matrix4f[] matrices;
+
+	//--------------------------------------------------------------------------
+	private static void createInputs(int batchSize) {
+		Random random = new Random(batchSize);
+
+		lhs = new Quaternion[batchSize];
+		rhs = new Quaternion[batchSize];
+		dest = new Quaternion[batchSize];
+		vec3s = new Vector3f[batchSize];
+		vec4s = new Vector4f[batchSize];
+		matrices = new Matrix4f[batchSize];
+
+		for (int i = 0; i < batchSize; i++) {
+			lhs[i] = randomUnitQuaternion(random);
+			rhs[i] = randomUnitQuaternion(random);
+			dest[i] = new Quaternion();
+			vec3s[i] = new Vector3f(random.nextFloat(), random.nextFloat(), random.nextFloat());
+			vec4s[i] = new Vector4f(random.nextFloat(), random.nextFloat(), random.nextFloat(), 1f);
+			matrices[i] = lhs[i].toRotationMatrix();
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private static Quaternion randomUnitQuaternion(Random random) {
+		Quaternion q = new Quaternion(random.nextFloat() - 0.5f,
+				random.nextFloat() - 0.5f, random.nextFloat() - 0.5f,
+				random.nextFloat() - 0.5f);
+		q.normalize();
+
+		return q;
+	}
+
+	//--------------------------------------------------------------------------
+	private static abstract class QuaternionTask extends BenchmarkTask {
+		@Override
+		public void setup(int batchSize) {
+			createInputs(batchSize);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	public static void main(String args[]) {
+		BenchmarkRunner runner = new BenchmarkRunner("Quaternion");
+
+		runner.add("mult_dest", BATCH_SIZES, new QuaternionTask() {
+			@Override
+			public void run(Blackhole blackhole) {
+				for (int i = 0; i < lhs.length; i++) {
+					Quaternion.mult(lhs[i], rhs[i], dest[i]);
+				}
+			}
+		});
+
+		runner.add("mult_allocating", BATCH_SIZES, new QuaternionTask() {
+			@Override
+			public void run(Blackhole blackhole) {
+				for (int i = 0; i < lhs.length; i++) {
+					blackhole.consume(Quaternion.mult(lhs[i], rhs[i]));
+				}
+			}
+		});
+
+		runner.add("mult_batch", BATCH_SIZES, new QuaternionTask() {
+			private QuaternionBatch lhsBatch;
+			private QuaternionBatch rhsBatch;
+			private QuaternionBatch destBatch;
+
+			@Override
+			public void setup(int batchSize) {
+				super.setup(batchSize);
+				lhsBatch = new QuaternionBatch(batchSize);
+				rhsBatch = new QuaternionBatch(batchSize);
+				destBatch = new QuaternionBatch(batchSize);
+				for (int i = 0; i < batchSize; i++) {
+					lhsBatch.set(i, lhs[i]);
+					rhsBatch.set(i, rhs[i]);
+				}
+			}
+
+			@Override
+			public void run(Blackhole blackhole) {
+				QuaternionBatch.mult(lhsBatch, 0, rhsBatch, 0, destBatch, 0,
+						destBatch.capacity());
+			}
+		});
+
+		runner.add("rotate_Vector3f", BATCH_SIZES, new QuaternionTask() {
+			@Override
+			public void run(Blackhole blackhole) {
+				for (int i = 0; i < lhs.length; i++) {
+					lhs[i].rotate(vec3s[i]);
+				}
+			}
+		});
+
+		runner.add("rotate_Vector4f", BATCH_SIZES, new QuaternionTask() {
+			@Override
+			public void run(Blackhole blackhole) {
+				for (int i = 0; i < lhs.length; i++) {
+					lhs[i].rotate(vec4s[i]);
+				}
+			}
+		});
+
+		// Copying into dest invalidates its cached rotation matrix, so that
+		// every call measures a full conversion rather than a cache hit.
+		runner.add("toRotationMatrix_dest", BATCH_SIZES, new QuaternionTask() {
+			@Override
+			public void run(Blackhole blackhole) {
+				for (int i = 0; i < lhs.length; i++) {
+					Quaternion.copy(lhs[i], dest[i]);
+					dest[i].toRotationMatrix(matrices[i]);
+				}
+			}
+		});
+
+		runner.add("toRotationMatrix_allocating", BATCH_SIZES, new QuaternionTask() {
+			@Override
+			public void run(Blackhole blackhole) {
+				for (int i = 0; i < lhs.length; i++) {
+					Quaternion.copy(lhs[i], dest[i]);
+					blackhole.consume(dest[i].toRotationMatrix());
+				}
+			}
+		});
+
+		runner.add("fromRotationMatrix", BATCH_SIZES, new QuaternionTask() {
+			@Override
+			public void run(Blackhole blackhole) {
+				for (int i = 0; i < lhs.length; i++) {
+					dest[i].fromRotationMatrix(matrices[i]);
+				}
+			}
+		});
+
+		runner.add("normalize", BATCH_SIZES, new QuaternionTask() {
+			@Override
+			public void run(Blackhole blackhole) {
+				for (int i = 0; i < lhs.length; i++) {
+					lhs[i].normalize();
+				}
+			}
+		});
+
+		runner.runAndWrite(args);
+	}
+}
@@ -808,4 +808,85 @@ public class Quaternion_Test {
 		
 		assertTrue(expected.equals(q2));
 	}
+	
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_slerp_endpoints() {
+		q1 = new Quaternion(new Vector3f(0f, 1f, 0f), 0.3f);
+		q2 = new Quaternion(new Vector3f(1f, 0f, 0f), 1.2f);
+		q = new Quaternion();
+		
+		Quaternion.slerp(q1, q2, 0f, q);
+		assertTrue(q1.equals(q));
+		
+		Quaternion.slerp(q1, q2, 1f, q);
+		assertTrue(q2.equals(q));
+	}
+	
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_slerp_halfway() {
+		Vector3f axis = new Vector3f(0f, 0f, 1f);
+		q1 = new Quaternion(axis, 0.2f);
+		q2 = new Quaternion(axis, 1.4f);
+		q = new Quaternion();
+		
+		Quaternion.slerp(q1, q2, 0.5f, q);
+		
+		Quaternion expected = new Quaternion(axis, 0.8f);
+		assertEquals(expected.x, q.x, 1e-6f);
+		assertEquals(expected.y, q.y, 1e-6f);
+		assertEquals(expected.z, q.z, 1e-6f);
+		assertEquals(expected.w, q.w, 1e-6f);
+	}
+	
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_slerp_shortestPath() {
+		Vector3f axis = new Vector3f(0f, 1f, 0f);
+		q1 = new Quaternion(axis, 0.4f);
+		
+		// Negated Quaternion represents the same rotation.
+		q2 = Quaternion.scale(new Quaternion(axis, 0.8f), -1f);
+		q = new Quaternion();
+		
+		Quaternion.slerp(q1, q2, 0.5f, q);
+		
+		Quaternion expected = new Quaternion(axis, 0.6f);
+		assertEquals(expected.x, q.x, 1e-6f);
+		assertEquals(expected.y, q.y, 1e-6f);
+		assertEquals(expected.z, q.z, 1e-6f);
+		assertEquals(expected.w, q.w, 1e-6f);
+	}
+	
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_nlerp_isNormalized() {
+		q1 = new Quaternion(new Vector3f(0f, 1f, 0f), 0.3f);
+		q2 = new Quaternion(new Vector3f(1f, 1f, 0f), 2.5f);
+		
+		// Store into an aliased input.
+		Quaternion.nlerp(q1, q2, 0.35f, q1);
+		
+		assertEquals(1f, q1.norm(), 1e-6f);
+	}
+	
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_squad_matchesSlerpWithEqualControlPoints() {
+		Vector3f axis = new Vector3f(1f, 2f, 3f);
+		q1 = new Quaternion(axis, 0.1f);
+		q2 = new Quaternion(axis, 1.1f);
+		q = new Quaternion();
+		Quaternion expected = new Quaternion();
+		
+		// With control points on the same great arc, squad reduces to slerp.
+		Quaternion.squad(q1, q2, q1, q2, 0.3f, q);
+		Quaternion.slerp(q1, q2, 0.3f, expected);
+		
+		assertEquals(expected.x, q.x, 1e-6f);
+		assertEquals(expected.y, q.y, 1e-6f);
+		assertEquals(expected.z, q.z, 1e-6f);
+		assertEquals(expected.w, q.w, 1e-6f);
+	}
 }
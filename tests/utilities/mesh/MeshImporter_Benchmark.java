@@ -0,0 +1,135 @@
+package utilities.mesh;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+
+import util.mesh.MeshData;
+import util.mesh.MeshImporter;
+import utilities.benchmark.BenchmarkRunner;
+import utilities.benchmark.BenchmarkTask;
+import utilities.benchmark.Blackhole;
+import utilities.texture.TestImages;
+
+/**
+ * Import throughput, in megabytes of file per second, of a
+ * {@link MeshImporter} loading generated grid meshes as OBJ text with
+ * texture coordinates and as little endian binary PLY. Each file is parsed
+ * on the calling thread and in chunks across a {@link ForkJoinPool}. Batch
+ * sizes are approximate file sizes in megabytes, up to a 500 MB model.
+ *
+ * Usage: <code>MeshImporter_Benchmark [resultsFile.json [meshFile]]</code>
+ *
+ * When a mesh file is given it is imported instead of the generated grids.
+ * Files are read from the operating system's file cache after the first
+ * iteration, so on a cold disk the import is bound by I/O instead.
+ *
+ * @author Dustin Biser
+ *
+ */
+public class MeshImporter_Benchmark {
+	private static final int[] BATCH_SIZES = {16, 64, 256, 500};
+
+	// Approximate file bytes per grid cell.
+	private static final int OBJ_BYTES_PER_CELL = 146;
+	private static final int PLY_BYTES_PER_CELL = 39;
+
+	//--------------------------------------------------------------------------
+	private static class LoadTask extends BenchmarkTask {
+		private final MeshImporter importer;
+		private final String extension;
+		private final int bytesPerCell;
+		private final File userFile;
+		private File directory;
+		private File file;
+		private double megabytes;
+
+		/**
+		 * @param pool - pool to parse chunks across, or null for the calling
+		 *        thread.
+		 * @param extension - extension of the generated files.
+		 * @param userFile - file to import instead of a generated grid, or
+		 *        null.
+		 */
+		LoadTask(ForkJoinPool pool, String extension, File userFile) {
+			this.importer = (pool == null) ? new MeshImporter(Integer.MAX_VALUE, null)
+					: new MeshImporter(MeshImporter.DEFAULT_PARALLEL_THRESHOLD, pool);
+			this.extension = extension;
+			this.bytesPerCell = extension.equals(MeshImporter.OBJ_EXTENSION)
+					? OBJ_BYTES_PER_CELL : PLY_BYTES_PER_CELL;
+			this.userFile = userFile;
+		}
+
+		@Override
+		public void setup(int batchSize) {
+			file = userFile;
+			if (file == null) {
+				int size = (int) Math.sqrt(batchSize * 1e6 / bytesPerCell);
+				try {
+					directory = TestImages.createTempDirectory("MeshImporter_Benchmark");
+					file = new File(directory, "grid" + extension);
+					TestMeshes.writeGridFile(file, size);
+				}
+				catch (IOException e) {
+					throw new RuntimeException(e);
+				}
+			}
+			megabytes = file.length() / 1e6;
+		}
+
+		@Override
+		public void teardown() {
+			if (directory != null) {
+				TestImages.deleteDirectory(directory);
+				directory = null;
+			}
+		}
+
+		@Override
+		public void run(Blackhole blackhole) {
+			try {
+				MeshData mesh = importer.load(file);
+				blackhole.consume(mesh.getIndices().get(mesh.getIndexCount() - 1));
+			}
+			catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		@Override
+		public String unit() {
+			return "MB/s";
+		}
+
+		@Override
+		public double unitsPerInvocation() {
+			return megabytes;
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	public static void main(String args[]) {
+		File userFile = (args.length > 1) ? new File(args[1]) : null;
+		int[] batchSizes = (userFile == null) ? BATCH_SIZES
+				: new int[] {(int) Math.max(1, userFile.length() / 1000000)};
+
+		BenchmarkRunner runner = new BenchmarkRunner("MeshImporter")
+				.withWarmupIterations(1).withMeasurementIterations(3);
+
+		ForkJoinPool pool = new ForkJoinPool();
+		for (String extension : new String[] {MeshImporter.OBJ_EXTENSION,
+				MeshImporter.PLY_EXTENSION}) {
+			if (userFile != null
+					&& !userFile.getName().toLowerCase(Locale.ROOT).endsWith(extension)) {
+				continue;
+			}
+			String format = extension.substring(1);
+			runner.add(format + "_serial", batchSizes, new LoadTask(null, extension, userFile));
+			runner.add(format + "_parallel", batchSizes, new LoadTask(pool, extension, userFile));
+		}
+
+		runner.runAndWrite(args);
+		pool.shutdown();
+	}
+}
@@ -0,0 +1,328 @@
+package utilities.mesh;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import util.TexturedVertex;
+import util.mesh.MeshData;
+import util.mesh.MeshImporter;
+import utilities.texture.TestImages;
+
+public class MeshImporter_Test {
+	private MeshImporter importer;
+	private File directory;
+
+	@Before
+	public void setUp() throws Exception {
+		importer = new MeshImporter(Integer.MAX_VALUE, null);
+		directory = TestImages.createTempDirectory("MeshImporter_Test");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		TestImages.deleteDirectory(directory);
+	}
+
+	//--------------------------------------------------------------------------
+	// Helper Method
+	private MeshData readObj(String text) throws IOException {
+		return importer.readObj(ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII)),
+				"test.obj");
+	}
+
+	//--------------------------------------------------------------------------
+	// Helper Method
+	private static void assertVertex(MeshData mesh, int index, float[] expected) {
+		float[] actual = mesh.getVertex(index).getElements();
+		assertEquals(expected.length, actual.length);
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals("vertex " + index + " element " + i, expected[i], actual[i], 0f);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	// Helper Method
+	private static int[] getIndices(MeshData mesh) {
+		int[] indices = new int[mesh.getIndexCount()];
+		mesh.getIndices().get(indices);
+		mesh.getIndices().rewind();
+		return indices;
+	}
+
+	//--------------------------------------------------------------------------
+	// Helper Method
+	private static void assertSameMesh(MeshData expected, MeshData actual) {
+		assertEquals(expected.getVertexCount(), actual.getVertexCount());
+		assertEquals(expected.getVertices(), actual.getVertices());
+		assertArrayEquals(getIndices(expected), getIndices(actual));
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_obj_deduplicatesCorners() throws IOException {
+		MeshData mesh = readObj("# A textured quad\n"
+				+ "o quad\n"
+				+ "v 0 0 0\nv 1 0 0\nv 1 1 0\nv 0 1 0\n"
+				+ "vt 0 0\nvt 1 0\nvt 1 1\nvt 0 1\n"
+				+ "vn 0 0 1\n"
+				+ "usemtl none\n"
+				+ "f 1/1/1 2/2/1 3/3/1\n"
+				+ "f -4/-4/1 -2/-2/1 -1/-1/1\n");
+
+		assertEquals(4, mesh.getVertexCount());
+		assertEquals(2, mesh.getTriangleCount());
+		assertArrayEquals(new int[] {0, 1, 2, 0, 2, 3}, getIndices(mesh));
+		assertVertex(mesh, 2, new float[] {1f, 1f, 0f, 1f,   1f, 1f, 1f, 1f,   1f, 1f});
+		assertVertex(mesh, 3, new float[] {0f, 1f, 0f, 1f,   1f, 1f, 1f, 1f,   0f, 1f});
+		assertEquals(4 * TexturedVertex.stride, mesh.getVertices().limit());
+		assertTrue(mesh.getVertices().isDirect());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_obj_polygonsAndSeams() throws IOException {
+		// A quad fanned into two triangles, and a triangle that shares its
+		// positions but not its texture coordinates.
+		MeshData mesh = readObj("v 0 0 0\r\nv 1 0 0\r\nv 1 1 0\r\nv 0 1 0\r\n"
+				+ "vt 0 0\r\nvt 1 0\r\nvt 1 1\r\nvt 0 1\r\nvt 0.5 0.5\r\n"
+				+ "f\t1/1 2/2 3/3 4/4  # quad\r\n"
+				+ "f 1/5 2/2 3/5\r\n");
+
+		assertEquals(6, mesh.getVertexCount());
+		assertArrayEquals(new int[] {0, 1, 2, 0, 2, 3, 4, 1, 5}, getIndices(mesh));
+		assertVertex(mesh, 5, new float[] {1f, 1f, 0f, 1f,   1f, 1f, 1f, 1f,   0.5f, 0.5f});
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_obj_positionsOnly() throws IOException {
+		// Without texture coordinates the positions are the vertices, in file
+		// order, including colored and homogeneous ones.
+		MeshData mesh = readObj("v 1.5 -2e1 +3.25E-2\n"
+				+ "v -.5 2. 0 0.5\n"
+				+ "v 0 0 1 1 0 0.5\n"
+				+ "v 0 1 1 0.2 0.4 0.6 0.8\n"
+				+ "vn 0 1 0\n"
+				+ "f 4//1 3//1 2//1 1//1\n");
+
+		assertEquals(4, mesh.getVertexCount());
+		assertArrayEquals(new int[] {3, 2, 1, 3, 1, 0}, getIndices(mesh));
+		assertVertex(mesh, 0, new float[] {1.5f, -20f, 0.0325f, 1f,   1f, 1f, 1f, 1f,   0f, 0f});
+		assertVertex(mesh, 1, new float[] {-0.5f, 2f, 0f, 0.5f,   1f, 1f, 1f, 1f,   0f, 0f});
+		assertVertex(mesh, 2, new float[] {0f, 0f, 1f, 1f,   1f, 0f, 0.5f, 1f,   0f, 0f});
+		assertVertex(mesh, 3, new float[] {0f, 1f, 1f, 1f,   0.2f, 0.4f, 0.6f, 0.8f,   0f, 0f});
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_obj_floatsMatchFloatParseFloat() throws IOException {
+		Random random = new Random(3);
+		int count = 3000;
+		String[] numbers = new String[3 * count];
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < numbers.length; i++) {
+			float value = (random.nextFloat() - 0.5f)
+					* (float) Math.pow(10.0, random.nextInt(16) - 8);
+			switch (i % 3) {
+			case 0:
+				numbers[i] = Float.toString(value);
+				break;
+			case 1:
+				numbers[i] = String.format("%.6f", value);
+				break;
+			default:
+				numbers[i] = Double.toString(random.nextDouble() * 1000.0);
+				break;
+			}
+		}
+		for (int i = 0; i < count; i++) {
+			text.append("v ").append(numbers[3 * i]).append(' ').append(numbers[3 * i + 1])
+				.append(' ').append(numbers[3 * i + 2]).append('\n');
+		}
+
+		MeshData mesh = readObj(text.toString());
+		assertEquals(count, mesh.getVertexCount());
+		for (int i = 0; i < count; i++) {
+			float[] position = mesh.getVertex(i).getXYZW();
+			for (int k = 0; k < 3; k++) {
+				assertEquals(numbers[3 * i + k], Float.parseFloat(numbers[3 * i + k]),
+						position[k], 0f);
+			}
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_obj_parallelMatchesSerial() throws IOException {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			MeshImporter parallel = new MeshImporter(1000, pool);
+			for (boolean texCoords : new boolean[] {true, false}) {
+				ByteBuffer text = TestMeshes.createObjGrid(60, texCoords);
+				MeshData expected = importer.readObj(text, "grid.obj");
+				assertEquals(61 * 61, expected.getVertexCount());
+				assertEquals(2 * 60 * 60, expected.getTriangleCount());
+				assertSameMesh(expected, parallel.readObj(text, "grid.obj"));
+			}
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_ply() throws IOException {
+		for (ByteOrder order : new ByteOrder[] {ByteOrder.LITTLE_ENDIAN, ByteOrder.BIG_ENDIAN}) {
+			// Three vertices with a double position and a skipped normal, an
+			// element with a list to skip, and a quad and a triangle with a
+			// trailing property.
+			String header = "ply\n"
+					+ "format " + (order == ByteOrder.LITTLE_ENDIAN ? "binary_little_endian"
+							: "binary_big_endian") + " 1.0\n"
+					+ "element vertex 4\n"
+					+ "property double x\nproperty float y\nproperty float z\n"
+					+ "property float nx\nproperty uchar red\nproperty ushort green\n"
+					+ "property float u\nproperty float v\n"
+					+ "element material 2\nproperty list uchar float values\n"
+					+ "element face 2\nproperty list uchar uint vertex_indices\n"
+					+ "property uchar flags\n"
+					+ "end_header\n";
+			byte[] headerBytes = header.getBytes(StandardCharsets.US_ASCII);
+			ByteBuffer file = ByteBuffer.allocate(headerBytes.length + 256).order(order);
+			file.put(headerBytes);
+			for (int i = 0; i < 4; i++) {
+				file.putDouble(i).putFloat(2 * i).putFloat(-i).putFloat(9f);
+				file.put((byte) 255).putShort((short) 0).putFloat(0.25f * i).putFloat(1f);
+			}
+			file.put((byte) 1).putFloat(5f).put((byte) 0);
+			file.put((byte) 4).putInt(0).putInt(1).putInt(2).putInt(3).put((byte) 7);
+			file.put((byte) 3).putInt(3).putInt(2).putInt(1).put((byte) 7);
+			file.flip();
+
+			MeshData mesh = importer.readPly(file, "test.ply");
+			assertEquals(0, file.position());
+			assertEquals(4, mesh.getVertexCount());
+			assertArrayEquals(new int[] {0, 1, 2, 0, 2, 3, 3, 2, 1}, getIndices(mesh));
+			assertVertex(mesh, 3, new float[] {3f, 6f, -3f, 1f,   1f, 0f, 1f, 1f,   0.75f, 1f});
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_ply_parallelMatchesSerial() throws IOException {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			MeshImporter parallel = new MeshImporter(1000, pool);
+			ByteBuffer file = TestMeshes.createPlyGrid(60, ByteOrder.BIG_ENDIAN);
+			MeshData expected = importer.readPly(file, "grid.ply");
+			assertEquals(61 * 61, expected.getVertexCount());
+			assertEquals(2 * 60 * 60, expected.getTriangleCount());
+			assertSameMesh(expected, parallel.readPly(file, "grid.ply"));
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_load_mapsFiles() throws IOException {
+		ForkJoinPool pool = new ForkJoinPool(2);
+		try {
+			MeshImporter parallel = new MeshImporter(4096, pool);
+			for (String name : new String[] {"grid.obj", "grid.ply"}) {
+				File file = new File(directory, name);
+				TestMeshes.writeGridFile(file, 40);
+				MeshData mesh = parallel.load(file);
+				assertEquals(41 * 41, mesh.getVertexCount());
+				assertEquals(2 * 40 * 40, mesh.getTriangleCount());
+				assertSameMesh(importer.load(file), mesh);
+			}
+
+			// The same grid imports to the same corners from either format. OBJ
+			// vertices are numbered in order of first use, so compare the first
+			// triangle of each cell, which both files wind the same way.
+			MeshData obj = importer.load(new File(directory, "grid.obj"));
+			MeshData ply = importer.load(new File(directory, "grid.ply"));
+			int[] objIndices = getIndices(obj);
+			int[] plyIndices = getIndices(ply);
+			for (int cell = 0; cell < 40 * 40; cell += 37) {
+				for (int corner = 0; corner < 3; corner++) {
+					TexturedVertex a = obj.getVertex(objIndices[6 * cell + corner]);
+					TexturedVertex b = ply.getVertex(plyIndices[6 * cell + corner]);
+					assertArrayEquals(a.getXYZW(), b.getXYZW(), 0f);
+					assertArrayEquals(a.getST(), b.getST(), 0f);
+				}
+			}
+		}
+		finally {
+			pool.shutdown();
+		}
+
+		File text = new File(directory, "mesh.txt");
+		try (OutputStream out = new FileOutputStream(text)) {
+			out.write('v');
+		}
+		try {
+			importer.load(text);
+			fail("Expected IOException.");
+		} catch (IOException e) { }
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_malformedFiles() {
+		String[] objs = {
+				"v 1 x 3\n",
+				"v 1 2 3\nv 1 2 3\nf 1 2 4\n",
+				"v 1 2 3\nv 1 2 3\nv 1 2 3\nf 1 -4 2\n",
+				"v 1 2 3\nv 1 2 3\nf 1 2\n",
+				"v 1 2 3\nv 1 2 3\nv 1 2 3\nf 1/1 2/1 3/1\n",
+				"v 1 2 3 4 5\n",
+				"v 1 2 3e\n",
+		};
+		for (String obj : objs) {
+			try {
+				readObj(obj);
+				fail("Expected IOException for " + obj);
+			} catch (IOException e) {
+				assertTrue(e.getMessage().startsWith("test.obj: "));
+			}
+		}
+
+		String[] plys = {
+				"ply\nformat ascii 1.0\nelement vertex 0\nproperty float x\nend_header\n",
+				"ply\nformat binary_little_endian 1.0\nelement vertex 1\n"
+						+ "property float x\nproperty float y\nproperty float z\nend_header\n",
+				"ply\nformat binary_little_endian 1.0\nelement vertex 0\n"
+						+ "property float x\nproperty float y\nend_header\n",
+				"ply\nformat binary_little_endian 1.0\nelement vertex 0\n"
+						+ "property float x\nproperty float y\nproperty float z\n"
+						+ "element face 1\nproperty list uchar int vertex_indices\nend_header\n"
+						+ "\u0003\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000"
+						+ "\u0000\u0000\u0000\u0000",
+				"format binary_little_endian 1.0\nend_header\n",
+		};
+		for (String ply : plys) {
+			try {
+				importer.readPly(ByteBuffer.wrap(ply.getBytes(StandardCharsets.ISO_8859_1)),
+						"test.ply");
+				fail("Expected IOException for " + ply);
+			} catch (IOException e) { }
+		}
+	}
+}
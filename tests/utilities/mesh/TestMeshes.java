@@ -0,0 +1,186 @@
+package utilities.mesh;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Generates grid meshes as OBJ text and binary PLY files for mesh import
+ * tests and benchmarks. A grid of size n has (n + 1)^2 vertices on a gently
+ * curved sheet, with texture coordinates spanning [0, 1], and n^2 cells.
+ *
+ * @author Dustin Biser
+ *
+ */
+public class TestMeshes {
+
+	//--------------------------------------------------------------------------
+	private static float height(int row, int column) {
+		return 0.25f * (float) (Math.sin(0.1 * row) * Math.cos(0.07 * column));
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Writes a grid as OBJ text, each cell split into two triangles.
+	 *
+	 * @param out
+	 * @param size - number of cells along each side.
+	 * @param texCoords - whether to write texture coordinates and reference
+	 *        them from faces.
+	 * @throws IOException
+	 */
+	public static void writeObjGrid(OutputStream out, int size, boolean texCoords)
+			throws IOException {
+		StringBuilder line = new StringBuilder(128);
+		line.append("# ").append(size).append('x').append(size).append(" grid\n");
+		for (int row = 0; row <= size; row++) {
+			for (int column = 0; column <= size; column++) {
+				line.append("v ").append((float) column / size).append(' ')
+					.append(height(row, column)).append(' ')
+					.append(-(float) row / size).append('\n');
+			}
+			flush(line, out);
+		}
+		if (texCoords) {
+			for (int row = 0; row <= size; row++) {
+				for (int column = 0; column <= size; column++) {
+					line.append("vt ").append((float) column / size).append(' ')
+						.append((float) row / size).append('\n');
+				}
+				flush(line, out);
+			}
+		}
+		line.append("g grid\ns 1\n");
+		for (int row = 0; row < size; row++) {
+			for (int column = 0; column < size; column++) {
+				int v00 = row * (size + 1) + column + 1;
+				int v01 = v00 + 1;
+				int v10 = v00 + size + 1;
+				int v11 = v10 + 1;
+				appendObjTriangle(line, v00, v01, v11, texCoords);
+				appendObjTriangle(line, v11, v10, v00, texCoords);
+			}
+			flush(line, out);
+		}
+		flush(line, out);
+	}
+
+	//--------------------------------------------------------------------------
+	private static void appendObjTriangle(StringBuilder line, int a, int b, int c,
+			boolean texCoords) {
+		line.append('f');
+		for (int index : new int[] {a, b, c}) {
+			line.append(' ').append(index);
+			if (texCoords) {
+				line.append('/').append(index);
+			}
+		}
+		line.append('\n');
+	}
+
+	//--------------------------------------------------------------------------
+	private static void flush(StringBuilder line, OutputStream out) throws IOException {
+		out.write(line.toString().getBytes(StandardCharsets.US_ASCII));
+		line.setLength(0);
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Writes a grid as a binary PLY file with float positions and texture
+	 * coordinates, byte colors and one quad per cell.
+	 *
+	 * @param out
+	 * @param size - number of cells along each side.
+	 * @param order - byte order of the file.
+	 * @throws IOException
+	 */
+	public static void writePlyGrid(OutputStream out, int size, ByteOrder order)
+			throws IOException {
+		int vertexCount = (size + 1) * (size + 1);
+		String header = "ply\n"
+				+ "format " + (order == ByteOrder.LITTLE_ENDIAN ? "binary_little_endian"
+						: "binary_big_endian") + " 1.0\n"
+				+ "comment generated grid\n"
+				+ "element vertex " + vertexCount + "\n"
+				+ "property float x\nproperty float y\nproperty float z\n"
+				+ "property uchar red\nproperty uchar green\nproperty uchar blue\n"
+				+ "property float s\nproperty float t\n"
+				+ "element face " + (size * size) + "\n"
+				+ "property list uchar int vertex_indices\n"
+				+ "end_header\n";
+		out.write(header.getBytes(StandardCharsets.US_ASCII));
+
+		ByteBuffer record = ByteBuffer.allocate(64 * 1024).order(order);
+		for (int row = 0; row <= size; row++) {
+			for (int column = 0; column <= size; column++) {
+				if (record.remaining() < 23) {
+					flush(record, out);
+				}
+				record.putFloat((float) column / size).putFloat(height(row, column))
+					  .putFloat(-(float) row / size);
+				record.put((byte) column).put((byte) row).put((byte) 255);
+				record.putFloat((float) column / size).putFloat((float) row / size);
+			}
+		}
+		for (int row = 0; row < size; row++) {
+			for (int column = 0; column < size; column++) {
+				if (record.remaining() < 17) {
+					flush(record, out);
+				}
+				int v00 = row * (size + 1) + column;
+				record.put((byte) 4).putInt(v00).putInt(v00 + 1)
+					  .putInt(v00 + size + 2).putInt(v00 + size + 1);
+			}
+		}
+		flush(record, out);
+	}
+
+	//--------------------------------------------------------------------------
+	private static void flush(ByteBuffer record, OutputStream out) throws IOException {
+		out.write(record.array(), 0, record.position());
+		record.clear();
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return a grid as OBJ text, in a heap buffer.
+	 */
+	public static ByteBuffer createObjGrid(int size, boolean texCoords) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		writeObjGrid(out, size, texCoords);
+		return ByteBuffer.wrap(out.toByteArray());
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return a grid as a binary PLY file, in a heap buffer.
+	 */
+	public static ByteBuffer createPlyGrid(int size, ByteOrder order) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		writePlyGrid(out, size, order);
+		return ByteBuffer.wrap(out.toByteArray());
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Writes a grid to <code>file</code>, as OBJ with texture coordinates or
+	 * little endian PLY depending on its extension.
+	 */
+	public static void writeGridFile(File file, int size) throws IOException {
+		try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file),
+				1 << 20)) {
+			if (file.getName().endsWith(".ply")) {
+				writePlyGrid(out, size, ByteOrder.LITTLE_ENDIAN);
+			}
+			else {
+				writeObjGrid(out, size, true);
+			}
+		}
+	}
+}
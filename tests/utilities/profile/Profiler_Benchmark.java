@@ -0,0 +1,63 @@
+package utilities.profile;
+
+import util.profile.Profiler;
+import utilities.benchmark.BenchmarkRunner;
+import utilities.benchmark.BenchmarkTask;
+import utilities.benchmark.Blackhole;
+
+/**
+ * Cost of a pair of {@link Profiler#begin(int)} and {@link Profiler#end(int)}
+ * calls around a trivial amount of work, with the profiler disabled and
+ * enabled, against the work alone.
+ *
+ * Usage: <code>Profiler_Benchmark [resultsFile.json]</code>
+ *
+ * @author Dustin Biser
+ *
+ */
+public class Profiler_Benchmark {
+
+	//--------------------------------------------------------------------------
+	private static class ScopeTask extends BenchmarkTask {
+		private final Profiler profiler;
+		private final int scope;
+		private final boolean instrumented;
+		private long value = 1;
+
+		ScopeTask(boolean instrumented, boolean enabled) {
+			this.profiler = new Profiler();
+			this.profiler.setEnabled(enabled);
+			this.scope = profiler.scope("work");
+			this.instrumented = instrumented;
+		}
+
+		@Override
+		public void run(Blackhole blackhole) {
+			int batchSize = getBatchSize();
+			if (instrumented) {
+				for (int i = 0; i < batchSize; i++) {
+					profiler.begin(scope);
+					value = value * 6364136223846793005L + 1442695040888963407L;
+					profiler.end(scope);
+				}
+			}
+			else {
+				for (int i = 0; i < batchSize; i++) {
+					value = value * 6364136223846793005L + 1442695040888963407L;
+				}
+			}
+			blackhole.consume(value);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	public static void main(String args[]) {
+		final int[] batchSizes = {100000};
+
+		BenchmarkRunner runner = new BenchmarkRunner("Profiler");
+		runner.add("uninstrumented", batchSizes, new ScopeTask(false, false));
+		runner.add("disabled", batchSizes, new ScopeTask(true, false));
+		runner.add("enabled", batchSizes, new ScopeTask(true, true));
+		runner.runAndWrite(args);
+	}
+}
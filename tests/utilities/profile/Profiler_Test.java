@@ -0,0 +1,170 @@
+package utilities.profile;
+
+import static org.junit.Assert.*;
+
+import java.io.StringWriter;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import util.profile.Profiler;
+import util.profile.Profiler.ScopeStatistics;
+
+public class Profiler_Test {
+	private Profiler profiler;
+	private int frame;
+	private int logic;
+	private int render;
+
+	@Before
+	public void setUp() {
+		profiler = new Profiler(64);
+		profiler.setEnabled(true);
+		frame = profiler.scope("frame");
+		logic = profiler.scope("logic");
+		render = profiler.scope("render");
+	}
+
+	//--------------------------------------------------------------------------
+	// Helper Method
+	private void recordFrames(int count) {
+		for (int i = 0; i < count; i++) {
+			profiler.begin(frame);
+			profiler.begin(logic);
+			profiler.end(logic);
+			profiler.begin(render);
+			profiler.end(render);
+			profiler.end(frame);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	// Helper Method
+	private static int countOccurrences(String text, String pattern) {
+		int count = 0;
+		for (int i = text.indexOf(pattern); i >= 0; i = text.indexOf(pattern, i + 1)) {
+			count++;
+		}
+		return count;
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_scope_sameNameSameId() {
+		assertEquals(logic, profiler.scope("logic"));
+		assertEquals("render", profiler.getScopeName(render));
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_statistics_perScope() {
+		recordFrames(5);
+
+		List<ScopeStatistics> statistics = profiler.getStatistics();
+		assertEquals(3, statistics.size());
+		for (ScopeStatistics scope : statistics) {
+			assertEquals(5, scope.getCount());
+			assertTrue(scope.getMinNanos() <= scope.getMeanNanos());
+			assertTrue(scope.getMeanNanos() <= scope.getMaxNanos());
+		}
+
+		// A parent lasts at least as long as its children.
+		ScopeStatistics frameStatistics = statistics.get(0);
+		assertEquals("frame", frameStatistics.getName());
+		assertTrue(frameStatistics.getTotalNanos() >= statistics.get(1).getTotalNanos()
+				+ statistics.get(2).getTotalNanos());
+
+		assertTrue(profiler.getSummary().contains("render"));
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_ringBuffer_keepsMostRecent() {
+		recordFrames(100);
+
+		long total = 0;
+		for (ScopeStatistics scope : profiler.getStatistics()) {
+			total += scope.getCount();
+		}
+		assertEquals(profiler.getCapacity(), total);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_disabled_recordsNothing() {
+		profiler.setEnabled(false);
+		recordFrames(10);
+
+		assertTrue(profiler.getStatistics().isEmpty());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_scopeBegunWhileDisabled_ignored() {
+		profiler.setEnabled(false);
+		profiler.begin(frame);
+		profiler.setEnabled(true);
+		profiler.end(frame);
+
+		assertTrue(profiler.getStatistics().isEmpty());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test(expected = IllegalStateException.class)
+	public void test_mismatchedEnd() {
+		profiler.begin(frame);
+		profiler.begin(logic);
+		profiler.end(frame);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_chromeTrace() throws Exception {
+		int quoted = profiler.scope("say \"hi\"\\");
+		recordFrames(2);
+		profiler.begin(quoted);
+		profiler.end(quoted);
+
+		StringWriter out = new StringWriter();
+		profiler.writeChromeTrace(out);
+		String trace = out.toString();
+
+		assertTrue(trace.startsWith("{\"traceEvents\":["));
+		assertTrue(trace.trim().endsWith("]}"));
+		assertEquals(7, countOccurrences(trace, "\"ph\":\"X\""));
+		assertEquals(1, countOccurrences(trace, "\"ph\":\"M\""));
+		assertTrue(trace.contains("\"name\":\"say \\\"hi\\\"\\\\\""));
+		assertTrue(trace.contains("\"name\":\"" + Thread.currentThread().getName() + "\""));
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_threadsRecordSeparately() throws Exception {
+		Thread worker = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				recordFrames(3);
+			}
+		}, "worker");
+		worker.start();
+		recordFrames(2);
+		worker.join();
+
+		assertEquals(5, profiler.getStatistics().get(0).getCount());
+
+		StringWriter out = new StringWriter();
+		profiler.writeChromeTrace(out);
+		assertTrue(out.toString().contains("\"name\":\"worker\""));
+		assertTrue(out.toString().contains("\"tid\":2"));
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_clear() {
+		recordFrames(3);
+		profiler.clear();
+
+		assertTrue(profiler.getStatistics().isEmpty());
+	}
+}
@@ -0,0 +1,168 @@
+package utilities.scene;
+
+import java.util.Random;
+
+import org.lwjgl.util.vector.Matrix4f;
+import org.lwjgl.util.vector.Vector3f;
+
+import util.math.Quaternion;
+import util.scene.TransformHierarchy;
+import utilities.benchmark.BenchmarkRunner;
+import utilities.benchmark.BenchmarkTask;
+import utilities.benchmark.Blackhole;
+
+/**
+ * World matrix throughput, in nodes per millisecond, of a
+ * {@link TransformHierarchy} versus composing loose Matrix4f objects node by
+ * node. The scene is a forest in which a sixty-fourth of the nodes are roots
+ * and every other node has four children, about four levels deep. The
+ * hierarchy is updated with every node dirty, with one percent of nodes
+ * dirty, and with none dirty.
+ *
+ * Usage: <code>TransformHierarchy_Benchmark [resultsFile.json]</code>
+ *
+ * @author Dustin Biser
+ *
+ */
+public class TransformHierarchy_Benchmark {
+	private static final int[] BATCH_SIZES = {1000, 100000, 1000000};
+
+	//--------------------------------------------------------------------------
+	private static abstract class SceneTask extends BenchmarkTask {
+		protected int[] parents;
+		protected Vector3f[] translations;
+		protected Quaternion[] rotations;
+		protected Vector3f[] scales;
+
+		@Override
+		public void setup(int batchSize) {
+			Random random = new Random(batchSize);
+			int rootCount = Math.max(1, batchSize / 64);
+			parents = new int[batchSize];
+			translations = new Vector3f[batchSize];
+			rotations = new Quaternion[batchSize];
+			scales = new Vector3f[batchSize];
+			for (int i = 0; i < batchSize; i++) {
+				parents[i] = i < rootCount ? TransformHierarchy.NO_PARENT : (i - rootCount) / 4;
+				translations[i] = new Vector3f(random.nextFloat(), random.nextFloat(),
+						random.nextFloat());
+				rotations[i] = new Quaternion(new Vector3f(0f, 1f, 0f), random.nextFloat());
+				scales[i] = new Vector3f(1f, 1f, 1f);
+			}
+		}
+
+		@Override
+		public void teardown() {
+			parents = null;
+			translations = null;
+			rotations = null;
+			scales = null;
+		}
+
+		@Override
+		public String unit() {
+			return "nodes/ms";
+		}
+
+		@Override
+		public double unitsPerInvocation() {
+			return getBatchSize() / 1000.0;
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	private static class HierarchyTask extends SceneTask {
+		private final int dirtyStride;
+		private TransformHierarchy hierarchy;
+		private float step = 0.01f;
+
+		/**
+		 * @param dirtyStride - one node in this many is moved before each
+		 *        update, or 0 for none.
+		 */
+		HierarchyTask(int dirtyStride) {
+			this.dirtyStride = dirtyStride;
+		}
+
+		@Override
+		public void setup(int batchSize) {
+			super.setup(batchSize);
+			hierarchy = new TransformHierarchy(batchSize);
+			for (int i = 0; i < batchSize; i++) {
+				int node = hierarchy.createNode(parents[i]);
+				Vector3f t = translations[i];
+				hierarchy.setTranslation(node, t.x, t.y, t.z);
+				hierarchy.setRotation(node, rotations[i]);
+			}
+			hierarchy.update();
+		}
+
+		@Override
+		public void teardown() {
+			super.teardown();
+			hierarchy = null;
+		}
+
+		@Override
+		public void run(Blackhole blackhole) {
+			if (dirtyStride > 0) {
+				step = -step;
+				for (int node = 0; node < getBatchSize(); node += dirtyStride) {
+					hierarchy.translate(node, step, 0f, 0f);
+				}
+			}
+			hierarchy.update();
+			blackhole.consume(hierarchy.getWorldMatrices().m[12]);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	public static void main(String args[]) {
+		BenchmarkRunner runner = new BenchmarkRunner("TransformHierarchy");
+
+		runner.add("matrix4f_objects", BATCH_SIZES, new SceneTask() {
+			private Matrix4f[] worlds;
+			private Matrix4f local = new Matrix4f();
+			private Matrix4f rotation = new Matrix4f();
+
+			@Override
+			public void setup(int batchSize) {
+				super.setup(batchSize);
+				worlds = new Matrix4f[batchSize];
+				for (int i = 0; i < batchSize; i++) {
+					worlds[i] = new Matrix4f();
+				}
+			}
+
+			@Override
+			public void teardown() {
+				super.teardown();
+				worlds = null;
+			}
+
+			@Override
+			public void run(Blackhole blackhole) {
+				for (int i = 0; i < getBatchSize(); i++) {
+					local.setIdentity();
+					local.translate(translations[i]);
+					rotations[i].toRotationMatrix(rotation);
+					Matrix4f.mul(local, rotation, local);
+					local.scale(scales[i]);
+					if (parents[i] == TransformHierarchy.NO_PARENT) {
+						worlds[i].load(local);
+					}
+					else {
+						Matrix4f.mul(worlds[parents[i]], local, worlds[i]);
+					}
+				}
+				blackhole.consume(worlds[0].m30);
+			}
+		});
+
+		runner.add("hierarchy_allDirty", BATCH_SIZES, new HierarchyTask(1));
+		runner.add("hierarchy_1percentDirty", BATCH_SIZES, new HierarchyTask(100));
+		runner.add("hierarchy_clean", BATCH_SIZES, new HierarchyTask(0));
+
+		runner.runAndWrite(args);
+	}
+}
@@ -0,0 +1,333 @@
+package utilities.scene;
+
+import static org.junit.Assert.*;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.util.vector.Matrix4f;
+import org.lwjgl.util.vector.Vector3f;
+
+import util.math.Matrix4Batch;
+import util.math.Quaternion;
+import util.scene.TransformHierarchy;
+
+public class TransformHierarchy_Test {
+	private static final float TOLERANCE = 1e-4f;
+	private static final int NODE_COUNT = 2000;
+
+	private TransformHierarchy hierarchy;
+	private Random random;
+
+	// Reference copy of each node's parent and local transform, by node id.
+	private int[] parents;
+	private Matrix4f[] locals;
+
+	@Before
+	public void setUp() throws Exception {
+		hierarchy = new TransformHierarchy();
+		random = new Random(7);
+		parents = new int[NODE_COUNT];
+		locals = new Matrix4f[NODE_COUNT];
+	}
+
+	//--------------------------------------------------------------------------
+	// Helper Method
+	private void setRandomTransform(TransformHierarchy hierarchy, int node) {
+		Vector3f t = new Vector3f(random.nextFloat() * 2f - 1f,
+				random.nextFloat() * 2f - 1f, random.nextFloat() * 2f - 1f);
+		Quaternion q = new Quaternion(random.nextFloat() - 0.5f,
+				random.nextFloat() - 0.5f, random.nextFloat() - 0.5f,
+				random.nextFloat() - 0.5f);
+		q.normalize();
+		Vector3f s = new Vector3f(random.nextFloat() + 0.5f,
+				random.nextFloat() + 0.5f, random.nextFloat() + 0.5f);
+
+		hierarchy.setTranslation(node, t.x, t.y, t.z);
+		hierarchy.setRotation(node, q);
+		hierarchy.setScale(node, s.x, s.y, s.z);
+
+		Matrix4f local = new Matrix4f();
+		local.translate(t);
+		Matrix4f.mul(local, q.toRotationMatrix(), local);
+		local.scale(s);
+		locals[node] = local;
+	}
+
+	//--------------------------------------------------------------------------
+	// Helper Method
+	/**
+	 * Creates NODE_COUNT nodes, each a root or the child of a random earlier
+	 * node, so that nodes are not created in depth order.
+	 */
+	private void createRandomForest(TransformHierarchy hierarchy) {
+		for (int i = 0; i < NODE_COUNT; i++) {
+			int parent = i < 4 ? TransformHierarchy.NO_PARENT : random.nextInt(i);
+			int node = hierarchy.createNode(parent);
+			assertEquals(i, node);
+			parents[node] = parent;
+			setRandomTransform(hierarchy, node);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	// Helper Method
+	private Matrix4f expectedWorld(int node) {
+		Matrix4f world = new Matrix4f(locals[node]);
+		for (int p = parents[node]; p != TransformHierarchy.NO_PARENT; p = parents[p]) {
+			Matrix4f.mul(locals[p], world, world);
+		}
+		return world;
+	}
+
+	//--------------------------------------------------------------------------
+	// Helper Method
+	private static void assertMatrixEquals(String message, Matrix4f expected,
+			Matrix4f actual) {
+		FloatBuffer e = BufferUtils.createFloatBuffer(16);
+		FloatBuffer a = BufferUtils.createFloatBuffer(16);
+		expected.store(e);
+		actual.store(a);
+		for (int i = 0; i < 16; i++) {
+			assertEquals(message + ", element " + i, e.get(i), a.get(i), TOLERANCE);
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	// Helper Method
+	private void assertWorldMatrices(TransformHierarchy hierarchy, boolean[] alive) {
+		Matrix4f actual = new Matrix4f();
+		for (int node = 0; node < NODE_COUNT; node++) {
+			if (alive == null || alive[node]) {
+				hierarchy.getWorldMatrix(node, actual);
+				assertMatrixEquals("node " + node, expectedWorld(node), actual);
+			}
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_rootAndChild() {
+		int root = hierarchy.createNode(TransformHierarchy.NO_PARENT);
+		int child = hierarchy.createNode(root);
+		hierarchy.setTranslation(root, 0f, 0f, -10f);
+		hierarchy.setRotation(root, new Quaternion(new Vector3f(0f, 1f, 0f),
+				(float) Math.PI / 2));
+		hierarchy.setTranslation(child, 1f, 0f, 0f);
+		hierarchy.setScale(child, 2f, 2f, 2f);
+		hierarchy.update();
+
+		// The child sits one unit along the root's rotated x axis, which is
+		// -z, and is scaled by two.
+		Matrix4f world = new Matrix4f();
+		hierarchy.getWorldMatrix(child, world);
+		assertEquals(0f, world.m30, TOLERANCE);
+		assertEquals(0f, world.m31, TOLERANCE);
+		assertEquals(-11f, world.m32, TOLERANCE);
+		assertEquals(-2f, world.m02, TOLERANCE);
+		assertEquals(2f, world.m20, TOLERANCE);
+
+		assertEquals(root, hierarchy.getParent(child));
+		assertEquals(2, hierarchy.getLevelCount());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_update_matchesReference() {
+		createRandomForest(hierarchy);
+		hierarchy.update();
+		assertWorldMatrices(hierarchy, null);
+
+		// Every parent is stored before its children.
+		for (int node = 0; node < NODE_COUNT; node++) {
+			if (parents[node] != TransformHierarchy.NO_PARENT) {
+				assertTrue(hierarchy.indexOf(parents[node]) < hierarchy.indexOf(node));
+			}
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_update_recomputesOnlyDirtySubtrees() {
+		createRandomForest(hierarchy);
+		hierarchy.update();
+
+		int changed = 10;
+		boolean[] isAncestor = new boolean[NODE_COUNT];
+		for (int p = parents[changed]; p != TransformHierarchy.NO_PARENT; p = parents[p]) {
+			isAncestor[p] = true;
+		}
+
+		// Overwrite the stored world matrix of every node but the ancestors of
+		// the changed node, so that those recomputed by the next update can be
+		// told apart from those that were skipped.
+		float[] m = hierarchy.getWorldMatrices().m;
+		for (int node = 0; node < NODE_COUNT; node++) {
+			if (!isAncestor[node]) {
+				int offset = hierarchy.indexOf(node) * Matrix4Batch.FLOATS_PER_MATRIX;
+				Arrays.fill(m, offset, offset + Matrix4Batch.FLOATS_PER_MATRIX, 7f);
+			}
+		}
+
+		setRandomTransform(hierarchy, changed);
+		hierarchy.update();
+
+		Matrix4f actual = new Matrix4f();
+		int recomputed = 0;
+		for (int node = 0; node < NODE_COUNT; node++) {
+			boolean inSubtree = false;
+			for (int p = node; p != TransformHierarchy.NO_PARENT; p = parents[p]) {
+				inSubtree |= p == changed;
+			}
+			hierarchy.getWorldMatrix(node, actual);
+			if (inSubtree || isAncestor[node]) {
+				assertMatrixEquals("node " + node, expectedWorld(node), actual);
+				recomputed += inSubtree ? 1 : 0;
+			}
+			else {
+				assertEquals("node " + node, 7f, actual.m00, 0f);
+			}
+		}
+		assertTrue(recomputed > 1);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_wasUpdated_onlyChangedSubtree() {
+		createRandomForest(hierarchy);
+		hierarchy.update();
+		for (int node = 0; node < NODE_COUNT; node++) {
+			assertTrue("node " + node, hierarchy.wasUpdated(node));
+		}
+
+		hierarchy.update();
+		for (int node = 0; node < NODE_COUNT; node++) {
+			assertFalse("node " + node, hierarchy.wasUpdated(node));
+		}
+
+		int changed = 10;
+		setRandomTransform(hierarchy, changed);
+		hierarchy.update();
+		for (int node = 0; node < NODE_COUNT; node++) {
+			boolean inSubtree = false;
+			for (int p = node; p != TransformHierarchy.NO_PARENT; p = parents[p]) {
+				inSubtree |= p == changed;
+			}
+			assertEquals("node " + node, inSubtree, hierarchy.wasUpdated(node));
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_translate() {
+		int node = hierarchy.createNode(TransformHierarchy.NO_PARENT);
+		hierarchy.translate(node, 1f, 2f, 3f);
+		hierarchy.translate(node, 1f, 0f, 0f);
+		hierarchy.update();
+
+		Vector3f translation = new Vector3f();
+		hierarchy.getTranslation(node, translation);
+		assertEquals(2f, translation.x, 0f);
+		assertEquals(2f, translation.y, 0f);
+		assertEquals(3f, translation.z, 0f);
+		Matrix4f world = new Matrix4f();
+		hierarchy.getWorldMatrix(node, world);
+		assertEquals(2f, world.m30, 0f);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_setParent() {
+		createRandomForest(hierarchy);
+		hierarchy.update();
+
+		// Make node 100 a root, and move another root under the last node.
+		int last = NODE_COUNT - 1;
+		int lastRoot = last;
+		while (parents[lastRoot] != TransformHierarchy.NO_PARENT) {
+			lastRoot = parents[lastRoot];
+		}
+		int moved = lastRoot == 0 ? 1 : 0;
+		hierarchy.setParent(100, TransformHierarchy.NO_PARENT);
+		parents[100] = TransformHierarchy.NO_PARENT;
+		hierarchy.setParent(moved, last);
+		parents[moved] = last;
+		hierarchy.update();
+		assertWorldMatrices(hierarchy, null);
+		assertEquals(last, hierarchy.getParent(moved));
+
+		// A node cannot be moved under its own descendant.
+		try {
+			hierarchy.setParent(parents[last], last);
+			fail("Expected IllegalArgumentException.");
+		} catch (IllegalArgumentException e) { }
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_remove() {
+		createRandomForest(hierarchy);
+		hierarchy.update();
+
+		int removed = 5;
+		hierarchy.remove(removed);
+
+		boolean[] alive = new boolean[NODE_COUNT];
+		int aliveCount = 0;
+		for (int node = 0; node < NODE_COUNT; node++) {
+			alive[node] = true;
+			for (int p = node; p != TransformHierarchy.NO_PARENT; p = parents[p]) {
+				alive[node] &= p != removed;
+			}
+			aliveCount += alive[node] ? 1 : 0;
+		}
+		assertTrue(aliveCount < NODE_COUNT - 1);
+		assertEquals(aliveCount, hierarchy.getNodeCount());
+
+		hierarchy.update();
+		assertWorldMatrices(hierarchy, alive);
+
+		try {
+			hierarchy.setTranslation(removed, 0f, 0f, 0f);
+			fail("Expected IllegalArgumentException.");
+		} catch (IllegalArgumentException e) { }
+
+		// Ids of removed nodes are reused.
+		int node = hierarchy.createNode(TransformHierarchy.NO_PARENT);
+		assertFalse(alive[node]);
+		assertEquals(aliveCount + 1, hierarchy.getNodeCount());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_update_parallelMatchesSerial() {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			TransformHierarchy parallel = new TransformHierarchy(0, 64, pool);
+			createRandomForest(parallel);
+			parallel.update();
+			assertWorldMatrices(parallel, null);
+
+			for (int node = 0; node < NODE_COUNT; node += 3) {
+				setRandomTransform(parallel, node);
+			}
+			parallel.update();
+			assertWorldMatrices(parallel, null);
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	@Test(expected = IllegalArgumentException.class)
+	public void test_unknownNode() {
+		hierarchy.createNode(TransformHierarchy.NO_PARENT);
+		hierarchy.createNode(1);
+	}
+}
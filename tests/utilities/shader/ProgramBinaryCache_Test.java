@@ -0,0 +1,78 @@
+package utilities.shader;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.lwjgl.BufferUtils;
+
+import util.shader.ProgramBinaryCache;
+import util.shader.ProgramBinaryCache.ProgramBinary;
+
+public class ProgramBinaryCache_Test {
+	private File directory;
+	private ProgramBinaryCache cache;
+
+	@Before
+	public void setUp() throws Exception {
+		directory = Files.createTempDirectory("ProgramBinaryCache_Test").toFile();
+		cache = new ProgramBinaryCache(directory);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		for (File file : directory.listFiles()) {
+			file.delete();
+		}
+		directory.delete();
+	}
+
+	//--------------------------------------------------------------------------
+	// Helper Method
+	private static ProgramBinary createBinary(int format, int length) {
+		ByteBuffer data = BufferUtils.createByteBuffer(length);
+		for (int i = 0; i < length; i++) {
+			data.put((byte) (i * 7));
+		}
+		data.flip();
+		return new ProgramBinary(format, data);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_roundTrip() throws Exception {
+		ProgramBinary binary = createBinary(0x8e21, 300);
+		cache.store("hash", "driver", binary);
+
+		ProgramBinary loaded = cache.load("hash", "driver");
+
+		assertNotNull(loaded);
+		assertEquals(0x8e21, loaded.format);
+		assertTrue(loaded.data.isDirect());
+		assertEquals(binary.data, loaded.data);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_keyedByDriver() throws Exception {
+		cache.store("hash", "driver 1.0", createBinary(1, 16));
+
+		assertNull(cache.load("hash", "driver 1.1"));
+		assertNull(cache.load("other", "driver 1.0"));
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_corruptFileIsMiss() throws Exception {
+		cache.store("hash", "driver", createBinary(1, 64));
+		File file = directory.listFiles()[0];
+		Files.write(file.toPath(), new byte[] {1, 2, 3});
+
+		assertNull(cache.load("hash", "driver"));
+	}
+}
@@ -0,0 +1,210 @@
+package utilities.shader;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import util.shader.ShaderException;
+import util.shader.ShaderPreprocessor;
+import util.shader.ShaderProgramCache;
+import util.shader.ShaderSource;
+
+public class ShaderPreprocessor_Test {
+	private static final String BOX_VERTEX_SHADER =
+			"src/perspectiveBox/shaders/PosColorWorldTransform.vert";
+	private static final String BOX_FRAGMENT_SHADER =
+			"src/perspectiveBox/shaders/ColorPassthrough.frag";
+	private static final String TRIANGLE_VERTEX_SHADER =
+			"src/single_triangle/shaders/vertex.glsl";
+
+	private ShaderPreprocessor preprocessor;
+	private File directory;
+
+	@Before
+	public void setUp() throws Exception {
+		preprocessor = new ShaderPreprocessor();
+		directory = Files.createTempDirectory("ShaderPreprocessor_Test").toFile();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		File[] files = directory.listFiles();
+		for (File file : files) {
+			file.delete();
+		}
+		directory.delete();
+	}
+
+	//--------------------------------------------------------------------------
+	// Helper Method
+	private File write(String name, String contents) throws Exception {
+		File file = new File(directory, name);
+		Files.write(file.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_withoutDirectives_sourceUnchanged() throws Exception {
+		ShaderSource source = preprocessor.process(BOX_VERTEX_SHADER);
+		String contents = new String(Files.readAllBytes(new File(BOX_VERTEX_SHADER).toPath()),
+				StandardCharsets.UTF_8);
+
+		assertEquals(contents.replace("\r\n", "\n").trim(), source.getSource().trim());
+		assertEquals(1, source.getFiles().size());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_definesInsertedAfterVersion() {
+		Map<String, String> defines = new HashMap<String, String>();
+		defines.put("USE_FOG", "");
+		defines.put("LIGHT_COUNT", "4");
+
+		String[] lines = preprocessor.process(TRIANGLE_VERTEX_SHADER, defines)
+				.getSource().split("\n");
+
+		// The triangle shader begins with a comment and a blank line.
+		assertEquals("#version 150 core", lines[2]);
+		assertEquals("#define LIGHT_COUNT 4", lines[3]);
+		assertEquals("#define USE_FOG", lines[4]);
+		assertEquals("#line 4 0", lines[5]);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_hash_independentOfDefineOrder() {
+		Map<String, String> first = new LinkedHashMap<String, String>();
+		first.put("A", "1");
+		first.put("B", "2");
+		Map<String, String> second = new LinkedHashMap<String, String>();
+		second.put("B", "2");
+		second.put("A", "1");
+
+		assertEquals(preprocessor.process(BOX_VERTEX_SHADER, first).getHash(),
+				preprocessor.process(BOX_VERTEX_SHADER, second).getHash());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_hash_distinguishesPermutations() {
+		Map<String, String> defines = new HashMap<String, String>();
+		defines.put("A", "1");
+
+		String plain = preprocessor.process(BOX_VERTEX_SHADER).getHash();
+		String permuted = preprocessor.process(BOX_VERTEX_SHADER, defines).getHash();
+
+		assertEquals(40, plain.length());
+		assertFalse(plain.equals(permuted));
+		assertEquals(plain, preprocessor.process(BOX_VERTEX_SHADER).getHash());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_include_expandedWithLineDirectives() throws Exception {
+		write("common.glsl", "float square(float x) { return x * x; }\n");
+		File main = write("main.frag", "#version 330\n"
+				+ "#include \"common.glsl\"\n"
+				+ "void main() {}\n");
+
+		ShaderSource source = preprocessor.process(main.getPath());
+
+		assertEquals("#version 330\n"
+				+ "#line 1 1\n"
+				+ "float square(float x) { return x * x; }\n"
+				+ "#line 3 0\n"
+				+ "void main() {}\n", source.getSource());
+		assertEquals(2, source.getFiles().size());
+		assertEquals("common.glsl", source.getFiles().get(1).getName());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_include_searchesIncludeDirectories() throws Exception {
+		File includeDirectory = new File(directory, "include");
+		assertTrue(includeDirectory.mkdir());
+		Files.write(new File(includeDirectory, "lib.glsl").toPath(),
+				"// lib\n".getBytes(StandardCharsets.UTF_8));
+		File main = write("main.vert", "#include <lib.glsl>\n");
+
+		try {
+			String source = new ShaderPreprocessor(includeDirectory)
+					.process(main.getPath()).getSource();
+			assertTrue(source.contains("// lib\n"));
+		}
+		finally {
+			new File(includeDirectory, "lib.glsl").delete();
+			includeDirectory.delete();
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_pragmaOnce_includedOnce() throws Exception {
+		write("once.glsl", "#pragma once\nconst float PI = 3.14159;\n");
+		write("middle.glsl", "#include \"once.glsl\"\n");
+		File main = write("main.vert", "#include \"once.glsl\"\n#include \"middle.glsl\"\n");
+
+		String source = preprocessor.process(main.getPath()).getSource();
+
+		assertEquals(source.indexOf("const float PI"), source.lastIndexOf("const float PI"));
+	}
+
+	//--------------------------------------------------------------------------
+	@Test(expected = ShaderException.class)
+	public void test_include_circular() throws Exception {
+		write("a.glsl", "#include \"b.glsl\"\n");
+		write("b.glsl", "#include \"a.glsl\"\n");
+
+		preprocessor.process(new File(directory, "a.glsl").getPath());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_include_missingReportsLine() throws Exception {
+		File main = write("main.vert", "#version 330\n\n#include \"missing.glsl\"\n");
+
+		try {
+			preprocessor.process(main.getPath());
+			fail("Expected a ShaderException.");
+		}
+		catch (ShaderException e) {
+			assertTrue(e.getMessage().contains("main.vert:3"));
+			assertTrue(e.getMessage().contains("missing.glsl"));
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_changedFileIsReread() throws Exception {
+		File main = write("main.vert", "// one\n");
+		String before = preprocessor.process(main.getPath()).getHash();
+
+		write("main.vert", "// two, longer\n");
+		String after = preprocessor.process(main.getPath()).getHash();
+
+		assertFalse(before.equals(after));
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_programKey() {
+		ShaderSource vertex = preprocessor.process(BOX_VERTEX_SHADER);
+		ShaderSource fragment = preprocessor.process(BOX_FRAGMENT_SHADER);
+
+		assertEquals(ShaderProgramCache.programKey(vertex, fragment),
+				ShaderProgramCache.programKey(preprocessor.process(BOX_VERTEX_SHADER),
+						preprocessor.process(BOX_FRAGMENT_SHADER)));
+		assertFalse(ShaderProgramCache.programKey(vertex, fragment).equals(
+				ShaderProgramCache.programKey(fragment, vertex)));
+	}
+}
@@ -0,0 +1,181 @@
+package utilities.shader;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import util.graphics.HeadlessGraphicsDevice;
+import util.graphics.HeadlessGraphicsDevice.Command;
+import util.shader.ProgramBinaryCache;
+import util.shader.ShaderException;
+import util.shader.ShaderPreprocessor;
+import util.shader.ShaderProgramCache;
+import util.shader.ShaderSource;
+
+public class ShaderProgramCache_Test {
+	private static final String BOX_VERTEX_SHADER =
+			"src/perspectiveBox/shaders/PosColorWorldTransform.vert";
+	private static final String BOX_FRAGMENT_SHADER =
+			"src/perspectiveBox/shaders/ColorPassthrough.frag";
+
+	private HeadlessGraphicsDevice device;
+	private ShaderSource vertex;
+	private ShaderSource fragment;
+	private File directory;
+
+	@Before
+	public void setUp() throws Exception {
+		device = new HeadlessGraphicsDevice();
+		ShaderPreprocessor preprocessor = new ShaderPreprocessor();
+		vertex = preprocessor.process(BOX_VERTEX_SHADER);
+		fragment = preprocessor.process(BOX_FRAGMENT_SHADER);
+		directory = Files.createTempDirectory("ShaderProgramCache_Test").toFile();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		for (File file : directory.listFiles()) {
+			file.delete();
+		}
+		directory.delete();
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_identicalSources_builtOnce() {
+		ShaderProgramCache cache = new ShaderProgramCache(device, null);
+
+		int program = cache.getProgram(vertex, fragment);
+		ShaderSource sameVertex = new ShaderPreprocessor().process(BOX_VERTEX_SHADER);
+
+		assertEquals(program, cache.getProgram(sameVertex, fragment));
+		assertEquals(2, cache.getCompileCount());
+		assertEquals(1, cache.getLinkCount());
+		assertEquals(2, device.getCallCount(Command.COMPILE_SHADER));
+		assertEquals(1, device.getCallCount(Command.LINK_PROGRAM));
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_differentDefines_sharesUnchangedShader() {
+		ShaderProgramCache cache = new ShaderProgramCache(device, null);
+		ShaderSource definedFragment = new ShaderPreprocessor().process(BOX_FRAGMENT_SHADER,
+				Collections.singletonMap("FOG", "1"));
+
+		int program = cache.getProgram(vertex, fragment);
+
+		assertTrue(program != cache.getProgram(vertex, definedFragment));
+		assertEquals(3, cache.getCompileCount());
+		assertEquals(2, cache.getLinkCount());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_binaryCache_skipsCompileOnNextRun() throws Exception {
+		ShaderProgramCache firstRun = new ShaderProgramCache(device,
+				new ProgramBinaryCache(directory));
+		firstRun.getProgram(vertex, fragment);
+		assertEquals(1, device.getCallCount(Command.PROGRAM_PARAMETER));
+		assertEquals(1, device.getCallCount(Command.GET_PROGRAM_BINARY));
+		assertEquals(1, directory.listFiles().length);
+
+		HeadlessGraphicsDevice nextDevice = new HeadlessGraphicsDevice();
+		ShaderProgramCache nextRun = new ShaderProgramCache(nextDevice,
+				new ProgramBinaryCache(directory));
+		int program = nextRun.getProgram(vertex, fragment);
+
+		assertTrue(program != 0);
+		assertEquals(1, nextRun.getBinaryLoadCount());
+		assertEquals(0, nextRun.getCompileCount());
+		assertEquals(0, nextRun.getLinkCount());
+		assertEquals(1, nextDevice.getCallCount(Command.PROGRAM_BINARY));
+		assertEquals(0, nextDevice.getCallCount(Command.COMPILE_SHADER));
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_binariesUnsupported_buildsFromSource() throws Exception {
+		device.setProgramBinariesSupported(false);
+		ShaderProgramCache cache = new ShaderProgramCache(device,
+				new ProgramBinaryCache(directory));
+
+		cache.getProgram(vertex, fragment);
+
+		assertEquals(1, cache.getLinkCount());
+		assertEquals(0, device.getCallCount(Command.PROGRAM_PARAMETER));
+		assertEquals(0, directory.listFiles().length);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_evictProgram_keepsSharedShaders() {
+		ShaderProgramCache cache = new ShaderProgramCache(device, null);
+		ShaderSource definedFragment = new ShaderPreprocessor().process(BOX_FRAGMENT_SHADER,
+				Collections.singletonMap("FOG", "1"));
+		cache.getProgram(vertex, fragment);
+		int program = cache.getProgram(vertex, definedFragment);
+		assertEquals(5, device.getLiveObjectCount());
+
+		assertTrue(cache.evictProgram(ShaderProgramCache.programKey(vertex, fragment)));
+
+		// The vertex shader is still linked into the other program.
+		assertEquals(3, device.getLiveObjectCount());
+		assertEquals(program, cache.getProgram(vertex, definedFragment));
+		assertFalse(cache.evictProgram(ShaderProgramCache.programKey(vertex, fragment)));
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_evictProgram_binaryStillUsed() throws Exception {
+		ShaderProgramCache cache = new ShaderProgramCache(device,
+				new ProgramBinaryCache(directory));
+		cache.getProgram(vertex, fragment);
+
+		cache.evictProgram(ShaderProgramCache.programKey(vertex, fragment));
+		assertEquals(0, device.getLiveObjectCount());
+		cache.getProgram(vertex, fragment);
+
+		assertEquals(1, cache.getLinkCount());
+		assertEquals(1, cache.getBinaryLoadCount());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_linkFailure_deletesUnlinkedShaders() {
+		ShaderProgramCache cache = new ShaderProgramCache(device, null);
+		ShaderSource definedFragment = new ShaderPreprocessor().process(BOX_FRAGMENT_SHADER,
+				Collections.singletonMap("FOG", "1"));
+		cache.getProgram(vertex, fragment);
+		device.setLinkFailing(true);
+
+		try {
+			cache.getProgram(vertex, definedFragment);
+			fail("Expected a ShaderException.");
+		}
+		catch (ShaderException e) {
+		}
+
+		// The vertex shader is still linked into the first program.
+		assertEquals(3, device.getLiveObjectCount());
+		cache.dispose();
+		assertEquals(0, device.getLiveObjectCount());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_dispose_deletesEveryObject() {
+		ShaderProgramCache cache = new ShaderProgramCache(device, null);
+		cache.getProgram(vertex, fragment);
+		assertEquals(3, device.getLiveObjectCount());
+
+		cache.dispose();
+
+		assertEquals(0, device.getLiveObjectCount());
+	}
+}
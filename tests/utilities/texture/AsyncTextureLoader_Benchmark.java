@@ -0,0 +1,160 @@
+package utilities.texture;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import util.texture.AsyncTextureLoader;
+import util.texture.DirectBufferPool;
+import util.texture.TextureData;
+import util.texture.TextureDecoder;
+import util.texture.TextureUploader;
+import utilities.benchmark.BenchmarkRunner;
+import utilities.benchmark.BenchmarkTask;
+import utilities.benchmark.Blackhole;
+
+/**
+ * PNG decode throughput, in megabytes of decoded RGBA pixels per second, for
+ * decoding on the calling thread into freshly allocated buffers, as
+ * TextureUtils.loadPNGTexture used to, versus pooled buffers, versus the
+ * worker threads of an {@link AsyncTextureLoader}.
+ *
+ * Usage: <code>AsyncTextureLoader_Benchmark [resultsFile.json [pngDirectory]]</code>
+ *
+ * When no directory is given, a set of generated PNGs is decoded instead.
+ *
+ * @author Dustin Biser
+ *
+ */
+public class AsyncTextureLoader_Benchmark {
+	private static final int GENERATED_IMAGE_COUNT = 32;
+	private static final int GENERATED_IMAGE_SIZE = 256;
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Decodes every file once per invocation.
+	 */
+	private static abstract class DecodeTask extends BenchmarkTask {
+		protected final String[] filenames;
+		private final double megabytes;
+
+		DecodeTask(String[] filenames, long decodedBytes) {
+			this.filenames = filenames;
+			this.megabytes = decodedBytes / 1e6;
+		}
+
+		@Override
+		public String unit() {
+			return "MB/s";
+		}
+
+		@Override
+		public double unitsPerInvocation() {
+			return megabytes;
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	public static void main(String args[]) throws IOException {
+		File[] files = TestImages.findOrGeneratePNGs(
+				(args.length > 1) ? new File(args[1]) : null,
+				GENERATED_IMAGE_COUNT, GENERATED_IMAGE_SIZE);
+
+		final String[] filenames = new String[files.length];
+		for (int i = 0; i < files.length; i++) {
+			filenames[i] = files[i].getPath();
+		}
+		long decodedBytes = 0;
+		for (String filename : filenames) {
+			decodedBytes += TextureDecoder.decodePNG(filename, null).getByteCount();
+		}
+		final int[] batchSizes = {filenames.length};
+
+		BenchmarkRunner runner = new BenchmarkRunner("AsyncTextureLoader");
+
+		runner.add("sync_allocating", batchSizes, new DecodeTask(filenames, decodedBytes) {
+			@Override
+			public void run(Blackhole blackhole) {
+				for (String filename : filenames) {
+					try {
+						blackhole.consume(TextureDecoder.decodePNG(filename, null));
+					}
+					catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				}
+			}
+		});
+
+		runner.add("sync_pooled", batchSizes, new DecodeTask(filenames, decodedBytes) {
+			private final DirectBufferPool pool = new DirectBufferPool();
+
+			@Override
+			public void run(Blackhole blackhole) {
+				for (String filename : filenames) {
+					try {
+						TextureData data = TextureDecoder.decodePNG(filename, pool);
+						blackhole.consume(data.getPixels().get(0));
+						data.release();
+					}
+					catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				}
+			}
+		});
+
+		runner.add("async_pooled", batchSizes, new DecodeTask(filenames, decodedBytes) {
+			private AsyncTextureLoader loader;
+			private final TextureUploader discardingUploader = new TextureUploader() {
+				@Override
+				public void upload(TextureData data) {
+					// Nothing to upload to without a GL context.
+				}
+			};
+			private final List<Future<TextureData>> futures =
+					new ArrayList<Future<TextureData>>();
+
+			@Override
+			public void setup(int batchSize) {
+				loader = new AsyncTextureLoader();
+			}
+
+			@Override
+			public void run(Blackhole blackhole) {
+				futures.clear();
+				for (String filename : filenames) {
+					futures.add(loader.load(filename));
+				}
+				try {
+					for (Future<TextureData> future : futures) {
+						blackhole.consume(future.get());
+					}
+				}
+				catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+				catch (ExecutionException e) {
+					throw new RuntimeException(e.getCause());
+				}
+
+				// Hand the buffers back, as a render thread's upload step would.
+				loader.uploadPending(Long.MAX_VALUE, discardingUploader);
+			}
+
+			@Override
+			public void teardown() {
+				loader.shutdown();
+			}
+		});
+
+		runner.runAndWrite(args);
+
+		if (args.length < 2) {
+			TestImages.deleteDirectory(files[0].getParentFile());
+		}
+	}
+}
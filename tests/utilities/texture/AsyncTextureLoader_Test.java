@@ -0,0 +1,223 @@
+package utilities.texture;
+
+import static org.junit.Assert.*;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import util.texture.AsyncTextureLoader;
+import util.texture.DirectBufferPool;
+import util.texture.TextureData;
+import util.texture.TextureDecoder;
+import util.texture.TextureUploader;
+
+public class AsyncTextureLoader_Test {
+	private static final long TIMEOUT_SECONDS = 10;
+
+	private File directory;
+	private DirectBufferPool pool;
+	private AsyncTextureLoader loader;
+
+	@Before
+	public void setUp() throws Exception {
+		directory = TestImages.createTempDirectory("AsyncTextureLoader_Test");
+		pool = new DirectBufferPool();
+		loader = new AsyncTextureLoader(2, pool);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		loader.shutdown();
+		TestImages.deleteDirectory(directory);
+	}
+
+	//--------------------------------------------------------------------------
+	// Helper Method
+	private String writePNG(String name, int width, int height) throws Exception {
+		File file = new File(directory, name);
+		TestImages.writePNG(file, width, height, name.hashCode());
+		return file.getPath();
+	}
+
+	//--------------------------------------------------------------------------
+	// Helper Method
+	// Records the names and sizes of uploaded textures, and checks that their
+	// pixels are still accessible during upload.
+	private static class RecordingUploader implements TextureUploader {
+		final List<String> names = new ArrayList<String>();
+		long bytes;
+
+		@Override
+		public void upload(TextureData data) {
+			assertEquals(data.getByteCount(), data.getPixels().remaining());
+			names.add(data.getName());
+			bytes += data.getByteCount();
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_decodePNG_rgbaPixelOrder() throws Exception {
+		File file = new File(directory, "pixels.png");
+		BufferedImage image = TestImages.writePNG(file, 7, 5, 3);
+
+		TextureData data = TextureDecoder.decodePNG(file.getPath(), pool);
+		ByteBuffer pixels = data.getPixels();
+
+		assertEquals(7, data.getWidth());
+		assertEquals(5, data.getHeight());
+		assertEquals(7 * 5 * 4, pixels.remaining());
+
+		for (int y = 0; y < 5; y++) {
+			for (int x = 0; x < 7; x++) {
+				int argb = image.getRGB(x, y);
+				int i = 4 * (y * 7 + x);
+				assertEquals((argb >> 16) & 0xff, pixels.get(i) & 0xff);
+				assertEquals((argb >> 8) & 0xff, pixels.get(i + 1) & 0xff);
+				assertEquals(argb & 0xff, pixels.get(i + 2) & 0xff);
+				assertEquals((argb >>> 24), pixels.get(i + 3) & 0xff);
+			}
+		}
+
+		data.release();
+		assertTrue(data.isReleased());
+		assertEquals(pixels.capacity(), pool.getRetainedBytes());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_decodePNG_uncheckedExceptionReleasesBuffer() throws Exception {
+		final byte[] bytes = Files.readAllBytes(new File(writePNG("a.png", 64, 64)).toPath());
+		// Fails once the decoder is reading pixel data, past the header.
+		InputStream in = new ByteArrayInputStream(bytes) {
+			@Override
+			public synchronized int read(byte[] b, int off, int len) {
+				if (pos > bytes.length / 2) {
+					throw new IllegalStateException("Corrupt stream.");
+				}
+				return super.read(b, off, Math.min(len, 16));
+			}
+		};
+
+		try {
+			TextureDecoder.decodePNG(in, "a.png", pool);
+			fail("Expected an IllegalStateException.");
+		}
+		catch (IllegalStateException e) {
+		}
+
+		assertEquals(64 * 64 * 4, pool.getRetainedBytes());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_load_cancelledTextureNotQueued() throws Exception {
+		AsyncTextureLoader serialLoader = new AsyncTextureLoader(1, pool);
+		try {
+			Future<TextureData> cancelled = serialLoader.load(writePNG("a.png", 256, 256));
+			cancelled.cancel(false);
+
+			// The single worker decodes in order, so the first task is settled
+			// once the second completes.
+			serialLoader.load(writePNG("b.png", 16, 16)).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+			assertTrue(cancelled.isCancelled());
+			assertEquals(1, serialLoader.getPendingUploadCount());
+		}
+		finally {
+			serialLoader.shutdown();
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_load_futureHoldsDecodedTexture() throws Exception {
+		String filename = writePNG("a.png", 32, 16);
+
+		TextureData data = loader.load(filename).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+		assertEquals(filename, data.getName());
+		assertEquals(32, data.getWidth());
+		assertEquals(16, data.getHeight());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_load_missingFileFailsFuture() throws Exception {
+		Future<TextureData> future = loader.load(
+				new File(directory, "missing.png").getPath());
+
+		try {
+			future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+			fail("Expected an ExecutionException.");
+		}
+		catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof FileNotFoundException);
+		}
+
+		assertEquals(0, loader.getPendingUploadCount());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_uploadPending_respectsByteBudget() throws Exception {
+		List<Future<TextureData>> futures = new ArrayList<Future<TextureData>>();
+		for (int i = 0; i < 5; i++) {
+			futures.add(loader.load(writePNG(i + ".png", 64, 64)));
+		}
+		for (Future<TextureData> future : futures) {
+			future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		}
+
+		final int textureBytes = 64 * 64 * 4;
+		RecordingUploader uploader = new RecordingUploader();
+
+		assertEquals(2, loader.uploadPending(2 * textureBytes + 1, uploader));
+		assertEquals(3, loader.getPendingUploadCount());
+
+		assertEquals(3, loader.uploadPending(Long.MAX_VALUE, uploader));
+		assertEquals(5, uploader.names.size());
+		assertEquals(5 * textureBytes, uploader.bytes);
+		assertEquals(0, loader.uploadPending(Long.MAX_VALUE, uploader));
+
+		for (Future<TextureData> future : futures) {
+			assertTrue(future.get().isReleased());
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_uploadPending_alwaysUploadsOneTexture() throws Exception {
+		loader.load(writePNG("big.png", 128, 128)).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+		assertEquals(1, loader.uploadPending(1, new RecordingUploader()));
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_uploadedBuffersAreReused() throws Exception {
+		RecordingUploader uploader = new RecordingUploader();
+
+		for (int i = 0; i < 4; i++) {
+			loader.load(writePNG(i + ".png", 64, 64)).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+			loader.uploadPending(Long.MAX_VALUE, uploader);
+		}
+
+		assertEquals(1, pool.getAllocationCount());
+		assertEquals(3, pool.getReuseCount());
+	}
+}
@@ -0,0 +1,94 @@
+package utilities.texture;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import util.texture.DirectBufferPool;
+
+public class DirectBufferPool_Test {
+	private DirectBufferPool pool;
+
+	@Before
+	public void setUp() throws Exception {
+		pool = new DirectBufferPool(1 << 20);
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_acquire_setsLimit() {
+		ByteBuffer buffer = pool.acquire(5000);
+
+		assertTrue(buffer.isDirect());
+		assertEquals(ByteOrder.nativeOrder(), buffer.order());
+		assertEquals(0, buffer.position());
+		assertEquals(5000, buffer.limit());
+		assertEquals(8192, buffer.capacity());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_release_reusesBufferOfSameSizeClass() {
+		ByteBuffer buffer = pool.acquire(5000);
+		buffer.position(100);
+		pool.release(buffer);
+
+		assertEquals(8192, pool.getRetainedBytes());
+
+		ByteBuffer reused = pool.acquire(8000);
+		assertSame(buffer, reused);
+		assertEquals(0, reused.position());
+		assertEquals(8000, reused.limit());
+		assertEquals(1, pool.getAllocationCount());
+		assertEquals(1, pool.getReuseCount());
+		assertEquals(0, pool.getRetainedBytes());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_acquire_differentSizeClassAllocates() {
+		pool.release(pool.acquire(5000));
+		ByteBuffer buffer = pool.acquire(9000);
+
+		assertEquals(16384, buffer.capacity());
+		assertEquals(2, pool.getAllocationCount());
+		assertEquals(0, pool.getReuseCount());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_release_respectsRetainedByteLimit() {
+		ByteBuffer a = pool.acquire(1 << 19);
+		ByteBuffer b = pool.acquire(1 << 19);
+		ByteBuffer c = pool.acquire(1 << 19);
+
+		pool.release(a);
+		pool.release(b);
+		pool.release(c);
+
+		assertEquals(1 << 20, pool.getRetainedBytes());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_release_ignoresForeignBuffers() {
+		pool.release(ByteBuffer.allocate(4096));
+		pool.release(ByteBuffer.allocateDirect(5000));
+
+		assertEquals(0, pool.getRetainedBytes());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_clear() {
+		pool.release(pool.acquire(100));
+		pool.release(pool.acquire(100000));
+		pool.clear();
+
+		assertEquals(0, pool.getRetainedBytes());
+	}
+}
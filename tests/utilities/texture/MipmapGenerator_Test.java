@@ -0,0 +1,235 @@
+package utilities.texture;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import util.texture.DirectBufferPool;
+import util.texture.MipChain;
+import util.texture.MipChainCache;
+import util.texture.MipmapGenerator;
+import util.texture.MipmapGenerator.Filter;
+import util.texture.TextureData;
+
+public class MipmapGenerator_Test {
+	private DirectBufferPool pool;
+	private File directory;
+
+	@Before
+	public void setUp() throws Exception {
+		pool = new DirectBufferPool();
+		directory = TestImages.createTempDirectory("MipmapGenerator_Test");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		TestImages.deleteDirectory(directory);
+	}
+
+	//--------------------------------------------------------------------------
+	// Helper Method
+	private static TextureData createTexture(int width, int height, int[] rgba) {
+		ByteBuffer pixels = ByteBuffer.allocateDirect(4 * width * height);
+		for (int i = 0; i < width * height; i++) {
+			int[] color = (rgba.length == 4) ? rgba : new int[] {
+					rgba[4 * i], rgba[4 * i + 1], rgba[4 * i + 2], rgba[4 * i + 3]};
+			for (int c = 0; c < 4; c++) {
+				pixels.put((byte) color[c]);
+			}
+		}
+		pixels.flip();
+
+		return new TextureData("test", width, height, pixels, null);
+	}
+
+	//--------------------------------------------------------------------------
+	// Helper Method
+	// Returns a width x height checkerboard of black and white texels.
+	private static TextureData createCheckerboard(int width, int height) {
+		int[] rgba = new int[4 * width * height];
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				int value = ((x + y) & 1) * 255;
+				int i = 4 * (y * width + x);
+				rgba[i] = rgba[i + 1] = rgba[i + 2] = value;
+				rgba[i + 3] = 255;
+			}
+		}
+		return createTexture(width, height, rgba);
+	}
+
+	//--------------------------------------------------------------------------
+	// Helper Method
+	private static int channel(TextureData data, int x, int y, int c) {
+		return data.getPixels().get(4 * (y * data.getWidth() + x) + c) & 0xff;
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_levelDimensions() {
+		TextureData base = createTexture(13, 5, new int[] {10, 20, 30, 40});
+		MipChain chain = new MipmapGenerator(Filter.BOX, false).generate(base, pool);
+
+		int[][] expected = {{13, 5}, {6, 2}, {3, 1}, {1, 1}};
+		assertEquals(expected.length, chain.getLevelCount());
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i][0], chain.getLevel(i).getWidth());
+			assertEquals(expected[i][1], chain.getLevel(i).getHeight());
+		}
+		assertEquals(13 * 5 * 4 + 6 * 2 * 4 + 3 * 4 + 4, chain.getByteCount());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_baseLevelIsCopy() {
+		TextureData base = createCheckerboard(4, 4);
+		MipChain chain = new MipmapGenerator(Filter.BOX, true).generate(base, pool);
+
+		assertEquals(base.getPixels(), chain.getLevel(0).getPixels());
+		assertNotSame(base.getPixels(), chain.getLevel(0).getPixels());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_uniformColorPreserved() {
+		int[] color = {200, 100, 50, 128};
+
+		for (Filter filter : Filter.values()) {
+			for (boolean gammaCorrect : new boolean[] {false, true}) {
+				TextureData base = createTexture(16, 8, color);
+				MipChain chain = new MipmapGenerator(filter, gammaCorrect)
+						.generate(base, pool);
+
+				for (int level = 1; level < chain.getLevelCount(); level++) {
+					TextureData data = chain.getLevel(level);
+					for (int c = 0; c < 4; c++) {
+						assertEquals(filter + " level " + level, color[c],
+								channel(data, 0, 0, c));
+						assertEquals(color[c], channel(data, data.getWidth() - 1,
+								data.getHeight() - 1, c));
+					}
+				}
+				chain.release();
+			}
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_box_linearAverage() {
+		MipChain chain = new MipmapGenerator(Filter.BOX, false)
+				.generate(createCheckerboard(2, 2), pool);
+
+		assertEquals(128, channel(chain.getLevel(1), 0, 0, 0));
+		assertEquals(255, channel(chain.getLevel(1), 0, 0, 3));
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_box_gammaCorrectAverage() {
+		MipChain chain = new MipmapGenerator(Filter.BOX, true)
+				.generate(createCheckerboard(2, 2), pool);
+
+		// Half intensity in linear space is 188 in sRGB.
+		assertEquals(188, channel(chain.getLevel(1), 0, 0, 0));
+		assertEquals(255, channel(chain.getLevel(1), 0, 0, 3));
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_kaiser_removesCheckerboard() {
+		MipChain chain = new MipmapGenerator(Filter.KAISER, false)
+				.generate(createCheckerboard(32, 32), pool);
+
+		// Texels near the edges see a clamped, no longer alternating pattern.
+		TextureData level1 = chain.getLevel(1);
+		for (int y = 2; y < level1.getHeight() - 2; y++) {
+			for (int x = 2; x < level1.getWidth() - 2; x++) {
+				assertEquals(128, channel(level1, x, y, 1), 1);
+			}
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_parallelMatchesSerial() {
+		TextureData base = createTexture(97, 71, new int[] {0, 0, 0, 0});
+		ByteBuffer pixels = base.getPixels();
+		for (int i = 0; i < pixels.limit(); i++) {
+			pixels.put(i, (byte) (i * 31 + (i >> 7)));
+		}
+
+		MipChain serial = new MipmapGenerator(Filter.KAISER, true,
+				Integer.MAX_VALUE, null).generate(base, pool);
+		MipChain parallel = new MipmapGenerator(Filter.KAISER, true, 4,
+				new ForkJoinPool(4)).generate(base, pool);
+
+		for (int level = 0; level < serial.getLevelCount(); level++) {
+			assertEquals(serial.getLevel(level).getPixels(),
+					parallel.getLevel(level).getPixels());
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_cacheKeyDependsOnSettings() {
+		TextureData base = createCheckerboard(4, 4);
+
+		String box = new MipmapGenerator(Filter.BOX, true).getCacheKey(base);
+		String kaiser = new MipmapGenerator(Filter.KAISER, true).getCacheKey(base);
+		String linear = new MipmapGenerator(Filter.BOX, false).getCacheKey(base);
+
+		assertFalse(box.equals(kaiser));
+		assertFalse(box.equals(linear));
+		assertEquals(box, new MipmapGenerator(Filter.BOX, true).getCacheKey(
+				createCheckerboard(4, 4)));
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_diskCacheRoundTrip() throws Exception {
+		MipChainCache cache = new MipChainCache(directory, pool);
+		MipmapGenerator generator = new MipmapGenerator(Filter.KAISER, true);
+		TextureData base = createCheckerboard(12, 7);
+		String key = generator.getCacheKey(base);
+
+		assertNull(cache.load(key));
+
+		MipChain generated = cache.getOrGenerate(base, generator);
+		MipChain loaded = cache.load(key);
+
+		assertNotNull(loaded);
+		assertEquals(generated.getLevelCount(), loaded.getLevelCount());
+		for (int level = 0; level < generated.getLevelCount(); level++) {
+			assertEquals(generated.getLevel(level).getWidth(),
+					loaded.getLevel(level).getWidth());
+			assertEquals(generated.getLevel(level).getPixels(),
+					loaded.getLevel(level).getPixels());
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_diskCacheIgnoresTruncatedFile() throws Exception {
+		MipChainCache cache = new MipChainCache(directory, pool);
+		MipmapGenerator generator = new MipmapGenerator(Filter.BOX, false);
+		TextureData base = createCheckerboard(8, 8);
+		String key = generator.getCacheKey(base);
+
+		cache.getOrGenerate(base, generator);
+		File[] files = directory.listFiles();
+		assertEquals(1, files.length);
+
+		java.io.RandomAccessFile file = new java.io.RandomAccessFile(files[0], "rw");
+		file.setLength(file.length() - 1);
+		file.close();
+
+		assertNull(cache.load(key));
+	}
+}
@@ -0,0 +1,133 @@
+package utilities.texture;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Generates PNG files for texture tests and benchmarks, without needing any
+ * image assets on disk.
+ *
+ * @author Dustin Biser
+ *
+ */
+public class TestImages {
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Creates an ARGB image of smooth gradients overlaid with noise, which
+	 * compresses about as well as typical texture art.
+	 *
+	 * @param width
+	 * @param height
+	 * @param seed - seed for the noise.
+	 * @return the image.
+	 */
+	public static BufferedImage createImage(int width, int height, long seed) {
+		BufferedImage image = new BufferedImage(width, height,
+				BufferedImage.TYPE_INT_ARGB);
+		Random random = new Random(seed);
+
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				int r = (255 * x / width + random.nextInt(16)) & 0xff;
+				int g = (255 * y / height + random.nextInt(16)) & 0xff;
+				int b = ((x ^ y) + random.nextInt(16)) & 0xff;
+				int a = 0xff - (random.nextInt(4) << 4);
+				image.setRGB(x, y, (a << 24) | (r << 16) | (g << 8) | b);
+			}
+		}
+
+		return image;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Writes {@link #createImage(int, int, long)} to a PNG file.
+	 *
+	 * @return the image written.
+	 */
+	public static BufferedImage writePNG(File file, int width, int height,
+			long seed) throws IOException {
+		BufferedImage image = createImage(width, height, seed);
+		if (!ImageIO.write(image, "png", file)) {
+			throw new IOException("No PNG writer available.");
+		}
+		return image;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Creates an empty temporary directory.
+	 */
+	public static File createTempDirectory(String prefix) throws IOException {
+		File directory = File.createTempFile(prefix, "");
+		if (!directory.delete() || !directory.mkdir()) {
+			throw new IOException("Cannot create directory " + directory + ".");
+		}
+		return directory;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Deletes <code>directory</code> and all files within it.
+	 */
+	public static void deleteDirectory(File directory) {
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				if (file.isDirectory()) {
+					deleteDirectory(file);
+				}
+				else {
+					file.delete();
+				}
+			}
+		}
+		directory.delete();
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * @return the PNG files in <code>directory</code>, sorted by name.
+	 * @throws IllegalArgumentException if there are none.
+	 */
+	public static File[] listPNGs(File directory) {
+		File[] files = directory.listFiles(new FilenameFilter() {
+			@Override
+			public boolean accept(File dir, String name) {
+				return name.toLowerCase().endsWith(".png");
+			}
+		});
+		if (files == null || files.length == 0) {
+			throw new IllegalArgumentException("No PNG files in " + directory + ".");
+		}
+		Arrays.sort(files);
+
+		return files;
+	}
+
+	//--------------------------------------------------------------------------
+	/**
+	 * Returns the PNG files in <code>directory</code> or, when it is null,
+	 * generates <code>count</code> PNGs of <code>size</code> x
+	 * <code>size</code> pixels into a new temporary directory.
+	 */
+	public static File[] findOrGeneratePNGs(File directory, int count, int size)
+			throws IOException {
+		if (directory != null) {
+			return listPNGs(directory);
+		}
+
+		directory = createTempDirectory("TestImages");
+		for (int i = 0; i < count; i++) {
+			writePNG(new File(directory, i + ".png"), size, size, i);
+		}
+		return listPNGs(directory);
+	}
+}
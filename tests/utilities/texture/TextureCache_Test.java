@@ -0,0 +1,164 @@
+package utilities.texture;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import util.texture.DirectBufferPool;
+import util.texture.TextureCache;
+import util.texture.TextureData;
+
+public class TextureCache_Test {
+	// Each test image decodes to 32 * 32 * 4 bytes.
+	private static final int IMAGE_SIZE = 32;
+	private static final int IMAGE_BYTES = IMAGE_SIZE * IMAGE_SIZE * 4;
+
+	private File directory;
+	private DirectBufferPool pool;
+	private TextureCache cache;
+
+	@Before
+	public void setUp() throws Exception {
+		directory = TestImages.createTempDirectory("TextureCache_Test");
+		pool = new DirectBufferPool();
+		cache = new TextureCache(2 * IMAGE_BYTES, pool);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		TestImages.deleteDirectory(directory);
+	}
+
+	//--------------------------------------------------------------------------
+	// Helper Method
+	private String writePNG(String name, long seed) throws Exception {
+		File file = new File(directory, name);
+		TestImages.writePNG(file, IMAGE_SIZE, IMAGE_SIZE, seed);
+		return file.getPath();
+	}
+
+	//--------------------------------------------------------------------------
+	// Helper Method
+	private void acquireAndRelease(String filename) throws Exception {
+		cache.release(cache.acquire(filename));
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_acquire_samePathHits() throws Exception {
+		String filename = writePNG("a.png", 1);
+
+		TextureData first = cache.acquire(filename);
+		TextureData second = cache.acquire(filename);
+
+		assertSame(first, second);
+		assertEquals(1, cache.getMissCount());
+		assertEquals(1, cache.getHitCount());
+		assertEquals(IMAGE_BYTES, cache.getCachedBytes());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_acquire_nonCanonicalPathHits() throws Exception {
+		String filename = writePNG("a.png", 1);
+		String indirect = directory.getPath() + File.separator + "."
+				+ File.separator + "a.png";
+
+		assertSame(cache.acquire(filename), cache.acquire(indirect));
+		assertEquals(1, cache.getMissCount());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_acquire_identicalContentsDeduplicated() throws Exception {
+		String original = writePNG("a.png", 1);
+		File copy = new File(directory, "copy.png");
+		Files.copy(new File(original).toPath(), copy.toPath());
+
+		assertSame(cache.acquire(original), cache.acquire(copy.getPath()));
+		assertEquals(1, cache.getMissCount());
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getEntryCount());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_acquire_changedFileDecodedAgain() throws Exception {
+		String filename = writePNG("a.png", 1);
+		TextureData before = cache.acquire(filename);
+
+		File replacement = new File(writePNG("b.png", 2));
+		Files.move(replacement.toPath(), new File(filename).toPath(),
+				StandardCopyOption.REPLACE_EXISTING);
+		new File(filename).setLastModified(System.currentTimeMillis() + 10000);
+
+		assertNotSame(before, cache.acquire(filename));
+		assertEquals(2, cache.getMissCount());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_evictsLeastRecentlyUsed() throws Exception {
+		String a = writePNG("a.png", 1);
+		String b = writePNG("b.png", 2);
+		String c = writePNG("c.png", 3);
+
+		acquireAndRelease(a);
+		acquireAndRelease(b);
+		acquireAndRelease(a);
+		acquireAndRelease(c);
+
+		// b was the least recently used when c exceeded the budget.
+		assertEquals(1, cache.getEvictionCount());
+		assertEquals(2 * IMAGE_BYTES, cache.getCachedBytes());
+
+		acquireAndRelease(a);
+		assertEquals(3, cache.getMissCount());
+		acquireAndRelease(b);
+		assertEquals(4, cache.getMissCount());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_acquiredTexturesNotEvicted() throws Exception {
+		TextureData a = cache.acquire(writePNG("a.png", 1));
+		TextureData b = cache.acquire(writePNG("b.png", 2));
+		TextureData c = cache.acquire(writePNG("c.png", 3));
+
+		assertEquals(0, cache.getEvictionCount());
+		assertEquals(3 * IMAGE_BYTES, cache.getCachedBytes());
+		assertFalse(a.isReleased());
+
+		cache.release(b);
+		assertEquals(1, cache.getEvictionCount());
+		assertTrue(b.isReleased());
+		assertFalse(c.isReleased());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_evictedBuffersReturnToPool() throws Exception {
+		acquireAndRelease(writePNG("a.png", 1));
+		cache.clear();
+
+		assertEquals(0, cache.getCachedBytes());
+		assertEquals(IMAGE_BYTES, pool.getRetainedBytes());
+
+		acquireAndRelease(writePNG("b.png", 2));
+		assertEquals(1, pool.getReuseCount());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test(expected = IllegalArgumentException.class)
+	public void test_release_unknownTexture() throws Exception {
+		TextureData data = cache.acquire(writePNG("a.png", 1));
+		cache.release(data);
+		cache.release(data);
+	}
+}
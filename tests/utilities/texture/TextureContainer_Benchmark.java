@@ -0,0 +1,124 @@
+package utilities.texture;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import util.texture.DirectBufferPool;
+import util.texture.TextureContainer;
+import util.texture.TextureContainer.PixelFormat;
+import util.texture.TextureContainerConverter;
+import util.texture.TextureData;
+import util.texture.TextureDecoder;
+import utilities.benchmark.BenchmarkRunner;
+import utilities.benchmark.BenchmarkTask;
+import utilities.benchmark.Blackhole;
+
+/**
+ * Load throughput, in megabytes of base level pixels per second, of decoding
+ * PNG files versus memory mapping the equivalent {@link TextureContainer}s.
+ * Mapped loads read one byte from every page of each level, as an upload
+ * would, so that the pages are actually brought into memory.
+ *
+ * Usage: <code>TextureContainer_Benchmark [resultsFile.json [pngDirectory]]</code>
+ *
+ * When no directory is given, a set of generated PNGs is used instead. Both
+ * formats are read from the operating system's file cache after the first
+ * iteration, so on a cold disk the mapped load is bound by I/O instead.
+ *
+ * @author Dustin Biser
+ *
+ */
+public class TextureContainer_Benchmark {
+	private static final int GENERATED_IMAGE_COUNT = 32;
+	private static final int GENERATED_IMAGE_SIZE = 512;
+	private static final int PAGE_SIZE = 4096;
+
+	//--------------------------------------------------------------------------
+	private static abstract class LoadTask extends BenchmarkTask {
+		protected final File[] files;
+		private final double megabytes;
+
+		LoadTask(File[] files, long pixelBytes) {
+			this.files = files;
+			this.megabytes = pixelBytes / 1e6;
+		}
+
+		@Override
+		public String unit() {
+			return "MB/s";
+		}
+
+		@Override
+		public double unitsPerInvocation() {
+			return megabytes;
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	public static void main(String args[]) throws IOException {
+		final File[] pngs = TestImages.findOrGeneratePNGs(
+				(args.length > 1) ? new File(args[1]) : null,
+				GENERATED_IMAGE_COUNT, GENERATED_IMAGE_SIZE);
+
+		File containerDirectory = TestImages.createTempDirectory("TextureContainer_Benchmark");
+		TextureContainerConverter converter = new TextureContainerConverter(
+				null, PixelFormat.RGBA8);
+		final File[] containers = new File[pngs.length];
+		long pixelBytes = 0;
+		for (int i = 0; i < pngs.length; i++) {
+			containers[i] = new File(containerDirectory,
+					TextureContainerConverter.containerName(pngs[i]));
+			converter.convert(pngs[i], containers[i]);
+			pixelBytes += TextureContainer.map(containers[i]).getByteCount();
+		}
+		final int[] batchSizes = {pngs.length};
+
+		BenchmarkRunner runner = new BenchmarkRunner("TextureContainer");
+
+		runner.add("png_decode", batchSizes, new LoadTask(pngs, pixelBytes) {
+			private final DirectBufferPool pool = new DirectBufferPool();
+
+			@Override
+			public void run(Blackhole blackhole) {
+				for (File png : files) {
+					try {
+						TextureData data = TextureDecoder.decodePNG(png.getPath(), pool);
+						blackhole.consume(data.getPixels().get(0));
+						data.release();
+					}
+					catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				}
+			}
+		});
+
+		runner.add("mapped_load", batchSizes, new LoadTask(containers, pixelBytes) {
+			@Override
+			public void run(Blackhole blackhole) {
+				for (File file : files) {
+					try {
+						TextureContainer container = TextureContainer.map(file);
+						ByteBuffer pixels = container.getLevel(0);
+						int sum = 0;
+						for (int i = 0; i < pixels.limit(); i += PAGE_SIZE) {
+							sum += pixels.get(i);
+						}
+						blackhole.consume(sum);
+					}
+					catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				}
+			}
+		});
+
+		runner.runAndWrite(args);
+
+		TestImages.deleteDirectory(containerDirectory);
+		if (args.length < 2) {
+			TestImages.deleteDirectory(pngs[0].getParentFile());
+		}
+	}
+}
@@ -0,0 +1,159 @@
+package utilities.texture;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import util.texture.MipChain;
+import util.texture.MipmapGenerator;
+import util.texture.MipmapGenerator.Filter;
+import util.texture.TextureContainer;
+import util.texture.TextureContainer.PixelFormat;
+import util.texture.TextureContainerConverter;
+import util.texture.TextureData;
+import util.texture.TextureDecoder;
+
+public class TextureContainer_Test {
+	private File directory;
+
+	@Before
+	public void setUp() throws Exception {
+		directory = TestImages.createTempDirectory("TextureContainer_Test");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		TestImages.deleteDirectory(directory);
+	}
+
+	//--------------------------------------------------------------------------
+	// Helper Method
+	private File writePNG(String name, int width, int height) throws Exception {
+		File file = new File(directory, name);
+		TestImages.writePNG(file, width, height, name.hashCode());
+		return file;
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_singleLevelRoundTrip() throws Exception {
+		TextureData data = TextureDecoder.decodePNG(
+				writePNG("a.png", 19, 7).getPath(), null);
+		File file = new File(directory, "a.txc");
+
+		TextureContainer.write(file, data, PixelFormat.RGBA8);
+		TextureContainer container = TextureContainer.map(file);
+
+		assertEquals(PixelFormat.RGBA8, container.getPixelFormat());
+		assertEquals(1, container.getLevelCount());
+		assertEquals(19, container.getWidth(0));
+		assertEquals(7, container.getHeight(0));
+		assertEquals(data.getPixels(), container.getLevel(0));
+		assertEquals(data.getByteCount(), container.getByteCount());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_mipChainRoundTrip() throws Exception {
+		TextureData base = TextureDecoder.decodePNG(
+				writePNG("a.png", 16, 8).getPath(), null);
+		MipChain chain = new MipmapGenerator(Filter.BOX, true).generate(base, null);
+		File file = new File(directory, "a.txc");
+
+		TextureContainer.write(file, chain, PixelFormat.RGBA8);
+		TextureContainer container = TextureContainer.map(file);
+
+		assertEquals(chain.getLevelCount(), container.getLevelCount());
+		for (int level = 0; level < chain.getLevelCount(); level++) {
+			assertEquals(chain.getLevel(level).getWidth(), container.getWidth(level));
+			assertEquals(chain.getLevel(level).getHeight(), container.getHeight(level));
+			assertEquals(chain.getLevel(level).getPixels(), container.getLevel(level));
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_bgraSwizzle() throws Exception {
+		TextureData data = TextureDecoder.decodePNG(
+				writePNG("a.png", 5, 3).getPath(), null);
+		File file = new File(directory, "a.txc");
+
+		TextureContainer.write(file, data, PixelFormat.BGRA8);
+		TextureContainer container = TextureContainer.map(file);
+		ByteBuffer rgba = data.getPixels();
+		ByteBuffer bgra = container.getLevel(0);
+
+		assertEquals(PixelFormat.BGRA8, container.getPixelFormat());
+		for (int i = 0; i < rgba.limit(); i += 4) {
+			assertEquals(rgba.get(i), bgra.get(i + 2));
+			assertEquals(rgba.get(i + 1), bgra.get(i + 1));
+			assertEquals(rgba.get(i + 2), bgra.get(i));
+			assertEquals(rgba.get(i + 3), bgra.get(i + 3));
+		}
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_levelsAreIndependentViews() throws Exception {
+		TextureData data = TextureDecoder.decodePNG(
+				writePNG("a.png", 8, 8).getPath(), null);
+		File file = new File(directory, "a.txc");
+		TextureContainer.write(file, data, PixelFormat.RGBA8);
+		TextureContainer container = TextureContainer.map(file);
+
+		ByteBuffer first = container.getLevel(0);
+		first.position(first.limit());
+
+		ByteBuffer second = container.getLevel(0);
+		assertEquals(0, second.position());
+		assertEquals(8 * 8 * 4, second.remaining());
+		assertTrue(second.isReadOnly());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test
+	public void test_converterDirectory() throws Exception {
+		File input = new File(directory, "png");
+		File output = new File(directory, "txc");
+		assertTrue(input.mkdir());
+		TestImages.writePNG(new File(input, "a.png"), 8, 4, 1);
+		TestImages.writePNG(new File(input, "b.png"), 4, 4, 2);
+
+		TextureContainerConverter converter = new TextureContainerConverter(
+				new MipmapGenerator(Filter.KAISER, true), PixelFormat.BGRA8);
+		assertEquals(2, converter.convertDirectory(input, output));
+
+		TextureContainer a = TextureContainer.map(new File(output, "a.txc"));
+		assertEquals(4, a.getLevelCount());
+		assertEquals(PixelFormat.BGRA8, a.getPixelFormat());
+		assertEquals(3, TextureContainer.map(new File(output, "b.txc")).getLevelCount());
+	}
+
+	//--------------------------------------------------------------------------
+	@Test(expected = IOException.class)
+	public void test_map_rejectsPNG() throws Exception {
+		TextureContainer.map(writePNG("a.png", 4, 4));
+	}
+
+	//--------------------------------------------------------------------------
+	@Test(expected = IOException.class)
+	public void test_map_rejectsTruncatedFile() throws Exception {
+		TextureData data = TextureDecoder.decodePNG(
+				writePNG("a.png", 8, 8).getPath(), null);
+		File file = new File(directory, "a.txc");
+		TextureContainer.write(file, data, PixelFormat.RGBA8);
+
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		raf.setLength(raf.length() - 4);
+		raf.close();
+
+		TextureContainer.map(file);
+	}
+}